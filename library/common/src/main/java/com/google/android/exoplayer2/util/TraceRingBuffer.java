@@ -0,0 +1,249 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.util;
+
+import static com.google.android.exoplayer2.util.Assertions.checkArgument;
+import static java.lang.annotation.ElementType.TYPE_USE;
+import static java.lang.Math.max;
+
+import androidx.annotation.IntDef;
+import androidx.annotation.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-capacity, lock-free ring buffer of structured trace records of the playback loop.
+ *
+ * <p>Recording is enabled by passing an instance to {@link
+ * TraceUtil#experimentalSetTraceRingBuffer}. Once the buffer is full, each new record overwrites
+ * the oldest one. Records can be added from any thread without locking or allocating, and {@link
+ * #getRecords()} can be called at any time to dump the buffer. Records that are overwritten while
+ * they're being dumped are left out of the dump. If concurrent writers lap each other, a record
+ * whose slot is still being written, or already holds a newer record, is dropped.
+ *
+ * @deprecated com.google.android.exoplayer2 is deprecated. Please migrate to androidx.media3 (which
+ *     contains the same ExoPlayer code). See <a
+ *     href="https://developer.android.com/guide/topics/media/media3/getting-started/migration-guide">the
+ *     migration guide</a> for more details, including a script to help with the migration.
+ */
+@Deprecated
+public final class TraceRingBuffer {
+
+  /**
+   * The type of a trace record. One of {@link #RECORD_TYPE_DO_SOME_WORK}, {@link
+   * #RECORD_TYPE_UPDATE_PERIODS}, {@link #RECORD_TYPE_RENDER}, {@link #RECORD_TYPE_HANDLE_MESSAGE},
+   * {@link #RECORD_TYPE_CODEC_DRAIN}, {@link #RECORD_TYPE_CODEC_FEED}, {@link
+   * #RECORD_TYPE_LOAD_COMPLETED}, {@link #RECORD_TYPE_LOAD_CANCELED} or {@link
+   * #RECORD_TYPE_LOAD_ERROR}.
+   */
+  @Documented
+  @Retention(RetentionPolicy.SOURCE)
+  @Target(TYPE_USE)
+  @IntDef({
+    RECORD_TYPE_DO_SOME_WORK,
+    RECORD_TYPE_UPDATE_PERIODS,
+    RECORD_TYPE_RENDER,
+    RECORD_TYPE_HANDLE_MESSAGE,
+    RECORD_TYPE_CODEC_DRAIN,
+    RECORD_TYPE_CODEC_FEED,
+    RECORD_TYPE_LOAD_COMPLETED,
+    RECORD_TYPE_LOAD_CANCELED,
+    RECORD_TYPE_LOAD_ERROR
+  })
+  public @interface RecordType {}
+  /** An iteration of the playback loop. The tag and value are unused. */
+  public static final int RECORD_TYPE_DO_SOME_WORK = 1;
+  /** An update of the queue of media periods. The tag and value are unused. */
+  public static final int RECORD_TYPE_UPDATE_PERIODS = 2;
+  /** A call to render a renderer. The tag is the renderer index and the value its track type. */
+  public static final int RECORD_TYPE_RENDER = 3;
+  /**
+   * The handling of a playback thread message. The tag is the message type and the value the
+   * queue latency, in milliseconds, from the time the message was due until it was handled.
+   */
+  public static final int RECORD_TYPE_HANDLE_MESSAGE = 4;
+  /**
+   * The draining of codec output buffers. The tag is the track type and the value the number of
+   * output buffers that were processed.
+   */
+  public static final int RECORD_TYPE_CODEC_DRAIN = 5;
+  /**
+   * The feeding of codec input buffers. The tag is the track type and the value the number of
+   * input buffers that were queued.
+   */
+  public static final int RECORD_TYPE_CODEC_FEED = 6;
+  /**
+   * A load completed callback. The tag is unused and the value is the load duration, in
+   * milliseconds.
+   */
+  public static final int RECORD_TYPE_LOAD_COMPLETED = 7;
+  /**
+   * A load canceled callback. The tag is unused and the value is the load duration, in
+   * milliseconds.
+   */
+  public static final int RECORD_TYPE_LOAD_CANCELED = 8;
+  /**
+   * A load error callback. The tag is unused and the value is the load duration, in milliseconds.
+   */
+  public static final int RECORD_TYPE_LOAD_ERROR = 9;
+
+  /** A trace record. */
+  public static final class Record {
+
+    /** The {@link RecordType}. */
+    public final @RecordType int type;
+    /** The tag, whose meaning depends on the {@link #type}. */
+    public final int tag;
+    /** The start time of the traced span, in nanoseconds. */
+    public final long startTimeNs;
+    /** The duration of the traced span, in nanoseconds. */
+    public final long durationNs;
+    /** The value, whose meaning depends on the {@link #type}. */
+    public final long value;
+
+    /* package */ Record(
+        @RecordType int type, int tag, long startTimeNs, long durationNs, long value) {
+      this.type = type;
+      this.tag = tag;
+      this.startTimeNs = startTimeNs;
+      this.durationNs = durationNs;
+      this.value = value;
+    }
+
+    @Override
+    public String toString() {
+      return "Record{type="
+          + type
+          + ", tag="
+          + tag
+          + ", startTimeNs="
+          + startTimeNs
+          + ", durationNs="
+          + durationNs
+          + ", value="
+          + value
+          + "}";
+    }
+  }
+
+  // Each slot has a sequence number followed by the fields of a record. The sequence number is the
+  // index of the record plus one once the record is complete, and its negation while the record is
+  // being written. A writer claims a slot by swapping the sequence number atomically, so two
+  // writers that lap each other never write the same slot at the same time.
+  private static final int SLOT_SIZE = 5;
+  private static final int OFFSET_SEQUENCE = 0;
+  private static final int OFFSET_TYPE_AND_TAG = 1;
+  private static final int OFFSET_START_TIME_NS = 2;
+  private static final int OFFSET_DURATION_NS = 3;
+  private static final int OFFSET_VALUE = 4;
+
+  private final int capacity;
+  private final Clock clock;
+  private final AtomicLongArray slots;
+  private final AtomicLong nextRecordIndex;
+
+  /**
+   * Creates an instance.
+   *
+   * @param capacity The maximum number of records kept in the buffer.
+   */
+  public TraceRingBuffer(int capacity) {
+    this(capacity, Clock.DEFAULT);
+  }
+
+  @VisibleForTesting
+  /* package */ TraceRingBuffer(int capacity, Clock clock) {
+    checkArgument(capacity > 0);
+    this.capacity = capacity;
+    this.clock = clock;
+    slots = new AtomicLongArray(capacity * SLOT_SIZE);
+    nextRecordIndex = new AtomicLong();
+  }
+
+  /** Returns the current time, in nanoseconds, to be passed as the start time of a span. */
+  public long getTimeNs() {
+    return clock.nanoTime();
+  }
+
+  /**
+   * Records a span that ends now.
+   *
+   * @param type The {@link RecordType}.
+   * @param tag The tag, whose meaning depends on the {@code type}.
+   * @param startTimeNs The start time of the span, as returned by {@link #getTimeNs()}.
+   * @param value The value, whose meaning depends on the {@code type}.
+   */
+  public void recordSpan(@RecordType int type, int tag, long startTimeNs, long value) {
+    long durationNs = clock.nanoTime() - startTimeNs;
+    long recordIndex = nextRecordIndex.getAndIncrement();
+    int slotStart = (int) (recordIndex % capacity) * SLOT_SIZE;
+    long sequence = slots.get(slotStart + OFFSET_SEQUENCE);
+    if (sequence < 0
+        || sequence > recordIndex
+        || !slots.compareAndSet(slotStart + OFFSET_SEQUENCE, sequence, -(recordIndex + 1))) {
+      // Another writer is writing to the slot, or has already written a newer record to it.
+      return;
+    }
+    slots.set(slotStart + OFFSET_TYPE_AND_TAG, ((long) type << 32) | (tag & 0xFFFFFFFFL));
+    slots.set(slotStart + OFFSET_START_TIME_NS, startTimeNs);
+    slots.set(slotStart + OFFSET_DURATION_NS, durationNs);
+    slots.set(slotStart + OFFSET_VALUE, value);
+    slots.set(slotStart + OFFSET_SEQUENCE, recordIndex + 1);
+  }
+
+  /** Returns the records in the buffer, from the oldest to the newest. */
+  @SuppressWarnings("WrongConstant") // The type was a RecordType when it was recorded.
+  public ImmutableList<Record> getRecords() {
+    long endRecordIndex = nextRecordIndex.get();
+    ImmutableList.Builder<Record> records = ImmutableList.builder();
+    for (long i = max(0, endRecordIndex - capacity); i < endRecordIndex; i++) {
+      int slotStart = (int) (i % capacity) * SLOT_SIZE;
+      long sequence = slots.get(slotStart + OFFSET_SEQUENCE);
+      if (sequence != i + 1) {
+        // The record is still being written, or has been overwritten.
+        continue;
+      }
+      long typeAndTag = slots.get(slotStart + OFFSET_TYPE_AND_TAG);
+      long startTimeNs = slots.get(slotStart + OFFSET_START_TIME_NS);
+      long durationNs = slots.get(slotStart + OFFSET_DURATION_NS);
+      long value = slots.get(slotStart + OFFSET_VALUE);
+      if (slots.get(slotStart + OFFSET_SEQUENCE) != sequence) {
+        continue;
+      }
+      records.add(
+          new Record(
+              /* type= */ (int) (typeAndTag >>> 32),
+              /* tag= */ (int) typeAndTag,
+              startTimeNs,
+              durationNs,
+              value));
+    }
+    return records.build();
+  }
+
+  /** Removes all records from the buffer. */
+  public void clear() {
+    long endRecordIndex = nextRecordIndex.get();
+    for (long i = max(0, endRecordIndex - capacity); i < endRecordIndex; i++) {
+      slots.compareAndSet((int) (i % capacity) * SLOT_SIZE + OFFSET_SEQUENCE, i + 1, 0);
+    }
+  }
+}
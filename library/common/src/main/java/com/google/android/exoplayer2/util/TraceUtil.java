@@ -15,6 +15,7 @@
  */
 package com.google.android.exoplayer2.util;
 
+import androidx.annotation.Nullable;
 import androidx.annotation.RequiresApi;
 import com.google.android.exoplayer2.ExoPlayerLibraryInfo;
 
@@ -29,8 +30,36 @@ import com.google.android.exoplayer2.ExoPlayerLibraryInfo;
 @Deprecated
 public final class TraceUtil {
 
+  @Nullable private static volatile TraceRingBuffer traceRingBuffer;
+
   private TraceUtil() {}
 
+  /**
+   * Sets the {@link TraceRingBuffer} into which structured trace records of the playback loop are
+   * recorded.
+   *
+   * <p>Unlike the sections of {@link #beginSection}, structured trace records don't depend on
+   * {@link ExoPlayerLibraryInfo#TRACE_ENABLED} and can be dumped from the app at any time, for
+   * example when a stutter is detected. Structured tracing is disabled by default, and then only
+   * costs a volatile read per traced span.
+   *
+   * <p>This method is experimental, and will be renamed or removed in a future release.
+   *
+   * @param traceRingBuffer The {@link TraceRingBuffer}, or null to disable structured tracing.
+   */
+  public static void experimentalSetTraceRingBuffer(@Nullable TraceRingBuffer traceRingBuffer) {
+    TraceUtil.traceRingBuffer = traceRingBuffer;
+  }
+
+  /**
+   * Returns the {@link TraceRingBuffer} into which structured trace records should be recorded, or
+   * null if structured tracing is disabled.
+   */
+  @Nullable
+  public static TraceRingBuffer getTraceRingBuffer() {
+    return traceRingBuffer;
+  }
+
   /**
    * Writes a trace message to indicate that a given section of code has begun.
    *
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.util;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.testutil.FakeClock;
+import com.google.android.exoplayer2.util.TraceRingBuffer.Record;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Unit test for {@link TraceRingBuffer}. */
+@RunWith(AndroidJUnit4.class)
+public final class TraceRingBufferTest {
+
+  @Test
+  public void recordSpan_recordsTypeTagDurationAndValue() {
+    FakeClock clock = new FakeClock(/* initialTimeMs= */ 0);
+    TraceRingBuffer traceRingBuffer = new TraceRingBuffer(/* capacity= */ 4, clock);
+
+    long startTimeNs = traceRingBuffer.getTimeNs();
+    clock.advanceTime(5);
+    traceRingBuffer.recordSpan(
+        TraceRingBuffer.RECORD_TYPE_RENDER,
+        /* tag= */ 1,
+        startTimeNs,
+        /* value= */ C.TRACK_TYPE_VIDEO);
+
+    List<Record> records = traceRingBuffer.getRecords();
+    assertThat(records).hasSize(1);
+    Record record = records.get(0);
+    assertThat(record.type).isEqualTo(TraceRingBuffer.RECORD_TYPE_RENDER);
+    assertThat(record.tag).isEqualTo(1);
+    assertThat(record.startTimeNs).isEqualTo(startTimeNs);
+    assertThat(record.durationNs).isEqualTo(5_000_000L);
+    assertThat(record.value).isEqualTo((long) C.TRACK_TYPE_VIDEO);
+  }
+
+  @Test
+  public void recordSpan_whenFull_overwritesOldestRecords() {
+    TraceRingBuffer traceRingBuffer =
+        new TraceRingBuffer(/* capacity= */ 3, new FakeClock(/* initialTimeMs= */ 0));
+
+    for (int i = 0; i < 5; i++) {
+      traceRingBuffer.recordSpan(
+          TraceRingBuffer.RECORD_TYPE_HANDLE_MESSAGE,
+          /* tag= */ i,
+          traceRingBuffer.getTimeNs(),
+          /* value= */ 0);
+    }
+
+    List<Record> records = traceRingBuffer.getRecords();
+    assertThat(records).hasSize(3);
+    assertThat(records.get(0).tag).isEqualTo(2);
+    assertThat(records.get(1).tag).isEqualTo(3);
+    assertThat(records.get(2).tag).isEqualTo(4);
+  }
+
+  @Test
+  public void recordSpan_withWritersLappingEachOther_neverReturnsTornRecords() throws Exception {
+    TraceRingBuffer traceRingBuffer = new TraceRingBuffer(/* capacity= */ 2);
+    Thread[] writers = new Thread[4];
+    for (int i = 0; i < writers.length; i++) {
+      int writerIndex = i;
+      writers[i] =
+          new Thread(
+              () -> {
+                for (int j = 0; j < 10_000; j++) {
+                  // All fields of a record written by this writer have the same value.
+                  long recordId = writerIndex * 10_000L + j;
+                  traceRingBuffer.recordSpan(
+                      TraceRingBuffer.RECORD_TYPE_HANDLE_MESSAGE,
+                      /* tag= */ (int) recordId,
+                      /* startTimeNs= */ recordId,
+                      /* value= */ recordId);
+                }
+              });
+      writers[i].start();
+    }
+
+    boolean writersFinished = false;
+    while (!writersFinished) {
+      writersFinished = true;
+      for (Thread writer : writers) {
+        writersFinished &= !writer.isAlive();
+      }
+      for (Record record : traceRingBuffer.getRecords()) {
+        assertThat(record.type).isEqualTo(TraceRingBuffer.RECORD_TYPE_HANDLE_MESSAGE);
+        assertThat(record.startTimeNs).isEqualTo(record.tag);
+        assertThat(record.value).isEqualTo(record.tag);
+      }
+    }
+    for (Thread writer : writers) {
+      writer.join();
+    }
+  }
+
+  @Test
+  public void clear_removesAllRecords() {
+    TraceRingBuffer traceRingBuffer =
+        new TraceRingBuffer(/* capacity= */ 3, new FakeClock(/* initialTimeMs= */ 0));
+    traceRingBuffer.recordSpan(
+        TraceRingBuffer.RECORD_TYPE_DO_SOME_WORK,
+        /* tag= */ 0,
+        traceRingBuffer.getTimeNs(),
+        /* value= */ 0);
+
+    traceRingBuffer.clear();
+    traceRingBuffer.recordSpan(
+        TraceRingBuffer.RECORD_TYPE_UPDATE_PERIODS,
+        /* tag= */ 0,
+        traceRingBuffer.getTimeNs(),
+        /* value= */ 0);
+
+    List<Record> records = traceRingBuffer.getRecords();
+    assertThat(records).hasSize(1);
+    assertThat(records.get(0).type).isEqualTo(TraceRingBuffer.RECORD_TYPE_UPDATE_PERIODS);
+  }
+}
@@ -15,6 +15,7 @@
  */
 package com.google.android.exoplayer2;
 
+import static com.google.android.exoplayer2.util.Assertions.checkArgument;
 import static java.lang.annotation.ElementType.TYPE_USE;
 
 import android.content.Context;
@@ -31,6 +32,7 @@ import com.google.android.exoplayer2.audio.MediaCodecAudioRenderer;
 import com.google.android.exoplayer2.mediacodec.DefaultMediaCodecAdapterFactory;
 import com.google.android.exoplayer2.mediacodec.MediaCodecAdapter;
 import com.google.android.exoplayer2.mediacodec.MediaCodecSelector;
+import com.google.android.exoplayer2.mediacodec.PrewarmingMediaCodecAdapterFactory;
 import com.google.android.exoplayer2.metadata.MetadataOutput;
 import com.google.android.exoplayer2.metadata.MetadataRenderer;
 import com.google.android.exoplayer2.text.TextOutput;
@@ -108,6 +110,8 @@ public class DefaultRenderersFactory implements RenderersFactory {
   private boolean enableFloatOutput;
   private boolean enableAudioTrackPlaybackParams;
   private boolean enableOffload;
+  private boolean enableVideoFrameReleaseThread;
+  private int maxPrewarmedCodecCount;
 
   /**
    * @param context A {@link Context}.
@@ -181,6 +185,48 @@ public class DefaultRenderersFactory implements RenderersFactory {
     return this;
   }
 
+  /**
+   * Sets whether {@link MediaCodecVideoRenderer} instances release decoded frames to the display
+   * from a dedicated high priority thread, rather than from the playback thread.
+   *
+   * <p>The default value is {@code false}.
+   *
+   * <p>This method is experimental, and will be renamed or removed in a future release.
+   *
+   * @param enableVideoFrameReleaseThread Whether to release video frames from a dedicated thread.
+   * @return This factory, for convenience.
+   * @see MediaCodecVideoRenderer#experimentalSetFrameReleaseThreadEnabled(boolean)
+   */
+  @CanIgnoreReturnValue
+  public DefaultRenderersFactory experimentalSetVideoFrameReleaseThreadEnabled(
+      boolean enableVideoFrameReleaseThread) {
+    this.enableVideoFrameReleaseThread = enableVideoFrameReleaseThread;
+    return this;
+  }
+
+  /**
+   * Sets the maximum number of codecs that each {@link MediaCodecVideoRenderer} and {@link
+   * MediaCodecAudioRenderer} instance creates ahead of time, for the streams that are likely to be
+   * played next. A value of 0 disables prewarming.
+   *
+   * <p>Codecs are only prewarmed if the player is built with {@link
+   * ExoPlayer.Builder#experimentalSetCodecPrewarmingEnabled(boolean)}.
+   *
+   * <p>The default value is 0.
+   *
+   * <p>This method is experimental, and will be renamed or removed in a future release.
+   *
+   * @param maxPrewarmedCodecCount The maximum number of prewarmed codecs per renderer.
+   * @return This factory, for convenience.
+   * @see PrewarmingMediaCodecAdapterFactory
+   */
+  @CanIgnoreReturnValue
+  public DefaultRenderersFactory experimentalSetMaxPrewarmedCodecCount(int maxPrewarmedCodecCount) {
+    checkArgument(maxPrewarmedCodecCount >= 0);
+    this.maxPrewarmedCodecCount = maxPrewarmedCodecCount;
+    return this;
+  }
+
   /**
    * Sets whether to enable fallback to lower-priority decoders if decoder initialization fails.
    * This may result in using a decoder that is less efficient or slower than the primary decoder.
@@ -365,13 +411,14 @@ public class DefaultRenderersFactory implements RenderersFactory {
     MediaCodecVideoRenderer videoRenderer =
         new MediaCodecVideoRenderer(
             context,
-            getCodecAdapterFactory(),
+            getRendererCodecAdapterFactory(),
             mediaCodecSelector,
             allowedVideoJoiningTimeMs,
             enableDecoderFallback,
             eventHandler,
             eventListener,
             MAX_DROPPED_VIDEO_FRAME_COUNT_TO_NOTIFY);
+    videoRenderer.experimentalSetFrameReleaseThreadEnabled(enableVideoFrameReleaseThread);
     out.add(videoRenderer);
 
     if (extensionRendererMode == EXTENSION_RENDERER_MODE_OFF) {
@@ -459,7 +506,7 @@ public class DefaultRenderersFactory implements RenderersFactory {
     MediaCodecAudioRenderer audioRenderer =
         new MediaCodecAudioRenderer(
             context,
-            getCodecAdapterFactory(),
+            getRendererCodecAdapterFactory(),
             mediaCodecSelector,
             enableDecoderFallback,
             eventHandler,
@@ -647,4 +694,11 @@ public class DefaultRenderersFactory implements RenderersFactory {
   protected MediaCodecAdapter.Factory getCodecAdapterFactory() {
     return codecAdapterFactory;
   }
+
+  private MediaCodecAdapter.Factory getRendererCodecAdapterFactory() {
+    MediaCodecAdapter.Factory codecAdapterFactory = getCodecAdapterFactory();
+    return maxPrewarmedCodecCount > 0
+        ? new PrewarmingMediaCodecAdapterFactory(codecAdapterFactory, maxPrewarmedCodecCount)
+        : codecAdapterFactory;
+  }
 }
@@ -460,6 +460,7 @@ public interface ExoPlayer extends Player {
 
     /* package */ Clock clock;
     /* package */ long foregroundModeTimeoutMs;
+    /* package */ boolean codecPrewarmingEnabled;
     /* package */ Supplier<RenderersFactory> renderersFactorySupplier;
     /* package */ Supplier<MediaSource.Factory> mediaSourceFactorySupplier;
     /* package */ Supplier<TrackSelector> trackSelectorSupplier;
@@ -709,6 +710,30 @@ public interface ExoPlayer extends Player {
       return this;
     }
 
+    /**
+     * Sets whether the player asks its renderers to prewarm codecs for the streams that are likely
+     * to be played next. When a new period is prepared, each renderer with a selected track
+     * receives a {@link Renderer#MSG_PREWARM_CODEC} message with the formats of that track. This
+     * lets codecs be created and configured while the previous period is still playing, which
+     * shortens the transition to the next playlist item. It also lets the codec for the first
+     * period be created while its first samples are still loading.
+     *
+     * <p>Renderers only act on the message if they are set up for it, for example using {@link
+     * DefaultRenderersFactory#experimentalSetMaxPrewarmedCodecCount(int)}.
+     *
+     * <p>This method is experimental, and will be renamed or removed in a future release.
+     *
+     * @param codecPrewarmingEnabled Whether to prewarm codecs.
+     * @return This builder.
+     * @throws IllegalStateException If {@link #build()} has already been called.
+     */
+    @CanIgnoreReturnValue
+    public Builder experimentalSetCodecPrewarmingEnabled(boolean codecPrewarmingEnabled) {
+      checkState(!buildCalled);
+      this.codecPrewarmingEnabled = codecPrewarmingEnabled;
+      return this;
+    }
+
     /**
      * Sets the {@link RenderersFactory} that will be used by the player.
      *
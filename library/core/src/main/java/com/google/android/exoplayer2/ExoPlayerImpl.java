@@ -103,6 +103,7 @@ import com.google.android.exoplayer2.util.Util;
 import com.google.android.exoplayer2.video.PlaceholderSurface;
 import com.google.android.exoplayer2.video.VideoDecoderOutputBufferRenderer;
 import com.google.android.exoplayer2.video.VideoFrameMetadataListener;
+import com.google.android.exoplayer2.video.VideoFramePacingStats;
 import com.google.android.exoplayer2.video.VideoRendererEventListener;
 import com.google.android.exoplayer2.video.VideoSize;
 import com.google.android.exoplayer2.video.spherical.CameraMotionListener;
@@ -381,6 +382,9 @@ import java.util.concurrent.TimeoutException;
       if (builder.foregroundModeTimeoutMs > 0) {
         internalPlayer.experimentalSetForegroundModeTimeoutMs(builder.foregroundModeTimeoutMs);
       }
+      if (builder.codecPrewarmingEnabled) {
+        internalPlayer.experimentalSetCodecPrewarmingEnabled(true);
+      }
 
       audioBecomingNoisyManager =
           new AudioBecomingNoisyManager(builder.context, eventHandler, componentListener);
@@ -2986,6 +2990,11 @@ import java.util.concurrent.TimeoutException;
       analyticsCollector.onVideoFrameProcessingOffset(totalProcessingOffsetUs, frameCount);
     }
 
+    @Override
+    public void onVideoFramePacingStats(VideoFramePacingStats framePacingStats) {
+      analyticsCollector.onVideoFramePacingStats(framePacingStats);
+    }
+
     @Override
     public void onVideoCodecError(Exception videoCodecError) {
       analyticsCollector.onVideoCodecError(videoCodecError);
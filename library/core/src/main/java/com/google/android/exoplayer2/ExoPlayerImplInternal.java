@@ -57,6 +57,7 @@ import com.google.android.exoplayer2.util.Assertions;
 import com.google.android.exoplayer2.util.Clock;
 import com.google.android.exoplayer2.util.HandlerWrapper;
 import com.google.android.exoplayer2.util.Log;
+import com.google.android.exoplayer2.util.TraceRingBuffer;
 import com.google.android.exoplayer2.util.TraceUtil;
 import com.google.android.exoplayer2.util.Util;
 import com.google.common.base.Supplier;
@@ -229,6 +230,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
   private boolean deliverPendingMessageAtStartPositionRequired;
   @Nullable private ExoPlaybackException pendingRecoverableRendererError;
   private long setForegroundModeTimeoutMs;
+  private boolean codecPrewarmingEnabled;
   private long playbackMaybeBecameStuckAtMs;
   public int playerID;
 
@@ -314,6 +316,10 @@ import java.util.concurrent.atomic.AtomicBoolean;
     this.setForegroundModeTimeoutMs = setForegroundModeTimeoutMs;
   }
 
+  public void experimentalSetCodecPrewarmingEnabled(boolean codecPrewarmingEnabled) {
+    this.codecPrewarmingEnabled = codecPrewarmingEnabled;
+  }
+
   public void experimentalSetOffloadSchedulingEnabled(boolean offloadSchedulingEnabled) {
     handler
         .obtainMessage(
@@ -508,6 +514,13 @@ import java.util.concurrent.atomic.AtomicBoolean;
 
   @Override
   public boolean handleMessage(Message msg) {
+    @Nullable TraceRingBuffer traceRingBuffer = TraceUtil.getTraceRingBuffer();
+    long handleMessageStartTimeNs = 0;
+    long messageQueueLatencyMs = 0;
+    if (traceRingBuffer != null) {
+      handleMessageStartTimeNs = traceRingBuffer.getTimeNs();
+      messageQueueLatencyMs = max(0, SystemClock.uptimeMillis() - msg.getWhen());
+    }
     try {
       switch (msg.what) {
         case MSG_PREPARE:
@@ -680,6 +693,15 @@ import java.util.concurrent.atomic.AtomicBoolean;
       Log.e(TAG, "Playback error", error);
       stopInternal(/* forceResetRenderers= */ true, /* acknowledgeStop= */ false);
       playbackInfo = playbackInfo.copyWithPlaybackError(error);
+    } finally {
+      // Also record messages that return early or that this handler doesn't handle.
+      if (traceRingBuffer != null) {
+        traceRingBuffer.recordSpan(
+            TraceRingBuffer.RECORD_TYPE_HANDLE_MESSAGE,
+            /* tag= */ msg.what,
+            handleMessageStartTimeNs,
+            /* value= */ messageQueueLatencyMs);
+      }
     }
     maybeNotifyPlaybackInfoChanged();
     return true;
@@ -1019,11 +1041,39 @@ import java.util.concurrent.atomic.AtomicBoolean;
   }
 
   private void doSomeWork() throws ExoPlaybackException, IOException {
+    @Nullable TraceRingBuffer traceRingBuffer = TraceUtil.getTraceRingBuffer();
+    if (traceRingBuffer == null) {
+      doSomeWorkInternal(/* traceRingBuffer= */ null);
+      return;
+    }
+    long operationStartTimeNs = traceRingBuffer.getTimeNs();
+    try {
+      doSomeWorkInternal(traceRingBuffer);
+    } finally {
+      // Also record iterations that return early or throw.
+      traceRingBuffer.recordSpan(
+          TraceRingBuffer.RECORD_TYPE_DO_SOME_WORK,
+          /* tag= */ 0,
+          operationStartTimeNs,
+          /* value= */ 0);
+    }
+  }
+
+  private void doSomeWorkInternal(@Nullable TraceRingBuffer traceRingBuffer)
+      throws ExoPlaybackException, IOException {
     long operationStartTimeMs = clock.uptimeMillis();
     // Remove other pending DO_SOME_WORK requests that are handled by this invocation.
     handler.removeMessages(MSG_DO_SOME_WORK);
 
+    long updatePeriodsStartTimeNs = traceRingBuffer != null ? traceRingBuffer.getTimeNs() : 0;
     updatePeriods();
+    if (traceRingBuffer != null) {
+      traceRingBuffer.recordSpan(
+          TraceRingBuffer.RECORD_TYPE_UPDATE_PERIODS,
+          /* tag= */ 0,
+          updatePeriodsStartTimeNs,
+          /* value= */ 0);
+    }
 
     if (playbackInfo.playbackState == Player.STATE_IDLE
         || playbackInfo.playbackState == Player.STATE_ENDED) {
@@ -1057,7 +1107,15 @@ import java.util.concurrent.atomic.AtomicBoolean;
         // TODO: Each renderer should return the maximum delay before which it wishes to be called
         // again. The minimum of these values should then be used as the delay before the next
         // invocation of this method.
+        long renderStartTimeNs = traceRingBuffer != null ? traceRingBuffer.getTimeNs() : 0;
         renderer.render(rendererPositionUs, rendererPositionElapsedRealtimeUs);
+        if (traceRingBuffer != null) {
+          traceRingBuffer.recordSpan(
+              TraceRingBuffer.RECORD_TYPE_RENDER,
+              /* tag= */ i,
+              renderStartTimeNs,
+              /* value= */ renderer.getTrackType());
+        }
         renderersEnded = renderersEnded && renderer.isEnded();
         // Determine whether the renderer allows playback to continue. Playback can continue if the
         // renderer is ready or ended. Also continue playback if the renderer is reading ahead into
@@ -2363,9 +2421,36 @@ import java.util.concurrent.atomic.AtomicBoolean;
               /* reportDiscontinuity= */ false,
               /* ignored */ Player.DISCONTINUITY_REASON_INTERNAL);
     }
+    if (codecPrewarmingEnabled) {
+      maybePrewarmCodecs(loadingPeriodHolder);
+    }
     maybeContinueLoading();
   }
 
+  private void maybePrewarmCodecs(MediaPeriodHolder periodHolder) {
+    TrackSelectorResult trackSelectorResult = periodHolder.getTrackSelectorResult();
+    for (int i = 0; i < renderers.length; i++) {
+      @Nullable ExoTrackSelection selection = trackSelectorResult.selections[i];
+      if (!trackSelectorResult.isRendererEnabled(i) || selection == null) {
+        continue;
+      }
+      Format[] formats = getFormats(selection);
+      // The format that is expected to be decoded first goes first.
+      int selectedIndex = selection.getSelectedIndex();
+      if (selectedIndex > 0 && selectedIndex < formats.length) {
+        Format selectedFormat = formats[selectedIndex];
+        formats[selectedIndex] = formats[0];
+        formats[0] = selectedFormat;
+      }
+      try {
+        renderers[i].handleMessage(Renderer.MSG_PREWARM_CODEC, formats);
+      } catch (ExoPlaybackException | RuntimeException e) {
+        // Prewarming is an optimization only, so failures don't affect playback.
+        Log.w(TAG, "Codec prewarming failed.", e);
+      }
+    }
+  }
+
   private void handleContinueLoadingRequested(MediaPeriod mediaPeriod) {
     if (!queue.isLoading(mediaPeriod)) {
       // Stale event.
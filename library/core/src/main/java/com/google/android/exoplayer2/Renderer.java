@@ -92,9 +92,9 @@ public interface Renderer extends PlayerMessage.Target {
    * #MSG_SET_SCALING_MODE}, {@link #MSG_SET_CHANGE_FRAME_RATE_STRATEGY}, {@link
    * #MSG_SET_AUX_EFFECT_INFO}, {@link #MSG_SET_VIDEO_FRAME_METADATA_LISTENER}, {@link
    * #MSG_SET_CAMERA_MOTION_LISTENER}, {@link #MSG_SET_SKIP_SILENCE_ENABLED}, {@link
-   * #MSG_SET_AUDIO_SESSION_ID}, {@link #MSG_SET_WAKEUP_LISTENER}, {@link #MSG_SET_VIDEO_EFFECTS} or
-   * {@link #MSG_SET_VIDEO_OUTPUT_RESOLUTION}. May also be an app-defined value (see {@link
-   * #MSG_CUSTOM_BASE}).
+   * #MSG_SET_AUDIO_SESSION_ID}, {@link #MSG_SET_WAKEUP_LISTENER}, {@link #MSG_SET_VIDEO_EFFECTS},
+   * {@link #MSG_SET_VIDEO_OUTPUT_RESOLUTION} or {@link #MSG_PREWARM_CODEC}. May also be an
+   * app-defined value (see {@link #MSG_CUSTOM_BASE}).
    */
   @Documented
   @Retention(RetentionPolicy.SOURCE)
@@ -114,7 +114,8 @@ public interface Renderer extends PlayerMessage.Target {
         MSG_SET_AUDIO_SESSION_ID,
         MSG_SET_WAKEUP_LISTENER,
         MSG_SET_VIDEO_EFFECTS,
-        MSG_SET_VIDEO_OUTPUT_RESOLUTION
+        MSG_SET_VIDEO_OUTPUT_RESOLUTION,
+        MSG_PREWARM_CODEC
       })
   public @interface MessageType {}
   /**
@@ -240,6 +241,15 @@ public interface Renderer extends PlayerMessage.Target {
   int MSG_SET_PLAYERID = 18;
   int MSG_SET_LOW_LATENCY = 19;
   int MSG_DROP_START_MS = 20;
+  /**
+   * The type of a message that can be passed to a {@link
+   * com.google.android.exoplayer2.mediacodec.MediaCodecRenderer} to prewarm a codec for a stream
+   * that is likely to be played next. The message payload should be a {@link Format Format[]}
+   * holding the formats of the stream, with the format expected to be decoded first at index 0.
+   * Ignored unless the renderer uses a {@link
+   * com.google.android.exoplayer2.mediacodec.PrewarmingMediaCodecAdapterFactory}.
+   */
+  int MSG_PREWARM_CODEC = 21;
   int MSG_CUSTOM_BASE = 10000;
 
   /**
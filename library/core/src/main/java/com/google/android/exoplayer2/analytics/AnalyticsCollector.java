@@ -34,6 +34,7 @@ import com.google.android.exoplayer2.source.MediaSource.MediaPeriodId;
 import com.google.android.exoplayer2.source.MediaSourceEventListener;
 import com.google.android.exoplayer2.upstream.BandwidthMeter;
 import com.google.android.exoplayer2.video.VideoDecoderOutputBufferRenderer;
+import com.google.android.exoplayer2.video.VideoFramePacingStats;
 import java.util.List;
 
 /**
@@ -271,6 +272,13 @@ public interface AnalyticsCollector
    */
   void onVideoFrameProcessingOffset(long totalProcessingOffsetUs, int frameCount);
 
+  /**
+   * Called to report the frame pacing of the video renderer since the previous report.
+   *
+   * @param framePacingStats The {@link VideoFramePacingStats}.
+   */
+  void onVideoFramePacingStats(VideoFramePacingStats framePacingStats);
+
   /**
    * Called when a video decoder encounters an error.
    *
@@ -60,6 +60,7 @@ import com.google.android.exoplayer2.trackselection.TrackSelection;
 import com.google.android.exoplayer2.trackselection.TrackSelectionParameters;
 import com.google.android.exoplayer2.util.FlagSet;
 import com.google.android.exoplayer2.video.VideoDecoderOutputBufferRenderer;
+import com.google.android.exoplayer2.video.VideoFramePacingStats;
 import com.google.android.exoplayer2.video.VideoSize;
 import com.google.common.base.Objects;
 import java.io.IOException;
@@ -235,6 +236,7 @@ public interface AnalyticsListener {
     EVENT_PLAYER_RELEASED,
     EVENT_AUDIO_CODEC_ERROR,
     EVENT_VIDEO_CODEC_ERROR,
+    EVENT_VIDEO_FRAME_PACING,
   })
   @interface EventFlags {}
   /** {@link Player#getCurrentTimeline()} changed. */
@@ -370,6 +372,8 @@ public interface AnalyticsListener {
   int EVENT_AUDIO_CODEC_ERROR = 1029;
   /** The video codec encountered an error. */
   int EVENT_VIDEO_CODEC_ERROR = 1030;
+  /** Video frame pacing statistics were reported. */
+  int EVENT_VIDEO_FRAME_PACING = 1031;
 
   /** Time information of an event. */
   final class EventTime {
@@ -1120,6 +1124,20 @@ public interface AnalyticsListener {
   default void onVideoFrameProcessingOffset(
       EventTime eventTime, long totalProcessingOffsetUs, int frameCount) {}
 
+  /**
+   * Called when a video renderer reports frame pacing statistics.
+   *
+   * <p>The statistics describe how the display times of the frames released since the previous
+   * report deviated from the media clock, how many frames missed their vsync, and the detected
+   * frame cadence. Reports are made periodically while the renderer is started, and when it's
+   * stopped.
+   *
+   * @param eventTime The event time.
+   * @param framePacingStats The {@link VideoFramePacingStats} since the previous report.
+   */
+  default void onVideoFramePacingStats(
+      EventTime eventTime, VideoFramePacingStats framePacingStats) {}
+
   /**
    * Called when a video decoder encounters an error.
    *
@@ -1270,4 +1288,24 @@ public interface AnalyticsListener {
    * @param events The {@link Events} that occurred in this iteration.
    */
   default void onEvents(Player player, Events events) {}
+
+  /**
+   * Returns the {@link EventFlags} of the events the listener is subscribed to, or null if it's
+   * subscribed to all events.
+   *
+   * <p>Called when the listener is added, and the returned value must not change while the listener
+   * is added. Events that no added listener is subscribed to are neither generated nor sent, so
+   * subscribing to only the needed events avoids the cost of high-frequency events like {@link
+   * #onVideoFrameProcessingOffset} and {@link #onBandwidthEstimate}. A listener may still receive
+   * events it isn't subscribed to if another listener is subscribed to them.
+   *
+   * <p>Deprecated callbacks without an event flag are only sent if a listener is subscribed to all
+   * events.
+   *
+   * <p>This method is experimental, and will be renamed or removed in a future release.
+   */
+  @Nullable
+  default FlagSet getSubscribedEvents() {
+    return null;
+  }
 }
@@ -0,0 +1,223 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.analytics;
+
+import static com.google.android.exoplayer2.util.Assertions.checkArgument;
+
+import android.os.Looper;
+import androidx.annotation.GuardedBy;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.util.Clock;
+import com.google.android.exoplayer2.util.FlagSet;
+import com.google.android.exoplayer2.util.HandlerWrapper;
+
+/**
+ * An {@link AnalyticsListener} that coalesces high-frequency events and delivers them in batches
+ * on another thread.
+ *
+ * <p>The listener is only subscribed to {@link #EVENT_BANDWIDTH_ESTIMATE}, {@link
+ * #EVENT_DROPPED_VIDEO_FRAMES} and {@link #EVENT_VIDEO_FRAME_PROCESSING_OFFSET}, so the {@link
+ * DefaultAnalyticsCollector} doesn't generate any other events for it. The events received within
+ * a batch interval are combined into one {@link CoalescedEvents} instance, which is delivered to a
+ * {@link Callback} on the callback {@link Looper}.
+ *
+ * @deprecated com.google.android.exoplayer2 is deprecated. Please migrate to androidx.media3 (which
+ *     contains the same ExoPlayer code). See <a
+ *     href="https://developer.android.com/guide/topics/media/media3/getting-started/migration-guide">the
+ *     migration guide</a> for more details, including a script to help with the migration.
+ */
+@Deprecated
+public final class CoalescingAnalyticsListener implements AnalyticsListener {
+
+  /** A callback for {@link CoalescedEvents}. */
+  public interface Callback {
+
+    /**
+     * Called on the callback {@link Looper} with the events of a batch interval.
+     *
+     * @param coalescedEvents The {@link CoalescedEvents}.
+     */
+    void onCoalescedEvents(CoalescedEvents coalescedEvents);
+  }
+
+  /** The combined high-frequency events of a batch interval. */
+  public static final class CoalescedEvents {
+
+    /** The {@link EventTime} of the last event in the batch. */
+    public final EventTime eventTime;
+    /** The total time spent loading, in milliseconds, as reported by bandwidth estimates. */
+    public final long totalLoadTimeMs;
+    /** The total number of bytes loaded, as reported by bandwidth estimates. */
+    public final long totalBytesLoaded;
+    /**
+     * The last bitrate estimate, in bits per second, or {@link C#RATE_UNSET_INT} if there was no
+     * bandwidth estimate in the batch.
+     */
+    public final long bitrateEstimate;
+    /** The total number of dropped video frames. */
+    public final int droppedFrames;
+    /** The total video frame processing offset, in microseconds. */
+    public final long totalProcessingOffsetUs;
+    /** The number of video frames for which the processing offset was reported. */
+    public final int processingOffsetFrameCount;
+
+    private CoalescedEvents(
+        EventTime eventTime,
+        long totalLoadTimeMs,
+        long totalBytesLoaded,
+        long bitrateEstimate,
+        int droppedFrames,
+        long totalProcessingOffsetUs,
+        int processingOffsetFrameCount) {
+      this.eventTime = eventTime;
+      this.totalLoadTimeMs = totalLoadTimeMs;
+      this.totalBytesLoaded = totalBytesLoaded;
+      this.bitrateEstimate = bitrateEstimate;
+      this.droppedFrames = droppedFrames;
+      this.totalProcessingOffsetUs = totalProcessingOffsetUs;
+      this.processingOffsetFrameCount = processingOffsetFrameCount;
+    }
+  }
+
+  private static final FlagSet SUBSCRIBED_EVENTS =
+      new FlagSet.Builder()
+          .addAll(
+              EVENT_BANDWIDTH_ESTIMATE,
+              EVENT_DROPPED_VIDEO_FRAMES,
+              EVENT_VIDEO_FRAME_PROCESSING_OFFSET)
+          .build();
+
+  private final HandlerWrapper callbackHandler;
+  private final long batchIntervalMs;
+  private final Callback callback;
+
+  @GuardedBy("this")
+  @Nullable
+  private EventTime lastEventTime;
+
+  @GuardedBy("this")
+  private long totalLoadTimeMs;
+
+  @GuardedBy("this")
+  private long totalBytesLoaded;
+
+  @GuardedBy("this")
+  private long bitrateEstimate;
+
+  @GuardedBy("this")
+  private int droppedFrames;
+
+  @GuardedBy("this")
+  private long totalProcessingOffsetUs;
+
+  @GuardedBy("this")
+  private int processingOffsetFrameCount;
+
+  /**
+   * Creates an instance.
+   *
+   * @param callbackLooper The {@link Looper} on which the {@link Callback} is called.
+   * @param batchIntervalMs The maximum time, in milliseconds, for which events are coalesced
+   *     before they're delivered.
+   * @param callback The {@link Callback}.
+   */
+  public CoalescingAnalyticsListener(
+      Looper callbackLooper, long batchIntervalMs, Callback callback) {
+    this(callbackLooper, batchIntervalMs, callback, Clock.DEFAULT);
+  }
+
+  @VisibleForTesting
+  /* package */ CoalescingAnalyticsListener(
+      Looper callbackLooper, long batchIntervalMs, Callback callback, Clock clock) {
+    checkArgument(batchIntervalMs >= 0);
+    this.batchIntervalMs = batchIntervalMs;
+    this.callback = callback;
+    callbackHandler = clock.createHandler(callbackLooper, /* callback= */ null);
+    bitrateEstimate = C.RATE_UNSET_INT;
+  }
+
+  @Override
+  public FlagSet getSubscribedEvents() {
+    return SUBSCRIBED_EVENTS;
+  }
+
+  @Override
+  public void onBandwidthEstimate(
+      EventTime eventTime, int totalLoadTimeMs, long totalBytesLoaded, long bitrateEstimate) {
+    synchronized (this) {
+      this.totalLoadTimeMs += totalLoadTimeMs;
+      this.totalBytesLoaded += totalBytesLoaded;
+      this.bitrateEstimate = bitrateEstimate;
+      onEventCoalesced(eventTime);
+    }
+  }
+
+  @Override
+  public void onDroppedVideoFrames(EventTime eventTime, int droppedFrames, long elapsedMs) {
+    synchronized (this) {
+      this.droppedFrames += droppedFrames;
+      onEventCoalesced(eventTime);
+    }
+  }
+
+  @Override
+  public void onVideoFrameProcessingOffset(
+      EventTime eventTime, long totalProcessingOffsetUs, int frameCount) {
+    synchronized (this) {
+      this.totalProcessingOffsetUs += totalProcessingOffsetUs;
+      processingOffsetFrameCount += frameCount;
+      onEventCoalesced(eventTime);
+    }
+  }
+
+  @GuardedBy("this")
+  private void onEventCoalesced(EventTime eventTime) {
+    if (lastEventTime == null) {
+      // First event of a new batch.
+      callbackHandler.postDelayed(this::deliverCoalescedEvents, batchIntervalMs);
+    }
+    lastEventTime = eventTime;
+  }
+
+  private void deliverCoalescedEvents() {
+    CoalescedEvents coalescedEvents;
+    synchronized (this) {
+      @Nullable EventTime lastEventTime = this.lastEventTime;
+      if (lastEventTime == null) {
+        return;
+      }
+      coalescedEvents =
+          new CoalescedEvents(
+              lastEventTime,
+              totalLoadTimeMs,
+              totalBytesLoaded,
+              bitrateEstimate,
+              droppedFrames,
+              totalProcessingOffsetUs,
+              processingOffsetFrameCount);
+      this.lastEventTime = null;
+      totalLoadTimeMs = 0;
+      totalBytesLoaded = 0;
+      bitrateEstimate = C.RATE_UNSET_INT;
+      droppedFrames = 0;
+      totalProcessingOffsetUs = 0;
+      processingOffsetFrameCount = 0;
+    }
+    callback.onCoalescedEvents(coalescedEvents);
+  }
+}
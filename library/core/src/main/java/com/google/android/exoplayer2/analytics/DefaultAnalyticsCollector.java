@@ -51,16 +51,20 @@ import com.google.android.exoplayer2.text.Cue;
 import com.google.android.exoplayer2.text.CueGroup;
 import com.google.android.exoplayer2.trackselection.TrackSelectionParameters;
 import com.google.android.exoplayer2.util.Clock;
+import com.google.android.exoplayer2.util.FlagSet;
 import com.google.android.exoplayer2.util.HandlerWrapper;
 import com.google.android.exoplayer2.util.ListenerSet;
 import com.google.android.exoplayer2.util.Util;
+import com.google.android.exoplayer2.video.VideoFramePacingStats;
 import com.google.android.exoplayer2.video.VideoSize;
 import com.google.common.base.Objects;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
 import java.io.IOException;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
 import org.checkerframework.checker.nullness.qual.RequiresNonNull;
 
@@ -80,8 +84,12 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
   private final Window window;
   private final MediaPeriodQueueTracker mediaPeriodQueueTracker;
   private final SparseArray<EventTime> eventTimes;
+  // Listeners may be added and removed from any thread, so the subscriptions are tracked in a
+  // thread-safe list and published through a volatile field.
+  private final CopyOnWriteArrayList<AnalyticsListener> addedListeners;
 
   private ListenerSet<AnalyticsListener> listeners;
+  @Nullable private volatile FlagSet subscribedEvents;
   private @MonotonicNonNull Player player;
   private @MonotonicNonNull HandlerWrapper handler;
   private boolean isSeeking;
@@ -98,6 +106,8 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
     window = new Window();
     mediaPeriodQueueTracker = new MediaPeriodQueueTracker(period);
     eventTimes = new SparseArray<>();
+    addedListeners = new CopyOnWriteArrayList<>();
+    subscribedEvents = new FlagSet.Builder().build();
   }
 
   /**
@@ -119,12 +129,16 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
   public void addListener(AnalyticsListener listener) {
     checkNotNull(listener);
     listeners.add(listener);
+    addedListeners.add(listener);
+    updateSubscribedEvents();
   }
 
   @Override
   @CallSuper
   public void removeListener(AnalyticsListener listener) {
     listeners.remove(listener);
+    addedListeners.removeAll(Collections.singleton(listener));
+    updateSubscribedEvents();
   }
 
   @Override
@@ -159,18 +173,25 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
   @Override
   @SuppressWarnings("deprecation") // Calling deprecated listener method.
   public final void notifySeekStarted() {
-    if (!isSeeking) {
-      EventTime eventTime = generateCurrentPlayerMediaPeriodEventTime();
-      isSeeking = true;
-      sendEvent(
-          eventTime, /* eventFlag= */ C.INDEX_UNSET, listener -> listener.onSeekStarted(eventTime));
+    if (isSeeking) {
+      return;
     }
+    isSeeking = true;
+    if (!isSubscribed(/* eventFlag= */ C.INDEX_UNSET)) {
+      return;
+    }
+    EventTime eventTime = generateCurrentPlayerMediaPeriodEventTime();
+    sendEvent(
+        eventTime, /* eventFlag= */ C.INDEX_UNSET, listener -> listener.onSeekStarted(eventTime));
   }
 
   // Audio events.
 
   @Override
   public final void onAudioEnabled(DecoderCounters counters) {
+    if (!isSubscribed(AnalyticsListener.EVENT_AUDIO_ENABLED)) {
+      return;
+    }
     EventTime eventTime = generateReadingMediaPeriodEventTime();
     sendEvent(
         eventTime,
@@ -184,6 +205,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
   @Override
   public final void onAudioDecoderInitialized(
       String decoderName, long initializedTimestampMs, long initializationDurationMs) {
+    if (!isSubscribed(AnalyticsListener.EVENT_AUDIO_DECODER_INITIALIZED)) {
+      return;
+    }
     EventTime eventTime = generateReadingMediaPeriodEventTime();
     sendEvent(
         eventTime,
@@ -199,6 +223,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
   @Override
   public final void onAudioInputFormatChanged(
       Format format, @Nullable DecoderReuseEvaluation decoderReuseEvaluation) {
+    if (!isSubscribed(AnalyticsListener.EVENT_AUDIO_INPUT_FORMAT_CHANGED)) {
+      return;
+    }
     EventTime eventTime = generateReadingMediaPeriodEventTime();
     sendEvent(
         eventTime,
@@ -211,6 +238,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
 
   @Override
   public final void onAudioPositionAdvancing(long playoutStartSystemTimeMs) {
+    if (!isSubscribed(AnalyticsListener.EVENT_AUDIO_POSITION_ADVANCING)) {
+      return;
+    }
     EventTime eventTime = generateReadingMediaPeriodEventTime();
     sendEvent(
         eventTime,
@@ -221,6 +251,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
   @Override
   public final void onAudioUnderrun(
       int bufferSize, long bufferSizeMs, long elapsedSinceLastFeedMs) {
+    if (!isSubscribed(AnalyticsListener.EVENT_AUDIO_UNDERRUN)) {
+      return;
+    }
     EventTime eventTime = generateReadingMediaPeriodEventTime();
     sendEvent(
         eventTime,
@@ -231,6 +264,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
 
   @Override
   public final void onAudioDecoderReleased(String decoderName) {
+    if (!isSubscribed(AnalyticsListener.EVENT_AUDIO_DECODER_RELEASED)) {
+      return;
+    }
     EventTime eventTime = generateReadingMediaPeriodEventTime();
     sendEvent(
         eventTime,
@@ -240,6 +276,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
 
   @Override
   public final void onAudioDisabled(DecoderCounters counters) {
+    if (!isSubscribed(AnalyticsListener.EVENT_AUDIO_DISABLED)) {
+      return;
+    }
     EventTime eventTime = generatePlayingMediaPeriodEventTime();
     sendEvent(
         eventTime,
@@ -251,6 +290,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
 
   @Override
   public final void onAudioSinkError(Exception audioSinkError) {
+    if (!isSubscribed(AnalyticsListener.EVENT_AUDIO_SINK_ERROR)) {
+      return;
+    }
     EventTime eventTime = generateReadingMediaPeriodEventTime();
     sendEvent(
         eventTime,
@@ -260,6 +302,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
 
   @Override
   public final void onAudioCodecError(Exception audioCodecError) {
+    if (!isSubscribed(AnalyticsListener.EVENT_AUDIO_CODEC_ERROR)) {
+      return;
+    }
     EventTime eventTime = generateReadingMediaPeriodEventTime();
     sendEvent(
         eventTime,
@@ -269,6 +314,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
 
   @Override
   public final void onVolumeChanged(float volume) {
+    if (!isSubscribed(AnalyticsListener.EVENT_VOLUME_CHANGED)) {
+      return;
+    }
     EventTime eventTime = generateReadingMediaPeriodEventTime();
     sendEvent(
         eventTime,
@@ -280,6 +328,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
 
   @Override
   public final void onVideoEnabled(DecoderCounters counters) {
+    if (!isSubscribed(AnalyticsListener.EVENT_VIDEO_ENABLED)) {
+      return;
+    }
     EventTime eventTime = generateReadingMediaPeriodEventTime();
     sendEvent(
         eventTime,
@@ -293,6 +344,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
   @SuppressWarnings("deprecation") // Calling deprecated listener method.
   public final void onVideoDecoderInitialized(
       String decoderName, long initializedTimestampMs, long initializationDurationMs) {
+    if (!isSubscribed(AnalyticsListener.EVENT_VIDEO_DECODER_INITIALIZED)) {
+      return;
+    }
     EventTime eventTime = generateReadingMediaPeriodEventTime();
     sendEvent(
         eventTime,
@@ -308,6 +362,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
   @SuppressWarnings("deprecation") // Calling deprecated listener method.
   public final void onVideoInputFormatChanged(
       Format format, @Nullable DecoderReuseEvaluation decoderReuseEvaluation) {
+    if (!isSubscribed(AnalyticsListener.EVENT_VIDEO_INPUT_FORMAT_CHANGED)) {
+      return;
+    }
     EventTime eventTime = generateReadingMediaPeriodEventTime();
     sendEvent(
         eventTime,
@@ -320,6 +377,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
 
   @Override
   public final void onDroppedFrames(int count, long elapsedMs) {
+    if (!isSubscribed(AnalyticsListener.EVENT_DROPPED_VIDEO_FRAMES)) {
+      return;
+    }
     EventTime eventTime = generatePlayingMediaPeriodEventTime();
     sendEvent(
         eventTime,
@@ -329,6 +389,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
 
   @Override
   public final void onVideoDecoderReleased(String decoderName) {
+    if (!isSubscribed(AnalyticsListener.EVENT_VIDEO_DECODER_RELEASED)) {
+      return;
+    }
     EventTime eventTime = generateReadingMediaPeriodEventTime();
     sendEvent(
         eventTime,
@@ -338,6 +401,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
 
   @Override
   public final void onVideoDisabled(DecoderCounters counters) {
+    if (!isSubscribed(AnalyticsListener.EVENT_VIDEO_DISABLED)) {
+      return;
+    }
     EventTime eventTime = generatePlayingMediaPeriodEventTime();
     sendEvent(
         eventTime,
@@ -349,6 +415,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
 
   @Override
   public final void onRenderedFirstFrame(Object output, long renderTimeMs) {
+    if (!isSubscribed(AnalyticsListener.EVENT_RENDERED_FIRST_FRAME)) {
+      return;
+    }
     EventTime eventTime = generateReadingMediaPeriodEventTime();
     sendEvent(
         eventTime,
@@ -358,6 +427,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
 
   @Override
   public final void onVideoFrameProcessingOffset(long totalProcessingOffsetUs, int frameCount) {
+    if (!isSubscribed(AnalyticsListener.EVENT_VIDEO_FRAME_PROCESSING_OFFSET)) {
+      return;
+    }
     EventTime eventTime = generatePlayingMediaPeriodEventTime();
     sendEvent(
         eventTime,
@@ -366,8 +438,23 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
             listener.onVideoFrameProcessingOffset(eventTime, totalProcessingOffsetUs, frameCount));
   }
 
+  @Override
+  public final void onVideoFramePacingStats(VideoFramePacingStats framePacingStats) {
+    if (!isSubscribed(AnalyticsListener.EVENT_VIDEO_FRAME_PACING)) {
+      return;
+    }
+    EventTime eventTime = generatePlayingMediaPeriodEventTime();
+    sendEvent(
+        eventTime,
+        AnalyticsListener.EVENT_VIDEO_FRAME_PACING,
+        listener -> listener.onVideoFramePacingStats(eventTime, framePacingStats));
+  }
+
   @Override
   public final void onVideoCodecError(Exception videoCodecError) {
+    if (!isSubscribed(AnalyticsListener.EVENT_VIDEO_CODEC_ERROR)) {
+      return;
+    }
     EventTime eventTime = generateReadingMediaPeriodEventTime();
     sendEvent(
         eventTime,
@@ -377,6 +464,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
 
   @Override
   public final void onSurfaceSizeChanged(int width, int height) {
+    if (!isSubscribed(AnalyticsListener.EVENT_SURFACE_SIZE_CHANGED)) {
+      return;
+    }
     EventTime eventTime = generateReadingMediaPeriodEventTime();
     sendEvent(
         eventTime,
@@ -392,6 +482,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
       @Nullable MediaPeriodId mediaPeriodId,
       LoadEventInfo loadEventInfo,
       MediaLoadData mediaLoadData) {
+    if (!isSubscribed(AnalyticsListener.EVENT_LOAD_STARTED)) {
+      return;
+    }
     EventTime eventTime = generateMediaPeriodEventTime(windowIndex, mediaPeriodId);
     sendEvent(
         eventTime,
@@ -405,6 +498,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
       @Nullable MediaPeriodId mediaPeriodId,
       LoadEventInfo loadEventInfo,
       MediaLoadData mediaLoadData) {
+    if (!isSubscribed(AnalyticsListener.EVENT_LOAD_COMPLETED)) {
+      return;
+    }
     EventTime eventTime = generateMediaPeriodEventTime(windowIndex, mediaPeriodId);
     sendEvent(
         eventTime,
@@ -418,6 +514,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
       @Nullable MediaPeriodId mediaPeriodId,
       LoadEventInfo loadEventInfo,
       MediaLoadData mediaLoadData) {
+    if (!isSubscribed(AnalyticsListener.EVENT_LOAD_CANCELED)) {
+      return;
+    }
     EventTime eventTime = generateMediaPeriodEventTime(windowIndex, mediaPeriodId);
     sendEvent(
         eventTime,
@@ -433,6 +532,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
       MediaLoadData mediaLoadData,
       IOException error,
       boolean wasCanceled) {
+    if (!isSubscribed(AnalyticsListener.EVENT_LOAD_ERROR)) {
+      return;
+    }
     EventTime eventTime = generateMediaPeriodEventTime(windowIndex, mediaPeriodId);
     sendEvent(
         eventTime,
@@ -444,6 +546,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
   @Override
   public final void onUpstreamDiscarded(
       int windowIndex, @Nullable MediaPeriodId mediaPeriodId, MediaLoadData mediaLoadData) {
+    if (!isSubscribed(AnalyticsListener.EVENT_UPSTREAM_DISCARDED)) {
+      return;
+    }
     EventTime eventTime = generateMediaPeriodEventTime(windowIndex, mediaPeriodId);
     sendEvent(
         eventTime,
@@ -454,6 +559,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
   @Override
   public final void onDownstreamFormatChanged(
       int windowIndex, @Nullable MediaPeriodId mediaPeriodId, MediaLoadData mediaLoadData) {
+    if (!isSubscribed(AnalyticsListener.EVENT_DOWNSTREAM_FORMAT_CHANGED)) {
+      return;
+    }
     EventTime eventTime = generateMediaPeriodEventTime(windowIndex, mediaPeriodId);
     sendEvent(
         eventTime,
@@ -470,6 +578,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
   @Override
   public final void onTimelineChanged(Timeline timeline, @Player.TimelineChangeReason int reason) {
     mediaPeriodQueueTracker.onTimelineChanged(checkNotNull(player));
+    if (!isSubscribed(AnalyticsListener.EVENT_TIMELINE_CHANGED)) {
+      return;
+    }
     EventTime eventTime = generateCurrentPlayerMediaPeriodEventTime();
     sendEvent(
         eventTime,
@@ -480,6 +591,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
   @Override
   public final void onMediaItemTransition(
       @Nullable MediaItem mediaItem, @Player.MediaItemTransitionReason int reason) {
+    if (!isSubscribed(AnalyticsListener.EVENT_MEDIA_ITEM_TRANSITION)) {
+      return;
+    }
     EventTime eventTime = generateCurrentPlayerMediaPeriodEventTime();
     sendEvent(
         eventTime,
@@ -489,6 +603,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
 
   @Override
   public void onTracksChanged(Tracks tracks) {
+    if (!isSubscribed(AnalyticsListener.EVENT_TRACKS_CHANGED)) {
+      return;
+    }
     EventTime eventTime = generateCurrentPlayerMediaPeriodEventTime();
     sendEvent(
         eventTime,
@@ -505,6 +622,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
   @SuppressWarnings("deprecation") // Calling deprecated listener method.
   @Override
   public final void onIsLoadingChanged(boolean isLoading) {
+    if (!isSubscribed(AnalyticsListener.EVENT_IS_LOADING_CHANGED)) {
+      return;
+    }
     EventTime eventTime = generateCurrentPlayerMediaPeriodEventTime();
     sendEvent(
         eventTime,
@@ -517,6 +637,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
 
   @Override
   public void onAvailableCommandsChanged(Player.Commands availableCommands) {
+    if (!isSubscribed(AnalyticsListener.EVENT_AVAILABLE_COMMANDS_CHANGED)) {
+      return;
+    }
     EventTime eventTime = generateCurrentPlayerMediaPeriodEventTime();
     sendEvent(
         eventTime,
@@ -527,6 +650,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
   @SuppressWarnings("deprecation") // Implementing and calling deprecated listener method.
   @Override
   public final void onPlayerStateChanged(boolean playWhenReady, @Player.State int playbackState) {
+    if (!isSubscribed(/* eventFlag= */ C.INDEX_UNSET)) {
+      return;
+    }
     EventTime eventTime = generateCurrentPlayerMediaPeriodEventTime();
     sendEvent(
         eventTime,
@@ -536,6 +662,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
 
   @Override
   public final void onPlaybackStateChanged(@Player.State int playbackState) {
+    if (!isSubscribed(AnalyticsListener.EVENT_PLAYBACK_STATE_CHANGED)) {
+      return;
+    }
     EventTime eventTime = generateCurrentPlayerMediaPeriodEventTime();
     sendEvent(
         eventTime,
@@ -546,6 +675,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
   @Override
   public final void onPlayWhenReadyChanged(
       boolean playWhenReady, @Player.PlayWhenReadyChangeReason int reason) {
+    if (!isSubscribed(AnalyticsListener.EVENT_PLAY_WHEN_READY_CHANGED)) {
+      return;
+    }
     EventTime eventTime = generateCurrentPlayerMediaPeriodEventTime();
     sendEvent(
         eventTime,
@@ -556,6 +688,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
   @Override
   public final void onPlaybackSuppressionReasonChanged(
       @PlaybackSuppressionReason int playbackSuppressionReason) {
+    if (!isSubscribed(AnalyticsListener.EVENT_PLAYBACK_SUPPRESSION_REASON_CHANGED)) {
+      return;
+    }
     EventTime eventTime = generateCurrentPlayerMediaPeriodEventTime();
     sendEvent(
         eventTime,
@@ -566,6 +701,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
 
   @Override
   public void onIsPlayingChanged(boolean isPlaying) {
+    if (!isSubscribed(AnalyticsListener.EVENT_IS_PLAYING_CHANGED)) {
+      return;
+    }
     EventTime eventTime = generateCurrentPlayerMediaPeriodEventTime();
     sendEvent(
         eventTime,
@@ -575,6 +713,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
 
   @Override
   public final void onRepeatModeChanged(@Player.RepeatMode int repeatMode) {
+    if (!isSubscribed(AnalyticsListener.EVENT_REPEAT_MODE_CHANGED)) {
+      return;
+    }
     EventTime eventTime = generateCurrentPlayerMediaPeriodEventTime();
     sendEvent(
         eventTime,
@@ -584,6 +725,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
 
   @Override
   public final void onShuffleModeEnabledChanged(boolean shuffleModeEnabled) {
+    if (!isSubscribed(AnalyticsListener.EVENT_SHUFFLE_MODE_ENABLED_CHANGED)) {
+      return;
+    }
     EventTime eventTime = generateCurrentPlayerMediaPeriodEventTime();
     sendEvent(
         eventTime,
@@ -593,6 +737,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
 
   @Override
   public final void onPlayerError(PlaybackException error) {
+    if (!isSubscribed(AnalyticsListener.EVENT_PLAYER_ERROR)) {
+      return;
+    }
     EventTime eventTime = getEventTimeForErrorEvent(error);
     sendEvent(
         eventTime,
@@ -602,6 +749,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
 
   @Override
   public void onPlayerErrorChanged(@Nullable PlaybackException error) {
+    if (!isSubscribed(AnalyticsListener.EVENT_PLAYER_ERROR)) {
+      return;
+    }
     EventTime eventTime = getEventTimeForErrorEvent(error);
     sendEvent(
         eventTime,
@@ -626,6 +776,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
       isSeeking = false;
     }
     mediaPeriodQueueTracker.onPositionDiscontinuity(checkNotNull(player));
+    if (!isSubscribed(AnalyticsListener.EVENT_POSITION_DISCONTINUITY)) {
+      return;
+    }
     EventTime eventTime = generateCurrentPlayerMediaPeriodEventTime();
     sendEvent(
         eventTime,
@@ -638,6 +791,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
 
   @Override
   public final void onPlaybackParametersChanged(PlaybackParameters playbackParameters) {
+    if (!isSubscribed(AnalyticsListener.EVENT_PLAYBACK_PARAMETERS_CHANGED)) {
+      return;
+    }
     EventTime eventTime = generateCurrentPlayerMediaPeriodEventTime();
     sendEvent(
         eventTime,
@@ -647,6 +803,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
 
   @Override
   public void onSeekBackIncrementChanged(long seekBackIncrementMs) {
+    if (!isSubscribed(AnalyticsListener.EVENT_SEEK_BACK_INCREMENT_CHANGED)) {
+      return;
+    }
     EventTime eventTime = generateCurrentPlayerMediaPeriodEventTime();
     sendEvent(
         eventTime,
@@ -656,6 +815,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
 
   @Override
   public void onSeekForwardIncrementChanged(long seekForwardIncrementMs) {
+    if (!isSubscribed(AnalyticsListener.EVENT_SEEK_FORWARD_INCREMENT_CHANGED)) {
+      return;
+    }
     EventTime eventTime = generateCurrentPlayerMediaPeriodEventTime();
     sendEvent(
         eventTime,
@@ -665,6 +827,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
 
   @Override
   public void onMaxSeekToPreviousPositionChanged(long maxSeekToPreviousPositionMs) {
+    if (!isSubscribed(AnalyticsListener.EVENT_MAX_SEEK_TO_PREVIOUS_POSITION_CHANGED)) {
+      return;
+    }
     EventTime eventTime = generateCurrentPlayerMediaPeriodEventTime();
     sendEvent(
         eventTime,
@@ -675,6 +840,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
 
   @Override
   public void onMediaMetadataChanged(MediaMetadata mediaMetadata) {
+    if (!isSubscribed(AnalyticsListener.EVENT_MEDIA_METADATA_CHANGED)) {
+      return;
+    }
     EventTime eventTime = generateCurrentPlayerMediaPeriodEventTime();
     sendEvent(
         eventTime,
@@ -684,6 +852,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
 
   @Override
   public void onPlaylistMetadataChanged(MediaMetadata playlistMetadata) {
+    if (!isSubscribed(AnalyticsListener.EVENT_PLAYLIST_METADATA_CHANGED)) {
+      return;
+    }
     EventTime eventTime = generateCurrentPlayerMediaPeriodEventTime();
     sendEvent(
         eventTime,
@@ -693,6 +864,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
 
   @Override
   public final void onMetadata(Metadata metadata) {
+    if (!isSubscribed(AnalyticsListener.EVENT_METADATA)) {
+      return;
+    }
     EventTime eventTime = generateCurrentPlayerMediaPeriodEventTime();
     sendEvent(
         eventTime,
@@ -703,6 +877,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
   @SuppressWarnings("deprecation") // Implementing and calling deprecated listener method.
   @Override
   public void onCues(List<Cue> cues) {
+    if (!isSubscribed(AnalyticsListener.EVENT_CUES)) {
+      return;
+    }
     EventTime eventTime = generateCurrentPlayerMediaPeriodEventTime();
     sendEvent(
         eventTime, AnalyticsListener.EVENT_CUES, listener -> listener.onCues(eventTime, cues));
@@ -710,6 +887,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
 
   @Override
   public void onCues(CueGroup cueGroup) {
+    if (!isSubscribed(AnalyticsListener.EVENT_CUES)) {
+      return;
+    }
     EventTime eventTime = generateCurrentPlayerMediaPeriodEventTime();
     sendEvent(
         eventTime, AnalyticsListener.EVENT_CUES, listener -> listener.onCues(eventTime, cueGroup));
@@ -717,6 +897,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
 
   @Override
   public final void onSkipSilenceEnabledChanged(boolean skipSilenceEnabled) {
+    if (!isSubscribed(AnalyticsListener.EVENT_SKIP_SILENCE_ENABLED_CHANGED)) {
+      return;
+    }
     EventTime eventTime = generateReadingMediaPeriodEventTime();
     sendEvent(
         eventTime,
@@ -726,6 +909,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
 
   @Override
   public final void onAudioSessionIdChanged(int audioSessionId) {
+    if (!isSubscribed(AnalyticsListener.EVENT_AUDIO_SESSION_ID)) {
+      return;
+    }
     EventTime eventTime = generateReadingMediaPeriodEventTime();
     sendEvent(
         eventTime,
@@ -735,6 +921,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
 
   @Override
   public final void onAudioAttributesChanged(AudioAttributes audioAttributes) {
+    if (!isSubscribed(AnalyticsListener.EVENT_AUDIO_ATTRIBUTES_CHANGED)) {
+      return;
+    }
     EventTime eventTime = generateReadingMediaPeriodEventTime();
     sendEvent(
         eventTime,
@@ -745,6 +934,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
   @SuppressWarnings("deprecation") // Calling deprecated listener method.
   @Override
   public final void onVideoSizeChanged(VideoSize videoSize) {
+    if (!isSubscribed(AnalyticsListener.EVENT_VIDEO_SIZE_CHANGED)) {
+      return;
+    }
     EventTime eventTime = generateReadingMediaPeriodEventTime();
     sendEvent(
         eventTime,
@@ -762,6 +954,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
 
   @Override
   public void onTrackSelectionParametersChanged(TrackSelectionParameters parameters) {
+    if (!isSubscribed(AnalyticsListener.EVENT_TRACK_SELECTION_PARAMETERS_CHANGED)) {
+      return;
+    }
     EventTime eventTime = generateCurrentPlayerMediaPeriodEventTime();
     sendEvent(
         eventTime,
@@ -771,6 +966,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
 
   @Override
   public void onDeviceInfoChanged(DeviceInfo deviceInfo) {
+    if (!isSubscribed(AnalyticsListener.EVENT_DEVICE_INFO_CHANGED)) {
+      return;
+    }
     EventTime eventTime = generateCurrentPlayerMediaPeriodEventTime();
     sendEvent(
         eventTime,
@@ -780,6 +978,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
 
   @Override
   public void onDeviceVolumeChanged(int volume, boolean muted) {
+    if (!isSubscribed(AnalyticsListener.EVENT_DEVICE_VOLUME_CHANGED)) {
+      return;
+    }
     EventTime eventTime = generateCurrentPlayerMediaPeriodEventTime();
     sendEvent(
         eventTime,
@@ -802,6 +1003,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
 
   @Override
   public final void onBandwidthSample(int elapsedMs, long bytesTransferred, long bitrateEstimate) {
+    if (!isSubscribed(AnalyticsListener.EVENT_BANDWIDTH_ESTIMATE)) {
+      return;
+    }
     EventTime eventTime = generateLoadingMediaPeriodEventTime();
     sendEvent(
         eventTime,
@@ -816,6 +1020,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
   @SuppressWarnings("deprecation") // Calls deprecated listener method.
   public final void onDrmSessionAcquired(
       int windowIndex, @Nullable MediaPeriodId mediaPeriodId, @DrmSession.State int state) {
+    if (!isSubscribed(AnalyticsListener.EVENT_DRM_SESSION_ACQUIRED)) {
+      return;
+    }
     EventTime eventTime = generateMediaPeriodEventTime(windowIndex, mediaPeriodId);
     sendEvent(
         eventTime,
@@ -828,6 +1035,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
 
   @Override
   public final void onDrmKeysLoaded(int windowIndex, @Nullable MediaPeriodId mediaPeriodId) {
+    if (!isSubscribed(AnalyticsListener.EVENT_DRM_KEYS_LOADED)) {
+      return;
+    }
     EventTime eventTime = generateMediaPeriodEventTime(windowIndex, mediaPeriodId);
     sendEvent(
         eventTime,
@@ -838,6 +1048,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
   @Override
   public final void onDrmSessionManagerError(
       int windowIndex, @Nullable MediaPeriodId mediaPeriodId, Exception error) {
+    if (!isSubscribed(AnalyticsListener.EVENT_DRM_SESSION_MANAGER_ERROR)) {
+      return;
+    }
     EventTime eventTime = generateMediaPeriodEventTime(windowIndex, mediaPeriodId);
     sendEvent(
         eventTime,
@@ -847,6 +1060,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
 
   @Override
   public final void onDrmKeysRestored(int windowIndex, @Nullable MediaPeriodId mediaPeriodId) {
+    if (!isSubscribed(AnalyticsListener.EVENT_DRM_KEYS_RESTORED)) {
+      return;
+    }
     EventTime eventTime = generateMediaPeriodEventTime(windowIndex, mediaPeriodId);
     sendEvent(
         eventTime,
@@ -856,6 +1072,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
 
   @Override
   public final void onDrmKeysRemoved(int windowIndex, @Nullable MediaPeriodId mediaPeriodId) {
+    if (!isSubscribed(AnalyticsListener.EVENT_DRM_KEYS_REMOVED)) {
+      return;
+    }
     EventTime eventTime = generateMediaPeriodEventTime(windowIndex, mediaPeriodId);
     sendEvent(
         eventTime,
@@ -865,6 +1084,9 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
 
   @Override
   public final void onDrmSessionReleased(int windowIndex, @Nullable MediaPeriodId mediaPeriodId) {
+    if (!isSubscribed(AnalyticsListener.EVENT_DRM_SESSION_RELEASED)) {
+      return;
+    }
     EventTime eventTime = generateMediaPeriodEventTime(windowIndex, mediaPeriodId);
     sendEvent(
         eventTime,
@@ -888,6 +1110,21 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
     listeners.sendEvent(eventFlag, eventInvocation);
   }
 
+  /**
+   * Returns whether any listener is subscribed to an event.
+   *
+   * <p>Events that no listener is subscribed to don't need to be sent, so their {@link EventTime}
+   * doesn't need to be generated.
+   *
+   * @param eventFlag An integer flag indicating the type of the event, or {@link C#INDEX_UNSET} for
+   *     events without flag, which only listeners subscribed to all events are subscribed to.
+   * @see AnalyticsListener#getSubscribedEvents()
+   */
+  protected final boolean isSubscribed(int eventFlag) {
+    @Nullable FlagSet subscribedEvents = this.subscribedEvents;
+    return subscribedEvents == null || subscribedEvents.contains(eventFlag);
+  }
+
   /** Generates an {@link EventTime} for the currently playing item in the player. */
   protected final EventTime generateCurrentPlayerMediaPeriodEventTime() {
     return generateEventTime(mediaPeriodQueueTracker.getCurrentPlayerMediaPeriod());
@@ -936,6 +1173,21 @@ public class DefaultAnalyticsCollector implements AnalyticsCollector {
         player.getTotalBufferedDuration());
   }
 
+  private synchronized void updateSubscribedEvents() {
+    // Synchronized so that the last update to finish sees all listeners added or removed before
+    // it.
+    FlagSet.Builder subscribedEventsBuilder = new FlagSet.Builder();
+    for (AnalyticsListener listener : addedListeners) {
+      @Nullable FlagSet listenerSubscribedEvents = listener.getSubscribedEvents();
+      if (listenerSubscribedEvents == null) {
+        subscribedEvents = null;
+        return;
+      }
+      subscribedEventsBuilder.addAll(listenerSubscribedEvents);
+    }
+    subscribedEvents = subscribedEventsBuilder.build();
+  }
+
   private void releaseInternal() {
     EventTime eventTime = generateCurrentPlayerMediaPeriodEventTime();
     sendEvent(
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.analytics;
+
+import androidx.annotation.Nullable;
+
+/**
+ * A {@link QoeMetricsExporter} that merges the exported metrics in memory, for testing and local
+ * debugging.
+ *
+ * @deprecated com.google.android.exoplayer2 is deprecated. Please migrate to androidx.media3 (which
+ *     contains the same ExoPlayer code). See <a
+ *     href="https://developer.android.com/guide/topics/media/media3/getting-started/migration-guide">the
+ *     migration guide</a> for more details, including a script to help with the migration.
+ */
+@Deprecated
+public final class LoopbackQoeMetricsExporter implements QoeMetricsExporter {
+
+  private final QoeMetrics metrics;
+  private int exportCount;
+  @Nullable private QoeMetrics lastInProgressMetrics;
+
+  /** Creates an instance. */
+  public LoopbackQoeMetricsExporter() {
+    metrics = new QoeMetrics();
+  }
+
+  @Override
+  public synchronized void export(QoeMetrics sessionMetrics) {
+    metrics.merge(sessionMetrics);
+    exportCount++;
+  }
+
+  @Override
+  public synchronized void exportInProgress(QoeMetrics sessionMetrics) {
+    lastInProgressMetrics = sessionMetrics;
+  }
+
+  /** Returns the number of times {@link #export} has been called. */
+  public synchronized int getExportCount() {
+    return exportCount;
+  }
+
+  /** Returns a copy of the merged metrics of all exports. */
+  public synchronized QoeMetrics getMetrics() {
+    return metrics.copy();
+  }
+
+  /**
+   * Returns the metrics of the last call to {@link #exportInProgress}, or null if it hasn't been
+   * called.
+   */
+  @Nullable
+  public synchronized QoeMetrics getLastInProgressMetrics() {
+    return lastInProgressMetrics;
+  }
+}
@@ -25,6 +25,7 @@ import androidx.annotation.Nullable;
 import com.google.android.exoplayer2.C;
 import com.google.android.exoplayer2.Format;
 import com.google.android.exoplayer2.analytics.AnalyticsListener.EventTime;
+import com.google.android.exoplayer2.video.VideoFramePacingStats;
 import java.lang.annotation.Documented;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
@@ -276,6 +277,7 @@ public final class PlaybackStats {
     long totalBandwidthBytes = 0;
     long totalDroppedFrames = 0;
     long totalAudioUnderruns = 0;
+    VideoFramePacingStats videoFramePacingStats = VideoFramePacingStats.EMPTY;
     int fatalErrorPlaybackCount = 0;
     int fatalErrorCount = 0;
     int nonFatalErrorCount = 0;
@@ -337,6 +339,7 @@ public final class PlaybackStats {
       totalBandwidthBytes += stats.totalBandwidthBytes;
       totalDroppedFrames += stats.totalDroppedFrames;
       totalAudioUnderruns += stats.totalAudioUnderruns;
+      videoFramePacingStats = videoFramePacingStats.merge(stats.videoFramePacingStats);
       fatalErrorPlaybackCount += stats.fatalErrorPlaybackCount;
       fatalErrorCount += stats.fatalErrorCount;
       nonFatalErrorCount += stats.nonFatalErrorCount;
@@ -377,6 +380,7 @@ public final class PlaybackStats {
         totalBandwidthBytes,
         totalDroppedFrames,
         totalAudioUnderruns,
+        videoFramePacingStats,
         fatalErrorPlaybackCount,
         fatalErrorCount,
         nonFatalErrorCount,
@@ -516,6 +520,11 @@ public final class PlaybackStats {
   public final long totalDroppedFrames;
   /** The total number of audio underruns. */
   public final long totalAudioUnderruns;
+  /**
+   * The combined {@link VideoFramePacingStats} reported by the video renderer, or {@link
+   * VideoFramePacingStats#EMPTY} if none were reported.
+   */
+  public final VideoFramePacingStats videoFramePacingStats;
 
   // Error stats.
 
@@ -581,6 +590,7 @@ public final class PlaybackStats {
       long totalBandwidthBytes,
       long totalDroppedFrames,
       long totalAudioUnderruns,
+      VideoFramePacingStats videoFramePacingStats,
       int fatalErrorPlaybackCount,
       int fatalErrorCount,
       int nonFatalErrorCount,
@@ -621,6 +631,7 @@ public final class PlaybackStats {
     this.totalBandwidthBytes = totalBandwidthBytes;
     this.totalDroppedFrames = totalDroppedFrames;
     this.totalAudioUnderruns = totalAudioUnderruns;
+    this.videoFramePacingStats = videoFramePacingStats;
     this.fatalErrorPlaybackCount = fatalErrorPlaybackCount;
     this.fatalErrorCount = fatalErrorCount;
     this.nonFatalErrorCount = nonFatalErrorCount;
@@ -37,6 +37,7 @@ import com.google.android.exoplayer2.source.MediaLoadData;
 import com.google.android.exoplayer2.source.MediaSource.MediaPeriodId;
 import com.google.android.exoplayer2.util.Assertions;
 import com.google.android.exoplayer2.util.Util;
+import com.google.android.exoplayer2.video.VideoFramePacingStats;
 import com.google.android.exoplayer2.video.VideoSize;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -84,12 +85,16 @@ public final class PlaybackStatsListener
   private final boolean keepHistory;
   private final Period period;
 
+  private final QoeMetrics qoeMetrics;
+
   private PlaybackStats finishedPlaybackStats;
+  @Nullable private QoeMetricsExporter qoeMetricsExporter;
 
   @Nullable private String discontinuityFromSession;
   private long discontinuityFromPositionMs;
   private @Player.DiscontinuityReason int discontinuityReason;
   private int droppedFrames;
+  @Nullable private VideoFramePacingStats videoFramePacingStats;
   @Nullable private Exception nonFatalException;
   private long bandwidthTimeMs;
   private long bandwidthBytes;
@@ -111,11 +116,60 @@ public final class PlaybackStatsListener
     playbackStatsTrackers = new HashMap<>();
     sessionStartEventTimes = new HashMap<>();
     finishedPlaybackStats = PlaybackStats.EMPTY;
+    qoeMetrics = new QoeMetrics();
     period = new Period();
     videoSize = VideoSize.UNKNOWN;
     sessionManager.setListener(this);
   }
 
+  /**
+   * Sets a {@link QoeMetricsExporter} to which the {@link QoeMetrics} of each finished playback
+   * session are exported. The metrics of ongoing sessions can be exported on demand with {@link
+   * #experimentalExportInProgressQoeMetrics()}.
+   *
+   * <p>The exported metrics don't depend on {@code keepHistory}. If the history isn't kept, the
+   * memory used per playback session is constant, so the exporter can be used for long-running
+   * playbacks.
+   *
+   * <p>This method is experimental, and will be renamed or removed in a future release.
+   *
+   * @param qoeMetricsExporter The {@link QoeMetricsExporter}, or null to not export metrics.
+   */
+  public void experimentalSetQoeMetricsExporter(@Nullable QoeMetricsExporter qoeMetricsExporter) {
+    this.qoeMetricsExporter = qoeMetricsExporter;
+  }
+
+  /**
+   * Exports the {@link QoeMetrics} of the ongoing playback sessions to the {@link
+   * QoeMetricsExporter} with {@link QoeMetricsExporter#exportInProgress}, for example to monitor
+   * long-running playbacks periodically. Does nothing if no exporter is set.
+   *
+   * <p>This method is experimental, and will be renamed or removed in a future release.
+   */
+  public void experimentalExportInProgressQoeMetrics() {
+    @Nullable QoeMetricsExporter qoeMetricsExporter = this.qoeMetricsExporter;
+    if (qoeMetricsExporter == null) {
+      return;
+    }
+    for (PlaybackStatsTracker tracker : playbackStatsTrackers.values()) {
+      qoeMetricsExporter.exportInProgress(
+          tracker.buildQoeMetrics(tracker.build(/* isFinal= */ false), /* isFinal= */ false));
+    }
+  }
+
+  /**
+   * Returns the combined {@link QoeMetrics} of all playback sessions this listener was and is
+   * listening to.
+   */
+  public QoeMetrics getCombinedQoeMetrics() {
+    QoeMetrics combinedQoeMetrics = qoeMetrics.copy();
+    for (PlaybackStatsTracker tracker : playbackStatsTrackers.values()) {
+      combinedQoeMetrics.merge(
+          tracker.buildQoeMetrics(tracker.build(/* isFinal= */ false), /* isFinal= */ false));
+    }
+    return combinedQoeMetrics;
+  }
+
   /**
    * Returns the combined {@link PlaybackStats} for all playback sessions this listener was and is
    * listening to.
@@ -184,6 +238,12 @@ public final class PlaybackStatsListener
     if (callback != null) {
       callback.onPlaybackStatsReady(startEventTime, playbackStats);
     }
+    QoeMetrics sessionQoeMetrics = tracker.buildQoeMetrics(playbackStats, /* isFinal= */ true);
+    qoeMetrics.merge(sessionQoeMetrics);
+    @Nullable QoeMetricsExporter qoeMetricsExporter = this.qoeMetricsExporter;
+    if (qoeMetricsExporter != null) {
+      qoeMetricsExporter.export(sessionQoeMetrics);
+    }
   }
 
   // AnalyticsListener implementation.
@@ -206,6 +266,12 @@ public final class PlaybackStatsListener
     this.droppedFrames = droppedFrames;
   }
 
+  @Override
+  public void onVideoFramePacingStats(
+      EventTime eventTime, VideoFramePacingStats framePacingStats) {
+    this.videoFramePacingStats = framePacingStats;
+  }
+
   @Override
   public void onLoadError(
       EventTime eventTime,
@@ -255,6 +321,7 @@ public final class PlaybackStatsListener
       boolean hasDiscontinuityToPlayback = hasEvent(events, session, EVENT_POSITION_DISCONTINUITY);
       boolean hasDroppedFrames = hasEvent(events, session, EVENT_DROPPED_VIDEO_FRAMES);
       boolean hasAudioUnderrun = hasEvent(events, session, EVENT_AUDIO_UNDERRUN);
+      boolean hasFramePacingStats = hasEvent(events, session, EVENT_VIDEO_FRAME_PACING);
       boolean startedLoading = hasEvent(events, session, EVENT_LOAD_STARTED);
       boolean hasFatalError = hasEvent(events, session, EVENT_PLAYER_ERROR);
       boolean hasNonFatalException =
@@ -271,6 +338,7 @@ public final class PlaybackStatsListener
           hasDiscontinuityToPlayback,
           hasDroppedFrames ? droppedFrames : 0,
           hasAudioUnderrun,
+          hasFramePacingStats ? videoFramePacingStats : null,
           startedLoading,
           hasFatalError ? player.getPlayerError() : null,
           hasNonFatalException ? nonFatalException : null,
@@ -282,6 +350,7 @@ public final class PlaybackStatsListener
     }
     videoFormat = null;
     audioFormat = null;
+    videoFramePacingStats = null;
     discontinuityFromSession = null;
     if (events.contains(AnalyticsListener.EVENT_PLAYER_RELEASED)) {
       sessionManager.finishAllSessions(events.getEventTime(EVENT_PLAYER_RELEASED));
@@ -368,6 +437,7 @@ public final class PlaybackStatsListener
     private final List<EventTimeAndException> fatalErrorHistory;
     private final List<EventTimeAndException> nonFatalErrorHistory;
     private final boolean isAd;
+    private final QoeHistogram rebufferDurationsMs;
 
     private long firstReportedTimeMs;
     private boolean hasBeenReady;
@@ -391,8 +461,10 @@ public final class PlaybackStatsListener
     private long bandwidthBytes;
     private long droppedFrames;
     private long audioUnderruns;
+    private VideoFramePacingStats videoFramePacingStats;
     private int fatalErrorCount;
     private int nonFatalErrorCount;
+    private int videoBitrateSwitchCount;
 
     // Current player state tracking.
     private @PlaybackState int currentPlaybackState;
@@ -432,7 +504,9 @@ public final class PlaybackStatsListener
       initialAudioFormatBitrate = C.LENGTH_UNSET;
       initialVideoFormatBitrate = C.LENGTH_UNSET;
       initialVideoFormatHeight = C.LENGTH_UNSET;
+      videoFramePacingStats = VideoFramePacingStats.EMPTY;
       currentPlaybackSpeed = 1f;
+      rebufferDurationsMs = new QoeHistogram();
     }
 
     /** Notifies the tracker that the current playback became the active foreground playback. */
@@ -480,6 +554,8 @@ public final class PlaybackStatsListener
      * @param hasDiscontinuity Whether a discontinuity to this playback occurred.
      * @param droppedFrameCount The number of newly dropped frames for this playback.
      * @param hasAudioUnderun Whether a new audio underrun occurred for this playback.
+     * @param videoFramePacingStats Newly reported video frame pacing stats for this playback, or
+     *     null.
      * @param startedLoading Whether this playback started loading.
      * @param fatalError A fatal error for this playback, or null.
      * @param nonFatalException A non-fatal exception for this playback, or null.
@@ -497,6 +573,7 @@ public final class PlaybackStatsListener
         boolean hasDiscontinuity,
         int droppedFrameCount,
         boolean hasAudioUnderun,
+        @Nullable VideoFramePacingStats videoFramePacingStats,
         boolean startedLoading,
         @Nullable PlaybackException fatalError,
         @Nullable Exception nonFatalException,
@@ -560,6 +637,9 @@ public final class PlaybackStatsListener
         audioUnderruns++;
       }
       this.droppedFrames += droppedFrameCount;
+      if (videoFramePacingStats != null) {
+        this.videoFramePacingStats = this.videoFramePacingStats.merge(videoFramePacingStats);
+      }
       this.bandwidthTimeMs += bandwidthTimeMs;
       this.bandwidthBytes += bandwidthBytes;
       if (nonFatalException != null) {
@@ -653,6 +733,7 @@ public final class PlaybackStatsListener
           bandwidthBytes,
           droppedFrames,
           audioUnderruns,
+          videoFramePacingStats,
           /* fatalErrorPlaybackCount= */ fatalErrorCount > 0 ? 1 : 0,
           fatalErrorCount,
           nonFatalErrorCount,
@@ -660,6 +741,29 @@ public final class PlaybackStatsListener
           nonFatalErrorHistory);
     }
 
+    /**
+     * Builds the {@link QoeMetrics} of the playback.
+     *
+     * @param playbackStats The {@link PlaybackStats} of the playback, built with the same value of
+     *     {@code isFinal}.
+     * @param isFinal Whether this is the final build and no further events are expected. If not,
+     *     an ongoing rebuffer is included with its duration up to now.
+     */
+    public QoeMetrics buildQoeMetrics(PlaybackStats playbackStats, boolean isFinal) {
+      QoeMetrics qoeMetrics =
+          QoeMetrics.forSession(
+              playbackStats.getMeanJoinTimeMs(),
+              rebufferDurationsMs,
+              videoBitrateSwitchCount,
+              playbackStats.totalDroppedFrames);
+      if (!isFinal && isRebufferingState(currentPlaybackState)) {
+        // The histogram is a copy, so the rebuffer is still added in full once it ends.
+        long rebufferDurationMs = SystemClock.elapsedRealtime() - lastRebufferStartTimeMs;
+        qoeMetrics.getRebufferDurationMs().add(max(0, rebufferDurationMs));
+      }
+      return qoeMetrics;
+    }
+
     private void updatePlaybackState(@PlaybackState int newPlaybackState, EventTime eventTime) {
       Assertions.checkArgument(eventTime.realtimeMs >= currentPlaybackStateStartTimeMs);
       long stateDurationMs = eventTime.realtimeMs - currentPlaybackStateStartTimeMs;
@@ -686,6 +790,9 @@ public final class PlaybackStatsListener
         pauseBufferCount++;
       }
       maybeUpdateMaxRebufferTimeMs(eventTime.realtimeMs);
+      if (isRebufferingState(currentPlaybackState) && !isRebufferingState(newPlaybackState)) {
+        rebufferDurationsMs.add(eventTime.realtimeMs - lastRebufferStartTimeMs);
+      }
 
       currentPlaybackState = newPlaybackState;
       currentPlaybackStateStartTimeMs = eventTime.realtimeMs;
@@ -786,6 +893,11 @@ public final class PlaybackStatsListener
         return;
       }
       maybeRecordVideoFormatTime(eventTime.realtimeMs);
+      if (currentVideoFormat != null
+          && newFormat != null
+          && currentVideoFormat.bitrate != newFormat.bitrate) {
+        videoBitrateSwitchCount++;
+      }
       if (newFormat != null) {
         if (initialVideoFormatHeight == C.LENGTH_UNSET && newFormat.height != Format.NO_VALUE) {
           initialVideoFormatHeight = newFormat.height;
@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.analytics;
+
+import static com.google.android.exoplayer2.util.Assertions.checkArgument;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+import com.google.android.exoplayer2.C;
+
+/**
+ * A fixed-size histogram of non-negative values, with exponentially sized buckets.
+ *
+ * <p>Bucket 0 counts the values that are 0, and bucket {@code i} counts the values in the range
+ * [{@code 2^(i-1)}, {@code 2^i}). The last bucket also counts all values that are too large for the
+ * other buckets.
+ *
+ * <p>Histograms use the same buckets, so histograms from many playbacks can be merged without
+ * losing precision. Instances aren't thread-safe.
+ *
+ * @deprecated com.google.android.exoplayer2 is deprecated. Please migrate to androidx.media3 (which
+ *     contains the same ExoPlayer code). See <a
+ *     href="https://developer.android.com/guide/topics/media/media3/getting-started/migration-guide">the
+ *     migration guide</a> for more details, including a script to help with the migration.
+ */
+@Deprecated
+public final class QoeHistogram {
+
+  /** The number of buckets. The last bucket starts at 2^30. */
+  public static final int BUCKET_COUNT = 32;
+
+  private final long[] bucketCounts;
+  private long count;
+  private long sum;
+  private long max;
+
+  /** Creates an empty instance. */
+  public QoeHistogram() {
+    bucketCounts = new long[BUCKET_COUNT];
+  }
+
+  /**
+   * Returns the exclusive upper bound of a bucket, or {@link Long#MAX_VALUE} for the last bucket,
+   * which is unbounded.
+   *
+   * @param bucketIndex The index of the bucket.
+   */
+  public static long getBucketUpperBound(int bucketIndex) {
+    checkArgument(bucketIndex >= 0 && bucketIndex < BUCKET_COUNT);
+    return bucketIndex == BUCKET_COUNT - 1 ? Long.MAX_VALUE : 1L << bucketIndex;
+  }
+
+  /**
+   * Adds a value to the histogram.
+   *
+   * @param value The value. Negative values are counted as zero.
+   */
+  public void add(long value) {
+    value = max(value, 0);
+    bucketCounts[min(Long.SIZE - Long.numberOfLeadingZeros(value), BUCKET_COUNT - 1)]++;
+    count++;
+    sum += value;
+    max = max(max, value);
+  }
+
+  /**
+   * Adds all values of another histogram to this histogram.
+   *
+   * @param other The other histogram.
+   */
+  public void merge(QoeHistogram other) {
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      bucketCounts[i] += other.bucketCounts[i];
+    }
+    count += other.count;
+    sum += other.sum;
+    max = max(max, other.max);
+  }
+
+  /** Returns a copy of the histogram. */
+  public QoeHistogram copy() {
+    QoeHistogram copy = new QoeHistogram();
+    copy.merge(this);
+    return copy;
+  }
+
+  /** Returns the number of values that have been added. */
+  public long getCount() {
+    return count;
+  }
+
+  /** Returns the sum of the values that have been added. */
+  public long getSum() {
+    return sum;
+  }
+
+  /** Returns the largest value that has been added, or 0 if the histogram is empty. */
+  public long getMax() {
+    return max;
+  }
+
+  /**
+   * Returns the number of values counted by a bucket.
+   *
+   * @param bucketIndex The index of the bucket.
+   */
+  public long getBucketCount(int bucketIndex) {
+    return bucketCounts[bucketIndex];
+  }
+
+  /**
+   * Returns an upper bound of a percentile of the values.
+   *
+   * <p>The returned value is the exclusive upper bound of the bucket that contains the percentile,
+   * capped at one more than the largest value. It's {@link C#LENGTH_UNSET} if the histogram is
+   * empty.
+   *
+   * @param percentile The percentile, in the range (0, 100].
+   */
+  public long getPercentileUpperBound(float percentile) {
+    checkArgument(percentile > 0 && percentile <= 100);
+    if (count == 0) {
+      return C.LENGTH_UNSET;
+    }
+    long maxUpperBound = max == Long.MAX_VALUE ? Long.MAX_VALUE : max + 1;
+    long targetCount = (long) Math.ceil(count * percentile / 100);
+    long cumulativeCount = 0;
+    for (int i = 0; i < BUCKET_COUNT - 1; i++) {
+      cumulativeCount += bucketCounts[i];
+      if (cumulativeCount >= targetCount) {
+        return min(getBucketUpperBound(i), maxUpperBound);
+      }
+    }
+    return maxUpperBound;
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.analytics;
+
+import com.google.android.exoplayer2.C;
+
+/**
+ * Quality of experience metrics of one or more playback sessions, kept in fixed-size {@link
+ * QoeHistogram QoeHistograms}.
+ *
+ * <p>The memory used by an instance doesn't depend on the number or length of the playback sessions
+ * it covers. Instances from many sessions or devices can be combined with {@link #merge}.
+ *
+ * @deprecated com.google.android.exoplayer2 is deprecated. Please migrate to androidx.media3 (which
+ *     contains the same ExoPlayer code). See <a
+ *     href="https://developer.android.com/guide/topics/media/media3/getting-started/migration-guide">the
+ *     migration guide</a> for more details, including a script to help with the migration.
+ */
+@Deprecated
+public final class QoeMetrics {
+
+  private final QoeHistogram joinTimeMs;
+  private final QoeHistogram rebufferDurationMs;
+  private final QoeHistogram videoBitrateSwitchCount;
+  private final QoeHistogram droppedFrameCount;
+  private long sessionCount;
+
+  /** Creates an instance that doesn't cover any playback session. */
+  public QoeMetrics() {
+    joinTimeMs = new QoeHistogram();
+    rebufferDurationMs = new QoeHistogram();
+    videoBitrateSwitchCount = new QoeHistogram();
+    droppedFrameCount = new QoeHistogram();
+  }
+
+  /**
+   * Creates an instance for a single playback session.
+   *
+   * @param joinTimeMs The join time of the session, in milliseconds, or {@link C#TIME_UNSET} if
+   *     the session didn't join successfully.
+   * @param rebufferDurationMs The durations of the rebuffers in the session, in milliseconds.
+   * @param videoBitrateSwitchCount The number of times the video bitrate changed in the session.
+   * @param droppedFrameCount The number of dropped video frames in the session.
+   */
+  /* package */ static QoeMetrics forSession(
+      long joinTimeMs,
+      QoeHistogram rebufferDurationMs,
+      int videoBitrateSwitchCount,
+      long droppedFrameCount) {
+    QoeMetrics qoeMetrics = new QoeMetrics();
+    qoeMetrics.sessionCount = 1;
+    if (joinTimeMs != C.TIME_UNSET) {
+      qoeMetrics.joinTimeMs.add(joinTimeMs);
+    }
+    qoeMetrics.rebufferDurationMs.merge(rebufferDurationMs);
+    qoeMetrics.videoBitrateSwitchCount.add(videoBitrateSwitchCount);
+    qoeMetrics.droppedFrameCount.add(droppedFrameCount);
+    return qoeMetrics;
+  }
+
+  /** Returns the number of playback sessions covered by the metrics. */
+  public long getSessionCount() {
+    return sessionCount;
+  }
+
+  /**
+   * Returns the histogram of join times, in milliseconds, with one value per session that joined
+   * successfully.
+   */
+  public QoeHistogram getJoinTimeMs() {
+    return joinTimeMs;
+  }
+
+  /** Returns the histogram of rebuffer durations, in milliseconds, with one value per rebuffer. */
+  public QoeHistogram getRebufferDurationMs() {
+    return rebufferDurationMs;
+  }
+
+  /** Returns the histogram of the number of video bitrate switches, with one value per session. */
+  public QoeHistogram getVideoBitrateSwitchCount() {
+    return videoBitrateSwitchCount;
+  }
+
+  /** Returns the histogram of the number of dropped video frames, with one value per session. */
+  public QoeHistogram getDroppedFrameCount() {
+    return droppedFrameCount;
+  }
+
+  /**
+   * Adds the sessions covered by other metrics to these metrics.
+   *
+   * @param other The other metrics.
+   */
+  public void merge(QoeMetrics other) {
+    sessionCount += other.sessionCount;
+    joinTimeMs.merge(other.joinTimeMs);
+    rebufferDurationMs.merge(other.rebufferDurationMs);
+    videoBitrateSwitchCount.merge(other.videoBitrateSwitchCount);
+    droppedFrameCount.merge(other.droppedFrameCount);
+  }
+
+  /** Returns a copy of the metrics. */
+  public QoeMetrics copy() {
+    QoeMetrics copy = new QoeMetrics();
+    copy.merge(this);
+    return copy;
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.analytics;
+
+/**
+ * Exports the {@link QoeMetrics} of playback sessions, for example to a telemetry backend that
+ * merges the metrics of many devices.
+ *
+ * @deprecated com.google.android.exoplayer2 is deprecated. Please migrate to androidx.media3 (which
+ *     contains the same ExoPlayer code). See <a
+ *     href="https://developer.android.com/guide/topics/media/media3/getting-started/migration-guide">the
+ *     migration guide</a> for more details, including a script to help with the migration.
+ */
+@Deprecated
+public interface QoeMetricsExporter {
+
+  /**
+   * Called when a playback session ends.
+   *
+   * <p>Called on the thread of the {@link PlaybackStatsListener}, which is the application thread
+   * of the player. Implementations that do I/O should hand the metrics off to another thread.
+   *
+   * @param sessionMetrics The {@link QoeMetrics} of the ended session. The exporter may keep the
+   *     instance, which isn't modified afterwards.
+   */
+  void export(QoeMetrics sessionMetrics);
+
+  /**
+   * Called with the metrics of a playback session that's still ongoing, when {@link
+   * PlaybackStatsListener#experimentalExportInProgressQoeMetrics()} is called.
+   *
+   * <p>The metrics cover the session up to now, including an ongoing rebuffer. They're superseded
+   * by later exports of the same session, so they shouldn't be merged with the metrics passed to
+   * {@link #export}.
+   *
+   * <p>Called on the thread of the {@link PlaybackStatsListener}. The default implementation does
+   * nothing.
+   *
+   * @param sessionMetrics The {@link QoeMetrics} of the ongoing session so far. The exporter may
+   *     keep the instance, which isn't modified afterwards.
+   */
+  default void exportInProgress(QoeMetrics sessionMetrics) {}
+}
@@ -427,6 +427,24 @@ public class MediaCodecAudioRenderer extends MediaCodecRenderer implements Media
         codecInfo, mediaFormat, format, crypto);
   }
 
+  @Override
+  @Nullable
+  protected MediaCodecAdapter.Configuration getMediaCodecPrewarmConfiguration(
+      MediaCodecInfo codecInfo, Format format, Format[] streamFormats) {
+    if (MimeTypes.AUDIO_RAW.equals(codecInfo.mimeType)) {
+      // Decrypt-only codecs aren't prewarmed.
+      return null;
+    }
+    MediaFormat mediaFormat =
+        getMediaFormat(
+            format,
+            codecInfo.codecMimeType,
+            getCodecMaxInputSize(codecInfo, format, streamFormats),
+            CODEC_OPERATING_RATE_UNSET);
+    return MediaCodecAdapter.Configuration.createForAudioDecoding(
+        codecInfo, mediaFormat, format, /* crypto= */ null);
+  }
+
   @Override
   protected DecoderReuseEvaluation canReuseCodec(
       MediaCodecInfo codecInfo, Format oldFormat, Format newFormat) {
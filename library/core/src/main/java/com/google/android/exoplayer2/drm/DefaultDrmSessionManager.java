@@ -37,6 +37,7 @@ import com.google.android.exoplayer2.analytics.PlayerId;
 import com.google.android.exoplayer2.drm.DrmInitData.SchemeData;
 import com.google.android.exoplayer2.drm.DrmSession.DrmSessionException;
 import com.google.android.exoplayer2.drm.ExoMediaDrm.OnEventListener;
+import com.google.android.exoplayer2.extractor.mp4.PsshAtomUtil;
 import com.google.android.exoplayer2.upstream.DefaultLoadErrorHandlingPolicy;
 import com.google.android.exoplayer2.upstream.LoadErrorHandlingPolicy;
 import com.google.android.exoplayer2.util.Log;
@@ -51,8 +52,12 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -64,7 +69,8 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
  * A {@link DrmSessionManager} that supports playbacks using {@link ExoMediaDrm}.
  *
  * <p>This implementation supports pre-acquisition of sessions using {@link
- * #preacquireSession(DrmSessionEventListener.EventDispatcher, Format)}.
+ * #preacquireSession(DrmSessionEventListener.EventDispatcher, Format)}, and prefetching of sessions
+ * for upcoming content using {@link #experimentalPrefetchSession(DrmInitData)}.
  *
  * @deprecated com.google.android.exoplayer2 is deprecated. Please migrate to androidx.media3 (which
  *     contains the same ExoPlayer code). See <a
@@ -90,6 +96,8 @@ public class DefaultDrmSessionManager implements DrmSessionManager {
     private boolean playClearSamplesWithoutKeys;
     private LoadErrorHandlingPolicy loadErrorHandlingPolicy;
     private long sessionKeepaliveMs;
+    private int maxPrefetchedSessions;
+    @Nullable private OfflineLicenseStore offlineLicenseStore;
 
     /**
      * Creates a builder with default values. The default values are:
@@ -104,6 +112,9 @@ public class DefaultDrmSessionManager implements DrmSessionManager {
      *   <li>{@link #setPlayClearSamplesWithoutKeys playClearSamplesWithoutKeys}: {@code false}.
      *   <li>{@link #setLoadErrorHandlingPolicy LoadErrorHandlingPolicy}: {@link
      *       DefaultLoadErrorHandlingPolicy}.
+     *   <li>{@link #experimentalSetMaxPrefetchedSessions maxPrefetchedSessions}: {@link
+     *       #DEFAULT_MAX_PREFETCHED_SESSIONS}.
+     *   <li>{@link #experimentalSetOfflineLicenseStore offlineLicenseStore}: {@code null}.
      * </ul>
      */
     public Builder() {
@@ -113,6 +124,7 @@ public class DefaultDrmSessionManager implements DrmSessionManager {
       loadErrorHandlingPolicy = new DefaultLoadErrorHandlingPolicy();
       useDrmSessionsForClearContentTrackTypes = new int[0];
       sessionKeepaliveMs = DEFAULT_SESSION_KEEPALIVE_MS;
+      maxPrefetchedSessions = DEFAULT_MAX_PREFETCHED_SESSIONS;
     }
 
     /**
@@ -238,6 +250,45 @@ public class DefaultDrmSessionManager implements DrmSessionManager {
       return this;
     }
 
+    /**
+     * Sets the maximum number of sessions that are kept open after being prefetched with {@link
+     * DefaultDrmSessionManager#experimentalPrefetchSession(DrmInitData)}. When more sessions are
+     * prefetched, the least recently used prefetched session is released.
+     *
+     * <p>This method is experimental, and will be renamed or removed in a future release.
+     *
+     * @param maxPrefetchedSessions The maximum number of prefetched sessions. Must be &gt; 0.
+     * @return This builder.
+     */
+    @CanIgnoreReturnValue
+    public Builder experimentalSetMaxPrefetchedSessions(int maxPrefetchedSessions) {
+      checkArgument(maxPrefetchedSessions > 0);
+      this.maxPrefetchedSessions = maxPrefetchedSessions;
+      return this;
+    }
+
+    /**
+     * Sets an {@link OfflineLicenseStore} whose licenses are used for playback. In {@link
+     * #MODE_PLAYBACK} without an offline license set by {@link #setMode}, sessions for content
+     * that has an unexpired license in the store restore that license instead of requesting a
+     * streaming license. If a stored license can't be restored, it's removed from the store and a
+     * streaming license is requested instead.
+     *
+     * <p>The store must be for the same DRM scheme as the manager.
+     *
+     * <p>This method is experimental, and will be renamed or removed in a future release.
+     *
+     * @param offlineLicenseStore The {@link OfflineLicenseStore}, or null to not use stored
+     *     licenses.
+     * @return This builder.
+     */
+    @CanIgnoreReturnValue
+    public Builder experimentalSetOfflineLicenseStore(
+        @Nullable OfflineLicenseStore offlineLicenseStore) {
+      this.offlineLicenseStore = offlineLicenseStore;
+      return this;
+    }
+
     /** Builds a {@link DefaultDrmSessionManager} instance. */
     public DefaultDrmSessionManager build(MediaDrmCallback mediaDrmCallback) {
       return new DefaultDrmSessionManager(
@@ -249,7 +300,9 @@ public class DefaultDrmSessionManager implements DrmSessionManager {
           useDrmSessionsForClearContentTrackTypes,
           playClearSamplesWithoutKeys,
           loadErrorHandlingPolicy,
-          sessionKeepaliveMs);
+          sessionKeepaliveMs,
+          maxPrefetchedSessions,
+          offlineLicenseStore);
     }
   }
 
@@ -294,6 +347,8 @@ public class DefaultDrmSessionManager implements DrmSessionManager {
   public static final int INITIAL_DRM_REQUEST_RETRY_COUNT = 3;
   /** Default value for {@link Builder#setSessionKeepaliveMs(long)}. */
   public static final long DEFAULT_SESSION_KEEPALIVE_MS = 5 * 60 * C.MILLIS_PER_SECOND;
+  /** Default maximum number of prefetched sessions. */
+  public static final int DEFAULT_MAX_PREFETCHED_SESSIONS = 3;
 
   private static final String TAG = "DefaultDrmSessionMgr";
 
@@ -308,11 +363,19 @@ public class DefaultDrmSessionManager implements DrmSessionManager {
   private final LoadErrorHandlingPolicy loadErrorHandlingPolicy;
   private final ReferenceCountListenerImpl referenceCountListener;
   private final long sessionKeepaliveMs;
+  private final int maxPrefetchedSessions;
+  @Nullable private final OfflineLicenseStore offlineLicenseStore;
 
   private final List<DefaultDrmSession> sessions;
   private final Set<PreacquiredSessionReference> preacquiredSessionReferences;
   private final Set<DefaultDrmSession> keepaliveSessions;
 
+  /**
+   * The prefetched sessions from least to most recently used, each mapped to the key ids that its
+   * license covers. The key ids are empty if they're unknown.
+   */
+  private final LinkedHashMap<DefaultDrmSession, Set<UUID>> prefetchedSessions;
+
   private int prepareCallsCount;
   @Nullable private ExoMediaDrm exoMediaDrm;
   @Nullable private DefaultDrmSession placeholderDrmSession;
@@ -334,7 +397,9 @@ public class DefaultDrmSessionManager implements DrmSessionManager {
       @C.TrackType int[] useDrmSessionsForClearContentTrackTypes,
       boolean playClearSamplesWithoutKeys,
       LoadErrorHandlingPolicy loadErrorHandlingPolicy,
-      long sessionKeepaliveMs) {
+      long sessionKeepaliveMs,
+      int maxPrefetchedSessions,
+      @Nullable OfflineLicenseStore offlineLicenseStore) {
     checkNotNull(uuid);
     checkArgument(!C.COMMON_PSSH_UUID.equals(uuid), "Use C.CLEARKEY_UUID instead");
     this.uuid = uuid;
@@ -351,7 +416,10 @@ public class DefaultDrmSessionManager implements DrmSessionManager {
     sessions = new ArrayList<>();
     preacquiredSessionReferences = Sets.newIdentityHashSet();
     keepaliveSessions = Sets.newIdentityHashSet();
+    prefetchedSessions = new LinkedHashMap<>();
     this.sessionKeepaliveMs = sessionKeepaliveMs;
+    this.maxPrefetchedSessions = maxPrefetchedSessions;
+    this.offlineLicenseStore = offlineLicenseStore;
   }
 
   /**
@@ -387,6 +455,70 @@ public class DefaultDrmSessionManager implements DrmSessionManager {
     this.offlineLicenseKeySetId = offlineLicenseKeySetId;
   }
 
+  /**
+   * Prefetches a session for content that's likely to be played soon, such as the next item of a
+   * playlist or the next channel. The session is opened and its keys are requested in the
+   * background, so that a later {@link #acquireSession} for content with the same {@link
+   * DrmInitData} returns the session without waiting for provisioning or a license request.
+   *
+   * <p>Prefetched sessions are kept open, up to the {@linkplain
+   * Builder#experimentalSetMaxPrefetchedSessions maximum number of prefetched sessions}, until the
+   * manager is released. Prefetched sessions are released first when the device is short on DRM
+   * session resources.
+   *
+   * <p>Requires {@linkplain Builder#setMultiSession multi-session} mode. Can be called from any
+   * thread after {@link #setPlayer}. The session is prefetched on the playback thread, and the
+   * prefetch is ignored if at that point the manager isn't {@linkplain #prepare() prepared} or an
+   * offline license key set id is {@linkplain #setMode set}.
+   *
+   * <p>This method is experimental, and will be renamed or removed in a future release.
+   *
+   * @param drmInitData The {@link DrmInitData} of the content.
+   */
+  public void experimentalPrefetchSession(DrmInitData drmInitData) {
+    List<SchemeData> schemeDatas = getSchemeDatas(drmInitData, uuid, /* allowMissingData= */ false);
+    if (schemeDatas.isEmpty()) {
+      Log.w(TAG, "Not prefetching session", new MissingSchemeDataException(uuid));
+      return;
+    }
+    prefetchSession(schemeDatas, /* keyIds= */ new HashSet<>());
+  }
+
+  /**
+   * Prefetches one session whose license covers the keys of several pieces of content, such as
+   * the channels a user is likely to switch to. A single license is requested for all the key ids.
+   * A later {@link #acquireSession} for content whose key ids are all covered returns the session,
+   * even though its {@link DrmInitData} differs.
+   *
+   * <p>The key ids are read from version 1 PSSH boxes in the {@link SchemeData#data} of the given
+   * {@link DrmInitData DrmInitDatas}. The license is requested with a version 1 PSSH box listing
+   * all key ids and no scheme specific data, which the DRM scheme and license server must support.
+   *
+   * <p>The requirements of {@link #experimentalPrefetchSession(DrmInitData)} apply.
+   *
+   * <p>This method is experimental, and will be renamed or removed in a future release.
+   *
+   * @param drmInitDatas The {@link DrmInitData} of each piece of content.
+   * @throws IllegalArgumentException If a {@link SchemeData} doesn't contain a version 1 PSSH box.
+   */
+  public void experimentalPrefetchMultiKeySession(List<DrmInitData> drmInitDatas) {
+    List<SchemeData> schemeDatas = new ArrayList<>();
+    for (int i = 0; i < drmInitDatas.size(); i++) {
+      schemeDatas.addAll(
+          getSchemeDatas(drmInitDatas.get(i), uuid, /* allowMissingData= */ false));
+    }
+    @Nullable Set<UUID> keyIds = getKeyIds(schemeDatas);
+    checkArgument(keyIds != null && !keyIds.isEmpty(), "Version 1 PSSH boxes required");
+    SchemeData multiKeySchemeData =
+        new SchemeData(
+            uuid,
+            schemeDatas.get(0).licenseServerUrl,
+            schemeDatas.get(0).mimeType,
+            PsshAtomUtil.buildPsshAtom(
+                uuid, keyIds.toArray(new UUID[0]), /* data= */ null));
+    prefetchSession(ImmutableList.of(multiKeySchemeData), keyIds);
+  }
+
   // DrmSessionManager implementation.
 
   @Override
@@ -422,6 +554,7 @@ public class DefaultDrmSessionManager implements DrmSessionManager {
       }
     }
     releaseAllPreacquiredSessions();
+    releaseAllPrefetchedSessions();
 
     maybeReleaseMediaDrm();
   }
@@ -474,7 +607,9 @@ public class DefaultDrmSessionManager implements DrmSessionManager {
           shouldReleasePreacquiredSessionsBeforeRetrying);
     }
 
+    @Nullable byte[] offlineLicenseKeySetId = this.offlineLicenseKeySetId;
     @Nullable List<SchemeData> schemeDatas = null;
+    boolean isStoredOfflineLicense = false;
     if (offlineLicenseKeySetId == null) {
       schemeDatas = getSchemeDatas(checkNotNull(format.drmInitData), uuid, false);
       if (schemeDatas.isEmpty()) {
@@ -486,27 +621,47 @@ public class DefaultDrmSessionManager implements DrmSessionManager {
         return new ErrorStateDrmSession(
             new DrmSessionException(error, PlaybackException.ERROR_CODE_DRM_CONTENT_ERROR));
       }
+      if (mode == MODE_PLAYBACK && offlineLicenseStore != null) {
+        offlineLicenseKeySetId = offlineLicenseStore.getKeySetId(checkNotNull(format.drmInitData));
+        if (offlineLicenseKeySetId != null) {
+          // Restore the stored license, as for content played with an offline license.
+          schemeDatas = null;
+          isStoredOfflineLicense = true;
+        }
+      }
     }
 
     @Nullable DefaultDrmSession session;
     if (!multiSession) {
       session = noMultiSessionDrmSession;
     } else {
-      // Only use an existing session if it has matching init data.
+      // Only use an existing session if it has matching init data, or if it's a prefetched
+      // session whose license covers the keys.
       session = null;
       for (DefaultDrmSession existingSession : sessions) {
-        if (Util.areEqual(existingSession.schemeDatas, schemeDatas)) {
+        if (Util.areEqual(existingSession.schemeDatas, schemeDatas)
+            && (!isStoredOfflineLicense
+                || Arrays.equals(
+                    existingSession.getOfflineLicenseKeySetId(), offlineLicenseKeySetId))) {
           session = existingSession;
           break;
         }
       }
+      if (session == null && schemeDatas != null) {
+        session = getPrefetchedSessionCoveringKeys(schemeDatas);
+      }
+      if (session != null) {
+        maybeMarkPrefetchedSessionAsRecentlyUsed(session);
+      }
     }
 
+    boolean isNewSession = session == null;
     if (session == null) {
       // Create a new session.
       session =
           createAndAcquireSessionWithRetry(
               schemeDatas,
+              offlineLicenseKeySetId,
               /* isPlaceholderSession= */ false,
               eventDispatcher,
               shouldReleasePreacquiredSessionsBeforeRetrying);
@@ -518,6 +673,18 @@ public class DefaultDrmSessionManager implements DrmSessionManager {
       session.acquire(eventDispatcher);
     }
 
+    if (isStoredOfflineLicense && session.getState() == DrmSession.STATE_ERROR) {
+      // The stored license couldn't be restored. Forget it and request a streaming license.
+      Log.w(TAG, "Failed to restore stored license", session.getError());
+      if (isNewSession) {
+        undoAcquisition(session, eventDispatcher);
+      } else {
+        session.release(eventDispatcher);
+      }
+      checkNotNull(offlineLicenseStore).removeLicense(checkNotNull(format.drmInitData));
+      return acquireSession(
+          playbackLooper, eventDispatcher, format, shouldReleasePreacquiredSessionsBeforeRetrying);
+    }
     return session;
   }
 
@@ -554,6 +721,7 @@ public class DefaultDrmSessionManager implements DrmSessionManager {
       DefaultDrmSession placeholderDrmSession =
           createAndAcquireSessionWithRetry(
               /* schemeDatas= */ ImmutableList.of(),
+              offlineLicenseKeySetId,
               /* isPlaceholderSession= */ true,
               /* eventDispatcher= */ null,
               shouldReleasePreacquiredSessionsBeforeRetrying);
@@ -611,6 +779,10 @@ public class DefaultDrmSessionManager implements DrmSessionManager {
     }
   }
 
+  private synchronized Handler getPlaybackHandler() {
+    return checkStateNotNull(playbackHandler);
+  }
+
   private void maybeCreateMediaDrmHandler(Looper playbackLooper) {
     if (mediaDrmHandler == null) {
       mediaDrmHandler = new MediaDrmHandler(playbackLooper);
@@ -619,17 +791,33 @@ public class DefaultDrmSessionManager implements DrmSessionManager {
 
   private DefaultDrmSession createAndAcquireSessionWithRetry(
       @Nullable List<SchemeData> schemeDatas,
+      @Nullable byte[] offlineLicenseKeySetId,
       boolean isPlaceholderSession,
       @Nullable DrmSessionEventListener.EventDispatcher eventDispatcher,
       boolean shouldReleasePreacquiredSessionsBeforeRetrying) {
     DefaultDrmSession session =
-        createAndAcquireSession(schemeDatas, isPlaceholderSession, eventDispatcher);
+        createAndAcquireSession(
+            schemeDatas, offlineLicenseKeySetId, isPlaceholderSession, eventDispatcher);
     // If we're short on DRM session resources, first try eagerly releasing all our keepalive
     // sessions and then retry the acquisition.
     if (acquisitionFailedIndicatingResourceShortage(session) && !keepaliveSessions.isEmpty()) {
       releaseAllKeepaliveSessions();
       undoAcquisition(session, eventDispatcher);
-      session = createAndAcquireSession(schemeDatas, isPlaceholderSession, eventDispatcher);
+      session =
+          createAndAcquireSession(
+              schemeDatas, offlineLicenseKeySetId, isPlaceholderSession, eventDispatcher);
+    }
+
+    // Sessions needed for playback take priority over sessions prefetched for upcoming content.
+    if (acquisitionFailedIndicatingResourceShortage(session)
+        && shouldReleasePreacquiredSessionsBeforeRetrying
+        && !prefetchedSessions.isEmpty()) {
+      releaseAllPrefetchedSessions();
+      releaseAllKeepaliveSessions();
+      undoAcquisition(session, eventDispatcher);
+      session =
+          createAndAcquireSession(
+              schemeDatas, offlineLicenseKeySetId, isPlaceholderSession, eventDispatcher);
     }
 
     // If the acquisition failed again due to continued resource shortage, and
@@ -645,7 +833,9 @@ public class DefaultDrmSessionManager implements DrmSessionManager {
         releaseAllKeepaliveSessions();
       }
       undoAcquisition(session, eventDispatcher);
-      session = createAndAcquireSession(schemeDatas, isPlaceholderSession, eventDispatcher);
+      session =
+          createAndAcquireSession(
+              schemeDatas, offlineLicenseKeySetId, isPlaceholderSession, eventDispatcher);
     }
     return session;
   }
@@ -659,7 +849,7 @@ public class DefaultDrmSessionManager implements DrmSessionManager {
   }
 
   /**
-   * Undoes the acquisitions from {@link #createAndAcquireSession(List, boolean,
+   * Undoes the acquisitions from {@link #createAndAcquireSession(List, byte[], boolean,
    * DrmSessionEventListener.EventDispatcher)}.
    */
   private void undoAcquisition(
@@ -679,6 +869,97 @@ public class DefaultDrmSessionManager implements DrmSessionManager {
     }
   }
 
+  private void releaseAllPrefetchedSessions() {
+    // Make a local copy, because sessions are removed from this.prefetchedSessions during release
+    // (via callback).
+    ImmutableSet<DefaultDrmSession> prefetchedSessions =
+        ImmutableSet.copyOf(this.prefetchedSessions.keySet());
+    this.prefetchedSessions.clear();
+    for (DrmSession prefetchedSession : prefetchedSessions) {
+      prefetchedSession.release(/* eventDispatcher= */ null);
+    }
+  }
+
+  private void prefetchSession(List<SchemeData> schemeDatas, Set<UUID> keyIds) {
+    checkState(multiSession);
+    getPlaybackHandler()
+        .post(
+            () -> {
+              // The state is only read on the playback thread, where it's modified.
+              if (prepareCallsCount == 0) {
+                Log.w(TAG, "Not prefetching session, the manager isn't prepared");
+                return;
+              }
+              if (offlineLicenseKeySetId != null) {
+                Log.w(TAG, "Not prefetching session, an offline license is used");
+                return;
+              }
+              maybeCreateMediaDrmHandler(checkNotNull(playbackLooper));
+              @Nullable DefaultDrmSession session = null;
+              for (DefaultDrmSession existingSession : sessions) {
+                if (Util.areEqual(existingSession.schemeDatas, schemeDatas)) {
+                  session = existingSession;
+                  break;
+                }
+              }
+              if (session != null && maybeMarkPrefetchedSessionAsRecentlyUsed(session)) {
+                return;
+              }
+              if (session == null) {
+                session =
+                    createAndAcquireSessionWithRetry(
+                        schemeDatas,
+                        /* offlineLicenseKeySetId= */ null,
+                        /* isPlaceholderSession= */ false,
+                        /* eventDispatcher= */ null,
+                        /* shouldReleasePreacquiredSessionsBeforeRetrying= */ false);
+                sessions.add(session);
+              } else {
+                session.acquire(/* eventDispatcher= */ null);
+              }
+              prefetchedSessions.put(session, keyIds);
+              maybeEvictPrefetchedSessions();
+            });
+  }
+
+  private void maybeEvictPrefetchedSessions() {
+    while (prefetchedSessions.size() > maxPrefetchedSessions) {
+      DefaultDrmSession leastRecentlyUsedSession = prefetchedSessions.keySet().iterator().next();
+      prefetchedSessions.remove(leastRecentlyUsedSession);
+      leastRecentlyUsedSession.release(/* eventDispatcher= */ null);
+    }
+  }
+
+  /** Moves a session to the end of the eviction order, if it's a prefetched session. */
+  @CanIgnoreReturnValue
+  private boolean maybeMarkPrefetchedSessionAsRecentlyUsed(DefaultDrmSession session) {
+    @Nullable Set<UUID> keyIds = prefetchedSessions.remove(session);
+    if (keyIds == null) {
+      return false;
+    }
+    prefetchedSessions.put(session, keyIds);
+    return true;
+  }
+
+  /**
+   * Returns a prefetched session whose license covers the key ids of the given {@link SchemeData
+   * SchemeDatas}, or null if there's none or the key ids are unknown.
+   */
+  @Nullable
+  private DefaultDrmSession getPrefetchedSessionCoveringKeys(List<SchemeData> schemeDatas) {
+    @Nullable Set<UUID> keyIds = getKeyIds(schemeDatas);
+    if (keyIds == null || keyIds.isEmpty()) {
+      return null;
+    }
+    for (Map.Entry<DefaultDrmSession, Set<UUID>> entry : prefetchedSessions.entrySet()) {
+      DefaultDrmSession session = entry.getKey();
+      if (session.getState() != DrmSession.STATE_ERROR && entry.getValue().containsAll(keyIds)) {
+        return session;
+      }
+    }
+    return null;
+  }
+
   private void releaseAllPreacquiredSessions() {
     // Make a local copy, because sessions are removed from this.preacquiredSessionReferences
     // during release (via callback).
@@ -698,6 +979,7 @@ public class DefaultDrmSessionManager implements DrmSessionManager {
    */
   private DefaultDrmSession createAndAcquireSession(
       @Nullable List<SchemeData> schemeDatas,
+      @Nullable byte[] offlineLicenseKeySetId,
       boolean isPlaceholderSession,
       @Nullable DrmSessionEventListener.EventDispatcher eventDispatcher) {
     checkNotNull(exoMediaDrm);
@@ -785,6 +1067,24 @@ public class DefaultDrmSessionManager implements DrmSessionManager {
     return matchingSchemeDatas;
   }
 
+  /**
+   * Returns the key ids in the version 1 PSSH boxes of the given {@link SchemeData SchemeDatas}, or
+   * null if a {@link SchemeData} doesn't contain a version 1 PSSH box.
+   */
+  @Nullable
+  private static Set<UUID> getKeyIds(List<SchemeData> schemeDatas) {
+    Set<UUID> keyIds = new LinkedHashSet<>();
+    for (int i = 0; i < schemeDatas.size(); i++) {
+      @Nullable byte[] data = schemeDatas.get(i).data;
+      @Nullable UUID[] schemeKeyIds = data != null ? PsshAtomUtil.parseKeyIds(data) : null;
+      if (schemeKeyIds == null) {
+        return null;
+      }
+      Collections.addAll(keyIds, schemeKeyIds);
+    }
+    return keyIds;
+  }
+
   @SuppressLint("HandlerLeak")
   private class MediaDrmHandler extends Handler {
 
@@ -898,6 +1198,7 @@ public class DefaultDrmSessionManager implements DrmSessionManager {
         if (noMultiSessionDrmSession == session) {
           noMultiSessionDrmSession = null;
         }
+        prefetchedSessions.remove(session);
         provisioningManagerImpl.onSessionFullyReleased(session);
         if (sessionKeepaliveMs != C.TIME_UNSET) {
           checkNotNull(playbackHandler).removeCallbacksAndMessages(session);
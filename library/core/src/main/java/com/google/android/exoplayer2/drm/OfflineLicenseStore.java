@@ -0,0 +1,602 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.drm;
+
+import static com.google.android.exoplayer2.util.Assertions.checkArgument;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.Pair;
+import androidx.annotation.GuardedBy;
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
+import androidx.annotation.VisibleForTesting;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.Format;
+import com.google.android.exoplayer2.database.DatabaseIOException;
+import com.google.android.exoplayer2.database.DatabaseProvider;
+import com.google.android.exoplayer2.database.VersionTable;
+import com.google.android.exoplayer2.drm.DrmInitData.SchemeData;
+import com.google.android.exoplayer2.drm.DrmSession.DrmSessionException;
+import com.google.android.exoplayer2.util.Clock;
+import com.google.android.exoplayer2.util.Log;
+import com.google.android.exoplayer2.util.Util;
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Persists the key set ids of offline licenses, and renews the licenses before they expire.
+ *
+ * <p>Licenses are downloaded and renewed using an {@link OfflineLicenseHelper}. Each license is
+ * stored with the time at which it expires, in an SQLite database provided by a {@link
+ * DatabaseProvider}. Licenses are identified by the scheme specific data of the content for the
+ * store's DRM scheme.
+ *
+ * <p>The store renews all licenses that expire within the renewal window in a single batch, on a
+ * background thread. It checks again shortly before the next license enters the renewal window.
+ * Failing renewals are retried with an exponential backoff, and licenses that have expired and
+ * fail to renew are removed from the store.
+ *
+ * <p>A {@link DefaultDrmSessionManager} may use the stored licenses to play streamed content
+ * without requesting a license first, by setting the store with {@link
+ * DefaultDrmSessionManager.Builder#experimentalSetOfflineLicenseStore}.
+ *
+ * @deprecated com.google.android.exoplayer2 is deprecated. Please migrate to androidx.media3 (which
+ *     contains the same ExoPlayer code). See <a
+ *     href="https://developer.android.com/guide/topics/media/media3/getting-started/migration-guide">the
+ *     migration guide</a> for more details, including a script to help with the migration.
+ */
+@RequiresApi(18)
+@Deprecated
+public final class OfflineLicenseStore {
+
+  /** The default renewal window, in milliseconds. */
+  public static final long DEFAULT_RENEWAL_WINDOW_MS = 60 * 60 * C.MILLIS_PER_SECOND;
+
+  private static final String TAG = "OfflineLicenseStore";
+
+  private static final String TABLE_NAME = DatabaseProvider.TABLE_PREFIX + "OfflineLicenses";
+
+  @VisibleForTesting /* package */ static final int TABLE_VERSION = 1;
+
+  private static final String COLUMN_ID = "id";
+  private static final String COLUMN_KEY_SET_ID = "key_set_id";
+  private static final String COLUMN_EXPIRY_TIME_MS = "expiry_time_ms";
+
+  private static final int COLUMN_INDEX_ID = 0;
+  private static final int COLUMN_INDEX_KEY_SET_ID = 1;
+  private static final int COLUMN_INDEX_EXPIRY_TIME_MS = 2;
+
+  private static final String WHERE_ID_EQUALS = COLUMN_ID + " = ?";
+
+  private static final String[] COLUMNS =
+      new String[] {COLUMN_ID, COLUMN_KEY_SET_ID, COLUMN_EXPIRY_TIME_MS};
+
+  private static final String TABLE_SCHEMA =
+      "("
+          + COLUMN_ID
+          + " TEXT PRIMARY KEY NOT NULL,"
+          + COLUMN_KEY_SET_ID
+          + " BLOB NOT NULL,"
+          + COLUMN_EXPIRY_TIME_MS
+          + " INTEGER NOT NULL)";
+
+  /** The expiry time of licenses whose duration is unlimited or unknown. */
+  private static final long NO_EXPIRY_TIME_MS = Long.MAX_VALUE;
+
+  /** The minimum interval between renewals, so that failing renewals aren't retried too often. */
+  private static final long MIN_RENEWAL_INTERVAL_MS = 60 * C.MILLIS_PER_SECOND;
+
+  /** The maximum interval between retries of failing renewals. */
+  private static final long MAX_RENEWAL_RETRY_INTERVAL_MS = 30 * 60 * C.MILLIS_PER_SECOND;
+
+  private final DatabaseProvider databaseProvider;
+  private final OfflineLicenseHelper offlineLicenseHelper;
+  private final UUID uuid;
+  private final long renewalWindowMs;
+  private final Clock clock;
+  private final HandlerThread handlerThread;
+  private final Handler handler;
+  private final Object loadLock;
+
+  @GuardedBy("this")
+  private final HashMap<String, License> licenses;
+
+  @GuardedBy("this")
+  private boolean loaded;
+
+  @GuardedBy("this")
+  private boolean released;
+
+  @GuardedBy("this")
+  private int renewalFailureCount;
+
+  /**
+   * Creates an instance with the {@link #DEFAULT_RENEWAL_WINDOW_MS default renewal window}.
+   *
+   * @param databaseProvider Provides the SQLite database in which licenses are persisted.
+   * @param offlineLicenseHelper The helper used to download, renew and release licenses. The
+   *     caller remains responsible for releasing it.
+   * @param uuid The UUID of the DRM scheme of the {@code offlineLicenseHelper}.
+   */
+  public OfflineLicenseStore(
+      DatabaseProvider databaseProvider, OfflineLicenseHelper offlineLicenseHelper, UUID uuid) {
+    this(databaseProvider, offlineLicenseHelper, uuid, DEFAULT_RENEWAL_WINDOW_MS);
+  }
+
+  /**
+   * Creates an instance.
+   *
+   * @param databaseProvider Provides the SQLite database in which licenses are persisted.
+   * @param offlineLicenseHelper The helper used to download, renew and release licenses. The
+   *     caller remains responsible for releasing it.
+   * @param uuid The UUID of the DRM scheme of the {@code offlineLicenseHelper}.
+   * @param renewalWindowMs How long before they expire licenses are renewed, in milliseconds.
+   */
+  public OfflineLicenseStore(
+      DatabaseProvider databaseProvider,
+      OfflineLicenseHelper offlineLicenseHelper,
+      UUID uuid,
+      long renewalWindowMs) {
+    this(databaseProvider, offlineLicenseHelper, uuid, renewalWindowMs, Clock.DEFAULT);
+  }
+
+  @VisibleForTesting
+  /* package */ OfflineLicenseStore(
+      DatabaseProvider databaseProvider,
+      OfflineLicenseHelper offlineLicenseHelper,
+      UUID uuid,
+      long renewalWindowMs,
+      Clock clock) {
+    checkArgument(renewalWindowMs >= 0);
+    this.databaseProvider = databaseProvider;
+    this.offlineLicenseHelper = offlineLicenseHelper;
+    this.uuid = uuid;
+    this.renewalWindowMs = renewalWindowMs;
+    this.clock = clock;
+    loadLock = new Object();
+    licenses = new HashMap<>();
+    handlerThread = new HandlerThread("ExoPlayer:OfflineLicenseStore");
+    handlerThread.start();
+    handler = new Handler(handlerThread.getLooper());
+    // Load the licenses off the calling thread, and renew those that are about to expire.
+    handler.post(this::renewExpiringLicensesAndScheduleNextRenewal);
+  }
+
+  /**
+   * Downloads and stores the offline license for a format, replacing any license stored for the
+   * same content.
+   *
+   * <p>This method blocks until the license has been downloaded, so it must not be called on the
+   * application thread.
+   *
+   * @param format The {@link Format} of the content. Must contain a {@link Format#drmInitData}
+   *     with scheme specific data for the store's DRM scheme.
+   * @return The key set id of the downloaded license.
+   * @throws DrmSessionException If a DRM session error occurs.
+   * @throws DatabaseIOException If an error occurs writing to the database.
+   */
+  public byte[] downloadLicense(Format format) throws DrmSessionException, DatabaseIOException {
+    @Nullable DrmInitData drmInitData = format.drmInitData;
+    @Nullable String id = drmInitData != null ? getLicenseId(drmInitData) : null;
+    if (id == null) {
+      throw new IllegalArgumentException("No scheme data for: " + uuid);
+    }
+    byte[] keySetId = offlineLicenseHelper.downloadLicense(format);
+    long expiryTimeMs = getExpiryTimeMs(keySetId);
+    ensureLoaded();
+    synchronized (this) {
+      List<Pair<String, License>> updatedLicenses = new ArrayList<>();
+      updatedLicenses.add(Pair.create(id, new License(keySetId, expiryTimeMs)));
+      putLicenses(updatedLicenses);
+      scheduleNextRenewal();
+    }
+    return keySetId;
+  }
+
+  /**
+   * Returns the key set id of the stored license for the given content, or null if no license is
+   * stored or if the stored license has expired.
+   *
+   * <p>This method doesn't access the database, so it's suitable for calling on the playback
+   * thread. The licenses are loaded on the store's background thread after it's created, and this
+   * method returns null until they have been loaded.
+   *
+   * @param drmInitData The {@link DrmInitData} of the content.
+   */
+  @Nullable
+  public synchronized byte[] getKeySetId(DrmInitData drmInitData) {
+    @Nullable String id = getLicenseId(drmInitData);
+    if (id == null || !loaded) {
+      return null;
+    }
+    @Nullable License license = licenses.get(id);
+    return license != null && license.expiryTimeMs > clock.currentTimeMillis()
+        ? license.keySetId
+        : null;
+  }
+
+  /**
+   * Removes and releases the stored license for the given content, if there is one.
+   *
+   * <p>This method blocks until the license has been released, so it must not be called on the
+   * application thread.
+   *
+   * @param drmInitData The {@link DrmInitData} of the content.
+   * @throws DrmSessionException If a DRM session error occurs. The license is removed from the
+   *     store regardless.
+   * @throws DatabaseIOException If an error occurs writing to the database.
+   */
+  public void releaseLicense(DrmInitData drmInitData)
+      throws DrmSessionException, DatabaseIOException {
+    @Nullable String id = getLicenseId(drmInitData);
+    if (id == null) {
+      return;
+    }
+    ensureLoaded();
+    @Nullable License license;
+    synchronized (this) {
+      license = licenses.get(id);
+      if (license == null) {
+        return;
+      }
+      try {
+        databaseProvider
+            .getWritableDatabase()
+            .delete(TABLE_NAME, WHERE_ID_EQUALS, new String[] {id});
+      } catch (SQLException e) {
+        throw new DatabaseIOException(e);
+      }
+      licenses.remove(id);
+    }
+    offlineLicenseHelper.releaseLicense(license.keySetId);
+  }
+
+  /**
+   * Removes the stored license for the given content without releasing it, for example because it
+   * can no longer be restored. The license is removed from the database on the store's background
+   * thread, so this method doesn't block.
+   *
+   * @param drmInitData The {@link DrmInitData} of the content.
+   */
+  public void removeLicense(DrmInitData drmInitData) {
+    @Nullable String id = getLicenseId(drmInitData);
+    if (id == null) {
+      return;
+    }
+    synchronized (this) {
+      if (licenses.remove(id) == null || released) {
+        return;
+      }
+      handler.post(() -> deleteRemovedLicense(id));
+    }
+  }
+
+  /**
+   * Renews all stored licenses that expire within the renewal window. Licenses that fail to renew
+   * are kept and renewal is attempted again later, unless they have expired, in which case they're
+   * removed from the store.
+   *
+   * <p>Renewals are scheduled automatically, so calling this method is only necessary to renew
+   * licenses immediately. This method blocks until the licenses have been renewed, so it must not
+   * be called on the application thread.
+   *
+   * @throws DatabaseIOException If an error occurs accessing the database.
+   */
+  public void renewExpiringLicenses() throws DatabaseIOException {
+    List<Pair<String, License>> expiringLicenses = new ArrayList<>();
+    ensureLoaded();
+    synchronized (this) {
+      if (released) {
+        return;
+      }
+      long renewalTimeMs = clock.currentTimeMillis() + renewalWindowMs;
+      for (Map.Entry<String, License> entry : licenses.entrySet()) {
+        if (entry.getValue().expiryTimeMs <= renewalTimeMs) {
+          expiringLicenses.add(Pair.create(entry.getKey(), entry.getValue()));
+        }
+      }
+    }
+    if (expiringLicenses.isEmpty()) {
+      return;
+    }
+
+    List<Pair<String, License>> renewedLicenses = new ArrayList<>();
+    List<Pair<String, License>> failedLicenses = new ArrayList<>();
+    for (int i = 0; i < expiringLicenses.size(); i++) {
+      Pair<String, License> expiringLicense = expiringLicenses.get(i);
+      try {
+        byte[] renewedKeySetId = offlineLicenseHelper.renewLicense(expiringLicense.second.keySetId);
+        long expiryTimeMs = getExpiryTimeMs(renewedKeySetId);
+        renewedLicenses.add(
+            Pair.create(expiringLicense.first, new License(renewedKeySetId, expiryTimeMs)));
+      } catch (DrmSessionException e) {
+        Log.w(TAG, "Failed to renew license: " + expiringLicense.first, e);
+        failedLicenses.add(expiringLicense);
+      }
+    }
+
+    synchronized (this) {
+      if (released) {
+        return;
+      }
+      // Skip the licenses that have been released or replaced while they were being renewed.
+      removeReplacedLicenses(renewedLicenses, expiringLicenses);
+      removeReplacedLicenses(failedLicenses, expiringLicenses);
+      List<String> expiredLicenseIds = new ArrayList<>();
+      long nowMs = clock.currentTimeMillis();
+      for (int i = 0; i < failedLicenses.size(); i++) {
+        if (failedLicenses.get(i).second.expiryTimeMs <= nowMs) {
+          expiredLicenseIds.add(failedLicenses.get(i).first);
+        }
+      }
+      putLicenses(renewedLicenses);
+      deleteLicenses(expiredLicenseIds);
+      renewalFailureCount =
+          failedLicenses.size() > expiredLicenseIds.size() ? renewalFailureCount + 1 : 0;
+      scheduleNextRenewal();
+    }
+  }
+
+  /**
+   * Releases the store. The stored licenses aren't released, and the {@link OfflineLicenseHelper}
+   * isn't released either.
+   */
+  public synchronized void release() {
+    released = true;
+    handler.removeCallbacksAndMessages(/* token= */ null);
+    handlerThread.quit();
+  }
+
+  @Nullable
+  private String getLicenseId(DrmInitData drmInitData) {
+    for (int i = 0; i < drmInitData.schemeDataCount; i++) {
+      SchemeData schemeData = drmInitData.get(i);
+      if (schemeData.matches(uuid) && schemeData.data != null) {
+        return uuid + ":" + Util.toHexString(schemeData.data);
+      }
+    }
+    return null;
+  }
+
+  private long getExpiryTimeMs(byte[] keySetId) throws DrmSessionException {
+    long licenseDurationRemainingSec =
+        offlineLicenseHelper.getLicenseDurationRemainingSec(keySetId).first;
+    if (licenseDurationRemainingSec == C.TIME_UNSET
+        || licenseDurationRemainingSec >= NO_EXPIRY_TIME_MS / C.MILLIS_PER_SECOND) {
+      return NO_EXPIRY_TIME_MS;
+    }
+    long nowMs = clock.currentTimeMillis();
+    long licenseDurationRemainingMs = licenseDurationRemainingSec * C.MILLIS_PER_SECOND;
+    return nowMs + min(licenseDurationRemainingMs, NO_EXPIRY_TIME_MS - nowMs);
+  }
+
+  private void renewExpiringLicensesAndScheduleNextRenewal() {
+    try {
+      renewExpiringLicenses();
+    } catch (DatabaseIOException e) {
+      Log.w(TAG, "Failed to renew licenses", e);
+    }
+    synchronized (this) {
+      scheduleNextRenewal();
+    }
+  }
+
+  private synchronized void deleteRemovedLicense(String id) {
+    if (released || licenses.containsKey(id)) {
+      // The store was released, or a new license was stored for the content in the meantime.
+      return;
+    }
+    try {
+      deleteLicenses(ImmutableList.of(id));
+    } catch (DatabaseIOException e) {
+      Log.w(TAG, "Failed to remove license: " + id, e);
+    }
+  }
+
+  @GuardedBy("this")
+  private void scheduleNextRenewal() {
+    if (released) {
+      return;
+    }
+    handler.removeCallbacksAndMessages(/* token= */ null);
+    long nextExpiryTimeMs = NO_EXPIRY_TIME_MS;
+    for (License license : licenses.values()) {
+      nextExpiryTimeMs = min(nextExpiryTimeMs, license.expiryTimeMs);
+    }
+    if (nextExpiryTimeMs == NO_EXPIRY_TIME_MS) {
+      return;
+    }
+    long delayMs = nextExpiryTimeMs - renewalWindowMs - clock.currentTimeMillis();
+    // Back off exponentially while renewals fail.
+    long minDelayMs =
+        min(MIN_RENEWAL_INTERVAL_MS << min(renewalFailureCount, 16), MAX_RENEWAL_RETRY_INTERVAL_MS);
+    handler.postDelayed(
+        this::renewExpiringLicensesAndScheduleNextRenewal, max(delayMs, minDelayMs));
+  }
+
+  /**
+   * Loads the licenses from the database if they haven't been loaded yet. The database is read
+   * without holding the store's lock, so that {@link #getKeySetId} doesn't wait for it. Must not be
+   * called while holding the store's lock.
+   */
+  private void ensureLoaded() throws DatabaseIOException {
+    synchronized (loadLock) {
+      synchronized (this) {
+        if (loaded) {
+          return;
+        }
+      }
+      HashMap<String, License> loadedLicenses = loadLicenses();
+      synchronized (this) {
+        licenses.putAll(loadedLicenses);
+        loaded = true;
+      }
+    }
+  }
+
+  private HashMap<String, License> loadLicenses() throws DatabaseIOException {
+    HashMap<String, License> loadedLicenses = new HashMap<>();
+    try {
+      SQLiteDatabase readableDatabase = databaseProvider.getReadableDatabase();
+      int version =
+          VersionTable.getVersion(
+              readableDatabase, VersionTable.FEATURE_OFFLINE_LICENSES, /* instanceUid= */ "");
+      if (version != TABLE_VERSION) {
+        SQLiteDatabase writableDatabase = databaseProvider.getWritableDatabase();
+        writableDatabase.beginTransactionNonExclusive();
+        try {
+          VersionTable.setVersion(
+              writableDatabase,
+              VersionTable.FEATURE_OFFLINE_LICENSES,
+              /* instanceUid= */ "",
+              TABLE_VERSION);
+          writableDatabase.execSQL("DROP TABLE IF EXISTS " + TABLE_NAME);
+          writableDatabase.execSQL("CREATE TABLE " + TABLE_NAME + " " + TABLE_SCHEMA);
+          writableDatabase.setTransactionSuccessful();
+        } finally {
+          writableDatabase.endTransaction();
+        }
+      }
+      String uuidPrefix = uuid + ":";
+      try (Cursor cursor =
+          readableDatabase.query(
+              TABLE_NAME,
+              COLUMNS,
+              /* selection= */ null,
+              /* selectionArgs= */ null,
+              /* groupBy= */ null,
+              /* having= */ null,
+              /* orderBy= */ null)) {
+        while (cursor.moveToNext()) {
+          String id = cursor.getString(COLUMN_INDEX_ID);
+          if (id.startsWith(uuidPrefix)) {
+            loadedLicenses.put(
+                id,
+                new License(
+                    cursor.getBlob(COLUMN_INDEX_KEY_SET_ID),
+                    cursor.getLong(COLUMN_INDEX_EXPIRY_TIME_MS)));
+          }
+        }
+      }
+    } catch (SQLException e) {
+      throw new DatabaseIOException(e);
+    }
+    return loadedLicenses;
+  }
+
+  /** Writes licenses to the database in a single transaction, and then to the in-memory map. */
+  @GuardedBy("this")
+  private void putLicenses(List<Pair<String, License>> updatedLicenses)
+      throws DatabaseIOException {
+    if (updatedLicenses.isEmpty()) {
+      return;
+    }
+    try {
+      SQLiteDatabase writableDatabase = databaseProvider.getWritableDatabase();
+      writableDatabase.beginTransactionNonExclusive();
+      try {
+        ContentValues values = new ContentValues();
+        for (int i = 0; i < updatedLicenses.size(); i++) {
+          Pair<String, License> updatedLicense = updatedLicenses.get(i);
+          values.put(COLUMN_ID, updatedLicense.first);
+          values.put(COLUMN_KEY_SET_ID, updatedLicense.second.keySetId);
+          values.put(COLUMN_EXPIRY_TIME_MS, updatedLicense.second.expiryTimeMs);
+          writableDatabase.replaceOrThrow(TABLE_NAME, /* nullColumnHack= */ null, values);
+        }
+        writableDatabase.setTransactionSuccessful();
+      } finally {
+        writableDatabase.endTransaction();
+      }
+    } catch (SQLException e) {
+      throw new DatabaseIOException(e);
+    }
+    for (int i = 0; i < updatedLicenses.size(); i++) {
+      licenses.put(updatedLicenses.get(i).first, updatedLicenses.get(i).second);
+    }
+  }
+
+  /** Deletes licenses from the database in one transaction, and then from the in-memory map. */
+  @GuardedBy("this")
+  private void deleteLicenses(List<String> ids) throws DatabaseIOException {
+    if (ids.isEmpty()) {
+      return;
+    }
+    try {
+      SQLiteDatabase writableDatabase = databaseProvider.getWritableDatabase();
+      writableDatabase.beginTransactionNonExclusive();
+      try {
+        for (int i = 0; i < ids.size(); i++) {
+          writableDatabase.delete(TABLE_NAME, WHERE_ID_EQUALS, new String[] {ids.get(i)});
+        }
+        writableDatabase.setTransactionSuccessful();
+      } finally {
+        writableDatabase.endTransaction();
+      }
+    } catch (SQLException e) {
+      throw new DatabaseIOException(e);
+    }
+    for (int i = 0; i < ids.size(); i++) {
+      licenses.remove(ids.get(i));
+    }
+  }
+
+  /**
+   * Removes the licenses that are no longer stored as the same expiring license, because they have
+   * been released or replaced.
+   */
+  @GuardedBy("this")
+  private void removeReplacedLicenses(
+      List<Pair<String, License>> licensesToUpdate, List<Pair<String, License>> expiringLicenses) {
+    for (int i = licensesToUpdate.size() - 1; i >= 0; i--) {
+      @Nullable License currentLicense = licenses.get(licensesToUpdate.get(i).first);
+      if (currentLicense == null || !isExpiringLicense(currentLicense, expiringLicenses)) {
+        licensesToUpdate.remove(i);
+      }
+    }
+  }
+
+  private static boolean isExpiringLicense(
+      License license, List<Pair<String, License>> expiringLicenses) {
+    for (int i = 0; i < expiringLicenses.size(); i++) {
+      if (expiringLicenses.get(i).second == license) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static final class License {
+
+    public final byte[] keySetId;
+    public final long expiryTimeMs;
+
+    public License(byte[] keySetId, long expiryTimeMs) {
+      this.keySetId = keySetId;
+      this.expiryTimeMs = expiryTimeMs;
+    }
+  }
+}
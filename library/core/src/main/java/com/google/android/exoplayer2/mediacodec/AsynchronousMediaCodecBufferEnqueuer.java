@@ -30,7 +30,6 @@ import androidx.annotation.RequiresApi;
 import androidx.annotation.VisibleForTesting;
 import com.google.android.exoplayer2.decoder.CryptoInfo;
 import com.google.android.exoplayer2.util.ConditionVariable;
-import com.google.android.exoplayer2.util.Util;
 import java.util.ArrayDeque;
 import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicReference;
@@ -211,7 +210,7 @@ class AsynchronousMediaCodecBufferEnqueuer {
         doQueueSecureInputBuffer(
             params.index,
             params.offset,
-            params.cryptoInfo,
+            params.cryptoInfo.getFrameworkCryptoInfo(),
             params.presentationTimeUs,
             params.flags);
         break;
@@ -271,12 +270,12 @@ class AsynchronousMediaCodecBufferEnqueuer {
     public int index;
     public int offset;
     public int size;
-    public final MediaCodec.CryptoInfo cryptoInfo;
+    public final CryptoInfo cryptoInfo;
     public long presentationTimeUs;
     public int flags;
 
     MessageParams() {
-      cryptoInfo = new MediaCodec.CryptoInfo();
+      cryptoInfo = new CryptoInfo();
     }
 
     /** Convenience method for setting the queueing parameters. */
@@ -290,25 +289,20 @@ class AsynchronousMediaCodecBufferEnqueuer {
     }
   }
 
-  /** Performs a deep copy of {@code cryptoInfo} to {@code frameworkCryptoInfo}. */
-  private static void copy(
-      CryptoInfo cryptoInfo, android.media.MediaCodec.CryptoInfo frameworkCryptoInfo) {
-    // Update frameworkCryptoInfo fields directly because CryptoInfo.set performs an unnecessary
-    // object allocation on Android N.
-    frameworkCryptoInfo.numSubSamples = cryptoInfo.numSubSamples;
-    frameworkCryptoInfo.numBytesOfClearData =
-        copy(cryptoInfo.numBytesOfClearData, frameworkCryptoInfo.numBytesOfClearData);
-    frameworkCryptoInfo.numBytesOfEncryptedData =
-        copy(cryptoInfo.numBytesOfEncryptedData, frameworkCryptoInfo.numBytesOfEncryptedData);
-    frameworkCryptoInfo.key = checkNotNull(copy(cryptoInfo.key, frameworkCryptoInfo.key));
-    frameworkCryptoInfo.iv = checkNotNull(copy(cryptoInfo.iv, frameworkCryptoInfo.iv));
-    frameworkCryptoInfo.mode = cryptoInfo.mode;
-    if (Util.SDK_INT >= 24) {
-      android.media.MediaCodec.CryptoInfo.Pattern pattern =
-          new android.media.MediaCodec.CryptoInfo.Pattern(
-              cryptoInfo.encryptedBlocks, cryptoInfo.clearBlocks);
-      frameworkCryptoInfo.setPattern(pattern);
-    }
+  /**
+   * Performs a deep copy of {@code cryptoInfo} to {@code pooledCryptoInfo}, reusing the arrays and
+   * the encryption pattern of {@code pooledCryptoInfo} where possible.
+   */
+  private static void copy(CryptoInfo cryptoInfo, CryptoInfo pooledCryptoInfo) {
+    pooledCryptoInfo.set(
+        cryptoInfo.numSubSamples,
+        copy(cryptoInfo.numBytesOfClearData, pooledCryptoInfo.numBytesOfClearData),
+        copy(cryptoInfo.numBytesOfEncryptedData, pooledCryptoInfo.numBytesOfEncryptedData),
+        checkNotNull(copy(cryptoInfo.key, pooledCryptoInfo.key)),
+        checkNotNull(copy(cryptoInfo.iv, pooledCryptoInfo.iv)),
+        cryptoInfo.mode,
+        cryptoInfo.encryptedBlocks,
+        cryptoInfo.clearBlocks);
   }
 
   /**
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.mediacodec;
+
+import android.media.MediaCodecInfo.AudioCapabilities;
+import android.media.MediaCodecInfo.CodecCapabilities;
+import android.media.MediaCodecInfo.CodecProfileLevel;
+import android.media.MediaCodecInfo.VideoCapabilities;
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
+import com.google.android.exoplayer2.Format;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * The values of a {@link CodecCapabilities} instance that can be answered without querying the
+ * platform, used by {@link MediaCodecInfo} instances restored from the persistent decoder info
+ * cache.
+ *
+ * @deprecated com.google.android.exoplayer2 is deprecated. Please migrate to androidx.media3 (which
+ *     contains the same ExoPlayer code). See <a
+ *     href="https://developer.android.com/guide/topics/media/media3/getting-started/migration-guide">the
+ *     migration guide</a> for more details, including a script to help with the migration.
+ */
+@Deprecated
+/* package */ final class CodecCapabilitiesSnapshot {
+
+  /** The supported profile levels. */
+  public final CodecProfileLevel[] profileLevels;
+  /** The maximum number of supported instances. */
+  public final int maxSupportedInstances;
+  /** The width alignment, or {@link Format#NO_VALUE} if not a video codec. */
+  public final int widthAlignment;
+  /** The height alignment, or {@link Format#NO_VALUE} if not a video codec. */
+  public final int heightAlignment;
+  /**
+   * The maximum input channel count, as reported by the platform, or {@link Format#NO_VALUE} if not
+   * an audio codec.
+   */
+  public final int maxInputChannelCount;
+
+  /** Creates a snapshot of the given capabilities. */
+  @RequiresApi(23)
+  public static CodecCapabilitiesSnapshot create(CodecCapabilities capabilities) {
+    @Nullable VideoCapabilities videoCapabilities = capabilities.getVideoCapabilities();
+    @Nullable AudioCapabilities audioCapabilities = capabilities.getAudioCapabilities();
+    return new CodecCapabilitiesSnapshot(
+        capabilities.profileLevels != null ? capabilities.profileLevels : new CodecProfileLevel[0],
+        capabilities.getMaxSupportedInstances(),
+        videoCapabilities != null ? videoCapabilities.getWidthAlignment() : Format.NO_VALUE,
+        videoCapabilities != null ? videoCapabilities.getHeightAlignment() : Format.NO_VALUE,
+        audioCapabilities != null ? audioCapabilities.getMaxInputChannelCount() : Format.NO_VALUE);
+  }
+
+  /** Reads a snapshot written by {@link #writeTo}. */
+  public static CodecCapabilitiesSnapshot readFrom(DataInputStream input) throws IOException {
+    int profileLevelCount = input.readInt();
+    if (profileLevelCount < 0) {
+      throw new IOException("Invalid profile level count: " + profileLevelCount);
+    }
+    CodecProfileLevel[] profileLevels = new CodecProfileLevel[profileLevelCount];
+    for (int i = 0; i < profileLevelCount; i++) {
+      CodecProfileLevel profileLevel = new CodecProfileLevel();
+      profileLevel.profile = input.readInt();
+      profileLevel.level = input.readInt();
+      profileLevels[i] = profileLevel;
+    }
+    return new CodecCapabilitiesSnapshot(
+        profileLevels,
+        /* maxSupportedInstances= */ input.readInt(),
+        /* widthAlignment= */ input.readInt(),
+        /* heightAlignment= */ input.readInt(),
+        /* maxInputChannelCount= */ input.readInt());
+  }
+
+  /* package */ CodecCapabilitiesSnapshot(
+      CodecProfileLevel[] profileLevels,
+      int maxSupportedInstances,
+      int widthAlignment,
+      int heightAlignment,
+      int maxInputChannelCount) {
+    this.profileLevels = profileLevels;
+    this.maxSupportedInstances = maxSupportedInstances;
+    this.widthAlignment = widthAlignment;
+    this.heightAlignment = heightAlignment;
+    this.maxInputChannelCount = maxInputChannelCount;
+  }
+
+  /** Writes the snapshot so that it can be read with {@link #readFrom}. */
+  public void writeTo(DataOutputStream output) throws IOException {
+    output.writeInt(profileLevels.length);
+    for (CodecProfileLevel profileLevel : profileLevels) {
+      output.writeInt(profileLevel.profile);
+      output.writeInt(profileLevel.level);
+    }
+    output.writeInt(maxSupportedInstances);
+    output.writeInt(widthAlignment);
+    output.writeInt(heightAlignment);
+    output.writeInt(maxInputChannelCount);
+  }
+}
@@ -39,10 +39,12 @@ import android.media.MediaCodecInfo.VideoCapabilities;
 import android.media.MediaCodecInfo.VideoCapabilities.PerformancePoint;
 import android.util.Pair;
 import androidx.annotation.DoNotInline;
+import androidx.annotation.GuardedBy;
 import androidx.annotation.IntDef;
 import androidx.annotation.Nullable;
 import androidx.annotation.RequiresApi;
 import androidx.annotation.VisibleForTesting;
+import com.google.android.exoplayer2.C;
 import com.google.android.exoplayer2.Format;
 import com.google.android.exoplayer2.decoder.DecoderReuseEvaluation;
 import com.google.android.exoplayer2.decoder.DecoderReuseEvaluation.DecoderDiscardReasons;
@@ -55,7 +57,9 @@ import java.lang.annotation.Documented;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Information about a {@link MediaCodec} for a given MIME type.
@@ -77,6 +81,11 @@ public final class MediaCodecInfo {
    */
   public static final int MAX_SUPPORTED_INSTANCES_UNKNOWN = -1;
 
+  /** The number of bits used for each of the width, height and frame rate in a memoization key. */
+  private static final int VIDEO_SIZE_AND_RATE_KEY_BITS = 21;
+
+  private static final long VIDEO_SIZE_AND_RATE_KEY_MASK = (1L << VIDEO_SIZE_AND_RATE_KEY_BITS) - 1;
+
   /**
    * The name of the decoder.
    *
@@ -96,7 +105,9 @@ public final class MediaCodecInfo {
 
   /**
    * The capabilities of the decoder, like the profiles/levels it supports, or {@code null} if not
-   * known.
+   * known. Also {@code null} if this instance was restored from the persistent decoder info cache
+   * (see {@link MediaCodecUtil#experimentalSetDecoderInfoCacheFile}), in which case the methods of
+   * this class answer queries from the cache, querying the platform only when needed.
    */
   @Nullable public final CodecCapabilities capabilities;
 
@@ -152,6 +163,20 @@ public final class MediaCodecInfo {
   public final boolean vendor;
 
   private final boolean isVideo;
+  @Nullable private final CodecCapabilitiesSnapshot capabilitiesSnapshot;
+
+  @GuardedBy("videoSizeAndRateSupport")
+  private final HashMap<Long, Boolean> videoSizeAndRateSupport;
+
+  @GuardedBy("audioSampleRateSupport")
+  private final HashMap<Integer, Boolean> audioSampleRateSupport;
+
+  @GuardedBy("this")
+  @Nullable
+  private CodecCapabilities resolvedCapabilities;
+
+  @GuardedBy("this")
+  private boolean capabilitiesResolved;
 
   /**
    * Creates an instance.
@@ -207,6 +232,32 @@ public final class MediaCodecInfo {
       boolean adaptive,
       boolean tunneling,
       boolean secure) {
+    this(
+        name,
+        mimeType,
+        codecMimeType,
+        capabilities,
+        /* capabilitiesSnapshot= */ null,
+        hardwareAccelerated,
+        softwareOnly,
+        vendor,
+        adaptive,
+        tunneling,
+        secure);
+  }
+
+  /* package */ MediaCodecInfo(
+      String name,
+      String mimeType,
+      String codecMimeType,
+      @Nullable CodecCapabilities capabilities,
+      @Nullable CodecCapabilitiesSnapshot capabilitiesSnapshot,
+      boolean hardwareAccelerated,
+      boolean softwareOnly,
+      boolean vendor,
+      boolean adaptive,
+      boolean tunneling,
+      boolean secure) {
     this.name = Assertions.checkNotNull(name);
     this.mimeType = mimeType;
     this.codecMimeType = codecMimeType;
@@ -217,7 +268,10 @@ public final class MediaCodecInfo {
     this.adaptive = adaptive;
     this.tunneling = tunneling;
     this.secure = secure;
+    this.capabilitiesSnapshot = capabilitiesSnapshot;
     isVideo = MimeTypes.isVideo(mimeType);
+    videoSizeAndRateSupport = new HashMap<>();
+    audioSampleRateSupport = new HashMap<>();
   }
 
   @Override
@@ -231,6 +285,9 @@ public final class MediaCodecInfo {
    * @return The profile levels supported by the decoder.
    */
   public CodecProfileLevel[] getProfileLevels() {
+    if (capabilitiesSnapshot != null) {
+      return capabilitiesSnapshot.profileLevels;
+    }
     return capabilities == null || capabilities.profileLevels == null
         ? new CodecProfileLevel[0]
         : capabilities.profileLevels;
@@ -244,7 +301,13 @@ public final class MediaCodecInfo {
    * @see CodecCapabilities#getMaxSupportedInstances()
    */
   public int getMaxSupportedInstances() {
-    if (Util.SDK_INT < 23 || capabilities == null) {
+    if (Util.SDK_INT < 23) {
+      return MAX_SUPPORTED_INSTANCES_UNKNOWN;
+    }
+    if (capabilitiesSnapshot != null) {
+      return capabilitiesSnapshot.maxSupportedInstances;
+    }
+    if (capabilities == null) {
       return MAX_SUPPORTED_INSTANCES_UNKNOWN;
     }
     return getMaxSupportedInstancesV23(capabilities);
@@ -515,6 +578,27 @@ public final class MediaCodecInfo {
    */
   @RequiresApi(21)
   public boolean isVideoSizeAndRateSupportedV21(int width, int height, double frameRate) {
+    long key = getVideoSizeAndRateKey(width, height, frameRate);
+    if (key == C.INDEX_UNSET) {
+      return computeVideoSizeAndRateSupportedV21(width, height, frameRate);
+    }
+    @Nullable Boolean supported;
+    synchronized (videoSizeAndRateSupport) {
+      supported = videoSizeAndRateSupport.get(key);
+    }
+    if (supported == null) {
+      supported = computeVideoSizeAndRateSupportedV21(width, height, frameRate);
+      synchronized (videoSizeAndRateSupport) {
+        videoSizeAndRateSupport.put(key, supported);
+      }
+      MediaCodecUtil.onDecoderCapabilitiesQueried();
+    }
+    return supported;
+  }
+
+  @RequiresApi(21)
+  private boolean computeVideoSizeAndRateSupportedV21(int width, int height, double frameRate) {
+    @Nullable CodecCapabilities capabilities = getCapabilities();
     if (capabilities == null) {
       logNoSupport("sizeAndRate.caps");
       return false;
@@ -565,6 +649,16 @@ public final class MediaCodecInfo {
   @Nullable
   @RequiresApi(21)
   public Point alignVideoSizeV21(int width, int height) {
+    if (capabilitiesSnapshot != null) {
+      int widthAlignment = capabilitiesSnapshot.widthAlignment;
+      int heightAlignment = capabilitiesSnapshot.heightAlignment;
+      if (widthAlignment == Format.NO_VALUE || heightAlignment == Format.NO_VALUE) {
+        return null;
+      }
+      return new Point(
+          Util.ceilDivide(width, widthAlignment) * widthAlignment,
+          Util.ceilDivide(height, heightAlignment) * heightAlignment);
+    }
     if (capabilities == null) {
       return null;
     }
@@ -585,6 +679,23 @@ public final class MediaCodecInfo {
    */
   @RequiresApi(21)
   public boolean isAudioSampleRateSupportedV21(int sampleRate) {
+    @Nullable Boolean supported;
+    synchronized (audioSampleRateSupport) {
+      supported = audioSampleRateSupport.get(sampleRate);
+    }
+    if (supported == null) {
+      supported = computeAudioSampleRateSupportedV21(sampleRate);
+      synchronized (audioSampleRateSupport) {
+        audioSampleRateSupport.put(sampleRate, supported);
+      }
+      MediaCodecUtil.onDecoderCapabilitiesQueried();
+    }
+    return supported;
+  }
+
+  @RequiresApi(21)
+  private boolean computeAudioSampleRateSupportedV21(int sampleRate) {
+    @Nullable CodecCapabilities capabilities = getCapabilities();
     if (capabilities == null) {
       logNoSupport("sampleRate.caps");
       return false;
@@ -611,17 +722,27 @@ public final class MediaCodecInfo {
    */
   @RequiresApi(21)
   public boolean isAudioChannelCountSupportedV21(int channelCount) {
-    if (capabilities == null) {
-      logNoSupport("channelCount.caps");
-      return false;
-    }
-    AudioCapabilities audioCapabilities = capabilities.getAudioCapabilities();
-    if (audioCapabilities == null) {
-      logNoSupport("channelCount.aCaps");
-      return false;
+    int platformMaxInputChannelCount;
+    if (capabilitiesSnapshot != null) {
+      platformMaxInputChannelCount = capabilitiesSnapshot.maxInputChannelCount;
+      if (platformMaxInputChannelCount == Format.NO_VALUE) {
+        logNoSupport("channelCount.aCaps");
+        return false;
+      }
+    } else {
+      if (capabilities == null) {
+        logNoSupport("channelCount.caps");
+        return false;
+      }
+      AudioCapabilities audioCapabilities = capabilities.getAudioCapabilities();
+      if (audioCapabilities == null) {
+        logNoSupport("channelCount.aCaps");
+        return false;
+      }
+      platformMaxInputChannelCount = audioCapabilities.getMaxInputChannelCount();
     }
     int maxInputChannelCount =
-        adjustMaxInputChannelCount(name, mimeType, audioCapabilities.getMaxInputChannelCount());
+        adjustMaxInputChannelCount(name, mimeType, platformMaxInputChannelCount);
     if (maxInputChannelCount < channelCount) {
       logNoSupport("channelCount.support, " + channelCount);
       return false;
@@ -629,6 +750,86 @@ public final class MediaCodecInfo {
     return true;
   }
 
+  /**
+   * Returns the snapshot used to persist the capabilities of this decoder, or null if the
+   * capabilities aren't known.
+   */
+  @Nullable
+  @RequiresApi(23)
+  /* package */ CodecCapabilitiesSnapshot getCapabilitiesSnapshot() {
+    if (capabilitiesSnapshot != null) {
+      return capabilitiesSnapshot;
+    }
+    return capabilities != null ? CodecCapabilitiesSnapshot.create(capabilities) : null;
+  }
+
+  /** Returns a copy of the memoized results of {@link #isVideoSizeAndRateSupportedV21}. */
+  /* package */ Map<Long, Boolean> getVideoSizeAndRateSupport() {
+    synchronized (videoSizeAndRateSupport) {
+      return new HashMap<>(videoSizeAndRateSupport);
+    }
+  }
+
+  /** Returns a copy of the memoized results of {@link #isAudioSampleRateSupportedV21}. */
+  /* package */ Map<Integer, Boolean> getAudioSampleRateSupport() {
+    synchronized (audioSampleRateSupport) {
+      return new HashMap<>(audioSampleRateSupport);
+    }
+  }
+
+  /** Adds memoized results, for example restored from the persistent decoder info cache. */
+  /* package */ void putCapabilityQueryResults(
+      Map<Long, Boolean> videoSizeAndRateSupport, Map<Integer, Boolean> audioSampleRateSupport) {
+    synchronized (this.videoSizeAndRateSupport) {
+      this.videoSizeAndRateSupport.putAll(videoSizeAndRateSupport);
+    }
+    synchronized (this.audioSampleRateSupport) {
+      this.audioSampleRateSupport.putAll(audioSampleRateSupport);
+    }
+  }
+
+  /**
+   * Returns the capabilities of the decoder. For instances restored from the persistent decoder
+   * info cache, they're queried from the platform on first use.
+   */
+  @Nullable
+  private synchronized CodecCapabilities getCapabilities() {
+    if (capabilities != null || capabilitiesSnapshot == null) {
+      return capabilities;
+    }
+    if (!capabilitiesResolved) {
+      capabilitiesResolved = true;
+      resolvedCapabilities = MediaCodecUtil.queryCodecCapabilities(name, codecMimeType);
+    }
+    return resolvedCapabilities;
+  }
+
+  /**
+   * Returns the key under which the result of {@link #isVideoSizeAndRateSupportedV21} is memoized,
+   * or {@link C#INDEX_UNSET} if it can't be memoized. The frame rate is rounded down, as in the
+   * query itself.
+   */
+  @VisibleForTesting
+  /* package */ static long getVideoSizeAndRateKey(int width, int height, double frameRate) {
+    long frameRateKey;
+    if (frameRate == Format.NO_VALUE) {
+      frameRateKey = VIDEO_SIZE_AND_RATE_KEY_MASK;
+    } else if (frameRate >= 0 && frameRate < VIDEO_SIZE_AND_RATE_KEY_MASK) {
+      frameRateKey = (long) Math.floor(frameRate);
+    } else {
+      return C.INDEX_UNSET;
+    }
+    if (width < 0
+        || width > VIDEO_SIZE_AND_RATE_KEY_MASK
+        || height < 0
+        || height > VIDEO_SIZE_AND_RATE_KEY_MASK) {
+      return C.INDEX_UNSET;
+    }
+    return ((long) width << (2 * VIDEO_SIZE_AND_RATE_KEY_BITS))
+        | ((long) height << VIDEO_SIZE_AND_RATE_KEY_BITS)
+        | frameRateKey;
+  }
+
   private void logNoSupport(String message) {
     Log.d(
         TAG,
@@ -41,6 +41,7 @@ import android.media.MediaCryptoException;
 import android.media.MediaFormat;
 import android.media.metrics.LogSessionId;
 import android.os.Bundle;
+import android.os.Handler;
 import android.os.SystemClock;
 import androidx.annotation.CallSuper;
 import androidx.annotation.CheckResult;
@@ -75,6 +76,7 @@ import com.google.android.exoplayer2.util.Log;
 import com.google.android.exoplayer2.util.MimeTypes;
 import com.google.android.exoplayer2.util.NalUnitUtil;
 import com.google.android.exoplayer2.util.TimedValueQueue;
+import com.google.android.exoplayer2.util.TraceRingBuffer;
 import com.google.android.exoplayer2.util.TraceUtil;
 import com.google.android.exoplayer2.util.Util;
 import com.google.android.exoplayer2.video.VideoDecoderGLSurfaceView;
@@ -317,6 +319,7 @@ public abstract class MediaCodecRenderer extends BaseRenderer {
   @Nullable private Format outputFormat;
   @Nullable private DrmSession codecDrmSession;
   @Nullable private DrmSession sourceDrmSession;
+  @Nullable private Handler prewarmHandler;
   private long lastVideoPts = -1;
 
   /**
@@ -512,6 +515,27 @@ public abstract class MediaCodecRenderer extends BaseRenderer {
       @Nullable MediaCrypto crypto,
       float codecOperatingRate);
 
+  /**
+   * Returns the {@link MediaCodecAdapter.Configuration} used to prewarm a codec for a {@link Format}
+   * that is likely to be decoded later, or null if the codec can't be prewarmed.
+   *
+   * <p>Unlike {@link #getMediaCodecConfiguration}, this method must not change the state of the
+   * renderer, as it may be called while another codec is in use. Any surface of the returned
+   * configuration is owned by the {@link PrewarmingMediaCodecAdapterFactory}.
+   *
+   * <p>The default implementation returns null.
+   *
+   * @param codecInfo Information about the {@link MediaCodec} being prewarmed.
+   * @param format The {@link Format} for which the codec is being prewarmed.
+   * @param streamFormats The formats of the stream to which {@code format} belongs.
+   * @return The configuration, or null if the codec can't be prewarmed.
+   */
+  @Nullable
+  protected MediaCodecAdapter.Configuration getMediaCodecPrewarmConfiguration(
+      MediaCodecInfo codecInfo, Format format, Format[] streamFormats) {
+    return null;
+  }
+
   protected final void maybeInitCodecOrBypass() throws ExoPlaybackException {
     if (codec != null || bypassEnabled || inputFormat == null) {
       // We have a codec, are bypassing it, or don't have a format to decide how to render.
@@ -755,6 +779,84 @@ public abstract class MediaCodecRenderer extends BaseRenderer {
       releaseCodec();
     } finally {
       setSourceDrmSession(null);
+      if (prewarmHandler != null) {
+        prewarmHandler.removeCallbacksAndMessages(/* token= */ null);
+      }
+      if (codecAdapterFactory instanceof PrewarmingMediaCodecAdapterFactory) {
+        ((PrewarmingMediaCodecAdapterFactory) codecAdapterFactory).clear();
+      }
+    }
+  }
+
+  @Override
+  public void handleMessage(@MessageType int messageType, @Nullable Object message)
+      throws ExoPlaybackException {
+    if (messageType == MSG_PREWARM_CODEC) {
+      Format[] streamFormats = (Format[]) checkNotNull(message);
+      if (streamFormats.length > 0) {
+        maybePrewarmCodec(streamFormats[0], streamFormats);
+      }
+    } else {
+      super.handleMessage(messageType, message);
+    }
+  }
+
+  private void maybePrewarmCodec(Format format, Format[] streamFormats) {
+    if (!(codecAdapterFactory instanceof PrewarmingMediaCodecAdapterFactory)
+        || format.drmInitData != null
+        || shouldUseBypass(format)) {
+      return;
+    }
+    if (codec != null
+        && codecInfo != null
+        && codecInputFormat != null
+        && canReuseCodec(codecInfo, codecInputFormat, format).result != REUSE_RESULT_NO) {
+      // The current codec can be reused.
+      return;
+    }
+    @Nullable String mimeType = format.sampleMimeType;
+    if (mimeType == null) {
+      return;
+    }
+    if (prewarmHandler == null) {
+      prewarmHandler = Util.createHandlerForCurrentLooper();
+    }
+    Handler playbackHandler = checkNotNull(prewarmHandler);
+    // The first decoder query for a MIME type can take a long time, so the decoders are queried on
+    // the prewarming thread. The query on the playback thread then hits MediaCodecUtil's cache.
+    ((PrewarmingMediaCodecAdapterFactory) codecAdapterFactory)
+        .executeOnPrewarmingThread(
+            () -> {
+              try {
+                MediaCodecUtil.getDecoderInfos(
+                    mimeType, /* secure= */ false, /* tunneling= */ false);
+              } catch (DecoderQueryException e) {
+                Log.w(TAG, "Failed to query decoders for prewarming", e);
+                return;
+              }
+              playbackHandler.post(() -> prewarmCodec(format, streamFormats));
+            });
+  }
+
+  private void prewarmCodec(Format format, Format[] streamFormats) {
+    if (getState() == STATE_DISABLED) {
+      return;
+    }
+    List<MediaCodecInfo> codecInfos;
+    try {
+      codecInfos = getDecoderInfos(mediaCodecSelector, format, /* requiresSecureDecoder= */ false);
+    } catch (DecoderQueryException e) {
+      Log.w(TAG, "Failed to query decoders for prewarming", e);
+      return;
+    }
+    if (codecInfos.isEmpty() || !shouldInitCodec(codecInfos.get(0))) {
+      return;
+    }
+    @Nullable
+    MediaCodecAdapter.Configuration configuration =
+        getMediaCodecPrewarmConfiguration(codecInfos.get(0), format, streamFormats);
+    if (configuration != null) {
+      ((PrewarmingMediaCodecAdapterFactory) codecAdapterFactory).prewarm(configuration);
     }
   }
 
@@ -770,7 +872,11 @@ public abstract class MediaCodecRenderer extends BaseRenderer {
   protected void releaseCodec() {
     try {
       if (codec != null) {
+        onCodecAboutToBeFlushedOrReleased();
         codec.release();
+        if (codecAdapterFactory instanceof PrewarmingMediaCodecAdapterFactory) {
+          ((PrewarmingMediaCodecAdapterFactory) codecAdapterFactory).onCodecReleased(codec);
+        }
         decoderCounters.decoderReleaseCount++;
         onCodecReleased(codecInfo.name);
       }
@@ -819,7 +925,7 @@ public abstract class MediaCodecRenderer extends BaseRenderer {
         // We still don't have a format and can't make progress without one.
         return;
       }
-      if (inputFormat.sampleMimeType.contains("video") ) {
+      if (shouldRaisePlaybackThreadPriority(inputFormat)) {
         if (Process.getThreadPriority(Process.myTid()) != Process.THREAD_PRIORITY_VIDEO) {
           Process.setThreadPriority(Process.THREAD_PRIORITY_VIDEO);
           Log.d(TAG, "AMLEXOPlayer set video Priority to " + Process.getThreadPriority(Process.myTid()));
@@ -833,10 +939,35 @@ public abstract class MediaCodecRenderer extends BaseRenderer {
         TraceUtil.endSection();
       } else if (codec != null) {
         long renderStartTimeMs = SystemClock.elapsedRealtime();
+        @Nullable TraceRingBuffer traceRingBuffer = TraceUtil.getTraceRingBuffer();
+        long drainStartTimeNs = 0;
+        int processedOutputBufferCount = 0;
+        if (traceRingBuffer != null) {
+          drainStartTimeNs = traceRingBuffer.getTimeNs();
+          processedOutputBufferCount = getProcessedOutputBufferCount();
+        }
         TraceUtil.beginSection("drainAndFeed");
         while (drainOutputBuffer(positionUs, elapsedRealtimeUs)
             && shouldContinueRendering(renderStartTimeMs)) {}
+        long feedStartTimeNs = 0;
+        int queuedInputBufferCount = 0;
+        if (traceRingBuffer != null) {
+          traceRingBuffer.recordSpan(
+              TraceRingBuffer.RECORD_TYPE_CODEC_DRAIN,
+              /* tag= */ getTrackType(),
+              drainStartTimeNs,
+              /* value= */ getProcessedOutputBufferCount() - processedOutputBufferCount);
+          feedStartTimeNs = traceRingBuffer.getTimeNs();
+          queuedInputBufferCount = decoderCounters.queuedInputBufferCount;
+        }
         while (feedInputBuffer() && shouldContinueRendering(renderStartTimeMs)) {}
+        if (traceRingBuffer != null) {
+          traceRingBuffer.recordSpan(
+              TraceRingBuffer.RECORD_TYPE_CODEC_FEED,
+              /* tag= */ getTrackType(),
+              feedStartTimeNs,
+              /* value= */ decoderCounters.queuedInputBufferCount - queuedInputBufferCount);
+        }
         TraceUtil.endSection();
       } else {
         decoderCounters.skippedInputBufferCount += skipSource(positionUs);
@@ -918,6 +1049,7 @@ public abstract class MediaCodecRenderer extends BaseRenderer {
 
   /** Flushes the codec. */
   private void flushCodec() {
+    onCodecAboutToBeFlushedOrReleased();
     try {
       codec.flush();
     } finally {
@@ -1207,6 +1339,12 @@ public abstract class MediaCodecRenderer extends BaseRenderer {
         || SystemClock.elapsedRealtime() - renderStartTimeMs < renderTimeLimitMs;
   }
 
+  private int getProcessedOutputBufferCount() {
+    return decoderCounters.renderedOutputBufferCount
+        + decoderCounters.skippedOutputBufferCount
+        + decoderCounters.droppedBufferCount;
+  }
+
   private boolean hasOutputBuffer() {
     return outputIndex >= 0;
   }
@@ -1478,6 +1616,29 @@ public abstract class MediaCodecRenderer extends BaseRenderer {
     // Do nothing.
   }
 
+  /**
+   * Called just before the {@link MediaCodec} is flushed or released. Output buffers that are held
+   * elsewhere must be returned to the codec before this method returns.
+   *
+   * <p>The default implementation is a no-op.
+   */
+  protected void onCodecAboutToBeFlushedOrReleased() {
+    // Do nothing.
+  }
+
+  /**
+   * Returns whether the playback thread priority should be raised to {@link
+   * Process#THREAD_PRIORITY_VIDEO} while rendering the given input format.
+   *
+   * <p>The default implementation returns whether the format is a video format.
+   *
+   * @param format The input {@link Format}.
+   * @return Whether to raise the playback thread priority.
+   */
+  protected boolean shouldRaisePlaybackThreadPriority(Format format) {
+    return format.sampleMimeType != null && format.sampleMimeType.contains("video");
+  }
+
   /**
    * Called when a {@link MediaCodec} has been released.
    *
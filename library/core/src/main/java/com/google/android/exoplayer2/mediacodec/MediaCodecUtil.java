@@ -22,6 +22,7 @@ import android.annotation.SuppressLint;
 import android.media.MediaCodecInfo.CodecCapabilities;
 import android.media.MediaCodecInfo.CodecProfileLevel;
 import android.media.MediaCodecList;
+import android.os.Build;
 import android.text.TextUtils;
 import android.util.Pair;
 import androidx.annotation.CheckResult;
@@ -37,10 +38,12 @@ import com.google.android.exoplayer2.util.Util;
 import com.google.android.exoplayer2.video.ColorInfo;
 import com.google.common.base.Ascii;
 import com.google.common.collect.ImmutableList;
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.checkerframework.checker.nullness.qual.EnsuresNonNull;
@@ -77,6 +80,8 @@ public final class MediaCodecUtil {
   @GuardedBy("MediaCodecUtil.class")
   private static final HashMap<CodecKey, List<MediaCodecInfo>> decoderInfosCache = new HashMap<>();
 
+  @Nullable private static volatile PersistentDecoderInfoCache persistentDecoderInfoCache;
+
   // Codecs to constant mappings.
   // AVC.
   private static final String CODEC_ID_AVC1 = "avc1";
@@ -117,6 +122,44 @@ public final class MediaCodecUtil {
     }
   }
 
+  /**
+   * Sets a file in which the decoder infos are persisted, or null to stop persisting them.
+   *
+   * <p>Decoder infos are cached in memory once the available decoders have been enumerated for a
+   * MIME type. If a file is set, they're also written to that file, together with the results of
+   * capability queries such as {@link MediaCodecInfo#isVideoSizeAndRateSupportedV21}. This method
+   * restores the decoder infos from the file if it was written on the same build of the device, so
+   * that later calls to {@link #getDecoderInfos} don't have to enumerate the decoders again. The
+   * {@link MediaCodecInfo} instances restored from the file query the platform only for capability
+   * queries whose results weren't persisted.
+   *
+   * <p>Reading the file is blocking, so this method should be called on a background thread, for
+   * example when the application starts. Writing happens on a background thread. The file is
+   * only used on devices with API level 24 or higher.
+   *
+   * <p>This method is experimental, and will be renamed or removed in a future release.
+   *
+   * @param cacheFile The file in which the decoder infos are persisted, or null.
+   */
+  public static synchronized void experimentalSetDecoderInfoCacheFile(@Nullable File cacheFile) {
+    if (persistentDecoderInfoCache != null) {
+      persistentDecoderInfoCache.release();
+      persistentDecoderInfoCache = null;
+    }
+    if (cacheFile == null || Util.SDK_INT < 24) {
+      return;
+    }
+    PersistentDecoderInfoCache persistentDecoderInfoCache =
+        new PersistentDecoderInfoCache(cacheFile, Build.FINGERPRINT);
+    for (Map.Entry<CodecKey, List<MediaCodecInfo>> entry :
+        persistentDecoderInfoCache.read().entrySet()) {
+      if (!decoderInfosCache.containsKey(entry.getKey())) {
+        decoderInfosCache.put(entry.getKey(), entry.getValue());
+      }
+    }
+    MediaCodecUtil.persistentDecoderInfoCache = persistentDecoderInfoCache;
+  }
+
   /* Clears the codec cache.*/
   @VisibleForTesting
   public static synchronized void clearDecoderInfoCache() {
@@ -194,9 +237,73 @@ public final class MediaCodecUtil {
     applyWorkarounds(mimeType, decoderInfos);
     ImmutableList<MediaCodecInfo> immutableDecoderInfos = ImmutableList.copyOf(decoderInfos);
     decoderInfosCache.put(key, immutableDecoderInfos);
+    onDecoderCapabilitiesQueried();
     return immutableDecoderInfos;
   }
 
+  /** Returns a copy of the in-memory decoder info cache. */
+  /* package */ static synchronized HashMap<CodecKey, List<MediaCodecInfo>>
+      copyDecoderInfoCache() {
+    return new HashMap<>(decoderInfosCache);
+  }
+
+  /**
+   * Called when decoders have been enumerated, or when {@link MediaCodecInfo} has memoized the
+   * result of a capability query, so that the persistent decoder info cache can be updated.
+   */
+  /* package */ static void onDecoderCapabilitiesQueried() {
+    @Nullable PersistentDecoderInfoCache persistentDecoderInfoCache =
+        MediaCodecUtil.persistentDecoderInfoCache;
+    if (persistentDecoderInfoCache != null) {
+      persistentDecoderInfoCache.scheduleWrite();
+    }
+  }
+
+  /**
+   * Queries the capabilities of a decoder from the platform, for {@link MediaCodecInfo} instances
+   * restored from the persistent decoder info cache.
+   *
+   * @param name The name of the decoder, as given by {@link MediaCodecInfo#name}.
+   * @param codecMimeType The MIME type the decoder uses.
+   * @return The capabilities, or null if the decoder wasn't found or couldn't be queried.
+   */
+  @Nullable
+  /* package */ static CodecCapabilities queryCodecCapabilities(String name, String codecMimeType) {
+    if (Util.SDK_INT < 21) {
+      return null;
+    }
+    try {
+      MediaCodecList mediaCodecList = new MediaCodecList(MediaCodecList.ALL_CODECS);
+      @Nullable
+      CodecCapabilities capabilities =
+          queryCodecCapabilitiesV21(mediaCodecList, name, codecMimeType);
+      if (capabilities == null && name.endsWith(".secure")) {
+        // Secure decoders may have been synthesized from the non-secure decoder.
+        capabilities =
+            queryCodecCapabilitiesV21(
+                mediaCodecList,
+                name.substring(0, name.length() - ".secure".length()),
+                codecMimeType);
+      }
+      return capabilities;
+    } catch (RuntimeException e) {
+      Log.w(TAG, "Failed to query capabilities of " + name, e);
+      return null;
+    }
+  }
+
+  @RequiresApi(21)
+  @Nullable
+  private static CodecCapabilities queryCodecCapabilitiesV21(
+      MediaCodecList mediaCodecList, String name, String codecMimeType) {
+    for (android.media.MediaCodecInfo codecInfo : mediaCodecList.getCodecInfos()) {
+      if (!codecInfo.isEncoder() && codecInfo.getName().equals(name)) {
+        return codecInfo.getCapabilitiesForType(codecMimeType);
+      }
+    }
+    return null;
+  }
+
   /**
    * Returns a list of decoders that can decode media in the specified format, in the priority order
    * specified by the {@link MediaCodecSelector}.
@@ -1156,7 +1263,7 @@ public final class MediaCodecUtil {
     }
   }
 
-  private static final class CodecKey {
+  /* package */ static final class CodecKey {
 
     public final String mimeType;
     public final boolean secure;
@@ -0,0 +1,235 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.mediacodec;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
+import com.google.android.exoplayer2.ExoPlayerLibraryInfo;
+import com.google.android.exoplayer2.mediacodec.MediaCodecUtil.CodecKey;
+import com.google.android.exoplayer2.util.AtomicFile;
+import com.google.android.exoplayer2.util.Log;
+import com.google.android.exoplayer2.util.Util;
+import com.google.common.collect.ImmutableList;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Persists the decoder infos cached by {@link MediaCodecUtil}, including the memoized results of
+ * capability queries, so that the available decoders don't have to be enumerated in every process.
+ *
+ * <p>The cache is keyed by the build fingerprint of the device, so it's discarded when the system
+ * is updated. Writes happen on a background thread.
+ *
+ * @deprecated com.google.android.exoplayer2 is deprecated. Please migrate to androidx.media3 (which
+ *     contains the same ExoPlayer code). See <a
+ *     href="https://developer.android.com/guide/topics/media/media3/getting-started/migration-guide">the
+ *     migration guide</a> for more details, including a script to help with the migration.
+ */
+@Deprecated
+@RequiresApi(23)
+/* package */ final class PersistentDecoderInfoCache {
+
+  private static final String TAG = "DecoderInfoCache";
+
+  private static final int VERSION = 1;
+
+  private final AtomicFile atomicFile;
+  private final String buildFingerprint;
+  private final ExecutorService executorService;
+  private final AtomicBoolean writeScheduled;
+
+  /**
+   * Creates an instance.
+   *
+   * @param file The file in which the cache is stored.
+   * @param buildFingerprint The build fingerprint of the device. A cache written with another
+   *     fingerprint is ignored.
+   */
+  public PersistentDecoderInfoCache(File file, String buildFingerprint) {
+    this.buildFingerprint = buildFingerprint;
+    atomicFile = new AtomicFile(file);
+    executorService = Util.newSingleThreadExecutor("ExoPlayer:DecoderInfoCache");
+    writeScheduled = new AtomicBoolean();
+  }
+
+  /**
+   * Reads the cache. Returns an empty map if the cache doesn't exist, is unreadable, or was written
+   * on another build.
+   */
+  public Map<CodecKey, List<MediaCodecInfo>> read() {
+    HashMap<CodecKey, List<MediaCodecInfo>> decoderInfos = new HashMap<>();
+    if (!atomicFile.exists()) {
+      return decoderInfos;
+    }
+    try (InputStream inputStream = atomicFile.openRead()) {
+      DataInputStream input = new DataInputStream(inputStream);
+      if (input.readInt() != VERSION
+          || input.readInt() != ExoPlayerLibraryInfo.VERSION_INT
+          || !buildFingerprint.equals(input.readUTF())) {
+        Log.i(TAG, "Ignoring decoder info cache written by another build");
+        return decoderInfos;
+      }
+      int keyCount = input.readInt();
+      for (int i = 0; i < keyCount; i++) {
+        CodecKey key =
+            new CodecKey(
+                /* mimeType= */ input.readUTF(),
+                /* secure= */ input.readBoolean(),
+                /* tunneling= */ input.readBoolean());
+        int decoderInfoCount = input.readInt();
+        ImmutableList.Builder<MediaCodecInfo> keyDecoderInfos = ImmutableList.builder();
+        for (int j = 0; j < decoderInfoCount; j++) {
+          keyDecoderInfos.add(readDecoderInfo(input));
+        }
+        decoderInfos.put(key, keyDecoderInfos.build());
+      }
+    } catch (IOException | RuntimeException e) {
+      Log.w(TAG, "Failed to read decoder info cache", e);
+      decoderInfos.clear();
+    }
+    return decoderInfos;
+  }
+
+  /**
+   * Schedules the current content of the {@link MediaCodecUtil} decoder info cache to be written.
+   * Calls made before a scheduled write has started are coalesced.
+   */
+  public void scheduleWrite() {
+    if (writeScheduled.compareAndSet(false, true)) {
+      executorService.execute(
+          () -> {
+            writeScheduled.set(false);
+            write(MediaCodecUtil.copyDecoderInfoCache());
+          });
+    }
+  }
+
+  /** Releases the background thread, once any scheduled write has completed. */
+  public void release() {
+    executorService.shutdown();
+  }
+
+  /* package */ void write(Map<CodecKey, List<MediaCodecInfo>> decoderInfos) {
+    @Nullable OutputStream outputStream = null;
+    try {
+      outputStream = atomicFile.startWrite();
+      DataOutputStream output = new DataOutputStream(new BufferedOutputStream(outputStream));
+      output.writeInt(VERSION);
+      output.writeInt(ExoPlayerLibraryInfo.VERSION_INT);
+      output.writeUTF(buildFingerprint);
+      output.writeInt(decoderInfos.size());
+      for (Map.Entry<CodecKey, List<MediaCodecInfo>> entry : decoderInfos.entrySet()) {
+        CodecKey key = entry.getKey();
+        output.writeUTF(key.mimeType);
+        output.writeBoolean(key.secure);
+        output.writeBoolean(key.tunneling);
+        List<MediaCodecInfo> keyDecoderInfos = entry.getValue();
+        output.writeInt(keyDecoderInfos.size());
+        for (int i = 0; i < keyDecoderInfos.size(); i++) {
+          writeDecoderInfo(output, keyDecoderInfos.get(i));
+        }
+      }
+      output.flush();
+      atomicFile.endWrite(outputStream);
+      outputStream = null;
+    } catch (IOException e) {
+      Log.w(TAG, "Failed to write decoder info cache", e);
+    } finally {
+      Util.closeQuietly(outputStream);
+    }
+  }
+
+  private static MediaCodecInfo readDecoderInfo(DataInputStream input) throws IOException {
+    String name = input.readUTF();
+    String mimeType = input.readUTF();
+    String codecMimeType = input.readUTF();
+    boolean hardwareAccelerated = input.readBoolean();
+    boolean softwareOnly = input.readBoolean();
+    boolean vendor = input.readBoolean();
+    boolean adaptive = input.readBoolean();
+    boolean tunneling = input.readBoolean();
+    boolean secure = input.readBoolean();
+    @Nullable
+    CodecCapabilitiesSnapshot capabilitiesSnapshot =
+        input.readBoolean() ? CodecCapabilitiesSnapshot.readFrom(input) : null;
+    MediaCodecInfo decoderInfo =
+        new MediaCodecInfo(
+            name,
+            mimeType,
+            codecMimeType,
+            /* capabilities= */ null,
+            capabilitiesSnapshot,
+            hardwareAccelerated,
+            softwareOnly,
+            vendor,
+            adaptive,
+            tunneling,
+            secure);
+    HashMap<Long, Boolean> videoSizeAndRateSupport = new HashMap<>();
+    int videoSizeAndRateCount = input.readInt();
+    for (int i = 0; i < videoSizeAndRateCount; i++) {
+      videoSizeAndRateSupport.put(input.readLong(), input.readBoolean());
+    }
+    HashMap<Integer, Boolean> audioSampleRateSupport = new HashMap<>();
+    int audioSampleRateCount = input.readInt();
+    for (int i = 0; i < audioSampleRateCount; i++) {
+      audioSampleRateSupport.put(input.readInt(), input.readBoolean());
+    }
+    decoderInfo.putCapabilityQueryResults(videoSizeAndRateSupport, audioSampleRateSupport);
+    return decoderInfo;
+  }
+
+  private static void writeDecoderInfo(DataOutputStream output, MediaCodecInfo decoderInfo)
+      throws IOException {
+    output.writeUTF(decoderInfo.name);
+    output.writeUTF(decoderInfo.mimeType);
+    output.writeUTF(decoderInfo.codecMimeType);
+    output.writeBoolean(decoderInfo.hardwareAccelerated);
+    output.writeBoolean(decoderInfo.softwareOnly);
+    output.writeBoolean(decoderInfo.vendor);
+    output.writeBoolean(decoderInfo.adaptive);
+    output.writeBoolean(decoderInfo.tunneling);
+    output.writeBoolean(decoderInfo.secure);
+    @Nullable
+    CodecCapabilitiesSnapshot capabilitiesSnapshot = decoderInfo.getCapabilitiesSnapshot();
+    output.writeBoolean(capabilitiesSnapshot != null);
+    if (capabilitiesSnapshot != null) {
+      capabilitiesSnapshot.writeTo(output);
+    }
+    Map<Long, Boolean> videoSizeAndRateSupport = decoderInfo.getVideoSizeAndRateSupport();
+    output.writeInt(videoSizeAndRateSupport.size());
+    for (Map.Entry<Long, Boolean> entry : videoSizeAndRateSupport.entrySet()) {
+      output.writeLong(entry.getKey());
+      output.writeBoolean(entry.getValue());
+    }
+    Map<Integer, Boolean> audioSampleRateSupport = decoderInfo.getAudioSampleRateSupport();
+    output.writeInt(audioSampleRateSupport.size());
+    for (Map.Entry<Integer, Boolean> entry : audioSampleRateSupport.entrySet()) {
+      output.writeInt(entry.getKey());
+      output.writeBoolean(entry.getValue());
+    }
+  }
+}
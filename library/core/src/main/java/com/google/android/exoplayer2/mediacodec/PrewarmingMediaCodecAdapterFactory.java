@@ -0,0 +1,376 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.mediacodec;
+
+import static com.google.android.exoplayer2.util.Assertions.checkArgument;
+
+import android.media.MediaFormat;
+import android.view.Surface;
+import androidx.annotation.GuardedBy;
+import androidx.annotation.Nullable;
+import com.google.android.exoplayer2.decoder.DecoderReuseEvaluation;
+import com.google.android.exoplayer2.util.ConditionVariable;
+import com.google.android.exoplayer2.util.Log;
+import com.google.android.exoplayer2.util.Util;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * A {@link MediaCodecAdapter.Factory} that can create and configure codecs ahead of time.
+ *
+ * <p>Creating, configuring and starting a codec can take several hundred milliseconds on some
+ * devices. Renderers call {@link #prewarm} for formats that are likely to be decoded next, for
+ * example the formats of the next playlist item. The codec is then created on a background thread
+ * and kept in a small pool. When {@link #createAdapter} is later called with a compatible
+ * configuration, the pooled codec is handed out instead of creating a new one. If a pooled codec is
+ * still being created, {@link #createAdapter} waits for it to be ready.
+ *
+ * <p>A pooled codec is compatible with a configuration if it uses the same {@link MediaCodecInfo},
+ * the pooled format can be {@linkplain MediaCodecInfo#canReuseCodec reused} for the requested
+ * format without reconfiguration, and its maximum input size and resolution are at least those
+ * requested.
+ * Configurations with a {@link MediaCodecAdapter.Configuration#crypto} can't be prewarmed.
+ *
+ * <p>A codec isn't prewarmed while a codec with the same name that was created by this factory is
+ * in use, that is until it's reported with {@link #onCodecReleased}, or if prewarming it would
+ * exceed the {@linkplain MediaCodecInfo#getMaxSupportedInstances() maximum number of supported
+ * instances} of the codec.
+ *
+ * <p>The surface of a configuration passed to {@link #prewarm} is owned by this factory. It's
+ * replaced by the requested surface using {@link MediaCodecAdapter#setOutputSurface} when the codec
+ * is handed out, and released once it's no longer used.
+ *
+ * @deprecated com.google.android.exoplayer2 is deprecated. Please migrate to androidx.media3 (which
+ *     contains the same ExoPlayer code). See <a
+ *     href="https://developer.android.com/guide/topics/media/media3/getting-started/migration-guide">the
+ *     migration guide</a> for more details, including a script to help with the migration.
+ */
+@Deprecated
+public final class PrewarmingMediaCodecAdapterFactory implements MediaCodecAdapter.Factory {
+
+  private static final String TAG = "PrewarmingCodecFactory";
+
+  /** {@link MediaFormat} integer keys whose requested value must not exceed the pooled value. */
+  private static final String[] MAX_VALUE_KEYS = {
+    MediaFormat.KEY_MAX_INPUT_SIZE, MediaFormat.KEY_MAX_WIDTH, MediaFormat.KEY_MAX_HEIGHT
+  };
+
+  /** {@link MediaFormat} integer keys whose values must be equal. */
+  private static final String[] EXACT_VALUE_KEYS = {
+    "audio-session-id",
+    "feature-tunneled-playback",
+    "low-latency",
+    "no-post-process",
+    "vendor.player-id.value",
+    "vendor.video-trickmode.enable"
+  };
+
+  private final MediaCodecAdapter.Factory factory;
+  private final int maxPooledCodecCount;
+
+  @GuardedBy("pooledCodecs")
+  private final ArrayDeque<PooledCodec> pooledCodecs;
+
+  /** The codecs created by this factory that are in use, mapped to their codec names. */
+  @GuardedBy("pooledCodecs")
+  private final HashMap<MediaCodecAdapter, String> inUseCodecNames;
+
+  @GuardedBy("pooledCodecs")
+  @Nullable
+  private ExecutorService executorService;
+
+  /**
+   * Creates an instance.
+   *
+   * @param factory The {@link MediaCodecAdapter.Factory} used to create codecs.
+   * @param maxPooledCodecCount The maximum number of codecs that are kept in the pool. When the
+   *     pool is full, the least recently prewarmed codec is released.
+   */
+  public PrewarmingMediaCodecAdapterFactory(
+      MediaCodecAdapter.Factory factory, int maxPooledCodecCount) {
+    checkArgument(maxPooledCodecCount > 0);
+    this.factory = factory;
+    this.maxPooledCodecCount = maxPooledCodecCount;
+    pooledCodecs = new ArrayDeque<>();
+    inUseCodecNames = new HashMap<>();
+  }
+
+  /**
+   * Creates, configures and starts a codec for the given configuration on a background thread, and
+   * adds it to the pool. Does nothing if the pool already holds a compatible codec, if a codec with
+   * the same name is in use, or if the maximum number of supported instances of the codec would be
+   * exceeded.
+   *
+   * @param configuration The configuration. Must not have a {@link
+   *     MediaCodecAdapter.Configuration#crypto}.
+   */
+  public void prewarm(MediaCodecAdapter.Configuration configuration) {
+    checkArgument(configuration.crypto == null);
+    List<PooledCodec> evictedCodecs = new ArrayList<>();
+    synchronized (pooledCodecs) {
+      String codecName = configuration.codecInfo.name;
+      int pooledInstanceCount = 0;
+      for (PooledCodec pooledCodec : pooledCodecs) {
+        if (isCompatible(pooledCodec.configuration, configuration)) {
+          maybeReleaseSurface(configuration, /* inUseSurface= */ null);
+          return;
+        }
+        if (pooledCodec.configuration.codecInfo.name.equals(codecName)) {
+          pooledInstanceCount++;
+        }
+      }
+      int maxInstanceCount = configuration.codecInfo.getMaxSupportedInstances();
+      if (inUseCodecNames.containsValue(codecName)
+          || (maxInstanceCount != MediaCodecInfo.MAX_SUPPORTED_INSTANCES_UNKNOWN
+              && pooledInstanceCount >= maxInstanceCount)) {
+        maybeReleaseSurface(configuration, /* inUseSurface= */ null);
+        return;
+      }
+      while (pooledCodecs.size() >= maxPooledCodecCount) {
+        evictedCodecs.add(pooledCodecs.removeFirst());
+      }
+      PooledCodec pooledCodec = new PooledCodec(configuration);
+      pooledCodecs.addLast(pooledCodec);
+      executeOnPrewarmingThread(() -> createPooledCodec(pooledCodec));
+    }
+    for (int i = 0; i < evictedCodecs.size(); i++) {
+      discard(evictedCodecs.get(i));
+    }
+  }
+
+  /**
+   * Runs a task on the background thread on which codecs are prewarmed, for example to query the
+   * available decoders before calling {@link #prewarm}.
+   *
+   * @param task The task.
+   */
+  public void executeOnPrewarmingThread(Runnable task) {
+    synchronized (pooledCodecs) {
+      if (executorService == null) {
+        executorService = Util.newSingleThreadExecutor("ExoPlayer:CodecPrewarm");
+      }
+      executorService.execute(task);
+    }
+  }
+
+  /**
+   * Called when a codec returned by {@link #createAdapter} has been released, so that a codec with
+   * the same name can be prewarmed again.
+   *
+   * @param adapter The released codec.
+   */
+  public void onCodecReleased(MediaCodecAdapter adapter) {
+    synchronized (pooledCodecs) {
+      inUseCodecNames.remove(adapter);
+    }
+  }
+
+  /** Returns the number of codecs in the pool, including those that are still being created. */
+  public int getPooledCodecCount() {
+    synchronized (pooledCodecs) {
+      return pooledCodecs.size();
+    }
+  }
+
+  /**
+   * Releases all pooled codecs and the background thread. The factory can still be used
+   * afterwards.
+   */
+  public void clear() {
+    List<PooledCodec> discardedCodecs;
+    synchronized (pooledCodecs) {
+      discardedCodecs = new ArrayList<>(pooledCodecs);
+      pooledCodecs.clear();
+      if (executorService != null) {
+        executorService.shutdown();
+        executorService = null;
+      }
+    }
+    for (int i = 0; i < discardedCodecs.size(); i++) {
+      discard(discardedCodecs.get(i));
+    }
+  }
+
+  @Override
+  public MediaCodecAdapter createAdapter(MediaCodecAdapter.Configuration configuration)
+      throws IOException {
+    @Nullable PooledCodec pooledCodec = null;
+    if (configuration.crypto == null) {
+      synchronized (pooledCodecs) {
+        Iterator<PooledCodec> iterator = pooledCodecs.iterator();
+        while (iterator.hasNext()) {
+          PooledCodec candidate = iterator.next();
+          if (isCompatible(candidate.configuration, configuration)) {
+            iterator.remove();
+            pooledCodec = candidate;
+            break;
+          }
+        }
+      }
+    }
+    if (pooledCodec != null) {
+      pooledCodec.created.blockUninterruptible();
+      @Nullable MediaCodecAdapter adapter = pooledCodec.adapter;
+      if (adapter != null) {
+        if (maybeSetOutputSurface(adapter, pooledCodec.configuration, configuration)) {
+          Log.d(TAG, "Using prewarmed codec " + configuration.codecInfo.name);
+          onCodecCreated(adapter, configuration);
+          return adapter;
+        }
+        adapter.release();
+        maybeReleaseSurface(pooledCodec.configuration, /* inUseSurface= */ null);
+      }
+    }
+    MediaCodecAdapter adapter = factory.createAdapter(configuration);
+    onCodecCreated(adapter, configuration);
+    return adapter;
+  }
+
+  private void onCodecCreated(
+      MediaCodecAdapter adapter, MediaCodecAdapter.Configuration configuration) {
+    synchronized (pooledCodecs) {
+      inUseCodecNames.put(adapter, configuration.codecInfo.name);
+    }
+  }
+
+  private void createPooledCodec(PooledCodec pooledCodec) {
+    @Nullable MediaCodecAdapter adapter;
+    try {
+      adapter = factory.createAdapter(pooledCodec.configuration);
+    } catch (IOException | RuntimeException e) {
+      Log.w(TAG, "Failed to prewarm codec " + pooledCodec.configuration.codecInfo.name, e);
+      adapter = null;
+    }
+    boolean discarded;
+    synchronized (pooledCodecs) {
+      discarded = pooledCodec.discarded;
+      if (adapter == null) {
+        pooledCodecs.remove(pooledCodec);
+      }
+      pooledCodec.adapter = discarded ? null : adapter;
+      pooledCodec.created.open();
+    }
+    if (discarded || adapter == null) {
+      if (adapter != null) {
+        adapter.release();
+      }
+      maybeReleaseSurface(pooledCodec.configuration, /* inUseSurface= */ null);
+    }
+  }
+
+  /** Releases a codec that has been removed from the pool without being handed out. */
+  private void discard(PooledCodec pooledCodec) {
+    @Nullable MediaCodecAdapter adapter;
+    synchronized (pooledCodecs) {
+      pooledCodec.discarded = true;
+      if (!pooledCodec.created.isOpen()) {
+        // The codec is released by createPooledCodec once it's been created.
+        return;
+      }
+      adapter = pooledCodec.adapter;
+      pooledCodec.adapter = null;
+    }
+    if (adapter != null) {
+      adapter.release();
+      maybeReleaseSurface(pooledCodec.configuration, /* inUseSurface= */ null);
+    }
+  }
+
+  private static boolean maybeSetOutputSurface(
+      MediaCodecAdapter adapter,
+      MediaCodecAdapter.Configuration pooledConfiguration,
+      MediaCodecAdapter.Configuration configuration) {
+    @Nullable Surface pooledSurface = pooledConfiguration.surface;
+    @Nullable Surface surface = configuration.surface;
+    if (pooledSurface == surface) {
+      return true;
+    }
+    if (pooledSurface == null || surface == null || Util.SDK_INT < 23) {
+      return false;
+    }
+    try {
+      adapter.setOutputSurface(surface);
+    } catch (RuntimeException e) {
+      Log.w(TAG, "Failed to set the output surface of a prewarmed codec", e);
+      return false;
+    }
+    maybeReleaseSurface(pooledConfiguration, surface);
+    return true;
+  }
+
+  private static void maybeReleaseSurface(
+      MediaCodecAdapter.Configuration configuration, @Nullable Surface inUseSurface) {
+    if (configuration.surface != null && configuration.surface != inUseSurface) {
+      configuration.surface.release();
+    }
+  }
+
+  private static boolean isCompatible(
+      MediaCodecAdapter.Configuration pooledConfiguration,
+      MediaCodecAdapter.Configuration configuration) {
+    if (!pooledConfiguration.codecInfo.name.equals(configuration.codecInfo.name)
+        || pooledConfiguration.flags != configuration.flags
+        || configuration.crypto != null) {
+      return false;
+    }
+    @DecoderReuseEvaluation.DecoderReuseResult
+    int reuseResult =
+        configuration
+            .codecInfo
+            .canReuseCodec(pooledConfiguration.format, configuration.format)
+            .result;
+    if (reuseResult != DecoderReuseEvaluation.REUSE_RESULT_YES_WITH_FLUSH
+        && reuseResult != DecoderReuseEvaluation.REUSE_RESULT_YES_WITHOUT_RECONFIGURATION) {
+      return false;
+    }
+    MediaFormat pooledMediaFormat = pooledConfiguration.mediaFormat;
+    MediaFormat mediaFormat = configuration.mediaFormat;
+    for (String key : MAX_VALUE_KEYS) {
+      if (mediaFormat.containsKey(key)
+          && (!pooledMediaFormat.containsKey(key)
+              || mediaFormat.getInteger(key) > pooledMediaFormat.getInteger(key))) {
+        return false;
+      }
+    }
+    for (String key : EXACT_VALUE_KEYS) {
+      boolean containsKey = mediaFormat.containsKey(key);
+      if (containsKey != pooledMediaFormat.containsKey(key)
+          || (containsKey && mediaFormat.getInteger(key) != pooledMediaFormat.getInteger(key))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static final class PooledCodec {
+
+    public final MediaCodecAdapter.Configuration configuration;
+    public final ConditionVariable created;
+
+    @Nullable public MediaCodecAdapter adapter;
+    public boolean discarded;
+
+    public PooledCodec(MediaCodecAdapter.Configuration configuration) {
+      this.configuration = configuration;
+      created = new ConditionVariable();
+    }
+  }
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.offline;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.Nullable;
+import com.google.android.exoplayer2.C;
+import com.google.common.primitives.Ints;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A {@link WritableDownloadIndex} that keeps an in-memory copy of the {@link Download Downloads} of
+ * another index.
+ *
+ * <p>The downloads are loaded from the wrapped index when they're first queried. After that,
+ * queries are answered from memory, and writes are applied both to the wrapped index and to the
+ * in-memory copy. This avoids hitting the database each time a UI lists the downloads.
+ *
+ * <p>All writes to the wrapped index must go through this instance. Writes that affect many
+ * downloads at once cause the downloads to be loaded again on the next query.
+ *
+ * @deprecated com.google.android.exoplayer2 is deprecated. Please migrate to androidx.media3 (which
+ *     contains the same ExoPlayer code). See <a
+ *     href="https://developer.android.com/guide/topics/media/media3/getting-started/migration-guide">the
+ *     migration guide</a> for more details, including a script to help with the migration.
+ */
+@Deprecated
+public final class CachingDownloadIndex implements WritableDownloadIndex {
+
+  private final WritableDownloadIndex downloadIndex;
+
+  /** The downloads sorted by start time, or null if they need to be loaded. */
+  @GuardedBy("this")
+  @Nullable
+  private ArrayList<Download> downloads;
+
+  /**
+   * Creates an instance.
+   *
+   * @param downloadIndex The {@link WritableDownloadIndex} in which downloads are persisted.
+   */
+  public CachingDownloadIndex(WritableDownloadIndex downloadIndex) {
+    this.downloadIndex = downloadIndex;
+  }
+
+  @Override
+  @Nullable
+  public synchronized Download getDownload(String id) throws IOException {
+    List<Download> downloads = getLoadedDownloads();
+    int index = indexOf(downloads, id);
+    return index != C.INDEX_UNSET ? downloads.get(index) : null;
+  }
+
+  @Override
+  public synchronized DownloadCursor getDownloads(@Download.State int... states)
+      throws IOException {
+    List<Download> downloads = getLoadedDownloads();
+    ArrayList<Download> matchingDownloads = new ArrayList<>();
+    for (int i = 0; i < downloads.size(); i++) {
+      Download download = downloads.get(i);
+      if (states.length == 0 || Ints.contains(states, download.state)) {
+        matchingDownloads.add(download);
+      }
+    }
+    return new ListDownloadCursor(matchingDownloads);
+  }
+
+  @Override
+  public void putDownload(Download download) throws IOException {
+    try {
+      downloadIndex.putDownload(download);
+    } catch (IOException e) {
+      invalidate();
+      throw e;
+    }
+    synchronized (this) {
+      if (downloads == null) {
+        return;
+      }
+      int index = indexOf(downloads, download.request.id);
+      if (index == C.INDEX_UNSET) {
+        downloads.add(download);
+      } else {
+        downloads.set(index, download);
+      }
+      Collections.sort(downloads, CachingDownloadIndex::compareStartTimes);
+    }
+  }
+
+  @Override
+  public void updateDownloadProgress(List<Download> downloads) throws IOException {
+    try {
+      downloadIndex.updateDownloadProgress(downloads);
+    } catch (IOException e) {
+      invalidate();
+      throw e;
+    }
+    synchronized (this) {
+      if (this.downloads == null) {
+        return;
+      }
+      for (int i = 0; i < downloads.size(); i++) {
+        Download download = downloads.get(i);
+        int index = indexOf(this.downloads, download.request.id);
+        if (index != C.INDEX_UNSET) {
+          this.downloads.set(index, download);
+        }
+      }
+    }
+  }
+
+  @Override
+  public void removeDownload(String id) throws IOException {
+    try {
+      downloadIndex.removeDownload(id);
+    } catch (IOException e) {
+      invalidate();
+      throw e;
+    }
+    synchronized (this) {
+      if (downloads == null) {
+        return;
+      }
+      int index = indexOf(downloads, id);
+      if (index != C.INDEX_UNSET) {
+        downloads.remove(index);
+      }
+    }
+  }
+
+  @Override
+  public void setDownloadingStatesToQueued() throws IOException {
+    try {
+      downloadIndex.setDownloadingStatesToQueued();
+    } finally {
+      invalidate();
+    }
+  }
+
+  @Override
+  public void setStatesToRemoving() throws IOException {
+    try {
+      downloadIndex.setStatesToRemoving();
+    } finally {
+      invalidate();
+    }
+  }
+
+  @Override
+  public void setStopReason(int stopReason) throws IOException {
+    try {
+      downloadIndex.setStopReason(stopReason);
+    } finally {
+      invalidate();
+    }
+  }
+
+  @Override
+  public void setStopReason(String id, int stopReason) throws IOException {
+    try {
+      downloadIndex.setStopReason(id, stopReason);
+    } finally {
+      invalidate();
+    }
+  }
+
+  private synchronized void invalidate() {
+    downloads = null;
+  }
+
+  @GuardedBy("this")
+  private List<Download> getLoadedDownloads() throws IOException {
+    if (downloads == null) {
+      ArrayList<Download> loadedDownloads = new ArrayList<>();
+      try (DownloadCursor cursor = downloadIndex.getDownloads()) {
+        while (cursor.moveToNext()) {
+          loadedDownloads.add(cursor.getDownload());
+        }
+      }
+      downloads = loadedDownloads;
+    }
+    return downloads;
+  }
+
+  private static int indexOf(List<Download> downloads, String id) {
+    for (int i = 0; i < downloads.size(); i++) {
+      if (downloads.get(i).request.id.equals(id)) {
+        return i;
+      }
+    }
+    return C.INDEX_UNSET;
+  }
+
+  private static int compareStartTimes(Download first, Download second) {
+    return Long.compare(first.startTimeMs, second.startTimeMs);
+  }
+
+  private static final class ListDownloadCursor implements DownloadCursor {
+
+    private final List<Download> downloads;
+
+    private int position;
+    private boolean closed;
+
+    public ListDownloadCursor(List<Download> downloads) {
+      this.downloads = downloads;
+      position = -1;
+    }
+
+    @Override
+    public Download getDownload() {
+      return downloads.get(position);
+    }
+
+    @Override
+    public int getCount() {
+      return downloads.size();
+    }
+
+    @Override
+    public int getPosition() {
+      return position;
+    }
+
+    @Override
+    public boolean moveToPosition(int position) {
+      // Mirror Cursor.moveToPosition, which clamps the position to [-1, count].
+      if (position < 0) {
+        this.position = -1;
+        return false;
+      } else if (position >= downloads.size()) {
+        this.position = downloads.size();
+        return false;
+      }
+      this.position = position;
+      return true;
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+
+    @Override
+    public boolean isClosed() {
+      return closed;
+    }
+  }
+}
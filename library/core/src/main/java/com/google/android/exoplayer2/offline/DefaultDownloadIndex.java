@@ -218,6 +218,37 @@ public final class DefaultDownloadIndex implements WritableDownloadIndex {
     }
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * <p>The progress of all downloads is updated in a single transaction. Only the progress columns
+   * of the rows are written.
+   */
+  @Override
+  public void updateDownloadProgress(List<Download> downloads) throws DatabaseIOException {
+    ensureInitialized();
+    try {
+      SQLiteDatabase writableDatabase = databaseProvider.getWritableDatabase();
+      writableDatabase.beginTransactionNonExclusive();
+      try {
+        ContentValues values = new ContentValues();
+        String[] whereArgs = new String[1];
+        for (int i = 0; i < downloads.size(); i++) {
+          Download download = downloads.get(i);
+          values.put(COLUMN_PERCENT_DOWNLOADED, download.getPercentDownloaded());
+          values.put(COLUMN_BYTES_DOWNLOADED, download.getBytesDownloaded());
+          whereArgs[0] = download.request.id;
+          writableDatabase.update(tableName, values, WHERE_ID_EQUALS, whereArgs);
+        }
+        writableDatabase.setTransactionSuccessful();
+      } finally {
+        writableDatabase.endTransaction();
+      }
+    } catch (SQLException e) {
+      throw new DatabaseIOException(e);
+    }
+  }
+
   @Override
   public void removeDownload(String id) throws DatabaseIOException {
     ensureInitialized();
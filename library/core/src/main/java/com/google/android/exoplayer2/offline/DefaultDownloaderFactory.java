@@ -43,6 +43,7 @@ public class DefaultDownloaderFactory implements DownloaderFactory {
 
   private final CacheDataSource.Factory cacheDataSourceFactory;
   private final Executor executor;
+  @Nullable private final SegmentDownloadScheduler segmentDownloadScheduler;
 
   /**
    * Creates an instance.
@@ -68,8 +69,30 @@ public class DefaultDownloaderFactory implements DownloaderFactory {
    */
   public DefaultDownloaderFactory(
       CacheDataSource.Factory cacheDataSourceFactory, Executor executor) {
+    this(cacheDataSourceFactory, executor, /* segmentDownloadScheduler= */ null);
+  }
+
+  /**
+   * Creates an instance.
+   *
+   * @param cacheDataSourceFactory A {@link CacheDataSource.Factory} for the cache into which
+   *     downloads will be written.
+   * @param executor An {@link Executor} used to download data. Passing {@code Runnable::run} will
+   *     cause each download task to download data on its own thread. Passing an {@link Executor}
+   *     that uses multiple threads will speed up download tasks that can be split into smaller
+   *     parts for parallel execution.
+   * @param segmentDownloadScheduler A {@link SegmentDownloadScheduler} shared by the segmented
+   *     (DASH, HLS and SmoothStreaming) downloads, or {@code null} to not limit the number of
+   *     segments that are downloaded concurrently across downloads. If set, the {@code executor}
+   *     should provide enough threads for the concurrency permitted by the scheduler.
+   */
+  public DefaultDownloaderFactory(
+      CacheDataSource.Factory cacheDataSourceFactory,
+      Executor executor,
+      @Nullable SegmentDownloadScheduler segmentDownloadScheduler) {
     this.cacheDataSourceFactory = Assertions.checkNotNull(cacheDataSourceFactory);
     this.executor = Assertions.checkNotNull(executor);
+    this.segmentDownloadScheduler = segmentDownloadScheduler;
   }
 
   @Override
@@ -105,12 +128,18 @@ public class DefaultDownloaderFactory implements DownloaderFactory {
             .setStreamKeys(request.streamKeys)
             .setCustomCacheKey(request.customCacheKey)
             .build();
+    Downloader downloader;
     try {
-      return constructor.newInstance(mediaItem, cacheDataSourceFactory, executor);
+      downloader = constructor.newInstance(mediaItem, cacheDataSourceFactory, executor);
     } catch (Exception e) {
       throw new IllegalStateException(
           "Failed to instantiate downloader for content type " + contentType, e);
     }
+    if (segmentDownloadScheduler != null && downloader instanceof SegmentDownloader) {
+      ((SegmentDownloader<?>) downloader)
+          .experimentalSetSegmentDownloadScheduler(segmentDownloadScheduler);
+    }
+    return downloader;
   }
 
   private static SparseArray<Constructor<? extends Downloader>> createDownloaderConstructors() {
@@ -25,6 +25,7 @@ import static com.google.android.exoplayer2.offline.Download.STATE_REMOVING;
 import static com.google.android.exoplayer2.offline.Download.STATE_RESTARTING;
 import static com.google.android.exoplayer2.offline.Download.STATE_STOPPED;
 import static com.google.android.exoplayer2.offline.Download.STOP_REASON_NONE;
+import static java.lang.Math.max;
 import static java.lang.Math.min;
 
 import android.content.Context;
@@ -32,6 +33,8 @@ import android.os.Handler;
 import android.os.HandlerThread;
 import android.os.Looper;
 import android.os.Message;
+import android.os.SystemClock;
+import android.util.Pair;
 import androidx.annotation.CheckResult;
 import androidx.annotation.IntRange;
 import androidx.annotation.Nullable;
@@ -148,6 +151,17 @@ public final class DownloadManager {
      */
     default void onWaitingForRequirementsChanged(
         DownloadManager downloadManager, boolean waitingForRequirements) {}
+
+    /**
+     * Called periodically while a download is in progress, with {@link DownloadMetrics} describing
+     * how the download is progressing.
+     *
+     * @param downloadManager The reporting instance.
+     * @param download The state of the download.
+     * @param metrics The {@link DownloadMetrics} of the download.
+     */
+    default void onDownloadMetricsUpdated(
+        DownloadManager downloadManager, Download download, DownloadMetrics metrics) {}
   }
 
   /** The default maximum number of parallel downloads. */
@@ -161,6 +175,7 @@ public final class DownloadManager {
   private static final int MSG_INITIALIZED = 0;
   private static final int MSG_PROCESSED = 1;
   private static final int MSG_DOWNLOAD_UPDATE = 2;
+  private static final int MSG_DOWNLOAD_METRICS = 3;
 
   // Messages posted to the background handler.
   private static final int MSG_INITIALIZE = 0;
@@ -608,6 +623,11 @@ public final class DownloadManager {
         int activeTaskCount = message.arg2;
         onMessageProcessed(processedMessageCount, activeTaskCount);
         break;
+      case MSG_DOWNLOAD_METRICS:
+        Pair<Download, DownloadMetrics> downloadAndMetrics =
+            (Pair<Download, DownloadMetrics>) message.obj;
+        onDownloadMetricsUpdated(downloadAndMetrics.first, downloadAndMetrics.second);
+        break;
       default:
         throw new IllegalStateException();
     }
@@ -644,6 +664,12 @@ public final class DownloadManager {
     }
   }
 
+  private void onDownloadMetricsUpdated(Download download, DownloadMetrics metrics) {
+    for (Listener listener : listeners) {
+      listener.onDownloadMetricsUpdated(this, download, metrics);
+    }
+  }
+
   private void onMessageProcessed(int processedMessageCount, int activeTaskCount) {
     this.pendingMessages -= processedMessageCount;
     this.activeTaskCount = activeTaskCount;
@@ -1185,14 +1211,40 @@ public final class DownloadManager {
     // Progress updates.
 
     private void updateProgress() {
+      // Write the progress of all downloads that made progress since the last update in one batch,
+      // without rewriting the other fields of the downloads.
+      ArrayList<Download> updatedDownloads = new ArrayList<>();
+      ArrayList<Task> updatedTasks = new ArrayList<>();
+      ArrayList<Long> updatedBytesDownloaded = new ArrayList<>();
+      long nowMs = SystemClock.elapsedRealtime();
       for (int i = 0; i < downloads.size(); i++) {
         Download download = downloads.get(i);
-        if (download.state == STATE_DOWNLOADING) {
-          try {
-            downloadIndex.putDownload(download);
-          } catch (IOException e) {
-            Log.e(TAG, "Failed to update index.", e);
+        @Nullable Task activeTask = activeTasks.get(download.request.id);
+        if (download.state != STATE_DOWNLOADING || activeTask == null || activeTask.isRemove) {
+          continue;
+        }
+        long bytesDownloaded = download.getBytesDownloaded();
+        if (activeTask.persistedBytesDownloaded != bytesDownloaded) {
+          updatedDownloads.add(download);
+          updatedTasks.add(activeTask);
+          updatedBytesDownloaded.add(bytesDownloaded);
+        }
+        DownloadMetrics metrics =
+            activeTask.updateMetrics(
+                bytesDownloaded, download.contentLength, download.getPercentDownloaded(), nowMs);
+        mainHandler
+            .obtainMessage(MSG_DOWNLOAD_METRICS, Pair.create(download, metrics))
+            .sendToTarget();
+      }
+      if (!updatedDownloads.isEmpty()) {
+        try {
+          downloadIndex.updateDownloadProgress(updatedDownloads);
+          // The written progress may be more recent, which at worst causes one more write.
+          for (int i = 0; i < updatedTasks.size(); i++) {
+            updatedTasks.get(i).persistedBytesDownloaded = updatedBytesDownloaded.get(i);
           }
+        } catch (IOException e) {
+          Log.e(TAG, "Failed to update index.", e);
         }
       }
       sendEmptyMessageDelayed(MSG_UPDATE_PROGRESS, UPDATE_PROGRESS_INTERVAL_MS);
@@ -1286,6 +1338,9 @@ public final class DownloadManager {
 
   private static class Task extends Thread implements Downloader.ProgressListener {
 
+    /** The weight of the latest measurement in the smoothed throughput. */
+    private static final double THROUGHPUT_SMOOTHING_FACTOR = 0.3;
+
     private final DownloadRequest request;
     private final Downloader downloader;
     private final DownloadProgress downloadProgress;
@@ -1298,6 +1353,19 @@ public final class DownloadManager {
 
     private long contentLength;
 
+    /**
+     * The number of bytes downloaded when the progress was last written to the index by {@link
+     * InternalHandler#updateProgress()}. Only accessed on the internal thread.
+     */
+    private long persistedBytesDownloaded;
+
+    // Throughput measurement state. Only accessed on the internal thread.
+    private long metricsBytesDownloaded;
+    private long metricsUpdateTimeMs;
+    private long throughputBitsPerSecond;
+
+    private volatile int retryCount;
+
     private Task(
         DownloadRequest request,
         Downloader downloader,
@@ -1312,6 +1380,10 @@ public final class DownloadManager {
       this.minRetryCount = minRetryCount;
       this.internalHandler = internalHandler;
       contentLength = C.LENGTH_UNSET;
+      persistedBytesDownloaded = C.LENGTH_UNSET;
+      metricsBytesDownloaded = downloadProgress.bytesDownloaded;
+      metricsUpdateTimeMs = SystemClock.elapsedRealtime();
+      throughputBitsPerSecond = C.LENGTH_UNSET;
     }
 
     @SuppressWarnings("nullness:assignment")
@@ -1339,6 +1411,7 @@ public final class DownloadManager {
           downloader.remove();
         } else {
           int errorCount = 0;
+          int retryCount = 0;
           long errorPosition = C.LENGTH_UNSET;
           while (!isCanceled) {
             try {
@@ -1354,6 +1427,7 @@ public final class DownloadManager {
                 if (++errorCount > minRetryCount) {
                   throw e;
                 }
+                this.retryCount = ++retryCount;
                 Thread.sleep(getRetryDelayMillis(errorCount));
               }
             }
@@ -1389,6 +1463,50 @@ public final class DownloadManager {
       }
     }
 
+    // Methods running on the internal thread.
+
+    /**
+     * Updates the throughput with the progress made since the previous call, and returns the
+     * resulting {@link DownloadMetrics}.
+     *
+     * @param bytesDownloaded The number of bytes downloaded.
+     * @param contentLength The length of the content, or {@link C#LENGTH_UNSET} if unknown.
+     * @param percentDownloaded The percentage downloaded, or {@link C#PERCENTAGE_UNSET} if unknown.
+     *     Used to estimate the remaining bytes if the length of the content is unknown.
+     * @param nowMs The current {@link SystemClock#elapsedRealtime()}.
+     * @return The {@link DownloadMetrics}.
+     */
+    private DownloadMetrics updateMetrics(
+        long bytesDownloaded, long contentLength, float percentDownloaded, long nowMs) {
+      long elapsedMs = nowMs - metricsUpdateTimeMs;
+      if (elapsedMs > 0) {
+        long bitsPerSecond =
+            max(bytesDownloaded - metricsBytesDownloaded, 0) * C.BITS_PER_BYTE * 1000 / elapsedMs;
+        throughputBitsPerSecond =
+            throughputBitsPerSecond == C.LENGTH_UNSET
+                ? bitsPerSecond
+                : (long)
+                    (THROUGHPUT_SMOOTHING_FACTOR * bitsPerSecond
+                        + (1 - THROUGHPUT_SMOOTHING_FACTOR) * throughputBitsPerSecond);
+        metricsBytesDownloaded = bytesDownloaded;
+        metricsUpdateTimeMs = nowMs;
+      }
+      long bitrate = max(throughputBitsPerSecond, 0);
+      long bytesRemaining = C.LENGTH_UNSET;
+      if (contentLength != C.LENGTH_UNSET) {
+        bytesRemaining = max(contentLength - bytesDownloaded, 0);
+      } else if (percentDownloaded > 0) {
+        // Segmented downloads don't know their length, so extrapolate from the completed fraction.
+        bytesRemaining =
+            (long) ((double) bytesDownloaded * max(100 - percentDownloaded, 0) / percentDownloaded);
+      }
+      long estimatedTimeRemainingMs = C.TIME_UNSET;
+      if (bytesRemaining != C.LENGTH_UNSET && bitrate > 0) {
+        estimatedTimeRemainingMs = bytesRemaining * C.BITS_PER_BYTE * 1000 / bitrate;
+      }
+      return new DownloadMetrics(bitrate, estimatedTimeRemainingMs, retryCount);
+    }
+
     private static int getRetryDelayMillis(int errorCount) {
       return min((errorCount - 1) * 1000, 5000);
     }
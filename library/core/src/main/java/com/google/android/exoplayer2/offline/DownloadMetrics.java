@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.offline;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.upstream.TransferLatencyTracker;
+import com.google.android.exoplayer2.upstream.cache.CacheDataSink;
+
+/**
+ * Metrics describing how an in-progress download is progressing.
+ *
+ * <p>Connection latencies, times to first byte and cache write latencies aren't specific to a
+ * download. They can be measured by a {@link TransferLatencyTracker} and by {@link
+ * CacheDataSink.Factory#experimentalSetWriteLatencyHistogram}, set on the factories of the data
+ * sources used by the {@link DownloaderFactory}.
+ *
+ * @deprecated com.google.android.exoplayer2 is deprecated. Please migrate to androidx.media3 (which
+ *     contains the same ExoPlayer code). See <a
+ *     href="https://developer.android.com/guide/topics/media/media3/getting-started/migration-guide">the
+ *     migration guide</a> for more details, including a script to help with the migration.
+ */
+@Deprecated
+public final class DownloadMetrics {
+
+  /**
+   * The download throughput in bits per second, smoothed over the recent progress updates. This is
+   * the rate at which the download makes progress, which may include data read from the cache.
+   */
+  public final long throughputBitsPerSecond;
+  /**
+   * The estimated time until the download completes at the current throughput, in milliseconds, or
+   * {@link C#TIME_UNSET} if unknown.
+   */
+  public final long estimatedTimeRemainingMs;
+  /** The number of times the download has been retried after an error. */
+  public final int retryCount;
+
+  /**
+   * Creates an instance.
+   *
+   * @param throughputBitsPerSecond See {@link #throughputBitsPerSecond}.
+   * @param estimatedTimeRemainingMs See {@link #estimatedTimeRemainingMs}.
+   * @param retryCount See {@link #retryCount}.
+   */
+  public DownloadMetrics(
+      long throughputBitsPerSecond, long estimatedTimeRemainingMs, int retryCount) {
+    this.throughputBitsPerSecond = throughputBitsPerSecond;
+    this.estimatedTimeRemainingMs = estimatedTimeRemainingMs;
+    this.retryCount = retryCount;
+  }
+}
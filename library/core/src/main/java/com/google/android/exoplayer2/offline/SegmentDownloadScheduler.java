@@ -0,0 +1,257 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.offline;
+
+import static com.google.android.exoplayer2.util.Assertions.checkArgument;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+import android.net.Uri;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.util.Clock;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.TreeSet;
+
+/**
+ * Limits the number of segments that are downloaded concurrently by the {@link SegmentDownloader
+ * SegmentDownloaders} of all downloads.
+ *
+ * <p>The number of concurrent segment downloads is capped globally and per host. Within the global
+ * cap, the scheduler adapts the concurrency to the measured throughput. It increases the
+ * concurrency for as long as doing so increases the throughput, and decreases it when the
+ * throughput drops.
+ *
+ * <p>When segments are waiting to be downloaded, the segment with the earliest start time is
+ * downloaded first, across all downloads. The start of each download, where playback is most likely
+ * to start, is therefore downloaded before later parts of other downloads.
+ *
+ * <p>The scheduler is set on a {@link DefaultDownloaderFactory}. The {@link
+ * java.util.concurrent.Executor} of the factory should provide at least as many threads as the
+ * maximum number of concurrent segment downloads.
+ *
+ * @deprecated com.google.android.exoplayer2 is deprecated. Please migrate to androidx.media3 (which
+ *     contains the same ExoPlayer code). See <a
+ *     href="https://developer.android.com/guide/topics/media/media3/getting-started/migration-guide">the
+ *     migration guide</a> for more details, including a script to help with the migration.
+ */
+@Deprecated
+public final class SegmentDownloadScheduler {
+
+  /** The default maximum number of segments that are downloaded concurrently. */
+  public static final int DEFAULT_MAX_CONCURRENT_SEGMENT_DOWNLOADS = 6;
+  /** The default maximum number of segments that are downloaded concurrently from one host. */
+  public static final int DEFAULT_MAX_CONCURRENT_SEGMENT_DOWNLOADS_PER_HOST = 4;
+
+  /** A permit to download a segment. */
+  /* package */ static final class Permit {
+
+    private final String host;
+    private final long startTimeUs;
+    private final long sequenceNumber;
+
+    private boolean granted;
+    private boolean released;
+
+    private Permit(String host, long startTimeUs, long sequenceNumber) {
+      this.host = host;
+      this.startTimeUs = startTimeUs;
+      this.sequenceNumber = sequenceNumber;
+    }
+  }
+
+  private static final int INITIAL_CONCURRENCY_LIMIT = 2;
+  private static final double THROUGHPUT_INCREASE_FACTOR = 1.1;
+  private static final double THROUGHPUT_DECREASE_FACTOR = 0.9;
+
+  private final int maxConcurrentSegmentDownloads;
+  private final int maxConcurrentSegmentDownloadsPerHost;
+  private final Clock clock;
+  private final TreeSet<Permit> pendingPermits;
+  private final HashMap<String, Integer> inFlightCountsByHost;
+
+  private int concurrencyLimit;
+  private int inFlightCount;
+  private long nextSequenceNumber;
+  private long roundStartTimeMs;
+  private long roundBytesDownloaded;
+  private int roundReleasedCount;
+  private long lastRoundBitrate;
+
+  /** Creates an instance with default limits. */
+  public SegmentDownloadScheduler() {
+    this(
+        DEFAULT_MAX_CONCURRENT_SEGMENT_DOWNLOADS,
+        DEFAULT_MAX_CONCURRENT_SEGMENT_DOWNLOADS_PER_HOST);
+  }
+
+  /**
+   * Creates an instance.
+   *
+   * @param maxConcurrentSegmentDownloads The maximum number of segments that are downloaded
+   *     concurrently.
+   * @param maxConcurrentSegmentDownloadsPerHost The maximum number of segments that are downloaded
+   *     concurrently from one host.
+   */
+  public SegmentDownloadScheduler(
+      int maxConcurrentSegmentDownloads, int maxConcurrentSegmentDownloadsPerHost) {
+    this(maxConcurrentSegmentDownloads, maxConcurrentSegmentDownloadsPerHost, Clock.DEFAULT);
+  }
+
+  @VisibleForTesting
+  /* package */ SegmentDownloadScheduler(
+      int maxConcurrentSegmentDownloads, int maxConcurrentSegmentDownloadsPerHost, Clock clock) {
+    checkArgument(maxConcurrentSegmentDownloads > 0);
+    checkArgument(maxConcurrentSegmentDownloadsPerHost > 0);
+    this.maxConcurrentSegmentDownloads = maxConcurrentSegmentDownloads;
+    this.maxConcurrentSegmentDownloadsPerHost = maxConcurrentSegmentDownloadsPerHost;
+    this.clock = clock;
+    pendingPermits =
+        new TreeSet<>(
+            (permit1, permit2) ->
+                permit1.startTimeUs != permit2.startTimeUs
+                    ? Long.compare(permit1.startTimeUs, permit2.startTimeUs)
+                    : Long.compare(permit1.sequenceNumber, permit2.sequenceNumber));
+    inFlightCountsByHost = new HashMap<>();
+    concurrencyLimit = min(INITIAL_CONCURRENCY_LIMIT, maxConcurrentSegmentDownloads);
+    roundStartTimeMs = C.TIME_UNSET;
+  }
+
+  /** Returns the current maximum number of segments that are downloaded concurrently. */
+  public synchronized int getConcurrencyLimit() {
+    return concurrencyLimit;
+  }
+
+  /** Returns the number of segments that are currently downloaded. */
+  public synchronized int getInFlightCount() {
+    return inFlightCount;
+  }
+
+  /**
+   * Blocks until a segment may be downloaded.
+   *
+   * @param uri The {@link Uri} of the segment.
+   * @param startTimeUs The start time of the segment, in microseconds.
+   * @return The {@link Permit}, which must be passed to {@link #release} once the segment download
+   *     finishes.
+   * @throws InterruptedException If the thread is interrupted while waiting.
+   */
+  /* package */ synchronized Permit acquire(Uri uri, long startTimeUs)
+      throws InterruptedException {
+    @Nullable String host = uri.getHost();
+    Permit permit = new Permit(host != null ? host : "", startTimeUs, nextSequenceNumber++);
+    pendingPermits.add(permit);
+    grantPermits();
+    try {
+      while (!permit.granted) {
+        wait();
+      }
+    } catch (InterruptedException e) {
+      if (permit.granted) {
+        releaseInternal(permit, /* bytesDownloaded= */ C.LENGTH_UNSET);
+      } else {
+        pendingPermits.remove(permit);
+      }
+      throw e;
+    }
+    return permit;
+  }
+
+  /**
+   * Releases a {@link Permit}. Does nothing if the permit is already released.
+   *
+   * @param permit The {@link Permit}.
+   * @param bytesDownloaded The number of bytes downloaded with the permit, or {@link
+   *     C#LENGTH_UNSET} if the download was canceled.
+   */
+  /* package */ synchronized void release(Permit permit, long bytesDownloaded) {
+    if (!permit.released) {
+      releaseInternal(permit, bytesDownloaded);
+    }
+  }
+
+  @VisibleForTesting
+  /* package */ synchronized int getPendingCount() {
+    return pendingPermits.size();
+  }
+
+  private void releaseInternal(Permit permit, long bytesDownloaded) {
+    permit.released = true;
+    inFlightCount--;
+    int hostInFlightCount = getInFlightCount(permit.host) - 1;
+    if (hostInFlightCount == 0) {
+      inFlightCountsByHost.remove(permit.host);
+    } else {
+      inFlightCountsByHost.put(permit.host, hostInFlightCount);
+    }
+    if (bytesDownloaded != C.LENGTH_UNSET) {
+      roundBytesDownloaded += bytesDownloaded;
+      roundReleasedCount++;
+      if (roundReleasedCount >= concurrencyLimit) {
+        onRoundEnded();
+      }
+    }
+    grantPermits();
+  }
+
+  private void onRoundEnded() {
+    long nowMs = clock.elapsedRealtime();
+    long elapsedMs = nowMs - roundStartTimeMs;
+    if (elapsedMs > 0) {
+      long bitrate = roundBytesDownloaded * C.BITS_PER_BYTE * 1000 / elapsedMs;
+      if (lastRoundBitrate == 0 || bitrate >= lastRoundBitrate * THROUGHPUT_INCREASE_FACTOR) {
+        // More concurrency has helped, or there is no previous measurement yet.
+        concurrencyLimit = min(concurrencyLimit + 1, maxConcurrentSegmentDownloads);
+      } else if (bitrate <= lastRoundBitrate * THROUGHPUT_DECREASE_FACTOR) {
+        concurrencyLimit = max(concurrencyLimit - 1, 1);
+      }
+      lastRoundBitrate = bitrate;
+    }
+    roundStartTimeMs = inFlightCount > 0 ? nowMs : C.TIME_UNSET;
+    roundBytesDownloaded = 0;
+    roundReleasedCount = 0;
+  }
+
+  private void grantPermits() {
+    boolean grantedPermit = false;
+    Iterator<Permit> iterator = pendingPermits.iterator();
+    while (inFlightCount < concurrencyLimit && iterator.hasNext()) {
+      Permit permit = iterator.next();
+      int hostInFlightCount = getInFlightCount(permit.host);
+      if (hostInFlightCount >= maxConcurrentSegmentDownloadsPerHost) {
+        continue;
+      }
+      iterator.remove();
+      permit.granted = true;
+      grantedPermit = true;
+      inFlightCount++;
+      inFlightCountsByHost.put(permit.host, hostInFlightCount + 1);
+      if (roundStartTimeMs == C.TIME_UNSET) {
+        roundStartTimeMs = clock.elapsedRealtime();
+      }
+    }
+    if (grantedPermit) {
+      notifyAll();
+    }
+  }
+
+  private int getInFlightCount(String host) {
+    @Nullable Integer hostInFlightCount = inFlightCountsByHost.get(host);
+    return hostInFlightCount != null ? hostInFlightCount : 0;
+  }
+}
@@ -102,6 +102,7 @@ public abstract class SegmentDownloader<M extends FilterableManifest<M>> impleme
   private final ArrayList<RunnableFutureTask<?, ?>> activeRunnables;
 
   private volatile boolean isCanceled;
+  @Nullable private SegmentDownloadScheduler segmentDownloadScheduler;
 
   /**
    * @deprecated Use {@link SegmentDownloader#SegmentDownloader(MediaItem, Parser,
@@ -152,6 +153,22 @@ public abstract class SegmentDownloader<M extends FilterableManifest<M>> impleme
     maxMergedSegmentStartTimeDiffUs = Util.msToUs(maxMergedSegmentStartTimeDiffMs);
   }
 
+  /**
+   * Sets a {@link SegmentDownloadScheduler} that limits the number of segments that are downloaded
+   * concurrently across downloads. By default, no scheduler is used and segments are downloaded as
+   * fast as the {@link Executor} permits.
+   *
+   * <p>This method is experimental, and will be renamed or removed in a future release. It should
+   * only be called before {@link #download}.
+   *
+   * @param segmentDownloadScheduler The {@link SegmentDownloadScheduler}, or {@code null} to not
+   *     use a scheduler.
+   */
+  public final void experimentalSetSegmentDownloadScheduler(
+      @Nullable SegmentDownloadScheduler segmentDownloadScheduler) {
+    this.segmentDownloadScheduler = segmentDownloadScheduler;
+  }
+
   @Override
   public final void download(@Nullable ProgressListener progressListener)
       throws IOException, InterruptedException {
@@ -237,9 +254,20 @@ public abstract class SegmentDownloader<M extends FilterableManifest<M>> impleme
           temporaryBuffer = new byte[BUFFER_SIZE_BYTES];
         }
         Segment segment = pendingSegments.removeFirst();
+        // Block until the scheduler permits another segment download.
+        @Nullable
+        SegmentDownloadScheduler.Permit permit =
+            segmentDownloadScheduler != null
+                ? segmentDownloadScheduler.acquire(segment.dataSpec.uri, segment.startTimeUs)
+                : null;
         SegmentDownloadRunnable downloadRunnable =
             new SegmentDownloadRunnable(
-                segment, segmentDataSource, progressNotifier, temporaryBuffer);
+                segment,
+                segmentDataSource,
+                progressNotifier,
+                temporaryBuffer,
+                segmentDownloadScheduler,
+                permit);
         addActiveRunnable(downloadRunnable);
         executor.execute(downloadRunnable);
 
@@ -285,7 +313,10 @@ public abstract class SegmentDownloader<M extends FilterableManifest<M>> impleme
       // Wait until the runnables have finished. In addition to the failure case, we also need to
       // do this for the case where the main download thread was interrupted as part of cancelation.
       for (int i = activeRunnables.size() - 1; i >= 0; i--) {
-        activeRunnables.get(i).blockUntilFinished();
+        SegmentDownloadRunnable activeRunnable = (SegmentDownloadRunnable) activeRunnables.get(i);
+        activeRunnable.blockUntilFinished();
+        // Runnables that were canceled before they started haven't released their permit.
+        activeRunnable.releasePermit(/* completed= */ false);
         removeActiveRunnable(i);
       }
       if (priorityTaskManager != null) {
@@ -489,36 +520,92 @@ public abstract class SegmentDownloader<M extends FilterableManifest<M>> impleme
     public final CacheDataSource dataSource;
     @Nullable private final ProgressNotifier progressNotifier;
     public final byte[] temporaryBuffer;
+    @Nullable private final SegmentDownloadScheduler segmentDownloadScheduler;
+    @Nullable private final SegmentDownloadScheduler.Permit permit;
+    @Nullable private final ByteCountingProgressListener byteCountingProgressListener;
     private final CacheWriter cacheWriter;
 
     public SegmentDownloadRunnable(
         Segment segment,
         CacheDataSource dataSource,
         @Nullable ProgressNotifier progressNotifier,
-        byte[] temporaryBuffer) {
+        byte[] temporaryBuffer,
+        @Nullable SegmentDownloadScheduler segmentDownloadScheduler,
+        @Nullable SegmentDownloadScheduler.Permit permit) {
       this.segment = segment;
       this.dataSource = dataSource;
       this.progressNotifier = progressNotifier;
       this.temporaryBuffer = temporaryBuffer;
-      this.cacheWriter =
-          new CacheWriter(dataSource, segment.dataSpec, temporaryBuffer, progressNotifier);
+      this.segmentDownloadScheduler = segmentDownloadScheduler;
+      this.permit = permit;
+      if (permit != null) {
+        byteCountingProgressListener = new ByteCountingProgressListener(progressNotifier);
+        this.cacheWriter =
+            new CacheWriter(
+                dataSource, segment.dataSpec, temporaryBuffer, byteCountingProgressListener);
+      } else {
+        byteCountingProgressListener = null;
+        this.cacheWriter =
+            new CacheWriter(dataSource, segment.dataSpec, temporaryBuffer, progressNotifier);
+      }
     }
 
     @Override
     protected Void doWork() throws IOException {
-      cacheWriter.cache();
+      boolean completed = false;
+      try {
+        cacheWriter.cache();
+        completed = true;
+      } finally {
+        releasePermit(completed);
+      }
       if (progressNotifier != null) {
         progressNotifier.onSegmentDownloaded();
       }
       return null;
     }
 
+    /**
+     * Releases the permit of the segment download, if any. Does nothing if the permit is already
+     * released.
+     *
+     * @param completed Whether the segment download completed successfully.
+     */
+    public void releasePermit(boolean completed) {
+      if (segmentDownloadScheduler != null && permit != null) {
+        segmentDownloadScheduler.release(
+            permit,
+            completed && byteCountingProgressListener != null
+                ? byteCountingProgressListener.bytesDownloaded
+                : C.LENGTH_UNSET);
+      }
+    }
+
     @Override
     protected void cancelWork() {
       cacheWriter.cancel();
     }
   }
 
+  private static final class ByteCountingProgressListener implements CacheWriter.ProgressListener {
+
+    @Nullable private final ProgressNotifier progressNotifier;
+
+    private long bytesDownloaded;
+
+    public ByteCountingProgressListener(@Nullable ProgressNotifier progressNotifier) {
+      this.progressNotifier = progressNotifier;
+    }
+
+    @Override
+    public void onProgress(long requestLength, long bytesCached, long newBytesCached) {
+      bytesDownloaded += newBytesCached;
+      if (progressNotifier != null) {
+        progressNotifier.onProgress(requestLength, bytesCached, newBytesCached);
+      }
+    }
+  }
+
   private static final class ProgressNotifier implements CacheWriter.ProgressListener {
 
     private final ProgressListener progressListener;
@@ -17,6 +17,7 @@ package com.google.android.exoplayer2.offline;
 
 import androidx.annotation.WorkerThread;
 import java.io.IOException;
+import java.util.List;
 
 /**
  * A writable index of {@link Download Downloads}.
@@ -40,6 +41,28 @@ public interface WritableDownloadIndex extends DownloadIndex {
    */
   void putDownload(Download download) throws IOException;
 
+  /**
+   * Updates the progress ({@link Download#getBytesDownloaded()} and {@link
+   * Download#getPercentDownloaded()}) of the given {@link Download Downloads}. The other fields of
+   * the downloads are not updated. Downloads that don't exist in the index are ignored.
+   *
+   * <p>This method may be slow and shouldn't normally be called on the main thread.
+   *
+   * <p>The default implementation calls {@link #putDownload} for each download that exists in the
+   * index. Implementations should override it if they can update the progress more efficiently.
+   *
+   * @param downloads The {@link Download Downloads} whose progress should be updated.
+   * @throws IOException If an error occurs updating the progress.
+   */
+  default void updateDownloadProgress(List<Download> downloads) throws IOException {
+    for (int i = 0; i < downloads.size(); i++) {
+      Download download = downloads.get(i);
+      if (getDownload(download.request.id) != null) {
+        putDownload(download);
+      }
+    }
+  }
+
   /**
    * Removes the download with the given ID. Does nothing if a download with the given ID does not
    * exist.
@@ -15,6 +15,7 @@
  */
 package com.google.android.exoplayer2.source;
 
+import static java.lang.Math.max;
 import static java.lang.Math.min;
 
 import androidx.annotation.Nullable;
@@ -355,14 +356,8 @@ import java.util.Arrays;
     }
 
     // Write the clear and encrypted subsample sizes.
-    @Nullable int[] clearDataSizes = cryptoInfo.numBytesOfClearData;
-    if (clearDataSizes == null || clearDataSizes.length < subsampleCount) {
-      clearDataSizes = new int[subsampleCount];
-    }
-    @Nullable int[] encryptedDataSizes = cryptoInfo.numBytesOfEncryptedData;
-    if (encryptedDataSizes == null || encryptedDataSizes.length < subsampleCount) {
-      encryptedDataSizes = new int[subsampleCount];
-    }
+    int[] clearDataSizes = ensureCapacity(cryptoInfo.numBytesOfClearData, subsampleCount);
+    int[] encryptedDataSizes = ensureCapacity(cryptoInfo.numBytesOfEncryptedData, subsampleCount);
     if (subsampleEncryption) {
       int subsampleDataLength = 6 * subsampleCount;
       scratch.reset(subsampleDataLength);
@@ -397,6 +392,19 @@ import java.util.Arrays;
     return allocationNode;
   }
 
+  /**
+   * Returns {@code array} if it has at least {@code minLength} elements, or a new larger array
+   * otherwise. Arrays grow geometrically, so that the subsample size arrays of a {@link CryptoInfo}
+   * are only reallocated a few times for content whose subsample counts vary.
+   */
+  private static int[] ensureCapacity(@Nullable int[] array, int minLength) {
+    if (array != null && array.length >= minLength) {
+      return array;
+    }
+    int length = array == null ? 0 : array.length;
+    return new int[max(minLength, 2 * length)];
+  }
+
   /**
    * Reads data from {@code allocationNode} and its following nodes.
    *
@@ -0,0 +1,269 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.source.preload;
+
+import static com.google.android.exoplayer2.util.Assertions.checkArgument;
+import static com.google.android.exoplayer2.util.Assertions.checkState;
+
+import android.os.Looper;
+import androidx.annotation.Nullable;
+import com.google.android.exoplayer2.ExoPlayer;
+import com.google.android.exoplayer2.LoadControl;
+import com.google.android.exoplayer2.MediaItem;
+import com.google.android.exoplayer2.Renderer;
+import com.google.android.exoplayer2.RendererCapabilities;
+import com.google.android.exoplayer2.source.MediaSource;
+import com.google.android.exoplayer2.trackselection.TrackSelector;
+import com.google.android.exoplayer2.upstream.Allocator;
+import com.google.android.exoplayer2.upstream.BandwidthMeter;
+import com.google.android.exoplayer2.upstream.DefaultAllocator;
+import com.google.android.exoplayer2.util.Util;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Preloads the {@link MediaSource MediaSources} of upcoming {@link MediaItem MediaItems}, so that
+ * playback of an item starts without waiting for its manifest, DRM keys and first media chunks.
+ *
+ * <p>The app reports the upcoming items in the order in which they're likely to be played with
+ * {@link #setUpcomingMediaItems(List)}. The manager preloads the first {@link #maxPreloadCount}
+ * items. Each item loads up to {@link #targetPreloadDurationMs} of media from its default position,
+ * and all items together load at most {@link #maxPreloadBytes} of media. To play an item, the app
+ * passes the source returned by {@link #getMediaSource(MediaItem)} to the player, for example with
+ * {@link ExoPlayer#setMediaSource(MediaSource)}. The player then takes over the preloaded media.
+ *
+ * <p>Preloading happens on the playback thread of the player. The player must therefore be built
+ * with {@link ExoPlayer.Builder#setPlaybackLooper(Looper)}, passing the same {@link Looper} that's
+ * passed to the manager.
+ *
+ * <p>Media is preloaded into an {@link Allocator} of the manager, so that preloading doesn't count
+ * towards the target buffer size of the player's {@link LoadControl} while another item plays. A
+ * preloaded item is only taken over by a player whose {@link LoadControl} uses the allocator passed
+ * to the manager, and the item then loads further media into that allocator. Other players load
+ * the item again. As the media preloaded for an item isn't counted by the player's {@link
+ * LoadControl} once it's taken over, the player may buffer up to {@link #targetPreloadDurationMs}
+ * more media for the item.
+ *
+ * <p>The methods of the manager must be called on the thread on which it's created.
+ *
+ * @deprecated com.google.android.exoplayer2 is deprecated. Please migrate to androidx.media3 (which
+ *     contains the same ExoPlayer code). See <a
+ *     href="https://developer.android.com/guide/topics/media/media3/getting-started/migration-guide">the
+ *     migration guide</a> for more details, including a script to help with the migration.
+ */
+@Deprecated
+public final class PreloadManager {
+
+  /** The default maximum number of items that are preloaded. */
+  public static final int DEFAULT_MAX_PRELOAD_COUNT = 2;
+  /** The default duration of media that's preloaded per item, in milliseconds. */
+  public static final long DEFAULT_TARGET_PRELOAD_DURATION_MS = 5_000;
+  /** The default maximum number of bytes of media that are preloaded for all items together. */
+  public static final int DEFAULT_MAX_PRELOAD_BYTES = 8 * 1024 * 1024;
+
+  /** The maximum number of items that are preloaded. */
+  public final int maxPreloadCount;
+  /** The duration of media that's preloaded per item, in milliseconds. */
+  public final long targetPreloadDurationMs;
+  /** The maximum number of bytes of media that are preloaded for all items together. */
+  public final int maxPreloadBytes;
+
+  private final MediaSource.Factory mediaSourceFactory;
+  private final TrackSelector trackSelector;
+  private final BandwidthMeter bandwidthMeter;
+  private final RendererCapabilities[] rendererCapabilities;
+  private final Looper playbackLooper;
+  private final Looper applicationLooper;
+  private final Allocator allocator;
+  private final DefaultAllocator sharedPreloadAllocator;
+  private final AtomicInteger preloadedBytes;
+  private final PreloadMediaSource.PreloadControl preloadControl;
+  private final HashMap<MediaItem, PreloadMediaSource> mediaSources;
+
+  private boolean released;
+
+  /**
+   * Creates an instance with default preload limits.
+   *
+   * @param mediaSourceFactory The {@link MediaSource.Factory} used to create sources for items.
+   * @param trackSelector The {@link TrackSelector} used to select the preloaded tracks. Must not be
+   *     used by a player. Preloaded tracks are handed over to the player if the player selects the
+   *     same tracks, so the selector should be configured like the selector of the player.
+   * @param bandwidthMeter The {@link BandwidthMeter} of the player.
+   * @param rendererCapabilities The {@link RendererCapabilities} of the renderers of the player,
+   *     obtained with {@link ExoPlayer#getRenderer(int)} and {@link Renderer#getCapabilities()}.
+   * @param playbackLooper The playback {@link Looper} of the player.
+   * @param allocator The {@link Allocator} of the {@link LoadControl} of the player, obtained with
+   *     {@link LoadControl#getAllocator()}. Media is loaded into it once the player takes over a
+   *     preloaded item.
+   */
+  public PreloadManager(
+      MediaSource.Factory mediaSourceFactory,
+      TrackSelector trackSelector,
+      BandwidthMeter bandwidthMeter,
+      RendererCapabilities[] rendererCapabilities,
+      Looper playbackLooper,
+      Allocator allocator) {
+    this(
+        mediaSourceFactory,
+        trackSelector,
+        bandwidthMeter,
+        rendererCapabilities,
+        playbackLooper,
+        allocator,
+        DEFAULT_MAX_PRELOAD_COUNT,
+        DEFAULT_TARGET_PRELOAD_DURATION_MS,
+        DEFAULT_MAX_PRELOAD_BYTES);
+  }
+
+  /**
+   * Creates an instance.
+   *
+   * @param mediaSourceFactory The {@link MediaSource.Factory} used to create sources for items.
+   * @param trackSelector The {@link TrackSelector} used to select the preloaded tracks. Must not be
+   *     used by a player. Preloaded tracks are handed over to the player if the player selects the
+   *     same tracks, so the selector should be configured like the selector of the player.
+   * @param bandwidthMeter The {@link BandwidthMeter} of the player.
+   * @param rendererCapabilities The {@link RendererCapabilities} of the renderers of the player,
+   *     obtained with {@link ExoPlayer#getRenderer(int)} and {@link Renderer#getCapabilities()}.
+   * @param playbackLooper The playback {@link Looper} of the player.
+   * @param allocator The {@link Allocator} of the {@link LoadControl} of the player, obtained with
+   *     {@link LoadControl#getAllocator()}. Media is loaded into it once the player takes over a
+   *     preloaded item.
+   * @param maxPreloadCount The maximum number of items that are preloaded.
+   * @param targetPreloadDurationMs The duration of media that's preloaded per item, in
+   *     milliseconds.
+   * @param maxPreloadBytes The maximum number of bytes of media that are preloaded for all items
+   *     together.
+   */
+  public PreloadManager(
+      MediaSource.Factory mediaSourceFactory,
+      TrackSelector trackSelector,
+      BandwidthMeter bandwidthMeter,
+      RendererCapabilities[] rendererCapabilities,
+      Looper playbackLooper,
+      Allocator allocator,
+      int maxPreloadCount,
+      long targetPreloadDurationMs,
+      int maxPreloadBytes) {
+    checkArgument(maxPreloadCount >= 0);
+    checkArgument(targetPreloadDurationMs >= 0);
+    checkArgument(maxPreloadBytes >= 0);
+    this.mediaSourceFactory = mediaSourceFactory;
+    this.trackSelector = trackSelector;
+    this.bandwidthMeter = bandwidthMeter;
+    this.rendererCapabilities = rendererCapabilities;
+    this.playbackLooper = playbackLooper;
+    this.allocator = allocator;
+    sharedPreloadAllocator =
+        new DefaultAllocator(/* trimOnReset= */ true, allocator.getIndividualAllocationLength());
+    this.maxPreloadCount = maxPreloadCount;
+    this.targetPreloadDurationMs = targetPreloadDurationMs;
+    this.maxPreloadBytes = maxPreloadBytes;
+    applicationLooper = Util.getCurrentOrMainLooper();
+    preloadedBytes = new AtomicInteger();
+    long targetPreloadDurationUs = Util.msToUs(targetPreloadDurationMs);
+    preloadControl =
+        (source, bufferedDurationUs) ->
+            bufferedDurationUs < targetPreloadDurationUs && preloadedBytes.get() < maxPreloadBytes;
+    mediaSources = new HashMap<>();
+    trackSelector.init(/* listener= */ () -> {}, bandwidthMeter);
+  }
+
+  /**
+   * Sets the upcoming items, in the order in which they're likely to be played.
+   *
+   * <p>The first {@link #maxPreloadCount} items are preloaded. Items that were preloaded before
+   * and are no longer among them stop preloading and release the resources held for preloading.
+   *
+   * @param mediaItems The upcoming {@link MediaItem MediaItems}.
+   */
+  public void setUpcomingMediaItems(List<MediaItem> mediaItems) {
+    verifyApplicationThread();
+    checkState(!released);
+    HashMap<MediaItem, PreloadMediaSource> upcomingMediaSources = new HashMap<>();
+    for (int i = 0; i < mediaItems.size() && upcomingMediaSources.size() < maxPreloadCount; i++) {
+      MediaItem mediaItem = mediaItems.get(i);
+      if (upcomingMediaSources.containsKey(mediaItem)) {
+        continue;
+      }
+      @Nullable PreloadMediaSource mediaSource = mediaSources.remove(mediaItem);
+      if (mediaSource == null) {
+        mediaSource =
+            new PreloadMediaSource(
+                mediaSourceFactory.createMediaSource(mediaItem),
+                playbackLooper,
+                trackSelector,
+                rendererCapabilities,
+                allocator,
+                sharedPreloadAllocator,
+                preloadedBytes,
+                bandwidthMeter,
+                preloadControl);
+        mediaSource.preload();
+      }
+      upcomingMediaSources.put(mediaItem, mediaSource);
+    }
+    for (PreloadMediaSource mediaSource : mediaSources.values()) {
+      mediaSource.releasePreload();
+    }
+    mediaSources.clear();
+    mediaSources.putAll(upcomingMediaSources);
+  }
+
+  /**
+   * Returns the {@link MediaSource} for an upcoming item, or null if the item isn't preloaded.
+   *
+   * <p>The source must be passed to the player instead of a source created for the item, so that
+   * the player takes over the preloaded media.
+   *
+   * @param mediaItem The {@link MediaItem}.
+   */
+  @Nullable
+  public MediaSource getMediaSource(MediaItem mediaItem) {
+    verifyApplicationThread();
+    return mediaSources.get(mediaItem);
+  }
+
+  /**
+   * Returns the number of bytes of media that are currently preloaded and haven't been taken over
+   * by a player.
+   */
+  public int getPreloadedBytes() {
+    return preloadedBytes.get();
+  }
+
+  /**
+   * Releases the manager. Preloaded sources that are used by a player remain usable by the player.
+   */
+  public void release() {
+    verifyApplicationThread();
+    if (released) {
+      return;
+    }
+    released = true;
+    for (PreloadMediaSource mediaSource : mediaSources.values()) {
+      mediaSource.releasePreload();
+    }
+    mediaSources.clear();
+    trackSelector.release();
+  }
+
+  private void verifyApplicationThread() {
+    checkState(Looper.myLooper() == applicationLooper);
+  }
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.source.preload;
+
+import static com.google.android.exoplayer2.util.Assertions.checkNotNull;
+import static com.google.android.exoplayer2.util.Assertions.checkState;
+
+import androidx.annotation.Nullable;
+import com.google.android.exoplayer2.SeekParameters;
+import com.google.android.exoplayer2.source.MediaPeriod;
+import com.google.android.exoplayer2.source.SampleStream;
+import com.google.android.exoplayer2.source.TrackGroupArray;
+import com.google.android.exoplayer2.trackselection.ExoTrackSelection;
+import com.google.android.exoplayer2.util.Util;
+import java.io.IOException;
+import org.checkerframework.checker.nullness.compatqual.NullableType;
+
+/**
+ * Wraps a {@link MediaPeriod} that's prepared and loaded before it's used by the player.
+ *
+ * <p>While preloading, the callbacks of the wrapped period are delivered to the preload callback.
+ * Once the player prepares the period, they're delivered to the player instead. If the tracks
+ * selected by the player are the same as the tracks selected for preloading, the preloaded {@link
+ * SampleStream SampleStreams} are handed over to the player together with the data they've loaded.
+ * The wrapped period is always given the player's {@link ExoTrackSelection ExoTrackSelections}, so
+ * that it adapts with the player's selections, and the preload selections are disabled.
+ */
+/* package */ final class PreloadMediaPeriod implements MediaPeriod, MediaPeriod.Callback {
+
+  /** The wrapped {@link MediaPeriod}. */
+  public final MediaPeriod mediaPeriod;
+
+  /** The position at which the period is preloaded, in microseconds. */
+  public final long preloadPositionUs;
+
+  @Nullable private Callback preloadCallback;
+  @Nullable private Callback callback;
+  private boolean prepared;
+  @Nullable private PreloadTrackSelectionHolder preloadTrackSelectionHolder;
+
+  /**
+   * Creates an instance.
+   *
+   * @param mediaPeriod The {@link MediaPeriod} to wrap.
+   * @param preloadPositionUs The position at which the period is preloaded, in microseconds.
+   */
+  public PreloadMediaPeriod(MediaPeriod mediaPeriod, long preloadPositionUs) {
+    this.mediaPeriod = mediaPeriod;
+    this.preloadPositionUs = preloadPositionUs;
+  }
+
+  /**
+   * Prepares the wrapped period for preloading.
+   *
+   * @param preloadCallback The {@link Callback} that's notified while the period is preloaded.
+   */
+  public void preload(Callback preloadCallback) {
+    this.preloadCallback = preloadCallback;
+    mediaPeriod.prepare(/* callback= */ this, preloadPositionUs);
+  }
+
+  /** Returns whether the period is used by the player. */
+  public boolean isUsedByPlayer() {
+    return callback != null;
+  }
+
+  /**
+   * Selects tracks for preloading. Must only be called once the period is prepared and before it's
+   * used by the player.
+   *
+   * @param selections The {@link ExoTrackSelection ExoTrackSelections} to preload, one per
+   *     renderer.
+   */
+  public void selectPreloadTracks(@NullableType ExoTrackSelection[] selections) {
+    checkState(prepared && !isUsedByPlayer() && preloadTrackSelectionHolder == null);
+    for (ExoTrackSelection selection : selections) {
+      if (selection != null) {
+        selection.enable();
+      }
+    }
+    @NullableType SampleStream[] streams = new SampleStream[selections.length];
+    mediaPeriod.selectTracks(
+        selections,
+        /* mayRetainStreamFlags= */ new boolean[selections.length],
+        streams,
+        /* streamResetFlags= */ new boolean[selections.length],
+        preloadPositionUs);
+    preloadTrackSelectionHolder = new PreloadTrackSelectionHolder(selections, streams);
+  }
+
+  @Override
+  public void prepare(Callback callback, long positionUs) {
+    this.callback = callback;
+    if (prepared) {
+      callback.onPrepared(/* mediaPeriod= */ this);
+    }
+  }
+
+  @Override
+  public void maybeThrowPrepareError() throws IOException {
+    mediaPeriod.maybeThrowPrepareError();
+  }
+
+  @Override
+  public TrackGroupArray getTrackGroups() {
+    return mediaPeriod.getTrackGroups();
+  }
+
+  @Override
+  public long selectTracks(
+      @NullableType ExoTrackSelection[] selections,
+      boolean[] mayRetainStreamFlags,
+      @NullableType SampleStream[] streams,
+      boolean[] streamResetFlags,
+      long positionUs) {
+    @Nullable PreloadTrackSelectionHolder holder = preloadTrackSelectionHolder;
+    if (holder == null) {
+      return mediaPeriod.selectTracks(
+          selections, mayRetainStreamFlags, streams, streamResetFlags, positionUs);
+    }
+    preloadTrackSelectionHolder = null;
+    @NullableType ExoTrackSelection[] preloadSelections = holder.selections;
+    @NullableType SampleStream[] preloadStreams = holder.streams;
+    boolean handOverStreams =
+        positionUs == preloadPositionUs && isSameSelection(selections, preloadSelections);
+    for (ExoTrackSelection selection : preloadSelections) {
+      if (selection != null) {
+        selection.disable();
+      }
+    }
+    if (handOverStreams) {
+      // Retain the preloaded streams, which select the same tracks, and replace the preload
+      // selections of the wrapped period with the player's selections.
+      boolean[] retainStreamFlags = new boolean[streams.length];
+      for (int i = 0; i < streams.length; i++) {
+        streams[i] = preloadStreams[i];
+        retainStreamFlags[i] = true;
+      }
+      long selectedPositionUs =
+          mediaPeriod.selectTracks(
+              selections, retainStreamFlags, streams, streamResetFlags, positionUs);
+      for (int i = 0; i < streams.length; i++) {
+        // The streams are new to the player.
+        streamResetFlags[i] |= streams[i] != null;
+      }
+      return selectedPositionUs;
+    }
+    // Release the preloaded streams before selecting the requested tracks.
+    mediaPeriod.selectTracks(
+        new ExoTrackSelection[preloadStreams.length],
+        /* mayRetainStreamFlags= */ new boolean[preloadStreams.length],
+        preloadStreams,
+        /* streamResetFlags= */ new boolean[preloadStreams.length],
+        positionUs);
+    return mediaPeriod.selectTracks(
+        selections, mayRetainStreamFlags, streams, streamResetFlags, positionUs);
+  }
+
+  @Override
+  public void discardBuffer(long positionUs, boolean toKeyframe) {
+    mediaPeriod.discardBuffer(positionUs, toKeyframe);
+  }
+
+  @Override
+  public long readDiscontinuity() {
+    return mediaPeriod.readDiscontinuity();
+  }
+
+  @Override
+  public long seekToUs(long positionUs) {
+    return mediaPeriod.seekToUs(positionUs);
+  }
+
+  @Override
+  public long getAdjustedSeekPositionUs(long positionUs, SeekParameters seekParameters) {
+    return mediaPeriod.getAdjustedSeekPositionUs(positionUs, seekParameters);
+  }
+
+  @Override
+  public long getBufferedPositionUs() {
+    return mediaPeriod.getBufferedPositionUs();
+  }
+
+  @Override
+  public long getNextLoadPositionUs() {
+    return mediaPeriod.getNextLoadPositionUs();
+  }
+
+  @Override
+  public boolean continueLoading(long positionUs) {
+    return mediaPeriod.continueLoading(positionUs);
+  }
+
+  @Override
+  public boolean isLoading() {
+    return mediaPeriod.isLoading();
+  }
+
+  @Override
+  public void reevaluateBuffer(long positionUs) {
+    mediaPeriod.reevaluateBuffer(positionUs);
+  }
+
+  // MediaPeriod.Callback implementation.
+
+  @Override
+  public void onPrepared(MediaPeriod mediaPeriod) {
+    prepared = true;
+    getActiveCallback().onPrepared(/* mediaPeriod= */ this);
+  }
+
+  @Override
+  public void onContinueLoadingRequested(MediaPeriod source) {
+    getActiveCallback().onContinueLoadingRequested(/* source= */ this);
+  }
+
+  private Callback getActiveCallback() {
+    return callback != null ? callback : checkNotNull(preloadCallback);
+  }
+
+  private static boolean isSameSelection(
+      @NullableType ExoTrackSelection[] selections,
+      @NullableType ExoTrackSelection[] otherSelections) {
+    if (selections.length != otherSelections.length) {
+      return false;
+    }
+    for (int i = 0; i < selections.length; i++) {
+      @Nullable ExoTrackSelection selection = selections[i];
+      @Nullable ExoTrackSelection otherSelection = otherSelections[i];
+      if (selection == null || otherSelection == null) {
+        if (selection != otherSelection) {
+          return false;
+        }
+        continue;
+      }
+      if (!Util.areEqual(selection.getTrackGroup(), otherSelection.getTrackGroup())
+          || selection.length() != otherSelection.length()) {
+        return false;
+      }
+      for (int j = 0; j < selection.length(); j++) {
+        if (selection.getIndexInTrackGroup(j) != otherSelection.getIndexInTrackGroup(j)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private static final class PreloadTrackSelectionHolder {
+
+    public final @NullableType ExoTrackSelection[] selections;
+    public final @NullableType SampleStream[] streams;
+
+    public PreloadTrackSelectionHolder(
+        @NullableType ExoTrackSelection[] selections, @NullableType SampleStream[] streams) {
+      this.selections = selections;
+      this.streams = streams;
+    }
+  }
+}
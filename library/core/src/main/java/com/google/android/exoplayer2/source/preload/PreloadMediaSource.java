@@ -0,0 +1,337 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.source.preload;
+
+import static com.google.android.exoplayer2.util.Assertions.checkNotNull;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Pair;
+import androidx.annotation.Nullable;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.ExoPlaybackException;
+import com.google.android.exoplayer2.RendererCapabilities;
+import com.google.android.exoplayer2.Timeline;
+import com.google.android.exoplayer2.analytics.PlayerId;
+import com.google.android.exoplayer2.source.MediaPeriod;
+import com.google.android.exoplayer2.source.MediaSource;
+import com.google.android.exoplayer2.source.WrappingMediaSource;
+import com.google.android.exoplayer2.trackselection.TrackSelector;
+import com.google.android.exoplayer2.trackselection.TrackSelectorResult;
+import com.google.android.exoplayer2.upstream.Allocation;
+import com.google.android.exoplayer2.upstream.Allocator;
+import com.google.android.exoplayer2.upstream.BandwidthMeter;
+import com.google.android.exoplayer2.util.Log;
+import com.google.common.collect.Sets;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link MediaSource} that can be prepared, and can load the start of its default position,
+ * before it's used by a player.
+ *
+ * <p>Instances are created by a {@link PreloadManager}. Preloading loads the manifest, selects
+ * tracks and loads media until the {@link PreloadManager} stops it. Loading media also acquires the
+ * {@link com.google.android.exoplayer2.drm.DrmSession DrmSessions} of the loaded formats.
+ *
+ * <p>Media is preloaded into an {@link Allocator} that's shared by the sources of the {@link
+ * PreloadManager}, rather than the allocator of the player's {@link
+ * com.google.android.exoplayer2.LoadControl}, so that preloading doesn't count towards the buffer
+ * of the item that's playing. When the player creates a period at the preloaded position with the
+ * allocator passed to the {@link PreloadManager}, the preloaded period is handed over to the player
+ * together with the loaded media, and loads further media into the player's allocator. The
+ * preloaded media stays in the shared allocator until it's released, so the player's {@link
+ * com.google.android.exoplayer2.LoadControl} may buffer up to that amount of media more for the
+ * item. If the player uses another allocator, the preloaded period is released and the player's
+ * period is created anew.
+ *
+ * <p>Preloading happens on the playback thread of the player, so the source must only be used by
+ * a player whose playback {@link Looper} is the one passed to the {@link PreloadManager}.
+ *
+ * @deprecated com.google.android.exoplayer2 is deprecated. Please migrate to androidx.media3 (which
+ *     contains the same ExoPlayer code). See <a
+ *     href="https://developer.android.com/guide/topics/media/media3/getting-started/migration-guide">the
+ *     migration guide</a> for more details, including a script to help with the migration.
+ */
+@Deprecated
+public final class PreloadMediaSource extends WrappingMediaSource {
+
+  /** Controls how much media a {@link PreloadMediaSource} loads. */
+  /* package */ interface PreloadControl {
+
+    /**
+     * Returns whether a source should continue loading.
+     *
+     * @param source The source.
+     * @param bufferedDurationUs The duration of media that's loaded, in microseconds.
+     */
+    boolean shouldContinueLoading(PreloadMediaSource source, long bufferedDurationUs);
+  }
+
+  private static final String TAG = "PreloadMediaSource";
+
+  private final Handler preloadHandler;
+  private final TrackSelector trackSelector;
+  private final RendererCapabilities[] rendererCapabilities;
+  private final Allocator allocator;
+  private final Allocator sharedPreloadAllocator;
+  private final AtomicInteger preloadedBytes;
+  private final BandwidthMeter bandwidthMeter;
+  private final PreloadControl preloadControl;
+  private final MediaSourceCaller preloadCaller;
+  private final MediaPeriod.Callback preloadCallback;
+
+  private boolean preloading;
+  @Nullable private Timeline preloadTimeline;
+  @Nullable private MediaPeriodId preloadMediaPeriodId;
+  @Nullable private PreloadMediaPeriod preloadMediaPeriod;
+  @Nullable private PreloadAllocator preloadAllocator;
+  private boolean preloadTracksSelected;
+
+  /* package */ PreloadMediaSource(
+      MediaSource mediaSource,
+      Looper preloadLooper,
+      TrackSelector trackSelector,
+      RendererCapabilities[] rendererCapabilities,
+      Allocator allocator,
+      Allocator sharedPreloadAllocator,
+      AtomicInteger preloadedBytes,
+      BandwidthMeter bandwidthMeter,
+      PreloadControl preloadControl) {
+    super(mediaSource);
+    this.trackSelector = trackSelector;
+    this.rendererCapabilities = rendererCapabilities;
+    this.allocator = allocator;
+    this.sharedPreloadAllocator = sharedPreloadAllocator;
+    this.preloadedBytes = preloadedBytes;
+    this.bandwidthMeter = bandwidthMeter;
+    this.preloadControl = preloadControl;
+    preloadHandler = new Handler(preloadLooper);
+    preloadCaller = (source, timeline) -> onPreloadTimelineRefreshed(timeline);
+    preloadCallback = new PreloadCallback();
+  }
+
+  /** Starts preloading. Does nothing if the source is already preloading. */
+  /* package */ void preload() {
+    preloadHandler.post(
+        () -> {
+          if (!preloading) {
+            preloading = true;
+            prepareSource(preloadCaller, bandwidthMeter.getTransferListener(), PlayerId.UNSET);
+          }
+        });
+  }
+
+  /**
+   * Stops preloading and releases the resources held for preloading. Resources that were handed
+   * over to a player remain in use by the player.
+   */
+  /* package */ void releasePreload() {
+    preloadHandler.post(
+        () -> {
+          if (!preloading) {
+            return;
+          }
+          preloading = false;
+          if (preloadMediaPeriod != null) {
+            mediaSource.releasePeriod(preloadMediaPeriod.mediaPeriod);
+            preloadMediaPeriod = null;
+          }
+          preloadAllocator = null;
+          preloadMediaPeriodId = null;
+          preloadTimeline = null;
+          preloadTracksSelected = false;
+          releaseSource(preloadCaller);
+        });
+  }
+
+  @Override
+  public MediaPeriod createPeriod(MediaPeriodId id, Allocator allocator, long startPositionUs) {
+    @Nullable PreloadMediaPeriod preloadMediaPeriod = this.preloadMediaPeriod;
+    @Nullable MediaPeriodId preloadMediaPeriodId = this.preloadMediaPeriodId;
+    if (preloadMediaPeriod != null
+        && preloadMediaPeriodId != null
+        && !id.isAd()
+        && id.nextAdGroupIndex == C.INDEX_UNSET
+        && id.periodUid.equals(preloadMediaPeriodId.periodUid)
+        && startPositionUs == preloadMediaPeriod.preloadPositionUs) {
+      this.preloadMediaPeriod = null;
+      PreloadAllocator preloadAllocator = checkNotNull(this.preloadAllocator);
+      this.preloadAllocator = null;
+      if (allocator == this.allocator) {
+        // Hand over the preloaded period, which loads further media into the player's allocator.
+        preloadAllocator.onTakenOver();
+        return preloadMediaPeriod;
+      }
+      // The period would keep loading into an allocator that the player doesn't use, so rebuild it.
+      mediaSource.releasePeriod(preloadMediaPeriod.mediaPeriod);
+    }
+    return mediaSource.createPeriod(id, allocator, startPositionUs);
+  }
+
+  @Override
+  public void releasePeriod(MediaPeriod mediaPeriod) {
+    if (mediaPeriod instanceof PreloadMediaPeriod) {
+      mediaSource.releasePeriod(((PreloadMediaPeriod) mediaPeriod).mediaPeriod);
+    } else {
+      mediaSource.releasePeriod(mediaPeriod);
+    }
+  }
+
+  private void onPreloadTimelineRefreshed(Timeline timeline) {
+    if (!preloading || preloadMediaPeriodId != null || timeline.isEmpty()) {
+      return;
+    }
+    Pair<Object, Long> periodPosition =
+        timeline.getPeriodPositionUs(
+            new Timeline.Window(),
+            new Timeline.Period(),
+            timeline.getFirstWindowIndex(/* shuffleModeEnabled= */ false),
+            /* windowPositionUs= */ C.TIME_UNSET);
+    preloadTimeline = timeline;
+    preloadMediaPeriodId = new MediaPeriodId(periodPosition.first);
+    PreloadAllocator preloadAllocator = new PreloadAllocator();
+    this.preloadAllocator = preloadAllocator;
+    PreloadMediaPeriod preloadMediaPeriod =
+        new PreloadMediaPeriod(
+            mediaSource.createPeriod(preloadMediaPeriodId, preloadAllocator, periodPosition.second),
+            periodPosition.second);
+    this.preloadMediaPeriod = preloadMediaPeriod;
+    preloadMediaPeriod.preload(preloadCallback);
+  }
+
+  private void maybeContinueLoading() {
+    @Nullable PreloadMediaPeriod preloadMediaPeriod = this.preloadMediaPeriod;
+    if (preloadMediaPeriod == null || !preloadTracksSelected) {
+      return;
+    }
+    long bufferedPositionUs = preloadMediaPeriod.getBufferedPositionUs();
+    if (bufferedPositionUs != C.TIME_END_OF_SOURCE
+        && preloadControl.shouldContinueLoading(
+            /* source= */ this, bufferedPositionUs - preloadMediaPeriod.preloadPositionUs)) {
+      preloadMediaPeriod.continueLoading(preloadMediaPeriod.preloadPositionUs);
+    }
+  }
+
+  /**
+   * Allocates media from the shared preload allocator, counting it as preloaded, until the period
+   * is taken over by the player. Afterwards, media is allocated from the player's allocator.
+   * Allocations are always released to the allocator they came from. Allocations may happen on
+   * loading threads.
+   */
+  private final class PreloadAllocator implements Allocator {
+
+    private final Set<Allocation> preloadedAllocations;
+
+    private boolean takenOver;
+
+    public PreloadAllocator() {
+      preloadedAllocations = Sets.newIdentityHashSet();
+    }
+
+    /** Stops counting allocated bytes as preloaded, and allocates from the player's allocator. */
+    public synchronized void onTakenOver() {
+      if (!takenOver) {
+        takenOver = true;
+        preloadedBytes.addAndGet(-preloadedAllocations.size() * getIndividualAllocationLength());
+      }
+    }
+
+    @Override
+    public synchronized Allocation allocate() {
+      if (takenOver) {
+        return allocator.allocate();
+      }
+      Allocation allocation = sharedPreloadAllocator.allocate();
+      preloadedAllocations.add(allocation);
+      preloadedBytes.addAndGet(getIndividualAllocationLength());
+      return allocation;
+    }
+
+    @Override
+    public synchronized void release(Allocation allocation) {
+      if (!preloadedAllocations.remove(allocation)) {
+        allocator.release(allocation);
+        return;
+      }
+      sharedPreloadAllocator.release(allocation);
+      // Free the memory, as the shared allocator has no target buffer size to trim to.
+      sharedPreloadAllocator.trim();
+      if (!takenOver) {
+        preloadedBytes.addAndGet(-getIndividualAllocationLength());
+      }
+    }
+
+    @Override
+    public synchronized void release(AllocationNode allocationNode) {
+      for (@Nullable AllocationNode node = allocationNode; node != null; node = node.next()) {
+        release(node.getAllocation());
+      }
+    }
+
+    @Override
+    public void trim() {
+      allocator.trim();
+      sharedPreloadAllocator.trim();
+    }
+
+    @Override
+    public int getTotalBytesAllocated() {
+      return allocator.getTotalBytesAllocated();
+    }
+
+    @Override
+    public int getIndividualAllocationLength() {
+      return allocator.getIndividualAllocationLength();
+    }
+  }
+
+  private final class PreloadCallback implements MediaPeriod.Callback {
+
+    @Override
+    public void onPrepared(MediaPeriod mediaPeriod) {
+      @Nullable PreloadMediaPeriod preloadMediaPeriod = PreloadMediaSource.this.preloadMediaPeriod;
+      if (mediaPeriod != preloadMediaPeriod
+          || preloadMediaPeriodId == null
+          || preloadTimeline == null) {
+        // The period has been handed over or released.
+        return;
+      }
+      TrackSelectorResult trackSelectorResult;
+      try {
+        trackSelectorResult =
+            trackSelector.selectTracks(
+                rendererCapabilities,
+                preloadMediaPeriod.getTrackGroups(),
+                preloadMediaPeriodId,
+                preloadTimeline);
+      } catch (ExoPlaybackException e) {
+        Log.e(TAG, "Failed to select tracks for preloading", e);
+        return;
+      }
+      preloadMediaPeriod.selectPreloadTracks(trackSelectorResult.selections);
+      preloadTracksSelected = true;
+      maybeContinueLoading();
+    }
+
+    @Override
+    public void onContinueLoadingRequested(MediaPeriod source) {
+      if (source == preloadMediaPeriod) {
+        maybeContinueLoading();
+      }
+    }
+  }
+}
@@ -28,6 +28,7 @@ import androidx.annotation.Nullable;
 import com.google.android.exoplayer2.C;
 import com.google.android.exoplayer2.util.Assertions;
 import com.google.android.exoplayer2.util.Log;
+import com.google.android.exoplayer2.util.TraceRingBuffer;
 import com.google.android.exoplayer2.util.TraceUtil;
 import com.google.android.exoplayer2.util.Util;
 import java.io.IOException;
@@ -473,8 +474,25 @@ public final class Loader implements LoaderErrorThrower {
         throw (Error) msg.obj;
       }
       finish();
+      @Nullable TraceRingBuffer traceRingBuffer = TraceUtil.getTraceRingBuffer();
+      long callbackStartTimeNs = traceRingBuffer != null ? traceRingBuffer.getTimeNs() : 0;
       long nowMs = SystemClock.elapsedRealtime();
       long durationMs = nowMs - startTimeMs;
+      @TraceRingBuffer.RecordType
+      int traceRecordType =
+          canceled
+              ? TraceRingBuffer.RECORD_TYPE_LOAD_CANCELED
+              : msg.what == MSG_FINISH
+                  ? TraceRingBuffer.RECORD_TYPE_LOAD_COMPLETED
+                  : TraceRingBuffer.RECORD_TYPE_LOAD_ERROR;
+      handleLoadFinished(msg, nowMs, durationMs);
+      if (traceRingBuffer != null) {
+        traceRingBuffer.recordSpan(
+            traceRecordType, /* tag= */ 0, callbackStartTimeNs, /* value= */ durationMs);
+      }
+    }
+
+    private void handleLoadFinished(Message msg, long nowMs, long durationMs) {
       Loader.Callback<T> callback = Assertions.checkNotNull(this.callback);
       if (canceled) {
         callback.onLoadCanceled(loadable, nowMs, durationMs, false);
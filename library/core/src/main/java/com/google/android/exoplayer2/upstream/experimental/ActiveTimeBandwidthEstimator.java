@@ -0,0 +1,303 @@
+/*
+ * Copyright 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.upstream.experimental;
+
+import static com.google.android.exoplayer2.util.Assertions.checkArgument;
+import static com.google.android.exoplayer2.util.Assertions.checkNotNull;
+import static com.google.android.exoplayer2.util.Assertions.checkState;
+
+import android.os.Handler;
+import androidx.annotation.VisibleForTesting;
+import com.google.android.exoplayer2.upstream.BandwidthMeter;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.util.Clock;
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+
+/**
+ * A {@link BandwidthEstimator} that only counts the time during which data is actively
+ * transferred.
+ *
+ * <p>Parallel transfers are merged into a single timeline, so that the bytes of overlapping
+ * transfers are summed while their common time is counted once. Gaps between two consecutive byte
+ * arrivals that are longer than the {@link Builder#setIdleThresholdMs idle threshold} are treated
+ * as idle time and are excluded, together with the bytes whose arrival ends the gap. Such gaps
+ * occur when low-latency chunks are delivered at the encoding rate, and while waiting for the
+ * first byte of a response.
+ *
+ * <p>A sample is captured each time all parallel transfers end, and at least every {@link
+ * Builder#setMaxSampleDurationMs maximum sample duration} while transfers are ongoing.
+ *
+ * <p>To use the estimator for adaptive track selection, set it on an {@link
+ * ExperimentalBandwidthMeter} and pass the meter to the player.
+ *
+ * @deprecated com.google.android.exoplayer2 is deprecated. Please migrate to androidx.media3 (which
+ *     contains the same ExoPlayer code). See <a
+ *     href="https://developer.android.com/guide/topics/media/media3/getting-started/migration-guide">the
+ *     migration guide</a> for more details, including a script to help with the migration.
+ */
+@Deprecated
+public class ActiveTimeBandwidthEstimator implements BandwidthEstimator {
+
+  /** The default idle threshold, in milliseconds. */
+  public static final long DEFAULT_IDLE_THRESHOLD_MS = 100;
+  /** The default maximum sample duration, in milliseconds. */
+  public static final long DEFAULT_MAX_SAMPLE_DURATION_MS = 1000;
+
+  /** A builder to create {@link ActiveTimeBandwidthEstimator} instances. */
+  public static class Builder {
+    private BandwidthStatistic bandwidthStatistic;
+    private int minSamples;
+    private long minBytesTransferred;
+    private long idleThresholdMs;
+    private long maxSampleDurationMs;
+    private Clock clock;
+
+    /** Creates a new builder instance. */
+    public Builder() {
+      bandwidthStatistic = new SlidingWeightedAverageBandwidthStatistic();
+      idleThresholdMs = DEFAULT_IDLE_THRESHOLD_MS;
+      maxSampleDurationMs = DEFAULT_MAX_SAMPLE_DURATION_MS;
+      clock = Clock.DEFAULT;
+    }
+
+    /**
+     * Sets the {@link BandwidthStatistic} to be used by the estimator. By default, this is set to a
+     * {@link SlidingWeightedAverageBandwidthStatistic}.
+     *
+     * @param bandwidthStatistic The {@link BandwidthStatistic}.
+     * @return This builder for convenience.
+     */
+    @CanIgnoreReturnValue
+    public Builder setBandwidthStatistic(BandwidthStatistic bandwidthStatistic) {
+      checkNotNull(bandwidthStatistic);
+      this.bandwidthStatistic = bandwidthStatistic;
+      return this;
+    }
+
+    /**
+     * Sets a minimum threshold of samples that need to be taken before the estimator can return a
+     * bandwidth estimate. By default, this is set to {@code 0}.
+     *
+     * @param minSamples The minimum number of samples.
+     * @return This builder for convenience.
+     */
+    @CanIgnoreReturnValue
+    public Builder setMinSamples(int minSamples) {
+      checkArgument(minSamples >= 0);
+      this.minSamples = minSamples;
+      return this;
+    }
+
+    /**
+     * Sets a minimum threshold of bytes that need to be transferred before the estimator can return
+     * a bandwidth estimate. By default, this is set to {@code 0}.
+     *
+     * @param minBytesTransferred The minimum number of transferred bytes.
+     * @return This builder for convenience.
+     */
+    @CanIgnoreReturnValue
+    public Builder setMinBytesTransferred(long minBytesTransferred) {
+      checkArgument(minBytesTransferred >= 0);
+      this.minBytesTransferred = minBytesTransferred;
+      return this;
+    }
+
+    /**
+     * Sets the minimum duration of a gap between two byte arrivals for the gap to be treated as
+     * idle time. The threshold should be longer than the time between two network packets at the
+     * lowest bitrate of interest. By default, this is set to {@link #DEFAULT_IDLE_THRESHOLD_MS}.
+     *
+     * @param idleThresholdMs The idle threshold, in milliseconds.
+     * @return This builder for convenience.
+     */
+    @CanIgnoreReturnValue
+    public Builder setIdleThresholdMs(long idleThresholdMs) {
+      checkArgument(idleThresholdMs > 0);
+      this.idleThresholdMs = idleThresholdMs;
+      return this;
+    }
+
+    /**
+     * Sets the maximum duration of a sample while transfers are ongoing. By default, this is set
+     * to {@link #DEFAULT_MAX_SAMPLE_DURATION_MS}.
+     *
+     * @param maxSampleDurationMs The maximum sample duration, in milliseconds.
+     * @return This builder for convenience.
+     */
+    @CanIgnoreReturnValue
+    public Builder setMaxSampleDurationMs(long maxSampleDurationMs) {
+      checkArgument(maxSampleDurationMs > 0);
+      this.maxSampleDurationMs = maxSampleDurationMs;
+      return this;
+    }
+
+    /**
+     * Sets the {@link Clock} used by the estimator. By default, this is set to {@link
+     * Clock#DEFAULT}.
+     *
+     * @param clock The {@link Clock} to be used.
+     * @return This builder for convenience.
+     */
+    @CanIgnoreReturnValue
+    @VisibleForTesting
+    /* package */ Builder setClock(Clock clock) {
+      this.clock = clock;
+      return this;
+    }
+
+    public ActiveTimeBandwidthEstimator build() {
+      return new ActiveTimeBandwidthEstimator(this);
+    }
+  }
+
+  private final BandwidthStatistic bandwidthStatistic;
+  private final int minSamples;
+  private final long minBytesTransferred;
+  private final long idleThresholdMs;
+  private final long maxSampleDurationMs;
+  private final BandwidthMeter.EventListener.EventDispatcher eventDispatcher;
+  private final Clock clock;
+
+  private int streamCount;
+  private long sampleStartTimeMs;
+  private long lastActivityTimeMs;
+  private long sampleActiveTimeMs;
+  private long sampleActiveBytesTransferred;
+  private long sampleBytesTransferred;
+  private long bandwidthEstimate;
+  private long lastReportedBandwidthEstimate;
+  private int totalSamplesAdded;
+  private long totalBytesTransferred;
+
+  private ActiveTimeBandwidthEstimator(Builder builder) {
+    this.bandwidthStatistic = builder.bandwidthStatistic;
+    this.minSamples = builder.minSamples;
+    this.minBytesTransferred = builder.minBytesTransferred;
+    this.idleThresholdMs = builder.idleThresholdMs;
+    this.maxSampleDurationMs = builder.maxSampleDurationMs;
+    this.clock = builder.clock;
+    eventDispatcher = new BandwidthMeter.EventListener.EventDispatcher();
+    bandwidthEstimate = ESTIMATE_NOT_AVAILABLE;
+    lastReportedBandwidthEstimate = ESTIMATE_NOT_AVAILABLE;
+  }
+
+  @Override
+  public void addEventListener(Handler eventHandler, BandwidthMeter.EventListener eventListener) {
+    eventDispatcher.addListener(eventHandler, eventListener);
+  }
+
+  @Override
+  public void removeEventListener(BandwidthMeter.EventListener eventListener) {
+    eventDispatcher.removeListener(eventListener);
+  }
+
+  @Override
+  public void onTransferInitializing(DataSource source) {}
+
+  @Override
+  public void onTransferStart(DataSource source) {
+    if (streamCount == 0) {
+      long nowMs = clock.elapsedRealtime();
+      sampleStartTimeMs = nowMs;
+      lastActivityTimeMs = nowMs;
+    }
+    streamCount++;
+  }
+
+  @Override
+  public void onBytesTransferred(DataSource source, int bytesTransferred) {
+    long nowMs = clock.elapsedRealtime();
+    long gapMs = nowMs - lastActivityTimeMs;
+    lastActivityTimeMs = nowMs;
+    sampleBytesTransferred += bytesTransferred;
+    totalBytesTransferred += bytesTransferred;
+    if (gapMs <= idleThresholdMs) {
+      sampleActiveTimeMs += gapMs;
+      sampleActiveBytesTransferred += bytesTransferred;
+    }
+    if (streamCount > 0 && nowMs - sampleStartTimeMs >= maxSampleDurationMs) {
+      addSample(nowMs);
+      sampleStartTimeMs = nowMs;
+    }
+  }
+
+  @Override
+  public void onTransferEnd(DataSource source) {
+    checkState(streamCount > 0);
+    streamCount--;
+    if (streamCount > 0) {
+      return;
+    }
+    addSample(clock.elapsedRealtime());
+  }
+
+  @Override
+  public long getBandwidthEstimate() {
+    return bandwidthEstimate;
+  }
+
+  @Override
+  public void onNetworkTypeChange(long newBandwidthEstimate) {
+    long nowMs = clock.elapsedRealtime();
+    maybeNotifyBandwidthSample(
+        (int) sampleActiveTimeMs, sampleActiveBytesTransferred, newBandwidthEstimate);
+    bandwidthStatistic.reset();
+    bandwidthEstimate = ESTIMATE_NOT_AVAILABLE;
+    sampleStartTimeMs = nowMs;
+    lastActivityTimeMs = nowMs;
+    resetSample();
+    totalSamplesAdded = 0;
+    totalBytesTransferred = 0;
+  }
+
+  private void addSample(long nowMs) {
+    long sampleBytes = sampleActiveBytesTransferred;
+    long sampleTimeMs = sampleActiveTimeMs;
+    if (sampleTimeMs == 0) {
+      // All gaps were longer than the idle threshold, for example because the bitrate is very low.
+      // Fall back to the elapsed time of the sample.
+      sampleBytes = sampleBytesTransferred;
+      sampleTimeMs = nowMs - sampleStartTimeMs;
+    }
+    if (sampleTimeMs > 0 && sampleBytes > 0) {
+      bandwidthStatistic.addSample(sampleBytes, sampleTimeMs * 1000);
+      totalSamplesAdded++;
+      if (totalSamplesAdded > minSamples && totalBytesTransferred > minBytesTransferred) {
+        bandwidthEstimate = bandwidthStatistic.getBandwidthEstimate();
+      }
+      maybeNotifyBandwidthSample((int) sampleTimeMs, sampleBytes, bandwidthEstimate);
+    }
+    resetSample();
+  }
+
+  private void resetSample() {
+    sampleActiveTimeMs = 0;
+    sampleActiveBytesTransferred = 0;
+    sampleBytesTransferred = 0;
+  }
+
+  private void maybeNotifyBandwidthSample(
+      int elapsedMs, long bytesTransferred, long bandwidthEstimate) {
+    if ((bandwidthEstimate == ESTIMATE_NOT_AVAILABLE)
+        || (elapsedMs == 0
+            && bytesTransferred == 0
+            && bandwidthEstimate == lastReportedBandwidthEstimate)) {
+      return;
+    }
+    lastReportedBandwidthEstimate = bandwidthEstimate;
+    eventDispatcher.bandwidthSample(elapsedMs, bytesTransferred, bandwidthEstimate);
+  }
+}
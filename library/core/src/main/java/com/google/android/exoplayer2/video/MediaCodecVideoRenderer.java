@@ -146,6 +146,16 @@ public class MediaCodecVideoRenderer extends MediaCodecRenderer implements Media
   /** The minimum input buffer size for HEVC. */
   private static final int HEVC_MAX_INPUT_SIZE_THRESHOLD = 2 * 1024 * 1024;
 
+  /**
+   * How early a frame can be handed to the {@link VideoFrameReleaseThread}, in microseconds.
+   * Frames further ahead are kept by the playback thread so that the codec is not starved of
+   * output buffers.
+   */
+  private static final long FRAME_RELEASE_THREAD_MAX_EARLY_US = 200_000;
+
+  /** The interval at which frame pacing statistics are reported while started, in milliseconds. */
+  private static final long FRAME_PACING_STATS_REPORT_INTERVAL_MS = 10_000;
+
   private static boolean evaluatedDeviceNeedsSetOutputSurfaceWorkaround;
   private static boolean deviceNeedsSetOutputSurfaceWorkaround;
 
@@ -171,6 +181,7 @@ public class MediaCodecVideoRenderer extends MediaCodecRenderer implements Media
   private long initialPositionUs;
   private long joiningDeadlineMs;
   private long droppedFrameAccumulationStartTimeMs;
+  private long framePacingStatsReportTimeMs;
   private int droppedFrames;
   private int consecutiveDroppedFrameCount;
   private int buffersInCodecCount;
@@ -190,6 +201,9 @@ public class MediaCodecVideoRenderer extends MediaCodecRenderer implements Media
   @Nullable private VideoFrameMetadataListener frameMetadataListener;
   private boolean shouldDropBuffersToKeyframe;
   private boolean shouldForceRenderBuffer;
+  private boolean frameReleaseThreadEnabled;
+  @Nullable private VideoFrameReleaseThread frameReleaseThread;
+  private long frameReleaseThreadRenderedFrameCount;
 
   private long firstRenderTimeMs = 0;
   private long dropStartMs;
@@ -377,6 +391,27 @@ public class MediaCodecVideoRenderer extends MediaCodecRenderer implements Media
     clearReportedVideoSize();
   }
 
+  /**
+   * Sets whether output buffers are released to the display from a dedicated high priority thread,
+   * rather than from the playback thread.
+   *
+   * <p>When enabled, the playback thread hands decoded frames to the release thread together with
+   * their vsync adjusted release times. The release thread then releases each frame shortly before
+   * its release time, keeping it in sync with the media clock, so that frame release jitter no
+   * longer depends on how busy the playback thread is. The playback thread priority is not raised
+   * in this mode. Has no effect when tunneling or when video effects are used, or on API levels
+   * below 21.
+   *
+   * <p>This method should be called right after creating an instance of this class.
+   *
+   * <p>This method is experimental, and will be renamed or removed in a future release.
+   *
+   * @param enabled Whether to release frames from a dedicated thread.
+   */
+  public void experimentalSetFrameReleaseThreadEnabled(boolean enabled) {
+    frameReleaseThreadEnabled = enabled && Util.SDK_INT >= 21;
+  }
+
   @Override
   public String getName() {
     return TAG;
@@ -585,6 +620,10 @@ public class MediaCodecVideoRenderer extends MediaCodecRenderer implements Media
       releaseCodec();
     }
     eventDispatcher.enabled(decoderCounters);
+    if (frameReleaseThreadEnabled && frameReleaseThread == null) {
+      frameReleaseThread = new VideoFrameReleaseThread(frameReleaseHelper.getFramePacingTracker());
+      frameReleaseThreadRenderedFrameCount = 0;
+    }
     mayRenderFirstFrameAfterEnableIfNotStarted = mayRenderStartOfStream;
     renderedFirstFrameAfterEnable = false;
   }
@@ -614,6 +653,9 @@ public class MediaCodecVideoRenderer extends MediaCodecRenderer implements Media
     if (videoFrameProcessorManager.isEnabled()) {
       isEnded &= videoFrameProcessorManager.releasedLastFrame();
     }
+    if (frameReleaseThread != null) {
+      isEnded &= frameReleaseThread.getPendingFrameCount() == 0;
+    }
     return isEnded;
   }
 
@@ -648,10 +690,14 @@ public class MediaCodecVideoRenderer extends MediaCodecRenderer implements Media
     super.onStarted();
     droppedFrames = 0;
     droppedFrameAccumulationStartTimeMs = SystemClock.elapsedRealtime();
+    framePacingStatsReportTimeMs = droppedFrameAccumulationStartTimeMs;
     lastRenderRealtimeUs = SystemClock.elapsedRealtime() * 1000;
     totalVideoFrameProcessingOffsetUs = 0;
     videoFrameProcessingOffsetCount = 0;
     frameReleaseHelper.onStarted();
+    if (frameReleaseThread != null) {
+      frameReleaseThread.start();
+    }
   }
 
   @Override
@@ -659,7 +705,11 @@ public class MediaCodecVideoRenderer extends MediaCodecRenderer implements Media
     joiningDeadlineMs = C.TIME_UNSET;
     maybeNotifyDroppedFrames();
     maybeNotifyVideoFrameProcessingOffset();
+    maybeNotifyVideoFramePacingStats();
     frameReleaseHelper.onStopped();
+    if (frameReleaseThread != null) {
+      frameReleaseThread.stop();
+    }
     super.onStopped();
   }
 
@@ -689,6 +739,11 @@ public class MediaCodecVideoRenderer extends MediaCodecRenderer implements Media
       if (placeholderSurface != null) {
         releasePlaceholderSurface();
       }
+      updateFrameReleaseThreadCounters();
+      if (frameReleaseThread != null) {
+        frameReleaseThread.release();
+        frameReleaseThread = null;
+      }
     }
   }
 
@@ -789,6 +844,11 @@ public class MediaCodecVideoRenderer extends MediaCodecRenderer implements Media
 
     // We only need to update the codec if the display surface has changed.
     if (this.displaySurface != displaySurface) {
+      updateFrameReleaseThreadCounters();
+      if (frameReleaseThread != null) {
+        // Frames pending release were timed for the previous surface.
+        decoderCounters.skippedOutputBufferCount += frameReleaseThread.flush();
+      }
       this.displaySurface = displaySurface;
       frameReleaseHelper.onSurfaceChanged(displaySurface);
       haveReportedFirstFrameRenderedForCurrentSurface = false;
@@ -892,6 +952,36 @@ public class MediaCodecVideoRenderer extends MediaCodecRenderer implements Media
         crypto);
   }
 
+  @Override
+  @Nullable
+  protected MediaCodecAdapter.Configuration getMediaCodecPrewarmConfiguration(
+      MediaCodecInfo codecInfo, Format format, Format[] streamFormats) {
+    // The codec is configured with its own placeholder surface, which is replaced by the actual
+    // output surface when the codec is used. The surface in use can't be shared, as it may still be
+    // attached to the current codec.
+    if (Util.SDK_INT < 23
+        || codecInfo.secure
+        || !shouldUsePlaceholderSurface(codecInfo)
+        || glSurfaceView != null
+        || videoFrameProcessorManager.isEnabled()) {
+      return null;
+    }
+    MediaFormat mediaFormat =
+        getMediaFormat(
+            format,
+            codecInfo.codecMimeType,
+            getCodecMaxValues(codecInfo, format, streamFormats),
+            CODEC_OPERATING_RATE_UNSET,
+            deviceNeedsNoPostProcessWorkaround,
+            C.AUDIO_SESSION_ID_UNSET);
+    return MediaCodecAdapter.Configuration.createForVideoDecoding(
+        codecInfo,
+        mediaFormat,
+        format,
+        PlaceholderSurface.newInstanceV17(context, /* secure= */ false),
+        /* crypto= */ null);
+  }
+
   @Override
   protected DecoderReuseEvaluation canReuseCodec(
       MediaCodecInfo codecInfo, Format oldFormat, Format newFormat) {
@@ -916,7 +1006,16 @@ public class MediaCodecVideoRenderer extends MediaCodecRenderer implements Media
   @CallSuper
   @Override
   public void render(long positionUs, long elapsedRealtimeUs) throws ExoPlaybackException {
+    if (frameReleaseThread != null) {
+      frameReleaseThread.updateClock(positionUs, elapsedRealtimeUs, getPlaybackSpeed());
+    }
     super.render(positionUs, elapsedRealtimeUs);
+    maybeNotifyFrameReleaseThreadRenderedFrames();
+    if (getState() == STATE_STARTED
+        && SystemClock.elapsedRealtime() - framePacingStatsReportTimeMs
+            >= FRAME_PACING_STATS_REPORT_INTERVAL_MS) {
+      maybeNotifyVideoFramePacingStats();
+    }
     if (videoFrameProcessorManager.isEnabled()) {
       videoFrameProcessorManager.releaseProcessedFrames(positionUs, elapsedRealtimeUs);
     }
@@ -1046,6 +1145,20 @@ public class MediaCodecVideoRenderer extends MediaCodecRenderer implements Media
     videoFrameProcessorManager.onCodecInitialized(name);
   }
 
+  @Override
+  protected void onCodecAboutToBeFlushedOrReleased() {
+    updateFrameReleaseThreadCounters();
+    if (frameReleaseThread != null) {
+      decoderCounters.skippedOutputBufferCount += frameReleaseThread.flush();
+    }
+  }
+
+  @Override
+  protected boolean shouldRaisePlaybackThreadPriority(Format format) {
+    // With a dedicated release thread, frame timing no longer depends on the playback thread.
+    return frameReleaseThread == null && super.shouldRaisePlaybackThreadPriority(format);
+  }
+
   @Override
   protected void onCodecReleased(String name) {
     eventDispatcher.decoderReleased(name);
@@ -1301,6 +1414,38 @@ public class MediaCodecVideoRenderer extends MediaCodecRenderer implements Media
       return false;
     }
 
+    if (frameReleaseThread != null && !tunneling) {
+      if (earlyUs < FRAME_RELEASE_THREAD_MAX_EARLY_US && frameReleaseThread.canQueueFrame()) {
+        if (adjustedReleaseTimeNs == lastFrameReleaseTimeNs) {
+          // Same vsync as the previous frame. See the equivalent case below. The buffer is skipped
+          // by the release thread, so that it's released after the frames queued before it.
+          checkNotNull(frameReleaseThread)
+              .queueFrame(
+                  codec,
+                  bufferIndex,
+                  bufferPresentationTimeUs,
+                  unadjustedFrameReleaseTimeNs,
+                  adjustedReleaseTimeNs,
+                  /* render= */ false);
+          decoderCounters.skippedOutputBufferCount++;
+        } else {
+          notifyFrameMetadataListener(presentationTimeUs, adjustedReleaseTimeNs, format);
+          // The frame is reported to the frame pacing tracker by the release thread.
+          queueOutputBufferForRelease(
+              codec,
+              bufferIndex,
+              bufferPresentationTimeUs,
+              unadjustedFrameReleaseTimeNs,
+              adjustedReleaseTimeNs);
+        }
+        updateVideoFrameProcessingOffsetCounters(earlyUs);
+        lastFrameReleaseTimeNs = adjustedReleaseTimeNs;
+        lastPositionUsForRender = positionUs;
+        return true;
+      }
+      return false;
+    }
+
     if (Util.SDK_INT >= 21) {
       // Let the underlying framework time the release.
       boolean foreceRender = systemTimeNs/1000 > lastRenderRealtimeUs+1000000 && positionUs == lastRenderRealtimeUs;
@@ -1316,6 +1461,10 @@ public class MediaCodecVideoRenderer extends MediaCodecRenderer implements Media
         {
           notifyFrameMetadataListener(presentationTimeUs, adjustedReleaseTimeNs, format);
           renderOutputBufferV21(codec, bufferIndex, presentationTimeUs, adjustedReleaseTimeNs);
+          frameReleaseHelper.onFrameReleased(
+              unadjustedFrameReleaseTimeNs,
+              adjustedReleaseTimeNs,
+              /* releaseCallTimeNs= */ System.nanoTime());
         }
         updateVideoFrameProcessingOffsetCounters(earlyUs);
         lastFrameReleaseTimeNs = adjustedReleaseTimeNs;
@@ -1487,6 +1636,7 @@ public class MediaCodecVideoRenderer extends MediaCodecRenderer implements Media
    * @param presentationTimeUs The presentation time of the output buffer, in microseconds.
    */
   protected void skipOutputBuffer(MediaCodecAdapter codec, int index, long presentationTimeUs) {
+    drainFrameReleaseThread();
     TraceUtil.beginSection("skipVideoBuffer");
     codec.releaseOutputBuffer(index, false);
     TraceUtil.endSection();
@@ -1501,6 +1651,7 @@ public class MediaCodecVideoRenderer extends MediaCodecRenderer implements Media
    * @param presentationTimeUs The presentation time of the output buffer, in microseconds.
    */
   protected void dropOutputBuffer(MediaCodecAdapter codec, int index, long presentationTimeUs) {
+    drainFrameReleaseThread();
     TraceUtil.beginSection("dropVideoBuffer");
     codec.releaseOutputBuffer(index, false);
     TraceUtil.endSection();
@@ -1650,6 +1801,7 @@ public class MediaCodecVideoRenderer extends MediaCodecRenderer implements Media
    * @param presentationTimeUs The presentation time of the output buffer, in microseconds.
    */
   protected void renderOutputBuffer(MediaCodecAdapter codec, int index, long presentationTimeUs) {
+    drainFrameReleaseThread();
     TraceUtil.beginSection("releaseOutputBuffer");
     codec.releaseOutputBuffer(index, true);
     TraceUtil.endSection();
@@ -1678,8 +1830,8 @@ public class MediaCodecVideoRenderer extends MediaCodecRenderer implements Media
   @RequiresApi(21)
   protected void renderOutputBufferV21(
       MediaCodecAdapter codec, int index, long presentationTimeUs, long releaseTimeNs) {
+    drainFrameReleaseThread();
     TraceUtil.beginSection("releaseOutputBuffer");
-
     codec.releaseOutputBuffer(index, releaseTimeNs);
     TraceUtil.endSection();
     decoderCounters.renderedOutputBufferCount++;
@@ -1692,6 +1844,80 @@ public class MediaCodecVideoRenderer extends MediaCodecRenderer implements Media
     }
   }
 
+  /**
+   * Hands the output buffer to the {@link VideoFrameReleaseThread}, which releases it to the
+   * display shortly before its release time. The rendered frame counters are updated by {@link
+   * #updateFrameReleaseThreadCounters()} once the frame has actually been released.
+   *
+   * @param codec The codec that owns the output buffer.
+   * @param index The index of the output buffer.
+   * @param bufferPresentationTimeUs The presentation timestamp of the output buffer, with the
+   *     stream offset added.
+   * @param unadjustedReleaseTimeNs The release time derived from the media clock, in nanoseconds.
+   * @param releaseTimeNs The vsync adjusted release time, in nanoseconds.
+   */
+  private void queueOutputBufferForRelease(
+      MediaCodecAdapter codec,
+      int index,
+      long bufferPresentationTimeUs,
+      long unadjustedReleaseTimeNs,
+      long releaseTimeNs) {
+    checkNotNull(frameReleaseThread)
+        .queueFrame(
+            codec,
+            index,
+            bufferPresentationTimeUs,
+            unadjustedReleaseTimeNs,
+            releaseTimeNs,
+            /* render= */ true);
+    consecutiveDroppedFrameCount = 0;
+  }
+
+  /**
+   * Releases any frames pending in the {@link VideoFrameReleaseThread}, so that an output buffer
+   * that's about to be released directly isn't released before frames that precede it.
+   */
+  private void drainFrameReleaseThread() {
+    if (frameReleaseThread != null && frameReleaseThread.getPendingFrameCount() > 0) {
+      frameReleaseThread.drain();
+      maybeNotifyFrameReleaseThreadRenderedFrames();
+    }
+  }
+
+  /**
+   * Updates the rendered frame counters with the frames released by the release thread and, if any
+   * were released since the last update, notifies that frames were rendered.
+   */
+  private void maybeNotifyFrameReleaseThreadRenderedFrames() {
+    if (updateFrameReleaseThreadCounters()) {
+      lastRenderRealtimeUs = SystemClock.elapsedRealtime() * 1000;
+      maybeNotifyVideoSizeChanged(decodedVideoSize);
+      maybeNotifyRenderedFirstFrame();
+    }
+  }
+
+  /**
+   * Updates the rendered frame counters with the frames released by the release thread.
+   *
+   * @return Whether any frames were released since the last update.
+   */
+  private boolean updateFrameReleaseThreadCounters() {
+    @Nullable VideoFrameReleaseThread frameReleaseThread = this.frameReleaseThread;
+    if (frameReleaseThread == null) {
+      return false;
+    }
+    long renderedFrameCount = frameReleaseThread.getRenderedFrameCount();
+    if (renderedFrameCount == frameReleaseThreadRenderedFrameCount) {
+      return false;
+    }
+    decoderCounters.renderedOutputBufferCount +=
+        (int) (renderedFrameCount - frameReleaseThreadRenderedFrameCount);
+    decoderCounters.curRenderPts =
+        frameReleaseThread.getLastRenderedPresentationTimeUs() - getOutputStreamOffsetUs();
+    frameReleaseThreadRenderedFrameCount = renderedFrameCount;
+    return true;
+  }
+
   private boolean shouldUsePlaceholderSurface(MediaCodecInfo codecInfo) {
     return Util.SDK_INT >= 23
         && !tunneling
@@ -1784,6 +2010,14 @@ public class MediaCodecVideoRenderer extends MediaCodecRenderer implements Media
     }
   }
 
+  private void maybeNotifyVideoFramePacingStats() {
+    framePacingStatsReportTimeMs = SystemClock.elapsedRealtime();
+    VideoFramePacingStats framePacingStats = frameReleaseHelper.getAndResetFramePacingStats();
+    if (framePacingStats.releasedFrameCount != 0) {
+      eventDispatcher.reportVideoFramePacingStats(framePacingStats);
+    }
+  }
+
   private static boolean isBufferLate(long earlyUs) {
     // Class a buffer as late if it should have been presented more than 30 ms ago.
     return earlyUs < -30000;
@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.video;
+
+import static com.google.android.exoplayer2.util.Assertions.checkArgument;
+
+import androidx.annotation.Nullable;
+import com.google.android.exoplayer2.util.Util;
+import java.util.Arrays;
+
+/**
+ * Frame pacing statistics of a video renderer.
+ *
+ * <p>For every released frame, the renderer compares the time at which the frame is displayed with
+ * the release time derived from the media clock. A frame released to the codec ahead of its vsync
+ * aligned release time is displayed at that time, whereas a frame released after it is displayed
+ * at the first vsync following the release. The difference (the release delta) is recorded in a
+ * histogram with {@link #RELEASE_DELTA_BUCKET_COUNT} buckets. A positive delta means the frame is
+ * shown later than the media clock asks for, a negative delta means it's shown earlier.
+ *
+ * <p>The number of vsync intervals between consecutive frames (the cadence) is recorded too. A
+ * 24fps stream on a 60Hz display should have a repeating 2:3 cadence, whereas a 30fps stream should
+ * have a constant cadence of 2. Deviations from a detected repeating cadence are counted as {@link
+ * #cadenceBreakCount cadence breaks}, which are typically perceived as judder.
+ *
+ * @deprecated com.google.android.exoplayer2 is deprecated. Please migrate to androidx.media3 (which
+ *     contains the same ExoPlayer code). See <a
+ *     href="https://developer.android.com/guide/topics/media/media3/getting-started/migration-guide">the
+ *     migration guide</a> for more details, including a script to help with the migration.
+ */
+@Deprecated
+public final class VideoFramePacingStats {
+
+  /**
+   * The exclusive upper bounds of the release delta histogram buckets, in microseconds. The last
+   * bucket has no upper bound.
+   */
+  private static final long[] RELEASE_DELTA_BUCKET_UPPER_BOUNDS_US = {
+    -16_667, -8_333, -4_000, -2_000, -1_000, 0, 1_000, 2_000, 4_000, 8_333, 16_667
+  };
+
+  /** The number of buckets in the release delta histogram. */
+  public static final int RELEASE_DELTA_BUCKET_COUNT =
+      RELEASE_DELTA_BUCKET_UPPER_BOUNDS_US.length + 1;
+
+  /**
+   * The largest number of vsync intervals between consecutive frames that is tracked separately.
+   * Larger intervals are counted as this value.
+   */
+  public static final int MAX_TRACKED_VSYNC_INTERVALS = 6;
+
+  /** Empty stats. */
+  public static final VideoFramePacingStats EMPTY =
+      new VideoFramePacingStats(
+          /* releasedFrameCount= */ 0,
+          /* vsyncMissCount= */ 0,
+          /* cadenceBreakCount= */ 0,
+          /* cadencePattern= */ null,
+          new long[RELEASE_DELTA_BUCKET_COUNT],
+          new long[MAX_TRACKED_VSYNC_INTERVALS + 1]);
+
+  /** The number of frames released to the display. */
+  public final long releasedFrameCount;
+
+  /**
+   * The number of frames whose vsync adjusted release time had already passed when they were
+   * released to the codec, meaning they most likely missed the targeted vsync.
+   */
+  public final long vsyncMissCount;
+
+  /** The number of frames that broke a detected repeating cadence. */
+  public final long cadenceBreakCount;
+
+  /**
+   * The most recently detected repeating cadence, formatted as the number of vsync intervals per
+   * frame separated by colons (for example "2:3" or "2"), or null if no cadence was detected.
+   */
+  @Nullable public final String cadencePattern;
+
+  private final long[] releaseDeltaCounts;
+  private final long[] vsyncIntervalCounts;
+
+  /* package */ VideoFramePacingStats(
+      long releasedFrameCount,
+      long vsyncMissCount,
+      long cadenceBreakCount,
+      @Nullable String cadencePattern,
+      long[] releaseDeltaCounts,
+      long[] vsyncIntervalCounts) {
+    this.releasedFrameCount = releasedFrameCount;
+    this.vsyncMissCount = vsyncMissCount;
+    this.cadenceBreakCount = cadenceBreakCount;
+    this.cadencePattern = cadencePattern;
+    this.releaseDeltaCounts = releaseDeltaCounts;
+    this.vsyncIntervalCounts = vsyncIntervalCounts;
+  }
+
+  /**
+   * Returns the index of the release delta histogram bucket that contains a release delta.
+   *
+   * @param releaseDeltaUs The release delta, in microseconds.
+   * @return The index of the bucket, between 0 and {@link #RELEASE_DELTA_BUCKET_COUNT} - 1.
+   */
+  public static int getReleaseDeltaBucketIndex(long releaseDeltaUs) {
+    for (int i = 0; i < RELEASE_DELTA_BUCKET_UPPER_BOUNDS_US.length; i++) {
+      if (releaseDeltaUs < RELEASE_DELTA_BUCKET_UPPER_BOUNDS_US[i]) {
+        return i;
+      }
+    }
+    return RELEASE_DELTA_BUCKET_UPPER_BOUNDS_US.length;
+  }
+
+  /**
+   * Returns the exclusive upper bound of a release delta histogram bucket, in microseconds, or
+   * {@link Long#MAX_VALUE} for the last bucket.
+   *
+   * @param bucketIndex The index of the bucket.
+   */
+  public static long getReleaseDeltaBucketUpperBoundUs(int bucketIndex) {
+    checkArgument(bucketIndex >= 0 && bucketIndex < RELEASE_DELTA_BUCKET_COUNT);
+    return bucketIndex < RELEASE_DELTA_BUCKET_UPPER_BOUNDS_US.length
+        ? RELEASE_DELTA_BUCKET_UPPER_BOUNDS_US[bucketIndex]
+        : Long.MAX_VALUE;
+  }
+
+  /**
+   * Returns the number of frames with a release delta in the given histogram bucket.
+   *
+   * @param bucketIndex The index of the bucket, between 0 and {@link #RELEASE_DELTA_BUCKET_COUNT} -
+   *     1.
+   */
+  public long getReleaseDeltaCount(int bucketIndex) {
+    return releaseDeltaCounts[bucketIndex];
+  }
+
+  /**
+   * Returns the number of frames released the given number of vsync intervals after the previous
+   * frame.
+   *
+   * @param vsyncIntervals The number of vsync intervals, between 0 and {@link
+   *     #MAX_TRACKED_VSYNC_INTERVALS}. The count for {@link #MAX_TRACKED_VSYNC_INTERVALS} includes
+   *     all larger intervals.
+   */
+  public long getVsyncIntervalCount(int vsyncIntervals) {
+    return vsyncIntervalCounts[vsyncIntervals];
+  }
+
+  /**
+   * Returns stats combining these stats with {@code other}. The {@link #cadencePattern} of {@code
+   * other} is used if set, as it's assumed to be more recent.
+   */
+  public VideoFramePacingStats merge(VideoFramePacingStats other) {
+    long[] releaseDeltaCounts = new long[RELEASE_DELTA_BUCKET_COUNT];
+    for (int i = 0; i < RELEASE_DELTA_BUCKET_COUNT; i++) {
+      releaseDeltaCounts[i] = this.releaseDeltaCounts[i] + other.releaseDeltaCounts[i];
+    }
+    long[] vsyncIntervalCounts = new long[MAX_TRACKED_VSYNC_INTERVALS + 1];
+    for (int i = 0; i <= MAX_TRACKED_VSYNC_INTERVALS; i++) {
+      vsyncIntervalCounts[i] = this.vsyncIntervalCounts[i] + other.vsyncIntervalCounts[i];
+    }
+    return new VideoFramePacingStats(
+        releasedFrameCount + other.releasedFrameCount,
+        vsyncMissCount + other.vsyncMissCount,
+        cadenceBreakCount + other.cadenceBreakCount,
+        other.cadencePattern != null ? other.cadencePattern : cadencePattern,
+        releaseDeltaCounts,
+        vsyncIntervalCounts);
+  }
+
+  @Override
+  public boolean equals(@Nullable Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    VideoFramePacingStats other = (VideoFramePacingStats) o;
+    return releasedFrameCount == other.releasedFrameCount
+        && vsyncMissCount == other.vsyncMissCount
+        && cadenceBreakCount == other.cadenceBreakCount
+        && Util.areEqual(cadencePattern, other.cadencePattern)
+        && Arrays.equals(releaseDeltaCounts, other.releaseDeltaCounts)
+        && Arrays.equals(vsyncIntervalCounts, other.vsyncIntervalCounts);
+  }
+
+  @Override
+  public int hashCode() {
+    int result = (int) releasedFrameCount;
+    result = 31 * result + (int) vsyncMissCount;
+    result = 31 * result + (int) cadenceBreakCount;
+    result = 31 * result + (cadencePattern == null ? 0 : cadencePattern.hashCode());
+    result = 31 * result + Arrays.hashCode(releaseDeltaCounts);
+    result = 31 * result + Arrays.hashCode(vsyncIntervalCounts);
+    return result;
+  }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.video;
+
+import static com.google.android.exoplayer2.video.VideoFramePacingStats.MAX_TRACKED_VSYNC_INTERVALS;
+import static com.google.android.exoplayer2.video.VideoFramePacingStats.RELEASE_DELTA_BUCKET_COUNT;
+import static java.lang.Math.min;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.Nullable;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.util.Util;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Accumulates {@link VideoFramePacingStats}.
+ *
+ * <p>Recording methods don't allocate, so they can be called for every frame. All methods can be
+ * called from any thread, as frames may be released both by the playback thread and by a {@link
+ * VideoFrameReleaseThread}.
+ *
+ * @deprecated com.google.android.exoplayer2 is deprecated. Please migrate to androidx.media3 (which
+ *     contains the same ExoPlayer code). See <a
+ *     href="https://developer.android.com/guide/topics/media/media3/getting-started/migration-guide">the
+ *     migration guide</a> for more details, including a script to help with the migration.
+ */
+@Deprecated
+/* package */ final class VideoFramePacingTracker {
+
+  /** The number of bits used to store one cadence value in the cadence history. */
+  private static final int CADENCE_VALUE_BITS = 4;
+
+  private static final long CADENCE_VALUE_MASK = (1 << CADENCE_VALUE_BITS) - 1;
+
+  /** The maximum number of cadence values held in the cadence history. */
+  private static final int MAX_CADENCE_HISTORY_LENGTH = Long.SIZE / CADENCE_VALUE_BITS;
+
+  /** The longest repeating cadence that is detected. */
+  private static final int MAX_CADENCE_PERIOD = 4;
+
+  /** The minimum number of consecutive cadence values that must repeat to detect a cadence. */
+  private static final int MIN_CADENCE_MATCH_LENGTH = 6;
+
+  private final AtomicLongArray releaseDeltaCounts;
+  private final AtomicLongArray vsyncIntervalCounts;
+  private final AtomicLong releasedFrameCount;
+  private final AtomicLong vsyncMissCount;
+  private final AtomicLong cadenceBreakCount;
+
+  private volatile long vsyncDurationNs;
+
+  @GuardedBy("this")
+  private long lastReleaseTimeNs;
+
+  @GuardedBy("this")
+  private long cadenceHistory;
+
+  @GuardedBy("this")
+  private int cadenceHistoryLength;
+
+  // Written when frames are recorded, read without locking when the stats are collected.
+  private volatile int cadencePeriod;
+  private volatile long cadencePatternBits;
+
+  public VideoFramePacingTracker() {
+    releaseDeltaCounts = new AtomicLongArray(RELEASE_DELTA_BUCKET_COUNT);
+    vsyncIntervalCounts = new AtomicLongArray(MAX_TRACKED_VSYNC_INTERVALS + 1);
+    releasedFrameCount = new AtomicLong();
+    vsyncMissCount = new AtomicLong();
+    cadenceBreakCount = new AtomicLong();
+    vsyncDurationNs = C.TIME_UNSET;
+    lastReleaseTimeNs = C.TIME_UNSET;
+  }
+
+  /**
+   * Sets the display vsync duration.
+   *
+   * @param vsyncDurationNs The display vsync duration, in nanoseconds, or {@link C#TIME_UNSET} if
+   *     unknown. The cadence isn't tracked if unknown.
+   */
+  public void setVsyncDurationNs(long vsyncDurationNs) {
+    this.vsyncDurationNs = vsyncDurationNs > 0 ? vsyncDurationNs : C.TIME_UNSET;
+  }
+
+  /**
+   * Records the release of a frame to the codec for rendering.
+   *
+   * <p>A frame that's released to the codec before its vsync adjusted release time is displayed at
+   * that time. A frame that's released after it misses the targeted vsync, and is displayed at the
+   * first vsync following the release. The release delta is the difference between the time at
+   * which the frame is displayed and its target release time.
+   *
+   * @param targetReleaseTimeNs The release time derived from the media clock, in nanoseconds.
+   * @param releaseTimeNs The release time aligned to the display vsync that was requested from the
+   *     codec, in nanoseconds.
+   * @param releaseCallTimeNs The time at which the frame was released to the codec, in
+   *     nanoseconds.
+   */
+  public synchronized void onFrameReleased(
+      long targetReleaseTimeNs, long releaseTimeNs, long releaseCallTimeNs) {
+    long vsyncDurationNs = this.vsyncDurationNs;
+    long displayTimeNs = releaseTimeNs;
+    if (releaseCallTimeNs > releaseTimeNs) {
+      vsyncMissCount.incrementAndGet();
+      displayTimeNs =
+          vsyncDurationNs == C.TIME_UNSET
+              ? releaseCallTimeNs
+              : releaseTimeNs
+                  + Util.ceilDivide(releaseCallTimeNs - releaseTimeNs, vsyncDurationNs)
+                      * vsyncDurationNs;
+    }
+    releasedFrameCount.incrementAndGet();
+    long releaseDeltaUs = (displayTimeNs - targetReleaseTimeNs) / 1000;
+    releaseDeltaCounts.incrementAndGet(
+        VideoFramePacingStats.getReleaseDeltaBucketIndex(releaseDeltaUs));
+    if (vsyncDurationNs == C.TIME_UNSET) {
+      lastReleaseTimeNs = C.TIME_UNSET;
+      return;
+    }
+    if (lastReleaseTimeNs != C.TIME_UNSET) {
+      long intervalNs = displayTimeNs - lastReleaseTimeNs;
+      int vsyncIntervals =
+          intervalNs <= 0 ? 0 : (int) min((intervalNs + vsyncDurationNs / 2) / vsyncDurationNs, 15);
+      vsyncIntervalCounts.incrementAndGet(min(vsyncIntervals, MAX_TRACKED_VSYNC_INTERVALS));
+      updateCadence(vsyncIntervals);
+    }
+    lastReleaseTimeNs = displayTimeNs;
+  }
+
+  /**
+   * Resets the cadence tracking, for example after a seek. Frames released afterwards are not
+   * compared with frames released before.
+   */
+  public synchronized void reset() {
+    lastReleaseTimeNs = C.TIME_UNSET;
+    cadenceHistory = 0;
+    cadenceHistoryLength = 0;
+    cadencePeriod = 0;
+  }
+
+  /**
+   * Returns the stats accumulated since the last call to this method, and starts a new
+   * accumulation.
+   */
+  public VideoFramePacingStats getAndResetStats() {
+    long[] releaseDeltaCounts = new long[RELEASE_DELTA_BUCKET_COUNT];
+    for (int i = 0; i < RELEASE_DELTA_BUCKET_COUNT; i++) {
+      releaseDeltaCounts[i] = this.releaseDeltaCounts.getAndSet(i, 0);
+    }
+    long[] vsyncIntervalCounts = new long[MAX_TRACKED_VSYNC_INTERVALS + 1];
+    for (int i = 0; i <= MAX_TRACKED_VSYNC_INTERVALS; i++) {
+      vsyncIntervalCounts[i] = this.vsyncIntervalCounts.getAndSet(i, 0);
+    }
+    return new VideoFramePacingStats(
+        releasedFrameCount.getAndSet(0),
+        vsyncMissCount.getAndSet(0),
+        cadenceBreakCount.getAndSet(0),
+        formatCadencePattern(cadencePeriod, cadencePatternBits),
+        releaseDeltaCounts,
+        vsyncIntervalCounts);
+  }
+
+  @GuardedBy("this")
+  private void updateCadence(int vsyncIntervals) {
+    int period = cadencePeriod;
+    if (period != 0 && vsyncIntervals != getCadenceValue(period - 1)) {
+      cadenceBreakCount.incrementAndGet();
+      cadencePeriod = 0;
+    }
+    cadenceHistory = (cadenceHistory << CADENCE_VALUE_BITS) | vsyncIntervals;
+    cadenceHistoryLength = min(cadenceHistoryLength + 1, MAX_CADENCE_HISTORY_LENGTH);
+    if (cadencePeriod == 0) {
+      detectCadence();
+    }
+  }
+
+  /** Sets {@link #cadencePeriod} to the shortest period with which the recent history repeats. */
+  @GuardedBy("this")
+  private void detectCadence() {
+    for (int period = 1; period <= MAX_CADENCE_PERIOD; period++) {
+      int matchLength = Math.max(MIN_CADENCE_MATCH_LENGTH, 2 * period);
+      if (cadenceHistoryLength < matchLength) {
+        return;
+      }
+      boolean repeats = true;
+      for (int i = 0; i < matchLength - period; i++) {
+        if (getCadenceValue(i) != getCadenceValue(i + period)) {
+          repeats = false;
+          break;
+        }
+      }
+      if (repeats) {
+        cadencePatternBits = cadenceHistory;
+        cadencePeriod = period;
+        return;
+      }
+    }
+  }
+
+  /** Returns the cadence value recorded {@code age} frames before the most recent one. */
+  @GuardedBy("this")
+  private int getCadenceValue(int age) {
+    return (int) ((cadenceHistory >>> (age * CADENCE_VALUE_BITS)) & CADENCE_VALUE_MASK);
+  }
+
+  @Nullable
+  private static String formatCadencePattern(int period, long patternBits) {
+    if (period == 0) {
+      return null;
+    }
+    StringBuilder pattern = new StringBuilder();
+    for (int age = period - 1; age >= 0; age--) {
+      if (pattern.length() > 0) {
+        pattern.append(':');
+      }
+      pattern.append((patternBits >>> (age * CADENCE_VALUE_BITS)) & CADENCE_VALUE_MASK);
+    }
+    return pattern.toString();
+  }
+}
@@ -97,6 +97,7 @@ public final class VideoFrameReleaseHelper {
   private static final long VSYNC_OFFSET_PERCENTAGE = 80;
 
   private final FixedFrameRateEstimator frameRateEstimator;
+  private final VideoFramePacingTracker framePacingTracker;
   @Nullable private final DisplayHelper displayHelper;
   @Nullable private final VSyncSampler vsyncSampler;
 
@@ -133,6 +134,7 @@ public final class VideoFrameReleaseHelper {
    */
   public VideoFrameReleaseHelper(@Nullable Context context) {
     frameRateEstimator = new FixedFrameRateEstimator();
+    framePacingTracker = new VideoFramePacingTracker();
     displayHelper = maybeBuildDisplayHelper(context);
     vsyncSampler = displayHelper != null ? VSyncSampler.getInstance() : null;
     vsyncDurationNs = C.TIME_UNSET;
@@ -187,6 +189,7 @@ public final class VideoFrameReleaseHelper {
   /** Called when the renderer's position is reset. */
   public void onPositionReset() {
     resetAdjustment();
+    framePacingTracker.reset();
   }
 
   /**
@@ -236,6 +239,34 @@ public final class VideoFrameReleaseHelper {
     clearSurfaceFrameRate();
   }
 
+  // Frame pacing statistics.
+
+  /**
+   * Called by the renderer when a frame is released to the codec for rendering.
+   *
+   * @param unadjustedReleaseTimeNs The frame's unadjusted release time, in nanoseconds and in the
+   *     same time base as {@link System#nanoTime()}.
+   * @param releaseTimeNs The frame's release time as returned by {@link #adjustReleaseTime}.
+   * @param releaseCallTimeNs The {@link System#nanoTime()} at which the frame was released to the
+   *     codec.
+   */
+  public void onFrameReleased(
+      long unadjustedReleaseTimeNs, long releaseTimeNs, long releaseCallTimeNs) {
+    framePacingTracker.onFrameReleased(unadjustedReleaseTimeNs, releaseTimeNs, releaseCallTimeNs);
+  }
+
+  /**
+   * Returns the {@link VideoFramePacingStats} accumulated since the last call to this method.
+   */
+  public VideoFramePacingStats getAndResetFramePacingStats() {
+    return framePacingTracker.getAndResetStats();
+  }
+
+  /** Returns the tracker that accumulates the frame pacing statistics. */
+  /* package */ VideoFramePacingTracker getFramePacingTracker() {
+    return framePacingTracker;
+  }
+
   // Frame release time adjustment.
 
   /**
@@ -400,6 +431,7 @@ public final class VideoFrameReleaseHelper {
       vsyncDurationNs = C.TIME_UNSET;
       vsyncOffsetNs = C.TIME_UNSET;
     }
+    framePacingTracker.setVsyncDurationNs(vsyncDurationNs);
   }
 
   private static long closestVsync(long releaseTime, long sampledVsyncTime, long vsyncDuration) {
@@ -0,0 +1,417 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.video;
+
+import static com.google.android.exoplayer2.util.Assertions.checkNotNull;
+import static com.google.android.exoplayer2.util.Assertions.checkState;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Message;
+import android.os.Process;
+import android.os.SystemClock;
+import androidx.annotation.GuardedBy;
+import androidx.annotation.Nullable;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.mediacodec.MediaCodecAdapter;
+import com.google.android.exoplayer2.util.Clock;
+import com.google.android.exoplayer2.util.HandlerWrapper;
+import com.google.android.exoplayer2.util.TraceUtil;
+
+/**
+ * Releases decoded video frames to the output surface from a dedicated high priority thread.
+ *
+ * <p>The playback thread decides which output buffers are rendered and queues them, together with
+ * their vsync adjusted release times, using {@link #queueFrame}. Each queued frame is released to
+ * the codec shortly before its release time. The release time is corrected for any drift of the
+ * media clock, as reported by {@link #updateClock}, since the frame was queued. The timing of the
+ * release therefore no longer depends on how busy the playback thread is.
+ *
+ * <p>Frames can also be queued to be released without rendering, in which case they're released as
+ * soon as all frames queued before them have been released. Frames are always released in the
+ * order in which they were queued, so any output buffer of the codec that's released directly
+ * must be preceded by a call to {@link #drain()}.
+ *
+ * <p>Pending frames are held while the thread is {@linkplain #stop() stopped}, and are released
+ * without rendering when the thread is {@linkplain #flush() flushed}. {@link #flush()} must be
+ * called before the codec that produced the pending frames is flushed or released.
+ *
+ * <p>The number of frames that were actually rendered, as opposed to queued, is available from
+ * {@link #getRenderedFrameCount()}.
+ *
+ * <p>All methods must be called from the playback thread.
+ *
+ * @deprecated com.google.android.exoplayer2 is deprecated. Please migrate to androidx.media3 (which
+ *     contains the same ExoPlayer code). See <a
+ *     href="https://developer.android.com/guide/topics/media/media3/getting-started/migration-guide">the
+ *     migration guide</a> for more details, including a script to help with the migration.
+ */
+@Deprecated
+/* package */ final class VideoFrameReleaseThread implements Handler.Callback {
+
+  /** The maximum number of frames that can be pending release at any time. */
+  public static final int MAX_PENDING_FRAME_COUNT = 8;
+
+  /**
+   * How far ahead of their release time frames are handed to the codec, in nanoseconds. Matches
+   * the window within which the playback thread releases frames when this thread is not used.
+   */
+  private static final long RELEASE_AHEAD_TIME_NS = 50_000_000;
+
+  /**
+   * The minimum drift of the media clock for which release times are corrected, in nanoseconds.
+   * Smaller drifts are ignored so that the vsync alignment of the release times is preserved.
+   */
+  private static final long MIN_DRIFT_CORRECTION_NS = 4_000_000;
+
+  private static final int MSG_RELEASE_FRAMES = 0;
+
+  private final VideoFramePacingTracker framePacingTracker;
+  private final Clock clock;
+  @Nullable private final HandlerThread thread;
+  private final HandlerWrapper handler;
+  private final Object lock;
+
+  @GuardedBy("lock")
+  private final int[] bufferIndices;
+
+  @GuardedBy("lock")
+  private final long[] presentationTimesUs;
+
+  @GuardedBy("lock")
+  private final long[] releaseTimesNs;
+
+  @GuardedBy("lock")
+  private final long[] unadjustedReleaseTimesNs;
+
+  @GuardedBy("lock")
+  private final boolean[] renderFlags;
+
+  @GuardedBy("lock")
+  @Nullable
+  private MediaCodecAdapter codec;
+
+  @GuardedBy("lock")
+  private int firstFrameIndex;
+
+  @GuardedBy("lock")
+  private int pendingFrameCount;
+
+  @GuardedBy("lock")
+  private boolean started;
+
+  @GuardedBy("lock")
+  private long clockPositionUs;
+
+  @GuardedBy("lock")
+  private long clockSystemTimeNs;
+
+  @GuardedBy("lock")
+  private double clockPlaybackSpeed;
+
+  @GuardedBy("lock")
+  private long renderedFrameCount;
+
+  @GuardedBy("lock")
+  private long lastRenderedPresentationTimeUs;
+
+  /**
+   * Creates and starts the release thread.
+   *
+   * @param framePacingTracker The tracker to which released frames are reported.
+   */
+  public VideoFrameReleaseThread(VideoFramePacingTracker framePacingTracker) {
+    this(framePacingTracker, Clock.DEFAULT, /* looper= */ null);
+  }
+
+  /**
+   * Creates the release thread.
+   *
+   * @param framePacingTracker The tracker to which released frames are reported.
+   * @param clock The {@link Clock} against which release times are measured.
+   * @param looper The {@link Looper} on which frames are released, or null to start a dedicated
+   *     thread.
+   */
+  /* package */ VideoFrameReleaseThread(
+      VideoFramePacingTracker framePacingTracker, Clock clock, @Nullable Looper looper) {
+    this.framePacingTracker = framePacingTracker;
+    this.clock = clock;
+    if (looper == null) {
+      thread = new HandlerThread("ExoPlayer:VideoFrameRelease", Process.THREAD_PRIORITY_VIDEO);
+      thread.start();
+      looper = thread.getLooper();
+    } else {
+      thread = null;
+    }
+    handler = clock.createHandler(looper, /* callback= */ this);
+    lock = new Object();
+    bufferIndices = new int[MAX_PENDING_FRAME_COUNT];
+    presentationTimesUs = new long[MAX_PENDING_FRAME_COUNT];
+    releaseTimesNs = new long[MAX_PENDING_FRAME_COUNT];
+    unadjustedReleaseTimesNs = new long[MAX_PENDING_FRAME_COUNT];
+    renderFlags = new boolean[MAX_PENDING_FRAME_COUNT];
+    clockPositionUs = C.TIME_UNSET;
+    clockPlaybackSpeed = 1;
+    lastRenderedPresentationTimeUs = C.TIME_UNSET;
+  }
+
+  /**
+   * Updates the media clock against which pending release times are corrected.
+   *
+   * @param positionUs The current media time in microseconds, with the stream offset added.
+   * @param elapsedRealtimeUs {@link SystemClock#elapsedRealtime()} in microseconds at which {@code
+   *     positionUs} was measured.
+   * @param playbackSpeed The current playback speed.
+   */
+  public void updateClock(long positionUs, long elapsedRealtimeUs, float playbackSpeed) {
+    long elapsedSinceMeasurementUs = clock.elapsedRealtime() * 1000 - elapsedRealtimeUs;
+    synchronized (lock) {
+      clockPositionUs = positionUs;
+      clockSystemTimeNs = clock.nanoTime() - elapsedSinceMeasurementUs * 1000;
+      clockPlaybackSpeed = playbackSpeed;
+    }
+  }
+
+  /** Returns whether another frame can be {@linkplain #queueFrame queued}. */
+  public boolean canQueueFrame() {
+    synchronized (lock) {
+      return pendingFrameCount < MAX_PENDING_FRAME_COUNT;
+    }
+  }
+
+  /** Returns the number of frames that are pending release. */
+  public int getPendingFrameCount() {
+    synchronized (lock) {
+      return pendingFrameCount;
+    }
+  }
+
+  /** Returns the total number of frames that have been released to the codec for rendering. */
+  public long getRenderedFrameCount() {
+    synchronized (lock) {
+      return renderedFrameCount;
+    }
+  }
+
+  /**
+   * Returns the presentation time of the last frame that was released to the codec for rendering,
+   * in microseconds and with the stream offset added, or {@link C#TIME_UNSET} if no frame has been
+   * rendered yet.
+   */
+  public long getLastRenderedPresentationTimeUs() {
+    synchronized (lock) {
+      return lastRenderedPresentationTimeUs;
+    }
+  }
+
+  /**
+   * Queues a frame for release.
+   *
+   * <p>Must only be called if {@link #canQueueFrame()} returns true. All pending frames must belong
+   * to the same codec.
+   *
+   * @param codec The codec that owns the output buffer.
+   * @param bufferIndex The index of the output buffer.
+   * @param presentationTimeUs The presentation time of the frame in microseconds, with the stream
+   *     offset added.
+   * @param unadjustedReleaseTimeNs The release time computed from the media clock, in terms of
+   *     {@link System#nanoTime()}.
+   * @param releaseTimeNs The release time adjusted to the display vsync, in terms of {@link
+   *     System#nanoTime()}.
+   * @param render Whether the frame should be rendered. If false, the output buffer is released
+   *     without rendering as soon as all frames queued before it have been released.
+   */
+  public void queueFrame(
+      MediaCodecAdapter codec,
+      int bufferIndex,
+      long presentationTimeUs,
+      long unadjustedReleaseTimeNs,
+      long releaseTimeNs,
+      boolean render) {
+    synchronized (lock) {
+      checkState(pendingFrameCount < MAX_PENDING_FRAME_COUNT);
+      checkState(this.codec == null || this.codec == codec);
+      this.codec = codec;
+      int index = (firstFrameIndex + pendingFrameCount) % MAX_PENDING_FRAME_COUNT;
+      bufferIndices[index] = bufferIndex;
+      presentationTimesUs[index] = presentationTimeUs;
+      unadjustedReleaseTimesNs[index] = unadjustedReleaseTimeNs;
+      releaseTimesNs[index] = releaseTimeNs;
+      renderFlags[index] = render;
+      pendingFrameCount++;
+      if (pendingFrameCount == 1 && started) {
+        scheduleNextRelease();
+      }
+    }
+  }
+
+  /** Starts releasing pending frames. Called when the renderer is started. */
+  public void start() {
+    synchronized (lock) {
+      started = true;
+      scheduleNextRelease();
+    }
+  }
+
+  /** Stops releasing frames, holding any pending frames. Called when the renderer is stopped. */
+  public void stop() {
+    synchronized (lock) {
+      started = false;
+      handler.removeMessages(MSG_RELEASE_FRAMES);
+    }
+  }
+
+  /**
+   * Releases all pending frames to the codec immediately, in the order in which they were queued.
+   * Frames that should be rendered are released with their corrected release times, whether or not
+   * the thread is started.
+   */
+  public void drain() {
+    synchronized (lock) {
+      handler.removeMessages(MSG_RELEASE_FRAMES);
+      if (pendingFrameCount == 0) {
+        return;
+      }
+      MediaCodecAdapter codec = checkNotNull(this.codec);
+      long nowNs = clock.nanoTime();
+      while (pendingFrameCount > 0) {
+        releaseFirstFrame(codec, nowNs);
+      }
+    }
+  }
+
+  /**
+   * Releases all pending frames back to the codec without rendering them.
+   *
+   * @return The number of pending frames that were queued to be rendered.
+   */
+  public int flush() {
+    synchronized (lock) {
+      handler.removeMessages(MSG_RELEASE_FRAMES);
+      int flushedFrameCount = 0;
+      while (pendingFrameCount > 0) {
+        if (renderFlags[firstFrameIndex]) {
+          flushedFrameCount++;
+        }
+        if (codec != null) {
+          codec.releaseOutputBuffer(bufferIndices[firstFrameIndex], /* render= */ false);
+        }
+        removeFirstFrame();
+      }
+      codec = null;
+      return flushedFrameCount;
+    }
+  }
+
+  /** Flushes any pending frames and quits the thread, if one was started. */
+  public void release() {
+    flush();
+    if (thread != null) {
+      thread.quit();
+    }
+  }
+
+  // Handler.Callback implementation.
+
+  @Override
+  public boolean handleMessage(Message msg) {
+    if (msg.what != MSG_RELEASE_FRAMES) {
+      return false;
+    }
+    synchronized (lock) {
+      @Nullable MediaCodecAdapter codec = this.codec;
+      if (!started || codec == null) {
+        return true;
+      }
+      long nowNs = clock.nanoTime();
+      while (pendingFrameCount > 0
+          && (!renderFlags[firstFrameIndex]
+              || getCorrectedReleaseTimeNs(firstFrameIndex) - RELEASE_AHEAD_TIME_NS <= nowNs)) {
+        releaseFirstFrame(codec, nowNs);
+      }
+      scheduleNextRelease();
+    }
+    return true;
+  }
+
+  // Internal methods.
+
+  @GuardedBy("lock")
+  private void releaseFirstFrame(MediaCodecAdapter codec, long nowNs) {
+    int bufferIndex = bufferIndices[firstFrameIndex];
+    if (renderFlags[firstFrameIndex]) {
+      long driftCorrectionNs = getDriftCorrectionNs(firstFrameIndex);
+      long releaseTimeNs = releaseTimesNs[firstFrameIndex] + driftCorrectionNs;
+      TraceUtil.beginSection("releaseOutputBuffer");
+      codec.releaseOutputBuffer(bufferIndex, releaseTimeNs);
+      TraceUtil.endSection();
+      framePacingTracker.onFrameReleased(
+          unadjustedReleaseTimesNs[firstFrameIndex] + driftCorrectionNs,
+          releaseTimeNs,
+          /* releaseCallTimeNs= */ nowNs);
+      renderedFrameCount++;
+      lastRenderedPresentationTimeUs = presentationTimesUs[firstFrameIndex];
+    } else {
+      TraceUtil.beginSection("skipVideoBuffer");
+      codec.releaseOutputBuffer(bufferIndex, /* render= */ false);
+      TraceUtil.endSection();
+    }
+    removeFirstFrame();
+  }
+
+  @GuardedBy("lock")
+  private void scheduleNextRelease() {
+    handler.removeMessages(MSG_RELEASE_FRAMES);
+    if (pendingFrameCount == 0 || !started) {
+      return;
+    }
+    long delayMs = 0;
+    if (renderFlags[firstFrameIndex]) {
+      long releaseTimeNs = getCorrectedReleaseTimeNs(firstFrameIndex);
+      delayMs = (releaseTimeNs - RELEASE_AHEAD_TIME_NS - clock.nanoTime()) / 1_000_000;
+    }
+    handler.sendEmptyMessageAtTime(
+        MSG_RELEASE_FRAMES, clock.uptimeMillis() + Math.max(0, delayMs));
+  }
+
+  @GuardedBy("lock")
+  private long getCorrectedReleaseTimeNs(int index) {
+    return releaseTimesNs[index] + getDriftCorrectionNs(index);
+  }
+
+  /**
+   * Returns the correction to apply to the release time of a pending frame for the drift of the
+   * media clock since the frame was queued, in nanoseconds.
+   */
+  @GuardedBy("lock")
+  private long getDriftCorrectionNs(int index) {
+    if (clockPositionUs == C.TIME_UNSET || clockPlaybackSpeed == 0) {
+      return 0;
+    }
+    long currentUnadjustedReleaseTimeNs =
+        clockSystemTimeNs
+            + (long) ((presentationTimesUs[index] - clockPositionUs) * 1000 / clockPlaybackSpeed);
+    long driftNs = currentUnadjustedReleaseTimeNs - unadjustedReleaseTimesNs[index];
+    return Math.abs(driftNs) < MIN_DRIFT_CORRECTION_NS ? 0 : driftNs;
+  }
+
+  @GuardedBy("lock")
+  private void removeFirstFrame() {
+    firstFrameIndex = (firstFrameIndex + 1) % MAX_PENDING_FRAME_COUNT;
+    pendingFrameCount--;
+  }
+}
@@ -111,6 +111,17 @@ public interface VideoRendererEventListener {
    */
   default void onVideoFrameProcessingOffset(long totalProcessingOffsetUs, int frameCount) {}
 
+  /**
+   * Called to report the frame pacing of the video renderer.
+   *
+   * <p>The renderer reports the {@link VideoFramePacingStats} of the frames released to the
+   * display since the previous report. Reports are made periodically while the renderer is
+   * started, and when it's stopped.
+   *
+   * @param framePacingStats The {@link VideoFramePacingStats} since the previous report.
+   */
+  default void onVideoFramePacingStats(VideoFramePacingStats framePacingStats) {}
+
   /**
    * Called before a frame is rendered for the first time since setting the surface, and each time
    * there's a change in the size, rotation or pixel aspect ratio of the video being rendered.
@@ -227,6 +238,13 @@ public interface VideoRendererEventListener {
       }
     }
 
+    /** Invokes {@link VideoRendererEventListener#onVideoFramePacingStats}. */
+    public void reportVideoFramePacingStats(VideoFramePacingStats framePacingStats) {
+      if (handler != null) {
+        handler.post(() -> castNonNull(listener).onVideoFramePacingStats(framePacingStats));
+      }
+    }
+
     /** Invokes {@link VideoRendererEventListener#onVideoSizeChanged(VideoSize)}. */
     public void videoSizeChanged(VideoSize videoSize) {
       if (handler != null) {
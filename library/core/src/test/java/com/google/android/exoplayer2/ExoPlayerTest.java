@@ -163,6 +163,8 @@ import com.google.android.exoplayer2.util.Clock;
 import com.google.android.exoplayer2.util.HandlerWrapper;
 import com.google.android.exoplayer2.util.MimeTypes;
 import com.google.android.exoplayer2.util.SystemClock;
+import com.google.android.exoplayer2.util.TraceRingBuffer;
+import com.google.android.exoplayer2.util.TraceUtil;
 import com.google.android.exoplayer2.util.Util;
 import com.google.android.exoplayer2.video.VideoRendererEventListener;
 import com.google.android.exoplayer2.video.VideoSize;
@@ -304,6 +306,46 @@ public final class ExoPlayerTest {
     player.release();
   }
 
+  @Test
+  public void play_withTraceRingBuffer_recordsEveryPlaybackLoopIteration() throws Exception {
+    TraceRingBuffer traceRingBuffer = new TraceRingBuffer(/* capacity= */ 10_000);
+    TraceUtil.experimentalSetTraceRingBuffer(traceRingBuffer);
+    List<TraceRingBuffer.Record> records;
+    try {
+      ExoPlayer player = new TestExoPlayerBuilder(context).build();
+      player.setMediaSource(
+          new FakeMediaSource(new FakeTimeline(), ExoPlayerTestRunner.VIDEO_FORMAT));
+      player.prepare();
+      player.play();
+      runUntilPlaybackState(player, Player.STATE_ENDED);
+      player.release();
+      records = traceRingBuffer.getRecords();
+    } finally {
+      TraceUtil.experimentalSetTraceRingBuffer(null);
+    }
+
+    int doSomeWorkCount = 0;
+    int updatePeriodsCount = 0;
+    int videoRenderCount = 0;
+    for (TraceRingBuffer.Record record : records) {
+      if (record.type == TraceRingBuffer.RECORD_TYPE_DO_SOME_WORK) {
+        doSomeWorkCount++;
+      } else if (record.type == TraceRingBuffer.RECORD_TYPE_UPDATE_PERIODS) {
+        updatePeriodsCount++;
+      } else if (record.type == TraceRingBuffer.RECORD_TYPE_RENDER
+          && record.value == C.TRACK_TYPE_VIDEO) {
+        videoRenderCount++;
+      }
+    }
+    assertThat(videoRenderCount).isGreaterThan(0);
+    assertThat(doSomeWorkCount).isAtLeast(videoRenderCount);
+    // Iterations that return early, for example while preparing or once ended, are also recorded.
+    assertThat(doSomeWorkCount).isEqualTo(updatePeriodsCount);
+    // The release message returns early, and is the last message that's handled.
+    assertThat(Iterables.getLast(records).type)
+        .isEqualTo(TraceRingBuffer.RECORD_TYPE_HANDLE_MESSAGE);
+  }
+
   /** Tests playback of a source that exposes three periods. */
   @Test
   public void playMultiPeriodTimeline() throws Exception {
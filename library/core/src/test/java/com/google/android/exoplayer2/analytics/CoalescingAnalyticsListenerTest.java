@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.analytics;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.robolectric.shadows.ShadowLooper.idleMainLooper;
+
+import android.os.Looper;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.Timeline;
+import com.google.android.exoplayer2.analytics.AnalyticsListener.EventTime;
+import com.google.android.exoplayer2.analytics.CoalescingAnalyticsListener.CoalescedEvents;
+import com.google.android.exoplayer2.testutil.FakeClock;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Unit test for {@link CoalescingAnalyticsListener}. */
+@RunWith(AndroidJUnit4.class)
+public final class CoalescingAnalyticsListenerTest {
+
+  @Test
+  public void events_withinBatchInterval_deliveredAsOneBatch() {
+    FakeClock clock = new FakeClock(/* initialTimeMs= */ 0);
+    List<CoalescedEvents> batches = new ArrayList<>();
+    CoalescingAnalyticsListener listener =
+        new CoalescingAnalyticsListener(
+            Looper.getMainLooper(), /* batchIntervalMs= */ 1000, batches::add, clock);
+
+    listener.onBandwidthEstimate(
+        createEventTime(/* realtimeMs= */ 0),
+        /* totalLoadTimeMs= */ 10,
+        /* totalBytesLoaded= */ 1000,
+        /* bitrateEstimate= */ 500_000);
+    listener.onVideoFrameProcessingOffset(
+        createEventTime(/* realtimeMs= */ 100),
+        /* totalProcessingOffsetUs= */ 300,
+        /* frameCount= */ 3);
+    listener.onBandwidthEstimate(
+        createEventTime(/* realtimeMs= */ 200),
+        /* totalLoadTimeMs= */ 20,
+        /* totalBytesLoaded= */ 3000,
+        /* bitrateEstimate= */ 800_000);
+    listener.onDroppedVideoFrames(
+        createEventTime(/* realtimeMs= */ 300), /* droppedFrames= */ 2, /* elapsedMs= */ 100);
+    idleMainLooper();
+    assertThat(batches).isEmpty();
+    clock.advanceTime(1000);
+    idleMainLooper();
+
+    assertThat(batches).hasSize(1);
+    CoalescedEvents batch = batches.get(0);
+    assertThat(batch.eventTime.realtimeMs).isEqualTo(300L);
+    assertThat(batch.totalLoadTimeMs).isEqualTo(30L);
+    assertThat(batch.totalBytesLoaded).isEqualTo(4000L);
+    assertThat(batch.bitrateEstimate).isEqualTo(800_000L);
+    assertThat(batch.droppedFrames).isEqualTo(2);
+    assertThat(batch.totalProcessingOffsetUs).isEqualTo(300L);
+    assertThat(batch.processingOffsetFrameCount).isEqualTo(3);
+  }
+
+  @Test
+  public void events_inNextBatchInterval_deliveredInNewBatch() {
+    FakeClock clock = new FakeClock(/* initialTimeMs= */ 0);
+    List<CoalescedEvents> batches = new ArrayList<>();
+    CoalescingAnalyticsListener listener =
+        new CoalescingAnalyticsListener(
+            Looper.getMainLooper(), /* batchIntervalMs= */ 1000, batches::add, clock);
+
+    listener.onDroppedVideoFrames(
+        createEventTime(/* realtimeMs= */ 0), /* droppedFrames= */ 2, /* elapsedMs= */ 100);
+    clock.advanceTime(1000);
+    idleMainLooper();
+    listener.onDroppedVideoFrames(
+        createEventTime(/* realtimeMs= */ 1000), /* droppedFrames= */ 5, /* elapsedMs= */ 100);
+    clock.advanceTime(1000);
+    idleMainLooper();
+
+    assertThat(batches).hasSize(2);
+    assertThat(batches.get(0).droppedFrames).isEqualTo(2);
+    assertThat(batches.get(1).droppedFrames).isEqualTo(5);
+    assertThat(batches.get(1).bitrateEstimate).isEqualTo((long) C.RATE_UNSET_INT);
+  }
+
+  private static EventTime createEventTime(long realtimeMs) {
+    return new EventTime(
+        realtimeMs,
+        Timeline.EMPTY,
+        /* windowIndex= */ 0,
+        /* mediaPeriodId= */ null,
+        /* eventPlaybackPositionMs= */ 0,
+        Timeline.EMPTY,
+        /* currentWindowIndex= */ 0,
+        /* currentMediaPeriodId= */ null,
+        /* currentPlaybackPositionMs= */ 0,
+        /* totalBufferedDurationMs= */ 0);
+  }
+}
@@ -20,6 +20,7 @@ import static com.google.android.exoplayer2.analytics.AnalyticsListener.EVENT_AU
 import static com.google.android.exoplayer2.analytics.AnalyticsListener.EVENT_AUDIO_ENABLED;
 import static com.google.android.exoplayer2.analytics.AnalyticsListener.EVENT_AUDIO_INPUT_FORMAT_CHANGED;
 import static com.google.android.exoplayer2.analytics.AnalyticsListener.EVENT_AUDIO_POSITION_ADVANCING;
+import static com.google.android.exoplayer2.analytics.AnalyticsListener.EVENT_BANDWIDTH_ESTIMATE;
 import static com.google.android.exoplayer2.analytics.AnalyticsListener.EVENT_DOWNSTREAM_FORMAT_CHANGED;
 import static com.google.android.exoplayer2.analytics.AnalyticsListener.EVENT_DRM_KEYS_LOADED;
 import static com.google.android.exoplayer2.analytics.AnalyticsListener.EVENT_DRM_SESSION_ACQUIRED;
@@ -39,6 +40,7 @@ import static com.google.android.exoplayer2.analytics.AnalyticsListener.EVENT_PL
 import static com.google.android.exoplayer2.analytics.AnalyticsListener.EVENT_PLAY_WHEN_READY_CHANGED;
 import static com.google.android.exoplayer2.analytics.AnalyticsListener.EVENT_POSITION_DISCONTINUITY;
 import static com.google.android.exoplayer2.analytics.AnalyticsListener.EVENT_RENDERED_FIRST_FRAME;
+import static com.google.android.exoplayer2.analytics.AnalyticsListener.EVENT_SURFACE_SIZE_CHANGED;
 import static com.google.android.exoplayer2.analytics.AnalyticsListener.EVENT_TIMELINE_CHANGED;
 import static com.google.android.exoplayer2.analytics.AnalyticsListener.EVENT_TRACKS_CHANGED;
 import static com.google.android.exoplayer2.analytics.AnalyticsListener.EVENT_VIDEO_DECODER_INITIALIZED;
@@ -67,6 +69,7 @@ import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 import static org.robolectric.shadows.ShadowLooper.idleMainLooper;
@@ -122,6 +125,7 @@ import com.google.android.exoplayer2.testutil.TestExoPlayerBuilder;
 import com.google.android.exoplayer2.testutil.TestUtil;
 import com.google.android.exoplayer2.util.Clock;
 import com.google.android.exoplayer2.util.ConditionVariable;
+import com.google.android.exoplayer2.util.FlagSet;
 import com.google.android.exoplayer2.util.HandlerWrapper;
 import com.google.android.exoplayer2.util.MimeTypes;
 import com.google.android.exoplayer2.util.Util;
@@ -1886,6 +1890,123 @@ public final class DefaultAnalyticsCollectorTest {
     inOrder.verify(listener3).onSurfaceSizeChanged(any(), eq(0), eq(0));
   }
 
+  @Test
+  public void listenerWithSubscribedEvents_onlyReceivesSubscribedEvents() {
+    AnalyticsCollector analyticsCollector = new DefaultAnalyticsCollector(Clock.DEFAULT);
+    analyticsCollector.setPlayer(
+        new ExoPlayer.Builder(ApplicationProvider.getApplicationContext()).build(),
+        Looper.myLooper());
+    AnalyticsListener listener =
+        spy(
+            new AnalyticsListener() {
+              @Override
+              public FlagSet getSubscribedEvents() {
+                return new FlagSet.Builder().add(EVENT_DROPPED_VIDEO_FRAMES).build();
+              }
+            });
+    analyticsCollector.addListener(listener);
+
+    analyticsCollector.onBandwidthSample(
+        /* elapsedMs= */ 10, /* bytesTransferred= */ 1000, /* bitrateEstimate= */ 800_000);
+    analyticsCollector.onVideoFrameProcessingOffset(
+        /* totalProcessingOffsetUs= */ 1000, /* frameCount= */ 10);
+    analyticsCollector.onDroppedFrames(/* count= */ 2, /* elapsedMs= */ 100);
+    idleMainLooper();
+
+    verify(listener, never()).onBandwidthEstimate(any(), anyInt(), anyLong(), anyLong());
+    verify(listener, never()).onVideoFrameProcessingOffset(any(), anyLong(), anyInt());
+    verify(listener).onDroppedVideoFrames(any(), eq(2), eq(100L));
+    verify(listener)
+        .onEvents(
+            any(),
+            argThat(events -> events.size() == 1 && events.contains(EVENT_DROPPED_VIDEO_FRAMES)));
+  }
+
+  @Test
+  public void partiallySubscribedListener_receivesAggregatedEventsWithMatchingEventTimes() {
+    AnalyticsCollector analyticsCollector = new DefaultAnalyticsCollector(Clock.DEFAULT);
+    analyticsCollector.setPlayer(
+        new ExoPlayer.Builder(ApplicationProvider.getApplicationContext()).build(),
+        Looper.myLooper());
+    AnalyticsListener partialListener =
+        spy(
+            new AnalyticsListener() {
+              @Override
+              public FlagSet getSubscribedEvents() {
+                return new FlagSet.Builder()
+                    .addAll(EVENT_DROPPED_VIDEO_FRAMES, EVENT_VIDEO_FRAME_PROCESSING_OFFSET)
+                    .build();
+              }
+            });
+    AnalyticsListener bandwidthListener =
+        spy(
+            new AnalyticsListener() {
+              @Override
+              public FlagSet getSubscribedEvents() {
+                return new FlagSet.Builder().add(EVENT_BANDWIDTH_ESTIMATE).build();
+              }
+            });
+    analyticsCollector.addListener(partialListener);
+    analyticsCollector.addListener(bandwidthListener);
+
+    analyticsCollector.onVideoFrameProcessingOffset(
+        /* totalProcessingOffsetUs= */ 1000, /* frameCount= */ 10);
+    analyticsCollector.onSurfaceSizeChanged(/* width= */ 10, /* height= */ 10);
+    analyticsCollector.onBandwidthSample(
+        /* elapsedMs= */ 10, /* bytesTransferred= */ 1000, /* bitrateEstimate= */ 800_000);
+    analyticsCollector.onDroppedFrames(/* count= */ 2, /* elapsedMs= */ 100);
+    idleMainLooper();
+
+    ArgumentCaptor<AnalyticsListener.EventTime> processingOffsetEventTime =
+        ArgumentCaptor.forClass(AnalyticsListener.EventTime.class);
+    ArgumentCaptor<AnalyticsListener.EventTime> droppedFramesEventTime =
+        ArgumentCaptor.forClass(AnalyticsListener.EventTime.class);
+    ArgumentCaptor<AnalyticsListener.Events> events =
+        ArgumentCaptor.forClass(AnalyticsListener.Events.class);
+    InOrder inOrder = inOrder(partialListener);
+    inOrder
+        .verify(partialListener)
+        .onVideoFrameProcessingOffset(processingOffsetEventTime.capture(), eq(1000L), eq(10));
+    inOrder
+        .verify(partialListener)
+        .onDroppedVideoFrames(droppedFramesEventTime.capture(), eq(2), eq(100L));
+    inOrder.verify(partialListener).onEvents(any(), events.capture());
+    verify(partialListener, never()).onSurfaceSizeChanged(any(), anyInt(), anyInt());
+    // The bandwidth estimate is generated for the other listener, so it's also delivered.
+    verify(partialListener).onBandwidthEstimate(any(), eq(10), eq(1000L), eq(800_000L));
+    assertThat(events.getValue().size()).isEqualTo(3);
+    assertThat(events.getValue().getEventTime(EVENT_VIDEO_FRAME_PROCESSING_OFFSET))
+        .isSameInstanceAs(processingOffsetEventTime.getValue());
+    assertThat(events.getValue().getEventTime(EVENT_DROPPED_VIDEO_FRAMES))
+        .isSameInstanceAs(droppedFramesEventTime.getValue());
+    assertThat(events.getValue().contains(EVENT_BANDWIDTH_ESTIMATE)).isTrue();
+    assertThat(events.getValue().contains(EVENT_SURFACE_SIZE_CHANGED)).isFalse();
+  }
+
+  @Test
+  public void addListener_fromOtherThread_updatesSubscribedEvents() throws Exception {
+    AnalyticsCollector analyticsCollector = new DefaultAnalyticsCollector(Clock.DEFAULT);
+    analyticsCollector.setPlayer(
+        new ExoPlayer.Builder(ApplicationProvider.getApplicationContext()).build(),
+        Looper.myLooper());
+    analyticsCollector.addListener(
+        new AnalyticsListener() {
+          @Override
+          public FlagSet getSubscribedEvents() {
+            return new FlagSet.Builder().add(EVENT_DROPPED_VIDEO_FRAMES).build();
+          }
+        });
+    AnalyticsListener listener = mock(AnalyticsListener.class);
+
+    Thread addingThread = new Thread(() -> analyticsCollector.addListener(listener));
+    addingThread.start();
+    addingThread.join();
+    analyticsCollector.onSurfaceSizeChanged(/* width= */ 10, /* height= */ 10);
+    idleMainLooper();
+
+    verify(listener).onSurfaceSizeChanged(any(), eq(10), eq(10));
+  }
+
   @Test
   public void release_withCallbacksArrivingAfterRelease_onPlayerReleasedForwardedLast()
       throws Exception {
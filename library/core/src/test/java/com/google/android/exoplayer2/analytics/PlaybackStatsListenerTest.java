@@ -16,6 +16,8 @@
 package com.google.android.exoplayer2.analytics;
 
 import static com.google.android.exoplayer2.robolectric.TestPlayerRunHelper.runUntilPendingCommandsAreFullyHandled;
+import static com.google.android.exoplayer2.testutil.FakeSampleStream.FakeSampleStreamItem.oneByteSample;
+import static com.google.android.exoplayer2.util.Assertions.checkNotNull;
 import static com.google.common.truth.Truth.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
@@ -27,12 +29,16 @@ import static org.mockito.Mockito.verifyNoMoreInteractions;
 import androidx.annotation.Nullable;
 import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.DefaultLoadControl;
 import com.google.android.exoplayer2.ExoPlayer;
 import com.google.android.exoplayer2.MediaItem;
 import com.google.android.exoplayer2.PlaybackParameters;
 import com.google.android.exoplayer2.Player;
+import com.google.android.exoplayer2.drm.DrmSessionManager;
 import com.google.android.exoplayer2.robolectric.TestPlayerRunHelper;
 import com.google.android.exoplayer2.source.MediaSource;
+import com.google.android.exoplayer2.testutil.ExoPlayerTestRunner;
 import com.google.android.exoplayer2.testutil.FakeMediaSource;
 import com.google.android.exoplayer2.testutil.FakeTimeline;
 import com.google.android.exoplayer2.testutil.TestExoPlayerBuilder;
@@ -156,6 +162,77 @@ public final class PlaybackStatsListenerTest {
     verify(callback).onPlaybackStatsReady(any(), any());
   }
 
+  @Test
+  public void finishedSession_exportsQoeMetrics() throws Exception {
+    LoopbackQoeMetricsExporter qoeMetricsExporter = new LoopbackQoeMetricsExporter();
+    PlaybackStatsListener playbackStatsListener =
+        new PlaybackStatsListener(/* keepHistory= */ false, /* callback= */ null);
+    playbackStatsListener.experimentalSetQoeMetricsExporter(qoeMetricsExporter);
+    player.addAnalyticsListener(playbackStatsListener);
+
+    player.setMediaSource(new FakeMediaSource(new FakeTimeline(/* windowCount= */ 1)));
+    player.prepare();
+    player.play();
+    TestPlayerRunHelper.runUntilPlaybackState(player, Player.STATE_ENDED);
+    runUntilPendingCommandsAreFullyHandled(player);
+    assertThat(qoeMetricsExporter.getExportCount()).isEqualTo(0);
+    player.clearMediaItems();
+    runUntilPendingCommandsAreFullyHandled(player);
+
+    assertThat(qoeMetricsExporter.getExportCount()).isEqualTo(1);
+    QoeMetrics qoeMetrics = qoeMetricsExporter.getMetrics();
+    assertThat(qoeMetrics.getSessionCount()).isEqualTo(1L);
+    assertThat(qoeMetrics.getJoinTimeMs().getCount()).isEqualTo(1L);
+    assertThat(qoeMetrics.getRebufferDurationMs().getCount()).isEqualTo(0L);
+    assertThat(qoeMetrics.getVideoBitrateSwitchCount().getMax()).isEqualTo(0L);
+    assertThat(qoeMetrics.getDroppedFrameCount().getCount()).isEqualTo(1L);
+    assertThat(playbackStatsListener.getCombinedQoeMetrics().getSessionCount()).isEqualTo(1L);
+  }
+
+  @Test
+  public void exportInProgressQoeMetrics_duringRebuffer_includesOngoingRebuffer()
+      throws Exception {
+    player.release();
+    player =
+        new TestExoPlayerBuilder(ApplicationProvider.getApplicationContext())
+            .setLoadControl(
+                new DefaultLoadControl.Builder()
+                    .setBufferDurationsMs(
+                        /* minBufferMs= */ 1000,
+                        /* maxBufferMs= */ 1000,
+                        /* bufferForPlaybackMs= */ 0,
+                        /* bufferForPlaybackAfterRebufferMs= */ 0)
+                    .build())
+            .build();
+    LoopbackQoeMetricsExporter qoeMetricsExporter = new LoopbackQoeMetricsExporter();
+    PlaybackStatsListener playbackStatsListener =
+        new PlaybackStatsListener(/* keepHistory= */ false, /* callback= */ null);
+    playbackStatsListener.experimentalSetQoeMetricsExporter(qoeMetricsExporter);
+    player.addAnalyticsListener(playbackStatsListener);
+    // The media has a single sample and doesn't end, so playback rebuffers after the sample.
+    player.setMediaSource(
+        new FakeMediaSource(
+            new FakeTimeline(/* windowCount= */ 1),
+            DrmSessionManager.DRM_UNSUPPORTED,
+            (format, mediaPeriodId) ->
+                ImmutableList.of(oneByteSample(/* timeUs= */ 0, C.BUFFER_FLAG_KEY_FRAME)),
+            ExoPlayerTestRunner.VIDEO_FORMAT));
+    player.prepare();
+    player.play();
+    TestPlayerRunHelper.runUntilPlaybackState(player, Player.STATE_READY);
+    TestPlayerRunHelper.runUntilPlaybackState(player, Player.STATE_BUFFERING);
+
+    playbackStatsListener.experimentalExportInProgressQoeMetrics();
+
+    QoeMetrics inProgressQoeMetrics = checkNotNull(qoeMetricsExporter.getLastInProgressMetrics());
+    assertThat(inProgressQoeMetrics.getSessionCount()).isEqualTo(1L);
+    assertThat(inProgressQoeMetrics.getJoinTimeMs().getCount()).isEqualTo(1L);
+    assertThat(inProgressQoeMetrics.getRebufferDurationMs().getCount()).isEqualTo(1L);
+    assertThat(qoeMetricsExporter.getExportCount()).isEqualTo(0);
+    assertThat(playbackStatsListener.getCombinedQoeMetrics().getRebufferDurationMs().getCount())
+        .isEqualTo(1L);
+  }
+
   @Test
   public void playlistClear_callsAllPendingCallbacks() throws Exception {
     PlaybackStatsListener.Callback callback = mock(PlaybackStatsListener.Callback.class);
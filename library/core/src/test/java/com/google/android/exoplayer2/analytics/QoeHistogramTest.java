@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.analytics;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.android.exoplayer2.C;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Unit test for {@link QoeHistogram}. */
+@RunWith(AndroidJUnit4.class)
+public final class QoeHistogramTest {
+
+  @Test
+  public void add_countsValuesInExponentialBuckets() {
+    QoeHistogram histogram = new QoeHistogram();
+
+    histogram.add(0);
+    histogram.add(1);
+    histogram.add(5);
+    histogram.add(7);
+    histogram.add(Long.MAX_VALUE);
+
+    assertThat(histogram.getCount()).isEqualTo(5L);
+    assertThat(histogram.getBucketCount(0)).isEqualTo(1L);
+    assertThat(histogram.getBucketCount(1)).isEqualTo(1L);
+    assertThat(histogram.getBucketCount(3)).isEqualTo(2L);
+    assertThat(histogram.getBucketCount(QoeHistogram.BUCKET_COUNT - 1)).isEqualTo(1L);
+    assertThat(histogram.getMax()).isEqualTo(Long.MAX_VALUE);
+  }
+
+  @Test
+  public void getPercentileUpperBound_returnsBucketUpperBoundCappedAtMax() {
+    QoeHistogram histogram = new QoeHistogram();
+    for (int i = 0; i < 9; i++) {
+      histogram.add(100);
+    }
+    histogram.add(1000);
+
+    assertThat(histogram.getPercentileUpperBound(50)).isEqualTo(128L);
+    assertThat(histogram.getPercentileUpperBound(90)).isEqualTo(128L);
+    assertThat(histogram.getPercentileUpperBound(95)).isEqualTo(1001L);
+    assertThat(histogram.getPercentileUpperBound(100)).isEqualTo(1001L);
+  }
+
+  @Test
+  public void getPercentileUpperBound_emptyHistogram_returnsLengthUnset() {
+    assertThat(new QoeHistogram().getPercentileUpperBound(50)).isEqualTo((long) C.LENGTH_UNSET);
+  }
+
+  @Test
+  public void merge_addsCountsSumsAndMax() {
+    QoeHistogram histogram1 = new QoeHistogram();
+    histogram1.add(3);
+    histogram1.add(10);
+    QoeHistogram histogram2 = new QoeHistogram();
+    histogram2.add(2);
+    histogram2.add(40);
+
+    histogram1.merge(histogram2);
+
+    assertThat(histogram1.getCount()).isEqualTo(4L);
+    assertThat(histogram1.getSum()).isEqualTo(55L);
+    assertThat(histogram1.getMax()).isEqualTo(40L);
+    assertThat(histogram1.getBucketCount(2)).isEqualTo(2L);
+    assertThat(histogram2.getCount()).isEqualTo(2L);
+  }
+}
@@ -28,6 +28,7 @@ import com.google.android.exoplayer2.Format;
 import com.google.android.exoplayer2.analytics.PlayerId;
 import com.google.android.exoplayer2.drm.DrmSessionManager.DrmSessionReference;
 import com.google.android.exoplayer2.drm.ExoMediaDrm.AppManagedProvider;
+import com.google.android.exoplayer2.extractor.mp4.PsshAtomUtil;
 import com.google.android.exoplayer2.source.MediaSource;
 import com.google.android.exoplayer2.testutil.FakeExoMediaDrm;
 import com.google.android.exoplayer2.testutil.TestUtil;
@@ -806,6 +807,137 @@ public class DefaultDrmSessionManagerTest {
     drmSession.release(/* eventDispatcher= */ null);
   }
 
+  @Test(timeout = 10_000)
+  public void prefetchSession_acquireSessionReturnsPrefetchedSession() throws Exception {
+    FakeExoMediaDrm.LicenseServer licenseServer =
+        FakeExoMediaDrm.LicenseServer.allowingSchemeDatas(DRM_SCHEME_DATAS);
+    DefaultDrmSessionManager drmSessionManager =
+        new DefaultDrmSessionManager.Builder()
+            .setUuidAndExoMediaDrmProvider(DRM_SCHEME_UUID, uuid -> new FakeExoMediaDrm())
+            .setMultiSession(true)
+            .build(/* mediaDrmCallback= */ licenseServer);
+    drmSessionManager.setPlayer(/* playbackLooper= */ Looper.myLooper(), PlayerId.UNSET);
+    drmSessionManager.prepare();
+
+    drmSessionManager.experimentalPrefetchSession(new DrmInitData(DRM_SCHEME_DATAS));
+    ShadowLooper.idleMainLooper();
+    DrmSession drmSession =
+        checkNotNull(
+            drmSessionManager.acquireSession(
+                /* eventDispatcher= */ null, FORMAT_WITH_DRM_INIT_DATA));
+    waitForOpenedWithKeys(drmSession);
+
+    assertThat(licenseServer.getReceivedSchemeDatas()).containsExactly(DRM_SCHEME_DATAS);
+  }
+
+  @Test(timeout = 10_000)
+  public void prefetchSession_moreThanMaxPrefetchedSessions_releasesLeastRecentlyUsed()
+      throws Exception {
+    ImmutableList<DrmInitData.SchemeData> secondSchemeDatas =
+        ImmutableList.of(
+            new DrmInitData.SchemeData(
+                DRM_SCHEME_UUID, MimeTypes.VIDEO_MP4, /* data= */ TestUtil.createByteArray(4, 5)));
+    FakeExoMediaDrm.LicenseServer licenseServer =
+        FakeExoMediaDrm.LicenseServer.allowingSchemeDatas(DRM_SCHEME_DATAS, secondSchemeDatas);
+    DefaultDrmSessionManager drmSessionManager =
+        new DefaultDrmSessionManager.Builder()
+            .setUuidAndExoMediaDrmProvider(DRM_SCHEME_UUID, uuid -> new FakeExoMediaDrm())
+            .setMultiSession(true)
+            .setSessionKeepaliveMs(C.TIME_UNSET)
+            .experimentalSetMaxPrefetchedSessions(1)
+            .build(/* mediaDrmCallback= */ licenseServer);
+    drmSessionManager.setPlayer(/* playbackLooper= */ Looper.myLooper(), PlayerId.UNSET);
+    drmSessionManager.prepare();
+    drmSessionManager.experimentalPrefetchSession(new DrmInitData(DRM_SCHEME_DATAS));
+    ShadowLooper.idleMainLooper();
+    DrmSession firstDrmSession =
+        checkNotNull(
+            drmSessionManager.acquireSession(
+                /* eventDispatcher= */ null, FORMAT_WITH_DRM_INIT_DATA));
+    waitForOpenedWithKeys(firstDrmSession);
+    firstDrmSession.release(/* eventDispatcher= */ null);
+    @DrmSession.State int stateAfterRelease = firstDrmSession.getState();
+
+    drmSessionManager.experimentalPrefetchSession(new DrmInitData(secondSchemeDatas));
+    ShadowLooper.idleMainLooper();
+
+    // The pool kept the first session open until the second session was prefetched.
+    assertThat(stateAfterRelease).isEqualTo(DrmSession.STATE_OPENED_WITH_KEYS);
+    assertThat(firstDrmSession.getState()).isEqualTo(DrmSession.STATE_RELEASED);
+  }
+
+  @Test(timeout = 10_000)
+  public void prefetchSession_beforePrepareOrWithOfflineLicense_isIgnored() throws Exception {
+    FakeExoMediaDrm.LicenseServer licenseServer =
+        FakeExoMediaDrm.LicenseServer.allowingSchemeDatas(DRM_SCHEME_DATAS);
+    DefaultDrmSessionManager drmSessionManager =
+        new DefaultDrmSessionManager.Builder()
+            .setUuidAndExoMediaDrmProvider(DRM_SCHEME_UUID, uuid -> new FakeExoMediaDrm())
+            .setMultiSession(true)
+            .build(/* mediaDrmCallback= */ licenseServer);
+    drmSessionManager.setPlayer(/* playbackLooper= */ Looper.myLooper(), PlayerId.UNSET);
+
+    drmSessionManager.experimentalPrefetchSession(new DrmInitData(DRM_SCHEME_DATAS));
+    ShadowLooper.idleMainLooper();
+    drmSessionManager.experimentalPrefetchSession(new DrmInitData(DRM_SCHEME_DATAS));
+    drmSessionManager.setMode(
+        DefaultDrmSessionManager.MODE_PLAYBACK,
+        /* offlineLicenseKeySetId= */ TestUtil.createByteArray(7, 8, 9));
+    drmSessionManager.prepare();
+    ShadowLooper.idleMainLooper();
+
+    assertThat(licenseServer.getReceivedSchemeDatas()).isEmpty();
+  }
+
+  @Test(timeout = 10_000)
+  public void prefetchMultiKeySession_acquireSessionForCoveredKeysReturnsPrefetchedSession()
+      throws Exception {
+    UUID firstKeyId = new UUID(1, 1);
+    UUID secondKeyId = new UUID(2, 2);
+    DrmInitData firstDrmInitData =
+        new DrmInitData(
+            new DrmInitData.SchemeData(
+                DRM_SCHEME_UUID,
+                MimeTypes.VIDEO_MP4,
+                PsshAtomUtil.buildPsshAtom(
+                    DRM_SCHEME_UUID, new UUID[] {firstKeyId}, /* data= */ null)));
+    DrmInitData secondDrmInitData =
+        new DrmInitData(
+            new DrmInitData.SchemeData(
+                DRM_SCHEME_UUID,
+                MimeTypes.VIDEO_MP4,
+                PsshAtomUtil.buildPsshAtom(
+                    DRM_SCHEME_UUID, new UUID[] {secondKeyId}, /* data= */ null)));
+    ImmutableList<DrmInitData.SchemeData> multiKeySchemeDatas =
+        ImmutableList.of(
+            new DrmInitData.SchemeData(
+                DRM_SCHEME_UUID,
+                MimeTypes.VIDEO_MP4,
+                PsshAtomUtil.buildPsshAtom(
+                    DRM_SCHEME_UUID, new UUID[] {firstKeyId, secondKeyId}, /* data= */ null)));
+    FakeExoMediaDrm.LicenseServer licenseServer =
+        FakeExoMediaDrm.LicenseServer.allowingSchemeDatas(multiKeySchemeDatas);
+    DefaultDrmSessionManager drmSessionManager =
+        new DefaultDrmSessionManager.Builder()
+            .setUuidAndExoMediaDrmProvider(DRM_SCHEME_UUID, uuid -> new FakeExoMediaDrm())
+            .setMultiSession(true)
+            .build(/* mediaDrmCallback= */ licenseServer);
+    drmSessionManager.setPlayer(/* playbackLooper= */ Looper.myLooper(), PlayerId.UNSET);
+    drmSessionManager.prepare();
+
+    drmSessionManager.experimentalPrefetchMultiKeySession(
+        ImmutableList.of(firstDrmInitData, secondDrmInitData));
+    ShadowLooper.idleMainLooper();
+    DrmSession drmSession =
+        checkNotNull(
+            drmSessionManager.acquireSession(
+                /* eventDispatcher= */ null,
+                new Format.Builder().setDrmInitData(secondDrmInitData).build()));
+    waitForOpenedWithKeys(drmSession);
+
+    assertThat(licenseServer.getReceivedSchemeDatas()).containsExactly(multiKeySchemeDatas);
+  }
+
   private static void waitForOpenedWithKeys(DrmSession drmSession) {
     while (drmSession.getState() != DrmSession.STATE_OPENED_WITH_KEYS) {
       // Check the error first, so we get a meaningful failure if there's been an error.
@@ -0,0 +1,240 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.drm;
+
+import static com.google.android.exoplayer2.util.Assertions.checkNotNull;
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.os.Looper;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.Format;
+import com.google.android.exoplayer2.analytics.PlayerId;
+import com.google.android.exoplayer2.database.StandaloneDatabaseProvider;
+import com.google.android.exoplayer2.drm.DrmInitData.SchemeData;
+import com.google.android.exoplayer2.drm.ExoMediaDrm.KeyRequest;
+import com.google.android.exoplayer2.robolectric.RobolectricUtil;
+import com.google.android.exoplayer2.testutil.FakeClock;
+import java.util.HashMap;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+/** Tests {@link OfflineLicenseStore}. */
+@RunWith(AndroidJUnit4.class)
+public class OfflineLicenseStoreTest {
+
+  private static final Format FORMAT_1 = newFormatWithDrmInitData(new byte[] {1, 4, 7});
+  private static final Format FORMAT_2 = newFormatWithDrmInitData(new byte[] {2, 5, 8});
+
+  @Mock private MediaDrmCallback mediaDrmCallback;
+  @Mock private ExoMediaDrm mediaDrm;
+
+  private StandaloneDatabaseProvider databaseProvider;
+  private OfflineLicenseHelper offlineLicenseHelper;
+  private FakeClock clock;
+
+  @Before
+  public void setUp() throws Exception {
+    MockitoAnnotations.initMocks(this);
+    when(mediaDrm.openSession()).thenReturn(new byte[] {1, 2, 3});
+    when(mediaDrm.getKeyRequest(any(), any(), anyInt(), any()))
+        .thenReturn(
+            new KeyRequest(
+                /* data= */ new byte[0],
+                /* licenseServerUrl= */ "",
+                KeyRequest.REQUEST_TYPE_INITIAL));
+    offlineLicenseHelper =
+        new OfflineLicenseHelper(
+            new DefaultDrmSessionManager.Builder()
+                .setUuidAndExoMediaDrmProvider(
+                    C.WIDEVINE_UUID, new ExoMediaDrm.AppManagedProvider(mediaDrm))
+                .build(mediaDrmCallback),
+            new DrmSessionEventListener.EventDispatcher());
+    databaseProvider = new StandaloneDatabaseProvider(ApplicationProvider.getApplicationContext());
+    clock = new FakeClock(/* initialTimeMs= */ 0);
+  }
+
+  @After
+  public void tearDown() {
+    offlineLicenseHelper.release();
+    databaseProvider.close();
+  }
+
+  @Test
+  public void downloadLicense_licenseAvailableFromNewInstance() throws Exception {
+    setStubLicenseDurationSec(1000);
+    setStubKeySetId(new byte[] {6, 7, 0});
+    OfflineLicenseStore offlineLicenseStore = createOfflineLicenseStore(/* renewalWindowMs= */ 0);
+
+    offlineLicenseStore.downloadLicense(FORMAT_1);
+    offlineLicenseStore.release();
+    OfflineLicenseStore newOfflineLicenseStore =
+        createOfflineLicenseStore(/* renewalWindowMs= */ 0);
+    // The licenses are loaded on the store's background thread.
+    RobolectricUtil.runMainLooperUntil(
+        () -> newOfflineLicenseStore.getKeySetId(FORMAT_1.drmInitData) != null);
+    offlineLicenseStore = newOfflineLicenseStore;
+
+    assertThat(offlineLicenseStore.getKeySetId(FORMAT_1.drmInitData))
+        .isEqualTo(new byte[] {6, 7, 0});
+    assertThat(offlineLicenseStore.getKeySetId(FORMAT_2.drmInitData)).isNull();
+    offlineLicenseStore.release();
+  }
+
+  @Test
+  public void getKeySetId_expiredLicense_returnsNull() throws Exception {
+    setStubLicenseDurationSec(0);
+    setStubKeySetId(new byte[] {6, 7, 0});
+    OfflineLicenseStore offlineLicenseStore = createOfflineLicenseStore(/* renewalWindowMs= */ 0);
+
+    offlineLicenseStore.downloadLicense(FORMAT_1);
+
+    assertThat(offlineLicenseStore.getKeySetId(FORMAT_1.drmInitData)).isNull();
+    offlineLicenseStore.release();
+  }
+
+  @Test
+  public void renewExpiringLicenses_renewsLicensesInRenewalWindow() throws Exception {
+    OfflineLicenseStore offlineLicenseStore =
+        createOfflineLicenseStore(/* renewalWindowMs= */ 100_000);
+    setStubLicenseDurationSec(500);
+    setStubKeySetId(new byte[] {1});
+    offlineLicenseStore.downloadLicense(FORMAT_1);
+    setStubLicenseDurationSec(5000);
+    setStubKeySetId(new byte[] {2});
+    offlineLicenseStore.downloadLicense(FORMAT_2);
+
+    setStubKeySetId(new byte[] {3});
+    // Only the first license expires within the renewal window.
+    clock.advanceTime(450_000);
+    offlineLicenseStore.renewExpiringLicenses();
+
+    assertThat(offlineLicenseStore.getKeySetId(FORMAT_1.drmInitData)).isEqualTo(new byte[] {3});
+    assertThat(offlineLicenseStore.getKeySetId(FORMAT_2.drmInitData)).isEqualTo(new byte[] {2});
+    offlineLicenseStore.release();
+  }
+
+  @Test
+  public void renewExpiringLicenses_expiredLicenseFailsToRenew_removesLicense() throws Exception {
+    OfflineLicenseStore offlineLicenseStore =
+        createOfflineLicenseStore(/* renewalWindowMs= */ 100_000);
+    setStubLicenseDurationSec(500);
+    setStubKeySetId(new byte[] {1});
+    offlineLicenseStore.downloadLicense(FORMAT_1);
+    when(mediaDrm.getKeyRequest(any(), any(), anyInt(), any()))
+        .thenThrow(new IllegalStateException());
+
+    clock.advanceTime(450_000);
+    offlineLicenseStore.renewExpiringLicenses();
+    byte[] keySetIdAfterFailedRenewal = offlineLicenseStore.getKeySetId(FORMAT_1.drmInitData);
+    clock.advanceTime(100_000);
+    offlineLicenseStore.renewExpiringLicenses();
+    offlineLicenseStore.release();
+    // Check the database with a clock at which the license wouldn't have expired yet.
+    clock = new FakeClock(/* initialTimeMs= */ 0);
+    offlineLicenseStore = createOfflineLicenseStore(/* renewalWindowMs= */ 100_000);
+    offlineLicenseStore.renewExpiringLicenses();
+
+    assertThat(keySetIdAfterFailedRenewal).isEqualTo(new byte[] {1});
+    assertThat(offlineLicenseStore.getKeySetId(FORMAT_1.drmInitData)).isNull();
+    offlineLicenseStore.release();
+  }
+
+  @Test
+  public void removeLicense_removesLicenseFromDatabase() throws Exception {
+    setStubLicenseDurationSec(1000);
+    setStubKeySetId(new byte[] {6, 7, 0});
+    OfflineLicenseStore offlineLicenseStore = createOfflineLicenseStore(/* renewalWindowMs= */ 0);
+    offlineLicenseStore.downloadLicense(FORMAT_1);
+    offlineLicenseStore.downloadLicense(FORMAT_2);
+
+    offlineLicenseStore.removeLicense(FORMAT_1.drmInitData);
+    byte[] removedKeySetId = offlineLicenseStore.getKeySetId(FORMAT_1.drmInitData);
+    offlineLicenseStore.release();
+    OfflineLicenseStore newOfflineLicenseStore =
+        createOfflineLicenseStore(/* renewalWindowMs= */ 0);
+    RobolectricUtil.runMainLooperUntil(
+        () -> newOfflineLicenseStore.getKeySetId(FORMAT_2.drmInitData) != null);
+
+    assertThat(removedKeySetId).isNull();
+    assertThat(newOfflineLicenseStore.getKeySetId(FORMAT_1.drmInitData)).isNull();
+    newOfflineLicenseStore.release();
+  }
+
+  @Test
+  public void acquireSession_storedLicenseFailsToRestore_removesLicenseAndRequestsStreamingLicense()
+      throws Exception {
+    setStubLicenseDurationSec(1000);
+    setStubKeySetId(new byte[] {6, 7, 0});
+    OfflineLicenseStore offlineLicenseStore = createOfflineLicenseStore(/* renewalWindowMs= */ 0);
+    offlineLicenseStore.downloadLicense(FORMAT_1);
+    doThrow(new IllegalStateException()).when(mediaDrm).restoreKeys(any(), any());
+    DefaultDrmSessionManager drmSessionManager =
+        new DefaultDrmSessionManager.Builder()
+            .setUuidAndExoMediaDrmProvider(
+                C.WIDEVINE_UUID, new ExoMediaDrm.AppManagedProvider(mediaDrm))
+            .experimentalSetOfflineLicenseStore(offlineLicenseStore)
+            .build(mediaDrmCallback);
+    drmSessionManager.setPlayer(/* playbackLooper= */ Looper.myLooper(), PlayerId.UNSET);
+    drmSessionManager.prepare();
+
+    DrmSession drmSession =
+        checkNotNull(drmSessionManager.acquireSession(/* eventDispatcher= */ null, FORMAT_1));
+
+    assertThat(drmSession.getState()).isNotEqualTo(DrmSession.STATE_ERROR);
+    verify(mediaDrm).getKeyRequest(any(), any(), eq(ExoMediaDrm.KEY_TYPE_STREAMING), any());
+    assertThat(offlineLicenseStore.getKeySetId(FORMAT_1.drmInitData)).isNull();
+    drmSession.release(/* eventDispatcher= */ null);
+    drmSessionManager.release();
+    offlineLicenseStore.release();
+  }
+
+  private OfflineLicenseStore createOfflineLicenseStore(long renewalWindowMs) {
+    return new OfflineLicenseStore(
+        databaseProvider, offlineLicenseHelper, C.WIDEVINE_UUID, renewalWindowMs, clock);
+  }
+
+  private void setStubKeySetId(byte[] keySetId)
+      throws android.media.NotProvisionedException, android.media.DeniedByServerException {
+    when(mediaDrm.provideKeyResponse(any(byte[].class), any())).thenReturn(keySetId);
+  }
+
+  private void setStubLicenseDurationSec(long licenseDurationSec) {
+    HashMap<String, String> keyStatus = new HashMap<>();
+    keyStatus.put(
+        WidevineUtil.PROPERTY_LICENSE_DURATION_REMAINING, String.valueOf(licenseDurationSec));
+    keyStatus.put(
+        WidevineUtil.PROPERTY_PLAYBACK_DURATION_REMAINING, String.valueOf(licenseDurationSec));
+    when(mediaDrm.queryKeyStatus(any(byte[].class))).thenReturn(keyStatus);
+  }
+
+  private static Format newFormatWithDrmInitData(byte[] data) {
+    return new Format.Builder()
+        .setDrmInitData(new DrmInitData(new SchemeData(C.WIDEVINE_UUID, "mimeType", data)))
+        .build();
+  }
+}
@@ -38,6 +38,9 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
 
 /** Unit tests for {@link AsynchronousMediaCodecBufferEnqueuer}. */
 @RunWith(AndroidJUnit4.class)
@@ -161,6 +164,22 @@ public class AsynchronousMediaCodecBufferEnqueuerTest {
                 /* flags= */ 0));
   }
 
+  @Test
+  @Config(shadows = CountingShadowPattern.class)
+  public void queueSecureInputBuffer_reusesEncryptionPatterns() {
+    enqueuer.start();
+    CryptoInfo info = createCryptoInfo();
+    // Queue a buffer first, so that the pooled parameters have been created.
+    queueSecureInputBufferAndIdle(info);
+    CountingShadowPattern.instanceCount = 0;
+
+    queueSecureInputBufferAndIdle(info);
+    queueSecureInputBufferAndIdle(info);
+    queueSecureInputBufferAndIdle(info);
+
+    assertThat(CountingShadowPattern.instanceCount).isEqualTo(0);
+  }
+
   @Test
   public void flush_withoutStart_works() {
     enqueuer.flush();
@@ -248,6 +267,18 @@ public class AsynchronousMediaCodecBufferEnqueuerTest {
     enqueuer.shutdown();
   }
 
+  private void queueSecureInputBufferAndIdle(CryptoInfo info) {
+    enqueuer.queueSecureInputBuffer(
+        /* index= */ 0, /* offset= */ 0, info, /* presentationTimeUs= */ 0, /* flags= */ 0);
+    shadowOf(handlerThread.getLooper()).idle();
+    try {
+      enqueuer.maybeThrowException();
+    } catch (RuntimeException e) {
+      // The codec isn't configured for decryption and may reject the buffer, which doesn't matter
+      // for the copying of the crypto info when the buffer is queued.
+    }
+  }
+
   private static CryptoInfo createCryptoInfo() {
     CryptoInfo info = new CryptoInfo();
     int numSubSamples = 5;
@@ -270,6 +301,18 @@ public class AsynchronousMediaCodecBufferEnqueuerTest {
     return info;
   }
 
+  /** Counts the {@link MediaCodec.CryptoInfo.Pattern} instances that are created. */
+  @Implements(MediaCodec.CryptoInfo.Pattern.class)
+  public static final class CountingShadowPattern {
+
+    private static int instanceCount;
+
+    @Implementation
+    protected void __constructor__(int blocksToEncrypt, int blocksToSkip) {
+      instanceCount++;
+    }
+  }
+
   private static class TestHandlerThread extends HandlerThread {
     private boolean started;
     private boolean quit;
@@ -18,6 +18,7 @@ package com.google.android.exoplayer2.mediacodec;
 import static com.google.android.exoplayer2.decoder.DecoderReuseEvaluation.REUSE_RESULT_YES_WITHOUT_RECONFIGURATION;
 import static com.google.android.exoplayer2.testutil.FakeSampleStream.FakeSampleStreamItem.END_OF_STREAM_ITEM;
 import static com.google.android.exoplayer2.testutil.FakeSampleStream.FakeSampleStreamItem.oneByteSample;
+import static com.google.common.truth.Truth.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.inOrder;
@@ -40,6 +41,8 @@ import com.google.android.exoplayer2.drm.DrmSessionManager;
 import com.google.android.exoplayer2.testutil.FakeSampleStream;
 import com.google.android.exoplayer2.upstream.DefaultAllocator;
 import com.google.android.exoplayer2.util.MimeTypes;
+import com.google.android.exoplayer2.util.TraceRingBuffer;
+import com.google.android.exoplayer2.util.TraceUtil;
 import com.google.common.collect.ImmutableList;
 import java.nio.ByteBuffer;
 import java.util.Collections;
@@ -323,6 +326,59 @@ public class MediaCodecRendererTest {
     inOrder.verify(renderer).onProcessedOutputBuffer(400);
   }
 
+  @Test
+  public void render_withTraceRingBuffer_recordsDrainAndFeedOfCodecBuffers() throws Exception {
+    Format format =
+        new Format.Builder().setSampleMimeType(MimeTypes.AUDIO_AAC).setAverageBitrate(1000).build();
+    FakeSampleStream fakeSampleStream =
+        createFakeSampleStream(format, /* sampleTimesUs...= */ 0, 100, 200, 300);
+    MediaCodecRenderer renderer = new TestRenderer();
+    renderer.init(/* index= */ 0, PlayerId.UNSET);
+    TraceRingBuffer traceRingBuffer = new TraceRingBuffer(/* capacity= */ 1000);
+    TraceUtil.experimentalSetTraceRingBuffer(traceRingBuffer);
+
+    try {
+      renderer.enable(
+          RendererConfiguration.DEFAULT,
+          new Format[] {format},
+          fakeSampleStream,
+          /* positionUs= */ 0,
+          /* joining= */ false,
+          /* mayRenderStartOfStream= */ true,
+          /* startPositionUs= */ 0,
+          /* offsetUs= */ 0);
+      renderer.start();
+      renderer.setCurrentStreamFinal();
+      long positionUs = 0;
+      while (!renderer.isEnded()) {
+        renderer.render(positionUs, SystemClock.elapsedRealtime());
+        positionUs += 100;
+      }
+    } finally {
+      TraceUtil.experimentalSetTraceRingBuffer(null);
+    }
+
+    long drainedBufferCount = 0;
+    long fedBufferCount = 0;
+    int drainRecordCount = 0;
+    int feedRecordCount = 0;
+    for (TraceRingBuffer.Record record : traceRingBuffer.getRecords()) {
+      if (record.type == TraceRingBuffer.RECORD_TYPE_CODEC_DRAIN) {
+        assertThat(record.tag).isEqualTo(C.TRACK_TYPE_AUDIO);
+        drainedBufferCount += record.value;
+        drainRecordCount++;
+      } else if (record.type == TraceRingBuffer.RECORD_TYPE_CODEC_FEED) {
+        assertThat(record.tag).isEqualTo(C.TRACK_TYPE_AUDIO);
+        fedBufferCount += record.value;
+        feedRecordCount++;
+      }
+    }
+    assertThat(drainRecordCount).isGreaterThan(0);
+    assertThat(feedRecordCount).isEqualTo(drainRecordCount);
+    assertThat(drainedBufferCount).isEqualTo(4);
+    assertThat(fedBufferCount).isEqualTo(renderer.decoderCounters.queuedInputBufferCount);
+  }
+
   private FakeSampleStream createFakeSampleStream(Format format, long... sampleTimesUs) {
     ImmutableList.Builder<FakeSampleStream.FakeSampleStreamItem> sampleListBuilder =
         ImmutableList.builder();
@@ -413,6 +469,7 @@ public class MediaCodecRendererTest {
         // Only release buffers when the position advances far enough for realistic behavior where
         // input of buffers to the codec is faster than output.
         codec.releaseOutputBuffer(bufferIndex, /* render= */ true);
+        decoderCounters.renderedOutputBufferCount++;
         return true;
       }
       return false;
@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.mediacodec;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.media.MediaCodecInfo.CodecProfileLevel;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.android.exoplayer2.Format;
+import com.google.android.exoplayer2.mediacodec.MediaCodecUtil.CodecKey;
+import com.google.android.exoplayer2.util.MimeTypes;
+import com.google.android.exoplayer2.util.Util;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Unit tests for {@link PersistentDecoderInfoCache}. */
+@RunWith(AndroidJUnit4.class)
+public final class PersistentDecoderInfoCacheTest {
+
+  private static final CodecKey H264_KEY =
+      new CodecKey(MimeTypes.VIDEO_H264, /* secure= */ false, /* tunneling= */ false);
+
+  private File cacheFile;
+
+  @Before
+  public void setUp() throws Exception {
+    cacheFile =
+        Util.createTempFile(
+            ApplicationProvider.getApplicationContext(), "PersistentDecoderInfoCacheTest");
+  }
+
+  @After
+  public void tearDown() {
+    Util.recursiveDelete(cacheFile);
+  }
+
+  @Test
+  public void read_afterWrite_restoresDecoderInfosAndQueryResults() {
+    PersistentDecoderInfoCache cache =
+        new PersistentDecoderInfoCache(cacheFile, /* buildFingerprint= */ "build1");
+    MediaCodecInfo decoderInfo = createH264DecoderInfo();
+    decoderInfo.putCapabilityQueryResults(
+        ImmutableMap.of(
+            MediaCodecInfo.getVideoSizeAndRateKey(
+                /* width= */ 1920, /* height= */ 1080, /* frameRate= */ 30),
+            true),
+        ImmutableMap.of());
+
+    cache.write(ImmutableMap.of(H264_KEY, ImmutableList.of(decoderInfo)));
+    Map<CodecKey, List<MediaCodecInfo>> restoredDecoderInfos = cache.read();
+    cache.release();
+
+    assertThat(restoredDecoderInfos.keySet()).containsExactly(H264_KEY);
+    MediaCodecInfo restoredDecoderInfo = restoredDecoderInfos.get(H264_KEY).get(0);
+    assertThat(restoredDecoderInfo.name).isEqualTo("h264-decoder");
+    assertThat(restoredDecoderInfo.hardwareAccelerated).isTrue();
+    assertThat(restoredDecoderInfo.adaptive).isTrue();
+    assertThat(restoredDecoderInfo.capabilities).isNull();
+    assertThat(restoredDecoderInfo.getProfileLevels()).hasLength(1);
+    assertThat(restoredDecoderInfo.getProfileLevels()[0].level)
+        .isEqualTo(CodecProfileLevel.AVCLevel51);
+    assertThat(restoredDecoderInfo.getMaxSupportedInstances()).isEqualTo(4);
+    assertThat(restoredDecoderInfo.alignVideoSizeV21(/* width= */ 1919, /* height= */ 1079).x)
+        .isEqualTo(1920);
+    // No decoders are registered with the platform, so querying the capabilities would report the
+    // size and rate as unsupported. The restored result must be used instead.
+    assertThat(
+            restoredDecoderInfo.isVideoSizeAndRateSupportedV21(
+                /* width= */ 1920, /* height= */ 1080, /* frameRate= */ 30.5))
+        .isTrue();
+    assertThat(
+            restoredDecoderInfo.isVideoSizeAndRateSupportedV21(
+                /* width= */ 1280, /* height= */ 720, /* frameRate= */ 30))
+        .isFalse();
+  }
+
+  @Test
+  public void isVideoSizeAndRateSupportedV21_calledTwice_servesSecondCallFromMemo() {
+    MediaCodecInfo decoderInfo = createH264DecoderInfo();
+    long key =
+        MediaCodecInfo.getVideoSizeAndRateKey(
+            /* width= */ 1280, /* height= */ 720, /* frameRate= */ 30);
+
+    boolean firstResult =
+        decoderInfo.isVideoSizeAndRateSupportedV21(
+            /* width= */ 1280, /* height= */ 720, /* frameRate= */ 30);
+    Map<Long, Boolean> memoizedResults = decoderInfo.getVideoSizeAndRateSupport();
+    // Replace the memoized result, so that a second query of the capabilities would be detected.
+    decoderInfo.putCapabilityQueryResults(ImmutableMap.of(key, !firstResult), ImmutableMap.of());
+    boolean secondResult =
+        decoderInfo.isVideoSizeAndRateSupportedV21(
+            /* width= */ 1280, /* height= */ 720, /* frameRate= */ 30.9);
+
+    assertThat(memoizedResults).containsExactly(key, firstResult);
+    assertThat(secondResult).isEqualTo(!firstResult);
+  }
+
+  @Test
+  public void read_withOtherBuildFingerprint_returnsEmptyMap() {
+    PersistentDecoderInfoCache cache =
+        new PersistentDecoderInfoCache(cacheFile, /* buildFingerprint= */ "build1");
+    cache.write(ImmutableMap.of(H264_KEY, ImmutableList.of(createH264DecoderInfo())));
+    cache.release();
+
+    PersistentDecoderInfoCache updatedBuildCache =
+        new PersistentDecoderInfoCache(cacheFile, /* buildFingerprint= */ "build2");
+    Map<CodecKey, List<MediaCodecInfo>> restoredDecoderInfos = updatedBuildCache.read();
+    updatedBuildCache.release();
+
+    assertThat(restoredDecoderInfos).isEmpty();
+  }
+
+  @Test
+  public void read_withMissingFile_returnsEmptyMap() {
+    assertThat(cacheFile.delete()).isTrue();
+    PersistentDecoderInfoCache cache =
+        new PersistentDecoderInfoCache(cacheFile, /* buildFingerprint= */ "build1");
+
+    assertThat(cache.read()).isEmpty();
+    cache.release();
+  }
+
+  private static MediaCodecInfo createH264DecoderInfo() {
+    CodecProfileLevel profileLevel = new CodecProfileLevel();
+    profileLevel.profile = CodecProfileLevel.AVCProfileHigh;
+    profileLevel.level = CodecProfileLevel.AVCLevel51;
+    return new MediaCodecInfo(
+        /* name= */ "h264-decoder",
+        /* mimeType= */ MimeTypes.VIDEO_H264,
+        /* codecMimeType= */ MimeTypes.VIDEO_H264,
+        /* capabilities= */ null,
+        new CodecCapabilitiesSnapshot(
+            new CodecProfileLevel[] {profileLevel},
+            /* maxSupportedInstances= */ 4,
+            /* widthAlignment= */ 2,
+            /* heightAlignment= */ 2,
+            /* maxInputChannelCount= */ Format.NO_VALUE),
+        /* hardwareAccelerated= */ true,
+        /* softwareOnly= */ false,
+        /* vendor= */ true,
+        /* adaptive= */ true,
+        /* tunneling= */ false,
+        /* secure= */ false);
+  }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.mediacodec;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import android.media.MediaCodecInfo.CodecProfileLevel;
+import android.media.MediaFormat;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.android.exoplayer2.Format;
+import com.google.android.exoplayer2.util.MimeTypes;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Unit tests for {@link PrewarmingMediaCodecAdapterFactory}. */
+@RunWith(AndroidJUnit4.class)
+public class PrewarmingMediaCodecAdapterFactoryTest {
+
+  private static final MediaCodecInfo CODEC_INFO =
+      MediaCodecInfo.newInstance(
+          /* name= */ "aac-decoder",
+          /* mimeType= */ MimeTypes.AUDIO_AAC,
+          /* codecMimeType= */ MimeTypes.AUDIO_AAC,
+          /* capabilities= */ null,
+          /* hardwareAccelerated= */ false,
+          /* softwareOnly= */ false,
+          /* vendor= */ false,
+          /* forceDisableAdaptive= */ false,
+          /* forceSecure= */ false);
+
+  @Test
+  public void createAdapter_withCompatibleConfiguration_returnsPrewarmedAdapter() throws Exception {
+    FakeMediaCodecAdapterFactory fakeFactory = new FakeMediaCodecAdapterFactory();
+    PrewarmingMediaCodecAdapterFactory factory =
+        new PrewarmingMediaCodecAdapterFactory(fakeFactory, /* maxPooledCodecCount= */ 2);
+
+    factory.prewarm(createConfiguration(/* sampleRate= */ 44_100, /* maxInputSize= */ 2048));
+    MediaCodecAdapter adapter =
+        factory.createAdapter(
+            createConfiguration(/* sampleRate= */ 44_100, /* maxInputSize= */ 1024));
+
+    assertThat(fakeFactory.createdAdapters).containsExactly(adapter);
+    assertThat(factory.getPooledCodecCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void createAdapter_withIncompatibleConfiguration_createsNewAdapter() throws Exception {
+    FakeMediaCodecAdapterFactory fakeFactory = new FakeMediaCodecAdapterFactory();
+    PrewarmingMediaCodecAdapterFactory factory =
+        new PrewarmingMediaCodecAdapterFactory(fakeFactory, /* maxPooledCodecCount= */ 2);
+
+    factory.prewarm(createConfiguration(/* sampleRate= */ 44_100, /* maxInputSize= */ 1024));
+    MediaCodecAdapter adapterWithOtherSampleRate =
+        factory.createAdapter(
+            createConfiguration(/* sampleRate= */ 48_000, /* maxInputSize= */ 1024));
+    MediaCodecAdapter adapterWithLargerInputSize =
+        factory.createAdapter(
+            createConfiguration(/* sampleRate= */ 44_100, /* maxInputSize= */ 2048));
+    MediaCodecAdapter prewarmedAdapter =
+        factory.createAdapter(
+            createConfiguration(/* sampleRate= */ 44_100, /* maxInputSize= */ 1024));
+
+    assertThat(fakeFactory.createdAdapters)
+        .containsExactly(adapterWithOtherSampleRate, adapterWithLargerInputSize, prewarmedAdapter);
+    verify(prewarmedAdapter, never()).release();
+  }
+
+  @Test
+  public void prewarm_whenPoolIsFull_releasesLeastRecentlyPrewarmedCodec() throws Exception {
+    FakeMediaCodecAdapterFactory fakeFactory = new FakeMediaCodecAdapterFactory();
+    PrewarmingMediaCodecAdapterFactory factory =
+        new PrewarmingMediaCodecAdapterFactory(fakeFactory, /* maxPooledCodecCount= */ 1);
+
+    factory.prewarm(createConfiguration(/* sampleRate= */ 44_100, /* maxInputSize= */ 1024));
+    factory.prewarm(createConfiguration(/* sampleRate= */ 48_000, /* maxInputSize= */ 1024));
+    // Blocks until the second codec has been created, and hence the first one too.
+    MediaCodecAdapter adapter =
+        factory.createAdapter(
+            createConfiguration(/* sampleRate= */ 48_000, /* maxInputSize= */ 1024));
+
+    assertThat(fakeFactory.createdAdapters).hasSize(2);
+    assertThat(adapter).isEqualTo(fakeFactory.createdAdapters.get(1));
+    verify(fakeFactory.createdAdapters.get(0)).release();
+  }
+
+  @Test
+  public void prewarm_whileCodecInUse_doesNotPrewarmUntilReleased() throws Exception {
+    FakeMediaCodecAdapterFactory fakeFactory = new FakeMediaCodecAdapterFactory();
+    PrewarmingMediaCodecAdapterFactory factory =
+        new PrewarmingMediaCodecAdapterFactory(fakeFactory, /* maxPooledCodecCount= */ 2);
+    MediaCodecAdapter inUseAdapter =
+        factory.createAdapter(
+            createConfiguration(/* sampleRate= */ 44_100, /* maxInputSize= */ 1024));
+
+    factory.prewarm(createConfiguration(/* sampleRate= */ 48_000, /* maxInputSize= */ 1024));
+
+    assertThat(factory.getPooledCodecCount()).isEqualTo(0);
+
+    factory.onCodecReleased(inUseAdapter);
+    factory.prewarm(createConfiguration(/* sampleRate= */ 48_000, /* maxInputSize= */ 1024));
+
+    assertThat(factory.getPooledCodecCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void prewarm_beyondMaxSupportedInstances_doesNotPrewarm() {
+    MediaCodecInfo codecInfo =
+        new MediaCodecInfo(
+            /* name= */ "aac-decoder",
+            /* mimeType= */ MimeTypes.AUDIO_AAC,
+            /* codecMimeType= */ MimeTypes.AUDIO_AAC,
+            /* capabilities= */ null,
+            new CodecCapabilitiesSnapshot(
+                /* profileLevels= */ new CodecProfileLevel[0],
+                /* maxSupportedInstances= */ 1,
+                /* widthAlignment= */ Format.NO_VALUE,
+                /* heightAlignment= */ Format.NO_VALUE,
+                /* maxInputChannelCount= */ 2),
+            /* hardwareAccelerated= */ false,
+            /* softwareOnly= */ false,
+            /* vendor= */ false,
+            /* adaptive= */ false,
+            /* tunneling= */ false,
+            /* secure= */ false);
+    PrewarmingMediaCodecAdapterFactory factory =
+        new PrewarmingMediaCodecAdapterFactory(
+            new FakeMediaCodecAdapterFactory(), /* maxPooledCodecCount= */ 2);
+
+    factory.prewarm(
+        createConfiguration(codecInfo, /* sampleRate= */ 44_100, /* maxInputSize= */ 1024));
+    factory.prewarm(
+        createConfiguration(codecInfo, /* sampleRate= */ 48_000, /* maxInputSize= */ 1024));
+
+    assertThat(factory.getPooledCodecCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void clear_releasesPooledCodecs() throws Exception {
+    FakeMediaCodecAdapterFactory fakeFactory = new FakeMediaCodecAdapterFactory();
+    PrewarmingMediaCodecAdapterFactory factory =
+        new PrewarmingMediaCodecAdapterFactory(fakeFactory, /* maxPooledCodecCount= */ 2);
+    factory.prewarm(createConfiguration(/* sampleRate= */ 44_100, /* maxInputSize= */ 1024));
+    factory.prewarm(createConfiguration(/* sampleRate= */ 48_000, /* maxInputSize= */ 1024));
+    // Wait for both codecs to be created.
+    factory.createAdapter(createConfiguration(/* sampleRate= */ 48_000, /* maxInputSize= */ 1024));
+
+    factory.clear();
+
+    assertThat(factory.getPooledCodecCount()).isEqualTo(0);
+    verify(fakeFactory.createdAdapters.get(0)).release();
+  }
+
+  private static MediaCodecAdapter.Configuration createConfiguration(
+      int sampleRate, int maxInputSize) {
+    return createConfiguration(CODEC_INFO, sampleRate, maxInputSize);
+  }
+
+  private static MediaCodecAdapter.Configuration createConfiguration(
+      MediaCodecInfo codecInfo, int sampleRate, int maxInputSize) {
+    Format format =
+        new Format.Builder()
+            .setSampleMimeType(MimeTypes.AUDIO_AAC)
+            .setSampleRate(sampleRate)
+            .setChannelCount(2)
+            .build();
+    MediaFormat mediaFormat = new MediaFormat();
+    mediaFormat.setString(MediaFormat.KEY_MIME, MimeTypes.AUDIO_AAC);
+    mediaFormat.setInteger(MediaFormat.KEY_SAMPLE_RATE, sampleRate);
+    mediaFormat.setInteger(MediaFormat.KEY_CHANNEL_COUNT, 2);
+    mediaFormat.setInteger(MediaFormat.KEY_MAX_INPUT_SIZE, maxInputSize);
+    return MediaCodecAdapter.Configuration.createForAudioDecoding(
+        codecInfo, mediaFormat, format, /* crypto= */ null);
+  }
+
+  private static final class FakeMediaCodecAdapterFactory implements MediaCodecAdapter.Factory {
+
+    public final List<MediaCodecAdapter> createdAdapters;
+
+    public FakeMediaCodecAdapterFactory() {
+      createdAdapters = new ArrayList<>();
+    }
+
+    @Override
+    public synchronized MediaCodecAdapter createAdapter(
+        MediaCodecAdapter.Configuration configuration) {
+      MediaCodecAdapter adapter = mock(MediaCodecAdapter.class);
+      createdAdapters.add(adapter);
+      return adapter;
+    }
+  }
+}
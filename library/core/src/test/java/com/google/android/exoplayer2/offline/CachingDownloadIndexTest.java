@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.offline;
+
+import static com.google.android.exoplayer2.offline.Download.STATE_DOWNLOADING;
+import static com.google.android.exoplayer2.offline.Download.STATE_QUEUED;
+import static com.google.android.exoplayer2.offline.Download.STATE_REMOVING;
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.android.exoplayer2.database.StandaloneDatabaseProvider;
+import com.google.android.exoplayer2.testutil.DownloadBuilder;
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Unit tests for {@link CachingDownloadIndex}. */
+@RunWith(AndroidJUnit4.class)
+public class CachingDownloadIndexTest {
+
+  private StandaloneDatabaseProvider databaseProvider;
+  private DefaultDownloadIndex defaultDownloadIndex;
+  private CachingDownloadIndex downloadIndex;
+
+  @Before
+  public void setUp() {
+    databaseProvider = new StandaloneDatabaseProvider(ApplicationProvider.getApplicationContext());
+    defaultDownloadIndex = new DefaultDownloadIndex(databaseProvider);
+    downloadIndex = new CachingDownloadIndex(defaultDownloadIndex);
+  }
+
+  @After
+  public void tearDown() {
+    databaseProvider.close();
+  }
+
+  @Test
+  public void getDownloads_afterFirstQuery_doesNotQueryWrappedIndex() throws Exception {
+    downloadIndex.putDownload(new DownloadBuilder("id1").build());
+    downloadIndex.getDownloads().close();
+
+    // Write to the wrapped index directly, which isn't visible to the cached downloads.
+    defaultDownloadIndex.putDownload(new DownloadBuilder("id2").build());
+
+    assertThat(getDownloadIds(downloadIndex.getDownloads())).containsExactly("id1");
+    assertThat(getDownloadIds(defaultDownloadIndex.getDownloads())).containsExactly("id1", "id2");
+  }
+
+  @Test
+  public void putDownload_afterFirstQuery_updatesDownloadsSortedByStartTime() throws Exception {
+    downloadIndex.putDownload(new DownloadBuilder("id1").setStartTimeMs(10).build());
+    downloadIndex.getDownloads().close();
+
+    downloadIndex.putDownload(new DownloadBuilder("id2").setStartTimeMs(0).build());
+    downloadIndex.putDownload(
+        new DownloadBuilder("id1").setStartTimeMs(10).setState(STATE_DOWNLOADING).build());
+
+    assertThat(getDownloadIds(downloadIndex.getDownloads()))
+        .containsExactly("id2", "id1")
+        .inOrder();
+    assertThat(getDownloadIds(downloadIndex.getDownloads(STATE_DOWNLOADING)))
+        .containsExactly("id1");
+    assertThat(getDownloadIds(defaultDownloadIndex.getDownloads()))
+        .containsExactly("id2", "id1")
+        .inOrder();
+  }
+
+  @Test
+  public void removeDownload_afterFirstQuery_removesDownload() throws Exception {
+    downloadIndex.putDownload(new DownloadBuilder("id1").build());
+    downloadIndex.putDownload(new DownloadBuilder("id2").build());
+    downloadIndex.getDownloads().close();
+
+    downloadIndex.removeDownload("id1");
+
+    assertThat(downloadIndex.getDownload("id1")).isNull();
+    assertThat(getDownloadIds(downloadIndex.getDownloads())).containsExactly("id2");
+  }
+
+  @Test
+  public void updateDownloadProgress_afterFirstQuery_updatesProgress() throws Exception {
+    DownloadBuilder downloadBuilder =
+        new DownloadBuilder("id").setState(STATE_DOWNLOADING).setBytesDownloaded(100);
+    downloadIndex.putDownload(downloadBuilder.build());
+    downloadIndex.getDownloads().close();
+
+    downloadIndex.updateDownloadProgress(
+        ImmutableList.of(downloadBuilder.setBytesDownloaded(500).build()));
+
+    assertThat(downloadIndex.getDownload("id").getBytesDownloaded()).isEqualTo(500L);
+    assertThat(defaultDownloadIndex.getDownload("id").getBytesDownloaded()).isEqualTo(500L);
+  }
+
+  @Test
+  public void setStatesToRemoving_afterFirstQuery_reloadsDownloads() throws Exception {
+    downloadIndex.putDownload(new DownloadBuilder("id").setState(STATE_QUEUED).build());
+    downloadIndex.getDownloads().close();
+
+    downloadIndex.setStatesToRemoving();
+
+    assertThat(downloadIndex.getDownload("id").state).isEqualTo(STATE_REMOVING);
+  }
+
+  @Test
+  public void getDownloads_cursorNavigation_matchesDatabaseCursor() throws Exception {
+    downloadIndex.putDownload(new DownloadBuilder("id1").setStartTimeMs(0).build());
+    downloadIndex.putDownload(new DownloadBuilder("id2").setStartTimeMs(1).build());
+
+    DownloadCursor cursor = downloadIndex.getDownloads();
+
+    assertThat(cursor.getCount()).isEqualTo(2);
+    assertThat(cursor.isBeforeFirst()).isTrue();
+    assertThat(cursor.moveToLast()).isTrue();
+    assertThat(cursor.getDownload().request.id).isEqualTo("id2");
+    assertThat(cursor.moveToNext()).isFalse();
+    assertThat(cursor.isAfterLast()).isTrue();
+    assertThat(cursor.moveToFirst()).isTrue();
+    assertThat(cursor.getDownload().request.id).isEqualTo("id1");
+    cursor.close();
+    assertThat(cursor.isClosed()).isTrue();
+  }
+
+  private static List<String> getDownloadIds(DownloadCursor cursor) {
+    List<String> ids = new ArrayList<>();
+    try {
+      while (cursor.moveToNext()) {
+        ids.add(cursor.getDownload().request.id);
+      }
+    } finally {
+      cursor.close();
+    }
+    return ids;
+  }
+}
@@ -371,6 +371,47 @@ public class DefaultDownloadIndexTest {
     assertEqual(readDownload, download);
   }
 
+  @Test
+  public void updateDownloadProgress_updatesProgressOnly() throws Exception {
+    String id = "id";
+    DownloadBuilder downloadBuilder =
+        new DownloadBuilder(id)
+            .setState(STATE_DOWNLOADING)
+            .setPercentDownloaded(10)
+            .setBytesDownloaded(100)
+            .setUpdateTimeMs(10);
+    Download download = downloadBuilder.build();
+    downloadIndex.putDownload(download);
+
+    Download progressedDownload =
+        downloadBuilder
+            .setState(STATE_STOPPED)
+            .setPercentDownloaded(50)
+            .setBytesDownloaded(500)
+            .setUpdateTimeMs(20)
+            .build();
+    downloadIndex.updateDownloadProgress(ImmutableList.of(progressedDownload));
+
+    Download readDownload = downloadIndex.getDownload(id);
+    Download expectedDownload =
+        downloadBuilder
+            .setState(STATE_DOWNLOADING)
+            .setPercentDownloaded(50)
+            .setBytesDownloaded(500)
+            .setUpdateTimeMs(10)
+            .build();
+    assertEqual(readDownload, expectedDownload);
+  }
+
+  @Test
+  public void updateDownloadProgress_nonExistingId_doesNotAddDownload() throws Exception {
+    Download download = new DownloadBuilder("id").setBytesDownloaded(100).build();
+
+    downloadIndex.updateDownloadProgress(ImmutableList.of(download));
+
+    assertThat(downloadIndex.getDownload("id")).isNull();
+  }
+
   private static void assertEqual(Download download, Download that) {
     assertThat(download.request).isEqualTo(that.request);
     assertThat(download.state).isEqualTo(that.state);
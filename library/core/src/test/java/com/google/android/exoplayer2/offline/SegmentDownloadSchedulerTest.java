@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.offline;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import android.net.Uri;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.testutil.FakeClock;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Unit tests for {@link SegmentDownloadScheduler}. */
+@RunWith(AndroidJUnit4.class)
+public class SegmentDownloadSchedulerTest {
+
+  private static final Uri URI_HOST_1 = Uri.parse("https://host1.example.com/segment");
+  private static final Uri URI_HOST_2 = Uri.parse("https://host2.example.com/segment");
+  private static final long TIMEOUT_MS = 10_000;
+
+  @Test
+  public void acquire_atConcurrencyLimit_blocksUntilPermitReleased() throws Exception {
+    SegmentDownloadScheduler scheduler =
+        new SegmentDownloadScheduler(
+            /* maxConcurrentSegmentDownloads= */ 2,
+            /* maxConcurrentSegmentDownloadsPerHost= */ 2,
+            new FakeClock(/* initialTimeMs= */ 0));
+    SegmentDownloadScheduler.Permit permit =
+        scheduler.acquire(URI_HOST_1, /* startTimeUs= */ 0);
+    scheduler.acquire(URI_HOST_1, /* startTimeUs= */ 0);
+    CountDownLatch acquiredLatch = new CountDownLatch(1);
+
+    Thread thread = acquireOnNewThread(scheduler, URI_HOST_1, /* startTimeUs= */ 0, acquiredLatch);
+    waitForPendingCount(scheduler, 1);
+    boolean acquiredBeforeRelease = acquiredLatch.getCount() == 0;
+    scheduler.release(permit, /* bytesDownloaded= */ C.LENGTH_UNSET);
+
+    assertThat(acquiredBeforeRelease).isFalse();
+    assertThat(acquiredLatch.await(TIMEOUT_MS, MILLISECONDS)).isTrue();
+    assertThat(scheduler.getInFlightCount()).isEqualTo(2);
+    thread.join();
+  }
+
+  @Test
+  public void acquire_atHostLimit_grantsPermitForOtherHost() throws Exception {
+    SegmentDownloadScheduler scheduler =
+        new SegmentDownloadScheduler(
+            /* maxConcurrentSegmentDownloads= */ 2,
+            /* maxConcurrentSegmentDownloadsPerHost= */ 1,
+            new FakeClock(/* initialTimeMs= */ 0));
+    scheduler.acquire(URI_HOST_1, /* startTimeUs= */ 0);
+    CountDownLatch host1AcquiredLatch = new CountDownLatch(1);
+
+    Thread thread =
+        acquireOnNewThread(scheduler, URI_HOST_1, /* startTimeUs= */ 0, host1AcquiredLatch);
+    waitForPendingCount(scheduler, 1);
+    scheduler.acquire(URI_HOST_2, /* startTimeUs= */ 0);
+
+    assertThat(scheduler.getInFlightCount()).isEqualTo(2);
+    assertThat(host1AcquiredLatch.getCount()).isEqualTo(1);
+    thread.interrupt();
+    thread.join();
+    assertThat(scheduler.getPendingCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void release_withPendingPermits_grantsEarliestSegmentFirst() throws Exception {
+    SegmentDownloadScheduler scheduler =
+        new SegmentDownloadScheduler(
+            /* maxConcurrentSegmentDownloads= */ 1,
+            /* maxConcurrentSegmentDownloadsPerHost= */ 1,
+            new FakeClock(/* initialTimeMs= */ 0));
+    SegmentDownloadScheduler.Permit permit =
+        scheduler.acquire(URI_HOST_1, /* startTimeUs= */ 0);
+    List<Long> grantedStartTimesUs = new CopyOnWriteArrayList<>();
+    Thread laterSegmentThread =
+        new Thread(
+            () -> acquireAndRelease(scheduler, /* startTimeUs= */ 20_000_000, grantedStartTimesUs));
+    laterSegmentThread.start();
+    waitForPendingCount(scheduler, 1);
+    Thread earlierSegmentThread =
+        new Thread(
+            () -> acquireAndRelease(scheduler, /* startTimeUs= */ 10_000_000, grantedStartTimesUs));
+    earlierSegmentThread.start();
+    waitForPendingCount(scheduler, 2);
+
+    scheduler.release(permit, /* bytesDownloaded= */ C.LENGTH_UNSET);
+    laterSegmentThread.join();
+    earlierSegmentThread.join();
+
+    assertThat(grantedStartTimesUs).containsExactly(10_000_000L, 20_000_000L).inOrder();
+  }
+
+  @Test
+  public void release_withIncreasingThroughput_increasesConcurrencyLimit() throws Exception {
+    FakeClock fakeClock = new FakeClock(/* initialTimeMs= */ 0);
+    SegmentDownloadScheduler scheduler =
+        new SegmentDownloadScheduler(
+            /* maxConcurrentSegmentDownloads= */ 4,
+            /* maxConcurrentSegmentDownloadsPerHost= */ 4,
+            fakeClock);
+    int initialConcurrencyLimit = scheduler.getConcurrencyLimit();
+
+    downloadRound(scheduler, fakeClock, /* bytesPerSegment= */ 1000);
+    int firstRoundConcurrencyLimit = scheduler.getConcurrencyLimit();
+    downloadRound(scheduler, fakeClock, /* bytesPerSegment= */ 1000);
+
+    assertThat(initialConcurrencyLimit).isEqualTo(2);
+    assertThat(firstRoundConcurrencyLimit).isEqualTo(3);
+    assertThat(scheduler.getConcurrencyLimit()).isEqualTo(4);
+  }
+
+  @Test
+  public void release_withDecreasingThroughput_decreasesConcurrencyLimit() throws Exception {
+    FakeClock fakeClock = new FakeClock(/* initialTimeMs= */ 0);
+    SegmentDownloadScheduler scheduler =
+        new SegmentDownloadScheduler(
+            /* maxConcurrentSegmentDownloads= */ 4,
+            /* maxConcurrentSegmentDownloadsPerHost= */ 4,
+            fakeClock);
+    downloadRound(scheduler, fakeClock, /* bytesPerSegment= */ 1000);
+
+    // The round with more concurrent segments downloads fewer bytes in the same time.
+    downloadRound(scheduler, fakeClock, /* bytesPerSegment= */ 500);
+
+    assertThat(scheduler.getConcurrencyLimit()).isEqualTo(2);
+  }
+
+  private static void downloadRound(
+      SegmentDownloadScheduler scheduler, FakeClock fakeClock, long bytesPerSegment)
+      throws InterruptedException {
+    int concurrencyLimit = scheduler.getConcurrencyLimit();
+    SegmentDownloadScheduler.Permit[] permits =
+        new SegmentDownloadScheduler.Permit[concurrencyLimit];
+    for (int i = 0; i < concurrencyLimit; i++) {
+      permits[i] = scheduler.acquire(URI_HOST_1, /* startTimeUs= */ i);
+    }
+    fakeClock.advanceTime(100);
+    for (SegmentDownloadScheduler.Permit permit : permits) {
+      scheduler.release(permit, bytesPerSegment);
+    }
+  }
+
+  private static Thread acquireOnNewThread(
+      SegmentDownloadScheduler scheduler, Uri uri, long startTimeUs, CountDownLatch acquiredLatch) {
+    Thread thread =
+        new Thread(
+            () -> {
+              try {
+                scheduler.acquire(uri, startTimeUs);
+                acquiredLatch.countDown();
+              } catch (InterruptedException e) {
+                // Expected if the test interrupts the thread.
+              }
+            });
+    thread.start();
+    return thread;
+  }
+
+  private static void acquireAndRelease(
+      SegmentDownloadScheduler scheduler, long startTimeUs, List<Long> grantedStartTimesUs) {
+    try {
+      SegmentDownloadScheduler.Permit permit = scheduler.acquire(URI_HOST_1, startTimeUs);
+      grantedStartTimesUs.add(startTimeUs);
+      scheduler.release(permit, /* bytesDownloaded= */ C.LENGTH_UNSET);
+    } catch (InterruptedException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static void waitForPendingCount(SegmentDownloadScheduler scheduler, int pendingCount)
+      throws InterruptedException {
+    long endTimeMs = System.currentTimeMillis() + TIMEOUT_MS;
+    while (scheduler.getPendingCount() < pendingCount && System.currentTimeMillis() < endTimeMs) {
+      Thread.sleep(1);
+    }
+    assertThat(scheduler.getPendingCount()).isEqualTo(pendingCount);
+  }
+}
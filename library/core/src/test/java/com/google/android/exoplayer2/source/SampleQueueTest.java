@@ -37,6 +37,7 @@ import com.google.android.exoplayer2.Format;
 import com.google.android.exoplayer2.FormatHolder;
 import com.google.android.exoplayer2.PlaybackException;
 import com.google.android.exoplayer2.analytics.PlayerId;
+import com.google.android.exoplayer2.decoder.CryptoInfo;
 import com.google.android.exoplayer2.decoder.DecoderInputBuffer;
 import com.google.android.exoplayer2.drm.DrmInitData;
 import com.google.android.exoplayer2.drm.DrmSession;
@@ -49,9 +50,11 @@ import com.google.android.exoplayer2.upstream.Allocator;
 import com.google.android.exoplayer2.upstream.DefaultAllocator;
 import com.google.android.exoplayer2.util.MimeTypes;
 import com.google.android.exoplayer2.util.ParsableByteArray;
+import com.google.common.collect.Sets;
 import com.google.common.primitives.Bytes;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicReference;
 import org.junit.After;
 import org.junit.Assert;
@@ -562,6 +565,40 @@ public final class SampleQueueTest {
     assertArrayEquals(expectedInitializationVector, inputBuffer.cryptoInfo.iv);
   }
 
+  @Test
+  public void readEncryptedSamples_increasingSubsampleCounts_growsArraysGeometrically() {
+    when(mockDrmSession.getState()).thenReturn(DrmSession.STATE_OPENED_WITH_KEYS);
+    writeFormat(FORMAT_ENCRYPTED);
+    int sampleCount = 8;
+    for (int i = 0; i < sampleCount; i++) {
+      writeSample(
+          buildSubsampleEncryptedSampleData(/* subsampleCount= */ i + 1),
+          /* timestampUs= */ i * 1000L,
+          BUFFER_FLAG_KEY_FRAME | BUFFER_FLAG_ENCRYPTED);
+    }
+    assertReadFormat(/* formatRequired= */ false, FORMAT_ENCRYPTED_WITH_EXO_MEDIA_CRYPTO_TYPE);
+
+    Set<int[]> clearDataSizeArrays = Sets.newIdentityHashSet();
+    Set<int[]> encryptedDataSizeArrays = Sets.newIdentityHashSet();
+    for (int i = 0; i < sampleCount; i++) {
+      int result =
+          sampleQueue.read(
+              formatHolder, inputBuffer, /* readFlags= */ 0, /* loadingFinished= */ false);
+      assertThat(result).isEqualTo(RESULT_BUFFER_READ);
+      CryptoInfo cryptoInfo = inputBuffer.cryptoInfo;
+      assertThat(cryptoInfo.numSubSamples).isEqualTo(i + 1);
+      assertThat(cryptoInfo.numBytesOfClearData[i]).isEqualTo(1);
+      assertThat(cryptoInfo.numBytesOfEncryptedData[i]).isEqualTo(2);
+      clearDataSizeArrays.add(cryptoInfo.numBytesOfClearData);
+      encryptedDataSizeArrays.add(cryptoInfo.numBytesOfEncryptedData);
+      inputBuffer.clear();
+    }
+
+    // The arrays are allocated with lengths 1, 2, 4 and 8, rather than once per sample.
+    assertThat(clearDataSizeArrays).hasSize(4);
+    assertThat(encryptedDataSizeArrays).hasSize(4);
+  }
+
   @Test
   public void readWithErrorSessionReadsNothingAndThrows() throws IOException {
     when(mockDrmSession.getState()).thenReturn(DrmSession.STATE_OPENED);
@@ -1437,6 +1474,23 @@ public final class SampleQueueTest {
     sampleQueue.format(format);
   }
 
+  /**
+   * Returns the data of a sample with subsample encryption, with an 8 byte initialization vector
+   * and {@code subsampleCount} subsamples that each have 1 clear byte and 2 encrypted bytes.
+   */
+  private static byte[] buildSubsampleEncryptedSampleData(int subsampleCount) {
+    int subsampleDataOffset = 1 + 8 + 2;
+    byte[] data = new byte[subsampleDataOffset + 6 * subsampleCount + 3 * subsampleCount];
+    data[0] = (byte) 0x88; // subsampleEncryption = true (1 bit), ivSize = 8 (7 bits).
+    data[subsampleDataOffset - 1] = (byte) subsampleCount;
+    for (int i = 0; i < subsampleCount; i++) {
+      int subsampleOffset = subsampleDataOffset + 6 * i;
+      data[subsampleOffset + 1] = 1; // clearDataSize (unsigned short).
+      data[subsampleOffset + 5] = 2; // encryptedDataSize (unsigned int).
+    }
+    return data;
+  }
+
   /** Writes a single sample to {@code sampleQueue}. */
   private void writeSample(byte[] data, long timestampUs, int sampleFlags) {
     sampleQueue.sampleData(new ParsableByteArray(data), data.length);
@@ -0,0 +1,403 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.source.preload;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.os.Looper;
+import android.util.Pair;
+import androidx.annotation.Nullable;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.DefaultLoadControl;
+import com.google.android.exoplayer2.MediaItem;
+import com.google.android.exoplayer2.RendererCapabilities;
+import com.google.android.exoplayer2.Timeline;
+import com.google.android.exoplayer2.analytics.PlayerId;
+import com.google.android.exoplayer2.drm.DrmSessionEventListener;
+import com.google.android.exoplayer2.drm.DrmSessionManager;
+import com.google.android.exoplayer2.drm.DrmSessionManagerProvider;
+import com.google.android.exoplayer2.source.MediaPeriod;
+import com.google.android.exoplayer2.source.MediaSource;
+import com.google.android.exoplayer2.source.MediaSource.MediaPeriodId;
+import com.google.android.exoplayer2.source.MediaSourceEventListener;
+import com.google.android.exoplayer2.source.SampleStream;
+import com.google.android.exoplayer2.source.TrackGroupArray;
+import com.google.android.exoplayer2.testutil.ExoPlayerTestRunner;
+import com.google.android.exoplayer2.testutil.FakeMediaPeriod;
+import com.google.android.exoplayer2.testutil.FakeMediaSource;
+import com.google.android.exoplayer2.testutil.FakeRenderer;
+import com.google.android.exoplayer2.testutil.FakeTimeline;
+import com.google.android.exoplayer2.trackselection.DefaultTrackSelector;
+import com.google.android.exoplayer2.trackselection.ExoTrackSelection;
+import com.google.android.exoplayer2.trackselection.FixedTrackSelection;
+import com.google.android.exoplayer2.upstream.Allocator;
+import com.google.android.exoplayer2.upstream.DefaultAllocator;
+import com.google.android.exoplayer2.upstream.DefaultBandwidthMeter;
+import com.google.android.exoplayer2.upstream.LoadErrorHandlingPolicy;
+import com.google.android.exoplayer2.upstream.TransferListener;
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.checkerframework.checker.nullness.compatqual.NullableType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Unit tests for {@link PreloadManager}. */
+@RunWith(AndroidJUnit4.class)
+public final class PreloadManagerTest {
+
+  private static final MediaItem MEDIA_ITEM_1 = MediaItem.fromUri("http://example.com/1");
+  private static final MediaItem MEDIA_ITEM_2 = MediaItem.fromUri("http://example.com/2");
+  // Preloading a single allocation would reach this target if it were counted by the player.
+  private static final int PLAYER_TARGET_BUFFER_BYTES = C.DEFAULT_BUFFER_SEGMENT_SIZE;
+
+  private HashMap<MediaItem, FakeMediaSource> fakeMediaSources;
+  private DefaultLoadControl loadControl;
+  private PreloadManager preloadManager;
+
+  @Before
+  public void setUp() {
+    fakeMediaSources = new HashMap<>();
+    fakeMediaSources.put(MEDIA_ITEM_1, createFakeMediaSource());
+    fakeMediaSources.put(MEDIA_ITEM_2, createFakeMediaSource());
+    loadControl =
+        new DefaultLoadControl.Builder().setTargetBufferBytes(PLAYER_TARGET_BUFFER_BYTES).build();
+    preloadManager =
+        new PreloadManager(
+            new FakeMediaSourceFactory(fakeMediaSources),
+            new DefaultTrackSelector(ApplicationProvider.getApplicationContext()),
+            new DefaultBandwidthMeter.Builder(ApplicationProvider.getApplicationContext()).build(),
+            new RendererCapabilities[] {new FakeRenderer(C.TRACK_TYPE_VIDEO)},
+            Looper.getMainLooper(),
+            loadControl.getAllocator(),
+            /* maxPreloadCount= */ 1,
+            PreloadManager.DEFAULT_TARGET_PRELOAD_DURATION_MS,
+            PreloadManager.DEFAULT_MAX_PRELOAD_BYTES);
+  }
+
+  @After
+  public void tearDown() {
+    preloadManager.release();
+  }
+
+  @Test
+  public void setUpcomingMediaItems_preloadsUpToMaxPreloadCountItems() {
+    preloadManager.setUpcomingMediaItems(ImmutableList.of(MEDIA_ITEM_1, MEDIA_ITEM_2));
+    shadowOf(Looper.getMainLooper()).idle();
+
+    assertThat(preloadManager.getMediaSource(MEDIA_ITEM_1)).isNotNull();
+    assertThat(preloadManager.getMediaSource(MEDIA_ITEM_2)).isNull();
+    FakeMediaSource preloadedSource = fakeMediaSources.get(MEDIA_ITEM_1);
+    assertThat(preloadedSource.isPrepared()).isTrue();
+    assertThat(preloadedSource.getCreatedMediaPeriods()).hasSize(1);
+    assertThat(fakeMediaSources.get(MEDIA_ITEM_2).isPrepared()).isFalse();
+  }
+
+  @Test
+  public void setUpcomingMediaItems_withoutPreviousItem_releasesPreloadedSource() {
+    preloadManager.setUpcomingMediaItems(ImmutableList.of(MEDIA_ITEM_1));
+    shadowOf(Looper.getMainLooper()).idle();
+
+    preloadManager.setUpcomingMediaItems(ImmutableList.of(MEDIA_ITEM_2));
+    shadowOf(Looper.getMainLooper()).idle();
+
+    fakeMediaSources.get(MEDIA_ITEM_1).assertReleased();
+    assertThat(fakeMediaSources.get(MEDIA_ITEM_2).isPrepared()).isTrue();
+  }
+
+  @Test
+  public void createPeriod_atPreloadedPosition_handsOverPreloadedPeriodAndStreams() {
+    preloadManager.setUpcomingMediaItems(ImmutableList.of(MEDIA_ITEM_1));
+    shadowOf(Looper.getMainLooper()).idle();
+    MediaSource mediaSource = preloadManager.getMediaSource(MEDIA_ITEM_1);
+    AtomicReference<Timeline> timelineReference = new AtomicReference<>();
+    mediaSource.prepareSource(
+        (source, timeline) -> timelineReference.set(timeline),
+        /* mediaTransferListener= */ null,
+        PlayerId.UNSET);
+    Timeline timeline = timelineReference.get();
+    Pair<Object, Long> periodPosition =
+        timeline.getPeriodPositionUs(
+            new Timeline.Window(),
+            new Timeline.Period(),
+            /* windowIndex= */ 0,
+            /* windowPositionUs= */ C.TIME_UNSET);
+
+    MediaPeriod mediaPeriod =
+        mediaSource.createPeriod(
+            new MediaPeriodId(periodPosition.first, /* windowSequenceNumber= */ 0),
+            loadControl.getAllocator(),
+            periodPosition.second);
+    AtomicBoolean prepared = new AtomicBoolean();
+    mediaPeriod.prepare(
+        new MediaPeriod.Callback() {
+          @Override
+          public void onPrepared(MediaPeriod mediaPeriod) {
+            prepared.set(true);
+          }
+
+          @Override
+          public void onContinueLoadingRequested(MediaPeriod source) {}
+        },
+        periodPosition.second);
+    SampleStream[] streams = new SampleStream[1];
+    boolean[] streamResetFlags = new boolean[1];
+    mediaPeriod.selectTracks(
+        new ExoTrackSelection[] {
+          new FixedTrackSelection(mediaPeriod.getTrackGroups().get(0), /* track= */ 0)
+        },
+        /* mayRetainStreamFlags= */ new boolean[1],
+        streams,
+        streamResetFlags,
+        periodPosition.second);
+
+    assertThat(fakeMediaSources.get(MEDIA_ITEM_1).getCreatedMediaPeriods()).hasSize(1);
+    assertThat(mediaPeriod).isInstanceOf(PreloadMediaPeriod.class);
+    assertThat(prepared.get()).isTrue();
+    assertThat(streams[0]).isNotNull();
+    assertThat(streamResetFlags[0]).isTrue();
+  }
+
+  @Test
+  public void setUpcomingMediaItems_doesNotCountPreloadedMediaTowardsPlayerBuffer() {
+    preloadManager.setUpcomingMediaItems(ImmutableList.of(MEDIA_ITEM_1));
+    shadowOf(Looper.getMainLooper()).idle();
+
+    assertThat(preloadManager.getPreloadedBytes()).isAtLeast(PLAYER_TARGET_BUFFER_BYTES);
+    assertThat(loadControl.getAllocator().getTotalBytesAllocated()).isEqualTo(0);
+    // The item that's playing keeps buffering up to the player's target buffer size.
+    assertThat(
+            loadControl.shouldContinueLoading(
+                /* playbackPositionUs= */ 0, /* bufferedDurationUs= */ 0, /* playbackSpeed= */ 1))
+        .isTrue();
+  }
+
+  @Test
+  public void createPeriod_withPlayerAllocator_handsOverPreloadedMedia() {
+    preloadManager.setUpcomingMediaItems(ImmutableList.of(MEDIA_ITEM_1));
+    shadowOf(Looper.getMainLooper()).idle();
+    MediaSource mediaSource = preloadManager.getMediaSource(MEDIA_ITEM_1);
+    Pair<Object, Long> periodPosition = prepareAndGetDefaultPeriodPosition(mediaSource);
+
+    MediaPeriod mediaPeriod =
+        mediaSource.createPeriod(
+            new MediaPeriodId(periodPosition.first, /* windowSequenceNumber= */ 0),
+            loadControl.getAllocator(),
+            periodPosition.second);
+
+    assertThat(mediaPeriod).isInstanceOf(PreloadMediaPeriod.class);
+    // The handed over media is no longer counted as preloaded.
+    assertThat(preloadManager.getPreloadedBytes()).isEqualTo(0);
+    assertThat(loadControl.getAllocator().getTotalBytesAllocated()).isEqualTo(0);
+  }
+
+  @Test
+  public void releasePeriod_afterHandOver_releasesPreloadedMediaToPreloadAllocator() {
+    preloadManager.setUpcomingMediaItems(ImmutableList.of(MEDIA_ITEM_1));
+    shadowOf(Looper.getMainLooper()).idle();
+    MediaSource mediaSource = preloadManager.getMediaSource(MEDIA_ITEM_1);
+    Pair<Object, Long> periodPosition = prepareAndGetDefaultPeriodPosition(mediaSource);
+    MediaPeriod mediaPeriod =
+        mediaSource.createPeriod(
+            new MediaPeriodId(periodPosition.first, /* windowSequenceNumber= */ 0),
+            loadControl.getAllocator(),
+            periodPosition.second);
+
+    mediaSource.releasePeriod(mediaPeriod);
+
+    // Releasing preloaded allocations to the player's allocator would make its count negative.
+    assertThat(loadControl.getAllocator().getTotalBytesAllocated()).isEqualTo(0);
+    assertThat(preloadManager.getPreloadedBytes()).isEqualTo(0);
+  }
+
+  @Test
+  public void createPeriod_withOtherAllocator_rebuildsPeriodOnPlayerAllocator() {
+    preloadManager.setUpcomingMediaItems(ImmutableList.of(MEDIA_ITEM_1));
+    shadowOf(Looper.getMainLooper()).idle();
+    MediaSource mediaSource = preloadManager.getMediaSource(MEDIA_ITEM_1);
+    Pair<Object, Long> periodPosition = prepareAndGetDefaultPeriodPosition(mediaSource);
+    DefaultAllocator playerAllocator =
+        new DefaultAllocator(/* trimOnReset= */ true, C.DEFAULT_BUFFER_SEGMENT_SIZE);
+
+    MediaPeriod mediaPeriod =
+        mediaSource.createPeriod(
+            new MediaPeriodId(periodPosition.first, /* windowSequenceNumber= */ 0),
+            playerAllocator,
+            periodPosition.second);
+
+    assertThat(mediaPeriod).isNotInstanceOf(PreloadMediaPeriod.class);
+    assertThat(fakeMediaSources.get(MEDIA_ITEM_1).getCreatedMediaPeriods()).hasSize(2);
+    assertThat(loadControl.getAllocator().getTotalBytesAllocated()).isEqualTo(0);
+    assertThat(preloadManager.getPreloadedBytes()).isEqualTo(0);
+  }
+
+  @Test
+  public void selectTracks_withPreloadedTracks_forwardsPlayerSelectionsToPeriod() {
+    SelectionRecordingFakeMediaSource fakeMediaSource = new SelectionRecordingFakeMediaSource();
+    fakeMediaSources.put(MEDIA_ITEM_1, fakeMediaSource);
+    preloadManager.setUpcomingMediaItems(ImmutableList.of(MEDIA_ITEM_1));
+    shadowOf(Looper.getMainLooper()).idle();
+    MediaSource mediaSource = preloadManager.getMediaSource(MEDIA_ITEM_1);
+    Pair<Object, Long> periodPosition = prepareAndGetDefaultPeriodPosition(mediaSource);
+    MediaPeriod mediaPeriod =
+        mediaSource.createPeriod(
+            new MediaPeriodId(periodPosition.first, /* windowSequenceNumber= */ 0),
+            loadControl.getAllocator(),
+            periodPosition.second);
+    ExoTrackSelection playerSelection =
+        new FixedTrackSelection(mediaPeriod.getTrackGroups().get(0), /* track= */ 0);
+
+    SampleStream[] streams = new SampleStream[1];
+    mediaPeriod.selectTracks(
+        new ExoTrackSelection[] {playerSelection},
+        /* mayRetainStreamFlags= */ new boolean[1],
+        streams,
+        /* streamResetFlags= */ new boolean[1],
+        periodPosition.second);
+
+    assertThat(mediaPeriod).isInstanceOf(PreloadMediaPeriod.class);
+    assertThat(fakeMediaSource.selections).hasSize(2);
+    assertThat(fakeMediaSource.selections.get(0)).isNotSameInstanceAs(playerSelection);
+    assertThat(fakeMediaSource.selections.get(1)).isSameInstanceAs(playerSelection);
+    assertThat(streams[0]).isNotNull();
+  }
+
+  private static Pair<Object, Long> prepareAndGetDefaultPeriodPosition(MediaSource mediaSource) {
+    AtomicReference<Timeline> timelineReference = new AtomicReference<>();
+    mediaSource.prepareSource(
+        (source, timeline) -> timelineReference.set(timeline),
+        /* mediaTransferListener= */ null,
+        PlayerId.UNSET);
+    return timelineReference
+        .get()
+        .getPeriodPositionUs(
+            new Timeline.Window(),
+            new Timeline.Period(),
+            /* windowIndex= */ 0,
+            /* windowPositionUs= */ C.TIME_UNSET);
+  }
+
+  @Test
+  public void createPeriod_atOtherPosition_createsNewPeriod() {
+    preloadManager.setUpcomingMediaItems(ImmutableList.of(MEDIA_ITEM_1));
+    shadowOf(Looper.getMainLooper()).idle();
+    MediaSource mediaSource = preloadManager.getMediaSource(MEDIA_ITEM_1);
+    AtomicReference<Timeline> timelineReference = new AtomicReference<>();
+    mediaSource.prepareSource(
+        (source, timeline) -> timelineReference.set(timeline),
+        /* mediaTransferListener= */ null,
+        PlayerId.UNSET);
+    Object periodUid = timelineReference.get().getUidOfPeriod(/* periodIndex= */ 0);
+
+    MediaPeriod mediaPeriod =
+        mediaSource.createPeriod(
+            new MediaPeriodId(periodUid, /* windowSequenceNumber= */ 0),
+            new DefaultAllocator(/* trimOnReset= */ true, C.DEFAULT_BUFFER_SEGMENT_SIZE),
+            /* startPositionUs= */ 1);
+
+    assertThat(fakeMediaSources.get(MEDIA_ITEM_1).getCreatedMediaPeriods()).hasSize(2);
+    assertThat(mediaPeriod).isNotInstanceOf(PreloadMediaPeriod.class);
+  }
+
+  private static FakeMediaSource createFakeMediaSource() {
+    return new FakeMediaSource(new FakeTimeline(), ExoPlayerTestRunner.VIDEO_FORMAT);
+  }
+
+  /** A {@link FakeMediaSource} that records the selections passed to its periods. */
+  private static final class SelectionRecordingFakeMediaSource extends FakeMediaSource {
+
+    private final List<ExoTrackSelection> selections;
+
+    public SelectionRecordingFakeMediaSource() {
+      super(new FakeTimeline(), ExoPlayerTestRunner.VIDEO_FORMAT);
+      selections = new ArrayList<>();
+    }
+
+    @Override
+    protected MediaPeriod createMediaPeriod(
+        MediaPeriodId id,
+        TrackGroupArray trackGroupArray,
+        Allocator allocator,
+        MediaSourceEventListener.EventDispatcher mediaSourceEventDispatcher,
+        DrmSessionManager drmSessionManager,
+        DrmSessionEventListener.EventDispatcher drmEventDispatcher,
+        @Nullable TransferListener transferListener) {
+      return new FakeMediaPeriod(
+          trackGroupArray,
+          allocator,
+          FakeMediaPeriod.TrackDataFactory.singleSampleWithTimeUs(/* sampleTimeUs= */ 0),
+          mediaSourceEventDispatcher,
+          drmSessionManager,
+          drmEventDispatcher,
+          /* deferOnPrepared= */ false) {
+        @Override
+        public long selectTracks(
+            @NullableType ExoTrackSelection[] selections,
+            boolean[] mayRetainStreamFlags,
+            @NullableType SampleStream[] streams,
+            boolean[] streamResetFlags,
+            long positionUs) {
+          for (@Nullable ExoTrackSelection selection : selections) {
+            if (selection != null) {
+              SelectionRecordingFakeMediaSource.this.selections.add(selection);
+            }
+          }
+          return super.selectTracks(
+              selections, mayRetainStreamFlags, streams, streamResetFlags, positionUs);
+        }
+      };
+    }
+  }
+
+  private static final class FakeMediaSourceFactory implements MediaSource.Factory {
+
+    private final HashMap<MediaItem, FakeMediaSource> mediaSources;
+
+    public FakeMediaSourceFactory(HashMap<MediaItem, FakeMediaSource> mediaSources) {
+      this.mediaSources = mediaSources;
+    }
+
+    @Override
+    public MediaSource.Factory setDrmSessionManagerProvider(
+        DrmSessionManagerProvider drmSessionManagerProvider) {
+      return this;
+    }
+
+    @Override
+    public MediaSource.Factory setLoadErrorHandlingPolicy(
+        LoadErrorHandlingPolicy loadErrorHandlingPolicy) {
+      return this;
+    }
+
+    @Override
+    public @C.ContentType int[] getSupportedTypes() {
+      return new int[] {C.CONTENT_TYPE_OTHER};
+    }
+
+    @Override
+    public MediaSource createMediaSource(MediaItem mediaItem) {
+      return mediaSources.get(mediaItem);
+    }
+  }
+}
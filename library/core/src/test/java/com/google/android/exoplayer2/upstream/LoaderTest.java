@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.upstream;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import androidx.annotation.Nullable;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.android.exoplayer2.robolectric.RobolectricUtil;
+import com.google.android.exoplayer2.util.TraceRingBuffer;
+import com.google.android.exoplayer2.util.TraceUtil;
+import java.io.IOException;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Unit tests for {@link Loader}. */
+@RunWith(AndroidJUnit4.class)
+public final class LoaderTest {
+
+  private Loader loader;
+  private TraceRingBuffer traceRingBuffer;
+
+  @Before
+  public void setUp() {
+    loader = new Loader("LoaderTest");
+    traceRingBuffer = new TraceRingBuffer(/* capacity= */ 10);
+    TraceUtil.experimentalSetTraceRingBuffer(traceRingBuffer);
+  }
+
+  @After
+  public void tearDown() {
+    TraceUtil.experimentalSetTraceRingBuffer(null);
+    loader.release();
+  }
+
+  @Test
+  public void startLoading_withTraceRingBuffer_recordsCompletedLoad() throws Exception {
+    @SuppressWarnings("unchecked") // Mocking a generic type.
+    Loader.Callback<FakeLoadable> callback = mock(Loader.Callback.class);
+
+    loader.startLoading(
+        new FakeLoadable(/* error= */ null), callback, /* defaultMinRetryCount= */ 0);
+    RobolectricUtil.runMainLooperUntil(() -> !loader.isLoading());
+
+    List<TraceRingBuffer.Record> records = traceRingBuffer.getRecords();
+    assertThat(records).hasSize(1);
+    assertThat(records.get(0).type).isEqualTo(TraceRingBuffer.RECORD_TYPE_LOAD_COMPLETED);
+  }
+
+  @Test
+  public void startLoading_withTraceRingBuffer_recordsLoadError() throws Exception {
+    @SuppressWarnings("unchecked") // Mocking a generic type.
+    Loader.Callback<FakeLoadable> callback = mock(Loader.Callback.class);
+    when(callback.onLoadError(any(), anyLong(), anyLong(), any(), anyInt()))
+        .thenReturn(Loader.DONT_RETRY);
+
+    loader.startLoading(
+        new FakeLoadable(new IOException()), callback, /* defaultMinRetryCount= */ 0);
+    RobolectricUtil.runMainLooperUntil(() -> !loader.isLoading());
+
+    List<TraceRingBuffer.Record> records = traceRingBuffer.getRecords();
+    assertThat(records).hasSize(1);
+    assertThat(records.get(0).type).isEqualTo(TraceRingBuffer.RECORD_TYPE_LOAD_ERROR);
+  }
+
+  private static final class FakeLoadable implements Loader.Loadable {
+
+    @Nullable private final IOException error;
+
+    public FakeLoadable(@Nullable IOException error) {
+      this.error = error;
+    }
+
+    @Override
+    public void cancelLoad() {}
+
+    @Override
+    public void load() throws IOException {
+      if (error != null) {
+        throw error;
+      }
+    }
+  }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.upstream.experimental;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.android.exoplayer2.testutil.FakeClock;
+import com.google.android.exoplayer2.testutil.TransferTraceReplayer;
+import com.google.common.collect.Iterables;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Unit tests for the {@link ActiveTimeBandwidthEstimator}. */
+@RunWith(AndroidJUnit4.class)
+public class ActiveTimeBandwidthEstimatorTest {
+
+  @Test
+  public void builder_setNonPositiveIdleThreshold_throws() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new ActiveTimeBandwidthEstimator.Builder().setIdleThresholdMs(0));
+  }
+
+  @Test
+  public void builder_setNonPositiveMaxSampleDuration_throws() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new ActiveTimeBandwidthEstimator.Builder().setMaxSampleDurationMs(0));
+  }
+
+  @Test
+  public void replay_parallelTransfers_countsOverlappingTimeOnce() {
+    FakeClock fakeClock = new FakeClock(/* initialTimeMs= */ 0);
+    ActiveTimeBandwidthEstimator estimator =
+        new ActiveTimeBandwidthEstimator.Builder().setClock(fakeClock).build();
+    String trace =
+        "0 video start\n"
+            + "0 audio start\n"
+            + "20 video bytes 5000\n"
+            + "20 audio bytes 1000\n"
+            + "40 video bytes 5000\n"
+            + "40 audio bytes 1000\n"
+            + "40 audio end\n"
+            + "50 video bytes 2400\n"
+            + "50 video end\n";
+
+    List<Long> estimates = TransferTraceReplayer.replay(trace, estimator, fakeClock);
+
+    // 14400 bytes in 50 ms.
+    assertThat(Iterables.getLast(estimates)).isEqualTo(2_304_000L);
+  }
+
+  @Test
+  public void replay_chunkedTransferWithIdleGap_excludesIdleGap() {
+    String trace =
+        "0 video start\n"
+            + "20 video bytes 2500\n"
+            + "30 video bytes 2500\n"
+            + "# The server waits for the next chunk to be encoded.\n"
+            + "500 video bytes 2500\n"
+            + "510 video bytes 2500\n"
+            + "520 video bytes 2500\n"
+            + "520 video end\n";
+    FakeClock fakeClock = new FakeClock(/* initialTimeMs= */ 0);
+    ActiveTimeBandwidthEstimator estimator =
+        new ActiveTimeBandwidthEstimator.Builder().setClock(fakeClock).build();
+    FakeClock combinedFakeClock = new FakeClock(/* initialTimeMs= */ 0);
+    CombinedParallelSampleBandwidthEstimator combinedEstimator =
+        new CombinedParallelSampleBandwidthEstimator.Builder().setClock(combinedFakeClock).build();
+
+    List<Long> estimates = TransferTraceReplayer.replay(trace, estimator, fakeClock);
+    List<Long> combinedEstimates =
+        TransferTraceReplayer.replay(trace, combinedEstimator, combinedFakeClock);
+
+    // 10000 bytes in 50 ms, excluding the bytes that arrived after the idle gap.
+    assertThat(Iterables.getLast(estimates)).isEqualTo(1_600_000L);
+    assertThat(Iterables.getLast(combinedEstimates)).isLessThan(200_000L);
+  }
+
+  @Test
+  public void replay_longTransfer_capturesSampleAfterMaxSampleDuration() {
+    FakeClock fakeClock = new FakeClock(/* initialTimeMs= */ 0);
+    ActiveTimeBandwidthEstimator estimator =
+        new ActiveTimeBandwidthEstimator.Builder()
+            .setMaxSampleDurationMs(100)
+            .setClock(fakeClock)
+            .build();
+    String trace = "0 video start\n" + "50 video bytes 1800\n" + "100 video bytes 1800\n";
+
+    List<Long> estimates = TransferTraceReplayer.replay(trace, estimator, fakeClock);
+
+    // 3600 bytes in 100 ms, captured before the transfer ends.
+    assertThat(estimates)
+        .containsExactly(
+            BandwidthEstimator.ESTIMATE_NOT_AVAILABLE,
+            BandwidthEstimator.ESTIMATE_NOT_AVAILABLE,
+            288_000L)
+        .inOrder();
+  }
+
+  @Test
+  public void replay_allGapsLongerThanIdleThreshold_usesElapsedTime() {
+    FakeClock fakeClock = new FakeClock(/* initialTimeMs= */ 0);
+    ActiveTimeBandwidthEstimator estimator =
+        new ActiveTimeBandwidthEstimator.Builder().setClock(fakeClock).build();
+    String trace =
+        "0 video start\n" + "200 video bytes 800\n" + "400 video bytes 800\n" + "400 video end\n";
+
+    List<Long> estimates = TransferTraceReplayer.replay(trace, estimator, fakeClock);
+
+    // 1600 bytes in 400 ms.
+    assertThat(Iterables.getLast(estimates)).isEqualTo(32_000L);
+  }
+
+  @Test
+  public void onNetworkTypeChange_resetsBandwidthEstimate() {
+    FakeClock fakeClock = new FakeClock(/* initialTimeMs= */ 0);
+    ActiveTimeBandwidthEstimator estimator =
+        new ActiveTimeBandwidthEstimator.Builder().setClock(fakeClock).build();
+    TransferTraceReplayer.replay(
+        "0 video start\n" + "10 video bytes 100\n" + "10 video end\n", estimator, fakeClock);
+
+    estimator.onNetworkTypeChange(/* newBandwidthEstimate= */ 100);
+
+    assertThat(estimator.getBandwidthEstimate())
+        .isEqualTo(BandwidthEstimator.ESTIMATE_NOT_AVAILABLE);
+  }
+}
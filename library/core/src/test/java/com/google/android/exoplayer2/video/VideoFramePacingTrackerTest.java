@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.video;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Unit test for {@link VideoFramePacingTracker}. */
+@RunWith(AndroidJUnit4.class)
+public final class VideoFramePacingTrackerTest {
+
+  private static final long VSYNC_DURATION_NS = 16_666_667;
+
+  @Test
+  public void onFrameReleased_recordsReleaseDeltaHistogram() {
+    VideoFramePacingTracker tracker = new VideoFramePacingTracker();
+
+    tracker.onFrameReleased(
+        /* targetReleaseTimeNs= */ 0,
+        /* releaseTimeNs= */ 1_500_000,
+        /* releaseCallTimeNs= */ -20_000_000);
+    tracker.onFrameReleased(
+        /* targetReleaseTimeNs= */ 50_000_000,
+        /* releaseTimeNs= */ 40_000_000,
+        /* releaseCallTimeNs= */ 10_000_000);
+    VideoFramePacingStats stats = tracker.getAndResetStats();
+
+    assertThat(stats.releasedFrameCount).isEqualTo(2);
+    assertThat(stats.getReleaseDeltaCount(VideoFramePacingStats.getReleaseDeltaBucketIndex(1_500)))
+        .isEqualTo(1);
+    assertThat(
+            stats.getReleaseDeltaCount(VideoFramePacingStats.getReleaseDeltaBucketIndex(-10_000)))
+        .isEqualTo(1);
+    assertThat(stats.vsyncMissCount).isEqualTo(0);
+    assertThat(stats.cadencePattern).isNull();
+  }
+
+  @Test
+  public void onFrameReleased_afterReleaseTime_recordsVsyncMissAndDisplayDelay() {
+    VideoFramePacingTracker tracker = new VideoFramePacingTracker();
+    tracker.setVsyncDurationNs(VSYNC_DURATION_NS);
+
+    // Released 1ms after the vsync it targeted, so displayed one vsync later.
+    tracker.onFrameReleased(
+        /* targetReleaseTimeNs= */ 100_000_000,
+        /* releaseTimeNs= */ 100_000_000,
+        /* releaseCallTimeNs= */ 101_000_000);
+    VideoFramePacingStats stats = tracker.getAndResetStats();
+
+    assertThat(stats.releasedFrameCount).isEqualTo(1);
+    assertThat(stats.vsyncMissCount).isEqualTo(1);
+    assertThat(
+            stats.getReleaseDeltaCount(
+                VideoFramePacingStats.getReleaseDeltaBucketIndex(VSYNC_DURATION_NS / 1000)))
+        .isEqualTo(1);
+  }
+
+  @Test
+  public void onFrameReleased_afterReleaseTimeWithUnknownVsync_recordsReleaseCallDelay() {
+    VideoFramePacingTracker tracker = new VideoFramePacingTracker();
+
+    tracker.onFrameReleased(
+        /* targetReleaseTimeNs= */ 100_000_000,
+        /* releaseTimeNs= */ 100_000_000,
+        /* releaseCallTimeNs= */ 103_000_000);
+    VideoFramePacingStats stats = tracker.getAndResetStats();
+
+    assertThat(stats.vsyncMissCount).isEqualTo(1);
+    assertThat(stats.getReleaseDeltaCount(VideoFramePacingStats.getReleaseDeltaBucketIndex(3_000)))
+        .isEqualTo(1);
+  }
+
+  @Test
+  public void onFrameReleased_with24FpsOn60Hz_detectsCadenceAndBreak() {
+    VideoFramePacingTracker tracker = new VideoFramePacingTracker();
+    tracker.setVsyncDurationNs(VSYNC_DURATION_NS);
+    long releaseTimeNs = 0;
+    releaseFrameOnTime(tracker, releaseTimeNs);
+    for (int i = 0; i < 6; i++) {
+      releaseTimeNs += (i % 2 == 0 ? 2 : 3) * VSYNC_DURATION_NS;
+      releaseFrameOnTime(tracker, releaseTimeNs);
+    }
+
+    VideoFramePacingStats stats = tracker.getAndResetStats();
+
+    assertThat(stats.cadencePattern).isEqualTo("2:3");
+    assertThat(stats.cadenceBreakCount).isEqualTo(0);
+    assertThat(stats.getVsyncIntervalCount(2)).isEqualTo(3);
+    assertThat(stats.getVsyncIntervalCount(3)).isEqualTo(3);
+
+    // A frame shown for 4 vsyncs rather than 2 breaks the cadence.
+    releaseTimeNs += 4 * VSYNC_DURATION_NS;
+    releaseFrameOnTime(tracker, releaseTimeNs);
+    stats = tracker.getAndResetStats();
+
+    assertThat(stats.cadenceBreakCount).isEqualTo(1);
+    assertThat(stats.cadencePattern).isNull();
+    assertThat(stats.getVsyncIntervalCount(4)).isEqualTo(1);
+  }
+
+  @Test
+  public void getAndResetStats_resetsCounts() {
+    VideoFramePacingTracker tracker = new VideoFramePacingTracker();
+
+    tracker.onFrameReleased(
+        /* targetReleaseTimeNs= */ 0, /* releaseTimeNs= */ 0, /* releaseCallTimeNs= */ 1);
+    tracker.onFrameReleased(
+        /* targetReleaseTimeNs= */ 0, /* releaseTimeNs= */ 0, /* releaseCallTimeNs= */ 1);
+
+    assertThat(tracker.getAndResetStats().vsyncMissCount).isEqualTo(2);
+    assertThat(tracker.getAndResetStats()).isEqualTo(VideoFramePacingStats.EMPTY);
+  }
+
+  @Test
+  public void merge_addsCounts() {
+    VideoFramePacingTracker tracker = new VideoFramePacingTracker();
+    tracker.setVsyncDurationNs(VSYNC_DURATION_NS);
+    releaseFrameOnTime(tracker, /* releaseTimeNs= */ 0);
+    VideoFramePacingStats stats1 = tracker.getAndResetStats();
+    tracker.onFrameReleased(
+        /* targetReleaseTimeNs= */ VSYNC_DURATION_NS,
+        /* releaseTimeNs= */ VSYNC_DURATION_NS,
+        /* releaseCallTimeNs= */ 2 * VSYNC_DURATION_NS);
+    VideoFramePacingStats stats2 = tracker.getAndResetStats();
+
+    VideoFramePacingStats merged = stats1.merge(stats2);
+
+    assertThat(merged.releasedFrameCount).isEqualTo(2);
+    assertThat(merged.vsyncMissCount).isEqualTo(1);
+    assertThat(merged.getReleaseDeltaCount(VideoFramePacingStats.getReleaseDeltaBucketIndex(0)))
+        .isEqualTo(1);
+    assertThat(
+            merged.getReleaseDeltaCount(
+                VideoFramePacingStats.getReleaseDeltaBucketIndex(VSYNC_DURATION_NS / 1000)))
+        .isEqualTo(1);
+  }
+
+  private static void releaseFrameOnTime(VideoFramePacingTracker tracker, long releaseTimeNs) {
+    tracker.onFrameReleased(
+        /* targetReleaseTimeNs= */ releaseTimeNs,
+        releaseTimeNs,
+        /* releaseCallTimeNs= */ releaseTimeNs - 10_000_000);
+  }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.video;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.os.Looper;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.android.exoplayer2.mediacodec.MediaCodecAdapter;
+import com.google.android.exoplayer2.testutil.FakeClock;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+
+/** Unit test for {@link VideoFrameReleaseThread}. */
+@RunWith(AndroidJUnit4.class)
+public final class VideoFrameReleaseThreadTest {
+
+  private FakeClock clock;
+  private MediaCodecAdapter codec;
+  private VideoFramePacingTracker framePacingTracker;
+  private VideoFrameReleaseThread releaseThread;
+
+  @Before
+  public void setUp() {
+    clock = new FakeClock(/* initialTimeMs= */ 0);
+    codec = mock(MediaCodecAdapter.class);
+    framePacingTracker = new VideoFramePacingTracker();
+    releaseThread =
+        new VideoFrameReleaseThread(framePacingTracker, clock, Looper.getMainLooper());
+  }
+
+  @Test
+  public void queueFrame_releasesFramesInOrderShortlyBeforeReleaseTime() {
+    releaseThread.start();
+
+    queueFrame(/* bufferIndex= */ 1, /* releaseTimeMs= */ 100, /* render= */ true);
+    queueFrame(/* bufferIndex= */ 2, /* releaseTimeMs= */ 133, /* render= */ true);
+    advanceTimeMs(49);
+
+    verify(codec, never()).releaseOutputBuffer(anyInt(), anyLong());
+    assertThat(releaseThread.getRenderedFrameCount()).isEqualTo(0L);
+
+    advanceTimeMs(1);
+
+    verify(codec).releaseOutputBuffer(/* index= */ 1, /* renderTimeStampNs= */ 100_000_000L);
+    assertThat(releaseThread.getRenderedFrameCount()).isEqualTo(1L);
+    assertThat(releaseThread.getLastRenderedPresentationTimeUs()).isEqualTo(100_000L);
+
+    advanceTimeMs(33);
+
+    InOrder inOrder = inOrder(codec);
+    inOrder.verify(codec)
+        .releaseOutputBuffer(/* index= */ 1, /* renderTimeStampNs= */ 100_000_000L);
+    inOrder.verify(codec)
+        .releaseOutputBuffer(/* index= */ 2, /* renderTimeStampNs= */ 133_000_000L);
+    assertThat(releaseThread.getRenderedFrameCount()).isEqualTo(2L);
+    assertThat(releaseThread.getPendingFrameCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void queueFrame_withoutRender_releasesAfterPrecedingFrames() {
+    releaseThread.start();
+
+    queueFrame(/* bufferIndex= */ 1, /* releaseTimeMs= */ 100, /* render= */ true);
+    queueFrame(/* bufferIndex= */ 2, /* releaseTimeMs= */ 100, /* render= */ false);
+    advanceTimeMs(10);
+
+    verify(codec, never()).releaseOutputBuffer(anyInt(), anyBoolean());
+
+    advanceTimeMs(40);
+
+    InOrder inOrder = inOrder(codec);
+    inOrder.verify(codec)
+        .releaseOutputBuffer(/* index= */ 1, /* renderTimeStampNs= */ 100_000_000L);
+    inOrder.verify(codec).releaseOutputBuffer(/* index= */ 2, /* render= */ false);
+    assertThat(releaseThread.getRenderedFrameCount()).isEqualTo(1L);
+  }
+
+  @Test
+  public void stop_holdsPendingFramesUntilStarted() {
+    queueFrame(/* bufferIndex= */ 1, /* releaseTimeMs= */ 100, /* render= */ true);
+    advanceTimeMs(100);
+
+    verifyNoMoreInteractions(codec);
+
+    releaseThread.start();
+    shadowOf(Looper.getMainLooper()).idle();
+    advanceTimeMs(0);
+
+    verify(codec).releaseOutputBuffer(/* index= */ 1, /* renderTimeStampNs= */ 100_000_000L);
+    assertThat(framePacingTracker.getAndResetStats().vsyncMissCount).isEqualTo(0);
+
+    releaseThread.stop();
+    queueFrame(/* bufferIndex= */ 2, /* releaseTimeMs= */ 150, /* render= */ true);
+    advanceTimeMs(100);
+
+    verify(codec, never())
+        .releaseOutputBuffer(/* index= */ 2, /* renderTimeStampNs= */ 150_000_000L);
+    assertThat(releaseThread.getPendingFrameCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void start_afterReleaseTime_reportsVsyncMiss() {
+    queueFrame(/* bufferIndex= */ 1, /* releaseTimeMs= */ 100, /* render= */ true);
+    queueFrame(/* bufferIndex= */ 2, /* releaseTimeMs= */ 150, /* render= */ true);
+    advanceTimeMs(120);
+
+    releaseThread.start();
+    advanceTimeMs(30);
+
+    VideoFramePacingStats stats = framePacingTracker.getAndResetStats();
+    assertThat(stats.releasedFrameCount).isEqualTo(2);
+    assertThat(stats.vsyncMissCount).isEqualTo(1);
+  }
+
+  @Test
+  public void flush_releasesPendingFramesWithoutRendering() {
+    releaseThread.start();
+    queueFrame(/* bufferIndex= */ 1, /* releaseTimeMs= */ 100, /* render= */ true);
+    queueFrame(/* bufferIndex= */ 2, /* releaseTimeMs= */ 100, /* render= */ false);
+    queueFrame(/* bufferIndex= */ 3, /* releaseTimeMs= */ 133, /* render= */ true);
+
+    int flushedFrameCount = releaseThread.flush();
+    advanceTimeMs(200);
+
+    assertThat(flushedFrameCount).isEqualTo(2);
+    InOrder inOrder = inOrder(codec);
+    inOrder.verify(codec).releaseOutputBuffer(/* index= */ 1, /* render= */ false);
+    inOrder.verify(codec).releaseOutputBuffer(/* index= */ 2, /* render= */ false);
+    inOrder.verify(codec).releaseOutputBuffer(/* index= */ 3, /* render= */ false);
+    verify(codec, never()).releaseOutputBuffer(anyInt(), anyLong());
+    assertThat(releaseThread.getRenderedFrameCount()).isEqualTo(0L);
+    assertThat(releaseThread.getPendingFrameCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void drain_releasesPendingFramesInOrderImmediately() {
+    queueFrame(/* bufferIndex= */ 1, /* releaseTimeMs= */ 100, /* render= */ true);
+    queueFrame(/* bufferIndex= */ 2, /* releaseTimeMs= */ 100, /* render= */ false);
+    queueFrame(/* bufferIndex= */ 3, /* releaseTimeMs= */ 133, /* render= */ true);
+
+    releaseThread.drain();
+
+    InOrder inOrder = inOrder(codec);
+    inOrder.verify(codec)
+        .releaseOutputBuffer(/* index= */ 1, /* renderTimeStampNs= */ 100_000_000L);
+    inOrder.verify(codec).releaseOutputBuffer(/* index= */ 2, /* render= */ false);
+    inOrder.verify(codec)
+        .releaseOutputBuffer(/* index= */ 3, /* renderTimeStampNs= */ 133_000_000L);
+    assertThat(releaseThread.getRenderedFrameCount()).isEqualTo(2L);
+    assertThat(releaseThread.getLastRenderedPresentationTimeUs()).isEqualTo(133_000L);
+    assertThat(releaseThread.getPendingFrameCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void updateClock_withDriftedMediaClock_correctsReleaseTime() {
+    releaseThread.start();
+    queueFrame(/* bufferIndex= */ 1, /* releaseTimeMs= */ 100, /* render= */ true);
+
+    // The media clock was measured to be 20ms behind the position assumed when the frame was
+    // queued, so the frame is due 20ms later.
+    releaseThread.updateClock(
+        /* positionUs= */ -20_000, /* elapsedRealtimeUs= */ 0, /* playbackSpeed= */ 1);
+    advanceTimeMs(50);
+
+    verify(codec, never()).releaseOutputBuffer(anyInt(), anyLong());
+
+    advanceTimeMs(20);
+
+    verify(codec).releaseOutputBuffer(/* index= */ 1, /* renderTimeStampNs= */ 120_000_000L);
+  }
+
+  private void queueFrame(int bufferIndex, long releaseTimeMs, boolean render) {
+    // Presentation times match release times, as if the media clock started at zero.
+    releaseThread.queueFrame(
+        codec,
+        bufferIndex,
+        /* presentationTimeUs= */ releaseTimeMs * 1000,
+        /* unadjustedReleaseTimeNs= */ releaseTimeMs * 1_000_000,
+        /* releaseTimeNs= */ releaseTimeMs * 1_000_000,
+        render);
+  }
+
+  private void advanceTimeMs(long timeMs) {
+    clock.advanceTime(timeMs);
+    shadowOf(Looper.getMainLooper()).idle();
+  }
+}
@@ -44,6 +44,7 @@ import com.google.android.exoplayer2.source.dash.PlayerEmsgHandler.PlayerEmsgCal
 import com.google.android.exoplayer2.source.dash.PlayerEmsgHandler.PlayerTrackEmsgHandler;
 import com.google.android.exoplayer2.source.dash.manifest.AdaptationSet;
 import com.google.android.exoplayer2.source.dash.manifest.DashManifest;
+import com.google.android.exoplayer2.source.dash.manifest.DashManifestParser;
 import com.google.android.exoplayer2.source.dash.manifest.Descriptor;
 import com.google.android.exoplayer2.source.dash.manifest.EventStream;
 import com.google.android.exoplayer2.source.dash.manifest.Period;
@@ -67,7 +68,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.checkerframework.checker.nullness.compatqual.NullableType;
@@ -137,7 +140,8 @@ import org.checkerframework.checker.nullness.compatqual.NullableType;
       Allocator allocator,
       CompositeSequenceableLoaderFactory compositeSequenceableLoaderFactory,
       PlayerEmsgCallback playerEmsgCallback,
-      PlayerId playerId) {
+      PlayerId playerId,
+      TrackGroupsCache trackGroupsCache) {
     this.id = id;
     this.manifest = manifest;
     this.baseUrlExclusionList = baseUrlExclusionList;
@@ -162,8 +166,11 @@ import org.checkerframework.checker.nullness.compatqual.NullableType;
         compositeSequenceableLoaderFactory.createCompositeSequenceableLoader(sampleStreams);
     Period period = manifest.getPeriod(periodIndex);
     eventStreams = period.eventStreams;
-    Pair<TrackGroupArray, TrackGroupInfo[]> result =
-        buildTrackGroups(drmSessionManager, period.adaptationSets, eventStreams);
+    @Nullable Pair<TrackGroupArray, TrackGroupInfo[]> result = trackGroupsCache.get(period);
+    if (result == null) {
+      result = buildTrackGroups(drmSessionManager, period.adaptationSets, eventStreams);
+      trackGroupsCache.put(period, result);
+    }
     trackGroups = result.first;
     trackGroupInfos = result.second;
   }
@@ -931,6 +938,63 @@ import org.checkerframework.checker.nullness.compatqual.NullableType;
     return new ChunkSampleStream[length];
   }
 
+  /**
+   * Caches the track groups of periods by period ID, so that they aren't built again when another
+   * {@link DashMediaPeriod} is created for the same period.
+   *
+   * <p>An entry is only used for the {@link Period} instance it was built from. Periods keep their
+   * instance across manifest refreshes if the manifest parser reuses them, which is enabled with
+   * {@link DashMediaSource.Factory#experimentalSetReuseCompletedPeriods} (see {@link
+   * DashManifestParser#experimentalSetReuseCompletedPeriods}). The event streams and segment
+   * indexes of a reused period are reused with it.
+   */
+  /* package */ static final class TrackGroupsCache {
+
+    private final LinkedHashMap<String, Pair<Period, Pair<TrackGroupArray, TrackGroupInfo[]>>>
+        backingMap;
+
+    /**
+     * Creates an instance.
+     *
+     * @param maxSize The maximum number of periods whose track groups are cached. The least
+     *     recently used entries are evicted first.
+     */
+    public TrackGroupsCache(int maxSize) {
+      backingMap =
+          new LinkedHashMap<String, Pair<Period, Pair<TrackGroupArray, TrackGroupInfo[]>>>(
+              /* initialCapacity= */ maxSize + 1, /* loadFactor= */ 1, /* accessOrder= */ true) {
+            @Override
+            protected boolean removeEldestEntry(
+                Map.Entry<String, Pair<Period, Pair<TrackGroupArray, TrackGroupInfo[]>>> eldest) {
+              return size() > maxSize;
+            }
+          };
+    }
+
+    // Entries are only valid for the period instance they're built from.
+    @SuppressWarnings("ReferenceEquality")
+    @Nullable
+    private Pair<TrackGroupArray, TrackGroupInfo[]> get(Period period) {
+      if (period.id == null) {
+        return null;
+      }
+      @Nullable
+      Pair<Period, Pair<TrackGroupArray, TrackGroupInfo[]>> entry = backingMap.get(period.id);
+      return entry != null && entry.first == period ? entry.second : null;
+    }
+
+    private void put(Period period, Pair<TrackGroupArray, TrackGroupInfo[]> trackGroups) {
+      if (period.id != null) {
+        backingMap.put(period.id, Pair.create(period, trackGroups));
+      }
+    }
+
+    /** Removes all entries. */
+    public void clear() {
+      backingMap.clear();
+    }
+  }
+
   private static final class TrackGroupInfo {
 
     @Documented
@@ -120,6 +120,7 @@ public final class DashMediaSource extends BaseMediaSource {
     private long fallbackTargetLiveOffsetMs;
     private long minLiveStartPositionUs;
     @Nullable private ParsingLoadable.Parser<? extends DashManifest> manifestParser;
+    private boolean reuseCompletedPeriods;
 
     /**
      * Creates a new factory for {@link DashMediaSource}s.
@@ -248,6 +249,26 @@ public final class DashMediaSource extends BaseMediaSource {
       return this;
     }
 
+    /**
+     * Sets whether the default manifest parser reuses periods of a dynamic manifest that were
+     * already complete when the manifest was last loaded. See {@link
+     * DashManifestParser#experimentalSetReuseCompletedPeriods(boolean)}.
+     *
+     * <p>Reused periods keep their track groups and segment indexes across manifest refreshes, so
+     * these aren't built again for each refresh. Has no effect if a parser is set with {@link
+     * #setManifestParser(ParsingLoadable.Parser)}. The default value is {@code false}.
+     *
+     * <p>This method is experimental, and will be renamed or removed in a future release.
+     *
+     * @param reuseCompletedPeriods Whether to reuse completed periods.
+     * @return This factory, for convenience.
+     */
+    @CanIgnoreReturnValue
+    public Factory experimentalSetReuseCompletedPeriods(boolean reuseCompletedPeriods) {
+      this.reuseCompletedPeriods = reuseCompletedPeriods;
+      return this;
+    }
+
     /**
      * Sets the factory to create composite {@link SequenceableLoader}s for when this media source
      * loads data from multiple streams (video, audio etc...). The default is an instance of {@link
@@ -336,7 +357,9 @@ public final class DashMediaSource extends BaseMediaSource {
       checkNotNull(mediaItem.localConfiguration);
       @Nullable ParsingLoadable.Parser<? extends DashManifest> manifestParser = this.manifestParser;
       if (manifestParser == null) {
-        manifestParser = new DashManifestParser();
+        // Each media source needs its own parser, as a reusing parser keeps the previous manifest.
+        manifestParser =
+            new DashManifestParser().experimentalSetReuseCompletedPeriods(reuseCompletedPeriods);
       }
       List<StreamKey> streamKeys = mediaItem.localConfiguration.streamKeys;
       if (!streamKeys.isEmpty()) {
@@ -392,6 +415,8 @@ public final class DashMediaSource extends BaseMediaSource {
    * Timeline} is changing dynamically (for example, for incomplete live streams).
    */
   private static final long DEFAULT_NOTIFY_MANIFEST_INTERVAL_MS = 5000;
+  /** The maximum number of periods whose track groups are cached. */
+  private static final int MAX_CACHED_PERIOD_TRACK_GROUPS = 8;
 
   private static final String TAG = "DashMediaSource";
 
@@ -411,6 +436,7 @@ public final class DashMediaSource extends BaseMediaSource {
   private final ManifestCallback manifestCallback;
   private final Object manifestUriLock;
   private final SparseArray<DashMediaPeriod> periodsById;
+  private final DashMediaPeriod.TrackGroupsCache trackGroupsCache;
   private final Runnable refreshManifestRunnable;
   private final Runnable simulateManifestRefreshRunnable;
   private final PlayerEmsgCallback playerEmsgCallback;
@@ -468,6 +494,7 @@ public final class DashMediaSource extends BaseMediaSource {
     manifestEventDispatcher = createEventDispatcher(/* mediaPeriodId= */ null);
     manifestUriLock = new Object();
     periodsById = new SparseArray<>();
+    trackGroupsCache = new DashMediaPeriod.TrackGroupsCache(MAX_CACHED_PERIOD_TRACK_GROUPS);
     playerEmsgCallback = new DefaultPlayerEmsgCallback();
     expiredManifestPublishTimeUs = C.TIME_UNSET;
     elapsedRealtimeOffsetMs = C.TIME_UNSET;
@@ -547,7 +574,8 @@ public final class DashMediaSource extends BaseMediaSource {
             allocator,
             compositeSequenceableLoaderFactory,
             playerEmsgCallback,
-            getPlayerId());
+            getPlayerId(),
+            trackGroupsCache);
     periodsById.put(mediaPeriod.id, mediaPeriod);
     return mediaPeriod;
   }
@@ -580,6 +608,7 @@ public final class DashMediaSource extends BaseMediaSource {
     staleManifestReloadAttempt = 0;
     expiredManifestPublishTimeUs = C.TIME_UNSET;
     periodsById.clear();
+    trackGroupsCache.clear();
     baseUrlExclusionList.reset();
     drmSessionManager.release();
   }
@@ -1304,15 +1333,12 @@ public final class DashMediaSource extends BaseMediaSource {
         }
       }
       // Attempt to snap to the start of the corresponding video segment.
-      int periodIndex = 0;
-      long defaultStartPositionInPeriodUs = offsetInFirstPeriodUs + windowDefaultStartPositionUs;
+      long defaultStartPositionInFirstPeriodUs =
+          offsetInFirstPeriodUs + windowDefaultStartPositionUs;
+      int periodIndex = getPeriodIndex(defaultStartPositionInFirstPeriodUs);
+      long defaultStartPositionInPeriodUs =
+          defaultStartPositionInFirstPeriodUs - getPeriodOffsetFromFirstPeriodUs(periodIndex);
       long periodDurationUs = manifest.getPeriodDurationUs(periodIndex);
-      while (periodIndex < manifest.getPeriodCount() - 1
-          && defaultStartPositionInPeriodUs >= periodDurationUs) {
-        defaultStartPositionInPeriodUs -= periodDurationUs;
-        periodIndex++;
-        periodDurationUs = manifest.getPeriodDurationUs(periodIndex);
-      }
       com.google.android.exoplayer2.source.dash.manifest.Period period =
           manifest.getPeriod(periodIndex);
       int videoAdaptationSetIndex = period.getAdaptationSetIndex(C.TRACK_TYPE_VIDEO);
@@ -1335,6 +1361,31 @@ public final class DashMediaSource extends BaseMediaSource {
           - defaultStartPositionInPeriodUs;
     }
 
+    /**
+     * Returns the index of the last period that starts at or before a position, or 0 if there's no
+     * such period. Uses binary search, as manifests may contain many periods.
+     *
+     * @param positionInFirstPeriodUs The position relative to the start of the first period, in
+     *     microseconds.
+     */
+    private int getPeriodIndex(long positionInFirstPeriodUs) {
+      int lowIndex = 0;
+      int highIndex = manifest.getPeriodCount() - 1;
+      while (lowIndex < highIndex) {
+        int midIndex = (lowIndex + highIndex + 1) >>> 1;
+        if (getPeriodOffsetFromFirstPeriodUs(midIndex) <= positionInFirstPeriodUs) {
+          lowIndex = midIndex;
+        } else {
+          highIndex = midIndex - 1;
+        }
+      }
+      return lowIndex;
+    }
+
+    private long getPeriodOffsetFromFirstPeriodUs(int periodIndex) {
+      return Util.msToUs(manifest.getPeriod(periodIndex).startMs - manifest.getPeriod(0).startMs);
+    }
+
     @Override
     public Object getUidOfPeriod(int periodIndex) {
       Assertions.checkIndex(periodIndex, 0, getPeriodCount());
@@ -53,8 +53,10 @@ import com.google.android.exoplayer2.upstream.HttpDataSource.InvalidResponseCode
 import com.google.android.exoplayer2.upstream.LoadErrorHandlingPolicy;
 import com.google.android.exoplayer2.upstream.LoaderErrorThrower;
 import com.google.android.exoplayer2.upstream.TransferListener;
+import com.google.android.exoplayer2.upstream.cache.SegmentPrefetcher;
 import com.google.android.exoplayer2.util.Util;
 import com.google.common.collect.ImmutableMap;
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
@@ -76,6 +78,8 @@ public class DefaultDashChunkSource implements DashChunkSource {
     private final int maxSegmentsPerLoad;
     private final ChunkExtractor.Factory chunkExtractorFactory;
 
+    @Nullable private SegmentPrefetcher segmentPrefetcher;
+
     /**
      * Equivalent to {@link #Factory(ChunkExtractor.Factory, DataSource.Factory, int) new
      * Factory(BundledChunkExtractor.FACTORY, dataSourceFactory, maxSegmentsPerLoad = 1)}.
@@ -109,6 +113,27 @@ public class DefaultDashChunkSource implements DashChunkSource {
       this.maxSegmentsPerLoad = maxSegmentsPerLoad;
     }
 
+    /**
+     * Sets the {@link SegmentPrefetcher} to which the chunk sources report their upcoming segments,
+     * so that they're written to a cache ahead of playback. The {@link DataSource.Factory} of this
+     * factory should create {@link com.google.android.exoplayer2.upstream.cache.CacheDataSource}
+     * instances that read from the same cache.
+     *
+     * <p>This method is experimental, and will be renamed or removed in a future release.
+     *
+     * <p>The default is {@code null}, which disables prefetching.
+     *
+     * @param segmentPrefetcher The {@link SegmentPrefetcher}, or {@code null} to disable
+     *     prefetching.
+     * @return This factory.
+     */
+    @CanIgnoreReturnValue
+    public Factory experimentalSetSegmentPrefetcher(
+        @Nullable SegmentPrefetcher segmentPrefetcher) {
+      this.segmentPrefetcher = segmentPrefetcher;
+      return this;
+    }
+
     @Override
     public DashChunkSource createDashChunkSource(
         LoaderErrorThrower manifestLoaderErrorThrower,
@@ -145,7 +170,8 @@ public class DefaultDashChunkSource implements DashChunkSource {
           closedCaptionFormats,
           playerEmsgHandler,
           playerId,
-          cmcdConfiguration);
+          cmcdConfiguration,
+          segmentPrefetcher);
     }
   }
 
@@ -158,6 +184,7 @@ public class DefaultDashChunkSource implements DashChunkSource {
   private final int maxSegmentsPerLoad;
   @Nullable private final PlayerTrackEmsgHandler playerTrackEmsgHandler;
   @Nullable private final CmcdConfiguration cmcdConfiguration;
+  @Nullable private final SegmentPrefetcher segmentPrefetcher;
 
   protected final RepresentationHolder[] representationHolders;
 
@@ -208,18 +235,84 @@ public class DefaultDashChunkSource implements DashChunkSource {
       @Nullable PlayerTrackEmsgHandler playerTrackEmsgHandler,
       PlayerId playerId,
       @Nullable CmcdConfiguration cmcdConfiguration) {
+    this(
+        chunkExtractorFactory,
+        manifestLoaderErrorThrower,
+        manifest,
+        baseUrlExclusionList,
+        periodIndex,
+        adaptationSetIndices,
+        trackSelection,
+        trackType,
+        dataSource,
+        elapsedRealtimeOffsetMs,
+        maxSegmentsPerLoad,
+        enableEventMessageTrack,
+        closedCaptionFormats,
+        playerTrackEmsgHandler,
+        playerId,
+        cmcdConfiguration,
+        /* segmentPrefetcher= */ null);
+  }
+
+  /**
+   * @param chunkExtractorFactory Creates {@link ChunkExtractor} instances to use for extracting
+   *     chunks.
+   * @param manifestLoaderErrorThrower Throws errors affecting loading of manifests.
+   * @param manifest The initial manifest.
+   * @param baseUrlExclusionList The base URL exclusion list.
+   * @param periodIndex The index of the period in the manifest.
+   * @param adaptationSetIndices The indices of the adaptation sets in the period.
+   * @param trackSelection The track selection.
+   * @param trackType The {@link C.TrackType type} of the tracks in the selection.
+   * @param dataSource A {@link DataSource} suitable for loading the media data.
+   * @param elapsedRealtimeOffsetMs If known, an estimate of the instantaneous difference between
+   *     server-side unix time and {@link SystemClock#elapsedRealtime()} in milliseconds, specified
+   *     as the server's unix time minus the local elapsed time. Or {@link C#TIME_UNSET} if unknown.
+   * @param maxSegmentsPerLoad The maximum number of segments to combine into a single request. Note
+   *     that segments will only be combined if their {@link Uri}s are the same and if their data
+   *     ranges are adjacent.
+   * @param enableEventMessageTrack Whether to output an event message track.
+   * @param closedCaptionFormats The {@link Format Formats} of closed caption tracks to be output.
+   * @param playerTrackEmsgHandler The {@link PlayerTrackEmsgHandler} instance to handle emsg
+   *     messages targeting the player. Maybe null if this is not necessary.
+   * @param playerId The {@link PlayerId} of the player using this chunk source.
+   * @param cmcdConfiguration The {@link CmcdConfiguration} for this chunk source.
+   * @param segmentPrefetcher The {@link SegmentPrefetcher} to which upcoming segments are reported,
+   *     or {@code null} if segments shouldn't be prefetched.
+   */
+  public DefaultDashChunkSource(
+      ChunkExtractor.Factory chunkExtractorFactory,
+      LoaderErrorThrower manifestLoaderErrorThrower,
+      DashManifest manifest,
+      BaseUrlExclusionList baseUrlExclusionList,
+      int periodIndex,
+      int[] adaptationSetIndices,
+      ExoTrackSelection trackSelection,
+      @C.TrackType int trackType,
+      DataSource dataSource,
+      long elapsedRealtimeOffsetMs,
+      int maxSegmentsPerLoad,
+      boolean enableEventMessageTrack,
+      List<Format> closedCaptionFormats,
+      @Nullable PlayerTrackEmsgHandler playerTrackEmsgHandler,
+      PlayerId playerId,
+      @Nullable CmcdConfiguration cmcdConfiguration,
+      @Nullable SegmentPrefetcher segmentPrefetcher) {
     this.manifestLoaderErrorThrower = manifestLoaderErrorThrower;
     this.manifest = manifest;
     this.baseUrlExclusionList = baseUrlExclusionList;
     this.adaptationSetIndices = adaptationSetIndices;
     this.trackSelection = trackSelection;
     this.trackType = trackType;
-    this.dataSource = dataSource;
+    this.dataSource =
+        segmentPrefetcher != null ? segmentPrefetcher.createDataSource(dataSource) : dataSource;
     this.periodIndex = periodIndex;
     this.elapsedRealtimeOffsetMs = elapsedRealtimeOffsetMs;
     this.maxSegmentsPerLoad = maxSegmentsPerLoad;
     this.playerTrackEmsgHandler = playerTrackEmsgHandler;
     this.cmcdConfiguration = cmcdConfiguration;
+    this.segmentPrefetcher = segmentPrefetcher;
 
     long periodDurationUs = manifest.getPeriodDurationUs(periodIndex);
 
@@ -489,6 +582,16 @@ public class DefaultDashChunkSource implements DashChunkSource {
             seekTimeUs,
             nowPeriodTimeUs,
             cmcdHeadersFactory);
+    if (segmentPrefetcher != null && out.chunk instanceof MediaChunk) {
+      MediaChunk mediaChunk = (MediaChunk) out.chunk;
+      prefetchSegments(
+          segmentPrefetcher,
+          representationHolder,
+          mediaChunk.dataSpec,
+          /* firstSegmentNum= */ mediaChunk.getNextChunkIndex(),
+          lastAvailableSegmentNum,
+          nowPeriodTimeUs);
+    }
   }
 
   @Override
@@ -584,6 +687,9 @@ public class DefaultDashChunkSource implements DashChunkSource {
 
   @Override
   public void release() {
+    if (segmentPrefetcher != null) {
+      segmentPrefetcher.cancel(/* owner= */ this);
+    }
     for (RepresentationHolder representationHolder : representationHolders) {
       @Nullable ChunkExtractor chunkExtractor = representationHolder.chunkExtractor;
       if (chunkExtractor != null) {
@@ -699,6 +805,37 @@ public class DefaultDashChunkSource implements DashChunkSource {
         representationHolder.chunkExtractor);
   }
 
+  private void prefetchSegments(
+      SegmentPrefetcher segmentPrefetcher,
+      RepresentationHolder representationHolder,
+      DataSpec loadingDataSpec,
+      long firstSegmentNum,
+      long lastAvailableSegmentNum,
+      long nowPeriodTimeUs) {
+    long periodDurationUs = representationHolder.periodDurationUs;
+    long lastSegmentNum =
+        min(lastAvailableSegmentNum, firstSegmentNum + segmentPrefetcher.prefetchSegmentCount - 1);
+    List<DataSpec> dataSpecs = new ArrayList<>();
+    for (long segmentNum = firstSegmentNum; segmentNum <= lastSegmentNum; segmentNum++) {
+      if ((periodDurationUs != C.TIME_UNSET
+              && representationHolder.getSegmentStartTimeUs(segmentNum) >= periodDurationUs)
+          || !representationHolder.isSegmentAvailableAtFullNetworkSpeed(
+              segmentNum, nowPeriodTimeUs)) {
+        // Segments that are clipped by the period, or that are still being produced, aren't
+        // prefetched.
+        break;
+      }
+      dataSpecs.add(
+          DashUtil.buildDataSpec(
+              representationHolder.representation,
+              representationHolder.selectedBaseUrl.url,
+              representationHolder.getSegmentUrl(segmentNum),
+              /* flags= */ 0,
+              /* httpRequestHeaders= */ ImmutableMap.of()));
+    }
+    segmentPrefetcher.prefetch(/* owner= */ this, loadingDataSpec, dataSpecs);
+  }
+
   protected Chunk newMediaChunk(
       RepresentationHolder representationHolder,
       DataSource dataSource,
@@ -900,9 +1037,15 @@ public class DefaultDashChunkSource implements DashChunkSource {
     }
 
     @CheckResult
+    @SuppressWarnings("ReferenceEquality") // Reused representations are unchanged.
     /* package */ RepresentationHolder copyWithNewRepresentation(
         long newPeriodDurationUs, Representation newRepresentation)
         throws BehindLiveWindowException {
+      if (newRepresentation == representation && newPeriodDurationUs == periodDurationUs) {
+        // The manifest parser reused the representation, so the segment index (including one
+        // loaded from the media) and the segment number shift are still valid.
+        return this;
+      }
       @Nullable DashSegmentIndex oldIndex = representation.getIndex();
       @Nullable DashSegmentIndex newIndex = newRepresentation.getIndex();
 
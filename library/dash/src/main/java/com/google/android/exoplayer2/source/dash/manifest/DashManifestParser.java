@@ -94,6 +94,11 @@ public class DashManifestParser extends DefaultHandler
 
   private final XmlPullParserFactory xmlParserFactory;
 
+  private boolean reuseCompletedPeriods;
+  @Nullable private DashManifest previousManifest;
+  @Nullable private List<BaseUrl> previousPeriodParentBaseUrls;
+  private long previousBaseUrlAvailabilityTimeOffsetUs;
+
   public DashManifestParser() {
     try {
       xmlParserFactory = XmlPullParserFactory.newInstance();
@@ -102,6 +107,29 @@ public class DashManifestParser extends DefaultHandler
     }
   }
 
+  /**
+   * Sets whether periods of a dynamic manifest that were already complete in the previously parsed
+   * manifest are reused rather than parsed again. A period is complete if it isn't the last period
+   * of the manifest, and the DASH specification doesn't allow manifest updates to change it.
+   *
+   * <p>A period is only reused if its ID and start time, and the manifest level properties it
+   * depends on, are unchanged. When enabled, the parser must only be used to parse successive
+   * updates of a single manifest.
+   *
+   * <p>This method is experimental, and will be renamed or removed in a future release.
+   *
+   * @param reuseCompletedPeriods Whether to reuse completed periods.
+   * @return This parser.
+   */
+  public DashManifestParser experimentalSetReuseCompletedPeriods(boolean reuseCompletedPeriods) {
+    this.reuseCompletedPeriods = reuseCompletedPeriods;
+    if (!reuseCompletedPeriods) {
+      previousManifest = null;
+      previousPeriodParentBaseUrls = null;
+    }
+    return this;
+  }
+
   // MPD parsing.
 
   @Override
@@ -173,15 +201,34 @@ public class DashManifestParser extends DefaultHandler
       } else if (XmlPullParserUtil.isStartTag(xpp, "ServiceDescription")) {
         serviceDescription = parseServiceDescription(xpp);
       } else if (XmlPullParserUtil.isStartTag(xpp, "Period") && !seenEarlyAccessPeriod) {
-        Pair<Period, Long> periodWithDurationMs =
-            parsePeriod(
-                xpp,
-                !baseUrls.isEmpty() ? baseUrls : parentBaseUrls,
-                nextPeriodStartMs,
-                baseUrlAvailabilityTimeOffsetUs,
-                availabilityStartTime,
-                timeShiftBufferDepthMs,
-                dvbProfileDeclared);
+        List<BaseUrl> periodParentBaseUrls = !baseUrls.isEmpty() ? baseUrls : parentBaseUrls;
+        @Nullable
+        Period completedPeriod =
+            dynamic
+                ? getReusableCompletedPeriod(
+                    xpp,
+                    periodParentBaseUrls,
+                    nextPeriodStartMs,
+                    baseUrlAvailabilityTimeOffsetUs,
+                    availabilityStartTime,
+                    timeShiftBufferDepthMs)
+                : null;
+        Pair<Period, Long> periodWithDurationMs;
+        if (completedPeriod != null) {
+          periodWithDurationMs =
+              Pair.create(completedPeriod, parseDuration(xpp, "duration", C.TIME_UNSET));
+          maybeSkipTag(xpp);
+        } else {
+          periodWithDurationMs =
+              parsePeriod(
+                  xpp,
+                  periodParentBaseUrls,
+                  nextPeriodStartMs,
+                  baseUrlAvailabilityTimeOffsetUs,
+                  availabilityStartTime,
+                  timeShiftBufferDepthMs,
+                  dvbProfileDeclared);
+        }
         Period period = periodWithDurationMs.first;
         if (period.startMs == C.TIME_UNSET) {
           if (dynamic) {
@@ -217,20 +264,62 @@ public class DashManifestParser extends DefaultHandler
       throw ParserException.createForMalformedManifest("No periods found.", /* cause= */ null);
     }
 
-    return buildMediaPresentationDescription(
-        availabilityStartTime,
-        durationMs,
-        minBufferTimeMs,
-        dynamic,
-        minUpdateTimeMs,
-        timeShiftBufferDepthMs,
-        suggestedPresentationDelayMs,
-        publishTimeMs,
-        programInformation,
-        utcTiming,
-        serviceDescription,
-        location,
-        periods);
+    DashManifest manifest =
+        buildMediaPresentationDescription(
+            availabilityStartTime,
+            durationMs,
+            minBufferTimeMs,
+            dynamic,
+            minUpdateTimeMs,
+            timeShiftBufferDepthMs,
+            suggestedPresentationDelayMs,
+            publishTimeMs,
+            programInformation,
+            utcTiming,
+            serviceDescription,
+            location,
+            periods);
+    if (reuseCompletedPeriods) {
+      previousManifest = manifest;
+      previousPeriodParentBaseUrls = !baseUrls.isEmpty() ? baseUrls : parentBaseUrls;
+      previousBaseUrlAvailabilityTimeOffsetUs = baseUrlAvailabilityTimeOffsetUs;
+    }
+    return manifest;
+  }
+
+  /**
+   * Returns the period of the previously parsed manifest that can be reused for the Period element
+   * at the current position, or null if the period has to be parsed.
+   */
+  @Nullable
+  private Period getReusableCompletedPeriod(
+      XmlPullParser xpp,
+      List<BaseUrl> parentBaseUrls,
+      long defaultStartMs,
+      long baseUrlAvailabilityTimeOffsetUs,
+      long availabilityStartTimeMs,
+      long timeShiftBufferDepthMs) {
+    @Nullable DashManifest previousManifest = this.previousManifest;
+    @Nullable String id = xpp.getAttributeValue(null, "id");
+    if (!reuseCompletedPeriods
+        || previousManifest == null
+        || id == null
+        || !previousManifest.dynamic
+        || previousManifest.availabilityStartTimeMs != availabilityStartTimeMs
+        || previousManifest.timeShiftBufferDepthMs != timeShiftBufferDepthMs
+        || previousBaseUrlAvailabilityTimeOffsetUs != baseUrlAvailabilityTimeOffsetUs
+        || !parentBaseUrls.equals(previousPeriodParentBaseUrls)) {
+      return null;
+    }
+    long startMs = parseDuration(xpp, "start", defaultStartMs);
+    // The last period of the previous manifest isn't complete, so it may have been updated.
+    for (int i = 0; i < previousManifest.getPeriodCount() - 1; i++) {
+      Period period = previousManifest.getPeriod(i);
+      if (id.equals(period.id)) {
+        return startMs != C.TIME_UNSET && period.startMs == startMs ? period : null;
+      }
+    }
+    return null;
   }
 
   protected DashManifest buildMediaPresentationDescription(
@@ -1261,10 +1350,18 @@ public class DashManifestParser extends DefaultHandler
     return new EventMessage(schemeIdUri, value, durationMs, id, messageData);
   }
 
+  /**
+   * Parses a SegmentTimeline element.
+   *
+   * <p>The returned list stores runs of contiguous elements of equal duration, so its size doesn't
+   * determine its memory footprint. Elements are created by {@link #buildSegmentTimelineElement}
+   * each time they're accessed.
+   */
   protected List<SegmentTimelineElement> parseSegmentTimeline(
       XmlPullParser xpp, long timescale, long periodDurationMs)
       throws XmlPullParserException, IOException {
-    List<SegmentTimelineElement> segmentTimeline = new ArrayList<>();
+    RunLengthSegmentTimeline.Builder segmentTimeline =
+        new RunLengthSegmentTimeline.Builder(this::buildSegmentTimelineElement);
     long startTime = 0;
     long elementDuration = C.TIME_UNSET;
     int elementRepeatCount = 0;
@@ -1275,7 +1372,7 @@ public class DashManifestParser extends DefaultHandler
         long newStartTime = parseLong(xpp, "t", C.TIME_UNSET);
         if (havePreviousTimelineElement) {
           startTime =
-              addSegmentTimelineElementsToList(
+              addSegmentTimelineElements(
                   segmentTimeline,
                   startTime,
                   elementDuration,
@@ -1294,14 +1391,14 @@ public class DashManifestParser extends DefaultHandler
     } while (!XmlPullParserUtil.isEndTag(xpp, "SegmentTimeline"));
     if (havePreviousTimelineElement) {
       long periodDuration = Util.scaleLargeTimestamp(periodDurationMs, timescale, 1000);
-      addSegmentTimelineElementsToList(
+      addSegmentTimelineElements(
           segmentTimeline,
           startTime,
           elementDuration,
           elementRepeatCount,
           /* endTime= */ periodDuration);
     }
-    return segmentTimeline;
+    return segmentTimeline.build();
   }
 
   /**
@@ -1315,8 +1412,8 @@ public class DashManifestParser extends DefaultHandler
    *     unknown. Only needed if {@code repeatCount} is negative.
    * @return Calculated next start time.
    */
-  private long addSegmentTimelineElementsToList(
-      List<SegmentTimelineElement> segmentTimeline,
+  private long addSegmentTimelineElements(
+      RunLengthSegmentTimeline.Builder segmentTimeline,
       long startTime,
       long elementDuration,
       int elementRepeatCount,
@@ -1325,13 +1422,25 @@ public class DashManifestParser extends DefaultHandler
         elementRepeatCount >= 0
             ? 1 + elementRepeatCount
             : (int) Util.ceilDivide(endTime - startTime, elementDuration);
-    for (int i = 0; i < count; i++) {
-      segmentTimeline.add(buildSegmentTimelineElement(startTime, elementDuration));
-      startTime += elementDuration;
+    if (count <= 0) {
+      return startTime;
     }
-    return startTime;
+    segmentTimeline.addElements(startTime, elementDuration, count);
+    return startTime + count * elementDuration;
   }
 
+  /**
+   * Builds a segment timeline element.
+   *
+   * <p>Segment timelines store runs of elements rather than elements, so this method is called
+   * each time an element of a parsed timeline is accessed, rather than once per element while
+   * parsing. Segment indexing uses the start times and durations of the runs directly, so the
+   * returned element must have the start time and duration passed to this method.
+   *
+   * @param startTime The start time of the element, in timescale units.
+   * @param duration The duration of the element, in timescale units.
+   * @return The element.
+   */
   protected SegmentTimelineElement buildSegmentTimelineElement(long startTime, long duration) {
     return new SegmentTimelineElement(startTime, duration);
   }
@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.source.dash.manifest;
+
+import com.google.android.exoplayer2.source.dash.manifest.SegmentBase.SegmentTimelineElement;
+import com.google.android.exoplayer2.util.Util;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * A segment timeline that stores runs of contiguous elements of equal duration, as described by the
+ * {@code t}, {@code d} and {@code r} attributes of the S elements in an MPD, rather than one
+ * instance per element.
+ *
+ * <p>Elements are created on demand by an {@link ElementFactory}, each time they're looked up.
+ * Looking up an element takes logarithmic time in the number of runs, and constant time if the
+ * element is in the same run as the previously looked up element.
+ *
+ * @deprecated com.google.android.exoplayer2 is deprecated. Please migrate to androidx.media3 (which
+ *     contains the same ExoPlayer code). See <a
+ *     href="https://developer.android.com/guide/topics/media/media3/getting-started/migration-guide">the
+ *     migration guide</a> for more details, including a script to help with the migration.
+ */
+@Deprecated
+/* package */ final class RunLengthSegmentTimeline extends AbstractList<SegmentTimelineElement>
+    implements RandomAccess {
+
+  /** Creates the {@link SegmentTimelineElement} instances returned by {@link #get(int)}. */
+  public interface ElementFactory {
+
+    /**
+     * Creates an element.
+     *
+     * @param startTime The start time of the element.
+     * @param duration The duration of the element.
+     * @return The element. Its start time and duration must be the ones passed to this method.
+     */
+    SegmentTimelineElement createElement(long startTime, long duration);
+  }
+
+  /** Builds {@link RunLengthSegmentTimeline} instances. */
+  public static final class Builder {
+
+    private static final int INITIAL_RUN_CAPACITY = 4;
+
+    private long[] runStartTimes;
+    private long[] runDurations;
+    private int[] runFirstIndices;
+    private int runCount;
+    private final ElementFactory elementFactory;
+
+    private int size;
+
+    /** Creates a builder for an empty timeline whose elements are plain instances. */
+    public Builder() {
+      this(SegmentTimelineElement::new);
+    }
+
+    /**
+     * Creates a builder for an empty timeline.
+     *
+     * @param elementFactory The {@link ElementFactory} used to create elements when they're looked
+     *     up.
+     */
+    public Builder(ElementFactory elementFactory) {
+      this.elementFactory = elementFactory;
+      runStartTimes = new long[INITIAL_RUN_CAPACITY];
+      runDurations = new long[INITIAL_RUN_CAPACITY];
+      runFirstIndices = new int[INITIAL_RUN_CAPACITY];
+    }
+
+    /**
+     * Appends contiguous elements of equal duration. The elements are merged into the previous run
+     * if they continue it.
+     *
+     * @param startTime The start time of the first element.
+     * @param duration The duration of each element.
+     * @param count The number of elements. Nothing is appended if the count isn't positive.
+     * @return This builder.
+     */
+    public Builder addElements(long startTime, long duration, int count) {
+      if (count <= 0) {
+        return this;
+      }
+      if (runCount > 0) {
+        int lastRun = runCount - 1;
+        long lastRunEndTime =
+            runStartTimes[lastRun] + (size - runFirstIndices[lastRun]) * runDurations[lastRun];
+        if (runDurations[lastRun] == duration && lastRunEndTime == startTime) {
+          size += count;
+          return this;
+        }
+      }
+      if (runCount == runStartTimes.length) {
+        int newCapacity = runCount * 2;
+        runStartTimes = Arrays.copyOf(runStartTimes, newCapacity);
+        runDurations = Arrays.copyOf(runDurations, newCapacity);
+        runFirstIndices = Arrays.copyOf(runFirstIndices, newCapacity);
+      }
+      runStartTimes[runCount] = startTime;
+      runDurations[runCount] = duration;
+      runFirstIndices[runCount] = size;
+      runCount++;
+      size += count;
+      return this;
+    }
+
+    /** Builds the timeline. */
+    public RunLengthSegmentTimeline build() {
+      return new RunLengthSegmentTimeline(
+          Arrays.copyOf(runStartTimes, runCount),
+          Arrays.copyOf(runDurations, runCount),
+          Arrays.copyOf(runFirstIndices, runCount),
+          size,
+          elementFactory);
+    }
+  }
+
+  private final long[] runStartTimes;
+  private final long[] runDurations;
+  private final int[] runFirstIndices;
+  private final int size;
+  private final ElementFactory elementFactory;
+
+  /**
+   * The run of the most recently looked up element. Segments are mostly looked up sequentially, so
+   * this avoids searching for the run in the common case. Accesses don't need to be synchronized
+   * because the value is validated before it's used.
+   */
+  private int lastRunIndex;
+
+  private RunLengthSegmentTimeline(
+      long[] runStartTimes,
+      long[] runDurations,
+      int[] runFirstIndices,
+      int size,
+      ElementFactory elementFactory) {
+    this.runStartTimes = runStartTimes;
+    this.runDurations = runDurations;
+    this.runFirstIndices = runFirstIndices;
+    this.size = size;
+    this.elementFactory = elementFactory;
+  }
+
+  /** Returns the number of runs of contiguous elements of equal duration. */
+  public int getRunCount() {
+    return runFirstIndices.length;
+  }
+
+  /** Returns the index of the first element of a run. */
+  public int getRunFirstIndex(int runIndex) {
+    return runFirstIndices[runIndex];
+  }
+
+  /** Returns the index of the last element of a run. */
+  public int getRunLastIndex(int runIndex) {
+    return runIndex == runFirstIndices.length - 1 ? size - 1 : runFirstIndices[runIndex + 1] - 1;
+  }
+
+  /** Returns the start time of an element, without creating a {@link SegmentTimelineElement}. */
+  public long getStartTime(int index) {
+    int runIndex = getRunIndex(index);
+    return runStartTimes[runIndex] + (index - runFirstIndices[runIndex]) * runDurations[runIndex];
+  }
+
+  /** Returns the duration of an element, without creating a {@link SegmentTimelineElement}. */
+  public long getDuration(int index) {
+    return runDurations[getRunIndex(index)];
+  }
+
+  @Override
+  public SegmentTimelineElement get(int index) {
+    int runIndex = getRunIndex(index);
+    long duration = runDurations[runIndex];
+    return elementFactory.createElement(
+        runStartTimes[runIndex] + (index - runFirstIndices[runIndex]) * duration, duration);
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  private int getRunIndex(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+    }
+    int runIndex = lastRunIndex;
+    if (runFirstIndices[runIndex] > index || getRunLastIndex(runIndex) < index) {
+      runIndex =
+          Util.binarySearchFloor(
+              runFirstIndices, index, /* inclusive= */ true, /* stayInBounds= */ true);
+      lastRunIndex = runIndex;
+    }
+    return runIndex;
+  }
+}
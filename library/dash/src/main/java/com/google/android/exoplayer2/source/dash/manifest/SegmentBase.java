@@ -16,6 +16,7 @@
 package com.google.android.exoplayer2.source.dash.manifest;
 
 import static com.google.android.exoplayer2.source.dash.DashSegmentIndex.INDEX_UNBOUNDED;
+import static com.google.android.exoplayer2.util.Assertions.checkNotNull;
 import static java.lang.Math.max;
 import static java.lang.Math.min;
 
@@ -195,6 +196,18 @@ public abstract class SegmentBase {
         // The index cannot be unbounded. Identify the segment using binary search.
         long lowIndex = firstSegmentNum;
         long highIndex = firstSegmentNum + segmentCount - 1;
+        if (segmentTimeline instanceof RunLengthSegmentTimeline
+            && ((RunLengthSegmentTimeline) segmentTimeline).getRunCount() > 0) {
+          // Restrict the search to the run of equal duration segments that contains timeUs.
+          RunLengthSegmentTimeline timeline = (RunLengthSegmentTimeline) segmentTimeline;
+          int runIndex = getRunIndex(timeline, timeUs);
+          long runFirstSegmentNum = startNumber + timeline.getRunFirstIndex(runIndex);
+          if (runFirstSegmentNum > highIndex) {
+            return highIndex;
+          }
+          lowIndex = max(lowIndex, runFirstSegmentNum);
+          highIndex = min(highIndex, startNumber + timeline.getRunLastIndex(runIndex));
+        }
         while (lowIndex <= highIndex) {
           long midIndex = lowIndex + (highIndex - lowIndex) / 2;
           long midTimeUs = getSegmentTimeUs(midIndex);
@@ -213,7 +226,7 @@ public abstract class SegmentBase {
     /** See {@link DashSegmentIndex#getDurationUs(long, long)}. */
     public final long getSegmentDurationUs(long sequenceNumber, long periodDurationUs) {
       if (segmentTimeline != null) {
-        long duration = segmentTimeline.get((int) (sequenceNumber - startNumber)).duration;
+        long duration = getTimelineElementDuration((int) (sequenceNumber - startNumber));
         return (duration * C.MICROS_PER_SECOND) / timescale;
       } else {
         long segmentCount = getSegmentCount(periodDurationUs);
@@ -229,7 +242,7 @@ public abstract class SegmentBase {
       long unscaledSegmentTime;
       if (segmentTimeline != null) {
         unscaledSegmentTime =
-            segmentTimeline.get((int) (sequenceNumber - startNumber)).startTime
+            getTimelineElementStartTime((int) (sequenceNumber - startNumber))
                 - presentationTimeOffset;
       } else {
         unscaledSegmentTime = (sequenceNumber - startNumber) * duration;
@@ -301,6 +314,39 @@ public abstract class SegmentBase {
 
     /** See {@link DashSegmentIndex#getSegmentCount(long)}. */
     public abstract long getSegmentCount(long periodDurationUs);
+
+    /** Returns the start time of an element of {@link #segmentTimeline}, which must be non-null. */
+    /* package */ final long getTimelineElementStartTime(int index) {
+      return segmentTimeline instanceof RunLengthSegmentTimeline
+          ? ((RunLengthSegmentTimeline) segmentTimeline).getStartTime(index)
+          : checkNotNull(segmentTimeline).get(index).startTime;
+    }
+
+    /** Returns the duration of an element of {@link #segmentTimeline}, which must be non-null. */
+    private long getTimelineElementDuration(int index) {
+      return segmentTimeline instanceof RunLengthSegmentTimeline
+          ? ((RunLengthSegmentTimeline) segmentTimeline).getDuration(index)
+          : checkNotNull(segmentTimeline).get(index).duration;
+    }
+
+    /**
+     * Returns the index of the last run in a timeline whose first segment starts at or before the
+     * given time, or 0 if there's no such run.
+     */
+    private int getRunIndex(RunLengthSegmentTimeline timeline, long timeUs) {
+      int lowRunIndex = 0;
+      int highRunIndex = timeline.getRunCount() - 1;
+      while (lowRunIndex < highRunIndex) {
+        int midRunIndex = (lowRunIndex + highRunIndex + 1) >>> 1;
+        long midRunTimeUs = getSegmentTimeUs(startNumber + timeline.getRunFirstIndex(midRunIndex));
+        if (midRunTimeUs <= timeUs) {
+          lowRunIndex = midRunIndex;
+        } else {
+          highRunIndex = midRunIndex - 1;
+        }
+      }
+      return lowRunIndex;
+    }
   }
 
   /** A {@link MultiSegmentBase} that uses a SegmentList to define its segments. */
@@ -447,7 +493,7 @@ public abstract class SegmentBase {
     public RangedUri getSegmentUrl(Representation representation, long sequenceNumber) {
       long time;
       if (segmentTimeline != null) {
-        time = segmentTimeline.get((int) (sequenceNumber - startNumber)).startTime;
+        time = getTimelineElementStartTime((int) (sequenceNumber - startNumber));
       } else {
         time = (sequenceNumber - startNumber) * duration;
       }
@@ -15,6 +15,7 @@
  */
 package com.google.android.exoplayer2.source.dash;
 
+import static com.google.common.truth.Truth.assertThat;
 import static org.mockito.Mockito.mock;
 
 import android.net.Uri;
@@ -203,7 +204,33 @@ public final class DashMediaPeriodTest {
     MediaPeriodAsserts.assertTrackGroups(dashMediaPeriod, expectedTrackGroups);
   }
 
+  @Test
+  public void createPeriodsWithSharedTrackGroupsCache_reusesTrackGroupsOfSamePeriod()
+      throws IOException {
+    DashManifest manifest = parseManifest("media/mpd/sample_mpd_switching_property");
+    DashManifest refreshedManifest = parseManifest("media/mpd/sample_mpd_switching_property");
+    DashMediaPeriod.TrackGroupsCache trackGroupsCache =
+        new DashMediaPeriod.TrackGroupsCache(/* maxSize= */ 4);
+
+    DashMediaPeriod dashMediaPeriod = createDashMediaPeriod(manifest, 0, trackGroupsCache);
+    DashMediaPeriod samePeriod = createDashMediaPeriod(manifest, 0, trackGroupsCache);
+    DashMediaPeriod refreshedPeriod =
+        createDashMediaPeriod(refreshedManifest, 0, trackGroupsCache);
+
+    assertThat(samePeriod.getTrackGroups()).isSameInstanceAs(dashMediaPeriod.getTrackGroups());
+    // The refreshed manifest has a new period instance with the same ID, which may have changed.
+    assertThat(refreshedPeriod.getTrackGroups())
+        .isNotSameInstanceAs(dashMediaPeriod.getTrackGroups());
+    assertThat(refreshedPeriod.getTrackGroups()).isEqualTo(dashMediaPeriod.getTrackGroups());
+  }
+
   private static DashMediaPeriod createDashMediaPeriod(DashManifest manifest, int periodIndex) {
+    return createDashMediaPeriod(
+        manifest, periodIndex, new DashMediaPeriod.TrackGroupsCache(/* maxSize= */ 1));
+  }
+
+  private static DashMediaPeriod createDashMediaPeriod(
+      DashManifest manifest, int periodIndex, DashMediaPeriod.TrackGroupsCache trackGroupsCache) {
     MediaPeriodId mediaPeriodId = new MediaPeriodId(/* periodUid= */ new Object());
     return new DashMediaPeriod(
         /* id= */ periodIndex,
@@ -224,7 +251,8 @@ public final class DashMediaPeriodTest {
         mock(Allocator.class),
         mock(CompositeSequenceableLoaderFactory.class),
         mock(PlayerEmsgCallback.class),
-        PlayerId.UNSET);
+        PlayerId.UNSET,
+        trackGroupsCache);
   }
 
   private static DashManifest parseManifest(String fileName) throws IOException {
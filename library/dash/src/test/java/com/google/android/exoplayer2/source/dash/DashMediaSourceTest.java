@@ -20,6 +20,7 @@ import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.junit.Assert.fail;
 
 import android.net.Uri;
+import androidx.annotation.Nullable;
 import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 import com.google.android.exoplayer2.C;
@@ -29,17 +30,26 @@ import com.google.android.exoplayer2.ParserException;
 import com.google.android.exoplayer2.Timeline;
 import com.google.android.exoplayer2.Timeline.Window;
 import com.google.android.exoplayer2.analytics.PlayerId;
+import com.google.android.exoplayer2.robolectric.RobolectricUtil;
+import com.google.android.exoplayer2.source.LoadEventInfo;
+import com.google.android.exoplayer2.source.MediaLoadData;
+import com.google.android.exoplayer2.source.MediaPeriod;
 import com.google.android.exoplayer2.source.MediaSource;
+import com.google.android.exoplayer2.source.MediaSource.MediaPeriodId;
 import com.google.android.exoplayer2.source.MediaSource.MediaSourceCaller;
+import com.google.android.exoplayer2.source.MediaSourceEventListener;
+import com.google.android.exoplayer2.source.TrackGroupArray;
 import com.google.android.exoplayer2.testutil.TestUtil;
 import com.google.android.exoplayer2.upstream.ByteArrayDataSource;
 import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DefaultAllocator;
 import com.google.android.exoplayer2.upstream.FileDataSource;
 import com.google.android.exoplayer2.upstream.ParsingLoadable;
 import com.google.android.exoplayer2.util.Util;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -62,6 +72,8 @@ public final class DashMediaSourceTest {
       "media/mpd/sample_mpd_live_with_offset_too_short";
   private static final String SAMPLE_MPD_LIVE_WITH_OFFSET_TOO_LONG =
       "media/mpd/sample_mpd_live_with_offset_too_long";
+  private static final String SAMPLE_MPD_LIVE_WITH_COMPLETED_PERIOD =
+      "media/mpd/sample_mpd_live_with_completed_period";
 
   @Test
   public void iso8601ParserParse() throws IOException {
@@ -444,6 +456,67 @@ public final class DashMediaSourceTest {
     assertThat(window.liveConfiguration.targetOffsetMs).isEqualTo(60_000 - 16_000);
   }
 
+  @Test
+  public void createPeriod_afterManifestRefreshesWithReusedPeriods_reusesTrackGroups()
+      throws Exception {
+    DashMediaSource mediaSource =
+        new DashMediaSource.Factory(
+                () -> createSampleMpdDataSource(SAMPLE_MPD_LIVE_WITH_COMPLETED_PERIOD))
+            .experimentalSetReuseCompletedPeriods(true)
+            .createMediaSource(MediaItem.fromUri(Uri.EMPTY));
+    AtomicInteger manifestLoadCount = new AtomicInteger();
+    mediaSource.addEventListener(
+        Util.createHandlerForCurrentLooper(),
+        new MediaSourceEventListener() {
+          @Override
+          public void onLoadCompleted(
+              int windowIndex,
+              @Nullable MediaPeriodId mediaPeriodId,
+              LoadEventInfo loadEventInfo,
+              MediaLoadData mediaLoadData) {
+            manifestLoadCount.incrementAndGet();
+          }
+        });
+    AtomicReference<Timeline> timelineReference = new AtomicReference<>();
+    mediaSource.prepareSource(
+        (source, timeline) -> timelineReference.set(timeline),
+        /* mediaTransferListener= */ null,
+        PlayerId.UNSET);
+    RobolectricUtil.runMainLooperUntil(() -> timelineReference.get() != null);
+    TrackGroupArray completedPeriodTrackGroups =
+        createPeriodAndGetTrackGroups(mediaSource, timelineReference.get(), /* periodIndex= */ 0);
+    TrackGroupArray lastPeriodTrackGroups =
+        createPeriodAndGetTrackGroups(mediaSource, timelineReference.get(), /* periodIndex= */ 1);
+
+    for (int i = 0; i < 2; i++) {
+      int expectedManifestLoadCount = manifestLoadCount.get() + 1;
+      RobolectricUtil.runMainLooperUntil(
+          () -> manifestLoadCount.get() >= expectedManifestLoadCount);
+
+      assertThat(
+              createPeriodAndGetTrackGroups(
+                  mediaSource, timelineReference.get(), /* periodIndex= */ 0))
+          .isSameInstanceAs(completedPeriodTrackGroups);
+      // The last period may still change, so it's parsed again and its track groups are rebuilt.
+      assertThat(
+              createPeriodAndGetTrackGroups(
+                  mediaSource, timelineReference.get(), /* periodIndex= */ 1))
+          .isNotSameInstanceAs(lastPeriodTrackGroups);
+    }
+  }
+
+  private static TrackGroupArray createPeriodAndGetTrackGroups(
+      MediaSource mediaSource, Timeline timeline, int periodIndex) {
+    MediaPeriod mediaPeriod =
+        mediaSource.createPeriod(
+            new MediaPeriodId(timeline.getUidOfPeriod(periodIndex)),
+            new DefaultAllocator(/* trimOnReset= */ true, C.DEFAULT_BUFFER_SEGMENT_SIZE),
+            /* startPositionUs= */ 0);
+    TrackGroupArray trackGroups = mediaPeriod.getTrackGroups();
+    mediaSource.releasePeriod(mediaPeriod);
+    return trackGroups;
+  }
+
   private static Window prepareAndWaitForTimelineRefresh(MediaSource mediaSource)
       throws InterruptedException {
     AtomicReference<Window> windowReference = new AtomicReference<>();
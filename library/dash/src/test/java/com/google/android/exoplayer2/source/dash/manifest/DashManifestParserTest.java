@@ -33,8 +33,10 @@ import com.google.android.exoplayer2.util.MimeTypes;
 import com.google.android.exoplayer2.util.Util;
 import com.google.common.base.Charsets;
 import com.google.common.collect.ImmutableList;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.StringReader;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import org.junit.Test;
@@ -429,6 +431,101 @@ public class DashManifestParserTest {
     assertNextTag(xpp);
   }
 
+  @Test
+  public void parseSegmentTimeline_repeatedElements_storesRuns() throws Exception {
+    DashManifestParser parser = new DashManifestParser();
+    XmlPullParser xpp = XmlPullParserFactory.newInstance().newPullParser();
+    xpp.setInput(
+        new StringReader(
+            "<SegmentTimeline><S t=\"0\" d=\"96000\" r=\"999\"/><S d=\"96000\" r=\"999\"/>"
+                + "<S d=\"48000\"/></SegmentTimeline>"
+                + NEXT_TAG));
+    xpp.next();
+
+    List<SegmentTimelineElement> elements =
+        parser.parseSegmentTimeline(xpp, /* timescale= */ 48000, /* periodDurationMs= */ 10000);
+
+    assertThat(elements).isInstanceOf(RunLengthSegmentTimeline.class);
+    assertThat(((RunLengthSegmentTimeline) elements).getRunCount()).isEqualTo(2);
+    assertThat(elements).hasSize(2001);
+    assertThat(elements.get(1999))
+        .isEqualTo(new SegmentTimelineElement(/* startTime= */ 191_904_000, /* duration= */ 96000));
+    assertThat(elements.get(2000))
+        .isEqualTo(new SegmentTimelineElement(/* startTime= */ 192_000_000, /* duration= */ 48000));
+    assertNextTag(xpp);
+  }
+
+  @Test
+  public void parseSegmentTimeline_withCustomElementBuilder_buildsEachElementWithBuilder()
+      throws Exception {
+    List<Long> builtStartTimes = new ArrayList<>();
+    DashManifestParser parser =
+        new DashManifestParser() {
+          @Override
+          protected SegmentTimelineElement buildSegmentTimelineElement(
+              long startTime, long duration) {
+            builtStartTimes.add(startTime);
+            return super.buildSegmentTimelineElement(startTime, duration);
+          }
+        };
+    XmlPullParser xpp = XmlPullParserFactory.newInstance().newPullParser();
+    xpp.setInput(
+        new StringReader(
+            "<SegmentTimeline><S t=\"0\" d=\"96000\" r=\"2\"/></SegmentTimeline>" + NEXT_TAG));
+    xpp.next();
+
+    List<SegmentTimelineElement> elements =
+        parser.parseSegmentTimeline(xpp, /* timescale= */ 48000, /* periodDurationMs= */ 10000);
+    List<SegmentTimelineElement> expandedElements = new ArrayList<>(elements);
+
+    assertThat(expandedElements)
+        .containsExactly(
+            new SegmentTimelineElement(/* startTime= */ 0, /* duration= */ 96000),
+            new SegmentTimelineElement(/* startTime= */ 96000, /* duration= */ 96000),
+            new SegmentTimelineElement(/* startTime= */ 192000, /* duration= */ 96000))
+        .inOrder();
+    assertThat(builtStartTimes).containsExactly(0L, 96000L, 192000L).inOrder();
+  }
+
+  @Test
+  public void parseMediaPresentationDescription_reuseCompletedPeriods_reusesCompletedPeriods()
+      throws IOException {
+    DashManifestParser parser = new DashManifestParser().experimentalSetReuseCompletedPeriods(true);
+    Uri uri = Uri.parse("https://example.com/test.mpd");
+    String period1 = createLivePeriod(/* id= */ "1", /* start= */ "PT0S", /* segmentCount= */ 5);
+    String period2 = createLivePeriod(/* id= */ "2", /* start= */ "PT10S", /* segmentCount= */ 2);
+    String updatedPeriod2 =
+        createLivePeriod(/* id= */ "2", /* start= */ "PT10S", /* segmentCount= */ 3);
+
+    DashManifest manifest = parser.parse(uri, createLiveManifestInputStream(period1 + period2));
+    DashManifest updatedManifest =
+        parser.parse(uri, createLiveManifestInputStream(period1 + updatedPeriod2));
+
+    assertThat(updatedManifest.getPeriodCount()).isEqualTo(2);
+    assertThat(updatedManifest.getPeriod(0)).isSameInstanceAs(manifest.getPeriod(0));
+    assertThat(updatedManifest.getPeriod(1)).isNotSameInstanceAs(manifest.getPeriod(1));
+    assertThat(updatedManifest.getPeriodDurationMs(0)).isEqualTo(10_000);
+    MultiSegmentRepresentation representation =
+        (MultiSegmentRepresentation)
+            updatedManifest.getPeriod(1).adaptationSets.get(0).representations.get(0);
+    assertThat(representation.getSegmentCount(/* periodDurationUs= */ C.TIME_UNSET)).isEqualTo(3);
+  }
+
+  @Test
+  public void parseMediaPresentationDescription_reuseCompletedPeriodsDisabled_parsesAllPeriods()
+      throws IOException {
+    DashManifestParser parser = new DashManifestParser();
+    Uri uri = Uri.parse("https://example.com/test.mpd");
+    String periods =
+        createLivePeriod(/* id= */ "1", /* start= */ "PT0S", /* segmentCount= */ 5)
+            + createLivePeriod(/* id= */ "2", /* start= */ "PT10S", /* segmentCount= */ 2);
+
+    DashManifest manifest = parser.parse(uri, createLiveManifestInputStream(periods));
+    DashManifest updatedManifest = parser.parse(uri, createLiveManifestInputStream(periods));
+
+    assertThat(updatedManifest.getPeriod(0)).isNotSameInstanceAs(manifest.getPeriod(0));
+  }
+
   @Test
   public void parseLabel() throws Exception {
     DashManifestParser parser = new DashManifestParser();
@@ -938,6 +1035,29 @@ public class DashManifestParserTest {
     return Collections.singletonList(new Descriptor("urn:scte:dash:cc:cea-708:2015", value, null));
   }
 
+  private static String createLivePeriod(String id, String start, int segmentCount) {
+    return "<Period id=\""
+        + id
+        + "\" start=\""
+        + start
+        + "\"><AdaptationSet mimeType=\"video/mp4\">"
+        + "<SegmentTemplate timescale=\"1000\" media=\"$Time$.m4s\">"
+        + "<SegmentTimeline><S t=\"0\" d=\"2000\" r=\""
+        + (segmentCount - 1)
+        + "\"/></SegmentTimeline></SegmentTemplate>"
+        + "<Representation id=\"video\" bandwidth=\"1000000\"/>"
+        + "</AdaptationSet></Period>";
+  }
+
+  private static ByteArrayInputStream createLiveManifestInputStream(String periods) {
+    return new ByteArrayInputStream(
+        Util.getUtf8Bytes(
+            "<MPD type=\"dynamic\" availabilityStartTime=\"2023-01-01T00:00:00Z\""
+                + " timeShiftBufferDepth=\"PT60S\">"
+                + periods
+                + "</MPD>"));
+  }
+
   private static void assertNextTag(XmlPullParser xpp) throws Exception {
     xpp.next();
     assertThat(xpp.getEventType()).isEqualTo(XmlPullParser.START_TAG);
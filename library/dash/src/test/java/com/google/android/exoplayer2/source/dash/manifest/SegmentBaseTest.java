@@ -19,6 +19,9 @@ import static com.google.common.truth.Truth.assertThat;
 
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.source.dash.manifest.SegmentBase.SegmentTimelineElement;
+import java.util.ArrayList;
+import java.util.List;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
@@ -221,4 +224,51 @@ public final class SegmentBaseTest {
             /* periodStartUnixTimeUs= */ C.TIME_UNSET);
     assertThat(segmentTemplate.getSegmentCount(1618875028000000L)).isEqualTo(8994299808L);
   }
+
+  @Test
+  public void getSegmentNum_withRunLengthSegmentTimeline_matchesExpandedSegmentTimeline() {
+    RunLengthSegmentTimeline runLengthTimeline =
+        new RunLengthSegmentTimeline.Builder()
+            .addElements(/* startTime= */ 1000, /* duration= */ 2000, /* count= */ 10)
+            .addElements(/* startTime= */ 21000, /* duration= */ 1000, /* count= */ 1)
+            .addElements(/* startTime= */ 25000, /* duration= */ 3000, /* count= */ 5)
+            .build();
+    List<SegmentTimelineElement> expandedTimeline = new ArrayList<>(runLengthTimeline);
+    SegmentBase.SegmentTemplate runLengthTemplate = createSegmentTemplate(runLengthTimeline);
+    SegmentBase.SegmentTemplate expandedTemplate = createSegmentTemplate(expandedTimeline);
+
+    assertThat(runLengthTimeline.getRunCount()).isEqualTo(3);
+    assertThat(expandedTimeline).hasSize(16);
+    for (long timeUs = 0; timeUs < 45_000_000; timeUs += 250_000) {
+      assertThat(runLengthTemplate.getSegmentNum(timeUs, /* periodDurationUs= */ C.TIME_UNSET))
+          .isEqualTo(expandedTemplate.getSegmentNum(timeUs, /* periodDurationUs= */ C.TIME_UNSET));
+    }
+    for (long segmentNum = 5; segmentNum < 21; segmentNum++) {
+      assertThat(runLengthTemplate.getSegmentTimeUs(segmentNum))
+          .isEqualTo(expandedTemplate.getSegmentTimeUs(segmentNum));
+      assertThat(
+              runLengthTemplate.getSegmentDurationUs(
+                  segmentNum, /* periodDurationUs= */ C.TIME_UNSET))
+          .isEqualTo(
+              expandedTemplate.getSegmentDurationUs(
+                  segmentNum, /* periodDurationUs= */ C.TIME_UNSET));
+    }
+  }
+
+  private static SegmentBase.SegmentTemplate createSegmentTemplate(
+      List<SegmentTimelineElement> segmentTimeline) {
+    return new SegmentBase.SegmentTemplate(
+        /* initialization= */ null,
+        /* timescale= */ 1000,
+        /* presentationTimeOffset= */ 1000,
+        /* startNumber= */ 5,
+        /* endNumber= */ C.INDEX_UNSET,
+        /* duration= */ C.TIME_UNSET,
+        segmentTimeline,
+        /* availabilityTimeOffsetUs= */ C.TIME_UNSET,
+        /* initializationTemplate= */ null,
+        /* mediaTemplate= */ null,
+        /* timeShiftBufferDepthUs= */ C.TIME_UNSET,
+        /* periodStartUnixTimeUs= */ C.TIME_UNSET);
+  }
 }
@@ -53,6 +53,8 @@ public final class VersionTable {
   public static final int FEATURE_CACHE_CONTENT_METADATA = 1;
   /** Version of tables used for cache file metadata. */
   public static final int FEATURE_CACHE_FILE_METADATA = 2;
+  /** Version of tables used for offline licenses. */
+  public static final int FEATURE_OFFLINE_LICENSES = 3;
   /** Version of tables used from external features. */
   public static final int FEATURE_EXTERNAL = 1000;
 
@@ -87,6 +89,7 @@ public final class VersionTable {
     FEATURE_OFFLINE,
     FEATURE_CACHE_CONTENT_METADATA,
     FEATURE_CACHE_FILE_METADATA,
+    FEATURE_OFFLINE_LICENSES,
     FEATURE_EXTERNAL
   })
   private @interface Feature {}
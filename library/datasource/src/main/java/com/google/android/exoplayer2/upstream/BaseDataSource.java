@@ -20,6 +20,8 @@ import static com.google.android.exoplayer2.util.Util.castNonNull;
 
 import androidx.annotation.Nullable;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Base {@link DataSource} implementation to keep a list of {@link TransferListener}s.
@@ -61,6 +63,11 @@ public abstract class BaseDataSource implements DataSource {
     }
   }
 
+  /** Returns an unmodifiable view of the registered listeners. */
+  protected final List<TransferListener> getTransferListeners() {
+    return Collections.unmodifiableList(listeners);
+  }
+
   /**
    * Notifies listeners that data transfer for the specified {@link DataSpec} is being initialized.
    *
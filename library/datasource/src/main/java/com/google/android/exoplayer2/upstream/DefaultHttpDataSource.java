@@ -78,6 +78,7 @@ public class DefaultHttpDataSource extends BaseDataSource implements HttpDataSou
 
     @Nullable private TransferListener transferListener;
     @Nullable private Predicate<String> contentTypePredicate;
+    @Nullable private HttpKeepAlivePolicy keepAlivePolicy;
     @Nullable private String userAgent;
     private int connectTimeoutMs;
     private int readTimeoutMs;
@@ -199,6 +200,31 @@ public class DefaultHttpDataSource extends BaseDataSource implements HttpDataSou
       return this;
     }
 
+    /**
+     * Sets the {@link HttpKeepAlivePolicy} that decides when connections are left open for the
+     * platform to reuse across transfers.
+     *
+     * <p>If a policy is set, transfers that are closed before the end of the response are drained
+     * when few bytes remain, and connections are left open rather than disconnected. The policy
+     * may be shared by the data sources of multiple factories. Estimated reuse is reported to
+     * {@linkplain #setTransferListener transfer listeners} that implement {@link
+     * HttpKeepAlivePolicy.EventListener}.
+     *
+     * <p>This method is experimental, and will be renamed or removed in a future release.
+     *
+     * <p>The default is {@code null}, which causes connections to be disconnected after each
+     * transfer.
+     *
+     * @param keepAlivePolicy The {@link HttpKeepAlivePolicy}, or {@code null} to disconnect
+     *     connections after each transfer.
+     * @return This factory.
+     */
+    @CanIgnoreReturnValue
+    public Factory experimentalSetKeepAlivePolicy(@Nullable HttpKeepAlivePolicy keepAlivePolicy) {
+      this.keepAlivePolicy = keepAlivePolicy;
+      return this;
+    }
+
     @Override
     public DefaultHttpDataSource createDataSource() {
       DefaultHttpDataSource dataSource =
@@ -209,7 +235,8 @@ public class DefaultHttpDataSource extends BaseDataSource implements HttpDataSou
               allowCrossProtocolRedirects,
               defaultRequestProperties,
               contentTypePredicate,
-              keepPostFor302Redirects);
+              keepPostFor302Redirects,
+              keepAlivePolicy);
       if (transferListener != null) {
         dataSource.addTransferListener(transferListener);
       }
@@ -227,6 +254,7 @@ public class DefaultHttpDataSource extends BaseDataSource implements HttpDataSou
   private static final int HTTP_STATUS_TEMPORARY_REDIRECT = 307;
   private static final int HTTP_STATUS_PERMANENT_REDIRECT = 308;
   private static final long MAX_BYTES_TO_DRAIN = 2048;
+  private static final int DRAIN_BUFFER_SIZE = 4096;
 
   private final boolean allowCrossProtocolRedirects;
   private final int connectTimeoutMillis;
@@ -235,11 +263,13 @@ public class DefaultHttpDataSource extends BaseDataSource implements HttpDataSou
   @Nullable private final RequestProperties defaultRequestProperties;
   private final RequestProperties requestProperties;
   private final boolean keepPostFor302Redirects;
+  @Nullable private final HttpKeepAlivePolicy keepAlivePolicy;
 
   @Nullable private Predicate<String> contentTypePredicate;
   @Nullable private DataSpec dataSpec;
   @Nullable private HttpURLConnection connection;
   @Nullable private InputStream inputStream;
+  @Nullable private byte[] drainBuffer;
   private boolean opened;
   private int responseCode;
   private long bytesToRead;
@@ -295,7 +325,8 @@ public class DefaultHttpDataSource extends BaseDataSource implements HttpDataSou
         allowCrossProtocolRedirects,
         defaultRequestProperties,
         /* contentTypePredicate= */ null,
-        /* keepPostFor302Redirects= */ false);
+        /* keepPostFor302Redirects= */ false,
+        /* keepAlivePolicy= */ null);
   }
 
   private DefaultHttpDataSource(
@@ -305,7 +336,8 @@ public class DefaultHttpDataSource extends BaseDataSource implements HttpDataSou
       boolean allowCrossProtocolRedirects,
       @Nullable RequestProperties defaultRequestProperties,
       @Nullable Predicate<String> contentTypePredicate,
-      boolean keepPostFor302Redirects) {
+      boolean keepPostFor302Redirects,
+      @Nullable HttpKeepAlivePolicy keepAlivePolicy) {
     super(/* isNetwork= */ true);
     this.userAgent = userAgent;
     this.connectTimeoutMillis = connectTimeoutMillis;
@@ -315,6 +347,7 @@ public class DefaultHttpDataSource extends BaseDataSource implements HttpDataSou
     this.contentTypePredicate = contentTypePredicate;
     this.requestProperties = new RequestProperties();
     this.keepPostFor302Redirects = keepPostFor302Redirects;
+    this.keepAlivePolicy = keepAlivePolicy;
   }
 
   /**
@@ -387,6 +420,10 @@ public class DefaultHttpDataSource extends BaseDataSource implements HttpDataSou
       connection = this.connection;
       responseCode = connection.getResponseCode();
       responseMessage = connection.getResponseMessage();
+      if (keepAlivePolicy != null) {
+        // Redirects have been followed, so the URL is the one of the host that's connected to.
+        onConnectionOpened(keepAlivePolicy, connection.getURL(), dataSpec);
+      }
     } catch (IOException e) {
       closeConnectionQuietly();
       throw HttpDataSourceException.createForIOException(
@@ -503,15 +540,23 @@ public class DefaultHttpDataSource extends BaseDataSource implements HttpDataSou
 
   @Override
   public void close() throws HttpDataSourceException {
+    boolean connectionReusable = false;
     try {
       @Nullable InputStream inputStream = this.inputStream;
       if (inputStream != null) {
         long bytesRemaining =
             bytesToRead == C.LENGTH_UNSET ? C.LENGTH_UNSET : bytesToRead - bytesRead;
-        maybeTerminateInputStream(connection, bytesRemaining);
+        if (keepAlivePolicy != null) {
+          connectionReusable =
+              drainInputStream(inputStream, bytesRemaining, keepAlivePolicy.maxBytesToDrain);
+        }
+        if (!connectionReusable) {
+          maybeTerminateInputStream(connection, bytesRemaining);
+        }
         try {
           inputStream.close();
         } catch (IOException e) {
+          connectionReusable = false;
           throw new HttpDataSourceException(
               e,
               castNonNull(dataSpec),
@@ -521,7 +566,11 @@ public class DefaultHttpDataSource extends BaseDataSource implements HttpDataSou
       }
     } finally {
       inputStream = null;
-      closeConnectionQuietly();
+      if (connectionReusable) {
+        maybeKeepConnectionAlive(checkNotNull(keepAlivePolicy));
+      } else {
+        closeConnectionQuietly();
+      }
       if (opened) {
         opened = false;
         transferEnded();
@@ -529,6 +578,36 @@ public class DefaultHttpDataSource extends BaseDataSource implements HttpDataSou
     }
   }
 
+  /**
+   * Records a connection to the host of a URL with a {@link HttpKeepAlivePolicy} and notifies
+   * listeners whether it was likely reused.
+   */
+  private void onConnectionOpened(HttpKeepAlivePolicy keepAlivePolicy, URL url, DataSpec dataSpec) {
+    boolean likelyReused = keepAlivePolicy.onConnectionOpened(url);
+    List<TransferListener> listeners = getTransferListeners();
+    for (int i = 0; i < listeners.size(); i++) {
+      TransferListener listener = listeners.get(i);
+      if (listener instanceof HttpKeepAlivePolicy.EventListener) {
+        ((HttpKeepAlivePolicy.EventListener) listener)
+            .onConnectionOpened(/* source= */ this, dataSpec, /* isNetwork= */ true, likelyReused);
+      }
+    }
+  }
+
+  /**
+   * Leaves the current connection, whose response has been read in full, open for the platform to
+   * reuse if the {@link HttpKeepAlivePolicy} allows it, or disconnects it otherwise.
+   */
+  private void maybeKeepConnectionAlive(HttpKeepAlivePolicy keepAlivePolicy) {
+    @Nullable HttpURLConnection connection = this.connection;
+    if (connection != null && keepAlivePolicy.shouldKeepAlive(connection.getURL())) {
+      // Disconnecting would close the socket, preventing its reuse.
+      this.connection = null;
+    } else {
+      closeConnectionQuietly();
+    }
+  }
+
   /** Establishes a connection, following redirects to do so where permitted. */
   private HttpURLConnection makeConnection(DataSpec dataSpec) throws IOException {
     URL url = new URL(dataSpec.uri.toString());
@@ -842,6 +921,44 @@ public class DefaultHttpDataSource extends BaseDataSource implements HttpDataSou
     }
   }
 
+  /**
+   * Reads and discards the remainder of a response, so that its connection can be reused.
+   *
+   * @param inputStream The {@link InputStream} of the response.
+   * @param bytesRemaining The number of bytes remaining to be read from the input stream if its
+   *     length is known. {@link C#LENGTH_UNSET} otherwise.
+   * @param maxBytesToDrain The maximum number of bytes to read.
+   * @return Whether the end of the response was reached.
+   */
+  private boolean drainInputStream(
+      InputStream inputStream, long bytesRemaining, long maxBytesToDrain) {
+    if (bytesRemaining != C.LENGTH_UNSET && bytesRemaining > maxBytesToDrain) {
+      return false;
+    }
+    @Nullable byte[] drainBuffer = this.drainBuffer;
+    if (drainBuffer == null) {
+      drainBuffer = new byte[DRAIN_BUFFER_SIZE];
+      this.drainBuffer = drainBuffer;
+    }
+    long bytesDrained = 0;
+    try {
+      while (!Thread.currentThread().isInterrupted()) {
+        int readLength = (int) min(maxBytesToDrain - bytesDrained + 1, drainBuffer.length);
+        int read = inputStream.read(drainBuffer, 0, readLength);
+        if (read == -1) {
+          return true;
+        }
+        bytesDrained += read;
+        if (bytesDrained > maxBytesToDrain) {
+          return false;
+        }
+      }
+    } catch (IOException e) {
+      // The connection can't be reused.
+    }
+    return false;
+  }
+
   /** Closes the current connection quietly, if there is one. */
   private void closeConnectionQuietly() {
     if (connection != null) {
@@ -0,0 +1,244 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.upstream;
+
+import static com.google.android.exoplayer2.util.Assertions.checkArgument;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import com.google.android.exoplayer2.util.Clock;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+
+/**
+ * Decides when {@link DefaultHttpDataSource} leaves HTTP/1.1 connections open for the platform to
+ * reuse, rather than disconnecting them after each transfer.
+ *
+ * <p>This isn't a connection pool. The platform {@link java.net.HttpURLConnection} implementation
+ * owns the sockets and its own pool, and decides which socket serves a request. The policy only
+ * avoids the two things that prevent the platform from reusing a connection:
+ *
+ * <ul>
+ *   <li>When a transfer is closed before the end of the response, up to {@link #maxBytesToDrain}
+ *       remaining bytes are read and discarded, so that the response is complete. If more bytes
+ *       remain, the connection is disconnected.
+ *   <li>Connections whose response was read in full aren't disconnected, unless {@link
+ *       #maxKeptAliveConnectionsPerHost} connections to the host were already left open within the
+ *       {@linkplain #keepAliveDurationMs keep-alive duration}.
+ * </ul>
+ *
+ * <p>The policy counts the connections it left open per host, and forgets them once the
+ * keep-alive duration has elapsed. It never closes their sockets, which remain open until the
+ * platform's own keep-alive timeout closes them. The reuse metrics are estimates: a connection is
+ * reported as likely reused if a connection to the host that was connected to, after following
+ * redirects, was left open within the keep-alive duration and hasn't been counted as reused since.
+ *
+ * <p>Requests aren't pipelined. {@link java.net.HttpURLConnection} sends one request per connection
+ * at a time, so an HTTP/2 capable {@link HttpDataSource} is needed to multiplex requests.
+ *
+ * <p>A policy may be shared by multiple data sources and is thread safe.
+ *
+ * @deprecated com.google.android.exoplayer2 is deprecated. Please migrate to androidx.media3 (which
+ *     contains the same ExoPlayer code). See <a
+ *     href="https://developer.android.com/guide/topics/media/media3/getting-started/migration-guide">the
+ *     migration guide</a> for more details, including a script to help with the migration.
+ */
+@Deprecated
+public final class HttpKeepAlivePolicy {
+
+  /**
+   * A {@link TransferListener} that's additionally notified of estimated connection reuse by data
+   * sources that use a {@link HttpKeepAlivePolicy}.
+   */
+  public interface EventListener extends TransferListener {
+
+    /**
+     * Called when a connection is opened for a transfer, after {@link
+     * #onTransferInitializing(DataSource, DataSpec, boolean)}.
+     *
+     * @param source The source performing the transfer.
+     * @param dataSpec Describes the data for which the transfer is initialized.
+     * @param isNetwork Whether the data is transferred through a network.
+     * @param likelyReused Whether a connection to the same host had been left open, so that the
+     *     platform is likely to have reused it. This is an estimate, as the platform decides which
+     *     socket is actually used.
+     */
+    void onConnectionOpened(
+        DataSource source, DataSpec dataSpec, boolean isNetwork, boolean likelyReused);
+  }
+
+  /** The default maximum number of connections per host that are left open. */
+  public static final int DEFAULT_MAX_KEPT_ALIVE_CONNECTIONS_PER_HOST = 5;
+  /** The default duration for which a connection left open is counted, in milliseconds. */
+  public static final long DEFAULT_KEEP_ALIVE_DURATION_MS = 30_000;
+  /** The default maximum number of bytes drained to make a connection reusable. */
+  public static final long DEFAULT_MAX_BYTES_TO_DRAIN = 64 * 1024;
+
+  /**
+   * The maximum number of connections per host that are left open within the {@link
+   * #keepAliveDurationMs keep-alive duration}.
+   */
+  public final int maxKeptAliveConnectionsPerHost;
+  /**
+   * The duration for which a connection left open is counted, in milliseconds. This should not be
+   * longer than the platform's keep-alive timeout.
+   */
+  public final long keepAliveDurationMs;
+  /**
+   * The maximum number of bytes that are read and discarded when a transfer is closed before the
+   * end of the response, to make its connection reusable.
+   */
+  public final long maxBytesToDrain;
+
+  private final Clock clock;
+  private final HashMap<String, ArrayDeque<Long>> keptAliveTimesMsByHost;
+
+  private long likelyReusedConnectionCount;
+  private long likelyNewConnectionCount;
+
+  /** Creates an instance with default parameters. */
+  public HttpKeepAlivePolicy() {
+    this(
+        DEFAULT_MAX_KEPT_ALIVE_CONNECTIONS_PER_HOST,
+        DEFAULT_KEEP_ALIVE_DURATION_MS,
+        DEFAULT_MAX_BYTES_TO_DRAIN);
+  }
+
+  /**
+   * Creates an instance.
+   *
+   * @param maxKeptAliveConnectionsPerHost The maximum number of connections per host that are left
+   *     open within the keep-alive duration.
+   * @param keepAliveDurationMs The duration for which a connection left open is counted, in
+   *     milliseconds.
+   * @param maxBytesToDrain The maximum number of bytes that are read and discarded when a transfer
+   *     is closed before the end of the response, to make its connection reusable.
+   */
+  public HttpKeepAlivePolicy(
+      int maxKeptAliveConnectionsPerHost, long keepAliveDurationMs, long maxBytesToDrain) {
+    this(maxKeptAliveConnectionsPerHost, keepAliveDurationMs, maxBytesToDrain, Clock.DEFAULT);
+  }
+
+  @VisibleForTesting
+  /* package */ HttpKeepAlivePolicy(
+      int maxKeptAliveConnectionsPerHost,
+      long keepAliveDurationMs,
+      long maxBytesToDrain,
+      Clock clock) {
+    checkArgument(maxKeptAliveConnectionsPerHost >= 0);
+    checkArgument(keepAliveDurationMs >= 0);
+    checkArgument(maxBytesToDrain >= 0);
+    this.maxKeptAliveConnectionsPerHost = maxKeptAliveConnectionsPerHost;
+    this.keepAliveDurationMs = keepAliveDurationMs;
+    this.maxBytesToDrain = maxBytesToDrain;
+    this.clock = clock;
+    keptAliveTimesMsByHost = new HashMap<>();
+  }
+
+  /**
+   * Returns an estimate of the number of reused connections, which is the number of connections
+   * opened while a connection to the same host had been left open.
+   */
+  public synchronized long getEstimatedReusedConnectionCount() {
+    return likelyReusedConnectionCount;
+  }
+
+  /**
+   * Returns an estimate of the number of new connections, which is the number of connections
+   * opened while no connection to the same host had been left open.
+   */
+  public synchronized long getEstimatedNewConnectionCount() {
+    return likelyNewConnectionCount;
+  }
+
+  /**
+   * Returns the number of connections to the host of a URL that were left open within the
+   * keep-alive duration, and haven't been counted as reused since.
+   */
+  public synchronized int getKeptAliveConnectionCount(URL url) {
+    @Nullable ArrayDeque<Long> keptAliveTimesMs = getKeptAliveTimesMs(getHostKey(url));
+    return keptAliveTimesMs != null ? keptAliveTimesMs.size() : 0;
+  }
+
+  /**
+   * Records that a connection to the host of a URL was opened.
+   *
+   * @param url The URL.
+   * @return Whether a connection to the host had been left open, so that it was likely reused.
+   */
+  /* package */ synchronized boolean onConnectionOpened(URL url) {
+    @Nullable ArrayDeque<Long> keptAliveTimesMs = getKeptAliveTimesMs(getHostKey(url));
+    // Count the most recently kept alive connection as reused, as it's the least likely to have
+    // been closed by the server.
+    if (keptAliveTimesMs != null && keptAliveTimesMs.pollLast() != null) {
+      likelyReusedConnectionCount++;
+      return true;
+    }
+    likelyNewConnectionCount++;
+    return false;
+  }
+
+  /**
+   * Returns whether a connection to the host of a URL, whose response has been read in full, should
+   * be left open for reuse, and records it if so.
+   *
+   * @param url The URL.
+   * @return Whether the connection should be left open. If {@code false}, the connection should be
+   *     disconnected.
+   */
+  /* package */ synchronized boolean shouldKeepAlive(URL url) {
+    String hostKey = getHostKey(url);
+    @Nullable ArrayDeque<Long> keptAliveTimesMs = getKeptAliveTimesMs(hostKey);
+    if (keptAliveTimesMs == null) {
+      keptAliveTimesMs = new ArrayDeque<>();
+      keptAliveTimesMsByHost.put(hostKey, keptAliveTimesMs);
+    }
+    if (keptAliveTimesMs.size() >= maxKeptAliveConnectionsPerHost) {
+      return false;
+    }
+    keptAliveTimesMs.addLast(clock.elapsedRealtime());
+    return true;
+  }
+
+  /**
+   * Returns the times at which connections to a host were left open, after forgetting the ones
+   * that are older than the keep-alive duration, or null if there are none.
+   */
+  @Nullable
+  private ArrayDeque<Long> getKeptAliveTimesMs(String hostKey) {
+    @Nullable ArrayDeque<Long> keptAliveTimesMs = keptAliveTimesMsByHost.get(hostKey);
+    if (keptAliveTimesMs == null) {
+      return null;
+    }
+    long expiryTimeMs = clock.elapsedRealtime() - keepAliveDurationMs;
+    Iterator<Long> iterator = keptAliveTimesMs.iterator();
+    while (iterator.hasNext() && iterator.next() < expiryTimeMs) {
+      iterator.remove();
+    }
+    if (keptAliveTimesMs.isEmpty()) {
+      keptAliveTimesMsByHost.remove(hostKey);
+      return null;
+    }
+    return keptAliveTimesMs;
+  }
+
+  private static String getHostKey(URL url) {
+    int port = url.getPort() != -1 ? url.getPort() : url.getDefaultPort();
+    return url.getProtocol() + "://" + url.getHost() + ":" + port;
+  }
+}
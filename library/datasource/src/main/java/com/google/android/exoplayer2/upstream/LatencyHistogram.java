@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.upstream;
+
+import static com.google.android.exoplayer2.util.Assertions.checkArgument;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+import com.google.android.exoplayer2.C;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of latencies, with exponentially sized buckets.
+ *
+ * <p>Bucket {@code i} counts the latencies in the range [{@code 2^(i-1)}, {@code 2^i})
+ * microseconds, and bucket 0 counts the latencies below one microsecond. The last bucket also
+ * counts all latencies that are too large for the other buckets.
+ *
+ * <p>Adding a latency doesn't allocate, and the histogram may be accessed from any thread.
+ *
+ * @deprecated com.google.android.exoplayer2 is deprecated. Please migrate to androidx.media3 (which
+ *     contains the same ExoPlayer code). See <a
+ *     href="https://developer.android.com/guide/topics/media/media3/getting-started/migration-guide">the
+ *     migration guide</a> for more details, including a script to help with the migration.
+ */
+@Deprecated
+public final class LatencyHistogram {
+
+  /** The number of buckets. The last bucket starts at about 67 seconds. */
+  public static final int BUCKET_COUNT = 28;
+
+  private final AtomicLongArray bucketCounts;
+  private final AtomicLong totalLatencyUs;
+
+  /** Creates an empty instance. */
+  public LatencyHistogram() {
+    bucketCounts = new AtomicLongArray(BUCKET_COUNT);
+    totalLatencyUs = new AtomicLong();
+  }
+
+  /**
+   * Returns the exclusive upper bound of a bucket, in microseconds, or {@link C#TIME_UNSET} for the
+   * last bucket, which is unbounded.
+   *
+   * @param bucketIndex The index of the bucket.
+   */
+  public static long getBucketUpperBoundUs(int bucketIndex) {
+    checkArgument(bucketIndex >= 0 && bucketIndex < BUCKET_COUNT);
+    return bucketIndex == BUCKET_COUNT - 1 ? C.TIME_UNSET : 1L << bucketIndex;
+  }
+
+  /**
+   * Adds a latency to the histogram.
+   *
+   * @param latencyUs The latency, in microseconds. Negative values are counted as zero.
+   */
+  public void add(long latencyUs) {
+    latencyUs = max(latencyUs, 0);
+    int bucketIndex = min(Long.SIZE - Long.numberOfLeadingZeros(latencyUs), BUCKET_COUNT - 1);
+    bucketCounts.incrementAndGet(bucketIndex);
+    totalLatencyUs.addAndGet(latencyUs);
+  }
+
+  /** Returns the number of latencies that have been added. */
+  public long getCount() {
+    long count = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      count += bucketCounts.get(i);
+    }
+    return count;
+  }
+
+  /**
+   * Returns the number of latencies counted by a bucket.
+   *
+   * @param bucketIndex The index of the bucket.
+   */
+  public long getBucketCount(int bucketIndex) {
+    return bucketCounts.get(bucketIndex);
+  }
+
+  /** Returns the mean latency, in microseconds, or {@link C#TIME_UNSET} if there is none. */
+  public long getMeanUs() {
+    long count = getCount();
+    return count == 0 ? C.TIME_UNSET : totalLatencyUs.get() / count;
+  }
+
+  /**
+   * Returns an upper bound of a percentile of the latencies, in microseconds.
+   *
+   * <p>The returned value is the upper bound of the bucket that contains the percentile. It's
+   * {@link C#TIME_UNSET} if the histogram is empty or if the percentile is in the last bucket.
+   *
+   * @param percentile The percentile, in the range (0, 100].
+   */
+  public long getPercentileUpperBoundUs(float percentile) {
+    checkArgument(percentile > 0 && percentile <= 100);
+    long count = getCount();
+    if (count == 0) {
+      return C.TIME_UNSET;
+    }
+    long targetCount = (long) Math.ceil(count * percentile / 100);
+    long cumulativeCount = 0;
+    for (int i = 0; i < BUCKET_COUNT - 1; i++) {
+      cumulativeCount += bucketCounts.get(i);
+      if (cumulativeCount >= targetCount) {
+        return getBucketUpperBoundUs(i);
+      }
+    }
+    return C.TIME_UNSET;
+  }
+
+  /** Removes all latencies from the histogram. */
+  public void reset() {
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      bucketCounts.set(i, 0);
+    }
+    totalLatencyUs.set(0);
+  }
+}
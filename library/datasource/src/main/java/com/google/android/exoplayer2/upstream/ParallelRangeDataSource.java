@@ -0,0 +1,551 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.upstream;
+
+import static com.google.android.exoplayer2.util.Assertions.checkArgument;
+import static com.google.android.exoplayer2.util.Assertions.checkNotNull;
+import static java.lang.Math.min;
+
+import android.net.Uri;
+import androidx.annotation.Nullable;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.PlaybackException;
+import com.google.android.exoplayer2.util.Clock;
+import com.google.common.net.HttpHeaders;
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A {@link DataSource} that loads large resources over multiple concurrent range requests, and
+ * reassembles them into a single sequential stream.
+ *
+ * <p>The first chunk of the resource is requested on its own, and its data is read directly. If the
+ * length of the resource is known, either from the {@link DataSpec} or from the {@code
+ * Content-Range} header of the first response, the remaining chunks are requested concurrently by
+ * background threads, each with its own upstream {@link DataSource}. Chunks are buffered in memory
+ * until they're read, and at most {@link Factory#setMaxConnectionCount(int) maxConnectionCount}
+ * chunks are buffered or loading at a time. A chunk whose request fails is requested again from
+ * where it failed, up to {@link #MAX_CHUNK_RETRY_COUNT} times.
+ *
+ * <p>The number of concurrent requests adapts to the aggregate throughput, measured over the time
+ * during which chunks were loading. It starts at two, and each time as many chunks have loaded as
+ * there are concurrent requests, it's increased by one if the throughput improved and decreased by
+ * one if the throughput dropped.
+ *
+ * <p>If the length of the resource is unknown after the first chunk has been requested, the
+ * resource is requested again in full, to determine its length. Resources shorter than two chunks
+ * and requests that allow gzip compression are loaded over a single request. The upstream {@link
+ * DataSource} must support range requests.
+ *
+ * @deprecated com.google.android.exoplayer2 is deprecated. Please migrate to androidx.media3 (which
+ *     contains the same ExoPlayer code). See <a
+ *     href="https://developer.android.com/guide/topics/media/media3/getting-started/migration-guide">the
+ *     migration guide</a> for more details, including a script to help with the migration.
+ */
+@Deprecated
+public final class ParallelRangeDataSource implements DataSource {
+
+  /** {@link DataSource.Factory} for {@link ParallelRangeDataSource} instances. */
+  public static final class Factory implements DataSource.Factory {
+
+    private final DataSource.Factory upstreamFactory;
+
+    @Nullable private TransferListener transferListener;
+    private int chunkSize;
+    private int maxConnectionCount;
+
+    /**
+     * Creates an instance.
+     *
+     * @param upstreamFactory A {@link DataSource.Factory} that provides the upstream {@link
+     *     DataSource DataSources} used to load each range.
+     */
+    public Factory(DataSource.Factory upstreamFactory) {
+      this.upstreamFactory = upstreamFactory;
+      chunkSize = DEFAULT_CHUNK_SIZE;
+      maxConnectionCount = DEFAULT_MAX_CONNECTION_COUNT;
+    }
+
+    /**
+     * Sets the size of the ranges that are requested concurrently, in bytes.
+     *
+     * <p>The default is {@link #DEFAULT_CHUNK_SIZE}.
+     *
+     * @param chunkSize The size of the ranges that are requested concurrently, in bytes.
+     * @return This factory.
+     */
+    @CanIgnoreReturnValue
+    public Factory setChunkSize(int chunkSize) {
+      checkArgument(chunkSize > 0);
+      this.chunkSize = chunkSize;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of concurrent range requests, which is also the maximum number of
+     * chunks buffered in memory.
+     *
+     * <p>The default is {@link #DEFAULT_MAX_CONNECTION_COUNT}.
+     *
+     * @param maxConnectionCount The maximum number of concurrent range requests.
+     * @return This factory.
+     */
+    @CanIgnoreReturnValue
+    public Factory setMaxConnectionCount(int maxConnectionCount) {
+      checkArgument(maxConnectionCount > 0);
+      this.maxConnectionCount = maxConnectionCount;
+      return this;
+    }
+
+    /**
+     * Sets the {@link TransferListener} that will be used.
+     *
+     * <p>The default is {@code null}.
+     *
+     * <p>See {@link DataSource#addTransferListener(TransferListener)}.
+     *
+     * @param transferListener The listener that will be used.
+     * @return This factory.
+     */
+    @CanIgnoreReturnValue
+    public Factory setTransferListener(@Nullable TransferListener transferListener) {
+      this.transferListener = transferListener;
+      return this;
+    }
+
+    @Override
+    public ParallelRangeDataSource createDataSource() {
+      ParallelRangeDataSource dataSource =
+          new ParallelRangeDataSource(upstreamFactory, chunkSize, maxConnectionCount);
+      if (transferListener != null) {
+        dataSource.addTransferListener(transferListener);
+      }
+      return dataSource;
+    }
+  }
+
+  /** The default size of the ranges that are requested concurrently, in bytes. */
+  public static final int DEFAULT_CHUNK_SIZE = 512 * 1024;
+  /** The default maximum number of concurrent range requests. */
+  public static final int DEFAULT_MAX_CONNECTION_COUNT = 4;
+  /** The maximum number of times the request for a chunk is retried after it fails. */
+  public static final int MAX_CHUNK_RETRY_COUNT = 2;
+
+  private static final int INITIAL_CONNECTION_COUNT = 2;
+  /** The relative change in throughput that's considered an improvement or a drop. */
+  private static final float THROUGHPUT_CHANGE_THRESHOLD = 0.1f;
+
+  private final DataSource.Factory upstreamFactory;
+  private final int chunkSize;
+  private final int maxConnectionCount;
+  private final List<TransferListener> transferListeners;
+
+  @Nullable private DataSource directDataSource;
+  @Nullable private ChunkLoader chunkLoader;
+  @Nullable private Uri uri;
+  private Map<String, List<String>> responseHeaders;
+  private long directBytesRemaining;
+
+  private ParallelRangeDataSource(
+      DataSource.Factory upstreamFactory, int chunkSize, int maxConnectionCount) {
+    this.upstreamFactory = upstreamFactory;
+    this.chunkSize = chunkSize;
+    this.maxConnectionCount = maxConnectionCount;
+    transferListeners = new ArrayList<>();
+    responseHeaders = Collections.emptyMap();
+  }
+
+  @Override
+  public void addTransferListener(TransferListener transferListener) {
+    checkNotNull(transferListener);
+    if (!transferListeners.contains(transferListener)) {
+      transferListeners.add(transferListener);
+    }
+  }
+
+  @Override
+  public long open(DataSpec dataSpec) throws IOException {
+    directBytesRemaining = C.LENGTH_UNSET;
+    if (dataSpec.isFlagSet(DataSpec.FLAG_ALLOW_GZIP)
+        || (dataSpec.length != C.LENGTH_UNSET && dataSpec.length < 2L * chunkSize)) {
+      return openDirect(dataSpec);
+    }
+    // Request the first chunk only, so that its response doesn't overlap with the other chunks.
+    long firstChunkLength = openDirect(dataSpec.subrange(/* offset= */ 0, chunkSize));
+    long length =
+        dataSpec.length != C.LENGTH_UNSET
+            ? dataSpec.length
+            : getLengthFromContentRange(responseHeaders, dataSpec.position);
+    if (length == C.LENGTH_UNSET) {
+      if (firstChunkLength != C.LENGTH_UNSET && firstChunkLength < chunkSize) {
+        // The first chunk is the whole resource.
+        return firstChunkLength;
+      }
+      // Request the whole resource to determine its length.
+      closeDirectQuietly();
+      length = openDirect(dataSpec);
+      if (length == C.LENGTH_UNSET || length < 2L * chunkSize) {
+        return length;
+      }
+    } else if (length <= chunkSize) {
+      return length;
+    }
+    directBytesRemaining = chunkSize;
+    ChunkLoader chunkLoader =
+        new ChunkLoader(dataSpec, /* firstChunkOffset= */ chunkSize, /* endOffset= */ length);
+    this.chunkLoader = chunkLoader;
+    chunkLoader.scheduleChunks();
+    return length;
+  }
+
+  @Override
+  public int read(byte[] buffer, int offset, int length) throws IOException {
+    if (length == 0) {
+      return 0;
+    }
+    @Nullable DataSource directDataSource = this.directDataSource;
+    if (directDataSource != null) {
+      if (directBytesRemaining == C.LENGTH_UNSET) {
+        return directDataSource.read(buffer, offset, length);
+      }
+      int bytesRead =
+          directDataSource.read(buffer, offset, (int) min(length, directBytesRemaining));
+      if (bytesRead == C.RESULT_END_OF_INPUT) {
+        throw new DataSourceException(
+            new EOFException(), PlaybackException.ERROR_CODE_IO_UNSPECIFIED);
+      }
+      directBytesRemaining -= bytesRead;
+      if (directBytesRemaining == 0) {
+        // The rest of the resource is loaded by the chunk loader.
+        this.directDataSource = null;
+        DataSourceUtil.closeQuietly(directDataSource);
+      }
+      return bytesRead;
+    }
+    return chunkLoader != null ? chunkLoader.read(buffer, offset, length) : C.RESULT_END_OF_INPUT;
+  }
+
+  @Override
+  @Nullable
+  public Uri getUri() {
+    return uri;
+  }
+
+  @Override
+  public Map<String, List<String>> getResponseHeaders() {
+    return responseHeaders;
+  }
+
+  @Override
+  public void close() throws IOException {
+    uri = null;
+    responseHeaders = Collections.emptyMap();
+    if (chunkLoader != null) {
+      chunkLoader.release();
+      chunkLoader = null;
+    }
+    @Nullable DataSource directDataSource = this.directDataSource;
+    if (directDataSource != null) {
+      this.directDataSource = null;
+      directDataSource.close();
+    }
+  }
+
+  /** Opens the data source that's read directly, and returns the length returned by it. */
+  private long openDirect(DataSpec dataSpec) throws IOException {
+    DataSource directDataSource = createUpstreamDataSource();
+    this.directDataSource = directDataSource;
+    long length = directDataSource.open(dataSpec);
+    uri = directDataSource.getUri();
+    responseHeaders = directDataSource.getResponseHeaders();
+    return length;
+  }
+
+  private void closeDirectQuietly() {
+    @Nullable DataSource directDataSource = this.directDataSource;
+    if (directDataSource != null) {
+      this.directDataSource = null;
+      DataSourceUtil.closeQuietly(directDataSource);
+    }
+  }
+
+  private DataSource createUpstreamDataSource() {
+    DataSource dataSource = upstreamFactory.createDataSource();
+    for (int i = 0; i < transferListeners.size(); i++) {
+      dataSource.addTransferListener(transferListeners.get(i));
+    }
+    return dataSource;
+  }
+
+  /**
+   * Returns the length of the resource from a position, as determined by the {@code Content-Range}
+   * header of a response, or {@link C#LENGTH_UNSET} if unknown.
+   */
+  private static long getLengthFromContentRange(
+      Map<String, List<String>> responseHeaders, long position) {
+    for (Map.Entry<String, List<String>> header : responseHeaders.entrySet()) {
+      if (HttpHeaders.CONTENT_RANGE.equalsIgnoreCase(header.getKey())
+          && !header.getValue().isEmpty()) {
+        long documentSize = HttpUtil.getDocumentSize(header.getValue().get(0));
+        return documentSize == C.LENGTH_UNSET ? C.LENGTH_UNSET : documentSize - position;
+      }
+    }
+    return C.LENGTH_UNSET;
+  }
+
+  /**
+   * Adapts the number of concurrent requests to the throughput of the loads, measured over the time
+   * during which at least one load was active. Not thread safe.
+   */
+  /* package */ static final class ConnectionCountController {
+
+    private final int maxConnectionCount;
+
+    private int connectionCount;
+    private int activeLoadCount;
+    private long activeStartTimeMs;
+    private long sampleActiveTimeMs;
+    private long sampleBytesLoaded;
+    private int sampleChunkCount;
+    private long previousSampleBitsPerSecond;
+
+    public ConnectionCountController(int initialConnectionCount, int maxConnectionCount) {
+      this.maxConnectionCount = maxConnectionCount;
+      connectionCount = min(initialConnectionCount, maxConnectionCount);
+      previousSampleBitsPerSecond = C.RATE_UNSET_INT;
+    }
+
+    /** Returns the number of concurrent requests. */
+    public int getConnectionCount() {
+      return connectionCount;
+    }
+
+    /** Called when the load of a chunk starts. */
+    public void onLoadStarted(long nowMs) {
+      if (activeLoadCount++ == 0) {
+        activeStartTimeMs = nowMs;
+      }
+    }
+
+    /**
+     * Called when the load of a chunk ends.
+     *
+     * @param nowMs The current time, in milliseconds.
+     * @param bytesLoaded The number of bytes of the chunk, or {@link C#LENGTH_UNSET} if the load
+     *     failed.
+     */
+    public void onLoadEnded(long nowMs, long bytesLoaded) {
+      if (--activeLoadCount == 0) {
+        sampleActiveTimeMs += nowMs - activeStartTimeMs;
+      }
+      if (bytesLoaded == C.LENGTH_UNSET) {
+        return;
+      }
+      sampleBytesLoaded += bytesLoaded;
+      if (++sampleChunkCount >= connectionCount) {
+        updateConnectionCount(nowMs);
+      }
+    }
+
+    private void updateConnectionCount(long nowMs) {
+      long activeTimeMs = sampleActiveTimeMs;
+      if (activeLoadCount > 0) {
+        activeTimeMs += nowMs - activeStartTimeMs;
+        activeStartTimeMs = nowMs;
+      }
+      if (activeTimeMs > 0) {
+        long bitsPerSecond = sampleBytesLoaded * 8000 / activeTimeMs;
+        if (previousSampleBitsPerSecond == C.RATE_UNSET_INT
+            || bitsPerSecond > previousSampleBitsPerSecond * (1 + THROUGHPUT_CHANGE_THRESHOLD)) {
+          connectionCount = min(connectionCount + 1, maxConnectionCount);
+        } else if (bitsPerSecond < previousSampleBitsPerSecond * (1 - THROUGHPUT_CHANGE_THRESHOLD)
+            && connectionCount > 1) {
+          connectionCount--;
+        }
+        previousSampleBitsPerSecond = bitsPerSecond;
+      }
+      sampleActiveTimeMs = 0;
+      sampleBytesLoaded = 0;
+      sampleChunkCount = 0;
+    }
+  }
+
+  /** A range of the resource, loaded into memory by a background thread. */
+  private static final class Chunk {
+
+    public final long offset;
+    public final byte[] data;
+
+    /** The number of bytes loaded. Guarded by the {@link ChunkLoader}. */
+    public int bytesLoaded;
+    /** Whether loading has finished. Guarded by the {@link ChunkLoader}. */
+    public boolean loaded;
+    /** The error that caused loading to fail, if any. Guarded by the {@link ChunkLoader}. */
+    @Nullable public IOException error;
+    /** The number of bytes read by the consumer. Only accessed on the consumer thread. */
+    public int bytesRead;
+
+    public Chunk(long offset, int length) {
+      this.offset = offset;
+      data = new byte[length];
+    }
+  }
+
+  /** Loads chunks concurrently and hands them out in order. */
+  private final class ChunkLoader {
+
+    private final DataSpec dataSpec;
+    private final long endOffset;
+    private final ExecutorService executorService;
+    private final ArrayDeque<Chunk> chunks;
+    private final ConnectionCountController connectionCountController;
+
+    private long nextChunkOffset;
+    private boolean released;
+
+    public ChunkLoader(DataSpec dataSpec, long firstChunkOffset, long endOffset) {
+      this.dataSpec = dataSpec;
+      this.endOffset = endOffset;
+      nextChunkOffset = firstChunkOffset;
+      connectionCountController =
+          new ConnectionCountController(INITIAL_CONNECTION_COUNT, maxConnectionCount);
+      executorService =
+          Executors.newFixedThreadPool(
+              maxConnectionCount,
+              runnable -> new Thread(runnable, "ExoPlayer:ParallelRangeDataSource"));
+      chunks = new ArrayDeque<>();
+    }
+
+    /** Schedules chunks until as many chunks as concurrent requests are buffered or loading. */
+    public synchronized void scheduleChunks() {
+      while (!released
+          && chunks.size() < connectionCountController.getConnectionCount()
+          && nextChunkOffset < endOffset) {
+        Chunk chunk = new Chunk(nextChunkOffset, (int) min(chunkSize, endOffset - nextChunkOffset));
+        nextChunkOffset += chunk.data.length;
+        chunks.addLast(chunk);
+        executorService.execute(() -> load(chunk));
+      }
+    }
+
+    public synchronized int read(byte[] buffer, int offset, int length) throws IOException {
+      while (true) {
+        @Nullable Chunk chunk = chunks.peekFirst();
+        if (chunk == null) {
+          return C.RESULT_END_OF_INPUT;
+        }
+        if (chunk.bytesRead < chunk.bytesLoaded) {
+          int bytesRead = min(length, chunk.bytesLoaded - chunk.bytesRead);
+          System.arraycopy(chunk.data, chunk.bytesRead, buffer, offset, bytesRead);
+          chunk.bytesRead += bytesRead;
+          return bytesRead;
+        }
+        if (chunk.loaded) {
+          if (chunk.error != null) {
+            throw chunk.error;
+          }
+          chunks.removeFirst();
+          scheduleChunks();
+          continue;
+        }
+        try {
+          wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException();
+        }
+      }
+    }
+
+    public synchronized void release() {
+      released = true;
+      chunks.clear();
+      executorService.shutdownNow();
+      notifyAll();
+    }
+
+    private void load(Chunk chunk) {
+      onLoadStarted();
+      int bytesLoaded = 0;
+      @Nullable IOException error;
+      int retryCount = 0;
+      while (true) {
+        DataSource dataSource = createUpstreamDataSource();
+        try {
+          // Resume from where a failed request stopped.
+          dataSource.open(
+              dataSpec.subrange(chunk.offset + bytesLoaded, chunk.data.length - bytesLoaded));
+          while (bytesLoaded < chunk.data.length && !isReleased()) {
+            int bytesRead =
+                dataSource.read(chunk.data, bytesLoaded, chunk.data.length - bytesLoaded);
+            if (bytesRead == C.RESULT_END_OF_INPUT) {
+              throw new DataSourceException(
+                  new EOFException(), PlaybackException.ERROR_CODE_IO_UNSPECIFIED);
+            }
+            bytesLoaded += bytesRead;
+            onBytesLoaded(chunk, bytesLoaded);
+          }
+          error = null;
+          break;
+        } catch (IOException e) {
+          error = e;
+          if (e instanceof InterruptedIOException
+              || retryCount++ >= MAX_CHUNK_RETRY_COUNT
+              || isReleased()) {
+            break;
+          }
+        } finally {
+          DataSourceUtil.closeQuietly(dataSource);
+        }
+      }
+      onChunkLoaded(chunk, error);
+    }
+
+    private synchronized boolean isReleased() {
+      return released;
+    }
+
+    private synchronized void onLoadStarted() {
+      connectionCountController.onLoadStarted(Clock.DEFAULT.elapsedRealtime());
+    }
+
+    private synchronized void onBytesLoaded(Chunk chunk, int bytesLoaded) {
+      chunk.bytesLoaded = bytesLoaded;
+      notifyAll();
+    }
+
+    private synchronized void onChunkLoaded(Chunk chunk, @Nullable IOException error) {
+      chunk.loaded = true;
+      chunk.error = error;
+      notifyAll();
+      connectionCountController.onLoadEnded(
+          Clock.DEFAULT.elapsedRealtime(),
+          /* bytesLoaded= */ error == null ? chunk.data.length : C.LENGTH_UNSET);
+      if (error == null) {
+        scheduleChunks();
+      }
+    }
+  }
+}
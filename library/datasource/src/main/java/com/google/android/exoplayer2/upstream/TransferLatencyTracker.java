@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.upstream;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import com.google.android.exoplayer2.util.Clock;
+import java.util.HashMap;
+
+/**
+ * A {@link TransferListener} that records the connection latency and the time to first byte of
+ * network transfers in {@link LatencyHistogram LatencyHistograms}.
+ *
+ * <p>The connection latency is the time from {@link #onTransferInitializing} to {@link
+ * #onTransferStart}, which for HTTP is the time taken to connect and receive the response headers.
+ * The time to first byte is the time from {@link #onTransferInitializing} to the first call to
+ * {@link #onBytesTransferred}. Transfers that aren't through a network are ignored.
+ *
+ * <p>An instance may be shared by data sources used on different threads, for example by setting it
+ * on the {@link DefaultHttpDataSource.Factory} that creates the upstream data sources of the {@link
+ * com.google.android.exoplayer2.upstream.cache.CacheDataSource CacheDataSources} of downloads.
+ *
+ * @deprecated com.google.android.exoplayer2 is deprecated. Please migrate to androidx.media3 (which
+ *     contains the same ExoPlayer code). See <a
+ *     href="https://developer.android.com/guide/topics/media/media3/getting-started/migration-guide">the
+ *     migration guide</a> for more details, including a script to help with the migration.
+ */
+@Deprecated
+public final class TransferLatencyTracker implements TransferListener {
+
+  private final LatencyHistogram connectionLatencyHistogram;
+  private final LatencyHistogram timeToFirstByteHistogram;
+  private final Clock clock;
+
+  /** The initialization times, in nanoseconds, of the transfers that have no bytes yet. */
+  @GuardedBy("this")
+  private final HashMap<DataSource, Long> initializationTimesNs;
+
+  /** Creates an instance. */
+  public TransferLatencyTracker() {
+    this(Clock.DEFAULT);
+  }
+
+  @VisibleForTesting
+  /* package */ TransferLatencyTracker(Clock clock) {
+    this.clock = clock;
+    connectionLatencyHistogram = new LatencyHistogram();
+    timeToFirstByteHistogram = new LatencyHistogram();
+    initializationTimesNs = new HashMap<>();
+  }
+
+  /** Returns the histogram of connection latencies. */
+  public LatencyHistogram getConnectionLatencyHistogram() {
+    return connectionLatencyHistogram;
+  }
+
+  /** Returns the histogram of times to first byte. */
+  public LatencyHistogram getTimeToFirstByteHistogram() {
+    return timeToFirstByteHistogram;
+  }
+
+  @Override
+  public synchronized void onTransferInitializing(
+      DataSource source, DataSpec dataSpec, boolean isNetwork) {
+    if (isNetwork) {
+      initializationTimesNs.put(source, clock.nanoTime());
+    }
+  }
+
+  @Override
+  public synchronized void onTransferStart(
+      DataSource source, DataSpec dataSpec, boolean isNetwork) {
+    @Nullable Long initializationTimeNs = initializationTimesNs.get(source);
+    if (isNetwork && initializationTimeNs != null) {
+      connectionLatencyHistogram.add((clock.nanoTime() - initializationTimeNs) / 1000);
+    }
+  }
+
+  @Override
+  public void onBytesTransferred(
+      DataSource source, DataSpec dataSpec, boolean isNetwork, int bytesTransferred) {
+    if (!isNetwork) {
+      return;
+    }
+    synchronized (this) {
+      // Only the first call of each transfer finds an entry, so later calls don't allocate.
+      @Nullable Long initializationTimeNs = initializationTimesNs.remove(source);
+      if (initializationTimeNs != null) {
+        timeToFirstByteHistogram.add((clock.nanoTime() - initializationTimeNs) / 1000);
+      }
+    }
+  }
+
+  @Override
+  public synchronized void onTransferEnd(DataSource source, DataSpec dataSpec, boolean isNetwork) {
+    initializationTimesNs.remove(source);
+  }
+}
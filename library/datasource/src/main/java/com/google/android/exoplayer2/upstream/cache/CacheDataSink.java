@@ -23,6 +23,7 @@ import androidx.annotation.Nullable;
 import com.google.android.exoplayer2.C;
 import com.google.android.exoplayer2.upstream.DataSink;
 import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.LatencyHistogram;
 import com.google.android.exoplayer2.upstream.cache.Cache.CacheException;
 import com.google.android.exoplayer2.util.Assertions;
 import com.google.android.exoplayer2.util.Log;
@@ -55,6 +56,7 @@ public final class CacheDataSink implements DataSink {
     private @MonotonicNonNull Cache cache;
     private long fragmentSize;
     private int bufferSize;
+    @Nullable private LatencyHistogram writeLatencyHistogram;
 
     /** Creates an instance. */
     public Factory() {
@@ -110,9 +112,30 @@ public final class CacheDataSink implements DataSink {
       return this;
     }
 
+    /**
+     * Sets a {@link LatencyHistogram} to which the latencies of writes to cache files are added.
+     *
+     * <p>See {@link CacheDataSink#experimentalSetWriteLatencyHistogram(LatencyHistogram)}.
+     *
+     * <p>This method is experimental, and will be renamed or removed in a future release.
+     *
+     * <p>The default is {@code null}, which disables measuring the latencies.
+     *
+     * @param writeLatencyHistogram The {@link LatencyHistogram}, or {@code null}.
+     * @return This factory.
+     */
+    @CanIgnoreReturnValue
+    public Factory experimentalSetWriteLatencyHistogram(
+        @Nullable LatencyHistogram writeLatencyHistogram) {
+      this.writeLatencyHistogram = writeLatencyHistogram;
+      return this;
+    }
+
     @Override
     public DataSink createDataSink() {
-      return new CacheDataSink(checkNotNull(cache), fragmentSize, bufferSize);
+      CacheDataSink dataSink = new CacheDataSink(checkNotNull(cache), fragmentSize, bufferSize);
+      dataSink.experimentalSetWriteLatencyHistogram(writeLatencyHistogram);
+      return dataSink;
     }
   }
 
@@ -143,6 +166,7 @@ public final class CacheDataSink implements DataSink {
   private long outputStreamBytesWritten;
   private long dataSpecBytesWritten;
   private @MonotonicNonNull ReusableBufferedOutputStream bufferedOutputStream;
+  @Nullable private LatencyHistogram writeLatencyHistogram;
 
   /**
    * Constructs an instance using {@link #DEFAULT_BUFFER_SIZE}.
@@ -184,6 +208,23 @@ public final class CacheDataSink implements DataSink {
     this.bufferSize = bufferSize;
   }
 
+  /**
+   * Sets a {@link LatencyHistogram} to which the latencies of writes to cache files are added.
+   *
+   * <p>Only writes that reach the cache file are measured. When buffering is enabled, these are
+   * the writes of the buffer when it's full or when a cache file is closed, and not the copies of
+   * data into the buffer.
+   *
+   * <p>This method is experimental, and will be renamed or removed in a future release.
+   *
+   * @param writeLatencyHistogram The {@link LatencyHistogram}, or {@code null} to disable
+   *     measuring the latencies.
+   */
+  public void experimentalSetWriteLatencyHistogram(
+      @Nullable LatencyHistogram writeLatencyHistogram) {
+    this.writeLatencyHistogram = writeLatencyHistogram;
+  }
+
   @Override
   public void open(DataSpec dataSpec) throws CacheDataSinkException {
     checkNotNull(dataSpec.key);
@@ -248,7 +289,11 @@ public final class CacheDataSink implements DataSink {
     file =
         cache.startFile(
             castNonNull(dataSpec.key), dataSpec.position + dataSpecBytesWritten, length);
-    FileOutputStream underlyingFileOutputStream = new FileOutputStream(file);
+    OutputStream underlyingFileOutputStream = new FileOutputStream(file);
+    if (writeLatencyHistogram != null) {
+      underlyingFileOutputStream =
+          new LatencyMeasuringOutputStream(underlyingFileOutputStream, writeLatencyHistogram);
+    }
     if (bufferSize > 0) {
       if (bufferedOutputStream == null) {
         bufferedOutputStream =
@@ -284,4 +329,41 @@ public final class CacheDataSink implements DataSink {
       }
     }
   }
+
+  /** Adds the latency of each write to the wrapped stream to a {@link LatencyHistogram}. */
+  private static final class LatencyMeasuringOutputStream extends OutputStream {
+
+    private final OutputStream outputStream;
+    private final LatencyHistogram latencyHistogram;
+
+    public LatencyMeasuringOutputStream(
+        OutputStream outputStream, LatencyHistogram latencyHistogram) {
+      this.outputStream = outputStream;
+      this.latencyHistogram = latencyHistogram;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      long startTimeNs = System.nanoTime();
+      outputStream.write(b);
+      latencyHistogram.add((System.nanoTime() - startTimeNs) / 1000);
+    }
+
+    @Override
+    public void write(byte[] buffer, int offset, int length) throws IOException {
+      long startTimeNs = System.nanoTime();
+      outputStream.write(buffer, offset, length);
+      latencyHistogram.add((System.nanoTime() - startTimeNs) / 1000);
+    }
+
+    @Override
+    public void flush() throws IOException {
+      outputStream.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+      outputStream.close();
+    }
+  }
 }
@@ -0,0 +1,306 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.upstream.cache;
+
+import static com.google.android.exoplayer2.util.Assertions.checkArgument;
+
+import android.net.Uri;
+import androidx.annotation.Nullable;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.TransferListener;
+import com.google.android.exoplayer2.util.Log;
+import com.google.android.exoplayer2.util.Util;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Writes upcoming media segments into a {@link Cache} ahead of playback, using {@link
+ * CacheWriter}.
+ *
+ * <p>Chunk sources report the segments that follow the chunk they're loading with {@link
+ * #prefetch(Object, DataSpec, List)}. The segments are written to the cache on the {@link
+ * Executor}, one at a time, taking turns between the chunk sources. When the chunk sources load the
+ * segments through a {@link CacheDataSource} that reads from the same cache, the data is read from
+ * disk instead of the network. This provides a disk buffer beyond the in-memory buffer of the
+ * player.
+ *
+ * <p>If a chunk source starts loading a segment while it's being written, the write continues, and
+ * the chunk source takes it over by loading through a {@link DataSource} {@linkplain
+ * #createDataSource(DataSource) created} by the prefetcher. Such a data source waits for the write
+ * to finish before opening the segment, so that the {@link CacheDataSource} reads it from the cache
+ * rather than bypassing the cache while the write holds the lock on the cache span.
+ *
+ * <p>Segments that are already cached are skipped. A failure to write a segment is logged and
+ * otherwise ignored, since the chunk source loads the segment from the network in that case.
+ *
+ * @deprecated com.google.android.exoplayer2 is deprecated. Please migrate to androidx.media3 (which
+ *     contains the same ExoPlayer code). See <a
+ *     href="https://developer.android.com/guide/topics/media/media3/getting-started/migration-guide">the
+ *     migration guide</a> for more details, including a script to help with the migration.
+ */
+@Deprecated
+public final class SegmentPrefetcher {
+
+  /** The default number of upcoming segments that are prefetched per chunk source. */
+  public static final int DEFAULT_PREFETCH_SEGMENT_COUNT = 3;
+
+  private static final String TAG = "SegmentPrefetcher";
+
+  /** The number of upcoming segments that are prefetched per chunk source. */
+  public final int prefetchSegmentCount;
+
+  private final CacheDataSource.Factory cacheDataSourceFactory;
+  private final Executor executor;
+  private final byte[] temporaryBuffer;
+  private final LinkedHashMap<Object, ArrayDeque<DataSpec>> pendingDataSpecs;
+
+  @Nullable private Object activeOwner;
+  @Nullable private DataSpec activeDataSpec;
+  @Nullable private CacheWriter activeCacheWriter;
+  private boolean loading;
+  private boolean released;
+
+  /**
+   * Creates an instance that prefetches {@link #DEFAULT_PREFETCH_SEGMENT_COUNT} segments per chunk
+   * source.
+   *
+   * @param cacheDataSourceFactory A {@link CacheDataSource.Factory} for the cache into which
+   *     segments are written.
+   * @param executor An {@link Executor} used to write segments. Segments are written one at a time,
+   *     so a single thread is sufficient.
+   */
+  public SegmentPrefetcher(CacheDataSource.Factory cacheDataSourceFactory, Executor executor) {
+    this(cacheDataSourceFactory, executor, DEFAULT_PREFETCH_SEGMENT_COUNT);
+  }
+
+  /**
+   * Creates an instance.
+   *
+   * @param cacheDataSourceFactory A {@link CacheDataSource.Factory} for the cache into which
+   *     segments are written.
+   * @param executor An {@link Executor} used to write segments. Segments are written one at a time,
+   *     so a single thread is sufficient.
+   * @param prefetchSegmentCount The number of upcoming segments that are prefetched per chunk
+   *     source.
+   */
+  public SegmentPrefetcher(
+      CacheDataSource.Factory cacheDataSourceFactory, Executor executor, int prefetchSegmentCount) {
+    checkArgument(prefetchSegmentCount >= 0);
+    this.cacheDataSourceFactory = cacheDataSourceFactory;
+    this.executor = executor;
+    this.prefetchSegmentCount = prefetchSegmentCount;
+    temporaryBuffer = new byte[CacheWriter.DEFAULT_BUFFER_SIZE_BYTES];
+    pendingDataSpecs = new LinkedHashMap<>();
+  }
+
+  /**
+   * Returns a {@link DataSource} that loads data through an upstream {@link DataSource}, after
+   * waiting for any write of the same data by this prefetcher to finish.
+   *
+   * <p>Chunk sources should load their segments through such a data source, so that a segment
+   * that's being written when the chunk source starts loading it is read from the cache once it's
+   * written.
+   *
+   * @param upstream The upstream {@link DataSource}, which should be a {@link CacheDataSource} that
+   *     reads from the cache into which segments are written.
+   * @return The {@link DataSource}.
+   */
+  public DataSource createDataSource(DataSource upstream) {
+    return new PrefetchAwareDataSource(upstream);
+  }
+
+  /**
+   * Sets the upcoming segments of a chunk source, replacing any that were previously set by the
+   * same chunk source. A segment of the chunk source that's being written is canceled if it's
+   * neither upcoming nor being loaded by the chunk source.
+   *
+   * @param owner The chunk source.
+   * @param loadingDataSpec The {@link DataSpec} of the segment that the chunk source is starting to
+   *     load, or {@code null} if none. If the segment is being written, the write continues so that
+   *     the chunk source can read the segment from the cache.
+   * @param dataSpecs The {@link DataSpec DataSpecs} of the upcoming segments, in playback order. At
+   *     most {@link #prefetchSegmentCount} segments are prefetched.
+   */
+  public synchronized void prefetch(
+      Object owner, @Nullable DataSpec loadingDataSpec, List<DataSpec> dataSpecs) {
+    if (released) {
+      return;
+    }
+    boolean activeDataSpecNeeded =
+        loadingDataSpec != null && isSameData(loadingDataSpec, activeDataSpec);
+    ArrayDeque<DataSpec> ownerDataSpecs = new ArrayDeque<>();
+    for (int i = 0; i < dataSpecs.size() && i < prefetchSegmentCount; i++) {
+      DataSpec dataSpec = dataSpecs.get(i);
+      if (owner == activeOwner && isSameData(dataSpec, activeDataSpec)) {
+        activeDataSpecNeeded = true;
+      } else {
+        ownerDataSpecs.add(dataSpec);
+      }
+    }
+    if (owner == activeOwner && !activeDataSpecNeeded && activeCacheWriter != null) {
+      activeCacheWriter.cancel();
+    }
+    if (ownerDataSpecs.isEmpty()) {
+      pendingDataSpecs.remove(owner);
+    } else {
+      pendingDataSpecs.put(owner, ownerDataSpecs);
+      maybeStartLoading();
+    }
+  }
+
+  /**
+   * Cancels prefetching for a chunk source. Must be called when the chunk source is released.
+   *
+   * @param owner The chunk source.
+   */
+  public synchronized void cancel(Object owner) {
+    pendingDataSpecs.remove(owner);
+    if (owner == activeOwner && activeCacheWriter != null) {
+      activeCacheWriter.cancel();
+    }
+  }
+
+  /** Cancels all prefetching. The instance must not be used after it's released. */
+  public synchronized void release() {
+    released = true;
+    pendingDataSpecs.clear();
+    if (activeCacheWriter != null) {
+      activeCacheWriter.cancel();
+    }
+  }
+
+  private void maybeStartLoading() {
+    if (!loading) {
+      loading = true;
+      executor.execute(this::loadPendingDataSpecs);
+    }
+  }
+
+  private void loadPendingDataSpecs() {
+    while (true) {
+      DataSpec dataSpec;
+      CacheWriter cacheWriter;
+      synchronized (this) {
+        if (released || pendingDataSpecs.isEmpty()) {
+          loading = false;
+          return;
+        }
+        // Take the next segment of the first owner, and move the owner to the back so that owners
+        // take turns.
+        Iterator<Map.Entry<Object, ArrayDeque<DataSpec>>> iterator =
+            pendingDataSpecs.entrySet().iterator();
+        Map.Entry<Object, ArrayDeque<DataSpec>> ownerDataSpecs = iterator.next();
+        iterator.remove();
+        dataSpec = ownerDataSpecs.getValue().removeFirst();
+        if (!ownerDataSpecs.getValue().isEmpty()) {
+          pendingDataSpecs.put(ownerDataSpecs.getKey(), ownerDataSpecs.getValue());
+        }
+        cacheWriter =
+            new CacheWriter(
+                cacheDataSourceFactory.createDataSourceForDownloading(),
+                dataSpec,
+                temporaryBuffer,
+                /* progressListener= */ null);
+        activeOwner = ownerDataSpecs.getKey();
+        activeDataSpec = dataSpec;
+        activeCacheWriter = cacheWriter;
+      }
+      try {
+        cacheWriter.cache();
+      } catch (InterruptedIOException e) {
+        // Canceled.
+      } catch (IOException e) {
+        Log.w(TAG, "Failed to prefetch segment: " + dataSpec.uri, e);
+      }
+      synchronized (this) {
+        activeOwner = null;
+        activeDataSpec = null;
+        activeCacheWriter = null;
+        // Wake up loads that are waiting for the write to finish.
+        notifyAll();
+      }
+    }
+  }
+
+  /** Blocks while data that's the same as that of a {@link DataSpec} is being written. */
+  private synchronized void blockWhileWriting(DataSpec dataSpec) throws InterruptedIOException {
+    while (isSameData(dataSpec, activeDataSpec)) {
+      try {
+        wait();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException();
+      }
+    }
+  }
+
+  private static boolean isSameData(DataSpec dataSpec, @Nullable DataSpec other) {
+    return other != null
+        && dataSpec.uri.equals(other.uri)
+        && dataSpec.position == other.position
+        && dataSpec.length == other.length
+        && Util.areEqual(dataSpec.key, other.key);
+  }
+
+  /** Waits for writes of the same data by the prefetcher before opening the upstream source. */
+  private final class PrefetchAwareDataSource implements DataSource {
+
+    private final DataSource upstream;
+
+    public PrefetchAwareDataSource(DataSource upstream) {
+      this.upstream = upstream;
+    }
+
+    @Override
+    public void addTransferListener(TransferListener transferListener) {
+      upstream.addTransferListener(transferListener);
+    }
+
+    @Override
+    public long open(DataSpec dataSpec) throws IOException {
+      blockWhileWriting(dataSpec);
+      return upstream.open(dataSpec);
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+      return upstream.read(buffer, offset, length);
+    }
+
+    @Override
+    @Nullable
+    public Uri getUri() {
+      return upstream.getUri();
+    }
+
+    @Override
+    public Map<String, List<String>> getResponseHeaders() {
+      return upstream.getResponseHeaders();
+    }
+
+    @Override
+    public void close() throws IOException {
+      upstream.close();
+    }
+  }
+}
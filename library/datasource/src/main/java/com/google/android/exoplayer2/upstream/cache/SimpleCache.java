@@ -71,6 +71,7 @@ public final class SimpleCache implements Cache {
   private final CacheEvictor evictor;
   private final CachedContentIndex contentIndex;
   @Nullable private final CacheFileMetadataIndex fileIndex;
+  @Nullable private final SpanDeduplicator spanDeduplicator;
   private final HashMap<String, ArrayList<Listener>> listeners;
   private final Random random;
   private final boolean touchCacheSpans;
@@ -170,6 +171,45 @@ public final class SimpleCache implements Cache {
         /* preferLegacyIndex= */ false);
   }
 
+  /**
+   * Constructs the cache. The cache will delete any unrecognized files from the directory. Hence
+   * the directory cannot be used to store other files.
+   *
+   * <p>If {@code deduplicateSpans} is {@code true}, cached spans with identical content are stored
+   * only once, even if they belong to different keys. This is useful when the same media, such as
+   * intros or ads, is cached under many keys. Each committed span is hashed, and spans whose hash
+   * matches a previously cached span are replaced by a hard link to the same file. Deduplication
+   * requires API level 26 and a file system that supports hard links and reports link counts.
+   * Otherwise spans are stored as if {@code deduplicateSpans} were {@code false}.
+   *
+   * <p>{@link #getCacheSpace()} and the {@link CacheEvictor} count the logical size of the cached
+   * spans. A deduplicated span is counted for each key it's cached under, so the disk space used by
+   * the cache may be smaller than the reported cache space.
+   *
+   * @param cacheDir A dedicated cache directory.
+   * @param evictor The evictor to be used. For download use cases where cache eviction should not
+   *     occur, use {@link NoOpCacheEvictor}.
+   * @param databaseProvider Provides the database in which the cache index is stored.
+   * @param deduplicateSpans Whether to store cached spans with identical content only once.
+   */
+  public SimpleCache(
+      File cacheDir,
+      CacheEvictor evictor,
+      DatabaseProvider databaseProvider,
+      boolean deduplicateSpans) {
+    this(
+        cacheDir,
+        evictor,
+        new CachedContentIndex(
+            databaseProvider,
+            cacheDir,
+            /* legacyStorageSecretKey= */ null,
+            /* legacyStorageEncrypt= */ false,
+            /* preferLegacyStorage= */ false),
+        new CacheFileMetadataIndex(databaseProvider),
+        deduplicateSpans);
+  }
+
   /**
    * Constructs the cache. The cache will delete any unrecognized files from the cache directory.
    * Hence the directory cannot be used to store other files.
@@ -215,6 +255,15 @@ public final class SimpleCache implements Cache {
       CacheEvictor evictor,
       CachedContentIndex contentIndex,
       @Nullable CacheFileMetadataIndex fileIndex) {
+    this(cacheDir, evictor, contentIndex, fileIndex, /* deduplicateSpans= */ false);
+  }
+
+  /* package */ SimpleCache(
+      File cacheDir,
+      CacheEvictor evictor,
+      CachedContentIndex contentIndex,
+      @Nullable CacheFileMetadataIndex fileIndex,
+      boolean deduplicateSpans) {
     if (!lockFolder(cacheDir)) {
       throw new IllegalStateException("Another SimpleCache instance uses the folder: " + cacheDir);
     }
@@ -223,6 +272,8 @@ public final class SimpleCache implements Cache {
     this.evictor = evictor;
     this.contentIndex = contentIndex;
     this.fileIndex = fileIndex;
+    spanDeduplicator =
+        deduplicateSpans && Util.SDK_INT >= 26 ? new SpanDeduplicator(cacheDir) : null;
     listeners = new HashMap<>();
     random = new Random();
     touchCacheSpans = evictor.requiresCacheSpanTouches();
@@ -396,42 +447,54 @@ public final class SimpleCache implements Cache {
   }
 
   @Override
-  public synchronized void commitFile(File file, long length) throws CacheException {
-    Assertions.checkState(!released);
-    if (!file.exists()) {
-      return;
-    }
-    if (length == 0) {
-      file.delete();
-      return;
-    }
+  public void commitFile(File file, long length) throws CacheException {
+    // Hash the file before acquiring the lock, as hashing reads the whole file. The file isn't part
+    // of the cache yet, and the caller holds the lock on the span it belongs to.
+    @Nullable String hash = null;
+    if (Util.SDK_INT >= 26 && spanDeduplicator != null && length != 0 && file.exists()) {
+      hash = spanDeduplicator.computeHash(file);
+    }
+    synchronized (this) {
+      Assertions.checkState(!released);
+      if (!file.exists()) {
+        return;
+      }
+      if (length == 0) {
+        file.delete();
+        return;
+      }
 
-    SimpleCacheSpan span =
-        Assertions.checkNotNull(SimpleCacheSpan.createCacheEntry(file, length, contentIndex));
-    CachedContent cachedContent = Assertions.checkNotNull(contentIndex.get(span.key));
-    Assertions.checkState(cachedContent.isFullyLocked(span.position, span.length));
+      SimpleCacheSpan span =
+          Assertions.checkNotNull(SimpleCacheSpan.createCacheEntry(file, length, contentIndex));
+      CachedContent cachedContent = Assertions.checkNotNull(contentIndex.get(span.key));
+      Assertions.checkState(cachedContent.isFullyLocked(span.position, span.length));
 
-    // Check if the span conflicts with the set content length
-    long contentLength = ContentMetadata.getContentLength(cachedContent.getMetadata());
-    if (contentLength != C.LENGTH_UNSET) {
-      Assertions.checkState((span.position + span.length) <= contentLength);
-    }
+      // Check if the span conflicts with the set content length
+      long contentLength = ContentMetadata.getContentLength(cachedContent.getMetadata());
+      if (contentLength != C.LENGTH_UNSET) {
+        Assertions.checkState((span.position + span.length) <= contentLength);
+      }
 
-    if (fileIndex != null) {
-      String fileName = file.getName();
+      if (Util.SDK_INT >= 26 && spanDeduplicator != null && hash != null) {
+        spanDeduplicator.deduplicate(file, hash);
+      }
+
+      if (fileIndex != null) {
+        String fileName = file.getName();
+        try {
+          fileIndex.set(fileName, span.length, span.lastTouchTimestamp);
+        } catch (IOException e) {
+          throw new CacheException(e);
+        }
+      }
+      addSpan(span);
       try {
-        fileIndex.set(fileName, span.length, span.lastTouchTimestamp);
+        contentIndex.store();
       } catch (IOException e) {
         throw new CacheException(e);
       }
+      notifyAll();
     }
-    addSpan(span);
-    try {
-      contentIndex.store();
-    } catch (IOException e) {
-      throw new CacheException(e);
-    }
-    notifyAll();
   }
 
   @Override
@@ -565,6 +628,10 @@ public final class SimpleCache implements Cache {
       return;
     }
 
+    if (Util.SDK_INT >= 26 && spanDeduplicator != null) {
+      spanDeduplicator.initialize();
+    }
+
     contentIndex.removeEmpty();
     try {
       contentIndex.store();
@@ -599,6 +666,12 @@ public final class SimpleCache implements Cache {
     }
     for (File file : files) {
       String fileName = file.getName();
+      if (isRoot
+          && spanDeduplicator != null
+          && fileName.equals(SpanDeduplicator.BLOB_DIRECTORY_NAME)) {
+        // Skip the blob directory, which is loaded by the span deduplicator.
+        continue;
+      }
       if (isRoot && fileName.indexOf('.') == -1) {
         loadDirectory(file, /* isRoot= */ false, file.listFiles(), fileMetadata);
       } else {
@@ -699,9 +772,19 @@ public final class SimpleCache implements Cache {
 
   private void removeSpanInternal(CacheSpan span) {
     @Nullable CachedContent cachedContent = contentIndex.get(span.key);
-    if (cachedContent == null || !cachedContent.removeSpan(span)) {
+    if (cachedContent == null) {
       return;
     }
+    @Nullable File blob = null;
+    if (Util.SDK_INT >= 26 && spanDeduplicator != null && span.file != null) {
+      blob = spanDeduplicator.getBlob(span.file);
+    }
+    if (!cachedContent.removeSpan(span)) {
+      return;
+    }
+    if (Util.SDK_INT >= 26 && spanDeduplicator != null && blob != null) {
+      spanDeduplicator.maybeRemoveBlob(blob);
+    }
     totalSpace -= span.length;
     if (fileIndex != null) {
       String fileName = span.file.getName();
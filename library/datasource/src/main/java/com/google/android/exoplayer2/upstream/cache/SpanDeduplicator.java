@@ -0,0 +1,239 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.upstream.cache;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
+import com.google.android.exoplayer2.util.Log;
+import com.google.android.exoplayer2.util.Util;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+
+/**
+ * Stores identical cache span files only once.
+ *
+ * <p>Each committed span file is hashed. The first span file with a given hash is hard linked into
+ * the blob directory, under a name derived from the hash. Later span files with the same hash are
+ * replaced by hard links to that blob. Span files therefore remain regular files, and reading them
+ * is unchanged.
+ *
+ * <p>The file system counts the links to each blob. A blob is deleted once the last span file that
+ * links to it has been removed.
+ *
+ * <p>Deduplication is disabled if the file system of the cache directory doesn't report link
+ * counts.
+ *
+ * <p>Must only be accessed by the {@link SimpleCache} that owns it, while holding its lock, except
+ * for {@link #computeHash(File)}.
+ */
+@RequiresApi(26)
+/* package */ final class SpanDeduplicator {
+
+  /** The name of the blob directory, relative to the cache directory. */
+  public static final String BLOB_DIRECTORY_NAME = "blobs";
+
+  private static final String TAG = "SpanDeduplicator";
+  private static final String HASH_ALGORITHM = "SHA-256";
+  private static final String TEMP_FILE_SUFFIX = ".dedup";
+  private static final int BUFFER_SIZE_BYTES = 128 * 1024;
+
+  private final File cacheDirectory;
+  private final File blobDirectory;
+  private final HashMap<Object, File> blobsByFileKey;
+
+  private volatile boolean enabled;
+
+  /**
+   * Creates an instance.
+   *
+   * @param cacheDirectory The cache directory. The blob directory is created within it, so that
+   *     blobs and span files are on the same file system.
+   */
+  public SpanDeduplicator(File cacheDirectory) {
+    this.cacheDirectory = cacheDirectory;
+    blobDirectory = new File(cacheDirectory, BLOB_DIRECTORY_NAME);
+    blobsByFileKey = new HashMap<>();
+  }
+
+  /**
+   * Checks whether the file system reports link counts, and if so loads the blobs. Deletes blobs
+   * that are no longer linked to by any span file.
+   *
+   * <p>Must be called after the span files have been loaded.
+   */
+  public void initialize() {
+    try {
+      getLinkCount(cacheDirectory);
+    } catch (IOException e) {
+      // Without link counts, blobs can't be reference counted.
+      Log.w(TAG, "Link counts unavailable, span deduplication disabled", e);
+      return;
+    }
+    enabled = true;
+    @Nullable File[] blobs = blobDirectory.listFiles();
+    if (blobs == null) {
+      return;
+    }
+    for (File blob : blobs) {
+      try {
+        if (getLinkCount(blob) <= 1) {
+          blob.delete();
+        } else {
+          blobsByFileKey.put(getFileKey(blob), blob);
+        }
+      } catch (IOException e) {
+        Log.w(TAG, "Failed to load blob: " + blob, e);
+      }
+    }
+  }
+
+  /**
+   * Returns the hash of a span file that's about to be committed, or null if deduplication is
+   * disabled or the span file couldn't be read.
+   *
+   * <p>May be called without holding the lock of the {@link SimpleCache}, as the span file isn't
+   * part of the cache yet.
+   *
+   * @param spanFile The span file.
+   */
+  @Nullable
+  public String computeHash(File spanFile) {
+    if (!enabled) {
+      return null;
+    }
+    try {
+      return hashFile(spanFile);
+    } catch (IOException e) {
+      Log.w(TAG, "Failed to hash span file: " + spanFile, e);
+      return null;
+    }
+  }
+
+  /**
+   * Deduplicates a span file that's about to be committed. If a blob with the same content exists,
+   * the span file is replaced by a link to the blob. Else the span file becomes a new blob.
+   *
+   * <p>The path and content of the span file are unchanged. Failures are logged and leave the span
+   * file as it is.
+   *
+   * @param spanFile The span file.
+   * @param hash The hash of the span file, as returned by {@link #computeHash(File)}.
+   */
+  public void deduplicate(File spanFile, String hash) {
+    if (!enabled) {
+      return;
+    }
+    try {
+      File blob = new File(blobDirectory, hash);
+      if (!blob.exists()) {
+        if (!blobDirectory.exists() && !blobDirectory.mkdirs()) {
+          throw new IOException("Failed to create blob directory: " + blobDirectory);
+        }
+        Files.createLink(blob.toPath(), spanFile.toPath());
+        blobsByFileKey.put(getFileKey(blob), blob);
+      } else if (blob.length() == spanFile.length()) {
+        // Replace the span file atomically, so that it's never missing.
+        File tempFile = new File(spanFile.getPath() + TEMP_FILE_SUFFIX);
+        tempFile.delete();
+        Files.createLink(tempFile.toPath(), blob.toPath());
+        if (!tempFile.renameTo(spanFile)) {
+          tempFile.delete();
+          throw new IOException("Failed to replace span file: " + spanFile);
+        }
+      }
+    } catch (IOException e) {
+      Log.w(TAG, "Failed to deduplicate span file: " + spanFile, e);
+    }
+  }
+
+  /**
+   * Returns the blob a span file links to, or null if the span file doesn't link to a blob. Must be
+   * called before the span file is deleted.
+   *
+   * @param spanFile The span file.
+   */
+  @Nullable
+  public File getBlob(File spanFile) {
+    if (!enabled) {
+      return null;
+    }
+    try {
+      return blobsByFileKey.get(getFileKey(spanFile));
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Deletes a blob if no span file links to it anymore. Must be called after a span file that links
+   * to the blob has been deleted.
+   *
+   * @param blob The blob, as returned by {@link #getBlob(File)}.
+   */
+  public void maybeRemoveBlob(File blob) {
+    try {
+      if (getLinkCount(blob) <= 1) {
+        blobsByFileKey.remove(getFileKey(blob));
+        blob.delete();
+      }
+    } catch (IOException e) {
+      // The blob will be deleted next time the cache is initialized.
+      Log.w(TAG, "Failed to remove blob: " + blob, e);
+    }
+  }
+
+  private static String hashFile(File file) throws IOException {
+    MessageDigest messageDigest;
+    try {
+      messageDigest = MessageDigest.getInstance(HASH_ALGORITHM);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IOException(e);
+    }
+    byte[] buffer = new byte[BUFFER_SIZE_BYTES];
+    try (InputStream inputStream = new FileInputStream(file)) {
+      int bytesRead;
+      while ((bytesRead = inputStream.read(buffer)) != -1) {
+        messageDigest.update(buffer, /* offset= */ 0, bytesRead);
+      }
+    }
+    return Util.toHexString(messageDigest.digest());
+  }
+
+  private static int getLinkCount(File file) throws IOException {
+    try {
+      return (Integer) Files.getAttribute(file.toPath(), "unix:nlink");
+    } catch (UnsupportedOperationException | IllegalArgumentException e) {
+      throw new IOException(e);
+    }
+  }
+
+  /** Returns a key that identifies the underlying file, which is shared by all its hard links. */
+  private static Object getFileKey(File file) throws IOException {
+    @Nullable
+    Object fileKey = Files.readAttributes(file.toPath(), BasicFileAttributes.class).fileKey();
+    if (fileKey == null) {
+      throw new IOException("File key unavailable: " + file);
+    }
+    return fileKey;
+  }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.upstream;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.net.Uri;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.android.exoplayer2.testutil.FakeClock;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okio.Buffer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Unit tests for {@link HttpKeepAlivePolicy}. */
+@RunWith(AndroidJUnit4.class)
+public final class HttpKeepAlivePolicyTest {
+
+  private MockWebServer mockWebServer;
+
+  @Before
+  public void setUp() throws Exception {
+    mockWebServer = new MockWebServer();
+    mockWebServer.start();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    mockWebServer.shutdown();
+  }
+
+  @Test
+  public void onConnectionOpened_afterKeepAliveToSameHost_isLikelyReused() throws Exception {
+    HttpKeepAlivePolicy keepAlivePolicy = new HttpKeepAlivePolicy();
+
+    boolean firstReused = keepAlivePolicy.onConnectionOpened(new URL("https://example.test/a"));
+    assertThat(keepAlivePolicy.shouldKeepAlive(new URL("https://example.test/a"))).isTrue();
+    boolean otherHostReused = keepAlivePolicy.onConnectionOpened(new URL("https://other.test/a"));
+    boolean secondReused =
+        keepAlivePolicy.onConnectionOpened(new URL("https://example.test:443/b"));
+
+    assertThat(firstReused).isFalse();
+    assertThat(otherHostReused).isFalse();
+    assertThat(secondReused).isTrue();
+    assertThat(keepAlivePolicy.getEstimatedReusedConnectionCount()).isEqualTo(1);
+    assertThat(keepAlivePolicy.getEstimatedNewConnectionCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void onConnectionOpened_afterKeepAliveDuration_isNotLikelyReused() throws Exception {
+    FakeClock clock = new FakeClock(/* initialTimeMs= */ 0);
+    HttpKeepAlivePolicy keepAlivePolicy =
+        new HttpKeepAlivePolicy(
+            /* maxKeptAliveConnectionsPerHost= */ 5,
+            /* keepAliveDurationMs= */ 1000,
+            /* maxBytesToDrain= */ 1000,
+            clock);
+    URL url = new URL("https://example.test/a");
+
+    keepAlivePolicy.shouldKeepAlive(url);
+    clock.advanceTime(1001);
+
+    assertThat(keepAlivePolicy.getKeptAliveConnectionCount(url)).isEqualTo(0);
+    assertThat(keepAlivePolicy.onConnectionOpened(url)).isFalse();
+  }
+
+  @Test
+  public void shouldKeepAlive_withMaxKeptAliveConnectionsForHost_returnsFalse() throws Exception {
+    HttpKeepAlivePolicy keepAlivePolicy =
+        new HttpKeepAlivePolicy(
+            /* maxKeptAliveConnectionsPerHost= */ 2,
+            /* keepAliveDurationMs= */ 1000,
+            /* maxBytesToDrain= */ 1000);
+    URL url = new URL("https://example.test/a");
+
+    assertThat(keepAlivePolicy.shouldKeepAlive(url)).isTrue();
+    assertThat(keepAlivePolicy.shouldKeepAlive(url)).isTrue();
+    assertThat(keepAlivePolicy.shouldKeepAlive(url)).isFalse();
+    assertThat(keepAlivePolicy.getKeptAliveConnectionCount(url)).isEqualTo(2);
+  }
+
+  @Test
+  public void dataSourceClose_withFewBytesRemaining_drainsAndReusesConnection() throws Exception {
+    mockWebServer.enqueue(new MockResponse().setBody(new Buffer().write(new byte[1000])));
+    mockWebServer.enqueue(new MockResponse().setBody(new Buffer().write(new byte[1000])));
+    HttpKeepAlivePolicy keepAlivePolicy =
+        new HttpKeepAlivePolicy(
+            /* maxKeptAliveConnectionsPerHost= */ 5,
+            /* keepAliveDurationMs= */ 10_000,
+            /* maxBytesToDrain= */ 2000);
+    RecordingEventListener eventListener = new RecordingEventListener();
+    DefaultHttpDataSource dataSource =
+        new DefaultHttpDataSource.Factory()
+            .experimentalSetKeepAlivePolicy(keepAlivePolicy)
+            .setTransferListener(eventListener)
+            .createDataSource();
+    Uri uri = Uri.parse(mockWebServer.url("/segment").toString());
+
+    openReadAndClose(dataSource, uri, /* readLength= */ 10);
+    openReadAndClose(dataSource, uri, /* readLength= */ 10);
+
+    assertThat(mockWebServer.takeRequest().getSequenceNumber()).isEqualTo(0);
+    assertThat(mockWebServer.takeRequest().getSequenceNumber()).isEqualTo(1);
+    assertThat(eventListener.likelyReusedFlags).containsExactly(false, true).inOrder();
+  }
+
+  @Test
+  public void dataSourceClose_withManyBytesRemaining_disconnects() throws Exception {
+    mockWebServer.enqueue(new MockResponse().setBody(new Buffer().write(new byte[10_000])));
+    mockWebServer.enqueue(new MockResponse().setBody(new Buffer().write(new byte[10_000])));
+    HttpKeepAlivePolicy keepAlivePolicy =
+        new HttpKeepAlivePolicy(
+            /* maxKeptAliveConnectionsPerHost= */ 5,
+            /* keepAliveDurationMs= */ 10_000,
+            /* maxBytesToDrain= */ 100);
+    DefaultHttpDataSource dataSource =
+        new DefaultHttpDataSource.Factory()
+            .experimentalSetKeepAlivePolicy(keepAlivePolicy)
+            .createDataSource();
+    Uri uri = Uri.parse(mockWebServer.url("/segment").toString());
+
+    openReadAndClose(dataSource, uri, /* readLength= */ 10);
+    openReadAndClose(dataSource, uri, /* readLength= */ 10);
+
+    assertThat(mockWebServer.takeRequest().getSequenceNumber()).isEqualTo(0);
+    assertThat(mockWebServer.takeRequest().getSequenceNumber()).isEqualTo(0);
+    assertThat(keepAlivePolicy.getEstimatedReusedConnectionCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void dataSourceClose_afterRedirect_keepsConnectionToRedirectedHostAlive()
+      throws Exception {
+    MockWebServer redirectedWebServer = new MockWebServer();
+    redirectedWebServer.start();
+    try {
+      String redirectedUrl = redirectedWebServer.url("/segment").toString();
+      mockWebServer.enqueue(
+          new MockResponse().setResponseCode(302).setHeader("Location", redirectedUrl));
+      mockWebServer.enqueue(
+          new MockResponse().setResponseCode(302).setHeader("Location", redirectedUrl));
+      redirectedWebServer.enqueue(new MockResponse().setBody(new Buffer().write(new byte[1000])));
+      redirectedWebServer.enqueue(new MockResponse().setBody(new Buffer().write(new byte[1000])));
+      HttpKeepAlivePolicy keepAlivePolicy = new HttpKeepAlivePolicy();
+      RecordingEventListener eventListener = new RecordingEventListener();
+      DefaultHttpDataSource dataSource =
+          new DefaultHttpDataSource.Factory()
+              .experimentalSetKeepAlivePolicy(keepAlivePolicy)
+              .setTransferListener(eventListener)
+              .createDataSource();
+      Uri uri = Uri.parse(mockWebServer.url("/redirect").toString());
+
+      openReadAndClose(dataSource, uri, /* readLength= */ 10);
+
+      assertThat(keepAlivePolicy.getKeptAliveConnectionCount(new URL(redirectedUrl))).isEqualTo(1);
+      assertThat(keepAlivePolicy.getKeptAliveConnectionCount(mockWebServer.url("/").url()))
+          .isEqualTo(0);
+
+      openReadAndClose(dataSource, uri, /* readLength= */ 10);
+
+      assertThat(eventListener.likelyReusedFlags).containsExactly(false, true).inOrder();
+    } finally {
+      redirectedWebServer.shutdown();
+    }
+  }
+
+  private static void openReadAndClose(DataSource dataSource, Uri uri, int readLength)
+      throws Exception {
+    try {
+      dataSource.open(new DataSpec(uri));
+      dataSource.read(new byte[readLength], /* offset= */ 0, readLength);
+    } finally {
+      dataSource.close();
+    }
+  }
+
+  private static final class RecordingEventListener implements HttpKeepAlivePolicy.EventListener {
+
+    private final List<Boolean> likelyReusedFlags;
+
+    public RecordingEventListener() {
+      likelyReusedFlags = new ArrayList<>();
+    }
+
+    @Override
+    public void onConnectionOpened(
+        DataSource source, DataSpec dataSpec, boolean isNetwork, boolean likelyReused) {
+      likelyReusedFlags.add(likelyReused);
+    }
+
+    @Override
+    public void onTransferInitializing(DataSource source, DataSpec dataSpec, boolean isNetwork) {}
+
+    @Override
+    public void onTransferStart(DataSource source, DataSpec dataSpec, boolean isNetwork) {}
+
+    @Override
+    public void onBytesTransferred(
+        DataSource source, DataSpec dataSpec, boolean isNetwork, int bytesTransferred) {}
+
+    @Override
+    public void onTransferEnd(DataSource source, DataSpec dataSpec, boolean isNetwork) {}
+  }
+}
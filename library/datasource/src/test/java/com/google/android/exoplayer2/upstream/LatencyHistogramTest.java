@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.upstream;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.android.exoplayer2.C;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Unit tests for {@link LatencyHistogram}. */
+@RunWith(AndroidJUnit4.class)
+public class LatencyHistogramTest {
+
+  @Test
+  public void add_countsLatencyInExponentialBucket() {
+    LatencyHistogram histogram = new LatencyHistogram();
+
+    histogram.add(/* latencyUs= */ 0);
+    histogram.add(/* latencyUs= */ 1);
+    histogram.add(/* latencyUs= */ 5);
+    histogram.add(/* latencyUs= */ 7);
+    histogram.add(/* latencyUs= */ Long.MAX_VALUE);
+
+    assertThat(histogram.getCount()).isEqualTo(5L);
+    assertThat(histogram.getBucketCount(0)).isEqualTo(1L);
+    assertThat(histogram.getBucketCount(1)).isEqualTo(1L);
+    assertThat(histogram.getBucketCount(3)).isEqualTo(2L);
+    assertThat(histogram.getBucketCount(LatencyHistogram.BUCKET_COUNT - 1)).isEqualTo(1L);
+  }
+
+  @Test
+  public void getPercentileUpperBoundUs_returnsUpperBoundOfBucket() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 0; i < 9; i++) {
+      histogram.add(/* latencyUs= */ 1000);
+    }
+    histogram.add(/* latencyUs= */ 100_000);
+
+    assertThat(histogram.getPercentileUpperBoundUs(50)).isEqualTo(1024L);
+    assertThat(histogram.getPercentileUpperBoundUs(90)).isEqualTo(1024L);
+    assertThat(histogram.getPercentileUpperBoundUs(99)).isEqualTo(131_072L);
+  }
+
+  @Test
+  public void getMeanUs_returnsMeanOfLatencies() {
+    LatencyHistogram histogram = new LatencyHistogram();
+
+    histogram.add(/* latencyUs= */ 1000);
+    histogram.add(/* latencyUs= */ 3000);
+
+    assertThat(histogram.getMeanUs()).isEqualTo(2000L);
+  }
+
+  @Test
+  public void reset_removesAllLatencies() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.add(/* latencyUs= */ 1000);
+
+    histogram.reset();
+
+    assertThat(histogram.getCount()).isEqualTo(0L);
+    assertThat(histogram.getMeanUs()).isEqualTo(C.TIME_UNSET);
+    assertThat(histogram.getPercentileUpperBoundUs(50)).isEqualTo(C.TIME_UNSET);
+  }
+}
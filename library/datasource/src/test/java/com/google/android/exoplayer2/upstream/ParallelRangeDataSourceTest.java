@@ -0,0 +1,340 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.upstream;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.android.exoplayer2.util.Assertions.checkNotNull;
+import static org.junit.Assert.assertThrows;
+
+import android.net.Uri;
+import androidx.annotation.Nullable;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.android.exoplayer2.testutil.TestUtil;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Unit tests for {@link ParallelRangeDataSource}. */
+@RunWith(AndroidJUnit4.class)
+public final class ParallelRangeDataSourceTest {
+
+  private static final Uri URI = Uri.parse("test://resource");
+  private static final byte[] TEST_DATA = TestUtil.buildTestData(/* length= */ 1050);
+
+  @Test
+  public void read_resourceSpanningManyChunks_returnsDataInOrder() throws Exception {
+    TransferStartCounter transferStartCounter = new TransferStartCounter();
+    ParallelRangeDataSource dataSource =
+        new ParallelRangeDataSource.Factory(() -> new ByteArrayDataSource(TEST_DATA))
+            .setChunkSize(100)
+            .setMaxConnectionCount(3)
+            .setTransferListener(transferStartCounter)
+            .createDataSource();
+
+    long length =
+        dataSource.open(new DataSpec.Builder().setUri(URI).setLength(TEST_DATA.length).build());
+    byte[] data = DataSourceUtil.readToEnd(dataSource);
+    dataSource.close();
+
+    assertThat(length).isEqualTo(TEST_DATA.length);
+    assertThat(data).isEqualTo(TEST_DATA);
+    // One request for the first chunk, and one per remaining chunk.
+    assertThat(transferStartCounter.transferStartCount.get()).isEqualTo(11);
+    assertThat(transferStartCounter.startedDataSpecs.get(0).length).isEqualTo(100);
+  }
+
+  @Test
+  public void read_withLengthFromContentRange_requestsFirstChunkOnly() throws Exception {
+    TransferStartCounter transferStartCounter = new TransferStartCounter();
+    ParallelRangeDataSource dataSource =
+        new ParallelRangeDataSource.Factory(() -> new ContentRangeDataSource(TEST_DATA))
+            .setChunkSize(100)
+            .setTransferListener(transferStartCounter)
+            .createDataSource();
+
+    long length = dataSource.open(new DataSpec.Builder().setUri(URI).setPosition(50).build());
+    byte[] data = DataSourceUtil.readToEnd(dataSource);
+    dataSource.close();
+
+    assertThat(length).isEqualTo(TEST_DATA.length - 50);
+    assertThat(data).isEqualTo(Arrays.copyOfRange(TEST_DATA, 50, TEST_DATA.length));
+    // One request for the first chunk, and one per remaining chunk.
+    assertThat(transferStartCounter.transferStartCount.get()).isEqualTo(10);
+    assertThat(transferStartCounter.startedDataSpecs.get(0).length).isEqualTo(100);
+  }
+
+  @Test
+  public void read_withUnknownLength_requestsWholeResourceToDetermineLength() throws Exception {
+    TransferStartCounter transferStartCounter = new TransferStartCounter();
+    ParallelRangeDataSource dataSource =
+        new ParallelRangeDataSource.Factory(() -> new ByteArrayDataSource(TEST_DATA))
+            .setChunkSize(100)
+            .setTransferListener(transferStartCounter)
+            .createDataSource();
+
+    long length = dataSource.open(new DataSpec(URI));
+    byte[] data = DataSourceUtil.readToEnd(dataSource);
+    dataSource.close();
+
+    assertThat(length).isEqualTo(TEST_DATA.length);
+    assertThat(data).isEqualTo(TEST_DATA);
+    // The first chunk, the whole resource, and one request per remaining chunk.
+    assertThat(transferStartCounter.transferStartCount.get()).isEqualTo(12);
+  }
+
+  @Test
+  public void read_withPositionAndLength_returnsRequestedRange() throws Exception {
+    ParallelRangeDataSource dataSource =
+        new ParallelRangeDataSource.Factory(() -> new ByteArrayDataSource(TEST_DATA))
+            .setChunkSize(100)
+            .createDataSource();
+
+    long length =
+        dataSource.open(new DataSpec.Builder().setUri(URI).setPosition(150).setLength(800).build());
+    byte[] data = DataSourceUtil.readToEnd(dataSource);
+    dataSource.close();
+
+    assertThat(length).isEqualTo(800);
+    assertThat(data).isEqualTo(Arrays.copyOfRange(TEST_DATA, 150, 950));
+  }
+
+  @Test
+  public void read_resourceShorterThanTwoChunks_usesSingleRequest() throws Exception {
+    TransferStartCounter transferStartCounter = new TransferStartCounter();
+    ParallelRangeDataSource dataSource =
+        new ParallelRangeDataSource.Factory(() -> new ByteArrayDataSource(TEST_DATA))
+            .setChunkSize(1000)
+            .setTransferListener(transferStartCounter)
+            .createDataSource();
+
+    dataSource.open(new DataSpec.Builder().setUri(URI).setLength(TEST_DATA.length).build());
+    byte[] data = DataSourceUtil.readToEnd(dataSource);
+    dataSource.close();
+
+    assertThat(data).isEqualTo(TEST_DATA);
+    assertThat(transferStartCounter.transferStartCount.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void read_resourceShorterThanFirstChunk_usesSingleRequest() throws Exception {
+    TransferStartCounter transferStartCounter = new TransferStartCounter();
+    ParallelRangeDataSource dataSource =
+        new ParallelRangeDataSource.Factory(() -> new ByteArrayDataSource(TEST_DATA))
+            .setChunkSize(2000)
+            .setTransferListener(transferStartCounter)
+            .createDataSource();
+
+    long length = dataSource.open(new DataSpec(URI));
+    byte[] data = DataSourceUtil.readToEnd(dataSource);
+    dataSource.close();
+
+    assertThat(length).isEqualTo(TEST_DATA.length);
+    assertThat(data).isEqualTo(TEST_DATA);
+    assertThat(transferStartCounter.transferStartCount.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void read_withFailingRangeRequest_throwsWhenReachingRange() throws Exception {
+    DataSource.Factory upstreamFactory =
+        new ResolvingDataSource.Factory(
+            () -> new ByteArrayDataSource(TEST_DATA),
+            dataSpec -> {
+              if (dataSpec.position == 500) {
+                throw new IOException("Range failed");
+              }
+              return dataSpec;
+            });
+    ParallelRangeDataSource dataSource =
+        new ParallelRangeDataSource.Factory(upstreamFactory).setChunkSize(100).createDataSource();
+
+    dataSource.open(new DataSpec(URI));
+    byte[] data = DataSourceUtil.readExactly(dataSource, /* length= */ 500);
+    IOException exception =
+        assertThrows(IOException.class, () -> dataSource.read(new byte[1], 0, 1));
+    dataSource.close();
+
+    assertThat(data).isEqualTo(Arrays.copyOf(TEST_DATA, 500));
+    assertThat(exception).hasMessageThat().isEqualTo("Range failed");
+  }
+
+  @Test
+  public void read_withRangeRequestFailingOnce_retriesRange() throws Exception {
+    AtomicInteger failureCount = new AtomicInteger();
+    DataSource.Factory upstreamFactory =
+        new ResolvingDataSource.Factory(
+            () -> new ByteArrayDataSource(TEST_DATA),
+            dataSpec -> {
+              if (dataSpec.position == 500 && failureCount.getAndIncrement() == 0) {
+                throw new IOException("Range failed");
+              }
+              return dataSpec;
+            });
+    ParallelRangeDataSource dataSource =
+        new ParallelRangeDataSource.Factory(upstreamFactory).setChunkSize(100).createDataSource();
+
+    dataSource.open(new DataSpec.Builder().setUri(URI).setLength(TEST_DATA.length).build());
+    byte[] data = DataSourceUtil.readToEnd(dataSource);
+    dataSource.close();
+
+    assertThat(data).isEqualTo(TEST_DATA);
+    assertThat(failureCount.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void connectionCountController_throughputImproves_increasesConnectionCount() {
+    ParallelRangeDataSource.ConnectionCountController controller =
+        new ParallelRangeDataSource.ConnectionCountController(
+            /* initialConnectionCount= */ 2, /* maxConnectionCount= */ 4);
+
+    // 2 chunks of 1000 bytes in 1s, which is the first sample.
+    loadChunks(controller, /* count= */ 2, /* startTimeMs= */ 0, /* durationMs= */ 1000);
+    int connectionCountAfterFirstSample = controller.getConnectionCount();
+    // 3 chunks of 1000 bytes in 1s, which is an improvement.
+    loadChunks(controller, /* count= */ 3, /* startTimeMs= */ 1000, /* durationMs= */ 1000);
+
+    assertThat(connectionCountAfterFirstSample).isEqualTo(3);
+    assertThat(controller.getConnectionCount()).isEqualTo(4);
+  }
+
+  @Test
+  public void connectionCountController_throughputDrops_decreasesConnectionCount() {
+    ParallelRangeDataSource.ConnectionCountController controller =
+        new ParallelRangeDataSource.ConnectionCountController(
+            /* initialConnectionCount= */ 2, /* maxConnectionCount= */ 4);
+
+    loadChunks(controller, /* count= */ 2, /* startTimeMs= */ 0, /* durationMs= */ 1000);
+    // 3 chunks of 1000 bytes in 3s, which is a drop.
+    loadChunks(controller, /* count= */ 3, /* startTimeMs= */ 1000, /* durationMs= */ 3000);
+
+    assertThat(controller.getConnectionCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void connectionCountController_idleBetweenLoads_excludesIdleTime() {
+    ParallelRangeDataSource.ConnectionCountController controller =
+        new ParallelRangeDataSource.ConnectionCountController(
+            /* initialConnectionCount= */ 1, /* maxConnectionCount= */ 4);
+
+    loadChunks(controller, /* count= */ 1, /* startTimeMs= */ 0, /* durationMs= */ 1000);
+    // Same throughput, with a long idle period while the consumer catches up.
+    loadChunks(controller, /* count= */ 1, /* startTimeMs= */ 1000, /* durationMs= */ 1000);
+    loadChunks(controller, /* count= */ 1, /* startTimeMs= */ 10_000, /* durationMs= */ 1000);
+
+    assertThat(controller.getConnectionCount()).isEqualTo(2);
+  }
+
+  /** Loads chunks of 1000 bytes concurrently, all starting and ending at the same time. */
+  private static void loadChunks(
+      ParallelRangeDataSource.ConnectionCountController controller,
+      int count,
+      long startTimeMs,
+      long durationMs) {
+    for (int i = 0; i < count; i++) {
+      controller.onLoadStarted(startTimeMs);
+    }
+    for (int i = 0; i < count; i++) {
+      controller.onLoadEnded(startTimeMs + durationMs, /* bytesLoaded= */ 1000);
+    }
+  }
+
+  /** A {@link DataSource} that reports the length of its data in a {@code Content-Range} header. */
+  private static final class ContentRangeDataSource extends BaseDataSource {
+
+    private final ByteArrayDataSource byteArrayDataSource;
+    private final long documentSize;
+
+    @Nullable private DataSpec dataSpec;
+
+    public ContentRangeDataSource(byte[] data) {
+      super(/* isNetwork= */ false);
+      byteArrayDataSource = new ByteArrayDataSource(data);
+      documentSize = data.length;
+    }
+
+    @Override
+    public long open(DataSpec dataSpec) throws IOException {
+      this.dataSpec = dataSpec;
+      transferInitializing(dataSpec);
+      long length = byteArrayDataSource.open(dataSpec);
+      transferStarted(dataSpec);
+      return length;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+      return byteArrayDataSource.read(buffer, offset, length);
+    }
+
+    @Override
+    @Nullable
+    public Uri getUri() {
+      return byteArrayDataSource.getUri();
+    }
+
+    @Override
+    public Map<String, List<String>> getResponseHeaders() {
+      DataSpec dataSpec = checkNotNull(this.dataSpec);
+      return ImmutableMap.of(
+          "content-range",
+          ImmutableList.of(
+              "bytes " + dataSpec.position + "-" + (documentSize - 1) + "/" + documentSize));
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (dataSpec != null) {
+        dataSpec = null;
+        transferEnded();
+      }
+      byteArrayDataSource.close();
+    }
+  }
+
+  private static final class TransferStartCounter implements TransferListener {
+
+    private final AtomicInteger transferStartCount;
+    private final List<DataSpec> startedDataSpecs;
+
+    public TransferStartCounter() {
+      transferStartCount = new AtomicInteger();
+      startedDataSpecs = Collections.synchronizedList(new ArrayList<>());
+    }
+
+    @Override
+    public void onTransferInitializing(DataSource source, DataSpec dataSpec, boolean isNetwork) {}
+
+    @Override
+    public void onTransferStart(DataSource source, DataSpec dataSpec, boolean isNetwork) {
+      transferStartCount.incrementAndGet();
+      startedDataSpecs.add(dataSpec);
+    }
+
+    @Override
+    public void onBytesTransferred(
+        DataSource source, DataSpec dataSpec, boolean isNetwork, int bytesTransferred) {}
+
+    @Override
+    public void onTransferEnd(DataSource source, DataSpec dataSpec, boolean isNetwork) {}
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.upstream;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.net.Uri;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.android.exoplayer2.testutil.FakeClock;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Unit tests for {@link TransferLatencyTracker}. */
+@RunWith(AndroidJUnit4.class)
+public class TransferLatencyTrackerTest {
+
+  private static final DataSpec DATA_SPEC = new DataSpec(Uri.parse("https://example.com/media"));
+
+  @Test
+  public void networkTransfer_recordsConnectionLatencyAndTimeToFirstByte() {
+    FakeClock fakeClock = new FakeClock(/* initialTimeMs= */ 0);
+    TransferLatencyTracker tracker = new TransferLatencyTracker(fakeClock);
+    DataSource dataSource = new ByteArrayDataSource(new byte[0]);
+
+    tracker.onTransferInitializing(dataSource, DATA_SPEC, /* isNetwork= */ true);
+    fakeClock.advanceTime(100);
+    tracker.onTransferStart(dataSource, DATA_SPEC, /* isNetwork= */ true);
+    fakeClock.advanceTime(50);
+    tracker.onBytesTransferred(
+        dataSource, DATA_SPEC, /* isNetwork= */ true, /* bytesTransferred= */ 10);
+    fakeClock.advanceTime(50);
+    tracker.onBytesTransferred(
+        dataSource, DATA_SPEC, /* isNetwork= */ true, /* bytesTransferred= */ 10);
+    tracker.onTransferEnd(dataSource, DATA_SPEC, /* isNetwork= */ true);
+
+    assertThat(tracker.getConnectionLatencyHistogram().getCount()).isEqualTo(1L);
+    assertThat(tracker.getConnectionLatencyHistogram().getMeanUs()).isEqualTo(100_000L);
+    assertThat(tracker.getTimeToFirstByteHistogram().getCount()).isEqualTo(1L);
+    assertThat(tracker.getTimeToFirstByteHistogram().getMeanUs()).isEqualTo(150_000L);
+  }
+
+  @Test
+  public void localTransfer_isIgnored() {
+    TransferLatencyTracker tracker =
+        new TransferLatencyTracker(new FakeClock(/* initialTimeMs= */ 0));
+    DataSource dataSource = new ByteArrayDataSource(new byte[0]);
+
+    tracker.onTransferInitializing(dataSource, DATA_SPEC, /* isNetwork= */ false);
+    tracker.onTransferStart(dataSource, DATA_SPEC, /* isNetwork= */ false);
+    tracker.onBytesTransferred(
+        dataSource, DATA_SPEC, /* isNetwork= */ false, /* bytesTransferred= */ 10);
+    tracker.onTransferEnd(dataSource, DATA_SPEC, /* isNetwork= */ false);
+
+    assertThat(tracker.getConnectionLatencyHistogram().getCount()).isEqualTo(0L);
+    assertThat(tracker.getTimeToFirstByteHistogram().getCount()).isEqualTo(0L);
+  }
+}
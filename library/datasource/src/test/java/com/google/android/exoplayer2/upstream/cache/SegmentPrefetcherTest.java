@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.upstream.cache;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.net.Uri;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.android.exoplayer2.testutil.FakeDataSet;
+import com.google.android.exoplayer2.testutil.FakeDataSource;
+import com.google.android.exoplayer2.testutil.TestUtil;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSourceUtil;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.ResolvingDataSource;
+import com.google.android.exoplayer2.util.ConditionVariable;
+import com.google.android.exoplayer2.util.Util;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.MoreExecutors;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Unit tests for {@link SegmentPrefetcher}. */
+@RunWith(AndroidJUnit4.class)
+public final class SegmentPrefetcherTest {
+
+  private File tempFolder;
+  private SimpleCache cache;
+  private CacheDataSource.Factory cacheDataSourceFactory;
+
+  @Before
+  public void setUp() throws Exception {
+    tempFolder =
+        Util.createTempDirectory(ApplicationProvider.getApplicationContext(), "ExoPlayerTest");
+    cache =
+        new SimpleCache(tempFolder, new NoOpCacheEvictor(), TestUtil.getInMemoryDatabaseProvider());
+    FakeDataSet fakeDataSet =
+        new FakeDataSet()
+            .setRandomData("segment1", 100)
+            .setRandomData("segment2", 100)
+            .setRandomData("segment3", 100);
+    cacheDataSourceFactory =
+        new CacheDataSource.Factory()
+            .setCache(cache)
+            .setUpstreamDataSourceFactory(new FakeDataSource.Factory().setFakeDataSet(fakeDataSet));
+  }
+
+  @After
+  public void tearDown() {
+    cache.release();
+    Util.recursiveDelete(tempFolder);
+  }
+
+  @Test
+  public void prefetch_writesUpToPrefetchSegmentCountSegmentsToCache() {
+    SegmentPrefetcher segmentPrefetcher =
+        new SegmentPrefetcher(
+            cacheDataSourceFactory,
+            MoreExecutors.directExecutor(),
+            /* prefetchSegmentCount= */ 2);
+
+    segmentPrefetcher.prefetch(
+        /* owner= */ this,
+        /* loadingDataSpec= */ null,
+        ImmutableList.of(
+            createDataSpec("segment1"), createDataSpec("segment2"), createDataSpec("segment3")));
+
+    assertThat(cache.getKeys()).containsExactly("segment1", "segment2");
+    assertThat(cache.getCachedBytes("segment1", /* position= */ 0, /* length= */ 100))
+        .isEqualTo(100);
+  }
+
+  @Test
+  public void prefetch_withFailingSegment_writesFollowingSegments() {
+    SegmentPrefetcher segmentPrefetcher =
+        new SegmentPrefetcher(cacheDataSourceFactory, MoreExecutors.directExecutor());
+
+    segmentPrefetcher.prefetch(
+        /* owner= */ this,
+        /* loadingDataSpec= */ null,
+        ImmutableList.of(createDataSpec("missingSegment"), createDataSpec("segment2")));
+
+    assertThat(cache.getKeys()).containsExactly("segment2");
+  }
+
+  @Test
+  public void prefetch_afterRelease_doesNothing() {
+    SegmentPrefetcher segmentPrefetcher =
+        new SegmentPrefetcher(cacheDataSourceFactory, MoreExecutors.directExecutor());
+
+    segmentPrefetcher.release();
+    segmentPrefetcher.prefetch(
+        /* owner= */ this,
+        /* loadingDataSpec= */ null,
+        ImmutableList.of(createDataSpec("segment1")));
+
+    assertThat(cache.getKeys()).isEmpty();
+  }
+
+  @Test
+  public void prefetch_withLoadingSegmentBeingWritten_letsLoadReadSegmentFromCache()
+      throws Exception {
+    AtomicInteger segment1OpenCount = new AtomicInteger();
+    ConditionVariable writeStarted = new ConditionVariable();
+    ConditionVariable allowWrite = new ConditionVariable();
+    FakeDataSet fakeDataSet = new FakeDataSet().setRandomData("segment1", 100);
+    CacheDataSource.Factory blockingCacheDataSourceFactory =
+        new CacheDataSource.Factory()
+            .setCache(cache)
+            .setUpstreamDataSourceFactory(
+                new ResolvingDataSource.Factory(
+                    new FakeDataSource.Factory().setFakeDataSet(fakeDataSet),
+                    dataSpec -> {
+                      segment1OpenCount.incrementAndGet();
+                      writeStarted.open();
+                      try {
+                        allowWrite.block();
+                      } catch (InterruptedException e) {
+                        throw new InterruptedIOException();
+                      }
+                      return dataSpec;
+                    }));
+    ExecutorService executorService = Executors.newSingleThreadExecutor();
+    SegmentPrefetcher segmentPrefetcher =
+        new SegmentPrefetcher(blockingCacheDataSourceFactory, executorService);
+    DataSource dataSource =
+        segmentPrefetcher.createDataSource(blockingCacheDataSourceFactory.createDataSource());
+    AtomicReference<byte[]> loadedData = new AtomicReference<>();
+    Thread loadThread =
+        new Thread(
+            () -> {
+              try {
+                dataSource.open(createDataSpec("segment1"));
+                loadedData.set(DataSourceUtil.readToEnd(dataSource));
+                dataSource.close();
+              } catch (IOException e) {
+                throw new IllegalStateException(e);
+              }
+            });
+
+    segmentPrefetcher.prefetch(
+        /* owner= */ this,
+        /* loadingDataSpec= */ null,
+        ImmutableList.of(createDataSpec("segment1")));
+    writeStarted.block();
+    // The chunk source starts loading the segment that's being written.
+    segmentPrefetcher.prefetch(
+        /* owner= */ this, createDataSpec("segment1"), /* dataSpecs= */ ImmutableList.of());
+    loadThread.start();
+    allowWrite.open();
+    loadThread.join();
+    executorService.shutdown();
+
+    assertThat(loadedData.get()).isEqualTo(fakeDataSet.getData("segment1").getData());
+    assertThat(segment1OpenCount.get()).isEqualTo(1);
+  }
+
+  private static DataSpec createDataSpec(String uri) {
+    return new DataSpec(Uri.parse(uri));
+  }
+}
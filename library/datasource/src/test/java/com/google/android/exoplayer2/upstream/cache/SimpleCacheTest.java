@@ -32,6 +32,8 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.NavigableSet;
 import java.util.Random;
 import org.junit.After;
@@ -587,6 +589,67 @@ public class SimpleCacheTest {
         .isEqualTo(10);
   }
 
+  @Test
+  public void commitFile_withDeduplication_storesIdenticalSpansOnce() throws Exception {
+    SimpleCache simpleCache = getSimpleCacheWithDeduplication();
+    byte[] data = TestUtil.buildTestData(/* length= */ 15);
+
+    addCache(simpleCache, KEY_1, data);
+    addCache(simpleCache, KEY_2, data);
+
+    File file1 = simpleCache.getCachedSpans(KEY_1).first().file;
+    File file2 = simpleCache.getCachedSpans(KEY_2).first().file;
+    assertThat(getFileKey(file2)).isEqualTo(getFileKey(file1));
+    assertThat(Files.readAllBytes(file1.toPath())).isEqualTo(data);
+    assertThat(Files.readAllBytes(file2.toPath())).isEqualTo(data);
+  }
+
+  @Test
+  public void commitFile_withDeduplicationAndDifferentContent_storesSpansSeparately()
+      throws Exception {
+    SimpleCache simpleCache = getSimpleCacheWithDeduplication();
+
+    addCache(simpleCache, KEY_1, TestUtil.buildTestData(/* length= */ 15, /* seed= */ 1));
+    addCache(simpleCache, KEY_2, TestUtil.buildTestData(/* length= */ 15, /* seed= */ 2));
+
+    File file1 = simpleCache.getCachedSpans(KEY_1).first().file;
+    File file2 = simpleCache.getCachedSpans(KEY_2).first().file;
+    assertThat(getFileKey(file2)).isNotEqualTo(getFileKey(file1));
+  }
+
+  @Test
+  public void removeResource_withDeduplication_removesBlobWhenLastSpanIsRemoved()
+      throws Exception {
+    SimpleCache simpleCache = getSimpleCacheWithDeduplication();
+    byte[] data = TestUtil.buildTestData(/* length= */ 15);
+    addCache(simpleCache, KEY_1, data);
+    addCache(simpleCache, KEY_2, data);
+    File blobDirectory = new File(cacheDir, SpanDeduplicator.BLOB_DIRECTORY_NAME);
+
+    simpleCache.removeResource(KEY_1);
+    File file2 = simpleCache.getCachedSpans(KEY_2).first().file;
+    assertThat(Files.readAllBytes(file2.toPath())).isEqualTo(data);
+    assertThat(blobDirectory.listFiles()).hasLength(1);
+
+    simpleCache.removeResource(KEY_2);
+    assertThat(blobDirectory.listFiles()).isEmpty();
+  }
+
+  @Test
+  public void newInstance_withDeduplication_deduplicatesAgainstExistingSpans() throws Exception {
+    SimpleCache simpleCache = getSimpleCacheWithDeduplication();
+    byte[] data = TestUtil.buildTestData(/* length= */ 15);
+    addCache(simpleCache, KEY_1, data);
+    simpleCache.release();
+
+    simpleCache = getSimpleCacheWithDeduplication();
+    addCache(simpleCache, KEY_2, data);
+
+    File file1 = simpleCache.getCachedSpans(KEY_1).first().file;
+    File file2 = simpleCache.getCachedSpans(KEY_2).first().file;
+    assertThat(getFileKey(file2)).isEqualTo(getFileKey(file1));
+  }
+
   // Regression test for https://github.com/google/ExoPlayer/issues/3260.
   @Test
   public void exceptionDuringIndexStore_doesNotPreventEviction() throws Exception {
@@ -633,6 +696,11 @@ public class SimpleCacheTest {
     return new SimpleCache(cacheDir, new NoOpCacheEvictor(), databaseProvider);
   }
 
+  private SimpleCache getSimpleCacheWithDeduplication() {
+    return new SimpleCache(
+        cacheDir, new NoOpCacheEvictor(), databaseProvider, /* deduplicateSpans= */ true);
+  }
+
   private static void addCache(SimpleCache simpleCache, String key, int position, int length)
       throws IOException {
     File file = simpleCache.startFile(key, position, length);
@@ -642,6 +710,21 @@ public class SimpleCacheTest {
     simpleCache.commitFile(file, length);
   }
 
+  private static void addCache(SimpleCache simpleCache, String key, byte[] data)
+      throws IOException, InterruptedException {
+    CacheSpan holeSpan = simpleCache.startReadWrite(key, /* position= */ 0, data.length);
+    File file = simpleCache.startFile(key, /* position= */ 0, data.length);
+    try (FileOutputStream fos = new FileOutputStream(file)) {
+      fos.write(data);
+    }
+    simpleCache.commitFile(file, data.length);
+    simpleCache.releaseHoleSpan(holeSpan);
+  }
+
+  private static Object getFileKey(File file) throws IOException {
+    return Files.readAttributes(file.toPath(), BasicFileAttributes.class).fileKey();
+  }
+
   private static void assertCachedDataReadCorrect(CacheSpan cacheSpan) throws IOException {
     assertThat(cacheSpan.isCached).isTrue();
     byte[] expected = generateData(cacheSpan.key, (int) cacheSpan.position, (int) cacheSpan.length);
@@ -95,8 +95,8 @@ public final class CryptoInfo {
    */
   public void set(
       int numSubSamples,
-      int[] numBytesOfClearData,
-      int[] numBytesOfEncryptedData,
+      @Nullable int[] numBytesOfClearData,
+      @Nullable int[] numBytesOfEncryptedData,
       byte[] key,
       byte[] iv,
       @C.CryptoMode int mode,
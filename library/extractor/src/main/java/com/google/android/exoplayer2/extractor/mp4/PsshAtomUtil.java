@@ -151,6 +151,24 @@ public final class PsshAtomUtil {
     return parsedAtom.schemeData;
   }
 
+  /**
+   * Parses the key ids from a version 1 PSSH atom.
+   *
+   * <p>The key ids are only parsed if the data is a valid PSSH atom.
+   *
+   * @param atom The atom to parse.
+   * @return The parsed key ids. Null if the input is not a valid PSSH atom, or if the PSSH atom is
+   *     not a version 1 PSSH atom.
+   */
+  @Nullable
+  public static UUID[] parseKeyIds(byte[] atom) {
+    @Nullable PsshAtom parsedAtom = parsePsshAtom(atom);
+    if (parsedAtom == null) {
+      return null;
+    }
+    return parsedAtom.keyIds;
+  }
+
   /**
    * Parses a PSSH atom. Version 0 and 1 PSSH atoms are supported.
    *
@@ -158,7 +176,6 @@ public final class PsshAtomUtil {
    * @return The parsed PSSH atom. Null if the input is not a valid PSSH atom, or if the PSSH atom
    *     has an unsupported version.
    */
-  // TODO: Support parsing of the key ids for version 1 PSSH atoms.
   @Nullable
   private static PsshAtom parsePsshAtom(byte[] atom) {
     ParsableByteArray atomData = new ParsableByteArray(atom);
@@ -183,9 +200,17 @@ public final class PsshAtomUtil {
       return null;
     }
     UUID uuid = new UUID(atomData.readLong(), atomData.readLong());
+    @Nullable UUID[] keyIds = null;
     if (atomVersion == 1) {
       int keyIdCount = atomData.readUnsignedIntToInt();
-      atomData.skipBytes(16 * keyIdCount);
+      if (keyIdCount > (atomData.bytesLeft() - 4 /* DataSize */) / 16) {
+        // Incorrect KID_count.
+        return null;
+      }
+      keyIds = new UUID[keyIdCount];
+      for (int i = 0; i < keyIdCount; i++) {
+        keyIds[i] = new UUID(atomData.readLong(), atomData.readLong());
+      }
     }
     int dataSize = atomData.readUnsignedIntToInt();
     if (dataSize != atomData.bytesLeft()) {
@@ -194,7 +219,7 @@ public final class PsshAtomUtil {
     }
     byte[] data = new byte[dataSize];
     atomData.readBytes(data, 0, dataSize);
-    return new PsshAtom(uuid, atomVersion, data);
+    return new PsshAtom(uuid, atomVersion, keyIds, data);
   }
 
   // TODO: Consider exposing this and making parsePsshAtom public.
@@ -202,11 +227,13 @@ public final class PsshAtomUtil {
 
     private final UUID uuid;
     private final int version;
+    @Nullable private final UUID[] keyIds;
     private final byte[] schemeData;
 
-    public PsshAtom(UUID uuid, int version, byte[] schemeData) {
+    public PsshAtom(UUID uuid, int version, @Nullable UUID[] keyIds, byte[] schemeData) {
       this.uuid = uuid;
       this.version = version;
+      this.keyIds = keyIds;
       this.schemeData = schemeData;
     }
   }
@@ -50,4 +50,22 @@ public final class PsshAtomUtilTest {
     parsablePsshAtom.readBytes(psshSchemeData, 0, schemeData.length);
     assertThat(psshSchemeData).isEqualTo(schemeData);
   }
+
+  @Test
+  public void parseKeyIds_version1Atom_returnsKeyIds() {
+    UUID[] keyIds = new UUID[] {new UUID(1, 2), new UUID(3, 4)};
+    byte[] psshAtom =
+        PsshAtomUtil.buildPsshAtom(C.WIDEVINE_UUID, keyIds, /* data= */ new byte[] {0, 1, 2});
+
+    assertThat(PsshAtomUtil.parseKeyIds(psshAtom)).isEqualTo(keyIds);
+    assertThat(PsshAtomUtil.parseSchemeSpecificData(psshAtom, C.WIDEVINE_UUID))
+        .isEqualTo(new byte[] {0, 1, 2});
+  }
+
+  @Test
+  public void parseKeyIds_version0Atom_returnsNull() {
+    byte[] psshAtom = PsshAtomUtil.buildPsshAtom(C.WIDEVINE_UUID, new byte[] {0, 1, 2});
+
+    assertThat(PsshAtomUtil.parseKeyIds(psshAtom)).isNull();
+  }
 }
@@ -17,6 +17,7 @@ package com.google.android.exoplayer2.source.hls;
 
 import static com.google.android.exoplayer2.util.Assertions.checkNotNull;
 import static java.lang.Math.max;
+import static java.lang.Math.min;
 import static java.lang.annotation.ElementType.TYPE_USE;
 
 import android.net.Uri;
@@ -46,6 +47,7 @@ import com.google.android.exoplayer2.upstream.CmcdHeadersFactory;
 import com.google.android.exoplayer2.upstream.DataSource;
 import com.google.android.exoplayer2.upstream.DataSpec;
 import com.google.android.exoplayer2.upstream.TransferListener;
+import com.google.android.exoplayer2.upstream.cache.SegmentPrefetcher;
 import com.google.android.exoplayer2.util.MimeTypes;
 import com.google.android.exoplayer2.util.TimestampAdjuster;
 import com.google.android.exoplayer2.util.UriUtil;
@@ -144,6 +146,7 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
   private final PlayerId playerId;
   @Nullable private final CmcdConfiguration cmcdConfiguration;
   private final long timestampAdjusterInitializationTimeoutMs;
+  @Nullable private final SegmentPrefetcher segmentPrefetcher;
 
   private boolean isPrimaryTimestampSource;
   private byte[] scratchSpace;
@@ -177,6 +180,10 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
    *     an infinite timeout.
    * @param muxedCaptionFormats List of muxed caption {@link Format}s. Null if no closed caption
    *     information is available in the multivariant playlist.
+   * @param playerId The {@link PlayerId} of the player using this chunk source.
+   * @param cmcdConfiguration The {@link CmcdConfiguration} for this chunk source.
+   * @param segmentPrefetcher The {@link SegmentPrefetcher} to which upcoming segments are reported,
+   *     or {@code null} if segments shouldn't be prefetched.
    */
   public HlsChunkSource(
       HlsExtractorFactory extractorFactory,
@@ -189,7 +196,8 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
       long timestampAdjusterInitializationTimeoutMs,
       @Nullable List<Format> muxedCaptionFormats,
       PlayerId playerId,
-      @Nullable CmcdConfiguration cmcdConfiguration) {
+      @Nullable CmcdConfiguration cmcdConfiguration,
+      @Nullable SegmentPrefetcher segmentPrefetcher) {
     this.extractorFactory = extractorFactory;
     this.playlistTracker = playlistTracker;
     this.playlistUrls = playlistUrls;
@@ -199,13 +207,18 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
     this.muxedCaptionFormats = muxedCaptionFormats;
     this.playerId = playerId;
     this.cmcdConfiguration = cmcdConfiguration;
+    this.segmentPrefetcher = segmentPrefetcher;
     keyCache = new FullSegmentEncryptionKeyCache(KEY_CACHE_SIZE);
     scratchSpace = Util.EMPTY_BYTE_ARRAY;
     liveEdgeInPeriodTimeUs = C.TIME_UNSET;
-    mediaDataSource = dataSourceFactory.createDataSource(C.DATA_TYPE_MEDIA);
+    DataSource mediaDataSource = dataSourceFactory.createDataSource(C.DATA_TYPE_MEDIA);
     if (mediaTransferListener != null) {
       mediaDataSource.addTransferListener(mediaTransferListener);
     }
+    this.mediaDataSource =
+        segmentPrefetcher != null
+            ? segmentPrefetcher.createDataSource(mediaDataSource)
+            : mediaDataSource;
     encryptionDataSource = dataSourceFactory.createDataSource(C.DATA_TYPE_DRM);
     trackGroup = new TrackGroup(playlistFormats);
     // Use only non-trickplay variants for preparation. See [Internal ref: b/161529098].
@@ -258,6 +271,13 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
     fatalError = null;
   }
 
+  /** Releases the source. */
+  public void release() {
+    if (segmentPrefetcher != null) {
+      segmentPrefetcher.cancel(/* owner= */ this);
+    }
+  }
+
   /**
    * Sets whether this chunk source is responsible for initializing timestamp adjusters.
    *
@@ -357,7 +377,10 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
       return CHUNK_PUBLICATION_STATE_PRELOAD;
     }
     Uri newUri = Uri.parse(UriUtil.resolve(mediaPlaylist.baseUri, newPart.url));
+    // Parts of the same segment may share the URI and only differ in their byte range.
     return Util.areEqual(newUri, mediaChunk.dataSpec.uri)
+            && newPart.byteRangeOffset == mediaChunk.dataSpec.position
+            && newPart.byteRangeLength == mediaChunk.dataSpec.length
         ? CHUNK_PUBLICATION_STATE_PUBLISHED
         : CHUNK_PUBLICATION_STATE_REMOVED;
   }
@@ -554,6 +577,10 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
             shouldSpliceIn,
             playerId,
             cmcdHeadersFactory);
+    if (segmentPrefetcher != null && segmentBaseHolder.partIndex == C.INDEX_UNSET) {
+      prefetchSegments(
+          segmentPrefetcher, out.chunk.dataSpec, playlist, segmentBaseHolder.mediaSequence);
+    }
   }
 
   private boolean getIsMuxedAudioAndVideo() {
@@ -563,6 +590,34 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
     return audioMimeType != null && videoMimeType != null;
   }
 
+  /**
+   * Reports the full segments that follow a segment in a media playlist to a {@link
+   * SegmentPrefetcher}. Parts aren't prefetched, since they're only used close to the live edge.
+   */
+  private void prefetchSegments(
+      SegmentPrefetcher segmentPrefetcher,
+      DataSpec loadingDataSpec,
+      HlsMediaPlaylist playlist,
+      long mediaSequence) {
+    int firstSegmentIndex = (int) (mediaSequence - playlist.mediaSequence) + 1;
+    int endSegmentIndex =
+        min(playlist.segments.size(), firstSegmentIndex + segmentPrefetcher.prefetchSegmentCount);
+    List<DataSpec> dataSpecs = new ArrayList<>();
+    for (int i = firstSegmentIndex; i < endSegmentIndex; i++) {
+      Segment segment = playlist.segments.get(i);
+      if (segment.hasGapTag) {
+        break;
+      }
+      dataSpecs.add(
+          new DataSpec.Builder()
+              .setUri(UriUtil.resolveToUri(playlist.baseUri, segment.url))
+              .setPosition(segment.byteRangeOffset)
+              .setLength(segment.byteRangeLength)
+              .build());
+    }
+    segmentPrefetcher.prefetch(/* owner= */ this, loadingDataSpec, dataSpecs);
+  }
+
   @Nullable
   private static SegmentBaseHolder getNextSegmentHolder(
       HlsMediaPlaylist mediaPlaylist, long nextMediaSequence, int nextPartIndex) {
@@ -310,6 +310,7 @@ import org.checkerframework.checker.nullness.qual.RequiresNonNull;
   private ImmutableList<Integer> sampleQueueFirstSampleIndices;
   private boolean extractorInvalidated;
   private boolean isPublished;
+  private volatile boolean mediaResponseReceived;
 
   private HlsMediaChunk(
       HlsExtractorFactory extractorFactory,
@@ -453,6 +454,16 @@ import org.checkerframework.checker.nullness.qual.RequiresNonNull;
     isPublished = true;
   }
 
+  /**
+   * Returns whether the server has responded to the request for the media data of the chunk.
+   *
+   * <p>For a chunk based on a preload hint, a successful response means that the server has
+   * committed to the hinted part, as a server that abandons a hint responds with an error instead.
+   */
+  public boolean isMediaResponseReceived() {
+    return mediaResponseReceived;
+  }
+
   // Internal methods.
 
   @RequiresNonNull("output")
@@ -534,6 +545,8 @@ import org.checkerframework.checker.nullness.qual.RequiresNonNull;
       throws IOException {
     long bytesToRead = dataSource.open(dataSpec);
     if (initializeTimestampAdjuster) {
+      // Only the media data initializes the timestamp adjuster.
+      mediaResponseReceived = true;
       try {
         timestampAdjuster.sharedInitializeOrWait(
             isPrimaryTimestampSource, startTimeUs, timestampAdjusterInitializationTimeoutMs);
@@ -46,6 +46,7 @@ import com.google.android.exoplayer2.upstream.CmcdConfiguration;
 import com.google.android.exoplayer2.upstream.DataSource;
 import com.google.android.exoplayer2.upstream.LoadErrorHandlingPolicy;
 import com.google.android.exoplayer2.upstream.TransferListener;
+import com.google.android.exoplayer2.upstream.cache.SegmentPrefetcher;
 import com.google.android.exoplayer2.util.Assertions;
 import com.google.android.exoplayer2.util.MimeTypes;
 import com.google.android.exoplayer2.util.Util;
@@ -91,6 +92,8 @@ public final class HlsMediaPeriod implements MediaPeriod, HlsPlaylistTracker.Pla
   private final PlayerId playerId;
   private final HlsSampleStreamWrapper.Callback sampleStreamWrapperCallback;
   private final long timestampAdjusterInitializationTimeoutMs;
+  @Nullable private final SegmentPrefetcher segmentPrefetcher;
+  private final boolean readPreloadPartsOnResponse;
 
   @Nullable private MediaPeriod.Callback mediaPeriodCallback;
   private int pendingPrepareCount;
@@ -128,6 +131,10 @@ public final class HlsMediaPeriod implements MediaPeriod, HlsPlaylistTracker.Pla
    * @param timestampAdjusterInitializationTimeoutMs The timeout for the loading thread to wait for
    *     the timestamp adjuster to initialize, in milliseconds. A timeout of zero is interpreted as
    *     an infinite timeout.
+   * @param segmentPrefetcher The {@link SegmentPrefetcher} to which upcoming segments are reported,
+   *     or {@code null} if segments shouldn't be prefetched.
+   * @param readPreloadPartsOnResponse Whether media loaded for a preload hint can be read once the
+   *     server responds to the request for the hinted part.
    */
   public HlsMediaPeriod(
       HlsExtractorFactory extractorFactory,
@@ -145,7 +152,9 @@ public final class HlsMediaPeriod implements MediaPeriod, HlsPlaylistTracker.Pla
       @HlsMediaSource.MetadataType int metadataType,
       boolean useSessionKeys,
       PlayerId playerId,
-      long timestampAdjusterInitializationTimeoutMs) {
+      long timestampAdjusterInitializationTimeoutMs,
+      @Nullable SegmentPrefetcher segmentPrefetcher,
+      boolean readPreloadPartsOnResponse) {
     this.extractorFactory = extractorFactory;
     this.playlistTracker = playlistTracker;
     this.dataSourceFactory = dataSourceFactory;
@@ -162,6 +171,8 @@ public final class HlsMediaPeriod implements MediaPeriod, HlsPlaylistTracker.Pla
     this.useSessionKeys = useSessionKeys;
     this.playerId = playerId;
     this.timestampAdjusterInitializationTimeoutMs = timestampAdjusterInitializationTimeoutMs;
+    this.segmentPrefetcher = segmentPrefetcher;
+    this.readPreloadPartsOnResponse = readPreloadPartsOnResponse;
     sampleStreamWrapperCallback = new SampleStreamWrapperCallback();
     compositeSequenceableLoader =
         compositeSequenceableLoaderFactory.createCompositeSequenceableLoader();
@@ -796,7 +807,8 @@ public final class HlsMediaPeriod implements MediaPeriod, HlsPlaylistTracker.Pla
             timestampAdjusterInitializationTimeoutMs,
             muxedCaptionFormats,
             playerId,
-            cmcdConfiguration);
+            cmcdConfiguration,
+            segmentPrefetcher);
     return new HlsSampleStreamWrapper(
         uid,
         trackType,
@@ -810,7 +822,8 @@ public final class HlsMediaPeriod implements MediaPeriod, HlsPlaylistTracker.Pla
         drmEventDispatcher,
         loadErrorHandlingPolicy,
         eventDispatcher,
-        metadataType);
+        metadataType,
+        readPreloadPartsOnResponse);
   }
 
   private static Map<String, DrmInitData> deriveOverridingDrmInitData(
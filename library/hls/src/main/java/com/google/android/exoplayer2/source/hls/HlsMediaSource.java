@@ -55,6 +55,8 @@ import com.google.android.exoplayer2.upstream.DataSource;
 import com.google.android.exoplayer2.upstream.DefaultLoadErrorHandlingPolicy;
 import com.google.android.exoplayer2.upstream.LoadErrorHandlingPolicy;
 import com.google.android.exoplayer2.upstream.TransferListener;
+import com.google.android.exoplayer2.upstream.cache.CacheDataSource;
+import com.google.android.exoplayer2.upstream.cache.SegmentPrefetcher;
 import com.google.android.exoplayer2.util.Util;
 import com.google.errorprone.annotations.CanIgnoreReturnValue;
 import java.io.IOException;
@@ -120,6 +122,8 @@ public final class HlsMediaSource extends BaseMediaSource
     private boolean useSessionKeys;
     private long elapsedRealTimeOffsetMs;
     private long timestampAdjusterInitializationTimeoutMs;
+    @Nullable private SegmentPrefetcher segmentPrefetcher;
+    private boolean readPreloadPartsOnResponse;
 
     /**
      * Creates a new factory for {@link HlsMediaSource}s.
@@ -344,6 +348,44 @@ public final class HlsMediaSource extends BaseMediaSource
       return this;
     }
 
+    /**
+     * Sets the {@link SegmentPrefetcher} to which the chunk sources report their upcoming segments,
+     * so that they're written to a cache ahead of playback. The {@link HlsDataSourceFactory} of
+     * this factory should create {@link CacheDataSource} instances that read from the same cache.
+     *
+     * <p>This method is experimental, and will be renamed or removed in a future release.
+     *
+     * <p>The default is {@code null}, which disables prefetching.
+     *
+     * @param segmentPrefetcher The {@link SegmentPrefetcher}, or {@code null} to disable
+     *     prefetching.
+     * @return This factory, for convenience.
+     */
+    @CanIgnoreReturnValue
+    public Factory experimentalSetSegmentPrefetcher(
+        @Nullable SegmentPrefetcher segmentPrefetcher) {
+      this.segmentPrefetcher = segmentPrefetcher;
+      return this;
+    }
+
+    /**
+     * Sets whether media loaded for a low-latency preload hint can be read as soon as the server
+     * responds to the request for the hinted part, rather than once the part is published in a
+     * playlist update. This lowers the latency of low-latency streams by about a part duration.
+     *
+     * <p>This method is experimental, and will be renamed or removed in a future release.
+     *
+     * <p>The default is {@code false}.
+     *
+     * @param readPreloadPartsOnResponse Whether hinted parts can be read once the server responds.
+     * @return This factory, for convenience.
+     */
+    @CanIgnoreReturnValue
+    public Factory experimentalSetReadPreloadPartsOnResponse(boolean readPreloadPartsOnResponse) {
+      this.readPreloadPartsOnResponse = readPreloadPartsOnResponse;
+      return this;
+    }
+
     /**
      * Sets the offset between {@link SystemClock#elapsedRealtime()} and the time since the Unix
      * epoch. By default, is it set to {@link C#TIME_UNSET}.
@@ -395,7 +437,9 @@ public final class HlsMediaSource extends BaseMediaSource
           allowChunklessPreparation,
           metadataType,
           useSessionKeys,
-          timestampAdjusterInitializationTimeoutMs);
+          timestampAdjusterInitializationTimeoutMs,
+          segmentPrefetcher,
+          readPreloadPartsOnResponse);
     }
 
     @Override
@@ -418,6 +462,8 @@ public final class HlsMediaSource extends BaseMediaSource
   private final long elapsedRealTimeOffsetMs;
   private final MediaItem mediaItem;
   private final long timestampAdjusterInitializationTimeoutMs;
+  @Nullable private final SegmentPrefetcher segmentPrefetcher;
+  private final boolean readPreloadPartsOnResponse;
 
   private MediaItem.LiveConfiguration liveConfiguration;
   @Nullable private TransferListener mediaTransferListener;
@@ -435,7 +481,9 @@ public final class HlsMediaSource extends BaseMediaSource
       boolean allowChunklessPreparation,
       @MetadataType int metadataType,
       boolean useSessionKeys,
-      long timestampAdjusterInitializationTimeoutMs) {
+      long timestampAdjusterInitializationTimeoutMs,
+      @Nullable SegmentPrefetcher segmentPrefetcher,
+      boolean readPreloadPartsOnResponse) {
     this.localConfiguration = checkNotNull(mediaItem.localConfiguration);
     this.mediaItem = mediaItem;
     this.liveConfiguration = mediaItem.liveConfiguration;
@@ -451,6 +499,8 @@ public final class HlsMediaSource extends BaseMediaSource
     this.metadataType = metadataType;
     this.useSessionKeys = useSessionKeys;
     this.timestampAdjusterInitializationTimeoutMs = timestampAdjusterInitializationTimeoutMs;
+    this.segmentPrefetcher = segmentPrefetcher;
+    this.readPreloadPartsOnResponse = readPreloadPartsOnResponse;
   }
 
   @Override
@@ -495,7 +545,9 @@ public final class HlsMediaSource extends BaseMediaSource
         metadataType,
         useSessionKeys,
         getPlayerId(),
-        timestampAdjusterInitializationTimeoutMs);
+        timestampAdjusterInitializationTimeoutMs,
+        segmentPrefetcher,
+        readPreloadPartsOnResponse);
   }
 
   @Override
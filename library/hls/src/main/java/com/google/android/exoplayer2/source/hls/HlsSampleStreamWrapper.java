@@ -144,6 +144,7 @@ import org.checkerframework.checker.nullness.qual.RequiresNonNull;
   private final Loader loader;
   private final MediaSourceEventListener.EventDispatcher mediaSourceEventDispatcher;
   private final @HlsMediaSource.MetadataType int metadataType;
+  private final boolean readPreloadPartsOnResponse;
   private final HlsChunkSource.HlsChunkHolder nextChunkHolder;
   private final ArrayList<HlsMediaChunk> mediaChunks;
   private final List<HlsMediaChunk> readOnlyMediaChunks;
@@ -212,6 +213,9 @@ import org.checkerframework.checker.nullness.qual.RequiresNonNull;
    * @param loadErrorHandlingPolicy A {@link LoadErrorHandlingPolicy}.
    * @param mediaSourceEventDispatcher A dispatcher to notify of {@link MediaSourceEventListener}
    *     events.
+   * @param metadataType The type of metadata to extract from the period.
+   * @param readPreloadPartsOnResponse Whether media loaded for a preload hint can be read once the
+   *     server responds to the request for the hinted part.
    */
   public HlsSampleStreamWrapper(
       String uid,
@@ -226,7 +230,8 @@ import org.checkerframework.checker.nullness.qual.RequiresNonNull;
       DrmSessionEventListener.EventDispatcher drmEventDispatcher,
       LoadErrorHandlingPolicy loadErrorHandlingPolicy,
       MediaSourceEventListener.EventDispatcher mediaSourceEventDispatcher,
-      @HlsMediaSource.MetadataType int metadataType) {
+      @HlsMediaSource.MetadataType int metadataType,
+      boolean readPreloadPartsOnResponse) {
     this.uid = uid;
     this.trackType = trackType;
     this.callback = callback;
@@ -239,6 +244,7 @@ import org.checkerframework.checker.nullness.qual.RequiresNonNull;
     this.loadErrorHandlingPolicy = loadErrorHandlingPolicy;
     this.mediaSourceEventDispatcher = mediaSourceEventDispatcher;
     this.metadataType = metadataType;
+    this.readPreloadPartsOnResponse = readPreloadPartsOnResponse;
     loader = new Loader("Loader:HlsSampleStreamWrapper");
     nextChunkHolder = new HlsChunkSource.HlsChunkHolder();
     sampleQueueTrackIds = new int[0];
@@ -552,6 +558,7 @@ import org.checkerframework.checker.nullness.qual.RequiresNonNull;
       }
     }
     loader.release(this);
+    chunkSource.release();
     handler.removeCallbacksAndMessages(null);
     released = true;
     hlsSampleStreams.clear();
@@ -660,7 +667,7 @@ import org.checkerframework.checker.nullness.qual.RequiresNonNull;
       downstreamTrackFormat = trackFormat;
     }
 
-    if (!mediaChunks.isEmpty() && !mediaChunks.get(0).isPublished()) {
+    if (!mediaChunks.isEmpty() && !isReadable(mediaChunks.get(0))) {
       // Don't read into preload chunks until we can be sure they are permanently published.
       return C.RESULT_NOTHING_READ;
     }
@@ -697,7 +704,7 @@ import org.checkerframework.checker.nullness.qual.RequiresNonNull;
 
     // Ensure we don't skip into preload chunks until we can be sure they are permanently published.
     @Nullable HlsMediaChunk lastChunk = Iterables.getLast(mediaChunks, /* defaultValue= */ null);
-    if (lastChunk != null && !lastChunk.isPublished()) {
+    if (lastChunk != null && !isReadable(lastChunk)) {
       int readIndex = sampleQueue.getReadIndex();
       int firstSampleIndex = lastChunk.getFirstSampleIndex(sampleQueueIndex);
       skipCount = min(skipCount, firstSampleIndex - readIndex);
@@ -834,6 +841,12 @@ import org.checkerframework.checker.nullness.qual.RequiresNonNull;
       newQueueSize--;
     }
     if (newQueueSize < readOnlyMediaChunks.size()) {
+      if (!canDiscardUpstreamMediaChunksFromIndex(newQueueSize)) {
+        // A removed chunk has already been read from, which can happen if preload parts are read
+        // once the server responds. Reload the published media from the position read so far.
+        resetToReadPosition();
+        return;
+      }
       discardUpstream(newQueueSize);
     }
 
@@ -1274,6 +1287,21 @@ import org.checkerframework.checker.nullness.qual.RequiresNonNull;
     return true;
   }
 
+  /**
+   * Discards all buffered media and restarts loading just after the largest timestamp read from the
+   * sample queues, so that samples that have already been read are only output as decode-only.
+   */
+  private void resetToReadPosition() {
+    long readPositionUs = lastSeekPositionUs;
+    for (SampleQueue sampleQueue : sampleQueues) {
+      long largestReadTimestampUs = sampleQueue.getLargestReadTimestampUs();
+      if (largestReadTimestampUs != Long.MIN_VALUE) {
+        readPositionUs = max(readPositionUs, largestReadTimestampUs + 1);
+      }
+    }
+    seekToUs(readPositionUs, /* forceReset= */ true);
+  }
+
   private HlsMediaChunk discardUpstreamMediaChunksFromIndex(int chunkIndex) {
     HlsMediaChunk firstRemovedChunk = mediaChunks.get(chunkIndex);
     Util.removeRange(mediaChunks, /* fromIndex= */ chunkIndex, /* toIndex= */ mediaChunks.size());
@@ -1471,6 +1499,16 @@ import org.checkerframework.checker.nullness.qual.RequiresNonNull;
     return pendingResetPositionUs != C.TIME_UNSET;
   }
 
+  /**
+   * Returns whether samples of the given chunk can be read. Chunks based on preload hints are
+   * readable once published, or once the server has responded if {@code
+   * readPreloadPartsOnResponse} is set.
+   */
+  private boolean isReadable(HlsMediaChunk mediaChunk) {
+    return mediaChunk.isPublished()
+        || (readPreloadPartsOnResponse && mediaChunk.isMediaResponseReceived());
+  }
+
   /**
    * Attempts to seek to the specified position within the sample queues.
    *
@@ -29,6 +29,24 @@ import com.google.android.exoplayer2.upstream.ParsingLoadable;
 @Deprecated
 public final class DefaultHlsPlaylistParserFactory implements HlsPlaylistParserFactory {
 
+  private boolean reusePreviousSegments;
+
+  /**
+   * Sets whether refreshed media playlists reuse the segments of the previous playlist snapshot
+   * instead of parsing them again. See {@link HlsPlaylistParser#HlsPlaylistParser(
+   * HlsMultivariantPlaylist, HlsMediaPlaylist, boolean)}.
+   *
+   * <p>This method is experimental, and will be renamed or removed in a future release.
+   *
+   * @param reusePreviousSegments Whether the segments of the previous playlist are reused.
+   * @return This factory, for convenience.
+   */
+  public DefaultHlsPlaylistParserFactory experimentalSetReusePreviousSegments(
+      boolean reusePreviousSegments) {
+    this.reusePreviousSegments = reusePreviousSegments;
+    return this;
+  }
+
   @Override
   public ParsingLoadable.Parser<HlsPlaylist> createPlaylistParser() {
     return new HlsPlaylistParser();
@@ -38,6 +56,7 @@ public final class DefaultHlsPlaylistParserFactory implements HlsPlaylistParserF
   public ParsingLoadable.Parser<HlsPlaylist> createPlaylistParser(
       HlsMultivariantPlaylist multivariantPlaylist,
       @Nullable HlsMediaPlaylist previousMediaPlaylist) {
-    return new HlsPlaylistParser(multivariantPlaylist, previousMediaPlaylist);
+    return new HlsPlaylistParser(
+        multivariantPlaylist, previousMediaPlaylist, reusePreviousSegments);
   }
 }
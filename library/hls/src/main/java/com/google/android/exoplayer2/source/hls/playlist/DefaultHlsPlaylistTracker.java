@@ -76,6 +76,7 @@ public final class DefaultHlsPlaylistTracker
   private final CopyOnWriteArrayList<PlaylistEventListener> listeners;
   private final double playlistStuckTargetDurationCoefficient;
 
+  private boolean useReloadRequestForRefresh;
   @Nullable private EventDispatcher eventDispatcher;
   @Nullable private Loader initialPlaylistLoader;
   @Nullable private Handler playlistRefreshHandler;
@@ -129,6 +130,20 @@ public final class DefaultHlsPlaylistTracker
     initialStartTimeUs = C.TIME_UNSET;
   }
 
+  /**
+   * Sets whether {@link #refreshPlaylist(Uri)} loads the playlist with the same request as a
+   * scheduled reload, including the blocking reload and delta update parameters, rather than with
+   * a request for the full playlist. A refresh requested while waiting for the next part of a
+   * low-latency stream is then coalesced with the pending blocking reload. Off by default.
+   *
+   * <p>This method is experimental, and will be renamed or removed in a future release.
+   *
+   * @param useReloadRequestForRefresh Whether refreshes use the request of a scheduled reload.
+   */
+  public void experimentalSetUseReloadRequestForRefresh(boolean useReloadRequestForRefresh) {
+    this.useReloadRequestForRefresh = useReloadRequestForRefresh;
+  }
+
   // HlsPlaylistTracker implementation.
 
   @Override
@@ -231,7 +246,12 @@ public final class DefaultHlsPlaylistTracker
 
   @Override
   public void refreshPlaylist(Uri url) {
-    playlistBundles.get(url).loadPlaylist();
+    MediaPlaylistBundle bundle = playlistBundles.get(url);
+    if (useReloadRequestForRefresh) {
+      bundle.reloadPlaylist();
+    } else {
+      bundle.loadPlaylist();
+    }
   }
 
   @Override
@@ -562,6 +582,11 @@ public final class DefaultHlsPlaylistTracker
       loadPlaylistInternal(playlistUrl);
     }
 
+    /** Loads the playlist with the same request as a scheduled reload. */
+    public void reloadPlaylist() {
+      loadPlaylistInternal(getMediaPlaylistUriForReload());
+    }
+
     public void maybeThrowPlaylistRefreshError() throws IOException {
       mediaPlaylistLoader.maybeThrowError();
       if (playlistError != null) {
@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.source.hls.playlist;
+
+import androidx.annotation.Nullable;
+import java.util.Arrays;
+
+/**
+ * The attribute list of an HLS tag, as defined by RFC 8216, Section 4.2.
+ *
+ * <p>The attribute list is tokenized once by scanning the tag line, without regular expressions.
+ * Attribute values are only extracted when they're requested.
+ *
+ * @deprecated com.google.android.exoplayer2 is deprecated. Please migrate to androidx.media3 (which
+ *     contains the same ExoPlayer code). See <a
+ *     href="https://developer.android.com/guide/topics/media/media3/getting-started/migration-guide">the
+ *     migration guide</a> for more details, including a script to help with the migration.
+ */
+@Deprecated
+/* package */ final class HlsAttributeList {
+
+  private static final int INITIAL_ATTRIBUTE_CAPACITY = 8;
+
+  /** The tag line. */
+  public final String line;
+
+  /**
+   * The offsets of the attributes in {@link #line}. Each attribute occupies four entries: the start
+   * and end of its name, and the start and end of its value, excluding any quotes.
+   */
+  private int[] offsets;
+
+  private int attributeCount;
+
+  /**
+   * Tokenizes the attribute list of a tag line. The attribute list starts after the first colon of
+   * the line. Malformed attributes are skipped.
+   *
+   * @param line The tag line, for example {@code #EXT-X-STREAM-INF:BANDWIDTH=1280000}.
+   * @return The attribute list.
+   */
+  public static HlsAttributeList parse(String line) {
+    HlsAttributeList attributeList = new HlsAttributeList(line);
+    int length = line.length();
+    int position = line.indexOf(':') + 1;
+    if (position == 0) {
+      return attributeList;
+    }
+    while (position < length) {
+      position = skipWhitespace(line, position);
+      int nameStart = position;
+      while (position < length && line.charAt(position) != '=' && line.charAt(position) != ',') {
+        position++;
+      }
+      int nameEnd = trimTrailingWhitespace(line, nameStart, position);
+      if (position == length || line.charAt(position) == ',') {
+        // Attribute without a value.
+        position++;
+        continue;
+      }
+      position = skipWhitespace(line, position + 1);
+      int valueStart;
+      int valueEnd;
+      if (position < length && line.charAt(position) == '"') {
+        valueStart = position + 1;
+        valueEnd = line.indexOf('"', valueStart);
+        if (valueEnd == -1) {
+          // Unterminated quoted string.
+          break;
+        }
+        position = line.indexOf(',', valueEnd + 1);
+      } else {
+        valueStart = position;
+        position = line.indexOf(',', valueStart);
+        valueEnd = trimTrailingWhitespace(line, valueStart, position == -1 ? length : position);
+      }
+      if (nameEnd > nameStart) {
+        attributeList.add(nameStart, nameEnd, valueStart, valueEnd);
+      }
+      if (position == -1) {
+        break;
+      }
+      position++;
+    }
+    return attributeList;
+  }
+
+  private HlsAttributeList(String line) {
+    this.line = line;
+    offsets = new int[4 * INITIAL_ATTRIBUTE_CAPACITY];
+  }
+
+  /**
+   * Returns the value of an attribute, without quotes, or null if the attribute isn't present or
+   * its value is empty.
+   *
+   * @param name The name of the attribute.
+   */
+  @Nullable
+  public String get(String name) {
+    int nameLength = name.length();
+    for (int i = 0; i < attributeCount; i++) {
+      int offset = i * 4;
+      int nameStart = offsets[offset];
+      if (offsets[offset + 1] - nameStart == nameLength
+          && line.regionMatches(nameStart, name, /* ooffset= */ 0, nameLength)) {
+        int valueStart = offsets[offset + 2];
+        int valueEnd = offsets[offset + 3];
+        return valueEnd > valueStart ? line.substring(valueStart, valueEnd) : null;
+      }
+    }
+    return null;
+  }
+
+  private void add(int nameStart, int nameEnd, int valueStart, int valueEnd) {
+    int offset = attributeCount * 4;
+    if (offset == offsets.length) {
+      offsets = Arrays.copyOf(offsets, offsets.length * 2);
+    }
+    offsets[offset] = nameStart;
+    offsets[offset + 1] = nameEnd;
+    offsets[offset + 2] = valueStart;
+    offsets[offset + 3] = valueEnd;
+    attributeCount++;
+  }
+
+  private static int skipWhitespace(String line, int position) {
+    while (position < line.length() && line.charAt(position) == ' ') {
+      position++;
+    }
+    return position;
+  }
+
+  private static int trimTrailingWhitespace(String line, int start, int end) {
+    while (end > start && line.charAt(end - 1) == ' ') {
+      end--;
+    }
+    return end;
+  }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.source.hls.playlist;
+
+import static com.google.android.exoplayer2.util.Assertions.checkArgument;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import com.google.common.base.Charsets;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Tokenizes an HLS playlist into lines directly from its byte stream.
+ *
+ * <p>Bytes are scanned in place for line breaks, and only the trimmed content of each non-empty
+ * line is decoded into a {@link String}. Unlike a {@link java.io.BufferedReader}, no intermediate
+ * character buffer is filled, and blank lines and surrounding whitespace never allocate.
+ *
+ * @deprecated com.google.android.exoplayer2 is deprecated. Please migrate to androidx.media3 (which
+ *     contains the same ExoPlayer code). See <a
+ *     href="https://developer.android.com/guide/topics/media/media3/getting-started/migration-guide">the
+ *     migration guide</a> for more details, including a script to help with the migration.
+ */
+@Deprecated
+/* package */ final class HlsLineReader implements Closeable {
+
+  private static final int DEFAULT_INITIAL_BUFFER_SIZE = 8192;
+
+  private final InputStream inputStream;
+
+  private byte[] buffer;
+  private int position;
+  private int limit;
+
+  /**
+   * Creates an instance.
+   *
+   * @param inputStream The {@link InputStream} to read from.
+   */
+  public HlsLineReader(InputStream inputStream) {
+    this(inputStream, DEFAULT_INITIAL_BUFFER_SIZE);
+  }
+
+  @VisibleForTesting
+  /* package */ HlsLineReader(InputStream inputStream, int initialBufferSize) {
+    checkArgument(initialBufferSize > 0);
+    this.inputStream = inputStream;
+    buffer = new byte[initialBufferSize];
+  }
+
+  /**
+   * Reads a single byte.
+   *
+   * @return The byte, as an unsigned value, or -1 if the end of the input has been reached.
+   * @throws IOException If an error occurs reading from the input.
+   */
+  public int read() throws IOException {
+    if (position == limit && !fillBuffer()) {
+      return -1;
+    }
+    return buffer[position++] & 0xFF;
+  }
+
+  /**
+   * Reads the next non-empty line, decoded as UTF-8. Lines are terminated by {@code '\n'}, {@code
+   * '\r'} or {@code "\r\n"}. Leading and trailing whitespace, as defined by {@link String#trim()},
+   * is removed, and lines consisting only of whitespace are skipped.
+   *
+   * @return The trimmed line, or null if the end of the input has been reached.
+   * @throws IOException If an error occurs reading from the input.
+   */
+  @Nullable
+  public String readLine() throws IOException {
+    // Skip line breaks, blank lines and leading whitespace.
+    while (true) {
+      if (position == limit && !fillBuffer()) {
+        return null;
+      }
+      if (!isWhitespace(buffer[position])) {
+        break;
+      }
+      position++;
+    }
+    // Find the end of the line. The scanned length is relative to position, which may be moved by
+    // fillBuffer().
+    int scannedLength = 0;
+    while (true) {
+      if (position + scannedLength == limit && !fillBuffer()) {
+        break;
+      }
+      byte b = buffer[position + scannedLength];
+      if (b == '\n' || b == '\r') {
+        break;
+      }
+      scannedLength++;
+    }
+    int lineStart = position;
+    int lineEnd = position + scannedLength;
+    // The line break itself is skipped as whitespace by the next call.
+    position = lineEnd;
+    while (isWhitespace(buffer[lineEnd - 1])) {
+      lineEnd--;
+    }
+    return new String(buffer, lineStart, lineEnd - lineStart, Charsets.UTF_8);
+  }
+
+  @Override
+  public void close() throws IOException {
+    inputStream.close();
+  }
+
+  /**
+   * Reads more data into the buffer, moving any unconsumed data to its start and growing it if
+   * it's full.
+   *
+   * @return Whether any data was read, or false if the end of the input has been reached.
+   */
+  private boolean fillBuffer() throws IOException {
+    if (position > 0) {
+      System.arraycopy(buffer, position, buffer, 0, limit - position);
+      limit -= position;
+      position = 0;
+    }
+    if (limit == buffer.length) {
+      buffer = Arrays.copyOf(buffer, buffer.length * 2);
+    }
+    int bytesRead = inputStream.read(buffer, limit, buffer.length - limit);
+    if (bytesRead == -1) {
+      return false;
+    }
+    limit += bytesRead;
+    return true;
+  }
+
+  private static boolean isWhitespace(byte b) {
+    // Matches String#trim(). Bytes of multi-byte UTF-8 sequences are negative and never match.
+    return b >= 0 && b <= ' ';
+  }
+}
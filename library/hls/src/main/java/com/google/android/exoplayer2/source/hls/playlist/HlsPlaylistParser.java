@@ -44,10 +44,8 @@ import com.google.android.exoplayer2.util.MimeTypes;
 import com.google.android.exoplayer2.util.UriUtil;
 import com.google.android.exoplayer2.util.Util;
 import com.google.common.collect.Iterables;
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.math.BigDecimal;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
@@ -136,20 +134,33 @@ public final class HlsPlaylistParser implements ParsingLoadable.Parser<HlsPlayli
 
   private static final String ATTR_CLOSED_CAPTIONS_NONE = "CLOSED-CAPTIONS=NONE";
 
-  private static final Pattern REGEX_AVERAGE_BANDWIDTH =
-      Pattern.compile("AVERAGE-BANDWIDTH=(\\d+)\\b");
-  private static final Pattern REGEX_VIDEO = Pattern.compile("VIDEO=\"(.+?)\"");
-  private static final Pattern REGEX_AUDIO = Pattern.compile("AUDIO=\"(.+?)\"");
-  private static final Pattern REGEX_SUBTITLES = Pattern.compile("SUBTITLES=\"(.+?)\"");
-  private static final Pattern REGEX_CLOSED_CAPTIONS = Pattern.compile("CLOSED-CAPTIONS=\"(.+?)\"");
-  private static final Pattern REGEX_BANDWIDTH = Pattern.compile("[^-]BANDWIDTH=(\\d+)\\b");
-  private static final Pattern REGEX_CHANNELS = Pattern.compile("CHANNELS=\"(.+?)\"");
-  private static final Pattern REGEX_CODECS = Pattern.compile("CODECS=\"(.+?)\"");
-  private static final Pattern REGEX_RESOLUTION = Pattern.compile("RESOLUTION=(\\d+x\\d+)");
-  private static final Pattern REGEX_FRAME_RATE = Pattern.compile("FRAME-RATE=([\\d\\.]+)\\b");
+  private static final String ATTR_AUDIO = "AUDIO";
+  private static final String ATTR_AUTOSELECT = "AUTOSELECT";
+  private static final String ATTR_AVERAGE_BANDWIDTH = "AVERAGE-BANDWIDTH";
+  private static final String ATTR_BANDWIDTH = "BANDWIDTH";
+  private static final String ATTR_BYTERANGE = "BYTERANGE";
+  private static final String ATTR_CHANNELS = "CHANNELS";
+  private static final String ATTR_CHARACTERISTICS = "CHARACTERISTICS";
+  private static final String ATTR_CLOSED_CAPTIONS = "CLOSED-CAPTIONS";
+  private static final String ATTR_CODECS = "CODECS";
+  private static final String ATTR_DEFAULT = "DEFAULT";
+  private static final String ATTR_DURATION = "DURATION";
+  private static final String ATTR_FORCED = "FORCED";
+  private static final String ATTR_FRAME_RATE = "FRAME-RATE";
+  private static final String ATTR_GAP = "GAP";
+  private static final String ATTR_GROUP_ID = "GROUP-ID";
+  private static final String ATTR_INDEPENDENT = "INDEPENDENT";
+  private static final String ATTR_INSTREAM_ID = "INSTREAM-ID";
+  private static final String ATTR_LANGUAGE = "LANGUAGE";
+  private static final String ATTR_NAME = "NAME";
+  private static final String ATTR_RESOLUTION = "RESOLUTION";
+  private static final String ATTR_SUBTITLES = "SUBTITLES";
+  private static final String ATTR_TYPE = "TYPE";
+  private static final String ATTR_URI = "URI";
+  private static final String ATTR_VIDEO = "VIDEO";
+
   private static final Pattern REGEX_TARGET_DURATION =
       Pattern.compile(TAG_TARGET_DURATION + ":(\\d+)\\b");
-  private static final Pattern REGEX_ATTR_DURATION = Pattern.compile("DURATION=([\\d\\.]+)\\b");
   private static final Pattern REGEX_PART_TARGET_DURATION =
       Pattern.compile("PART-TARGET=([\\d\\.]+)\\b");
   private static final Pattern REGEX_VERSION = Pattern.compile(TAG_VERSION + ":(\\d+)\\b");
@@ -168,10 +179,6 @@ public final class HlsPlaylistParser implements ParsingLoadable.Parser<HlsPlayli
       compileBooleanAttrPattern("CAN-BLOCK-RELOAD");
   private static final Pattern REGEX_MEDIA_SEQUENCE =
       Pattern.compile(TAG_MEDIA_SEQUENCE + ":(\\d+)\\b");
-  private static final Pattern REGEX_MEDIA_DURATION =
-      Pattern.compile(TAG_MEDIA_DURATION + ":([\\d\\.]+)\\b");
-  private static final Pattern REGEX_MEDIA_TITLE =
-      Pattern.compile(TAG_MEDIA_DURATION + ":[\\d\\.]+\\b,(.+)");
   private static final Pattern REGEX_LAST_MSN = Pattern.compile("LAST-MSN" + "=(\\d+)\\b");
   private static final Pattern REGEX_LAST_PART = Pattern.compile("LAST-PART" + "=(\\d+)\\b");
   private static final Pattern REGEX_TIME_OFFSET = Pattern.compile("TIME-OFFSET=(-?[\\d\\.]+)\\b");
@@ -201,30 +208,9 @@ public final class HlsPlaylistParser implements ParsingLoadable.Parser<HlsPlayli
       Pattern.compile("KEYFORMATVERSIONS=\"(.+?)\"");
   private static final Pattern REGEX_URI = Pattern.compile("URI=\"(.+?)\"");
   private static final Pattern REGEX_IV = Pattern.compile("IV=([^,.*]+)");
-  private static final Pattern REGEX_TYPE =
-      Pattern.compile(
-          "TYPE=("
-              + TYPE_AUDIO
-              + "|"
-              + TYPE_VIDEO
-              + "|"
-              + TYPE_SUBTITLES
-              + "|"
-              + TYPE_CLOSED_CAPTIONS
-              + ")");
   private static final Pattern REGEX_PRELOAD_HINT_TYPE =
       Pattern.compile("TYPE=(" + TYPE_PART + "|" + TYPE_MAP + ")");
-  private static final Pattern REGEX_LANGUAGE = Pattern.compile("LANGUAGE=\"(.+?)\"");
   private static final Pattern REGEX_NAME = Pattern.compile("NAME=\"(.+?)\"");
-  private static final Pattern REGEX_GROUP_ID = Pattern.compile("GROUP-ID=\"(.+?)\"");
-  private static final Pattern REGEX_CHARACTERISTICS = Pattern.compile("CHARACTERISTICS=\"(.+?)\"");
-  private static final Pattern REGEX_INSTREAM_ID =
-      Pattern.compile("INSTREAM-ID=\"((?:CC|SERVICE)\\d+)\"");
-  private static final Pattern REGEX_AUTOSELECT = compileBooleanAttrPattern("AUTOSELECT");
-  private static final Pattern REGEX_DEFAULT = compileBooleanAttrPattern("DEFAULT");
-  private static final Pattern REGEX_FORCED = compileBooleanAttrPattern("FORCED");
-  private static final Pattern REGEX_INDEPENDENT = compileBooleanAttrPattern("INDEPENDENT");
-  private static final Pattern REGEX_GAP = compileBooleanAttrPattern("GAP");
   private static final Pattern REGEX_PRECISE = compileBooleanAttrPattern("PRECISE");
   private static final Pattern REGEX_VALUE = Pattern.compile("VALUE=\"(.+?)\"");
   private static final Pattern REGEX_IMPORT = Pattern.compile("IMPORT=\"(.+?)\"");
@@ -233,6 +219,7 @@ public final class HlsPlaylistParser implements ParsingLoadable.Parser<HlsPlayli
 
   private final HlsMultivariantPlaylist multivariantPlaylist;
   @Nullable private final HlsMediaPlaylist previousMediaPlaylist;
+  private final boolean reusePreviousSegments;
 
   /**
    * Creates an instance where media playlists are parsed without inheriting attributes from a
@@ -254,13 +241,38 @@ public final class HlsPlaylistParser implements ParsingLoadable.Parser<HlsPlayli
   public HlsPlaylistParser(
       HlsMultivariantPlaylist multivariantPlaylist,
       @Nullable HlsMediaPlaylist previousMediaPlaylist) {
+    this(multivariantPlaylist, previousMediaPlaylist, /* reusePreviousSegments= */ false);
+  }
+
+  /**
+   * Creates an instance where parsed media playlists inherit attributes from the given multivariant
+   * playlist, and may reuse the segments of the previous media playlist.
+   *
+   * <p>If {@code reusePreviousSegments} is true, a segment whose media sequence number is in the
+   * previous media playlist isn't parsed again. The {@link Segment} instance of the previous
+   * playlist is reused instead, after checking that its URI and encryption match. The tags that
+   * only describe such a segment (#EXTINF, #EXT-X-BYTERANGE, #EXT-X-PART and #EXT-X-GAP) are
+   * skipped, so that refreshing a live playlist with a long window only parses the new segments. If
+   * a segment doesn't match, the playlist is parsed from that segment onwards as usual.
+   *
+   * @param multivariantPlaylist The multivariant playlist from which media playlists will inherit
+   *     attributes.
+   * @param previousMediaPlaylist The previous media playlist from which the new media playlist may
+   *     inherit skipped segments, and reuse segments if {@code reusePreviousSegments} is true.
+   * @param reusePreviousSegments Whether segments of the previous media playlist are reused.
+   */
+  public HlsPlaylistParser(
+      HlsMultivariantPlaylist multivariantPlaylist,
+      @Nullable HlsMediaPlaylist previousMediaPlaylist,
+      boolean reusePreviousSegments) {
     this.multivariantPlaylist = multivariantPlaylist;
     this.previousMediaPlaylist = previousMediaPlaylist;
+    this.reusePreviousSegments = reusePreviousSegments;
   }
 
   @Override
   public HlsPlaylist parse(Uri uri, InputStream inputStream) throws IOException {
-    BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
+    HlsLineReader reader = new HlsLineReader(inputStream);
     Queue<String> extraLines = new ArrayDeque<>();
     String line;
     try {
@@ -269,10 +281,7 @@ public final class HlsPlaylistParser implements ParsingLoadable.Parser<HlsPlayli
             /* message= */ "Input does not start with the #EXTM3U header.", /* cause= */ null);
       }
       while ((line = reader.readLine()) != null) {
-        line = line.trim();
-        if (line.isEmpty()) {
-          // Do nothing.
-        } else if (line.startsWith(TAG_STREAM_INF)) {
+        if (line.startsWith(TAG_STREAM_INF)) {
           extraLines.add(line);
           return parseMultivariantPlaylist(new LineIterator(extraLines, reader), uri.toString());
         } else if (line.startsWith(TAG_TARGET_DURATION)
@@ -287,6 +296,7 @@ public final class HlsPlaylistParser implements ParsingLoadable.Parser<HlsPlayli
           return parseMediaPlaylist(
               multivariantPlaylist,
               previousMediaPlaylist,
+              reusePreviousSegments,
               new LineIterator(extraLines, reader),
               uri.toString());
         } else {
@@ -300,7 +310,7 @@ public final class HlsPlaylistParser implements ParsingLoadable.Parser<HlsPlayli
         "Failed to parse the playlist, could not identify any tags.", /* cause= */ null);
   }
 
-  private static boolean checkPlaylistHeader(BufferedReader reader) throws IOException {
+  private static boolean checkPlaylistHeader(HlsLineReader reader) throws IOException {
     int last = reader.read();
     if (last == 0xEF) {
       if (reader.read() != 0xBB || reader.read() != 0xBF) {
@@ -321,7 +331,7 @@ public final class HlsPlaylistParser implements ParsingLoadable.Parser<HlsPlayli
     return Util.isLinebreak(last);
   }
 
-  private static int skipIgnorableWhitespace(BufferedReader reader, boolean skipLinebreaks, int c)
+  private static int skipIgnorableWhitespace(HlsLineReader reader, boolean skipLinebreaks, int c)
       throws IOException {
     while (c != -1 && Character.isWhitespace(c) && (skipLinebreaks || !Util.isLinebreak(c))) {
       c = reader.read();
@@ -341,6 +351,7 @@ public final class HlsPlaylistParser implements ParsingLoadable.Parser<HlsPlayli
     ArrayList<String> mediaTags = new ArrayList<>();
     ArrayList<DrmInitData> sessionKeyDrmInitData = new ArrayList<>();
     ArrayList<String> tags = new ArrayList<>();
+    HashMap<String, String> internedStrings = new HashMap<>();
     Format muxedAudioFormat = null;
     List<Format> muxedCaptionFormats = null;
     boolean noClosedCaptions = false;
@@ -377,15 +388,18 @@ public final class HlsPlaylistParser implements ParsingLoadable.Parser<HlsPlayli
         }
       } else if (line.startsWith(TAG_STREAM_INF) || isIFrameOnlyVariant) {
         noClosedCaptions |= line.contains(ATTR_CLOSED_CAPTIONS_NONE);
+        HlsAttributeList attributes = HlsAttributeList.parse(line);
         int roleFlags = isIFrameOnlyVariant ? C.ROLE_FLAG_TRICK_PLAY : 0;
-        int peakBitrate = parseIntAttr(line, REGEX_BANDWIDTH);
-        int averageBitrate = parseOptionalIntAttr(line, REGEX_AVERAGE_BANDWIDTH, -1);
-        String codecs = parseOptionalStringAttr(line, REGEX_CODECS, variableDefinitions);
-        String resolutionString =
-            parseOptionalStringAttr(line, REGEX_RESOLUTION, variableDefinitions);
+        int peakBitrate = parseIntAttr(attributes, ATTR_BANDWIDTH);
+        int averageBitrate = parseOptionalIntAttr(attributes, ATTR_AVERAGE_BANDWIDTH, -1);
+        String codecs =
+            intern(
+                parseOptionalStringAttr(attributes, ATTR_CODECS, variableDefinitions),
+                internedStrings);
+        String resolutionString = attributes.get(ATTR_RESOLUTION);
         int width;
         int height;
-        if (resolutionString != null) {
+        if (resolutionString != null && isResolution(resolutionString)) {
           String[] widthAndHeight = Util.split(resolutionString, "x");
           width = Integer.parseInt(widthAndHeight[0]);
           height = Integer.parseInt(widthAndHeight[1]);
@@ -399,21 +413,31 @@ public final class HlsPlaylistParser implements ParsingLoadable.Parser<HlsPlayli
           height = Format.NO_VALUE;
         }
         float frameRate = Format.NO_VALUE;
-        String frameRateString =
-            parseOptionalStringAttr(line, REGEX_FRAME_RATE, variableDefinitions);
-        if (frameRateString != null) {
+        String frameRateString = attributes.get(ATTR_FRAME_RATE);
+        if (frameRateString != null && isDecimalFloatingPoint(frameRateString)) {
           frameRate = Float.parseFloat(frameRateString);
         }
-        String videoGroupId = parseOptionalStringAttr(line, REGEX_VIDEO, variableDefinitions);
-        String audioGroupId = parseOptionalStringAttr(line, REGEX_AUDIO, variableDefinitions);
+        String videoGroupId =
+            intern(
+                parseOptionalStringAttr(attributes, ATTR_VIDEO, variableDefinitions),
+                internedStrings);
+        String audioGroupId =
+            intern(
+                parseOptionalStringAttr(attributes, ATTR_AUDIO, variableDefinitions),
+                internedStrings);
         String subtitlesGroupId =
-            parseOptionalStringAttr(line, REGEX_SUBTITLES, variableDefinitions);
+            intern(
+                parseOptionalStringAttr(attributes, ATTR_SUBTITLES, variableDefinitions),
+                internedStrings);
         String closedCaptionsGroupId =
-            parseOptionalStringAttr(line, REGEX_CLOSED_CAPTIONS, variableDefinitions);
+            intern(
+                parseOptionalStringAttr(attributes, ATTR_CLOSED_CAPTIONS, variableDefinitions),
+                internedStrings);
         Uri uri;
         if (isIFrameOnlyVariant) {
           uri =
-              UriUtil.resolveToUri(baseUri, parseStringAttr(line, REGEX_URI, variableDefinitions));
+              UriUtil.resolveToUri(
+                  baseUri, parseStringAttr(attributes, ATTR_URI, variableDefinitions));
         } else if (!iterator.hasNext()) {
           throw ParserException.createForMalformedManifest(
               "#EXT-X-STREAM-INF must be followed by another line", /* cause= */ null);
@@ -475,22 +499,29 @@ public final class HlsPlaylistParser implements ParsingLoadable.Parser<HlsPlayli
 
     for (int i = 0; i < mediaTags.size(); i++) {
       line = mediaTags.get(i);
-      String groupId = parseStringAttr(line, REGEX_GROUP_ID, variableDefinitions);
-      String name = parseStringAttr(line, REGEX_NAME, variableDefinitions);
+      HlsAttributeList attributes = HlsAttributeList.parse(line);
+      String groupId =
+          intern(
+              parseStringAttr(attributes, ATTR_GROUP_ID, variableDefinitions), internedStrings);
+      String name = parseStringAttr(attributes, ATTR_NAME, variableDefinitions);
       Format.Builder formatBuilder =
           new Format.Builder()
               .setId(groupId + ":" + name)
               .setLabel(name)
               .setContainerMimeType(MimeTypes.APPLICATION_M3U8)
-              .setSelectionFlags(parseSelectionFlags(line))
-              .setRoleFlags(parseRoleFlags(line, variableDefinitions))
-              .setLanguage(parseOptionalStringAttr(line, REGEX_LANGUAGE, variableDefinitions));
-
-      @Nullable String referenceUri = parseOptionalStringAttr(line, REGEX_URI, variableDefinitions);
+              .setSelectionFlags(parseSelectionFlags(attributes))
+              .setRoleFlags(parseRoleFlags(attributes, variableDefinitions))
+              .setLanguage(
+                  intern(
+                      parseOptionalStringAttr(attributes, ATTR_LANGUAGE, variableDefinitions),
+                      internedStrings));
+
+      @Nullable
+      String referenceUri = parseOptionalStringAttr(attributes, ATTR_URI, variableDefinitions);
       @Nullable Uri uri = referenceUri == null ? null : UriUtil.resolveToUri(baseUri, referenceUri);
       Metadata metadata =
           new Metadata(new HlsTrackMetadataEntry(groupId, name, Collections.emptyList()));
-      switch (parseStringAttr(line, REGEX_TYPE, variableDefinitions)) {
+      switch (parseMediaType(attributes)) {
         case TYPE_VIDEO:
           @Nullable Variant variant = getVariantWithVideoGroup(variants, groupId);
           if (variant != null) {
@@ -522,7 +553,7 @@ public final class HlsPlaylistParser implements ParsingLoadable.Parser<HlsPlayli
           }
           @Nullable
           String channelsString =
-              parseOptionalStringAttr(line, REGEX_CHANNELS, variableDefinitions);
+              parseOptionalStringAttr(attributes, ATTR_CHANNELS, variableDefinitions);
           if (channelsString != null) {
             int channelCount = Integer.parseInt(Util.splitAtFirst(channelsString, "/")[0]);
             formatBuilder.setChannelCount(channelCount);
@@ -560,7 +591,7 @@ public final class HlsPlaylistParser implements ParsingLoadable.Parser<HlsPlayli
           }
           break;
         case TYPE_CLOSED_CAPTIONS:
-          String instreamId = parseStringAttr(line, REGEX_INSTREAM_ID, variableDefinitions);
+          String instreamId = parseInstreamId(attributes, variableDefinitions);
           int accessibilityChannel;
           if (instreamId.startsWith("CC")) {
             sampleMimeType = MimeTypes.APPLICATION_CEA608;
@@ -639,6 +670,7 @@ public final class HlsPlaylistParser implements ParsingLoadable.Parser<HlsPlayli
   private static HlsMediaPlaylist parseMediaPlaylist(
       HlsMultivariantPlaylist multivariantPlaylist,
       @Nullable HlsMediaPlaylist previousMediaPlaylist,
+      boolean reusePreviousSegments,
       LineIterator iterator,
       String baseUri)
       throws IOException {
@@ -688,15 +720,26 @@ public final class HlsPlaylistParser implements ParsingLoadable.Parser<HlsPlayli
     TreeMap<String, SchemeData> currentSchemeDatas = new TreeMap<>();
     @Nullable String encryptionScheme = null;
     @Nullable DrmInitData cachedDrmInitData = null;
+    @Nullable
+    ReusableSegments reusableSegments =
+        reusePreviousSegments && previousMediaPlaylist != null
+            ? new ReusableSegments(previousMediaPlaylist)
+            : null;
 
     String line;
-    while (iterator.hasNext()) {
+    while (iterator.hasNext()
+        || (reusableSegments != null
+            && reusableSegments.disable(iterator, /* segmentUriLine= */ null))) {
       line = iterator.next();
 
-      if (line.startsWith(TAG_PREFIX)) {
+      if (line.startsWith(TAG_PREFIX)
+          && (reusableSegments == null || !reusableSegments.consumeReplayedTag())) {
         // We expose all tags through the playlist.
         tags.add(line);
       }
+      if (reusableSegments != null && reusableSegments.maybeDeferSegmentTag(line)) {
+        continue;
+      }
 
       if (line.startsWith(TAG_PLAYLIST_TYPE)) {
         String playlistTypeString = parseStringAttr(line, REGEX_PLAYLIST_TYPE, variableDefinitions);
@@ -770,8 +813,9 @@ public final class HlsPlaylistParser implements ParsingLoadable.Parser<HlsPlayli
               parseStringAttr(line, REGEX_VALUE, variableDefinitions));
         }
       } else if (line.startsWith(TAG_MEDIA_DURATION)) {
-        segmentDurationUs = parseTimeSecondsToUs(line, REGEX_MEDIA_DURATION);
-        segmentTitle = parseOptionalStringAttr(line, REGEX_MEDIA_TITLE, "", variableDefinitions);
+        int durationEnd = getMediaDurationEnd(line);
+        segmentDurationUs = parseMediaDurationUs(line, durationEnd);
+        segmentTitle = parseMediaTitle(line, durationEnd, variableDefinitions);
       } else if (line.startsWith(TAG_SKIP)) {
         int skippedSegmentCount = parseIntAttr(line, REGEX_SKIPPED_SEGMENTS);
         checkState(previousMediaPlaylist != null && segments.isEmpty());
@@ -916,16 +960,21 @@ public final class HlsPlaylistParser implements ParsingLoadable.Parser<HlsPlayli
         String segmentEncryptionIV =
             getSegmentEncryptionIV(
                 segmentMediaSequence, fullSegmentEncryptionKeyUri, fullSegmentEncryptionIV);
-        String url = parseStringAttr(line, REGEX_URI, variableDefinitions);
+        HlsAttributeList attributes = HlsAttributeList.parse(line);
+        String url = parseStringAttr(attributes, ATTR_URI, variableDefinitions);
         long partDurationUs =
-            (long) (parseDoubleAttr(line, REGEX_ATTR_DURATION) * C.MICROS_PER_SECOND);
+            (long) (parseDoubleAttr(attributes, ATTR_DURATION) * C.MICROS_PER_SECOND);
         boolean isIndependent =
-            parseOptionalBooleanAttribute(line, REGEX_INDEPENDENT, /* defaultValue= */ false);
+            parseOptionalBooleanAttribute(attributes, ATTR_INDEPENDENT, /* defaultValue= */ false);
         // The first part of a segment is always independent if the segments are independent.
         isIndependent |= hasIndependentSegmentsTag && trailingParts.isEmpty();
-        boolean isGap = parseOptionalBooleanAttribute(line, REGEX_GAP, /* defaultValue= */ false);
+        boolean isGap =
+            parseOptionalBooleanAttribute(attributes, ATTR_GAP, /* defaultValue= */ false);
         @Nullable
-        String byteRange = parseOptionalStringAttr(line, REGEX_ATTR_BYTERANGE, variableDefinitions);
+        String byteRange = parseOptionalStringAttr(attributes, ATTR_BYTERANGE, variableDefinitions);
+        if (byteRange != null && !isByteRange(byteRange)) {
+          byteRange = null;
+        }
         long partByteRangeLength = C.LENGTH_UNSET;
         if (byteRange != null) {
           String[] splitByteRange = Util.split(byteRange, "@");
@@ -963,6 +1012,57 @@ public final class HlsPlaylistParser implements ParsingLoadable.Parser<HlsPlayli
         if (partByteRangeLength != C.LENGTH_UNSET) {
           partByteRangeOffset += partByteRangeLength;
         }
+      } else if (!line.startsWith("#")
+          && reusableSegments != null
+          && reusableSegments.isEnabled()) {
+        @Nullable Segment segment = reusableSegments.getSegment(segmentMediaSequence);
+        String segmentUri =
+            variableDefinitions.isEmpty()
+                ? line
+                : replaceVariableReferences(line, variableDefinitions);
+        if (cachedDrmInitData == null && !currentSchemeDatas.isEmpty()) {
+          SchemeData[] schemeDatas = currentSchemeDatas.values().toArray(new SchemeData[0]);
+          cachedDrmInitData = new DrmInitData(encryptionScheme, schemeDatas);
+          if (playlistProtectionSchemes == null) {
+            playlistProtectionSchemes = getPlaylistProtectionSchemes(encryptionScheme, schemeDatas);
+          }
+        }
+        if (segment == null
+            || isIFrameOnly
+            || !reusableSegments.matchesDeferredTags(
+                segment, segmentByteRangeOffset, variableDefinitions)
+            || !canReuseSegment(
+                segment,
+                segmentUri,
+                initializationSegment,
+                cachedDrmInitData,
+                fullSegmentEncryptionKeyUri,
+                getSegmentEncryptionIV(
+                    segmentMediaSequence, fullSegmentEncryptionKeyUri, fullSegmentEncryptionIV))) {
+          // Parse the deferred tags and this segment again.
+          reusableSegments.disable(iterator, /* segmentUriLine= */ line);
+          continue;
+        }
+        if (segment.relativeStartTimeUs != segmentStartTimeUs
+            || segment.relativeDiscontinuitySequence != relativeDiscontinuitySequence) {
+          segment = segment.copyWith(segmentStartTimeUs, relativeDiscontinuitySequence);
+        }
+        segments.add(segment);
+        reusableSegments.onSegmentReused(segmentMediaSequence);
+        segmentMediaSequence++;
+        segmentStartTimeUs += segment.durationUs;
+        partStartTimeUs = segmentStartTimeUs;
+        segmentByteRangeOffset =
+            segment.byteRangeLength != C.LENGTH_UNSET
+                ? segment.byteRangeOffset + segment.byteRangeLength
+                : 0;
+        if (!segment.parts.isEmpty()) {
+          Part lastPart = Iterables.getLast(segment.parts);
+          partByteRangeOffset =
+              lastPart.byteRangeLength != C.LENGTH_UNSET
+                  ? lastPart.byteRangeOffset + lastPart.byteRangeLength
+                  : 0;
+        }
       } else if (!line.startsWith("#")) {
         @Nullable
         String segmentEncryptionIV =
@@ -1071,6 +1171,29 @@ public final class HlsPlaylistParser implements ParsingLoadable.Parser<HlsPlayli
         renditionReportMap);
   }
 
+  private static boolean canReuseSegment(
+      Segment segment,
+      String segmentUri,
+      @Nullable Segment initializationSegment,
+      @Nullable DrmInitData drmInitData,
+      @Nullable String fullSegmentEncryptionKeyUri,
+      @Nullable String encryptionIV) {
+    @Nullable Segment reusedInitializationSegment = segment.initializationSegment;
+    boolean isSameInitializationSegment =
+        reusedInitializationSegment == null || initializationSegment == null
+            ? reusedInitializationSegment == initializationSegment
+            : reusedInitializationSegment.url.equals(initializationSegment.url)
+                && reusedInitializationSegment.byteRangeOffset
+                    == initializationSegment.byteRangeOffset
+                && reusedInitializationSegment.byteRangeLength
+                    == initializationSegment.byteRangeLength;
+    return isSameInitializationSegment
+        && segment.url.equals(segmentUri)
+        && Util.areEqual(segment.drmInitData, drmInitData)
+        && Util.areEqual(segment.fullSegmentEncryptionKeyUri, fullSegmentEncryptionKeyUri)
+        && Util.areEqual(segment.encryptionIV, encryptionIV);
+  }
+
   private static DrmInitData getPlaylistProtectionSchemes(
       @Nullable String encryptionScheme, SchemeData[] schemeDatas) {
     SchemeData[] playlistSchemeDatas = new SchemeData[schemeDatas.length];
@@ -1093,24 +1216,24 @@ public final class HlsPlaylistParser implements ParsingLoadable.Parser<HlsPlayli
     return Long.toHexString(segmentMediaSequence);
   }
 
-  private static @C.SelectionFlags int parseSelectionFlags(String line) {
+  private static @C.SelectionFlags int parseSelectionFlags(HlsAttributeList attributes) {
     int flags = 0;
-    if (parseOptionalBooleanAttribute(line, REGEX_DEFAULT, false)) {
+    if (parseOptionalBooleanAttribute(attributes, ATTR_DEFAULT, false)) {
       flags |= C.SELECTION_FLAG_DEFAULT;
     }
-    if (parseOptionalBooleanAttribute(line, REGEX_FORCED, false)) {
+    if (parseOptionalBooleanAttribute(attributes, ATTR_FORCED, false)) {
       flags |= C.SELECTION_FLAG_FORCED;
     }
-    if (parseOptionalBooleanAttribute(line, REGEX_AUTOSELECT, false)) {
+    if (parseOptionalBooleanAttribute(attributes, ATTR_AUTOSELECT, false)) {
       flags |= C.SELECTION_FLAG_AUTOSELECT;
     }
     return flags;
   }
 
   private static @C.RoleFlags int parseRoleFlags(
-      String line, Map<String, String> variableDefinitions) {
+      HlsAttributeList attributes, Map<String, String> variableDefinitions) {
     String concatenatedCharacteristics =
-        parseOptionalStringAttr(line, REGEX_CHARACTERISTICS, variableDefinitions);
+        parseOptionalStringAttr(attributes, ATTR_CHARACTERISTICS, variableDefinitions);
     if (TextUtils.isEmpty(concatenatedCharacteristics)) {
       return 0;
     }
@@ -1211,12 +1334,6 @@ public final class HlsPlaylistParser implements ParsingLoadable.Parser<HlsPlayli
     return defaultValue;
   }
 
-  private static long parseTimeSecondsToUs(String line, Pattern pattern) throws ParserException {
-    String timeValueSeconds = parseStringAttr(line, pattern, Collections.emptyMap());
-    BigDecimal timeValue = new BigDecimal(timeValueSeconds);
-    return timeValue.multiply(new BigDecimal(C.MICROS_PER_SECOND)).longValue();
-  }
-
   private static double parseDoubleAttr(String line, Pattern pattern) throws ParserException {
     return Double.parseDouble(parseStringAttr(line, pattern, Collections.emptyMap()));
   }
@@ -1286,18 +1403,202 @@ public final class HlsPlaylistParser implements ParsingLoadable.Parser<HlsPlayli
     return defaultValue;
   }
 
+  /**
+   * Returns the end of the duration of an #EXTINF line, which starts after the colon. The duration
+   * is empty if the line is malformed.
+   */
+  private static int getMediaDurationEnd(String line) {
+    int durationStart = TAG_MEDIA_DURATION.length() + 1;
+    if (line.length() < durationStart || line.charAt(durationStart - 1) != ':') {
+      return durationStart;
+    }
+    int durationEnd = durationStart;
+    while (durationEnd < line.length() && isDecimalFloatingPointChar(line.charAt(durationEnd))) {
+      durationEnd++;
+    }
+    return durationEnd;
+  }
+
+  private static long parseMediaDurationUs(String line, int durationEnd) throws ParserException {
+    int durationStart = TAG_MEDIA_DURATION.length() + 1;
+    if (durationEnd <= durationStart) {
+      throw ParserException.createForMalformedManifest(
+          "Couldn't parse the duration in " + line, /* cause= */ null);
+    }
+    BigDecimal timeValue = new BigDecimal(line.substring(durationStart, durationEnd));
+    return timeValue.multiply(new BigDecimal(C.MICROS_PER_SECOND)).longValue();
+  }
+
+  private static String parseMediaTitle(
+      String line, int durationEnd, Map<String, String> variableDefinitions) {
+    if (durationEnd + 1 >= line.length() || line.charAt(durationEnd) != ',') {
+      return "";
+    }
+    String title = line.substring(durationEnd + 1);
+    return variableDefinitions.isEmpty()
+        ? title
+        : replaceVariableReferences(title, variableDefinitions);
+  }
+
+  private static String parseMediaType(HlsAttributeList attributes) throws ParserException {
+    @Nullable String type = attributes.get(ATTR_TYPE);
+    if (TYPE_AUDIO.equals(type)
+        || TYPE_VIDEO.equals(type)
+        || TYPE_SUBTITLES.equals(type)
+        || TYPE_CLOSED_CAPTIONS.equals(type)) {
+      return type;
+    }
+    throw createMissingAttributeException(attributes, ATTR_TYPE);
+  }
+
+  private static String parseInstreamId(
+      HlsAttributeList attributes, Map<String, String> variableDefinitions)
+      throws ParserException {
+    String instreamId = parseStringAttr(attributes, ATTR_INSTREAM_ID, variableDefinitions);
+    int channelStart =
+        instreamId.startsWith("CC") ? 2 : instreamId.startsWith("SERVICE") ? 7 : C.INDEX_UNSET;
+    if (channelStart == C.INDEX_UNSET
+        || !isDecimalInteger(instreamId, channelStart, instreamId.length())) {
+      throw createMissingAttributeException(attributes, ATTR_INSTREAM_ID);
+    }
+    return instreamId;
+  }
+
+  private static int parseIntAttr(HlsAttributeList attributes, String name)
+      throws ParserException {
+    @Nullable String value = attributes.get(name);
+    if (value == null || !isDecimalInteger(value, /* start= */ 0, value.length())) {
+      throw createMissingAttributeException(attributes, name);
+    }
+    return Integer.parseInt(value);
+  }
+
+  private static int parseOptionalIntAttr(
+      HlsAttributeList attributes, String name, int defaultValue) {
+    @Nullable String value = attributes.get(name);
+    return value != null && isDecimalInteger(value, /* start= */ 0, value.length())
+        ? Integer.parseInt(value)
+        : defaultValue;
+  }
+
+  private static double parseDoubleAttr(HlsAttributeList attributes, String name)
+      throws ParserException {
+    @Nullable String value = attributes.get(name);
+    if (value == null || !isDecimalFloatingPoint(value)) {
+      throw createMissingAttributeException(attributes, name);
+    }
+    return Double.parseDouble(value);
+  }
+
+  private static boolean parseOptionalBooleanAttribute(
+      HlsAttributeList attributes, String name, boolean defaultValue) {
+    @Nullable String value = attributes.get(name);
+    if (BOOLEAN_TRUE.equals(value)) {
+      return true;
+    } else if (BOOLEAN_FALSE.equals(value)) {
+      return false;
+    }
+    return defaultValue;
+  }
+
+  private static String parseStringAttr(
+      HlsAttributeList attributes, String name, Map<String, String> variableDefinitions)
+      throws ParserException {
+    @Nullable String value = parseOptionalStringAttr(attributes, name, variableDefinitions);
+    if (value == null) {
+      throw createMissingAttributeException(attributes, name);
+    }
+    return value;
+  }
+
+  @Nullable
+  private static String parseOptionalStringAttr(
+      HlsAttributeList attributes, String name, Map<String, String> variableDefinitions) {
+    @Nullable String value = attributes.get(name);
+    return variableDefinitions.isEmpty() || value == null
+        ? value
+        : replaceVariableReferences(value, variableDefinitions);
+  }
+
+  private static ParserException createMissingAttributeException(
+      HlsAttributeList attributes, String name) {
+    return ParserException.createForMalformedManifest(
+        "Couldn't match " + name + " in " + attributes.line, /* cause= */ null);
+  }
+
+  /**
+   * Returns an instance equal to {@code string} that's shared by all equal strings passed to this
+   * method with the same {@code internedStrings}.
+   */
+  private static @PolyNull String intern(
+      @PolyNull String string, Map<String, String> internedStrings) {
+    if (string == null) {
+      return null;
+    }
+    @Nullable String internedString = internedStrings.get(string);
+    if (internedString != null) {
+      return internedString;
+    }
+    internedStrings.put(string, string);
+    return string;
+  }
+
+  private static boolean isResolution(String value) {
+    int separatorIndex = value.indexOf('x');
+    return separatorIndex != -1
+        && isDecimalInteger(value, /* start= */ 0, separatorIndex)
+        && isDecimalInteger(value, separatorIndex + 1, value.length());
+  }
+
+  private static boolean isByteRange(String value) {
+    int separatorIndex = value.indexOf('@');
+    return separatorIndex == -1
+        ? isDecimalInteger(value, /* start= */ 0, value.length())
+        : isDecimalInteger(value, /* start= */ 0, separatorIndex)
+            && isDecimalInteger(value, separatorIndex + 1, value.length());
+  }
+
+  private static boolean isDecimalInteger(String value, int start, int end) {
+    if (start >= end) {
+      return false;
+    }
+    for (int i = start; i < end; i++) {
+      char c = value.charAt(i);
+      if (c < '0' || c > '9') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isDecimalFloatingPoint(String value) {
+    if (value.isEmpty()) {
+      return false;
+    }
+    for (int i = 0; i < value.length(); i++) {
+      if (!isDecimalFloatingPointChar(value.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isDecimalFloatingPointChar(char c) {
+    return (c >= '0' && c <= '9') || c == '.';
+  }
+
   private static Pattern compileBooleanAttrPattern(String attribute) {
     return Pattern.compile(attribute + "=(" + BOOLEAN_FALSE + "|" + BOOLEAN_TRUE + ")");
   }
 
   private static class LineIterator {
 
-    private final BufferedReader reader;
+    private final HlsLineReader reader;
     private final Queue<String> extraLines;
 
     @Nullable private String next;
 
-    public LineIterator(Queue<String> extraLines, BufferedReader reader) {
+    public LineIterator(Queue<String> extraLines, HlsLineReader reader) {
       this.extraLines = extraLines;
       this.reader = reader;
     }
@@ -1311,13 +1612,8 @@ public final class HlsPlaylistParser implements ParsingLoadable.Parser<HlsPlayli
         next = checkNotNull(extraLines.poll());
         return true;
       }
-      while ((next = reader.readLine()) != null) {
-        next = next.trim();
-        if (!next.isEmpty()) {
-          return true;
-        }
-      }
-      return false;
+      next = reader.readLine();
+      return next != null;
     }
 
     /** Return the next line, or throw {@link NoSuchElementException} if none. */
@@ -1330,5 +1626,162 @@ public final class HlsPlaylistParser implements ParsingLoadable.Parser<HlsPlayli
         throw new NoSuchElementException();
       }
     }
+
+    /** Queues lines that have already been returned to be returned again, in order. */
+    public void pushBack(List<String> lines) {
+      Queue<String> remainingLines = new ArrayDeque<>(lines);
+      if (next != null) {
+        remainingLines.add(next);
+        next = null;
+      }
+      remainingLines.addAll(extraLines);
+      extraLines.clear();
+      extraLines.addAll(remainingLines);
+    }
+  }
+
+  /**
+   * The segments of a previous media playlist that can be reused while parsing a new media
+   * playlist.
+   *
+   * <p>While segments may be reused, the tags that only describe the next segment are deferred
+   * rather than parsed. They're dropped if the next segment is reused, and parsed again otherwise.
+   * A segment is only reused if the deferred tags describe it exactly. Segments with parts or a gap
+   * tag are never reused, as their parts are typically updated between playlist reloads.
+   */
+  private static final class ReusableSegments {
+
+    private final HlsMediaPlaylist previousMediaPlaylist;
+    private final List<String> deferredLines;
+
+    private boolean enabled;
+    private int replayedTagCount;
+
+    public ReusableSegments(HlsMediaPlaylist previousMediaPlaylist) {
+      this.previousMediaPlaylist = previousMediaPlaylist;
+      deferredLines = new ArrayList<>();
+      enabled = !previousMediaPlaylist.segments.isEmpty();
+    }
+
+    /** Returns whether segments may still be reused. */
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    /**
+     * Returns the segment of the previous playlist with the given media sequence number, or null if
+     * there's no such segment.
+     */
+    @Nullable
+    public Segment getSegment(long mediaSequence) {
+      long index = mediaSequence - previousMediaPlaylist.mediaSequence;
+      return index >= 0 && index < previousMediaPlaylist.segments.size()
+          ? previousMediaPlaylist.segments.get((int) index)
+          : null;
+    }
+
+    /**
+     * Defers the given line if segments may still be reused and the line is a tag that only
+     * describes the next segment.
+     *
+     * @return Whether the line was deferred.
+     */
+    public boolean maybeDeferSegmentTag(String line) {
+      if (enabled
+          && (line.startsWith(TAG_MEDIA_DURATION)
+              || line.startsWith(TAG_BYTERANGE)
+              || line.equals(TAG_GAP)
+              || (line.startsWith(TAG_PART) && !line.startsWith(TAG_PART_INF)))) {
+        deferredLines.add(line);
+        return true;
+      }
+      return false;
+    }
+
+    /**
+     * Returns whether the deferred tags describe the given segment of the previous playlist, and
+     * the segment has neither parts nor a gap tag.
+     *
+     * @param segment The segment of the previous playlist.
+     * @param segmentByteRangeOffset The byte range offset of the segment if the deferred tags
+     *     define a byte range without an offset.
+     * @param variableDefinitions The variable definitions of the playlist.
+     */
+    public boolean matchesDeferredTags(
+        Segment segment, long segmentByteRangeOffset, Map<String, String> variableDefinitions)
+        throws ParserException {
+      if (!segment.parts.isEmpty() || segment.hasGapTag) {
+        return false;
+      }
+      long durationUs = 0;
+      String title = "";
+      long byteRangeOffset = segmentByteRangeOffset;
+      long byteRangeLength = C.LENGTH_UNSET;
+      for (int i = 0; i < deferredLines.size(); i++) {
+        String line = deferredLines.get(i);
+        if (line.startsWith(TAG_MEDIA_DURATION)) {
+          int durationEnd = getMediaDurationEnd(line);
+          durationUs = parseMediaDurationUs(line, durationEnd);
+          title = parseMediaTitle(line, durationEnd, variableDefinitions);
+        } else if (line.startsWith(TAG_BYTERANGE)) {
+          String byteRange = parseStringAttr(line, REGEX_BYTERANGE, variableDefinitions);
+          String[] splitByteRange = Util.split(byteRange, "@");
+          byteRangeLength = Long.parseLong(splitByteRange[0]);
+          if (splitByteRange.length > 1) {
+            byteRangeOffset = Long.parseLong(splitByteRange[1]);
+          }
+        } else {
+          // A part or a gap tag.
+          return false;
+        }
+      }
+      if (byteRangeLength == C.LENGTH_UNSET) {
+        byteRangeOffset = 0;
+      }
+      return segment.durationUs == durationUs
+          && segment.title.equals(title)
+          && segment.byteRangeOffset == byteRangeOffset
+          && segment.byteRangeLength == byteRangeLength;
+    }
+
+    /** Called when the segment with the given media sequence number has been reused. */
+    public void onSegmentReused(long mediaSequence) {
+      deferredLines.clear();
+      enabled = getSegment(mediaSequence + 1) != null;
+    }
+
+    /**
+     * Stops reusing segments, and queues the deferred lines to be parsed again.
+     *
+     * @param iterator The {@link LineIterator} of the playlist.
+     * @param segmentUriLine The URI line of a segment that couldn't be reused, to be queued after
+     *     the deferred lines, or null.
+     * @return Whether any line was queued.
+     */
+    public boolean disable(LineIterator iterator, @Nullable String segmentUriLine) {
+      enabled = false;
+      replayedTagCount = deferredLines.size();
+      if (segmentUriLine != null) {
+        deferredLines.add(segmentUriLine);
+      }
+      if (deferredLines.isEmpty()) {
+        return false;
+      }
+      iterator.pushBack(deferredLines);
+      deferredLines.clear();
+      return true;
+    }
+
+    /**
+     * Returns whether a tag line that's being parsed is a deferred tag that's parsed again. Such a
+     * tag has already been added to the playlist tags.
+     */
+    public boolean consumeReplayedTag() {
+      if (replayedTagCount > 0) {
+        replayedTagCount--;
+        return true;
+      }
+      return false;
+    }
   }
 }
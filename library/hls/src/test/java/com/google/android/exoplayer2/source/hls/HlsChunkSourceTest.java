@@ -33,14 +33,24 @@ import com.google.android.exoplayer2.source.hls.playlist.HlsMediaPlaylist;
 import com.google.android.exoplayer2.source.hls.playlist.HlsPlaylistParser;
 import com.google.android.exoplayer2.source.hls.playlist.HlsPlaylistTracker;
 import com.google.android.exoplayer2.testutil.ExoPlayerTestRunner;
+import com.google.android.exoplayer2.testutil.FakeDataSet;
 import com.google.android.exoplayer2.testutil.FakeDataSource;
 import com.google.android.exoplayer2.testutil.TestUtil;
 import com.google.android.exoplayer2.upstream.CmcdConfiguration;
+import com.google.android.exoplayer2.upstream.cache.CacheDataSource;
+import com.google.android.exoplayer2.upstream.cache.NoOpCacheEvictor;
+import com.google.android.exoplayer2.upstream.cache.SegmentPrefetcher;
+import com.google.android.exoplayer2.upstream.cache.SimpleCache;
 import com.google.android.exoplayer2.util.MimeTypes;
+import com.google.android.exoplayer2.util.Util;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.MoreExecutors;
+import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Set;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -55,6 +65,26 @@ public class HlsChunkSourceTest {
   private static final String PLAYLIST_INDEPENDENT_SEGMENTS =
       "media/m3u8/media_playlist_independent_segments";
   private static final String PLAYLIST_EMPTY = "media/m3u8/media_playlist_empty";
+  private static final String PLAYLIST_PRELOAD_HINT_HEADER =
+      "#EXTM3U\n"
+          + "#EXT-X-TARGETDURATION:4\n"
+          + "#EXT-X-VERSION:6\n"
+          + "#EXT-X-PART-INF:PART-TARGET=1\n"
+          + "#EXT-X-SERVER-CONTROL:CAN-BLOCK-RELOAD=YES\n"
+          + "#EXT-X-MEDIA-SEQUENCE:10\n"
+          + "#EXTINF:4,\n"
+          + "segment10.mp4\n"
+          + "#EXT-X-PART:DURATION=1,URI=\"segment11.mp4\",BYTERANGE=100@0,INDEPENDENT=YES\n";
+  private static final String PLAYLIST_PRELOAD_HINT =
+      PLAYLIST_PRELOAD_HINT_HEADER
+          + "#EXT-X-PRELOAD-HINT:TYPE=PART,URI=\"segment11.mp4\",BYTERANGE-START=100,"
+          + "BYTERANGE-LENGTH=100\n";
+  private static final String PLAYLIST_PRELOAD_HINT_PUBLISHED =
+      PLAYLIST_PRELOAD_HINT_HEADER
+          + "#EXT-X-PART:DURATION=1,URI=\"segment11.mp4\",BYTERANGE=100@100\n";
+  private static final String PLAYLIST_PRELOAD_HINT_PUBLISHED_OTHER_BYTE_RANGE =
+      PLAYLIST_PRELOAD_HINT_HEADER
+          + "#EXT-X-PART:DURATION=1,URI=\"segment11.mp4\",BYTERANGE=80@100\n";
   private static final Uri PLAYLIST_URI = Uri.parse("http://example.com/");
   private static final long PLAYLIST_START_PERIOD_OFFSET_US = 8_000_000L;
   private static final Uri IFRAME_URI = Uri.parse("http://example.com/iframe");
@@ -312,7 +342,106 @@ public class HlsChunkSourceTest {
             "key4=5.0");
   }
 
+  @Test
+  public void getNextChunk_withSegmentPrefetcher_prefetchesFollowingSegments() throws Exception {
+    File tempFolder =
+        Util.createTempDirectory(ApplicationProvider.getApplicationContext(), "ExoPlayerTest");
+    SimpleCache cache =
+        new SimpleCache(tempFolder, new NoOpCacheEvictor(), TestUtil.getInMemoryDatabaseProvider());
+    FakeDataSet fakeDataSet =
+        new FakeDataSet()
+            .setRandomData("http://example.com/3.mp4", 10)
+            .setRandomData("http://example.com/4.mp4", 10)
+            .setRandomData("http://example.com/5.mp4", 10);
+    SegmentPrefetcher segmentPrefetcher =
+        new SegmentPrefetcher(
+            new CacheDataSource.Factory()
+                .setCache(cache)
+                .setUpstreamDataSourceFactory(
+                    new FakeDataSource.Factory().setFakeDataSet(fakeDataSet)),
+            MoreExecutors.directExecutor(),
+            /* prefetchSegmentCount= */ 2);
+    HlsChunkSource testChunkSource =
+        createHlsChunkSource(/* cmcdConfiguration= */ null, segmentPrefetcher);
+    HlsChunkSource.HlsChunkHolder output = new HlsChunkSource.HlsChunkHolder();
+
+    testChunkSource.getNextChunk(
+        /* playbackPositionUs= */ 0,
+        /* loadPositionUs= */ 0,
+        /* queue= */ ImmutableList.of(),
+        /* allowEndOfStream= */ true,
+        output);
+    Set<String> cachedKeys = cache.getKeys();
+    cache.release();
+    Util.recursiveDelete(tempFolder);
+
+    assertThat(output.chunk.dataSpec.uri.toString()).isEqualTo("http://example.com/2.mp4");
+    assertThat(cachedKeys).containsExactly("http://example.com/3.mp4", "http://example.com/4.mp4");
+  }
+
+  @Test
+  public void getChunkPublicationState_preloadPartPublishedWithSameByteRange_returnsPublished()
+      throws IOException {
+    HlsMediaChunk preloadChunk = createPreloadPartChunk(parsePlaylist(PLAYLIST_PRELOAD_HINT));
+    when(mockPlaylistTracker.getPlaylistSnapshot(eq(PLAYLIST_URI), anyBoolean()))
+        .thenReturn(parsePlaylist(PLAYLIST_PRELOAD_HINT_PUBLISHED));
+    HlsChunkSource testChunkSource = createHlsChunkSource(/* cmcdConfiguration= */ null);
+
+    assertThat(testChunkSource.getChunkPublicationState(preloadChunk))
+        .isEqualTo(HlsChunkSource.CHUNK_PUBLICATION_STATE_PUBLISHED);
+  }
+
+  @Test
+  public void getChunkPublicationState_preloadPartPublishedWithOtherByteRange_returnsRemoved()
+      throws IOException {
+    HlsMediaChunk preloadChunk = createPreloadPartChunk(parsePlaylist(PLAYLIST_PRELOAD_HINT));
+    when(mockPlaylistTracker.getPlaylistSnapshot(eq(PLAYLIST_URI), anyBoolean()))
+        .thenReturn(parsePlaylist(PLAYLIST_PRELOAD_HINT_PUBLISHED_OTHER_BYTE_RANGE));
+    HlsChunkSource testChunkSource = createHlsChunkSource(/* cmcdConfiguration= */ null);
+
+    assertThat(testChunkSource.getChunkPublicationState(preloadChunk))
+        .isEqualTo(HlsChunkSource.CHUNK_PUBLICATION_STATE_REMOVED);
+  }
+
+  private static HlsMediaPlaylist parsePlaylist(String playlistString) throws IOException {
+    return (HlsMediaPlaylist)
+        new HlsPlaylistParser()
+            .parse(PLAYLIST_URI, new ByteArrayInputStream(Util.getUtf8Bytes(playlistString)));
+  }
+
+  private static HlsMediaChunk createPreloadPartChunk(HlsMediaPlaylist playlist) {
+    HlsMediaPlaylist.Part preloadPart = playlist.trailingParts.get(1);
+    assertThat(preloadPart.isPreload).isTrue();
+    return HlsMediaChunk.createInstance(
+        HlsExtractorFactory.DEFAULT,
+        new FakeDataSource(),
+        ExoPlayerTestRunner.VIDEO_FORMAT,
+        /* startOfPlaylistInPeriodUs= */ 0,
+        playlist,
+        new HlsChunkSource.SegmentBaseHolder(
+            preloadPart, /* mediaSequence= */ 11, /* partIndex= */ 1),
+        PLAYLIST_URI,
+        /* muxedCaptionFormats= */ null,
+        C.SELECTION_REASON_UNKNOWN,
+        /* trackSelectionData= */ null,
+        /* isPrimaryTimestampSource= */ true,
+        new TimestampAdjusterProvider(),
+        /* timestampAdjusterInitializationTimeoutMs= */ 0,
+        /* previousChunk= */ null,
+        /* mediaSegmentKey= */ null,
+        /* initSegmentKey= */ null,
+        /* shouldSpliceIn= */ false,
+        PlayerId.UNSET,
+        /* cmcdHeadersFactory= */ null);
+  }
+
   private HlsChunkSource createHlsChunkSource(@Nullable CmcdConfiguration cmcdConfiguration) {
+    return createHlsChunkSource(cmcdConfiguration, /* segmentPrefetcher= */ null);
+  }
+
+  private HlsChunkSource createHlsChunkSource(
+      @Nullable CmcdConfiguration cmcdConfiguration,
+      @Nullable SegmentPrefetcher segmentPrefetcher) {
     return new HlsChunkSource(
         HlsExtractorFactory.DEFAULT,
         mockPlaylistTracker,
@@ -324,7 +453,8 @@ public class HlsChunkSourceTest {
         /* timestampAdjusterInitializationTimeoutMs= */ 0,
         /* muxedCaptionFormats= */ null,
         PlayerId.UNSET,
-        cmcdConfiguration);
+        cmcdConfiguration,
+        segmentPrefetcher);
   }
 
   private static long playlistTimeToPeriodTimeUs(long playlistTimeUs) {
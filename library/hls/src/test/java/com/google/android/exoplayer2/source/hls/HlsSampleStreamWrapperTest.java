@@ -0,0 +1,243 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.source.hls;
+
+import static com.google.android.exoplayer2.decoder.DecoderInputBuffer.BUFFER_REPLACEMENT_MODE_NORMAL;
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.net.Uri;
+import android.os.Looper;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.FormatHolder;
+import com.google.android.exoplayer2.analytics.PlayerId;
+import com.google.android.exoplayer2.decoder.DecoderInputBuffer;
+import com.google.android.exoplayer2.drm.DrmSessionEventListener;
+import com.google.android.exoplayer2.drm.DrmSessionManager;
+import com.google.android.exoplayer2.robolectric.RobolectricUtil;
+import com.google.android.exoplayer2.source.MediaSourceEventListener;
+import com.google.android.exoplayer2.source.SampleStream;
+import com.google.android.exoplayer2.source.TrackGroup;
+import com.google.android.exoplayer2.source.hls.playlist.HlsMediaPlaylist;
+import com.google.android.exoplayer2.source.hls.playlist.HlsPlaylistParser;
+import com.google.android.exoplayer2.testutil.ExoPlayerTestRunner;
+import com.google.android.exoplayer2.testutil.FakeDataSet;
+import com.google.android.exoplayer2.testutil.FakeDataSource;
+import com.google.android.exoplayer2.testutil.TestUtil;
+import com.google.android.exoplayer2.trackselection.ExoTrackSelection;
+import com.google.android.exoplayer2.trackselection.FixedTrackSelection;
+import com.google.android.exoplayer2.upstream.DefaultAllocator;
+import com.google.android.exoplayer2.upstream.DefaultLoadErrorHandlingPolicy;
+import com.google.android.exoplayer2.util.Util;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Unit tests for {@link HlsSampleStreamWrapper}. */
+@RunWith(AndroidJUnit4.class)
+public final class HlsSampleStreamWrapperTest {
+
+  private static final Uri PLAYLIST_URI = Uri.parse("http://example.com/");
+  private static final Uri PART_URI = Uri.parse("http://example.com/part11.mp4");
+  private static final String PART_DATA = "media/mp4/sample_fragmented.mp4";
+  private static final String PLAYLIST_PRELOAD_HINT =
+      "#EXTM3U\n"
+          + "#EXT-X-TARGETDURATION:4\n"
+          + "#EXT-X-VERSION:6\n"
+          + "#EXT-X-PART-INF:PART-TARGET=1\n"
+          + "#EXT-X-SERVER-CONTROL:CAN-BLOCK-RELOAD=YES\n"
+          + "#EXT-X-MEDIA-SEQUENCE:10\n"
+          + "#EXTINF:4,\n"
+          + "segment10.mp4\n"
+          + "#EXT-X-PRELOAD-HINT:TYPE=PART,URI=\"part11.mp4\"\n";
+
+  private HlsChunkSource chunkSource;
+  private AtomicReference<HlsMediaChunk> nextChunk;
+  private HlsSampleStreamWrapper sampleStreamWrapper;
+
+  @Before
+  public void setUp() {
+    chunkSource = mock(HlsChunkSource.class);
+    nextChunk = new AtomicReference<>();
+    doAnswer(
+            invocation -> {
+              HlsChunkSource.HlsChunkHolder out = invocation.getArgument(4);
+              out.chunk = nextChunk.getAndSet(null);
+              return null;
+            })
+        .when(chunkSource)
+        .getNextChunk(anyLong(), anyLong(), any(), anyBoolean(), any());
+  }
+
+  @After
+  public void tearDown() {
+    if (sampleStreamWrapper != null) {
+      sampleStreamWrapper.release();
+    }
+  }
+
+  @Test
+  public void readData_preloadChunkNotPublished_readsNothing() throws Exception {
+    SampleStream sampleStream =
+        prepareWrapperAndLoadPreloadChunk(/* readPreloadPartsOnResponse= */ false);
+    DecoderInputBuffer buffer = new DecoderInputBuffer(BUFFER_REPLACEMENT_MODE_NORMAL);
+
+    assertThat(readData(sampleStream, buffer)).isEqualTo(C.RESULT_NOTHING_READ);
+
+    when(chunkSource.getChunkPublicationState(any()))
+        .thenReturn(HlsChunkSource.CHUNK_PUBLICATION_STATE_PUBLISHED);
+    sampleStreamWrapper.onPlaylistUpdated();
+
+    assertThat(readData(sampleStream, buffer)).isEqualTo(C.RESULT_FORMAT_READ);
+  }
+
+  @Test
+  public void readData_withReadPreloadPartsOnResponse_readsPreloadChunkOnceResponseReceived()
+      throws Exception {
+    SampleStream sampleStream =
+        prepareWrapperAndLoadPreloadChunk(/* readPreloadPartsOnResponse= */ true);
+    DecoderInputBuffer buffer = new DecoderInputBuffer(BUFFER_REPLACEMENT_MODE_NORMAL);
+
+    assertThat(readData(sampleStream, buffer)).isEqualTo(C.RESULT_FORMAT_READ);
+    assertThat(readData(sampleStream, buffer)).isEqualTo(C.RESULT_BUFFER_READ);
+  }
+
+  @Test
+  public void reevaluateBuffer_readPreloadChunkRemoved_reloadsFromReadPosition() throws Exception {
+    SampleStream sampleStream =
+        prepareWrapperAndLoadPreloadChunk(/* readPreloadPartsOnResponse= */ true);
+    DecoderInputBuffer buffer = new DecoderInputBuffer(BUFFER_REPLACEMENT_MODE_NORMAL);
+    readData(sampleStream, buffer);
+    readData(sampleStream, buffer);
+    long readTimeUs = buffer.timeUs;
+
+    when(chunkSource.getChunkPublicationState(any()))
+        .thenReturn(HlsChunkSource.CHUNK_PUBLICATION_STATE_REMOVED);
+    sampleStreamWrapper.reevaluateBuffer(/* positionUs= */ 0);
+
+    assertThat(readData(sampleStream, buffer)).isEqualTo(C.RESULT_NOTHING_READ);
+    assertThat(sampleStreamWrapper.getBufferedPositionUs()).isEqualTo(readTimeUs + 1);
+    sampleStreamWrapper.continueLoading(/* positionUs= */ 0);
+    verify(chunkSource)
+        .getNextChunk(
+            anyLong(),
+            /* loadPositionUs= */ eq(readTimeUs + 1),
+            /* queue= */ eq(ImmutableList.of()),
+            anyBoolean(),
+            any());
+  }
+
+  /**
+   * Creates a wrapper with a video track, selects the track and loads a chunk for a preload hint.
+   *
+   * @return The {@link SampleStream} of the video track.
+   */
+  private SampleStream prepareWrapperAndLoadPreloadChunk(boolean readPreloadPartsOnResponse)
+      throws IOException, TimeoutException {
+    sampleStreamWrapper =
+        new HlsSampleStreamWrapper(
+            /* uid= */ "0",
+            C.TRACK_TYPE_DEFAULT,
+            mock(HlsSampleStreamWrapper.Callback.class),
+            chunkSource,
+            /* overridingDrmInitData= */ ImmutableMap.of(),
+            new DefaultAllocator(/* trimOnReset= */ true, C.DEFAULT_BUFFER_SEGMENT_SIZE),
+            /* positionUs= */ 0,
+            /* muxedAudioFormat= */ null,
+            DrmSessionManager.DRM_UNSUPPORTED,
+            new DrmSessionEventListener.EventDispatcher(),
+            new DefaultLoadErrorHandlingPolicy(),
+            new MediaSourceEventListener.EventDispatcher(),
+            HlsMediaSource.METADATA_TYPE_ID3,
+            readPreloadPartsOnResponse);
+    TrackGroup trackGroup = new TrackGroup(ExoPlayerTestRunner.VIDEO_FORMAT);
+    sampleStreamWrapper.prepareWithMultivariantPlaylistInfo(
+        new TrackGroup[] {trackGroup}, /* primaryTrackGroupIndex= */ 0);
+    SampleStream[] streams = new SampleStream[1];
+    sampleStreamWrapper.selectTracks(
+        new ExoTrackSelection[] {new FixedTrackSelection(trackGroup, /* track= */ 0)},
+        /* mayRetainStreamFlags= */ new boolean[1],
+        streams,
+        /* streamResetFlags= */ new boolean[1],
+        /* positionUs= */ 0,
+        /* forceReset= */ false);
+
+    nextChunk.set(createPreloadChunk());
+    sampleStreamWrapper.continueLoading(/* positionUs= */ 0);
+    RobolectricUtil.runMainLooperUntil(() -> !sampleStreamWrapper.isLoading());
+    shadowOf(Looper.getMainLooper()).idle();
+    return streams[0];
+  }
+
+  private static HlsMediaChunk createPreloadChunk() throws IOException {
+    HlsMediaPlaylist playlist =
+        (HlsMediaPlaylist)
+            new HlsPlaylistParser()
+                .parse(
+                    PLAYLIST_URI,
+                    new ByteArrayInputStream(Util.getUtf8Bytes(PLAYLIST_PRELOAD_HINT)));
+    HlsMediaPlaylist.Part preloadPart = playlist.trailingParts.get(0);
+    assertThat(preloadPart.isPreload).isTrue();
+    FakeDataSet fakeDataSet =
+        new FakeDataSet()
+            .setData(
+                PART_URI,
+                TestUtil.getByteArray(ApplicationProvider.getApplicationContext(), PART_DATA));
+    return HlsMediaChunk.createInstance(
+        HlsExtractorFactory.DEFAULT,
+        new FakeDataSource(fakeDataSet),
+        ExoPlayerTestRunner.VIDEO_FORMAT,
+        /* startOfPlaylistInPeriodUs= */ 0,
+        playlist,
+        new HlsChunkSource.SegmentBaseHolder(
+            preloadPart, /* mediaSequence= */ 11, /* partIndex= */ 0),
+        PLAYLIST_URI,
+        /* muxedCaptionFormats= */ null,
+        C.SELECTION_REASON_UNKNOWN,
+        /* trackSelectionData= */ null,
+        /* isPrimaryTimestampSource= */ true,
+        new TimestampAdjusterProvider(),
+        /* timestampAdjusterInitializationTimeoutMs= */ 0,
+        /* previousChunk= */ null,
+        /* mediaSegmentKey= */ null,
+        /* initSegmentKey= */ null,
+        /* shouldSpliceIn= */ false,
+        PlayerId.UNSET,
+        /* cmcdHeadersFactory= */ null);
+  }
+
+  private static int readData(SampleStream sampleStream, DecoderInputBuffer buffer) {
+    buffer.clear();
+    return sampleStream.readData(new FormatHolder(), buffer, /* readFlags= */ 0);
+  }
+}
@@ -48,6 +48,9 @@ public class DefaultHlsPlaylistTrackerTest {
       "media/m3u8/live_low_latency_multivariant";
   private static final String SAMPLE_M3U8_LIVE_MULTIVARIANT_MEDIA_URI_WITH_PARAM =
       "media/m3u8/live_low_latency_multivariant_media_uri_with_param";
+  private static final String SAMPLE_M3U8_LIVE_MULTIVARIANT_TWO_VARIANTS =
+      "media/m3u8/live_low_latency_multivariant_two_variants";
+  private static final String SAMPLE_M3U8_VOD_MEDIA = "media/m3u8/media_playlist";
   private static final String SAMPLE_M3U8_LIVE_MEDIA_CAN_SKIP_UNTIL =
       "media/m3u8/live_low_latency_media_can_skip_until";
   private static final String SAMPLE_M3U8_LIVE_MEDIA_CAN_SKIP_UNTIL_FULL_RELOAD_AFTER_ERROR =
@@ -395,6 +398,54 @@ public class DefaultHlsPlaylistTrackerTest {
     assertThat(mediaPlaylists.get(2).mediaSequence).isEqualTo(12);
   }
 
+  @Test
+  public void refreshPlaylist_requestsFullPlaylist()
+      throws IOException, TimeoutException, InterruptedException {
+    List<HttpUrl> httpUrls =
+        enqueueWebServerResponses(
+            new String[] {
+              "/multivariant.m3u8",
+              "/media0/playlist.m3u8",
+              "/media1/playlist.m3u8",
+              "/media1/playlist.m3u8"
+            },
+            getMockResponse(SAMPLE_M3U8_LIVE_MULTIVARIANT_TWO_VARIANTS),
+            getMockResponse(SAMPLE_M3U8_VOD_MEDIA),
+            getMockResponse(SAMPLE_M3U8_LIVE_MEDIA_CAN_SKIP_UNTIL),
+            getMockResponse(SAMPLE_M3U8_LIVE_MEDIA_CAN_SKIP_UNTIL));
+
+    runPlaylistTrackerAndRefreshPlaylistTwice(
+        Uri.parse(mockWebServer.url("/multivariant.m3u8").toString()),
+        Uri.parse(mockWebServer.url("/media1/playlist.m3u8").toString()),
+        /* useReloadRequestForRefresh= */ false);
+
+    assertRequestUrlsCalled(httpUrls);
+  }
+
+  @Test
+  public void refreshPlaylist_withUseReloadRequestForRefresh_requestsDeltaUpdate()
+      throws IOException, TimeoutException, InterruptedException {
+    List<HttpUrl> httpUrls =
+        enqueueWebServerResponses(
+            new String[] {
+              "/multivariant.m3u8",
+              "/media0/playlist.m3u8",
+              "/media1/playlist.m3u8",
+              "/media1/playlist.m3u8?_HLS_skip=YES"
+            },
+            getMockResponse(SAMPLE_M3U8_LIVE_MULTIVARIANT_TWO_VARIANTS),
+            getMockResponse(SAMPLE_M3U8_VOD_MEDIA),
+            getMockResponse(SAMPLE_M3U8_LIVE_MEDIA_CAN_SKIP_UNTIL),
+            getMockResponse(SAMPLE_M3U8_LIVE_MEDIA_CAN_SKIP_SKIPPED));
+
+    runPlaylistTrackerAndRefreshPlaylistTwice(
+        Uri.parse(mockWebServer.url("/multivariant.m3u8").toString()),
+        Uri.parse(mockWebServer.url("/media1/playlist.m3u8").toString()),
+        /* useReloadRequestForRefresh= */ true);
+
+    assertRequestUrlsCalled(httpUrls);
+  }
+
   private List<HttpUrl> enqueueWebServerResponses(String[] paths, MockResponse... mockResponses) {
     assertThat(paths).hasLength(mockResponses.length);
     for (MockResponse mockResponse : mockResponses) {
@@ -443,6 +494,40 @@ public class DefaultHlsPlaylistTrackerTest {
     return mediaPlaylists;
   }
 
+  /**
+   * Starts a tracker and refreshes a playlist that isn't the primary playlist twice, once before
+   * and once after its first snapshot is loaded.
+   */
+  private void runPlaylistTrackerAndRefreshPlaylistTwice(
+      Uri multivariantPlaylistUri, Uri refreshedPlaylistUri, boolean useReloadRequestForRefresh)
+      throws TimeoutException {
+    DataSource.Factory dataSourceFactory = new DefaultHttpDataSource.Factory();
+    DefaultHlsPlaylistTracker defaultHlsPlaylistTracker =
+        new DefaultHlsPlaylistTracker(
+            dataType -> dataSourceFactory.createDataSource(),
+            new DefaultLoadErrorHandlingPolicy(),
+            new DefaultHlsPlaylistParserFactory());
+    defaultHlsPlaylistTracker.experimentalSetUseReloadRequestForRefresh(
+        useReloadRequestForRefresh);
+    AtomicInteger primaryPlaylistCounter = new AtomicInteger();
+    defaultHlsPlaylistTracker.start(
+        multivariantPlaylistUri,
+        new MediaSourceEventListener.EventDispatcher(),
+        mediaPlaylist -> primaryPlaylistCounter.addAndGet(1));
+    RobolectricUtil.runMainLooperUntil(() -> primaryPlaylistCounter.get() >= 1);
+
+    defaultHlsPlaylistTracker.refreshPlaylist(refreshedPlaylistUri);
+    RobolectricUtil.runMainLooperUntil(
+        () ->
+            defaultHlsPlaylistTracker.getPlaylistSnapshot(
+                    refreshedPlaylistUri, /* isForPlayback= */ false)
+                != null);
+    defaultHlsPlaylistTracker.refreshPlaylist(refreshedPlaylistUri);
+    RobolectricUtil.runMainLooperUntil(() -> mockWebServer.getRequestCount() >= 4);
+
+    defaultHlsPlaylistTracker.stop();
+  }
+
   private static MockResponse getMockResponse(String assetFile) throws IOException {
     return new MockResponse().setResponseCode(200).setBody(new Buffer().write(getBytes(assetFile)));
   }
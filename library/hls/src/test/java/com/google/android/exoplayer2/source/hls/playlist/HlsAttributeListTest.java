@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.source.hls.playlist;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Unit tests for {@link HlsAttributeList}. */
+@RunWith(AndroidJUnit4.class)
+public final class HlsAttributeListTest {
+
+  @Test
+  public void get_withQuotedAndUnquotedValues_returnsValuesWithoutQuotes() {
+    HlsAttributeList attributes =
+        HlsAttributeList.parse(
+            "#EXT-X-STREAM-INF:BANDWIDTH=1280000,"
+                + "CODECS=\"mp4a.40.2,avc1.66.30\",RESOLUTION=304x128");
+
+    assertThat(attributes.get("BANDWIDTH")).isEqualTo("1280000");
+    assertThat(attributes.get("CODECS")).isEqualTo("mp4a.40.2,avc1.66.30");
+    assertThat(attributes.get("RESOLUTION")).isEqualTo("304x128");
+  }
+
+  @Test
+  public void get_withNameSuffixOfOtherName_matchesWholeName() {
+    HlsAttributeList attributes =
+        HlsAttributeList.parse("#EXT-X-STREAM-INF:AVERAGE-BANDWIDTH=1000,BANDWIDTH=2000");
+
+    assertThat(attributes.get("BANDWIDTH")).isEqualTo("2000");
+    assertThat(attributes.get("AVERAGE-BANDWIDTH")).isEqualTo("1000");
+    assertThat(attributes.get("WIDTH")).isNull();
+  }
+
+  @Test
+  public void get_withSpacesAroundAttributes_trimsNamesAndUnquotedValues() {
+    HlsAttributeList attributes =
+        HlsAttributeList.parse("#EXT-X-MEDIA: TYPE = AUDIO , NAME=\" English \"");
+
+    assertThat(attributes.get("TYPE")).isEqualTo("AUDIO");
+    assertThat(attributes.get("NAME")).isEqualTo(" English ");
+  }
+
+  @Test
+  public void get_withEmptyOrMalformedValues_returnsNull() {
+    HlsAttributeList attributes =
+        HlsAttributeList.parse("#EXT-X-MEDIA:LANGUAGE=\"\",DEFAULT,GROUP-ID=,URI=\"unterminated");
+
+    assertThat(attributes.get("LANGUAGE")).isNull();
+    assertThat(attributes.get("DEFAULT")).isNull();
+    assertThat(attributes.get("GROUP-ID")).isNull();
+    assertThat(attributes.get("URI")).isNull();
+  }
+
+  @Test
+  public void get_withManyAttributes_returnsAllValues() {
+    StringBuilder line = new StringBuilder("#EXT-X-SESSION-DATA:");
+    for (int i = 0; i < 20; i++) {
+      line.append(i == 0 ? "" : ",").append("ATTR").append(i).append('=').append(i);
+    }
+    HlsAttributeList attributes = HlsAttributeList.parse(line.toString());
+
+    for (int i = 0; i < 20; i++) {
+      assertThat(attributes.get("ATTR" + i)).isEqualTo(String.valueOf(i));
+    }
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.source.hls.playlist;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.common.base.Charsets;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Unit tests for {@link HlsLineReader}. */
+@RunWith(AndroidJUnit4.class)
+public final class HlsLineReaderTest {
+
+  @Test
+  public void readLine_withMixedLineBreaks_returnsEachLine() throws IOException {
+    HlsLineReader reader = createReader("#EXTM3U\n#EXT-X-VERSION:3\r\n#EXTINF:5,\rsegment.ts");
+
+    assertThat(reader.readLine()).isEqualTo("#EXTM3U");
+    assertThat(reader.readLine()).isEqualTo("#EXT-X-VERSION:3");
+    assertThat(reader.readLine()).isEqualTo("#EXTINF:5,");
+    assertThat(reader.readLine()).isEqualTo("segment.ts");
+    assertThat(reader.readLine()).isNull();
+  }
+
+  @Test
+  public void readLine_withBlankLinesAndSurroundingWhitespace_returnsTrimmedNonEmptyLines()
+      throws IOException {
+    HlsLineReader reader = createReader("\n  \t\r\n  #EXTM3U \t\n\n   \n\tsegment.ts  \n \n");
+
+    assertThat(reader.readLine()).isEqualTo("#EXTM3U");
+    assertThat(reader.readLine()).isEqualTo("segment.ts");
+    assertThat(reader.readLine()).isNull();
+  }
+
+  @Test
+  public void readLine_withLinesLongerThanBuffer_returnsWholeLines() throws IOException {
+    String longLine = "#EXT-X-STREAM-INF:BANDWIDTH=1280000,CODECS=\"mp4a.40.2,avc1.66.30\"";
+    HlsLineReader reader =
+        new HlsLineReader(
+            new ByteArrayInputStream((longLine + "\r\n" + longLine).getBytes(Charsets.UTF_8)),
+            /* initialBufferSize= */ 4);
+
+    assertThat(reader.readLine()).isEqualTo(longLine);
+    assertThat(reader.readLine()).isEqualTo(longLine);
+    assertThat(reader.readLine()).isNull();
+  }
+
+  @Test
+  public void readLine_withMultiByteCharactersAcrossBufferBoundary_decodesUtf8()
+      throws IOException {
+    HlsLineReader reader =
+        new HlsLineReader(
+            new ByteArrayInputStream(
+                "#EXT-X-MEDIA:NAME=\"Français 日本語\"\n".getBytes(Charsets.UTF_8)),
+            /* initialBufferSize= */ 3);
+
+    assertThat(reader.readLine()).isEqualTo("#EXT-X-MEDIA:NAME=\"Français 日本語\"");
+    assertThat(reader.readLine()).isNull();
+  }
+
+  @Test
+  public void read_withByteOrderMark_returnsUnsignedBytesThenLines() throws IOException {
+    HlsLineReader reader =
+        new HlsLineReader(
+            new ByteArrayInputStream(
+                new byte[] {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF, '#', '\n', 'a', '\n'}),
+            /* initialBufferSize= */ 2);
+
+    assertThat(reader.read()).isEqualTo(0xEF);
+    assertThat(reader.read()).isEqualTo(0xBB);
+    assertThat(reader.read()).isEqualTo(0xBF);
+    assertThat(reader.read()).isEqualTo('#');
+    assertThat(reader.readLine()).isEqualTo("a");
+    assertThat(reader.read()).isEqualTo('\n');
+    assertThat(reader.read()).isEqualTo(-1);
+  }
+
+  private static HlsLineReader createReader(String input) {
+    return new HlsLineReader(new ByteArrayInputStream(input.getBytes(Charsets.UTF_8)));
+  }
+}
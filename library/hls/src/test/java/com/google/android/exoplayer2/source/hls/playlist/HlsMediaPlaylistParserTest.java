@@ -464,6 +464,274 @@ public class HlsMediaPlaylistParserTest {
     assertThat(playlist.trailingParts.get(0).relativeDiscontinuitySequence).isEqualTo(1);
   }
 
+  @Test
+  public void parseMediaPlaylist_reusingPreviousSegments_reusesUnchangedSegments()
+      throws IOException {
+    Uri playlistUri = Uri.parse("https://example.com/test.m3u8");
+    String previousPlaylistString =
+        "#EXTM3U\n"
+            + "#EXT-X-TARGETDURATION:4\n"
+            + "#EXT-X-VERSION:6\n"
+            + "#EXT-X-MEDIA-SEQUENCE:10\n"
+            + "#EXTINF:4.00008,\n"
+            + "fileSequence10.ts\n"
+            + "#EXTINF:4.00008,\n"
+            + "fileSequence11.ts\n";
+    String playlistString =
+        "#EXTM3U\n"
+            + "#EXT-X-TARGETDURATION:4\n"
+            + "#EXT-X-VERSION:6\n"
+            + "#EXT-X-MEDIA-SEQUENCE:10\n"
+            + "#EXTINF:4.00008,\n"
+            + "fileSequence10.ts\n"
+            + "#EXTINF:4.00008,\n"
+            + "fileSequence11.ts\n"
+            + "#EXTINF:3.5,\n"
+            + "fileSequence12.ts\n";
+    HlsMediaPlaylist previousPlaylist =
+        (HlsMediaPlaylist)
+            new HlsPlaylistParser()
+                .parse(
+                    playlistUri,
+                    new ByteArrayInputStream(Util.getUtf8Bytes(previousPlaylistString)));
+
+    HlsMediaPlaylist playlist =
+        (HlsMediaPlaylist)
+            new HlsPlaylistParser(
+                    HlsMultivariantPlaylist.EMPTY,
+                    previousPlaylist,
+                    /* reusePreviousSegments= */ true)
+                .parse(playlistUri, new ByteArrayInputStream(Util.getUtf8Bytes(playlistString)));
+
+    assertThat(playlist.segments).hasSize(3);
+    assertThat(playlist.segments.get(0)).isSameInstanceAs(previousPlaylist.segments.get(0));
+    assertThat(playlist.segments.get(1)).isSameInstanceAs(previousPlaylist.segments.get(1));
+    assertThat(playlist.segments.get(2).url).isEqualTo("fileSequence12.ts");
+    assertThat(playlist.segments.get(2).durationUs).isEqualTo(3_500_000);
+    assertThat(playlist.segments.get(2).relativeStartTimeUs).isEqualTo(8_000_160);
+    assertThat(playlist.tags)
+        .containsExactlyElementsIn(
+            parsePlaylist(playlistUri, playlistString, /* previousPlaylist= */ null).tags)
+        .inOrder();
+  }
+
+  @Test
+  public void parseMediaPlaylist_reusingPreviousSegmentsWithSlidingWindow_matchesFullParse()
+      throws IOException {
+    Uri playlistUri = Uri.parse("https://example.com/test.m3u8");
+    String previousPlaylistString =
+        "#EXTM3U\n"
+            + "#EXT-X-TARGETDURATION:4\n"
+            + "#EXT-X-VERSION:6\n"
+            + "#EXT-X-PART-INF:PART-TARGET=2.0\n"
+            + "#EXT-X-MEDIA-SEQUENCE:10\n"
+            + "#EXTINF:4.00008,\n"
+            + "#EXT-X-BYTERANGE:1000@0\n"
+            + "fileSequence10.ts\n"
+            + "#EXT-X-DISCONTINUITY\n"
+            + "#EXT-X-PART:DURATION=2.00000,URI=\"part11.1.ts\"\n"
+            + "#EXT-X-PART:DURATION=2.00000,URI=\"part11.2.ts\"\n"
+            + "#EXTINF:4.00008,\n"
+            + "#EXT-X-BYTERANGE:2000\n"
+            + "fileSequence10.ts\n"
+            + "#EXT-X-PART:DURATION=2.00000,URI=\"part12.1.ts\"\n"
+            + "#EXT-X-PART:DURATION=2.00000,URI=\"part12.2.ts\"\n"
+            + "#EXTINF:4.00008,\n"
+            + "fileSequence12.ts\n";
+    String playlistString =
+        "#EXTM3U\n"
+            + "#EXT-X-TARGETDURATION:4\n"
+            + "#EXT-X-VERSION:6\n"
+            + "#EXT-X-PART-INF:PART-TARGET=2.0\n"
+            + "#EXT-X-MEDIA-SEQUENCE:11\n"
+            + "#EXT-X-DISCONTINUITY\n"
+            + "#EXT-X-PART:DURATION=2.00000,URI=\"part11.1.ts\"\n"
+            + "#EXT-X-PART:DURATION=2.00000,URI=\"part11.2.ts\"\n"
+            + "#EXTINF:4.00008,\n"
+            + "#EXT-X-BYTERANGE:2000@1000\n"
+            + "fileSequence10.ts\n"
+            + "#EXT-X-PART:DURATION=2.00000,URI=\"part12.1.ts\"\n"
+            + "#EXT-X-PART:DURATION=2.00000,URI=\"part12.2.ts\"\n"
+            + "#EXTINF:4.00008,\n"
+            + "fileSequence12.ts\n"
+            + "#EXT-X-PROGRAM-DATE-TIME:2020-01-01T00:00:00Z\n"
+            + "#EXT-X-PART:DURATION=2.00000,URI=\"part13.1.ts\"\n"
+            + "#EXT-X-PART:DURATION=2.00000,URI=\"part13.2.ts\"\n"
+            + "#EXTINF:3.5,\n"
+            + "fileSequence13.ts\n"
+            + "#EXT-X-PART:DURATION=2.00000,URI=\"part14.1.ts\"\n";
+    HlsMediaPlaylist previousPlaylist =
+        parsePlaylist(playlistUri, previousPlaylistString, /* previousPlaylist= */ null);
+
+    HlsMediaPlaylist playlist =
+        (HlsMediaPlaylist)
+            new HlsPlaylistParser(
+                    HlsMultivariantPlaylist.EMPTY,
+                    previousPlaylist,
+                    /* reusePreviousSegments= */ true)
+                .parse(playlistUri, new ByteArrayInputStream(Util.getUtf8Bytes(playlistString)));
+
+    HlsMediaPlaylist fullyParsedPlaylist =
+        parsePlaylist(playlistUri, playlistString, /* previousPlaylist= */ null);
+    assertThat(playlist.segments).hasSize(3);
+    assertThat(playlist.segments.get(0).parts).hasSize(2);
+    assertThat(playlist.startTimeUs).isEqualTo(fullyParsedPlaylist.startTimeUs);
+    assertThat(playlist.tags).containsExactlyElementsIn(fullyParsedPlaylist.tags).inOrder();
+    for (int i = 0; i < playlist.segments.size(); i++) {
+      assertSegmentBasesEqual(playlist.segments.get(i), fullyParsedPlaylist.segments.get(i));
+      List<HlsMediaPlaylist.Part> parts = playlist.segments.get(i).parts;
+      assertThat(parts).hasSize(fullyParsedPlaylist.segments.get(i).parts.size());
+      for (int j = 0; j < parts.size(); j++) {
+        assertSegmentBasesEqual(parts.get(j), fullyParsedPlaylist.segments.get(i).parts.get(j));
+      }
+    }
+    assertThat(playlist.trailingParts).hasSize(1);
+    assertSegmentBasesEqual(
+        playlist.trailingParts.get(0), fullyParsedPlaylist.trailingParts.get(0));
+  }
+
+  @Test
+  public void parseMediaPlaylist_reusingPreviousSegmentsWithChangedSegment_parsesChangedSegment()
+      throws IOException {
+    Uri playlistUri = Uri.parse("https://example.com/test.m3u8");
+    String previousPlaylistString =
+        "#EXTM3U\n"
+            + "#EXT-X-TARGETDURATION:4\n"
+            + "#EXT-X-MEDIA-SEQUENCE:10\n"
+            + "#EXTINF:4.00008,\n"
+            + "fileSequence10.ts\n"
+            + "#EXTINF:4.00008,\n"
+            + "fileSequence11.ts\n";
+    String playlistString =
+        "#EXTM3U\n"
+            + "#EXT-X-TARGETDURATION:4\n"
+            + "#EXT-X-MEDIA-SEQUENCE:10\n"
+            + "#EXTINF:4.00008,\n"
+            + "fileSequence10.ts\n"
+            + "#EXT-X-GAP\n"
+            + "#EXTINF:2.5,Replacement\n"
+            + "replacement11.ts\n"
+            + "#EXTINF:4.00008,\n"
+            + "fileSequence12.ts\n";
+    HlsMediaPlaylist previousPlaylist =
+        parsePlaylist(playlistUri, previousPlaylistString, /* previousPlaylist= */ null);
+
+    HlsMediaPlaylist playlist =
+        (HlsMediaPlaylist)
+            new HlsPlaylistParser(
+                    HlsMultivariantPlaylist.EMPTY,
+                    previousPlaylist,
+                    /* reusePreviousSegments= */ true)
+                .parse(playlistUri, new ByteArrayInputStream(Util.getUtf8Bytes(playlistString)));
+
+    assertThat(playlist.segments).hasSize(3);
+    assertThat(playlist.segments.get(0)).isSameInstanceAs(previousPlaylist.segments.get(0));
+    Segment changedSegment = playlist.segments.get(1);
+    assertThat(changedSegment.url).isEqualTo("replacement11.ts");
+    assertThat(changedSegment.title).isEqualTo("Replacement");
+    assertThat(changedSegment.durationUs).isEqualTo(2_500_000);
+    assertThat(changedSegment.hasGapTag).isTrue();
+    assertThat(playlist.segments.get(2).relativeStartTimeUs).isEqualTo(6_500_080);
+    assertThat(playlist.tags)
+        .containsExactlyElementsIn(
+            parsePlaylist(playlistUri, playlistString, /* previousPlaylist= */ null).tags)
+        .inOrder();
+  }
+
+  @Test
+  public void parseMediaPlaylist_reusingPreviousSegmentsWithChangedDuration_parsesChangedSegment()
+      throws IOException {
+    Uri playlistUri = Uri.parse("https://example.com/test.m3u8");
+    String previousPlaylistString =
+        "#EXTM3U\n"
+            + "#EXT-X-TARGETDURATION:4\n"
+            + "#EXT-X-MEDIA-SEQUENCE:10\n"
+            + "#EXTINF:4.00008,\n"
+            + "fileSequence10.ts\n"
+            + "#EXTINF:4.00008,\n"
+            + "#EXT-X-BYTERANGE:1000@0\n"
+            + "fileSequence11.ts\n";
+    String playlistString =
+        "#EXTM3U\n"
+            + "#EXT-X-TARGETDURATION:4\n"
+            + "#EXT-X-MEDIA-SEQUENCE:10\n"
+            + "#EXTINF:3.0,\n"
+            + "fileSequence10.ts\n"
+            + "#EXTINF:4.00008,\n"
+            + "#EXT-X-BYTERANGE:2000@0\n"
+            + "fileSequence11.ts\n";
+    HlsMediaPlaylist previousPlaylist =
+        parsePlaylist(playlistUri, previousPlaylistString, /* previousPlaylist= */ null);
+
+    HlsMediaPlaylist playlist =
+        (HlsMediaPlaylist)
+            new HlsPlaylistParser(
+                    HlsMultivariantPlaylist.EMPTY,
+                    previousPlaylist,
+                    /* reusePreviousSegments= */ true)
+                .parse(playlistUri, new ByteArrayInputStream(Util.getUtf8Bytes(playlistString)));
+
+    HlsMediaPlaylist fullyParsedPlaylist =
+        parsePlaylist(playlistUri, playlistString, /* previousPlaylist= */ null);
+    assertThat(playlist.segments).hasSize(2);
+    assertThat(playlist.segments.get(0).durationUs).isEqualTo(3_000_000);
+    assertThat(playlist.segments.get(1).byteRangeLength).isEqualTo(2000);
+    for (int i = 0; i < playlist.segments.size(); i++) {
+      assertSegmentBasesEqual(playlist.segments.get(i), fullyParsedPlaylist.segments.get(i));
+    }
+    assertThat(playlist.tags).containsExactlyElementsIn(fullyParsedPlaylist.tags).inOrder();
+  }
+
+  @Test
+  public void parseMediaPlaylist_reusingPreviousSegmentsWithChangedParts_parsesChangedParts()
+      throws IOException {
+    Uri playlistUri = Uri.parse("https://example.com/test.m3u8");
+    String previousPlaylistString =
+        "#EXTM3U\n"
+            + "#EXT-X-TARGETDURATION:4\n"
+            + "#EXT-X-VERSION:6\n"
+            + "#EXT-X-PART-INF:PART-TARGET=2.0\n"
+            + "#EXT-X-MEDIA-SEQUENCE:10\n"
+            + "#EXTINF:4.00008,\n"
+            + "fileSequence10.ts\n"
+            + "#EXT-X-PART:DURATION=2.00000,URI=\"part11.1.ts\"\n"
+            + "#EXTINF:4.00008,\n"
+            + "fileSequence11.ts\n";
+    String playlistString =
+        "#EXTM3U\n"
+            + "#EXT-X-TARGETDURATION:4\n"
+            + "#EXT-X-VERSION:6\n"
+            + "#EXT-X-PART-INF:PART-TARGET=2.0\n"
+            + "#EXT-X-MEDIA-SEQUENCE:10\n"
+            + "#EXTINF:4.00008,\n"
+            + "fileSequence10.ts\n"
+            + "#EXT-X-PART:DURATION=2.00000,URI=\"part11.1.ts\"\n"
+            + "#EXT-X-PART:DURATION=2.00000,URI=\"part11.2.ts\",GAP=YES\n"
+            + "#EXTINF:4.00008,\n"
+            + "fileSequence11.ts\n";
+    HlsMediaPlaylist previousPlaylist =
+        parsePlaylist(playlistUri, previousPlaylistString, /* previousPlaylist= */ null);
+
+    HlsMediaPlaylist playlist =
+        (HlsMediaPlaylist)
+            new HlsPlaylistParser(
+                    HlsMultivariantPlaylist.EMPTY,
+                    previousPlaylist,
+                    /* reusePreviousSegments= */ true)
+                .parse(playlistUri, new ByteArrayInputStream(Util.getUtf8Bytes(playlistString)));
+
+    assertThat(playlist.segments).hasSize(2);
+    assertThat(playlist.segments.get(0)).isSameInstanceAs(previousPlaylist.segments.get(0));
+    List<HlsMediaPlaylist.Part> parts = playlist.segments.get(1).parts;
+    assertThat(parts).hasSize(2);
+    assertThat(parts.get(1).url).isEqualTo("part11.2.ts");
+    assertThat(parts.get(1).hasGapTag).isTrue();
+    assertThat(playlist.tags)
+        .containsExactlyElementsIn(
+            parsePlaylist(playlistUri, playlistString, /* previousPlaylist= */ null).tags)
+        .inOrder();
+  }
+
   @Test
   public void parseMediaPlaylist_withParts_parsesPartWithAllAttributes() throws IOException {
     Uri playlistUri = Uri.parse("https://example.com/test.m3u8");
@@ -1472,4 +1740,24 @@ public class HlsMediaPlaylistParserTest {
       assertThat(playlist.segments.get(i - 1).url).isEqualTo("long_path" + i + ".ts");
     }
   }
+
+  private static HlsMediaPlaylist parsePlaylist(
+      Uri playlistUri, String playlistString, @Nullable HlsMediaPlaylist previousPlaylist)
+      throws IOException {
+    return (HlsMediaPlaylist)
+        new HlsPlaylistParser(HlsMultivariantPlaylist.EMPTY, previousPlaylist)
+            .parse(playlistUri, new ByteArrayInputStream(Util.getUtf8Bytes(playlistString)));
+  }
+
+  private static void assertSegmentBasesEqual(
+      HlsMediaPlaylist.SegmentBase actual, HlsMediaPlaylist.SegmentBase expected) {
+    assertThat(actual.url).isEqualTo(expected.url);
+    assertThat(actual.durationUs).isEqualTo(expected.durationUs);
+    assertThat(actual.relativeStartTimeUs).isEqualTo(expected.relativeStartTimeUs);
+    assertThat(actual.relativeDiscontinuitySequence)
+        .isEqualTo(expected.relativeDiscontinuitySequence);
+    assertThat(actual.byteRangeOffset).isEqualTo(expected.byteRangeOffset);
+    assertThat(actual.byteRangeLength).isEqualTo(expected.byteRangeLength);
+    assertThat(actual.hasGapTag).isEqualTo(expected.hasGapTag);
+  }
 }
@@ -285,6 +285,14 @@ public class HlsMultivariantPlaylistParserTest {
     assertThat(variants.get(1).format.bitrate).isEqualTo(1280000);
   }
 
+  @Test
+  public void parseMultivariantPlaylist_withByteOrderMark_success() throws IOException {
+    HlsMultivariantPlaylist multivariantPlaylist =
+        parseMultivariantPlaylist(PLAYLIST_URI, "\uFEFF" + PLAYLIST_SIMPLE);
+
+    assertThat(multivariantPlaylist.variants).hasSize(5);
+  }
+
   @Test
   public void parseMultivariantPlaylist_withInvalidHeader_throwsException() throws IOException {
     try {
@@ -478,6 +486,33 @@ public class HlsMultivariantPlaylistParserTest {
         /* captionGroupId= */ "cc1");
   }
 
+  @Test
+  public void parseMultivariantPlaylist_withRepeatedAttributeValues_sharesInstances()
+      throws IOException {
+    HlsMultivariantPlaylist playlist =
+        parseMultivariantPlaylist(
+            PLAYLIST_URI,
+            "#EXTM3U\n"
+                + "#EXT-X-MEDIA:TYPE=AUDIO,GROUP-ID=\"aud\",NAME=\"English\",LANGUAGE=\"en\","
+                + "URI=\"en.m3u8\"\n"
+                + "#EXT-X-MEDIA:TYPE=AUDIO,GROUP-ID=\"aud\",NAME=\"English AD\",LANGUAGE=\"en\","
+                + "URI=\"en_ad.m3u8\"\n"
+                + "#EXT-X-STREAM-INF:BANDWIDTH=1000000,CODECS=\"avc1.4d401e,mp4a.40.2\","
+                + "AUDIO=\"aud\"\n"
+                + "low.m3u8\n"
+                + "#EXT-X-STREAM-INF:BANDWIDTH=2000000,CODECS=\"avc1.4d401e,mp4a.40.2\","
+                + "AUDIO=\"aud\"\n"
+                + "high.m3u8\n");
+
+    List<Variant> variants = playlist.variants;
+    assertThat(variants).hasSize(2);
+    assertThat(variants.get(1).format.codecs).isSameInstanceAs(variants.get(0).format.codecs);
+    assertThat(variants.get(1).audioGroupId).isSameInstanceAs(variants.get(0).audioGroupId);
+    assertThat(playlist.audios).hasSize(2);
+    assertThat(playlist.audios.get(1).groupId).isSameInstanceAs(playlist.audios.get(0).groupId);
+    assertThat(playlist.audios.get(0).groupId).isSameInstanceAs(variants.get(0).audioGroupId);
+  }
+
   private static HlsMultivariantPlaylist parseMultivariantPlaylist(
       String uri, String playlistString) throws IOException {
     Uri playlistUri = Uri.parse(uri);
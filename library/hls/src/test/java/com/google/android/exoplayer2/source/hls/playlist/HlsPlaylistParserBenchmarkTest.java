@@ -0,0 +1,216 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.source.hls.playlist;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.net.Uri;
+import androidx.annotation.Nullable;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.common.base.Charsets;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Manual benchmark comparing the previous regular expression based tokenization of HLS playlists
+ * with {@link HlsLineReader} and {@link HlsAttributeList}.
+ *
+ * <p>Remove the {@link Ignore} annotation and run the test to print the timings. The results are
+ * indicative only, since they depend on the host JVM rather than on an Android device.
+ */
+@RunWith(AndroidJUnit4.class)
+@Ignore("Manual benchmark.")
+public final class HlsPlaylistParserBenchmarkTest {
+
+  private static final int VARIANT_COUNT = 500;
+  private static final int AUDIO_RENDITION_COUNT = 100;
+  private static final int WARM_UP_ITERATIONS = 50;
+  private static final int MEASURED_ITERATIONS = 200;
+
+  private static final String TAG_STREAM_INF = "#EXT-X-STREAM-INF";
+  private static final String TAG_MEDIA = "#EXT-X-MEDIA";
+
+  private static final String[] STREAM_INF_ATTRIBUTE_NAMES = {
+    "BANDWIDTH", "AVERAGE-BANDWIDTH", "CODECS", "RESOLUTION", "FRAME-RATE", "AUDIO"
+  };
+  private static final String[] MEDIA_ATTRIBUTE_NAMES = {
+    "TYPE", "GROUP-ID", "NAME", "LANGUAGE", "DEFAULT", "AUTOSELECT", "URI"
+  };
+
+  // The patterns used by HlsPlaylistParser before it tokenized attribute lists.
+  private static final Pattern[] STREAM_INF_PATTERNS = {
+    Pattern.compile("[^-]BANDWIDTH=(\\d+)\\b"),
+    Pattern.compile("AVERAGE-BANDWIDTH=(\\d+)\\b"),
+    Pattern.compile("CODECS=\"(.+?)\""),
+    Pattern.compile("RESOLUTION=(\\d+x\\d+)"),
+    Pattern.compile("FRAME-RATE=([\\d\\.]+)\\b"),
+    Pattern.compile("AUDIO=\"(.+?)\"")
+  };
+  private static final Pattern[] MEDIA_PATTERNS = {
+    Pattern.compile("TYPE=(AUDIO|VIDEO|SUBTITLES|CLOSED-CAPTIONS)"),
+    Pattern.compile("GROUP-ID=\"(.+?)\""),
+    Pattern.compile("NAME=\"(.+?)\""),
+    Pattern.compile("LANGUAGE=\"(.+?)\""),
+    Pattern.compile("DEFAULT=(NO|YES)"),
+    Pattern.compile("AUTOSELECT=(NO|YES)"),
+    Pattern.compile("URI=\"(.+?)\"")
+  };
+
+  @Test
+  public void tokenizeLargeMultivariantPlaylist() throws IOException {
+    byte[] playlist = createMultivariantPlaylist();
+
+    long regexChecksum = tokenizeWithRegexes(playlist);
+    long attributeListChecksum = tokenizeWithAttributeLists(playlist);
+    assertThat(attributeListChecksum).isEqualTo(regexChecksum);
+
+    for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
+      tokenizeWithRegexes(playlist);
+      tokenizeWithAttributeLists(playlist);
+    }
+    long regexNs = 0;
+    long attributeListNs = 0;
+    for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+      long startNs = System.nanoTime();
+      tokenizeWithRegexes(playlist);
+      regexNs += System.nanoTime() - startNs;
+      startNs = System.nanoTime();
+      tokenizeWithAttributeLists(playlist);
+      attributeListNs += System.nanoTime() - startNs;
+    }
+    System.out.printf(
+        "Tokenizing %d variants: BufferedReader + regex %d us, HlsLineReader + HlsAttributeList"
+            + " %d us%n",
+        VARIANT_COUNT,
+        regexNs / MEASURED_ITERATIONS / 1000,
+        attributeListNs / MEASURED_ITERATIONS / 1000);
+  }
+
+  @Test
+  public void parseLargeMultivariantPlaylist() throws IOException {
+    byte[] playlist = createMultivariantPlaylist();
+    Uri uri = Uri.parse("https://example.com/multivariant.m3u8");
+    HlsPlaylistParser parser = new HlsPlaylistParser();
+
+    HlsMultivariantPlaylist parsedPlaylist =
+        (HlsMultivariantPlaylist) parser.parse(uri, new ByteArrayInputStream(playlist));
+    assertThat(parsedPlaylist.variants).hasSize(VARIANT_COUNT);
+    assertThat(parsedPlaylist.audios).hasSize(AUDIO_RENDITION_COUNT);
+
+    for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
+      parser.parse(uri, new ByteArrayInputStream(playlist));
+    }
+    long startNs = System.nanoTime();
+    for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+      parser.parse(uri, new ByteArrayInputStream(playlist));
+    }
+    long parseNs = System.nanoTime() - startNs;
+    System.out.printf(
+        "Parsing %d variants: %d us%n", VARIANT_COUNT, parseNs / MEASURED_ITERATIONS / 1000);
+  }
+
+  private static byte[] createMultivariantPlaylist() {
+    StringBuilder playlist = new StringBuilder("#EXTM3U\n#EXT-X-INDEPENDENT-SEGMENTS\n\n");
+    for (int i = 0; i < AUDIO_RENDITION_COUNT; i++) {
+      playlist
+          .append("#EXT-X-MEDIA:TYPE=AUDIO,GROUP-ID=\"audio-")
+          .append(i % 10)
+          .append("\",NAME=\"Audio ")
+          .append(i)
+          .append("\",LANGUAGE=\"en\",DEFAULT=NO,AUTOSELECT=YES,URI=\"audio/")
+          .append(i)
+          .append("/prog_index.m3u8\"\n");
+    }
+    for (int i = 0; i < VARIANT_COUNT; i++) {
+      playlist
+          .append("\n#EXT-X-STREAM-INF:BANDWIDTH=")
+          .append(100_000 + i * 10_000)
+          .append(",AVERAGE-BANDWIDTH=")
+          .append(90_000 + i * 10_000)
+          .append(",CODECS=\"avc1.640028,mp4a.40.2\",RESOLUTION=1920x1080,FRAME-RATE=29.970")
+          .append(",AUDIO=\"audio-")
+          .append(i % 10)
+          .append("\"\nvideo/")
+          .append(i)
+          .append("/prog_index.m3u8\n");
+    }
+    return playlist.toString().getBytes(Charsets.UTF_8);
+  }
+
+  private static long tokenizeWithRegexes(byte[] playlist) throws IOException {
+    BufferedReader reader =
+        new BufferedReader(
+            new InputStreamReader(new ByteArrayInputStream(playlist), Charsets.UTF_8));
+    long checksum = 0;
+    String line;
+    while ((line = reader.readLine()) != null) {
+      line = line.trim();
+      if (line.startsWith(TAG_STREAM_INF)) {
+        checksum += sumMatchedLengths(line, STREAM_INF_PATTERNS);
+      } else if (line.startsWith(TAG_MEDIA)) {
+        checksum += sumMatchedLengths(line, MEDIA_PATTERNS);
+      } else {
+        checksum += line.length();
+      }
+    }
+    return checksum;
+  }
+
+  private static long tokenizeWithAttributeLists(byte[] playlist) throws IOException {
+    HlsLineReader reader = new HlsLineReader(new ByteArrayInputStream(playlist));
+    long checksum = 0;
+    @Nullable String line;
+    while ((line = reader.readLine()) != null) {
+      if (line.startsWith(TAG_STREAM_INF)) {
+        checksum += sumValueLengths(HlsAttributeList.parse(line), STREAM_INF_ATTRIBUTE_NAMES);
+      } else if (line.startsWith(TAG_MEDIA)) {
+        checksum += sumValueLengths(HlsAttributeList.parse(line), MEDIA_ATTRIBUTE_NAMES);
+      } else {
+        checksum += line.length();
+      }
+    }
+    return checksum;
+  }
+
+  private static long sumMatchedLengths(String line, Pattern[] patterns) {
+    long sum = 0;
+    for (Pattern pattern : patterns) {
+      Matcher matcher = pattern.matcher(line);
+      if (matcher.find()) {
+        sum += matcher.group(1).length();
+      }
+    }
+    return sum;
+  }
+
+  private static long sumValueLengths(HlsAttributeList attributes, String[] names) {
+    long sum = 0;
+    for (String name : names) {
+      @Nullable String value = attributes.get(name);
+      if (value != null) {
+        sum += value.length();
+      }
+    }
+    return sum;
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.testutil;
+
+import static com.google.android.exoplayer2.util.Assertions.checkArgument;
+import static com.google.android.exoplayer2.util.Assertions.checkState;
+import static com.google.android.exoplayer2.util.Assertions.checkStateNotNull;
+
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.experimental.BandwidthEstimator;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Replays a recorded trace of data transfers against a {@link BandwidthEstimator}.
+ *
+ * <p>A trace has one event per line, ordered by time. Empty lines and lines starting with {@code
+ * #} are ignored. Each event has the form {@code <timeMs> <transferId> <event> [<bytes>]}, where
+ * {@code event} is one of:
+ *
+ * <ul>
+ *   <li>{@code start}: The transfer is initialized and starts.
+ *   <li>{@code bytes}: The transfer receives {@code bytes} bytes.
+ *   <li>{@code end}: The transfer ends.
+ * </ul>
+ *
+ * <p>Example of two parallel transfers:
+ *
+ * <pre>
+ *   0 video start
+ *   0 audio start
+ *   50 video bytes 50000
+ *   50 audio bytes 5000
+ *   100 video bytes 50000
+ *   100 video end
+ *   100 audio end
+ * </pre>
+ */
+public final class TransferTraceReplayer {
+
+  private TransferTraceReplayer() {}
+
+  /**
+   * Replays a trace.
+   *
+   * @param trace The trace.
+   * @param estimator The {@link BandwidthEstimator} to notify of the transfer events.
+   * @param clock The {@link FakeClock} used by the estimator. The clock is advanced to the time of
+   *     each event before the event is replayed.
+   * @return The bandwidth estimates of the estimator after each event, in bits per second.
+   */
+  public static List<Long> replay(String trace, BandwidthEstimator estimator, FakeClock clock) {
+    HashMap<String, DataSource> dataSources = new HashMap<>();
+    List<Long> bandwidthEstimates = new ArrayList<>();
+    for (String line : trace.split("\n")) {
+      line = line.trim();
+      if (line.isEmpty() || line.startsWith("#")) {
+        continue;
+      }
+      String[] fields = line.split("\\s+");
+      checkArgument(fields.length >= 3, "Invalid trace event: " + line);
+      long timeMs = Long.parseLong(fields[0]);
+      long advanceTimeMs = timeMs - clock.elapsedRealtime();
+      checkArgument(advanceTimeMs >= 0, "Trace events out of order: " + line);
+      clock.advanceTime(advanceTimeMs);
+      String transferId = fields[1];
+      switch (fields[2]) {
+        case "start":
+          checkState(!dataSources.containsKey(transferId), "Transfer already started: " + line);
+          DataSource dataSource = new FakeDataSource();
+          dataSources.put(transferId, dataSource);
+          estimator.onTransferInitializing(dataSource);
+          estimator.onTransferStart(dataSource);
+          break;
+        case "bytes":
+          checkArgument(fields.length == 4, "Missing byte count: " + line);
+          estimator.onBytesTransferred(
+              getDataSource(dataSources, transferId, line), Integer.parseInt(fields[3]));
+          break;
+        case "end":
+          estimator.onTransferEnd(getDataSource(dataSources, transferId, line));
+          dataSources.remove(transferId);
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown trace event: " + line);
+      }
+      bandwidthEstimates.add(estimator.getBandwidthEstimate());
+    }
+    return bandwidthEstimates;
+  }
+
+  private static DataSource getDataSource(
+      HashMap<String, DataSource> dataSources, String transferId, String line) {
+    return checkStateNotNull(dataSources.get(transferId), "Transfer not started: " + line);
+  }
+}